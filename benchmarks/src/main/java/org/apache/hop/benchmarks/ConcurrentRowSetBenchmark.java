@@ -0,0 +1,163 @@
+/*! ******************************************************************************
+ *
+ * Hop : The Hop Orchestration Platform
+ *
+ * http://www.project-hop.org
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+
+package org.apache.hop.benchmarks;
+
+import org.apache.hop.core.IRowSet;
+import org.apache.hop.core.row.IRowMeta;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures row set throughput between threads: N producer threads each write to their own row set (one row set per
+ * hop copy, like the local engine creates them) and a single consumer reads them round robin, the way
+ * BaseTransform.getRow() does. {@link org.apache.hop.core.QueueRowSet} isn't thread-safe and is covered by
+ * {@link RowSetBenchmark} instead.
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.Throughput )
+@OutputTimeUnit( TimeUnit.MILLISECONDS )
+@Warmup( iterations = 3, time = 5 )
+@Measurement( iterations = 5, time = 5 )
+@Fork( 1 )
+public class ConcurrentRowSetBenchmark {
+
+  private static final int ROWS_PER_INVOCATION = 1000000;
+
+  @Param( { RowSetBenchmark.BLOCKING, RowSetBenchmark.RING_BUFFER, RowSetBenchmark.BLOCKING_BULK } )
+  public String rowSetType;
+
+  @Param( { "1", "2", "4" } )
+  public int producers;
+
+  @Param( { "10000" } )
+  public int rowSetSize;
+
+  private IRowMeta rowMeta;
+  private Object[] row;
+  private ExecutorService executor;
+
+  @Setup
+  public void setUp() {
+    rowMeta = RowSetBenchmark.createRowMeta();
+    row = new Object[] { 1L, "row set benchmark" };
+    executor = Executors.newFixedThreadPool( producers );
+  }
+
+  @TearDown
+  public void tearDown() {
+    executor.shutdownNow();
+  }
+
+  @Benchmark
+  @OperationsPerInvocation( ROWS_PER_INVOCATION )
+  public long transferRows() throws Exception {
+    final int rowsPerProducer = ROWS_PER_INVOCATION / producers;
+
+    List<IRowSet> rowSets = new ArrayList<>( producers );
+    List<Future<?>> futures = new ArrayList<>( producers );
+    for ( int i = 0; i < producers; i++ ) {
+      final IRowSet rowSet = RowSetBenchmark.createRowSet( rowSetType, rowSetSize );
+      rowSets.add( rowSet );
+      futures.add( executor.submit( () -> {
+        for ( int r = 0; r < rowsPerProducer; r++ ) {
+          while ( !rowSet.putRowWait( rowMeta, row, 100, TimeUnit.MILLISECONDS ) ) {
+            // The consumer is lagging behind, keep trying
+          }
+        }
+        rowSet.setDone();
+      } ) );
+    }
+
+    long received = consumeRoundRobin( rowSets );
+
+    for ( Future<?> future : futures ) {
+      future.get();
+    }
+    if ( received != (long) rowsPerProducer * producers ) {
+      throw new IllegalStateException( "Expected " + ( rowsPerProducer * producers ) + " rows but received " + received );
+    }
+    return received;
+  }
+
+  /**
+   * Reads from the row sets in turn with getRowImmediate() and only waits on a row set when a complete round didn't
+   * produce a single row, which is what BaseTransform.getRow() does for transforms with several input hops.
+   */
+  private long consumeRoundRobin( List<IRowSet> rowSets ) {
+    long received = 0;
+    int current = 0;
+    int emptyPolls = 0;
+    while ( !rowSets.isEmpty() ) {
+      if ( current >= rowSets.size() ) {
+        current = 0;
+      }
+      IRowSet rowSet = rowSets.get( current );
+      Object[] r = rowSet.getRowImmediate();
+      if ( r != null ) {
+        received++;
+        emptyPolls = 0;
+        current++;
+        continue;
+      }
+      if ( rowSet.isDone() ) {
+        // Check again, the last rows could have arrived before the done flag was set
+        //
+        r = rowSet.getRowImmediate();
+        if ( r != null ) {
+          received++;
+        } else {
+          rowSets.remove( current );
+        }
+        continue;
+      }
+      if ( ++emptyPolls >= rowSets.size() ) {
+        r = rowSet.getRowWait( 1, TimeUnit.MILLISECONDS );
+        if ( r != null ) {
+          received++;
+        }
+        emptyPolls = 0;
+      }
+      current++;
+    }
+    return received;
+  }
+}
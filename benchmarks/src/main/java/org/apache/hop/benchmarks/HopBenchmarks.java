@@ -0,0 +1,66 @@
+/*! ******************************************************************************
+ *
+ * Hop : The Hop Orchestration Platform
+ *
+ * http://www.project-hop.org
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+
+package org.apache.hop.benchmarks;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Entry point of the benchmarks jar. It accepts the regular JMH command line options:
+ *
+ * <pre>
+ *   mvn -Pbenchmarks -pl benchmarks -am package -DskipTests
+ *   java -jar benchmarks/target/hop-benchmarks.jar                      # everything
+ *   java -jar benchmarks/target/hop-benchmarks.jar RowMetaBenchmark     # a single suite
+ *   java -jar benchmarks/target/hop-benchmarks.jar -rff hop-0.50.json   # pick the result file
+ * </pre>
+ * <p>
+ * Unless another result format is given with -rf, the results are written as JSON to
+ * hop-benchmarks-&lt;version&gt;.json so that runs of different Hop versions can be compared, for example with
+ * jmh.morethan.io or a simple diff script.
+ */
+public class HopBenchmarks {
+
+  public static void main( String[] args ) throws Exception {
+    CommandLineOptions commandLineOptions = new CommandLineOptions( args );
+    ChainedOptionsBuilder builder = new OptionsBuilder().parent( commandLineOptions );
+
+    if ( !commandLineOptions.getResultFormat().hasValue() ) {
+      builder.resultFormat( ResultFormatType.JSON );
+    }
+    if ( !commandLineOptions.getResult().hasValue() ) {
+      builder.result( "hop-benchmarks-" + getVersion() + ".json" );
+    }
+
+    new Runner( builder.build() ).run();
+  }
+
+  private static String getVersion() {
+    String version = HopBenchmarks.class.getPackage().getImplementationVersion();
+    return version == null ? "dev" : version;
+  }
+}
@@ -0,0 +1,277 @@
+/*! ******************************************************************************
+ *
+ * Hop : The Hop Orchestration Platform
+ *
+ * http://www.project-hop.org
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+
+package org.apache.hop.benchmarks;
+
+import org.apache.hop.core.HopEnvironment;
+import org.apache.hop.core.annotations.Transform;
+import org.apache.hop.core.exception.HopException;
+import org.apache.hop.core.file.TextFileInputField;
+import org.apache.hop.core.logging.LogLevel;
+import org.apache.hop.core.plugins.PluginRegistry;
+import org.apache.hop.core.plugins.TransformPluginType;
+import org.apache.hop.core.row.IValueMeta;
+import org.apache.hop.pipeline.PipelineHopMeta;
+import org.apache.hop.pipeline.PipelineMeta;
+import org.apache.hop.pipeline.engines.local.LocalPipelineEngine;
+import org.apache.hop.pipeline.engines.local.LocalPipelineRunConfiguration;
+import org.apache.hop.pipeline.transform.ITransformMeta;
+import org.apache.hop.pipeline.transform.TransformMeta;
+import org.apache.hop.pipeline.transforms.calculator.CalculatorMeta;
+import org.apache.hop.pipeline.transforms.calculator.CalculatorMetaFunction;
+import org.apache.hop.pipeline.transforms.csvinput.CsvInputMeta;
+import org.apache.hop.pipeline.transforms.dummy.DummyMeta;
+import org.apache.hop.pipeline.transforms.rowgenerator.RowGeneratorMeta;
+import org.apache.hop.pipeline.transforms.sort.SortRowsMeta;
+import org.apache.hop.pipeline.transforms.textfileoutput.TextFileField;
+import org.apache.hop.pipeline.transforms.textfileoutput.TextFileOutputMeta;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * End-to-end benchmarks running complete pipelines on the local engine:
+ * <ul>
+ *   <li>Row Generator -&gt; Calculator -&gt; Dummy : pure in-memory row processing and row set hand-off</li>
+ *   <li>CSV file input -&gt; Sort rows -&gt; Text file output : parsing, sorting and formatting of a file</li>
+ * </ul>
+ * Every invocation is a full pipeline execution including preparation, so the score is the time per run.
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MILLISECONDS )
+@Warmup( iterations = 3 )
+@Measurement( iterations = 5 )
+@Fork( 1 )
+public class PipelineBenchmark {
+
+  @Param( { "1000000" } )
+  public int rows;
+
+  @Param( { "Blocking", "RingBuffer" } )
+  public String rowSetType;
+
+  private Path tempFolder;
+  private PipelineMeta generatorPipelineMeta;
+  private PipelineMeta csvSortPipelineMeta;
+
+  @Setup
+  public void setUp() throws Exception {
+    HopEnvironment.init();
+
+    // The transform plugins are on the class path but not in a plugins folder, register them explicitly
+    //
+    PluginRegistry registry = PluginRegistry.getInstance();
+    for ( Class<?> pluginClass : new Class<?>[] { RowGeneratorMeta.class, CalculatorMeta.class, CsvInputMeta.class,
+      SortRowsMeta.class, TextFileOutputMeta.class } ) {
+      registry.registerPluginClass( pluginClass.getName(), TransformPluginType.class, Transform.class );
+    }
+
+    tempFolder = Files.createTempDirectory( "hop-benchmarks" );
+    File csvFile = writeCsvFile( tempFolder.resolve( "input.csv" ), rows );
+
+    generatorPipelineMeta = createGeneratorPipeline();
+    csvSortPipelineMeta = createCsvSortPipeline( csvFile, tempFolder.resolve( "sort" ), tempFolder.resolve( "output" ) );
+  }
+
+  @TearDown
+  public void tearDown() throws IOException {
+    try ( Stream<Path> paths = Files.walk( tempFolder ) ) {
+      paths.sorted( Comparator.reverseOrder() ).map( Path::toFile ).forEach( File::delete );
+    }
+  }
+
+  @Benchmark
+  public long rowGeneratorCalculatorDummy() throws HopException {
+    return runPipeline( generatorPipelineMeta );
+  }
+
+  @Benchmark
+  public long csvInputSortRowsTextFileOutput() throws HopException {
+    return runPipeline( csvSortPipelineMeta );
+  }
+
+  private long runPipeline( PipelineMeta pipelineMeta ) throws HopException {
+    LocalPipelineEngine pipeline = new LocalPipelineEngine( pipelineMeta );
+    pipeline.setLogLevel( LogLevel.ERROR );
+    LocalPipelineRunConfiguration runConfiguration =
+      (LocalPipelineRunConfiguration) pipeline.getPipelineRunConfiguration().getEngineRunConfiguration();
+    runConfiguration.setRowSetType( rowSetType );
+
+    pipeline.execute();
+    pipeline.waitUntilFinished();
+
+    if ( pipeline.getErrors() > 0 ) {
+      throw new HopException( "Benchmark pipeline '" + pipelineMeta.getName() + "' finished with errors" );
+    }
+    return pipeline.getResult().getNrLinesWritten();
+  }
+
+  private PipelineMeta createGeneratorPipeline() {
+    RowGeneratorMeta generatorMeta = new RowGeneratorMeta();
+    generatorMeta.setDefault();
+    generatorMeta.allocate( 3 );
+    generatorMeta.setFieldName( new String[] { "id", "name", "factor" } );
+    generatorMeta.setFieldType( new String[] { "Integer", "String", "Number" } );
+    generatorMeta.setValue( new String[] { "12345", "Apache Hop", "2.5" } );
+    generatorMeta.setFieldFormat( new String[ 3 ] );
+    generatorMeta.setFieldLength( new int[] { -1, -1, -1 } );
+    generatorMeta.setFieldPrecision( new int[] { -1, -1, -1 } );
+    generatorMeta.setCurrency( new String[ 3 ] );
+    generatorMeta.setDecimal( new String[ 3 ] );
+    generatorMeta.setGroup( new String[ 3 ] );
+    generatorMeta.setEmptyString( new boolean[ 3 ] );
+    generatorMeta.setRowLimit( Integer.toString( rows ) );
+
+    CalculatorMeta calculatorMeta = new CalculatorMeta();
+    calculatorMeta.setCalculation( new CalculatorMetaFunction[] {
+      new CalculatorMetaFunction( "sum", CalculatorMetaFunction.CALC_ADD, "id", "factor", null,
+        IValueMeta.TYPE_NUMBER, -1, -1, false, null, null, null, null ),
+      new CalculatorMetaFunction( "product", CalculatorMetaFunction.CALC_MULTIPLY, "id", "factor", null,
+        IValueMeta.TYPE_NUMBER, -1, -1, false, null, null, null, null ),
+      new CalculatorMetaFunction( "upper", CalculatorMetaFunction.CALC_UPPER_CASE, "name", null, null,
+        IValueMeta.TYPE_STRING, -1, -1, false, null, null, null, null ),
+    } );
+
+    DummyMeta dummyMeta = new DummyMeta();
+
+    return createPipeline( "generator-calculator-dummy", generatorMeta, calculatorMeta, dummyMeta );
+  }
+
+  private PipelineMeta createCsvSortPipeline( File csvFile, Path sortFolder, Path outputFolder ) throws IOException {
+    Files.createDirectories( sortFolder );
+    Files.createDirectories( outputFolder );
+
+    CsvInputMeta csvInputMeta = new CsvInputMeta();
+    csvInputMeta.setDefault();
+    csvInputMeta.setFilename( csvFile.getAbsolutePath() );
+    csvInputMeta.setDelimiter( ";" );
+    csvInputMeta.setEnclosure( "\"" );
+    csvInputMeta.setHeaderPresent( true );
+    csvInputMeta.setLazyConversionActive( false );
+    csvInputMeta.setInputFields( new TextFileInputField[] {
+      createInputField( "id", IValueMeta.TYPE_INTEGER, "#" ),
+      createInputField( "name", IValueMeta.TYPE_STRING, null ),
+      createInputField( "amount", IValueMeta.TYPE_NUMBER, "#.##" ),
+      createInputField( "created", IValueMeta.TYPE_DATE, "yyyy/MM/dd HH:mm:ss" ),
+    } );
+
+    SortRowsMeta sortRowsMeta = new SortRowsMeta();
+    sortRowsMeta.setDefault();
+    sortRowsMeta.allocate( 2 );
+    sortRowsMeta.setFieldName( new String[] { "name", "id" } );
+    sortRowsMeta.setAscending( new boolean[] { true, false } );
+    sortRowsMeta.setCaseSensitive( new boolean[] { true, true } );
+    sortRowsMeta.setCollatorEnabled( new boolean[] { false, false } );
+    sortRowsMeta.setCollatorStrength( new int[] { 0, 0 } );
+    sortRowsMeta.setPreSortedField( new boolean[] { false, false } );
+    sortRowsMeta.setDirectory( sortFolder.toString() );
+
+    TextFileOutputMeta textFileOutputMeta = new TextFileOutputMeta();
+    textFileOutputMeta.setDefault();
+    textFileOutputMeta.setFileName( outputFolder.resolve( "output" ).toString() );
+    textFileOutputMeta.setExtension( "csv" );
+    textFileOutputMeta.setSeparator( ";" );
+    textFileOutputMeta.setOutputFields( new TextFileField[] {
+      new TextFileField( "id", IValueMeta.TYPE_INTEGER, "#", -1, -1, null, null, null, null ),
+      new TextFileField( "name", IValueMeta.TYPE_STRING, null, -1, -1, null, null, null, null ),
+      new TextFileField( "amount", IValueMeta.TYPE_NUMBER, "#.##", -1, -1, null, null, null, null ),
+      new TextFileField( "created", IValueMeta.TYPE_DATE, "yyyy/MM/dd HH:mm:ss", -1, -1, null, null, null, null ),
+    } );
+
+    return createPipeline( "csv-sort-textfile", csvInputMeta, sortRowsMeta, textFileOutputMeta );
+  }
+
+  private static TextFileInputField createInputField( String name, int type, String format ) {
+    TextFileInputField field = new TextFileInputField( name, -1, -1 );
+    field.setType( type );
+    field.setFormat( format );
+    return field;
+  }
+
+  /**
+   * Creates a simple pipeline with the given transforms connected one after the other.
+   */
+  private static PipelineMeta createPipeline( String name, ITransformMeta... transformMetas ) {
+    PluginRegistry registry = PluginRegistry.getInstance();
+    PipelineMeta pipelineMeta = new PipelineMeta();
+    pipelineMeta.setName( name );
+
+    TransformMeta previous = null;
+    for ( int i = 0; i < transformMetas.length; i++ ) {
+      ITransformMeta transformMeta = transformMetas[ i ];
+      String pluginId = registry.getPluginId( TransformPluginType.class, transformMeta );
+      TransformMeta transform = new TransformMeta( pluginId, "transform" + i + "-" + pluginId, transformMeta );
+      transform.setLocation( 100 + i * 150, 100 );
+      pipelineMeta.addTransform( transform );
+      if ( previous != null ) {
+        pipelineMeta.addPipelineHop( new PipelineHopMeta( previous, transform ) );
+      }
+      previous = transform;
+    }
+    return pipelineMeta;
+  }
+
+  private static File writeCsvFile( Path path, int rows ) throws IOException {
+    String[] names = { "Hop", "Beam", "Spark", "Flink", "Kafka", "Neo4j", "Parquet", "Avro" };
+    try ( BufferedWriter writer = Files.newBufferedWriter( path, StandardCharsets.UTF_8 ) ) {
+      writer.write( "id;name;amount;created" );
+      writer.newLine();
+      for ( int i = 0; i < rows; i++ ) {
+        // Scramble the order a bit so the sort has some work to do
+        //
+        int id = ( i * 7919 ) % rows;
+        writer.write( Integer.toString( id ) );
+        writer.write( ';' );
+        writer.write( names[ id % names.length ] );
+        writer.write( ';' );
+        writer.write( Integer.toString( id % 10000 ) );
+        writer.write( '.' );
+        writer.write( Integer.toString( 10 + id % 90 ) );
+        writer.write( ';' );
+        writer.write( String.format( "2020/%02d/%02d 12:%02d:%02d", 1 + id % 12, 1 + id % 28, id % 60, ( id / 60 ) % 60 ) );
+        writer.newLine();
+      }
+    }
+    return path.toFile();
+  }
+}
@@ -0,0 +1,171 @@
+/*! ******************************************************************************
+ *
+ * Hop : The Hop Orchestration Platform
+ *
+ * http://www.project-hop.org
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+
+package org.apache.hop.benchmarks;
+
+import org.apache.hop.core.exception.HopException;
+import org.apache.hop.core.row.IRowMeta;
+import org.apache.hop.core.row.RowMeta;
+import org.apache.hop.core.row.value.ValueMetaBoolean;
+import org.apache.hop.core.row.value.ValueMetaDate;
+import org.apache.hop.core.row.value.ValueMetaInteger;
+import org.apache.hop.core.row.value.ValueMetaNumber;
+import org.apache.hop.core.row.value.ValueMetaString;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Micro benchmarks for the per-row operations of {@link RowMeta}: cloning, serialization as used by the sort and
+ * group by spill files, and comparing/hashing as used by sorting, grouping and lookups.
+ * <p>
+ * Every benchmark runs against a regular (locking) {@link RowMeta} as well as its frozen counterpart.
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.Throughput )
+@OutputTimeUnit( TimeUnit.MILLISECONDS )
+@Warmup( iterations = 3, time = 2 )
+@Measurement( iterations = 5, time = 2 )
+@Fork( 1 )
+public class RowMetaBenchmark {
+
+  @Param( { "10", "50" } )
+  public int fieldCount;
+
+  @Param( { "false", "true" } )
+  public boolean frozen;
+
+  private IRowMeta rowMeta;
+  private Object[] row;
+  private Object[] otherRow;
+  private int[] keyFieldIndexes;
+  private byte[] serializedRow;
+  private ByteArrayOutputStream outputBuffer;
+  private DataOutputStream outputStream;
+
+  @Setup
+  public void setUp() throws HopException {
+    RowMeta meta = new RowMeta();
+    row = new Object[ fieldCount ];
+    for ( int i = 0; i < fieldCount; i++ ) {
+      switch ( i % 5 ) {
+        case 0:
+          meta.addValueMeta( new ValueMetaString( "string" + i ) );
+          break;
+        case 1:
+          meta.addValueMeta( new ValueMetaInteger( "integer" + i ) );
+          break;
+        case 2:
+          meta.addValueMeta( new ValueMetaNumber( "number" + i ) );
+          break;
+        case 3:
+          meta.addValueMeta( new ValueMetaDate( "date" + i ) );
+          break;
+        default:
+          meta.addValueMeta( new ValueMetaBoolean( "boolean" + i ) );
+          break;
+      }
+      row[ i ] = createValue( i, i );
+    }
+    rowMeta = frozen ? meta.freeze() : meta;
+
+    // Only the last field differs so a full compare has to look at every field
+    //
+    otherRow = rowMeta.cloneRow( row );
+    otherRow[ fieldCount - 1 ] = createValue( fieldCount - 1, fieldCount );
+
+    keyFieldIndexes = new int[] { 0, 1, 2 };
+
+    outputBuffer = new ByteArrayOutputStream( 4096 );
+    outputStream = new DataOutputStream( outputBuffer );
+    rowMeta.writeData( outputStream, row );
+    serializedRow = outputBuffer.toByteArray();
+  }
+
+  private static Object createValue( int fieldNr, int seed ) {
+    switch ( fieldNr % 5 ) {
+      case 0:
+        return "value of field " + seed;
+      case 1:
+        return 1000L * seed;
+      case 2:
+        return 3.1415 * seed;
+      case 3:
+        return new Date( 1500000000000L + seed );
+      default:
+        return seed % 2 == 0;
+    }
+  }
+
+  @Benchmark
+  public Object[] cloneRow() throws HopException {
+    return rowMeta.cloneRow( row );
+  }
+
+  @Benchmark
+  public int writeData() throws HopException {
+    outputBuffer.reset();
+    rowMeta.writeData( outputStream, row );
+    return outputBuffer.size();
+  }
+
+  @Benchmark
+  public Object[] readData() throws Exception {
+    return rowMeta.readData( new DataInputStream( new ByteArrayInputStream( serializedRow ) ) );
+  }
+
+  @Benchmark
+  public int compareAllFields() throws HopException {
+    return rowMeta.compare( row, otherRow );
+  }
+
+  @Benchmark
+  public int compareKeyFields() throws HopException {
+    return rowMeta.compare( row, otherRow, keyFieldIndexes );
+  }
+
+  @Benchmark
+  public int hashCodeRow() throws HopException {
+    return rowMeta.hashCode( row );
+  }
+
+  @Benchmark
+  public int convertedValuesHashCode() throws HopException {
+    return rowMeta.convertedValuesHashCode( row );
+  }
+}
@@ -0,0 +1,132 @@
+/*! ******************************************************************************
+ *
+ * Hop : The Hop Orchestration Platform
+ *
+ * http://www.project-hop.org
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+
+package org.apache.hop.benchmarks;
+
+import org.apache.hop.core.BlockingBulkRowSet;
+import org.apache.hop.core.BlockingRowSet;
+import org.apache.hop.core.IRowSet;
+import org.apache.hop.core.QueueRowSet;
+import org.apache.hop.core.RingBufferRowSet;
+import org.apache.hop.core.row.IRowMeta;
+import org.apache.hop.core.row.RowMeta;
+import org.apache.hop.core.row.value.ValueMetaInteger;
+import org.apache.hop.core.row.value.ValueMetaString;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the raw per-row cost of the row set implementations without any thread hand-off, the way the single
+ * threaded engine drives them: every one of the N producing row sets gets a row and then the consumer reads one row
+ * from each of them in turn.
+ * <p>
+ * This is the only fair way to include {@link QueueRowSet}, which isn't thread-safe. See
+ * {@link ConcurrentRowSetBenchmark} for the cost including contention between producer and consumer threads.
+ */
+@State( Scope.Thread )
+@BenchmarkMode( Mode.Throughput )
+@OutputTimeUnit( TimeUnit.MILLISECONDS )
+@Warmup( iterations = 3, time = 2 )
+@Measurement( iterations = 5, time = 2 )
+@Fork( 1 )
+public class RowSetBenchmark {
+
+  public static final String BLOCKING = "BlockingRowSet";
+  public static final String QUEUE = "QueueRowSet";
+  public static final String RING_BUFFER = "RingBufferRowSet";
+  public static final String BLOCKING_BULK = "BlockingBulkRowSet";
+
+  private static final int ROWS_PER_INVOCATION = 1000;
+
+  @Param( { BLOCKING, QUEUE, RING_BUFFER, BLOCKING_BULK } )
+  public String rowSetType;
+
+  @Param( { "1", "2", "4" } )
+  public int producers;
+
+  @Param( { "10000" } )
+  public int rowSetSize;
+
+  private IRowMeta rowMeta;
+  private Object[] row;
+  private IRowSet[] rowSets;
+
+  @Setup
+  public void setUp() {
+    rowMeta = createRowMeta();
+    row = new Object[] { 1L, "row set benchmark" };
+    rowSets = new IRowSet[ producers ];
+    for ( int i = 0; i < producers; i++ ) {
+      rowSets[ i ] = createRowSet( rowSetType, rowSetSize );
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation( ROWS_PER_INVOCATION )
+  public long putAndGetRows() {
+    long checksum = 0;
+    for ( int i = 0; i < ROWS_PER_INVOCATION; i += producers ) {
+      for ( IRowSet rowSet : rowSets ) {
+        rowSet.putRow( rowMeta, row );
+      }
+      for ( IRowSet rowSet : rowSets ) {
+        checksum += rowSet.getRow().length;
+      }
+    }
+    return checksum;
+  }
+
+  static IRowMeta createRowMeta() {
+    IRowMeta rowMeta = new RowMeta();
+    rowMeta.addValueMeta( new ValueMetaInteger( "id" ) );
+    rowMeta.addValueMeta( new ValueMetaString( "name" ) );
+    return rowMeta;
+  }
+
+  static IRowSet createRowSet( String rowSetType, int rowSetSize ) {
+    switch ( rowSetType ) {
+      case BLOCKING:
+        return new BlockingRowSet( rowSetSize );
+      case QUEUE:
+        return new QueueRowSet();
+      case RING_BUFFER:
+        return new RingBufferRowSet( rowSetSize );
+      case BLOCKING_BULK:
+        return new BlockingBulkRowSet( rowSetSize );
+      default:
+        throw new IllegalArgumentException( "Unknown row set type: " + rowSetType );
+    }
+  }
+}
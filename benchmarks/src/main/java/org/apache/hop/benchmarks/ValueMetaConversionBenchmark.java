@@ -0,0 +1,156 @@
+/*! ******************************************************************************
+ *
+ * Hop : The Hop Orchestration Platform
+ *
+ * http://www.project-hop.org
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+
+package org.apache.hop.benchmarks;
+
+import org.apache.hop.core.exception.HopValueException;
+import org.apache.hop.core.row.IValueMeta;
+import org.apache.hop.core.row.value.ValueMetaBigNumber;
+import org.apache.hop.core.row.value.ValueMetaDate;
+import org.apache.hop.core.row.value.ValueMetaInteger;
+import org.apache.hop.core.row.value.ValueMetaNumber;
+import org.apache.hop.core.row.value.ValueMetaString;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Micro benchmarks for the string &lt;-&gt; number/date conversions in ValueMetaBase. These are the conversions done
+ * for every field of every row by the text file and CSV readers and writers, Select Values metadata changes and so on.
+ * <p>
+ * The input values cycle through a fixed set so the formatters don't keep seeing the same value.
+ */
+@State( Scope.Thread )
+@BenchmarkMode( Mode.Throughput )
+@OutputTimeUnit( TimeUnit.MILLISECONDS )
+@Warmup( iterations = 3, time = 2 )
+@Measurement( iterations = 5, time = 2 )
+@Fork( 1 )
+public class ValueMetaConversionBenchmark {
+
+  private static final int NR_VALUES = 1024;
+  private static final int VALUE_MASK = NR_VALUES - 1;
+
+  private static final String NUMBER_MASK = "#.###";
+  private static final String DATE_MASK = "yyyy/MM/dd HH:mm:ss.SSS";
+
+  private IValueMeta numberStringMeta;
+  private IValueMeta integerStringMeta;
+  private IValueMeta dateStringMeta;
+  private IValueMeta numberMeta;
+  private IValueMeta integerMeta;
+  private IValueMeta bigNumberMeta;
+  private IValueMeta dateMeta;
+
+  private String[] numberStrings;
+  private String[] integerStrings;
+  private String[] dateStrings;
+  private Double[] numbers;
+  private Long[] integers;
+  private Date[] dates;
+
+  private int index;
+
+  @Setup
+  public void setUp() throws HopValueException {
+    numberStringMeta = new ValueMetaString( "numberString" );
+    numberStringMeta.setConversionMask( NUMBER_MASK );
+    integerStringMeta = new ValueMetaString( "integerString" );
+    integerStringMeta.setConversionMask( "#" );
+    dateStringMeta = new ValueMetaString( "dateString" );
+    dateStringMeta.setConversionMask( DATE_MASK );
+
+    numberMeta = new ValueMetaNumber( "number" );
+    numberMeta.setConversionMask( NUMBER_MASK );
+    integerMeta = new ValueMetaInteger( "integer" );
+    integerMeta.setConversionMask( "#" );
+    bigNumberMeta = new ValueMetaBigNumber( "bigNumber" );
+    bigNumberMeta.setConversionMask( NUMBER_MASK );
+    dateMeta = new ValueMetaDate( "date" );
+    dateMeta.setConversionMask( DATE_MASK );
+
+    numberStrings = new String[ NR_VALUES ];
+    integerStrings = new String[ NR_VALUES ];
+    dateStrings = new String[ NR_VALUES ];
+    numbers = new Double[ NR_VALUES ];
+    integers = new Long[ NR_VALUES ];
+    dates = new Date[ NR_VALUES ];
+    for ( int i = 0; i < NR_VALUES; i++ ) {
+      numbers[ i ] = i * 1234.567;
+      integers[ i ] = i * 98765L;
+      dates[ i ] = new Date( 1500000000000L + i * 86399999L );
+      numberStrings[ i ] = numberMeta.getString( numbers[ i ] );
+      integerStrings[ i ] = integerMeta.getString( integers[ i ] );
+      dateStrings[ i ] = dateMeta.getString( dates[ i ] );
+    }
+  }
+
+  private int next() {
+    return index++ & VALUE_MASK;
+  }
+
+  @Benchmark
+  public Object stringToNumber() throws HopValueException {
+    return numberMeta.convertData( numberStringMeta, numberStrings[ next() ] );
+  }
+
+  @Benchmark
+  public Object stringToInteger() throws HopValueException {
+    return integerMeta.convertData( integerStringMeta, integerStrings[ next() ] );
+  }
+
+  @Benchmark
+  public Object stringToBigNumber() throws HopValueException {
+    return bigNumberMeta.convertData( numberStringMeta, numberStrings[ next() ] );
+  }
+
+  @Benchmark
+  public Object stringToDate() throws HopValueException {
+    return dateMeta.convertData( dateStringMeta, dateStrings[ next() ] );
+  }
+
+  @Benchmark
+  public String numberToString() throws HopValueException {
+    return numberMeta.getString( numbers[ next() ] );
+  }
+
+  @Benchmark
+  public String integerToString() throws HopValueException {
+    return integerMeta.getString( integers[ next() ] );
+  }
+
+  @Benchmark
+  public String dateToString() throws HopValueException {
+    return dateMeta.getString( dates[ next() ] );
+  }
+}
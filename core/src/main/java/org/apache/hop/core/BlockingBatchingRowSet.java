@@ -37,7 +37,9 @@ import java.util.concurrent.TimeUnit;
  *
  * @author Matt
  * @since 04-05-2011
+ * @deprecated stalls when dealing with small amounts of rows, use {@link BlockingBulkRowSet} instead
  */
+@Deprecated
 public class BlockingBatchingRowSet extends BaseRowSet implements Comparable<IRowSet>, IRowSet {
   private BlockingQueue<Object[][]> putArray, getArray;
 
@@ -0,0 +1,277 @@
+/*! ******************************************************************************
+ *
+ * Hop : The Hop Orchestration Platform
+ *
+ * http://www.project-hop.org
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+
+package org.apache.hop.core;
+
+import org.apache.hop.core.row.IRowMeta;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A blocking row set which moves rows in bulk. Rows are kept in a bounded circular buffer guarded by a single lock.
+ * Batches of rows handed over with {@link #putRows(IRowMeta, Object[][], int)} and {@link #getRows(int)} only acquire
+ * that lock once per batch instead of once per row.<br>
+ * Unlike {@link BlockingBatchingRowSet} every row is visible to the consumer as soon as it is added, so this row set
+ * never stalls waiting for a batch to fill up when only a few rows pass through it.
+ */
+public class BlockingBulkRowSet extends BaseRowSet implements Comparable<IRowSet>, IRowSet {
+
+  private final Object[][] buffer;
+  private final ReentrantLock lock;
+  private final Condition notEmpty;
+  private final Condition notFull;
+
+  private int putIndex;
+  private int takeIndex;
+  private int count;
+
+  private final int timeoutPut;
+  private final int timeoutGet;
+
+  /**
+   * Create new bulk row set with maxSize capacity.
+   *
+   * @param maxSize the maximum number of rows in the buffer
+   */
+  public BlockingBulkRowSet( int maxSize ) {
+    super();
+    if ( maxSize < 1 ) {
+      throw new IllegalArgumentException( "The size of a row set needs to be at least 1" );
+    }
+    buffer = new Object[ maxSize ][];
+    lock = new ReentrantLock( false );
+    notEmpty = lock.newCondition();
+    notFull = lock.newCondition();
+
+    timeoutGet = Const.toInt( System.getProperty( Const.HOP_ROWSET_GET_TIMEOUT ), Const.TIMEOUT_GET_MILLIS );
+    timeoutPut = Const.toInt( System.getProperty( Const.HOP_ROWSET_PUT_TIMEOUT ), Const.TIMEOUT_PUT_MILLIS );
+  }
+
+  @Override
+  public boolean putRow( IRowMeta rowMeta, Object[] rowData ) {
+    return putRowWait( rowMeta, rowData, timeoutPut, TimeUnit.MILLISECONDS );
+  }
+
+  @Override
+  public boolean putRowWait( IRowMeta rowMeta, Object[] rowData, long time, TimeUnit tu ) {
+    if ( rowData == null ) {
+      return false;
+    }
+    this.rowMeta = rowMeta;
+
+    long nanos = tu.toNanos( time );
+    try {
+      lock.lockInterruptibly();
+    } catch ( InterruptedException e ) {
+      return false;
+    }
+    try {
+      while ( count == buffer.length ) {
+        if ( nanos <= 0 ) {
+          return false;
+        }
+        nanos = notFull.awaitNanos( nanos );
+      }
+      buffer[ putIndex ] = rowData;
+      if ( ++putIndex == buffer.length ) {
+        putIndex = 0;
+      }
+      count++;
+      notEmpty.signal();
+      return true;
+    } catch ( InterruptedException e ) {
+      return false;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public int putRows( IRowMeta rowMeta, Object[][] rows, int nrRows ) {
+    return putRowsWait( rowMeta, rows, nrRows, timeoutPut, TimeUnit.MILLISECONDS );
+  }
+
+  /**
+   * Add as many rows as possible. If the buffer is full, wait until there is room for at least one row or until the
+   * timeout expires.
+   *
+   * @return the number of rows added, taken from the start of the array
+   */
+  private int putRowsWait( IRowMeta rowMeta, Object[][] rows, int nrRows, long time, TimeUnit tu ) {
+    if ( nrRows <= 0 ) {
+      return 0;
+    }
+    this.rowMeta = rowMeta;
+
+    long nanos = tu.toNanos( time );
+    try {
+      lock.lockInterruptibly();
+    } catch ( InterruptedException e ) {
+      return 0;
+    }
+    try {
+      while ( count == buffer.length ) {
+        if ( nanos <= 0 ) {
+          return 0;
+        }
+        nanos = notFull.awaitNanos( nanos );
+      }
+      int added = 0;
+      while ( added < nrRows && count < buffer.length && rows[ added ] != null ) {
+        buffer[ putIndex ] = rows[ added++ ];
+        if ( ++putIndex == buffer.length ) {
+          putIndex = 0;
+        }
+        count++;
+      }
+      if ( added > 0 ) {
+        notEmpty.signal();
+      }
+      return added;
+    } catch ( InterruptedException e ) {
+      return 0;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public Object[] getRow() {
+    return getRowWait( timeoutGet, TimeUnit.MILLISECONDS );
+  }
+
+  @Override
+  public Object[] getRowImmediate() {
+    return getRowWait( 0L, TimeUnit.MILLISECONDS );
+  }
+
+  @Override
+  public Object[] getRowWait( long timeout, TimeUnit tu ) {
+    long nanos = tu.toNanos( timeout );
+    try {
+      lock.lockInterruptibly();
+    } catch ( InterruptedException e ) {
+      return null;
+    }
+    try {
+      while ( count == 0 ) {
+        if ( nanos <= 0 ) {
+          return null;
+        }
+        nanos = notEmpty.awaitNanos( nanos );
+      }
+      Object[] row = buffer[ takeIndex ];
+      buffer[ takeIndex ] = null; // prevent any hold-up to GC
+      if ( ++takeIndex == buffer.length ) {
+        takeIndex = 0;
+      }
+      count--;
+      notFull.signal();
+      return row;
+    } catch ( InterruptedException e ) {
+      return null;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public Object[][] getRows( int maxRows ) {
+    return getRowsWait( maxRows, timeoutGet, TimeUnit.MILLISECONDS );
+  }
+
+  @Override
+  public Object[][] getRowsImmediate( int maxRows ) {
+    return getRowsWait( maxRows, 0L, TimeUnit.MILLISECONDS );
+  }
+
+  /**
+   * Take up to maxRows rows from the buffer, waiting until there is at least one row or until the timeout expires.
+   *
+   * @return the rows or null if no row was available
+   */
+  private Object[][] getRowsWait( int maxRows, long timeout, TimeUnit tu ) {
+    if ( maxRows <= 0 ) {
+      return null;
+    }
+    long nanos = tu.toNanos( timeout );
+    try {
+      lock.lockInterruptibly();
+    } catch ( InterruptedException e ) {
+      return null;
+    }
+    try {
+      while ( count == 0 ) {
+        if ( nanos <= 0 ) {
+          return null;
+        }
+        nanos = notEmpty.awaitNanos( nanos );
+      }
+      int nrRows = Math.min( count, maxRows );
+      Object[][] rows = new Object[ nrRows ][];
+      for ( int i = 0; i < nrRows; i++ ) {
+        rows[ i ] = buffer[ takeIndex ];
+        buffer[ takeIndex ] = null; // prevent any hold-up to GC
+        if ( ++takeIndex == buffer.length ) {
+          takeIndex = 0;
+        }
+      }
+      count -= nrRows;
+      notFull.signal();
+      return rows;
+    } catch ( InterruptedException e ) {
+      return null;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public int size() {
+    lock.lock();
+    try {
+      return count;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public void clear() {
+    lock.lock();
+    try {
+      for ( int i = 0; i < buffer.length; i++ ) {
+        buffer[ i ] = null;
+      }
+      putIndex = 0;
+      takeIndex = 0;
+      count = 0;
+      notFull.signalAll();
+    } finally {
+      lock.unlock();
+    }
+    done.set( false );
+  }
+}
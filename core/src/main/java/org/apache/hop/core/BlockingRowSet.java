@@ -24,6 +24,8 @@ package org.apache.hop.core;
 
 import org.apache.hop.core.row.IRowMeta;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.TimeUnit;
@@ -124,6 +126,19 @@ public class BlockingRowSet extends BaseRowSet implements Comparable<IRowSet>, I
     }
   }
 
+  /**
+   * Moves all the available rows, up to maxRows, out of the queue while acquiring the queue lock only once.
+   */
+  @Override
+  public Object[][] getRowsImmediate( int maxRows ) {
+    if ( maxRows <= 0 ) {
+      return null;
+    }
+    List<Object[]> rows = new ArrayList<>( Math.min( maxRows, queArray.size() + 1 ) );
+    queArray.drainTo( rows, maxRows );
+    return rows.isEmpty() ? null : rows.toArray( new Object[ rows.size() ][] );
+  }
+
   @Override
   public int size() {
     return queArray.size();
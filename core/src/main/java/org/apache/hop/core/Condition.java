@@ -23,18 +23,14 @@
 package org.apache.hop.core;
 
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Enumeration;
 import java.util.Hashtable;
 import java.util.List;
 import java.util.Map;
-import java.util.regex.Pattern;
 import org.apache.hop.core.exception.HopValueException;
 import org.apache.hop.core.exception.HopXmlException;
 import org.apache.hop.core.row.IRowMeta;
-import org.apache.hop.core.row.IValueMeta;
 import org.apache.hop.core.row.ValueMetaAndData;
-import org.apache.hop.core.util.Utils;
 import org.apache.hop.core.xml.IXml;
 import org.apache.hop.core.xml.XmlHandler;
 import org.w3c.dom.Node;
@@ -108,25 +104,18 @@ public class Condition implements Cloneable, IXml {
   private String right_valuename;
   private ValueMetaAndData right_exact;
 
-  private int left_fieldnr;
-  private int right_fieldnr;
-
   private List<Condition> list;
 
-  private String right_string;
-
   /**
-   * Temporary variable, no need to persist this one. Contains the sorted array of strings in an IN LIST condition
+   * Temporary variable, no need to persist this one. Contains the atomic condition bound to the last row layout it was
+   * evaluated on.
    */
-  private String[] inList;
+  private ConditionEvaluator evaluator;
 
   public Condition() {
     list = new ArrayList<Condition>();
     this.operator = OPERATOR_NONE;
     this.negate = false;
-
-    left_fieldnr = -2;
-    right_fieldnr = -2;
   }
 
   public Condition( String valuename, int function, String valuename2, ValueMetaAndData exact ) {
@@ -224,6 +213,7 @@ public class Condition implements Cloneable, IXml {
 
   public void setLeftValuename( String left_valuename ) {
     this.left_valuename = left_valuename;
+    evaluator = null;
   }
 
   public String getLeftValuename() {
@@ -236,6 +226,7 @@ public class Condition implements Cloneable, IXml {
 
   public void setFunction( int function ) {
     this.function = function;
+    evaluator = null;
   }
 
   public String getFunctionDesc() {
@@ -253,6 +244,7 @@ public class Condition implements Cloneable, IXml {
 
   public void setRightValuename( String right_valuename ) {
     this.right_valuename = right_valuename;
+    evaluator = null;
   }
 
   public String getRightValuename() {
@@ -261,6 +253,7 @@ public class Condition implements Cloneable, IXml {
 
   public void setRightExact( ValueMetaAndData right_exact ) {
     this.right_exact = right_exact;
+    evaluator = null;
   }
 
   public ValueMetaAndData getRightExact() {
@@ -306,8 +299,7 @@ public class Condition implements Cloneable, IXml {
    * field positions...
    */
   public void clearFieldPositions() {
-    left_fieldnr = -2;
-    right_fieldnr = -2;
+    evaluator = null;
   }
 
   /**
@@ -331,165 +323,18 @@ public class Condition implements Cloneable, IXml {
           return !negate;
         }
 
-        // Get fieldnrs left value
-        //
-        // Check out the fieldnrs if we don't have them...
-        if ( left_valuename != null && left_valuename.length() > 0 ) {
-          left_fieldnr = rowMeta.indexOfValue( left_valuename );
-        }
-
-        // Get fieldnrs right value
+        // Bind the field indexes and prepare the constant once for every row layout we see
         //
-        if ( right_valuename != null && right_valuename.length() > 0 ) {
-          right_fieldnr = rowMeta.indexOfValue( right_valuename );
+        ConditionEvaluator bound = evaluator;
+        if ( bound == null || !bound.isBoundTo( rowMeta, right_exact ) ) {
+          bound = new ConditionEvaluator( this, rowMeta, bound );
+          evaluator = bound;
         }
-
-        // Get fieldnrs left field
-        IValueMeta fieldMeta = null;
-        Object field = null;
-        if ( left_fieldnr >= 0 ) {
-          fieldMeta = rowMeta.getValueMeta( left_fieldnr );
-          field = r[ left_fieldnr ];
-          // JIRA PDI-38
-          // if (field==null)
-          // {
-          // throw new
-          // HopException("Unable to find field ["+left_valuename+"] in the input row!");
-          // }
-        } else {
+        if ( !bound.hasLeftField() ) {
           return false; // no fields to evaluate
         }
 
-        // Get fieldnrs right exact
-        IValueMeta fieldMeta2 = right_exact != null ? right_exact.getValueMeta() : null;
-        Object field2 = right_exact != null ? right_exact.getValueData() : null;
-        if ( field2 == null && right_fieldnr >= 0 ) {
-          fieldMeta2 = rowMeta.getValueMeta( right_fieldnr );
-          field2 = r[ right_fieldnr ];
-          // JIRA PDI-38
-          // if (field2==null)
-          // {
-          // throw new
-          // HopException("Unable to find field ["+right_valuename+"] in the input row!");
-          // }
-        }
-
-        // if (field==null)
-        // {
-        // throw new
-        // HopException("Unable to find value for field ["+left_valuename+"] in the input row!");
-        // }
-
-        // This condition goes too as field2 can indeed be null, just not
-        // fieldMeta2
-        // if (field2==null && function!=FUNC_NULL && function!=FUNC_NOT_NULL)
-        // {
-        // throw new
-        // HopException("Unable to find value for field ["+right_valuename+"] in the input row!");
-        // }
-
-        // Evaluate
-        switch ( function ) {
-          case FUNC_EQUAL:
-            retval = ( fieldMeta.compare( field, fieldMeta2, field2 ) == 0 );
-            break;
-          case FUNC_NOT_EQUAL:
-            retval = ( fieldMeta.compare( field, fieldMeta2, field2 ) != 0 );
-            break;
-          case FUNC_SMALLER:
-            if ( fieldMeta.isNull( field ) ) {
-              // BACKLOG-18831
-              retval = false;
-            } else {
-              retval = ( fieldMeta.compare( field, fieldMeta2, field2 ) < 0 );
-            }
-            break;
-          case FUNC_SMALLER_EQUAL:
-            if ( fieldMeta.isNull( field ) ) {
-              retval = false;
-            } else {
-              retval = ( fieldMeta.compare( field, fieldMeta2, field2 ) <= 0 );
-            }
-            break;
-          case FUNC_LARGER:
-            retval = ( fieldMeta.compare( field, fieldMeta2, field2 ) > 0 );
-            break;
-          case FUNC_LARGER_EQUAL:
-            retval = ( fieldMeta.compare( field, fieldMeta2, field2 ) >= 0 );
-            break;
-          case FUNC_REGEXP:
-            if ( fieldMeta.isNull( field ) || field2 == null ) {
-              retval = false;
-            } else {
-              retval =
-                Pattern
-                  .matches( fieldMeta2.getCompatibleString( field2 ), fieldMeta.getCompatibleString( field ) );
-            }
-            break;
-          case FUNC_NULL:
-            retval = ( fieldMeta.isNull( field ) );
-            break;
-          case FUNC_NOT_NULL:
-            retval = ( !fieldMeta.isNull( field ) );
-            break;
-          case FUNC_IN_LIST:
-            // performance reason: create the array first or again when it is against a field and not a constant
-            //
-            if ( inList == null || right_fieldnr >= 0 ) {
-              inList = Const.splitString( fieldMeta2.getString( field2 ), ';', true );
-              for ( int i = 0; i < inList.length; i++ ) {
-                inList[ i ] = inList[ i ] == null ? null : inList[ i ].replace( "\\", "" );
-              }
-              Arrays.sort( inList );
-            }
-            String searchString = fieldMeta.getCompatibleString( field );
-            int inIndex = -1;
-            if ( searchString != null ) {
-              inIndex = Arrays.binarySearch( inList, searchString );
-            }
-            retval = Boolean.valueOf( inIndex >= 0 );
-            break;
-          case FUNC_CONTAINS:
-            retval =
-              fieldMeta.getCompatibleString( field ) != null ? fieldMeta.getCompatibleString( field ).indexOf(
-                fieldMeta2.getCompatibleString( field2 ) ) >= 0 : false;
-            break;
-          case FUNC_STARTS_WITH:
-            retval =
-              fieldMeta.getCompatibleString( field ) != null ? fieldMeta
-                .getCompatibleString( field ).startsWith( fieldMeta2.getCompatibleString( field2 ) ) : false;
-            break;
-          case FUNC_ENDS_WITH:
-            String string = fieldMeta.getCompatibleString( field );
-            if ( !Utils.isEmpty( string ) ) {
-              if ( right_string == null && field2 != null ) {
-                right_string = fieldMeta2.getCompatibleString( field2 );
-              }
-              if ( right_string != null ) {
-                retval = string.endsWith( fieldMeta2.getCompatibleString( field2 ) );
-              } else {
-                retval = false;
-              }
-            } else {
-              retval = false;
-            }
-            break;
-          case FUNC_LIKE:
-            // Converts to a regular expression
-            // TODO: optimize the patterns and String replacements
-            //
-            if ( fieldMeta.isNull( field ) || field2 == null ) {
-              retval = false;
-            } else {
-              String regex = fieldMeta2.getCompatibleString( field2 );
-              regex = regex.replace( "%", ".*" );
-              regex = regex.replace( "?", "." );
-              retval = Pattern.matches( regex, fieldMeta.getCompatibleString( field ) );
-            }
-            break;
-          default:
-            break;
-        }
+        retval = bound.evaluate( r );
 
         // Only NOT makes sense, the rest doesn't, so ignore!!!!
         // Optionally negate
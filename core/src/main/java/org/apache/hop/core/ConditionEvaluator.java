@@ -0,0 +1,288 @@
+/*! ******************************************************************************
+ *
+ * Hop : The Hop Orchestration Platform
+ *
+ * Copyright (C) 2002-2020 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+
+package org.apache.hop.core;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.regex.Pattern;
+import org.apache.hop.core.exception.HopValueException;
+import org.apache.hop.core.row.IRowMeta;
+import org.apache.hop.core.row.IValueMeta;
+import org.apache.hop.core.row.ValueMetaAndData;
+import org.apache.hop.core.row.value.ValueMetaBase;
+import org.apache.hop.core.util.Utils;
+
+/**
+ * An atomic {@link Condition} bound to the layout of the rows it is evaluated on.
+ * <p>
+ * The field indexes and value metadata are looked up once per row layout instead of for every row. A constant right
+ * hand side is converted to the type of the left field, compiled into a regular expression or split into a hash set of
+ * IN list values up front. Evaluators are immutable so they can be shared between the threads evaluating the same
+ * condition.
+ */
+class ConditionEvaluator {
+
+  private final IRowMeta rowMeta;
+  private final ValueMetaAndData rightExact;
+  private final Object rightExactData;
+
+  private final int function;
+  private final int leftIndex;
+  private final IValueMeta leftMeta;
+
+  /**
+   * True if the right hand side comes from the row, false if it's a (possibly empty) constant
+   */
+  private final boolean rightFromRow;
+  private final int rightIndex;
+  private final IValueMeta rightMeta;
+  private final Object rightData;
+
+  private final Prepared prepared;
+
+  ConditionEvaluator( Condition condition, IRowMeta rowMeta, ConditionEvaluator previous ) {
+    this.rowMeta = rowMeta;
+    this.function = condition.getFunction();
+
+    String leftName = condition.getLeftValuename();
+    leftIndex = Utils.isEmpty( leftName ) ? -1 : rowMeta.indexOfValue( leftName );
+    leftMeta = leftIndex >= 0 ? rowMeta.getValueMeta( leftIndex ) : null;
+
+    String rightName = condition.getRightValuename();
+    int rightFieldIndex = Utils.isEmpty( rightName ) ? -1 : rowMeta.indexOfValue( rightName );
+
+    rightExact = condition.getRightExact();
+    rightExactData = rightExact != null ? rightExact.getValueData() : null;
+    if ( rightExactData == null && rightFieldIndex >= 0 ) {
+      rightFromRow = true;
+      rightIndex = rightFieldIndex;
+      rightMeta = rowMeta.getValueMeta( rightFieldIndex );
+      rightData = null;
+    } else {
+      rightFromRow = false;
+      rightIndex = -1;
+      rightMeta = rightExact != null ? rightExact.getValueMeta() : null;
+      rightData = rightExactData;
+    }
+
+    // The prepared constant only depends on the constant itself and the type of the left field.
+    // Reuse it when rebinding to another row layout, for example when several transform copies share a condition.
+    //
+    if ( previous != null && previous.prepared != null && !rightFromRow && leftMeta != null
+      && previous.function == function && previous.rightExact == rightExact
+      && previous.rightExactData == rightExactData && previous.leftMeta != null
+      && previous.leftMeta.getType() == leftMeta.getType() ) {
+      prepared = previous.prepared;
+    } else if ( !rightFromRow && leftMeta != null ) {
+      prepared = new Prepared( function, leftMeta, rightMeta, rightData );
+    } else {
+      prepared = null;
+    }
+  }
+
+  /**
+   * @param rowMeta    the row metadata to evaluate a row of
+   * @param rightExact the current constant of the condition
+   * @return true if this evaluator was bound to the given row layout and constant
+   */
+  boolean isBoundTo( IRowMeta rowMeta, ValueMetaAndData rightExact ) {
+    return this.rowMeta == rowMeta && this.rightExact == rightExact
+      && ( rightExact == null || rightExactData == rightExact.getValueData() );
+  }
+
+  /**
+   * @return false if the left field is not present in the row, in which case the condition can't be evaluated
+   */
+  boolean hasLeftField() {
+    return leftIndex >= 0;
+  }
+
+  /**
+   * Evaluate the function of the condition on a row, without negation.
+   *
+   * @param r the row data
+   * @return the result of the function
+   * @throws Exception in case the data can't be compared or converted
+   */
+  boolean evaluate( Object[] r ) throws Exception {
+    Object field = r[ leftIndex ];
+    Object field2 = rightFromRow ? r[ rightIndex ] : rightData;
+
+    switch ( function ) {
+      case Condition.FUNC_EQUAL:
+        return compare( field, field2 ) == 0;
+      case Condition.FUNC_NOT_EQUAL:
+        return compare( field, field2 ) != 0;
+      case Condition.FUNC_SMALLER:
+        return !leftMeta.isNull( field ) && compare( field, field2 ) < 0;
+      case Condition.FUNC_SMALLER_EQUAL:
+        return !leftMeta.isNull( field ) && compare( field, field2 ) <= 0;
+      case Condition.FUNC_LARGER:
+        return compare( field, field2 ) > 0;
+      case Condition.FUNC_LARGER_EQUAL:
+        return compare( field, field2 ) >= 0;
+      case Condition.FUNC_REGEXP:
+        if ( leftMeta.isNull( field ) || field2 == null ) {
+          return false;
+        }
+        return getPattern( field2, false ).matcher( leftMeta.getCompatibleString( field ) ).matches();
+      case Condition.FUNC_NULL:
+        return leftMeta.isNull( field );
+      case Condition.FUNC_NOT_NULL:
+        return !leftMeta.isNull( field );
+      case Condition.FUNC_IN_LIST:
+        String searchString = leftMeta.getCompatibleString( field );
+        return searchString != null && getInList( field2 ).contains( searchString );
+      case Condition.FUNC_CONTAINS:
+        String string = leftMeta.getCompatibleString( field );
+        return string != null && string.contains( getRightString( field2 ) );
+      case Condition.FUNC_STARTS_WITH:
+        string = leftMeta.getCompatibleString( field );
+        return string != null && string.startsWith( getRightString( field2 ) );
+      case Condition.FUNC_ENDS_WITH:
+        string = leftMeta.getCompatibleString( field );
+        if ( Utils.isEmpty( string ) || field2 == null ) {
+          return false;
+        }
+        String suffix = getRightString( field2 );
+        return suffix != null && string.endsWith( suffix );
+      case Condition.FUNC_LIKE:
+        if ( leftMeta.isNull( field ) || field2 == null ) {
+          return false;
+        }
+        return getPattern( field2, true ).matcher( leftMeta.getCompatibleString( field ) ).matches();
+      default:
+        return false;
+    }
+  }
+
+  private int compare( Object field, Object field2 ) throws Exception {
+    if ( prepared != null && prepared.converted ) {
+      return leftMeta.compare( field, prepared.compareData );
+    }
+    return leftMeta.compare( field, rightMeta, field2 );
+  }
+
+  private String getRightString( Object field2 ) throws Exception {
+    if ( prepared != null ) {
+      prepared.check();
+      return prepared.string;
+    }
+    return rightMeta.getCompatibleString( field2 );
+  }
+
+  private Pattern getPattern( Object field2, boolean like ) throws Exception {
+    if ( prepared != null ) {
+      prepared.check();
+      return prepared.pattern;
+    }
+    return Pattern.compile( toRegex( rightMeta.getCompatibleString( field2 ), like ) );
+  }
+
+  private Set<String> getInList( Object field2 ) throws Exception {
+    if ( prepared != null ) {
+      prepared.check();
+      return prepared.inList;
+    }
+    return toInList( rightMeta.getString( field2 ) );
+  }
+
+  private static String toRegex( String string, boolean like ) {
+    if ( like ) {
+      return string.replace( "%", ".*" ).replace( "?", "." );
+    }
+    return string;
+  }
+
+  private static Set<String> toInList( String string ) {
+    String[] values = Const.splitString( string, ';', true );
+    Set<String> inList = new HashSet<>( values.length * 2 );
+    for ( String value : values ) {
+      inList.add( value == null ? null : value.replace( "\\", "" ) );
+    }
+    return inList;
+  }
+
+  /**
+   * The constant right hand side of a condition, prepared for the function. Errors are kept and thrown when the
+   * constant is actually used so that rows which never reach it behave as before.
+   */
+  private static class Prepared {
+    private boolean converted;
+    private Object compareData;
+    private String string;
+    private Pattern pattern;
+    private Set<String> inList;
+    private Exception error;
+
+    Prepared( int function, IValueMeta leftMeta, IValueMeta rightMeta, Object rightData ) {
+      try {
+        switch ( function ) {
+          case Condition.FUNC_EQUAL:
+          case Condition.FUNC_NOT_EQUAL:
+          case Condition.FUNC_SMALLER:
+          case Condition.FUNC_SMALLER_EQUAL:
+          case Condition.FUNC_LARGER:
+          case Condition.FUNC_LARGER_EQUAL:
+            // Same as ValueMetaBase.compare(): a constant of another type is converted to the type of the left field.
+            //
+            if ( leftMeta instanceof ValueMetaBase && rightMeta != null && leftMeta.getType() != rightMeta.getType()
+              && !( leftMeta.getType() == IValueMeta.TYPE_INTEGER && rightMeta.getType() == IValueMeta.TYPE_NUMBER ) ) {
+              compareData = leftMeta.convertData( rightMeta, rightData );
+              converted = true;
+            }
+            break;
+          case Condition.FUNC_REGEXP:
+          case Condition.FUNC_LIKE:
+            if ( rightData != null ) {
+              String regex = rightMeta.getCompatibleString( rightData );
+              pattern = Pattern.compile( toRegex( regex, function == Condition.FUNC_LIKE ) );
+            }
+            break;
+          case Condition.FUNC_IN_LIST:
+            inList = toInList( rightMeta.getString( rightData ) );
+            break;
+          case Condition.FUNC_CONTAINS:
+          case Condition.FUNC_STARTS_WITH:
+          case Condition.FUNC_ENDS_WITH:
+            string = rightMeta.getCompatibleString( rightData );
+            break;
+          default:
+            break;
+        }
+      } catch ( Exception e ) {
+        // A failed conversion for a comparison is left to ValueMetaBase.compare() which reports it per row.
+        //
+        converted = false;
+        error = e;
+      }
+    }
+
+    void check() throws Exception {
+      if ( error != null ) {
+        throw error;
+      }
+    }
+  }
+}
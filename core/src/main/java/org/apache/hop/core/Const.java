@@ -121,6 +121,11 @@ public class Const {
    */
   public static final int ROWS_IN_ROWSET = 10000;
 
+  /**
+   * The default number of rows handed over at once by transforms which read or write rows in batches
+   */
+  public static final int ROWS_IN_BATCH = 500;
+
   /**
    * Fetch size in rows when querying a database
    */
@@ -724,7 +729,8 @@ public class Const {
   public static final String HOP_ROWSET_PUT_TIMEOUT = "HOP_ROWSET_PUT_TIMEOUT";
 
   /**
-   * Set this variable to Y if you want to test a more efficient batching row set. (default = N)
+   * Set this variable to Y if you want to use the bulk row set which hands over batches of rows with a single lock
+   * acquisition. (default = N)
    */
   public static final String HOP_BATCHING_ROWSET = "HOP_BATCHING_ROWSET";
 
@@ -862,6 +868,12 @@ public class Const {
    */
   public static final String HOP_ALLOW_EMPTY_FIELD_NAMES_AND_TYPES = "HOP_ALLOW_EMPTY_FIELD_NAMES_AND_TYPES";
 
+  /**
+   * Set this variable to false to hand the (mutable) row metadata of the input row sets to the transforms instead of
+   * an immutable, lock-free copy. (default = true)
+   */
+  public static final String HOP_FREEZE_INPUT_ROW_META = "HOP_FREEZE_INPUT_ROW_META";
+
   /**
    * Set this variable to false to preserve global log variables defined in pipeline / workflow Properties -> Log panel.
    * Changing it to true will clear all global log variables when export pipeline / workflow
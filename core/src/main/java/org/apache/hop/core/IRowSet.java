@@ -24,6 +24,8 @@ package org.apache.hop.core;
 
 import org.apache.hop.core.row.IRowMeta;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.TimeUnit;
 
 public interface IRowSet {
@@ -50,6 +52,60 @@ public interface IRowSet {
    */
   boolean putRowWait( IRowMeta rowMeta, Object[] rowData, long time, TimeUnit tu );
 
+  /**
+   * Offer a batch of rows to this rowset providing for the description (metadata) of the rows. If the buffer is full,
+   * wait (block) for a small period of time. Rows are added in order, starting with the first row in the array.
+   *
+   * @param rowMeta The description of the row data
+   * @param rows    the rows of data
+   * @param nrRows  the number of rows to add, taken from the start of the array
+   * @return the number of rows that were added to the rowset. This is less than nrRows if the buffer was full.
+   */
+  default int putRows( IRowMeta rowMeta, Object[][] rows, int nrRows ) {
+    int added = 0;
+    while ( added < nrRows && putRow( rowMeta, rows[ added ] ) ) {
+      added++;
+    }
+    return added;
+  }
+
+  /**
+   * Get a batch of rows from the input buffer. It blocks for a short period until a first row becomes available, after
+   * that only the rows that are available immediately are added to the batch.
+   *
+   * @param maxRows the maximum number of rows to return
+   * @return the rows of data or null if no row is available.
+   */
+  default Object[][] getRows( int maxRows ) {
+    Object[] row = getRow();
+    if ( row == null ) {
+      return null;
+    }
+    Object[][] more = maxRows > 1 ? getRowsImmediate( maxRows - 1 ) : null;
+    if ( more == null || more.length == 0 ) {
+      return new Object[][] { row };
+    }
+    Object[][] rows = new Object[ more.length + 1 ][];
+    rows[ 0 ] = row;
+    System.arraycopy( more, 0, rows, 1, more.length );
+    return rows;
+  }
+
+  /**
+   * Get the rows that are available in the input buffer immediately, without waiting.
+   *
+   * @param maxRows the maximum number of rows to return
+   * @return the rows of data or null if no row is available.
+   */
+  default Object[][] getRowsImmediate( int maxRows ) {
+    List<Object[]> rows = new ArrayList<>();
+    Object[] row;
+    while ( rows.size() < maxRows && ( row = getRowImmediate() ) != null ) {
+      rows.add( row );
+    }
+    return rows.isEmpty() ? null : rows.toArray( new Object[ rows.size() ][] );
+  }
+
   /**
    * Get a row from the input buffer, it blocks for a short period until a new row becomes available. Otherwise, it
    * returns null.
@@ -0,0 +1,354 @@
+/*! ******************************************************************************
+ *
+ * Hop : The Hop Orchestration Platform
+ *
+ * http://www.project-hop.org
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+
+package org.apache.hop.core;
+
+import org.apache.hop.core.row.IRowMeta;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A lock-free row set for hops with exactly one producing and one consuming transform copy (1:1).<br>
+ * The rows are kept in a fixed size ring buffer. The producer only ever writes the head sequence and the consumer only
+ * ever writes the tail sequence so no locks are needed. Both sequences are padded to avoid false sharing between the
+ * two threads. When the buffer is full (producer) or empty (consumer) the configured {@link WaitStrategy} is used.<br>
+ * <b>Never</b> use this row set when more than one thread puts rows into it or gets rows from it.
+ */
+public class RingBufferRowSet extends BaseRowSet implements Comparable<IRowSet>, IRowSet {
+
+  /**
+   * How a thread waits for the ring buffer to get room (producer) or rows (consumer).
+   */
+  public enum WaitStrategy {
+    /**
+     * Busy spin: lowest latency but burns a full core while waiting.
+     */
+    SPIN,
+
+    /**
+     * Spin for a little while, then yield the CPU to other threads.
+     */
+    YIELD,
+
+    /**
+     * Spin, then yield, then park the thread for short periods of time. This is the friendliest option when there are
+     * more transform threads than cores.
+     */
+    PARK;
+
+    private static final int SPIN_TRIES = 100;
+    private static final int YIELD_TRIES = 100;
+    private static final long PARK_NANOS = 50000L;
+
+    /**
+     * Wait a little bit.
+     *
+     * @param counter the number of times we waited so far
+     * @return the counter to pass to the next call
+     */
+    int idle( int counter ) {
+      switch ( this ) {
+        case SPIN:
+          return counter;
+        case YIELD:
+          if ( counter < SPIN_TRIES ) {
+            return counter + 1;
+          }
+          Thread.yield();
+          return counter;
+        default:
+          if ( counter < SPIN_TRIES ) {
+            return counter + 1;
+          }
+          if ( counter < SPIN_TRIES + YIELD_TRIES ) {
+            Thread.yield();
+            return counter + 1;
+          }
+          LockSupport.parkNanos( PARK_NANOS );
+          return counter;
+      }
+    }
+
+    /**
+     * @param name the name of the wait strategy, case insensitive
+     * @return the wait strategy or PARK if the name is empty or unknown
+     */
+    public static WaitStrategy getWaitStrategy( String name ) {
+      for ( WaitStrategy strategy : values() ) {
+        if ( strategy.name().equalsIgnoreCase( name ) ) {
+          return strategy;
+        }
+      }
+      return PARK;
+    }
+  }
+
+  private final Object[][] buffer;
+  private final int mask;
+  private final int capacity;
+  private final WaitStrategy waitStrategy;
+
+  /**
+   * The sequence of the next row to be written, only modified by the producer
+   */
+  private final Sequence head = new Sequence();
+
+  /**
+   * The sequence of the next row to be read, only modified by the consumer
+   */
+  private final Sequence tail = new Sequence();
+
+  private final long timeoutPut;
+  private final long timeoutGet;
+
+  /**
+   * Create a new ring buffer row set with the default PARK wait strategy.
+   *
+   * @param maxSize the maximum number of rows in the buffer
+   */
+  public RingBufferRowSet( int maxSize ) {
+    this( maxSize, WaitStrategy.PARK );
+  }
+
+  /**
+   * Create a new ring buffer row set.
+   *
+   * @param maxSize      the maximum number of rows in the buffer
+   * @param waitStrategy how to wait when the buffer is full or empty
+   */
+  public RingBufferRowSet( int maxSize, WaitStrategy waitStrategy ) {
+    super();
+    if ( maxSize < 1 ) {
+      throw new IllegalArgumentException( "The size of a ring buffer row set needs to be at least 1" );
+    }
+    this.capacity = maxSize;
+    int length = Integer.highestOneBit( maxSize );
+    if ( length < maxSize ) {
+      length <<= 1;
+    }
+    this.buffer = new Object[ length ][];
+    this.mask = length - 1;
+    this.waitStrategy = waitStrategy == null ? WaitStrategy.PARK : waitStrategy;
+
+    timeoutGet = Const.toInt( System.getProperty( Const.HOP_ROWSET_GET_TIMEOUT ), Const.TIMEOUT_GET_MILLIS );
+    timeoutPut = Const.toInt( System.getProperty( Const.HOP_ROWSET_PUT_TIMEOUT ), Const.TIMEOUT_PUT_MILLIS );
+  }
+
+  @Override
+  public boolean putRow( IRowMeta rowMeta, Object[] rowData ) {
+    return putRowWait( rowMeta, rowData, timeoutPut, TimeUnit.MILLISECONDS );
+  }
+
+  @Override
+  public boolean putRowWait( IRowMeta rowMeta, Object[] rowData, long time, TimeUnit tu ) {
+    if ( rowData == null ) {
+      return false;
+    }
+    this.rowMeta = rowMeta;
+
+    long sequence = head.value;
+    if ( sequence - head.cachedOther >= capacity ) {
+      head.cachedOther = tail.value;
+      if ( sequence - head.cachedOther >= capacity ) {
+        long deadline = System.nanoTime() + tu.toNanos( time );
+        int counter = 0;
+        do {
+          if ( System.nanoTime() - deadline >= 0 || Thread.currentThread().isInterrupted() ) {
+            return false;
+          }
+          counter = waitStrategy.idle( counter );
+          head.cachedOther = tail.value;
+        } while ( sequence - head.cachedOther >= capacity );
+      }
+    }
+
+    buffer[ (int) sequence & mask ] = rowData;
+    head.lazySet( sequence + 1 );
+    return true;
+  }
+
+  /**
+   * Adds as many rows as fit in the buffer and publishes them all at once.
+   */
+  @Override
+  public int putRows( IRowMeta rowMeta, Object[][] rows, int nrRows ) {
+    if ( nrRows <= 0 ) {
+      return 0;
+    }
+    this.rowMeta = rowMeta;
+
+    long sequence = head.value;
+    int free = (int) ( capacity - ( sequence - head.cachedOther ) );
+    if ( free < nrRows ) {
+      head.cachedOther = tail.value;
+      free = (int) ( capacity - ( sequence - head.cachedOther ) );
+      if ( free <= 0 ) {
+        // Wait for room using the single row logic
+        //
+        return putRowWait( rowMeta, rows[ 0 ], timeoutPut, TimeUnit.MILLISECONDS ) ? 1 : 0;
+      }
+    }
+
+    int count = Math.min( free, nrRows );
+    int i = 0;
+    while ( i < count && rows[ i ] != null ) {
+      buffer[ (int) ( sequence + i ) & mask ] = rows[ i ];
+      i++;
+    }
+    head.lazySet( sequence + i );
+    return i;
+  }
+
+  @Override
+  public Object[][] getRowsImmediate( int maxRows ) {
+    if ( maxRows <= 0 ) {
+      return null;
+    }
+    long sequence = tail.value;
+    long available = tail.cachedOther - sequence;
+    if ( available < maxRows ) {
+      tail.cachedOther = head.value;
+      available = tail.cachedOther - sequence;
+      if ( available <= 0 ) {
+        return null;
+      }
+    }
+
+    int count = (int) Math.min( available, maxRows );
+    Object[][] rows = new Object[ count ][];
+    for ( int i = 0; i < count; i++ ) {
+      int index = (int) ( sequence + i ) & mask;
+      rows[ i ] = buffer[ index ];
+      buffer[ index ] = null;
+    }
+    tail.lazySet( sequence + count );
+    return rows;
+  }
+
+  @Override
+  public Object[] getRow() {
+    return getRowWait( timeoutGet, TimeUnit.MILLISECONDS );
+  }
+
+  @Override
+  public Object[] getRowImmediate() {
+    long sequence = tail.value;
+    if ( sequence >= tail.cachedOther ) {
+      tail.cachedOther = head.value;
+      if ( sequence >= tail.cachedOther ) {
+        return null;
+      }
+    }
+    return take( sequence );
+  }
+
+  @Override
+  public Object[] getRowWait( long timeout, TimeUnit tu ) {
+    Object[] row = getRowImmediate();
+    if ( row != null ) {
+      return row;
+    }
+
+    long deadline = System.nanoTime() + tu.toNanos( timeout );
+    int counter = 0;
+    while ( System.nanoTime() - deadline < 0 && !Thread.currentThread().isInterrupted() ) {
+      counter = waitStrategy.idle( counter );
+      row = getRowImmediate();
+      if ( row != null ) {
+        return row;
+      }
+    }
+    return null;
+  }
+
+  private Object[] take( long sequence ) {
+    int index = (int) sequence & mask;
+    Object[] row = buffer[ index ];
+    buffer[ index ] = null;
+    tail.lazySet( sequence + 1 );
+    return row;
+  }
+
+  @Override
+  public int size() {
+    // Read the tail first so that the result is never negative
+    //
+    long consumed = tail.value;
+    long produced = head.value;
+    return (int) Math.max( 0L, Math.min( capacity, produced - consumed ) );
+  }
+
+  /**
+   * Removes all rows. Like getting rows this should only be called from the consuming thread.
+   */
+  @Override
+  public void clear() {
+    while ( getRowImmediate() != null ) {
+      // Drain the buffer
+    }
+    done.set( false );
+  }
+
+  /**
+   * @return the wait strategy used when the buffer is full or empty
+   */
+  public WaitStrategy getWaitStrategy() {
+    return waitStrategy;
+  }
+
+  /**
+   * Left padding, keeps the sequence off the cache line of the fields before it.
+   */
+  @SuppressWarnings( "unused" )
+  private static class LeftPadding {
+    protected long p01, p02, p03, p04, p05, p06, p07;
+  }
+
+  /**
+   * The sequence value itself plus a cached copy of the opposite sequence, both only written by the owning thread.
+   */
+  private static class SequenceValue extends LeftPadding {
+    protected volatile long value;
+    protected long cachedOther;
+  }
+
+  /**
+   * A padded sequence counter. The class hierarchy makes sure the JVM doesn't reorder the padding fields.
+   */
+  @SuppressWarnings( "unused" )
+  private static final class Sequence extends SequenceValue {
+    private static final AtomicLongFieldUpdater<SequenceValue> UPDATER =
+      AtomicLongFieldUpdater.newUpdater( SequenceValue.class, "value" );
+
+    protected long p11, p12, p13, p14, p15, p16, p17;
+
+    /**
+     * Ordered write: the row stored before becomes visible before the new sequence value does.
+     */
+    void lazySet( long newValue ) {
+      UPDATER.lazySet( this, newValue );
+    }
+  }
+}
@@ -44,6 +44,7 @@ import java.util.HashMap;
 import java.util.Hashtable;
 import java.util.List;
 import java.util.Map;
+import java.util.Properties;
 
 /**
  * This class contains the basic information on a database connection. It is not intended to be used other than the
@@ -112,6 +113,75 @@ public abstract class BaseDatabaseMeta implements Cloneable, IDatabase {
    */
   public static final String ATTRIBUTE_PRESERVE_RESERVED_WORD_CASE = "PRESERVE_RESERVED_WORD_CASE";
 
+  /**
+   * A flag to determine if the connections are taken from a pool
+   */
+  public static final String ATTRIBUTE_USE_POOLING = "USE_POOLING";
+
+  /**
+   * The number of connections opened when the pool is created
+   */
+  public static final String ATTRIBUTE_INITIAL_POOL_SIZE = "INITIAL_POOL_SIZE";
+
+  /**
+   * The maximum number of connections handed out by the pool at the same time
+   */
+  public static final String ATTRIBUTE_MAXIMUM_POOL_SIZE = "MAXIMUM_POOL_SIZE";
+
+  /**
+   * The prefix for all the connection pool parameters
+   */
+  public static final String ATTRIBUTE_POOLING_PARAMETER_PREFIX = "POOLING_";
+
+  public static final int DEFAULT_INITIAL_POOL_SIZE = 5;
+  public static final int DEFAULT_MAXIMUM_POOL_SIZE = 10;
+
+  /**
+   * The connection pool parameters that can be set next to the pool sizes.
+   */
+  public static final DatabaseConnectionPoolParameter[] POOLING_PARAMETERS = new DatabaseConnectionPoolParameter[] {
+    new DatabaseConnectionPoolParameter( "minIdle", "0",
+      "The minimum number of connections that can remain idle in the pool, without extra ones being created, or zero "
+        + "to create none." ),
+    new DatabaseConnectionPoolParameter( "maxIdle", "8",
+      "The maximum number of connections that can remain idle in the pool, without extra ones being released, or "
+        + "negative for no limit." ),
+    new DatabaseConnectionPoolParameter( "maxWait", "-1",
+      "The maximum number of milliseconds that the pool will wait (when there are no available connections) for a "
+        + "connection to be returned before throwing an exception, or -1 to wait indefinitely." ),
+    new DatabaseConnectionPoolParameter( "validationQuery", null,
+      "The SQL query that will be used to validate connections from this pool before returning them to the caller. "
+        + "If specified, this query MUST be an SQL SELECT statement that returns at least one row." ),
+    new DatabaseConnectionPoolParameter( "testOnBorrow", "true",
+      "Indicates whether connections are validated before being borrowed from the pool. If the validation fails, "
+        + "the connection is dropped from the pool and another one is tried. Needs a validation query." ),
+    new DatabaseConnectionPoolParameter( "testOnReturn", "false",
+      "Indicates whether connections are validated before being returned to the pool. Needs a validation query." ),
+    new DatabaseConnectionPoolParameter( "testWhileIdle", "false",
+      "Indicates whether idle connections are validated by the idle connection evictor. If the validation fails, "
+        + "the connection is dropped from the pool. Needs a validation query." ),
+    new DatabaseConnectionPoolParameter( "timeBetweenEvictionRunsMillis", "-1",
+      "The number of milliseconds to sleep between runs of the idle connection evictor thread. When non-positive, "
+        + "no idle connection evictor thread will be run." ),
+    new DatabaseConnectionPoolParameter( "numTestsPerEvictionRun", "3",
+      "The number of connections to examine during each run of the idle connection evictor thread." ),
+    new DatabaseConnectionPoolParameter( "minEvictableIdleTimeMillis", "1800000",
+      "The minimum amount of time a connection may sit idle in the pool before it is eligable for eviction by the "
+        + "idle connection evictor." ),
+    new DatabaseConnectionPoolParameter( "poolPreparedStatements", "false",
+      "Enable prepared statement pooling for this pool." ),
+    new DatabaseConnectionPoolParameter( "maxOpenPreparedStatements", "-1",
+      "The maximum number of open statements that can be allocated from the statement pool at the same time, or "
+        + "zero for no limit." ),
+    new DatabaseConnectionPoolParameter( "removeAbandoned", "false",
+      "Flag to detect leaked connections: connections that were not returned to the pool within the abandoned "
+        + "timeout are closed and removed when the pool runs low." ),
+    new DatabaseConnectionPoolParameter( "removeAbandonedTimeout", "300",
+      "The number of seconds after which a borrowed connection is considered abandoned." ),
+    new DatabaseConnectionPoolParameter( "logAbandoned", "false",
+      "Flag to log the stack trace of the code that borrowed an abandoned connection." ),
+  };
+
   public static final String SEQUENCE_FOR_BATCH_ID = "SEQUENCE_FOR_BATCH_ID";
   public static final String AUTOINCREMENT_SQL_FOR_BATCH_ID = "AUTOINCREMENT_SQL_FOR_BATCH_ID";
 
@@ -912,6 +982,15 @@ public abstract class BaseDatabaseMeta implements Cloneable, IDatabase {
     return true;
   }
 
+  /**
+   * @return the maximum number of parameters that can safely be bound in a single lookup statement. The default stays
+   * below the 1000 element limit Oracle imposes on IN lists.
+   */
+  @Override
+  public int getMaxLookupParameters() {
+    return 1000;
+  }
+
   public String getAttributeProperty(String key, String defaultValue) {
     String value = attributes.get(key);
     if (value==null) {
@@ -1115,6 +1194,84 @@ public abstract class BaseDatabaseMeta implements Cloneable, IDatabase {
     attributes.put( ATTRIBUTE_USE_RESULT_STREAMING, useStreaming ? "Y" : "N" );
   }
 
+  /**
+   * @return true if the connections are taken from a pool instead of being opened with every connect
+   */
+  @Override
+  public boolean isUsingConnectionPool() {
+    String usePool = getAttributeProperty( ATTRIBUTE_USE_POOLING, "N" ); // DEFAULT TO NO!!
+    return "Y".equalsIgnoreCase( usePool );
+  }
+
+  /**
+   * @param usePool true if the connections are taken from a pool instead of being opened with every connect
+   */
+  @Override
+  public void setUsingConnectionPool( boolean usePool ) {
+    attributes.put( ATTRIBUTE_USE_POOLING, usePool ? "Y" : "N" );
+  }
+
+  /**
+   * @return the number of connections opened when the pool is created, may contain variables
+   */
+  @Override
+  public String getInitialPoolSizeString() {
+    return getAttributeProperty( ATTRIBUTE_INITIAL_POOL_SIZE, Integer.toString( DEFAULT_INITIAL_POOL_SIZE ) );
+  }
+
+  /**
+   * @param initialPoolSize the number of connections opened when the pool is created, may contain variables
+   */
+  @Override
+  public void setInitialPoolSizeString( String initialPoolSize ) {
+    attributes.put( ATTRIBUTE_INITIAL_POOL_SIZE, initialPoolSize );
+  }
+
+  /**
+   * @return the maximum number of connections handed out by the pool at the same time, may contain variables
+   */
+  @Override
+  public String getMaximumPoolSizeString() {
+    return getAttributeProperty( ATTRIBUTE_MAXIMUM_POOL_SIZE, Integer.toString( DEFAULT_MAXIMUM_POOL_SIZE ) );
+  }
+
+  /**
+   * @param maximumPoolSize the maximum number of connections handed out by the pool at the same time, may contain
+   *                        variables
+   */
+  @Override
+  public void setMaximumPoolSizeString( String maximumPoolSize ) {
+    attributes.put( ATTRIBUTE_MAXIMUM_POOL_SIZE, maximumPoolSize );
+  }
+
+  /**
+   * @return the extra parameters of the connection pool like minIdle or validationQuery
+   */
+  @Override
+  public Properties getConnectionPoolingProperties() {
+    Properties properties = new Properties();
+    for ( String attribute : attributes.keySet() ) {
+      if ( attribute.startsWith( ATTRIBUTE_POOLING_PARAMETER_PREFIX ) ) {
+        String value = getAttributeProperty( attribute, null );
+        if ( value != null ) {
+          properties.put( attribute.substring( ATTRIBUTE_POOLING_PARAMETER_PREFIX.length() ), value );
+        }
+      }
+    }
+    return properties;
+  }
+
+  /**
+   * @param properties the extra parameters of the connection pool like minIdle or validationQuery
+   */
+  @Override
+  public void setConnectionPoolingProperties( Properties properties ) {
+    attributes.keySet().removeIf( attribute -> attribute.startsWith( ATTRIBUTE_POOLING_PARAMETER_PREFIX ) );
+    for ( String name : properties.stringPropertyNames() ) {
+      attributes.put( ATTRIBUTE_POOLING_PARAMETER_PREFIX + name, properties.getProperty( name ) );
+    }
+  }
+
   /**
    * @return true if all fields should always be quoted in db
    */
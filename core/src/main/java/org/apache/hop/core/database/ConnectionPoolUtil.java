@@ -0,0 +1,261 @@
+// CHECKSTYLE:FileLength:OFF
+/*! ******************************************************************************
+ *
+ * Hop : The Hop Orchestration Platform
+ *
+ * Copyright (C) 2002-2019 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.apache.hop.core.database;
+
+import org.apache.commons.dbcp.BasicDataSource;
+import org.apache.commons.dbcp.BasicDataSourceFactory;
+import org.apache.hop.core.Const;
+import org.apache.hop.core.exception.HopDatabaseException;
+import org.apache.hop.core.logging.ILogChannel;
+import org.apache.hop.core.logging.Metrics;
+import org.apache.hop.core.util.Utils;
+import org.apache.hop.core.variables.IVariables;
+import org.apache.hop.i18n.BaseMessages;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps a pool of JDBC connections for the database connections using a connection pool.<br>
+ * A pool is kept per connection name and partition, for every combination of resolved URL, credentials and pool
+ * settings: the same connection used with other variables gets another pool. Closing a pooled connection hands it back
+ * to its pool, so connection groups and transactions shared through the DatabaseConnectionMap work the same way.
+ */
+public class ConnectionPoolUtil {
+  private static final Class<?> PKG = Database.class; // for i18n purposes, needed by Translator!!
+
+  private static final Map<String, ConnectionPool> pools = new ConcurrentHashMap<>();
+
+  private ConnectionPoolUtil() {
+  }
+
+  /**
+   * Borrow a connection from the pool of the given database connection, creating the pool on first use.
+   *
+   * @param log                  the log channel to report to
+   * @param variables            the variables to resolve the pool settings with
+   * @param databaseMeta         the database connection
+   * @param partitionId          the partition to connect to or null
+   * @param url                  the resolved URL to connect to
+   * @param connectionProperties the properties passed to the driver, including the credentials
+   * @return the connection, closing it hands it back to the pool
+   * @throws HopDatabaseException in case the pool can't be created or no connection can be borrowed
+   */
+  public static Connection getConnection( ILogChannel log, IVariables variables, DatabaseMeta databaseMeta,
+                                          String partitionId, String url, Properties connectionProperties )
+    throws HopDatabaseException {
+    Properties poolProperties = getPoolProperties( variables, databaseMeta, url );
+    String name = Utils.isEmpty( partitionId ) ? databaseMeta.getName() : databaseMeta.getName() + "/" + partitionId;
+    String key = name + "|" + new TreeMap<>( poolProperties ) + "|" + new TreeMap<>( connectionProperties );
+
+    ConnectionPool pool = pools.get( key );
+    if ( pool == null ) {
+      pool = createPool( log, key, name, poolProperties, connectionProperties );
+    }
+
+    long startTime = System.currentTimeMillis();
+    try {
+      Connection connection = pool.dataSource.getConnection();
+      pool.borrowed.incrementAndGet();
+
+      log.snap( Metrics.METRIC_DATABASE_POOL_BORROW_COUNT, name );
+      log.snap( Metrics.METRIC_DATABASE_POOL_BORROW_MAX_TIME, name, System.currentTimeMillis() - startTime );
+      log.snap( Metrics.METRIC_DATABASE_POOL_ACTIVE_MAX, name, pool.dataSource.getNumActive() );
+      if ( log.isDebug() ) {
+        log.logDebug( BaseMessages.getString( PKG, "ConnectionPoolUtil.Log.ConnectionBorrowed", name,
+          pool.dataSource.getNumActive(), pool.dataSource.getNumIdle() ) );
+      }
+      return connection;
+    } catch ( SQLException e ) {
+      pool.failed.incrementAndGet();
+      throw new HopDatabaseException( BaseMessages.getString( PKG, "ConnectionPoolUtil.Exception.UnableToBorrow",
+        name, pool.dataSource.getNumActive(), pool.dataSource.getMaxActive() ), e );
+    }
+  }
+
+  private static synchronized ConnectionPool createPool( ILogChannel log, String key, String name,
+                                                         Properties poolProperties, Properties connectionProperties )
+    throws HopDatabaseException {
+    ConnectionPool pool = pools.get( key );
+    if ( pool != null ) {
+      return pool;
+    }
+    BasicDataSource dataSource;
+    try {
+      dataSource = (BasicDataSource) BasicDataSourceFactory.createDataSource( poolProperties );
+    } catch ( Exception e ) {
+      throw new HopDatabaseException( BaseMessages.getString( PKG, "ConnectionPoolUtil.Exception.InvalidSettings",
+        name ), e );
+    }
+    // The driver is looked up with the DriverManager where Database registered it, the credentials are part of the
+    // connection properties
+    //
+    for ( String property : connectionProperties.stringPropertyNames() ) {
+      dataSource.addConnectionProperty( property, connectionProperties.getProperty( property ) );
+    }
+    pool = new ConnectionPool( name, dataSource );
+    pools.put( key, pool );
+
+    if ( log.isDetailed() ) {
+      log.logDetailed( BaseMessages.getString( PKG, "ConnectionPoolUtil.Log.PoolCreated", name,
+        dataSource.getInitialSize(), dataSource.getMaxActive() ) );
+    }
+    return pool;
+  }
+
+  /**
+   * @return the settings of the pool as understood by the BasicDataSourceFactory
+   */
+  static Properties getPoolProperties( IVariables variables, DatabaseMeta databaseMeta, String url ) {
+    Properties properties = new Properties();
+    Properties poolingProperties = databaseMeta.getConnectionPoolingProperties();
+    for ( String parameter : poolingProperties.stringPropertyNames() ) {
+      String value = variables.environmentSubstitute( poolingProperties.getProperty( parameter ) );
+      if ( !Utils.isEmpty( value ) ) {
+        properties.setProperty( parameter, value );
+      }
+    }
+    int initialSize = Const.toInt( variables.environmentSubstitute( databaseMeta.getInitialPoolSizeString() ),
+      BaseDatabaseMeta.DEFAULT_INITIAL_POOL_SIZE );
+    int maxActive = Const.toInt( variables.environmentSubstitute( databaseMeta.getMaximumPoolSizeString() ),
+      BaseDatabaseMeta.DEFAULT_MAXIMUM_POOL_SIZE );
+    properties.setProperty( "initialSize", Integer.toString( initialSize ) );
+    properties.setProperty( "maxActive", Integer.toString( maxActive ) );
+    properties.setProperty( "url", url );
+    return properties;
+  }
+
+  /**
+   * @return the state of all the connection pools
+   */
+  public static List<PoolStatus> getPoolStatus() {
+    List<PoolStatus> status = new ArrayList<>();
+    for ( ConnectionPool pool : pools.values() ) {
+      status.add( new PoolStatus( pool ) );
+    }
+    return status;
+  }
+
+  /**
+   * Close all the connection pools. Connections that are still in use are closed when they are handed back.
+   */
+  public static synchronized void closeAll() {
+    for ( ConnectionPool pool : pools.values() ) {
+      try {
+        pool.dataSource.close();
+      } catch ( SQLException e ) {
+        // the pool is dropped anyway
+      }
+    }
+    pools.clear();
+  }
+
+  private static class ConnectionPool {
+    private final String name;
+    private final BasicDataSource dataSource;
+    private final AtomicLong borrowed = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+
+    ConnectionPool( String name, BasicDataSource dataSource ) {
+      this.name = name;
+      this.dataSource = dataSource;
+    }
+  }
+
+  /**
+   * The state of a connection pool at the time it was asked for.
+   */
+  public static class PoolStatus {
+    private final String name;
+    private final int active;
+    private final int idle;
+    private final int maximum;
+    private final long borrowed;
+    private final long failed;
+
+    private PoolStatus( ConnectionPool pool ) {
+      this.name = pool.name;
+      this.active = pool.dataSource.getNumActive();
+      this.idle = pool.dataSource.getNumIdle();
+      this.maximum = pool.dataSource.getMaxActive();
+      this.borrowed = pool.borrowed.get();
+      this.failed = pool.failed.get();
+    }
+
+    /**
+     * @return the connection name, followed by the partition if any
+     */
+    public String getName() {
+      return name;
+    }
+
+    /**
+     * @return the number of connections in use
+     */
+    public int getActive() {
+      return active;
+    }
+
+    /**
+     * @return the number of connections waiting in the pool
+     */
+    public int getIdle() {
+      return idle;
+    }
+
+    /**
+     * @return the maximum number of connections in use at the same time
+     */
+    public int getMaximum() {
+      return maximum;
+    }
+
+    /**
+     * @return the number of connections handed out since the pool was created
+     */
+    public long getBorrowed() {
+      return borrowed;
+    }
+
+    /**
+     * @return the number of times no connection could be handed out
+     */
+    public long getFailed() {
+      return failed;
+    }
+
+    @Override
+    public String toString() {
+      return name + " [active=" + active + ", idle=" + idle + ", maximum=" + maximum + ", borrowed=" + borrowed
+        + ", failed=" + failed + "]";
+    }
+  }
+}
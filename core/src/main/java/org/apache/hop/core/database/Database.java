@@ -395,8 +395,8 @@ public class Database implements IVariables, ILoggingObject {
   /**
    * Open the database connection. The algorithm is:
    * <ol>
-   * <li>If <code>databaseMeta.isUsingConnectionPool()</code>, then the connection's datasource is looked up in the
-   * pool</li>
+   * <li>If <code>databaseMeta.isUsingConnectionPool()</code>, then the connection is borrowed from the pool of the
+   * connection, see {@link ConnectionPoolUtil}</li>
    * <li>otherwise, the connection is established via {@linkplain java.sql.DriverManager}</li>
    * </ol>
    *
@@ -495,10 +495,10 @@ public class Database implements IVariables, ILoggingObject {
               url += ";instanceName=" + instance;
             }
           }
-          connection = DriverManager.getConnection( url, properties );
+          connection = openConnection( url, properties, partitionId );
         } else {
           // Perhaps the username is in the URL or no username is required...
-          connection = DriverManager.getConnection( url, properties );
+          connection = openConnection( url, properties, partitionId );
         }
       } else {
         if ( !Utils.isEmpty( username ) ) {
@@ -508,7 +508,7 @@ public class Database implements IVariables, ILoggingObject {
           properties.put( "password", password );
         }
 
-        connection = DriverManager.getConnection( url, properties );
+        connection = openConnection( url, properties, partitionId );
       }
     } catch ( SQLException e ) {
       throw new HopDatabaseException( "Error connecting to database: (using class " + classname + ")", e );
@@ -517,6 +517,14 @@ public class Database implements IVariables, ILoggingObject {
     }
   }
 
+  private Connection openConnection( String url, Properties properties, String partitionId )
+    throws SQLException, HopDatabaseException {
+    if ( databaseMeta.isUsingConnectionPool() ) {
+      return ConnectionPoolUtil.getConnection( log, this, databaseMeta, partitionId, url, properties );
+    }
+    return DriverManager.getConnection( url, properties );
+  }
+
   /**
    * Disconnect from the database and close all open prepared statements.
    */
@@ -3063,6 +3071,195 @@ public class Database implements IVariables, ILoggingObject {
     }
   }
 
+  /**
+   * Looks up a whole set of keys with as few statements as possible and lets the database tell which key every row
+   * belongs to. Every key gets its own branch in a UNION ALL that selects the number of the key followed by the return
+   * columns of the rows matching it. This way the keys are compared the way the database compares them (collation,
+   * padding, scale, precision), exactly like a lookup of a single key would. The keys are split in chunks so that a
+   * statement never binds more than {@link DatabaseMeta#getMaxLookupParameters()} parameters.
+   *
+   * @param schemaName    the schema of the lookup table
+   * @param tableName     the lookup table
+   * @param keyColumns    the key columns to compare with "="
+   * @param keysMeta      the metadata of the key values
+   * @param keys          the key tuples to look up, null values never match
+   * @param returnColumns the columns to retrieve
+   * @return the matching rows: the index of the key in the list of keys as a Long first, then the return columns. The
+   * row metadata is available through {@link #getReturnRowMeta()}
+   * @throws HopDatabaseException in case something goes wrong
+   */
+  public List<Object[]> getLookupRowsPerKey( String schemaName, String tableName, String[] keyColumns,
+                                             IRowMeta keysMeta, List<Object[]> keys, String[] returnColumns )
+    throws HopDatabaseException {
+    return getLookupRowsPerKey( schemaName, tableName, keyColumns, keysMeta, keys, returnColumns, null );
+  }
+
+  /**
+   * Looks up a whole set of keys like {@link #getLookupRowsPerKey(String, String, String[], IRowMeta, List, String[])},
+   * with the rows of every key sorted by an order by clause. A UNION ALL can only be sorted on the columns it returns,
+   * so the rows are then selected by a single statement where a CASE expression gives the number of the first key of
+   * the statement that a row matches. A key that the database considers equal to an earlier key of the same statement
+   * gets no rows.
+   *
+   * @param schemaName    the schema of the lookup table
+   * @param tableName     the lookup table
+   * @param keyColumns    the key columns to compare with "="
+   * @param keysMeta      the metadata of the key values
+   * @param keys          the key tuples to look up, null values never match
+   * @param returnColumns the columns to retrieve
+   * @param orderby       the optional order by clause
+   * @return the matching rows: the index of the key in the list of keys as a Long first, then the return columns. The
+   * row metadata is available through {@link #getReturnRowMeta()}
+   * @throws HopDatabaseException in case something goes wrong
+   */
+  public List<Object[]> getLookupRowsPerKey( String schemaName, String tableName, String[] keyColumns,
+                                             IRowMeta keysMeta, List<Object[]> keys, String[] returnColumns,
+                                             String orderby ) throws HopDatabaseException {
+    List<Object[]> rows = new ArrayList<>();
+
+    // A sorted lookup binds every key twice: in the CASE expression and in the WHERE clause
+    //
+    int binds = orderby != null && orderby.length() != 0 ? 2 : 1;
+    int chunkSize = Math.max( 1, databaseMeta.getMaxLookupParameters() / Math.max( 1, keyColumns.length * binds ) );
+
+    String fullChunkSql = null;
+    for ( int start = 0; start < keys.size(); start += chunkSize ) {
+      List<Object[]> chunk = keys.subList( start, Math.min( keys.size(), start + chunkSize ) );
+
+      String sql;
+      if ( chunk.size() == chunkSize ) {
+        if ( fullChunkSql == null ) {
+          fullChunkSql =
+            getLookupRowsPerKeySql( schemaName, tableName, keyColumns, returnColumns, orderby, chunkSize );
+        }
+        sql = fullChunkSql;
+      } else {
+        sql = getLookupRowsPerKeySql( schemaName, tableName, keyColumns, returnColumns, orderby, chunk.size() );
+      }
+
+      List<IValueMeta> paramsMetaList = new ArrayList<>( chunk.size() * keyColumns.length * binds );
+      Object[] params = new Object[ chunk.size() * keyColumns.length * binds ];
+      int index = 0;
+      for ( int b = 0; b < binds; b++ ) {
+        for ( Object[] key : chunk ) {
+          for ( int i = 0; i < keyColumns.length; i++ ) {
+            paramsMetaList.add( keysMeta.getValueMeta( i ) );
+            params[ index++ ] = key[ i ];
+          }
+        }
+      }
+      IRowMeta paramsMeta = new RowMeta();
+      paramsMeta.setValueMetaList( paramsMetaList );
+
+      try {
+        log.snap( Metrics.METRIC_DATABASE_GET_LOOKUP_START, databaseMeta.getName() );
+        ResultSet res = openQuery( sql, paramsMeta, params );
+        List<Object[]> chunkRows = getRows( res, 0, null );
+
+        // The key numbers of a statement start at 0, whatever type the database gives them
+        //
+        for ( Object[] row : chunkRows ) {
+          row[ 0 ] = start + rowMeta.getInteger( row, 0 );
+        }
+        if ( rowMeta.size() > 0 ) {
+          rowMeta.setValueMeta( 0, new ValueMetaInteger( rowMeta.getValueMeta( 0 ).getName() ) );
+        }
+        rows.addAll( chunkRows );
+      } catch ( HopValueException e ) {
+        throw new HopDatabaseException( "Unable to read the key number of a lookup row", e );
+      } finally {
+        log.snap( Metrics.METRIC_DATABASE_GET_LOOKUP_STOP, databaseMeta.getName() );
+      }
+    }
+    return rows;
+  }
+
+  /**
+   * Builds the statement used by {@link #getLookupRowsPerKey(String, String, String[], IRowMeta, List, String[])}.
+   *
+   * @param schemaName    the schema of the lookup table
+   * @param tableName     the lookup table
+   * @param keyColumns    the key columns to compare with "="
+   * @param returnColumns the columns to retrieve
+   * @param nrKeys        the number of keys to bind
+   * @return the SQL statement
+   */
+  public String getLookupRowsPerKeySql( String schemaName, String tableName, String[] keyColumns,
+                                        String[] returnColumns, int nrKeys ) {
+    return getLookupRowsPerKeySql( schemaName, tableName, keyColumns, returnColumns, null, nrKeys );
+  }
+
+  /**
+   * Builds the statement used by {@link #getLookupRowsPerKey(String, String, String[], IRowMeta, List, String[],
+   * String)}.
+   *
+   * @param schemaName    the schema of the lookup table
+   * @param tableName     the lookup table
+   * @param keyColumns    the key columns to compare with "="
+   * @param returnColumns the columns to retrieve
+   * @param orderby       the optional order by clause
+   * @param nrKeys        the number of keys to bind
+   * @return the SQL statement
+   */
+  public String getLookupRowsPerKeySql( String schemaName, String tableName, String[] keyColumns,
+                                        String[] returnColumns, String orderby, int nrKeys ) {
+    String schemaTable = databaseMeta.getQuotedSchemaTableCombination( schemaName, tableName );
+    if ( orderby != null && orderby.length() != 0 ) {
+      return getSortedLookupRowsPerKeySql( schemaTable, keyColumns, returnColumns, orderby, nrKeys );
+    }
+    StringBuilder sql = new StringBuilder();
+    for ( int k = 0; k < nrKeys; k++ ) {
+      if ( k != 0 ) {
+        sql.append( " UNION ALL " );
+      }
+      sql.append( "SELECT " ).append( k );
+      if ( k == 0 ) {
+        sql.append( " AS " ).append( databaseMeta.quoteField( "KEY_NR" ) );
+      }
+      for ( String returnColumn : returnColumns ) {
+        sql.append( ", " ).append( databaseMeta.quoteField( returnColumn ) );
+      }
+      sql.append( " FROM " ).append( schemaTable ).append( " WHERE " );
+      for ( int i = 0; i < keyColumns.length; i++ ) {
+        if ( i != 0 ) {
+          sql.append( " AND " );
+        }
+        sql.append( databaseMeta.quoteField( keyColumns[ i ] ) ).append( " = ?" );
+      }
+    }
+    return sql.toString();
+  }
+
+  private String getSortedLookupRowsPerKeySql( String schemaTable, String[] keyColumns, String[] returnColumns,
+                                               String orderby, int nrKeys ) {
+    StringBuilder keyCondition = new StringBuilder();
+    for ( int i = 0; i < keyColumns.length; i++ ) {
+      if ( i != 0 ) {
+        keyCondition.append( " AND " );
+      }
+      keyCondition.append( databaseMeta.quoteField( keyColumns[ i ] ) ).append( " = ?" );
+    }
+
+    String keyNr = databaseMeta.quoteField( "KEY_NR" );
+    StringBuilder sql = new StringBuilder( "SELECT CASE" );
+    for ( int k = 0; k < nrKeys; k++ ) {
+      sql.append( " WHEN " ).append( keyCondition ).append( " THEN " ).append( k );
+    }
+    sql.append( " END AS " ).append( keyNr );
+    for ( String returnColumn : returnColumns ) {
+      sql.append( ", " ).append( databaseMeta.quoteField( returnColumn ) );
+    }
+    sql.append( " FROM " ).append( schemaTable ).append( " WHERE " );
+    for ( int k = 0; k < nrKeys; k++ ) {
+      if ( k != 0 ) {
+        sql.append( " OR " );
+      }
+      sql.append( "( " ).append( keyCondition ).append( " )" );
+    }
+    sql.append( " ORDER BY " ).append( keyNr ).append( ", " ).append( orderby );
+    return sql.toString();
+  }
+
   public DatabaseMetaData getDatabaseMetaData() throws HopDatabaseException {
     if ( dbmd == null ) {
       try {
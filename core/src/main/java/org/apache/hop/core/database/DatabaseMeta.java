@@ -1777,6 +1777,13 @@ public class DatabaseMeta implements Cloneable, IVariables, IHopMetadata {
     return iDatabase.supportsBatchUpdates();
   }
 
+  /**
+   * @return the maximum number of parameters that can safely be bound in a single lookup statement.
+   */
+  public int getMaxLookupParameters() {
+    return iDatabase.getMaxLookupParameters();
+  }
+
   /**
    * @return true if the database supports a boolean, bit, logical, ... datatype
    */
@@ -1924,6 +1931,64 @@ public class DatabaseMeta implements Cloneable, IVariables, IHopMetadata {
     iDatabase.setStreamingResults( useStreaming );
   }
 
+  /**
+   * @return true if the connections are taken from a pool instead of being opened with every connect
+   */
+  public boolean isUsingConnectionPool() {
+    return iDatabase.isUsingConnectionPool();
+  }
+
+  /**
+   * @param usePool true if the connections are taken from a pool instead of being opened with every connect
+   */
+  public void setUsingConnectionPool( boolean usePool ) {
+    iDatabase.setUsingConnectionPool( usePool );
+  }
+
+  /**
+   * @return the number of connections opened when the pool is created, with the variables resolved
+   */
+  public int getInitialPoolSize() {
+    return Const.toInt( environmentSubstitute( getInitialPoolSizeString() ), BaseDatabaseMeta.DEFAULT_INITIAL_POOL_SIZE );
+  }
+
+  public String getInitialPoolSizeString() {
+    return iDatabase.getInitialPoolSizeString();
+  }
+
+  public void setInitialPoolSizeString( String initialPoolSize ) {
+    iDatabase.setInitialPoolSizeString( initialPoolSize );
+  }
+
+  /**
+   * @return the maximum number of connections handed out by the pool at the same time, with the variables resolved
+   */
+  public int getMaximumPoolSize() {
+    return Const.toInt( environmentSubstitute( getMaximumPoolSizeString() ), BaseDatabaseMeta.DEFAULT_MAXIMUM_POOL_SIZE );
+  }
+
+  public String getMaximumPoolSizeString() {
+    return iDatabase.getMaximumPoolSizeString();
+  }
+
+  public void setMaximumPoolSizeString( String maximumPoolSize ) {
+    iDatabase.setMaximumPoolSizeString( maximumPoolSize );
+  }
+
+  /**
+   * @return the extra parameters of the connection pool like minIdle or validationQuery
+   */
+  public Properties getConnectionPoolingProperties() {
+    return iDatabase.getConnectionPoolingProperties();
+  }
+
+  /**
+   * @param properties the extra parameters of the connection pool like minIdle or validationQuery
+   */
+  public void setConnectionPoolingProperties( Properties properties ) {
+    iDatabase.setConnectionPoolingProperties( properties );
+  }
+
   /**
    * @return true if all fields should always be quoted in db
    */
@@ -34,6 +34,7 @@ import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
 import java.util.List;
 import java.util.Map;
+import java.util.Properties;
 
 
 /**
@@ -538,6 +539,12 @@ public interface IDatabase extends Cloneable {
    */
   public boolean supportsBatchUpdates();
 
+  /**
+   * @return the maximum number of parameters (question marks) that can safely be bound in a single lookup statement.
+   * Set based lookups split their keys into chunks that stay below this limit.
+   */
+  public int getMaxLookupParameters();
+
   /**
    * @return true if the database supports a boolean, bit, logical, ... datatype
    */
@@ -649,6 +656,48 @@ public interface IDatabase extends Cloneable {
    */
   public void setStreamingResults( boolean useStreaming );
 
+  /**
+   * @return true if the connections are taken from a pool instead of being opened with every connect
+   */
+  public boolean isUsingConnectionPool();
+
+  /**
+   * @param usePool true if the connections are taken from a pool instead of being opened with every connect
+   */
+  public void setUsingConnectionPool( boolean usePool );
+
+  /**
+   * @return the number of connections opened when the pool is created, may contain variables
+   */
+  public String getInitialPoolSizeString();
+
+  /**
+   * @param initialPoolSize the number of connections opened when the pool is created, may contain variables
+   */
+  public void setInitialPoolSizeString( String initialPoolSize );
+
+  /**
+   * @return the maximum number of connections handed out by the pool at the same time, may contain variables
+   */
+  public String getMaximumPoolSizeString();
+
+  /**
+   * @param maximumPoolSize the maximum number of connections handed out by the pool at the same time, may contain
+   *                        variables
+   */
+  public void setMaximumPoolSizeString( String maximumPoolSize );
+
+  /**
+   * @return the extra parameters of the connection pool like minIdle or validationQuery
+   * @see BaseDatabaseMeta#POOLING_PARAMETERS
+   */
+  public Properties getConnectionPoolingProperties();
+
+  /**
+   * @param properties the extra parameters of the connection pool like minIdle or validationQuery
+   */
+  public void setConnectionPoolingProperties( Properties properties );
+
   /**
    * @return true if all fields should always be quoted in db
    */
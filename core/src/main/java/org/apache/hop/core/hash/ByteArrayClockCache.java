@@ -0,0 +1,324 @@
+/*! ******************************************************************************
+ *
+ * Hop : The Hop Orchestration Platform
+ *
+ * http://www.project-hop.org
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+
+
+package org.apache.hop.core.hash;
+
+import java.util.Arrays;
+
+/**
+ * A bounded cache mapping serialized keys (see
+ * {@link org.apache.hop.core.row.RowMeta#extractData(org.apache.hop.core.row.IRowMeta, Object[])}) to primitive long
+ * values.<br>
+ * <br>
+ * The keys are kept in an open addressing table with linear probing. The entries are stored in primitive arrays, an
+ * entry is addressed by its position in these arrays. When the cache is full, an entry is evicted with the CLOCK
+ * algorithm: a hand sweeps over the positions, clearing the reference bit of entries that were looked up since the
+ * last sweep and evicting the first one that wasn't. The hand then moves past the freed position and the next new entry
+ * takes it, so a new entry is the last one the hand comes back to. This approximates LRU at O(1) amortized cost per
+ * eviction. New entries start without reference bit so that keys which are never looked up again go first.<br>
+ * <br>
+ * The cache is bounded by a number of entries, by an (estimated) number of bytes or by both.
+ */
+public class ByteArrayClockCache {
+
+  private static final float STANDARD_LOAD_FACTOR = 0.7f;
+
+  /**
+   * The estimated number of bytes used by an entry on top of its key bytes: the key array header and reference, the
+   * hash code, the value, the reference bit and the slots in the table.
+   */
+  public static final int ENTRY_OVERHEAD = 48;
+
+  private final int maxEntries;
+  private final long maxBytes;
+
+  /**
+   * For every slot in the table: the position of the entry + 1, 0 means empty.
+   */
+  private int[] slots;
+  private int mask;
+  private int resizeThreshold;
+
+  private byte[][] keys;
+  private int[] hashCodes;
+  private long[] values;
+  private boolean[] referenced;
+  private int size;
+
+  /**
+   * The number of positions in use or freed, positions from here on were never used
+   */
+  private int used;
+
+  /**
+   * The positions freed by evictions, to be reused by new entries
+   */
+  private int[] freePositions;
+  private int nrFree;
+  private long bytes;
+
+  private int hand;
+
+  private long hits;
+  private long misses;
+  private long evictions;
+
+  /**
+   * @param maxEntries the maximum number of entries in the cache, 0 means no limit
+   * @param maxBytes   the maximum (estimated) number of bytes taken by the entries, 0 means no limit
+   */
+  public ByteArrayClockCache( int maxEntries, long maxBytes ) {
+    this.maxEntries = Math.max( 0, maxEntries );
+    this.maxBytes = Math.max( 0L, maxBytes );
+
+    int expectedSize = maxEntries > 0 ? Math.min( maxEntries, 1 << 16 ) : 1024;
+    int capacity = 16;
+    while ( capacity * STANDARD_LOAD_FACTOR < expectedSize ) {
+      capacity <<= 1;
+    }
+    slots = new int[ capacity ];
+    mask = capacity - 1;
+    resizeThreshold = (int) ( capacity * STANDARD_LOAD_FACTOR );
+
+    keys = new byte[ expectedSize ][];
+    hashCodes = new int[ expectedSize ];
+    values = new long[ expectedSize ];
+    referenced = new boolean[ expectedSize ];
+    freePositions = new int[ expectedSize ];
+  }
+
+  /**
+   * Look up a key. A hit marks the entry as recently used.
+   *
+   * @param key the serialized key
+   * @return the position of the entry, to be passed to {@link #getValue(int)}, or -1 if the key is not in the cache
+   */
+  public int get( byte[] key ) {
+    int entry = find( key, ByteArrayIdIndex.hashCode( key, 0, key.length ) );
+    if ( entry < 0 ) {
+      misses++;
+      return -1;
+    }
+    hits++;
+    referenced[ entry ] = true;
+    return entry;
+  }
+
+  /**
+   * @param entry the position of the entry as returned by {@link #get(byte[])}
+   * @return the value of the entry
+   */
+  public long getValue( int entry ) {
+    return values[ entry ];
+  }
+
+  /**
+   * Store a value for a key, evicting other entries when the cache is full. The key array is kept by the cache, it
+   * should not be modified afterwards.
+   *
+   * @param key   the serialized key
+   * @param value the value to store
+   */
+  public void put( byte[] key, long value ) {
+    int hashCode = ByteArrayIdIndex.hashCode( key, 0, key.length );
+    int entry = find( key, hashCode );
+    if ( entry >= 0 ) {
+      values[ entry ] = value;
+      return;
+    }
+
+    long entryBytes = key.length + ENTRY_OVERHEAD;
+    if ( maxBytes > 0 && entryBytes > maxBytes ) {
+      // This key would never fit
+      //
+      return;
+    }
+    while ( size > 0 && ( ( maxEntries > 0 && size >= maxEntries ) || ( maxBytes > 0 && bytes + entryBytes > maxBytes ) ) ) {
+      evict();
+    }
+
+    if ( nrFree > 0 ) {
+      entry = freePositions[ --nrFree ];
+    } else {
+      entry = used++;
+      if ( entry == keys.length ) {
+        int newLength = keys.length + ( keys.length >> 1 ) + 1;
+        keys = Arrays.copyOf( keys, newLength );
+        hashCodes = Arrays.copyOf( hashCodes, newLength );
+        values = Arrays.copyOf( values, newLength );
+        referenced = Arrays.copyOf( referenced, newLength );
+        freePositions = Arrays.copyOf( freePositions, newLength );
+      }
+    }
+    size++;
+    keys[ entry ] = key;
+    hashCodes[ entry ] = hashCode;
+    values[ entry ] = value;
+    referenced[ entry ] = false;
+    bytes += entryBytes;
+
+    int slot = hashCode & mask;
+    while ( slots[ slot ] != 0 ) {
+      slot = ( slot + 1 ) & mask;
+    }
+    slots[ slot ] = entry + 1;
+
+    if ( size > resizeThreshold ) {
+      resize();
+    }
+  }
+
+  /**
+   * @return the number of entries in the cache
+   */
+  public int getSize() {
+    return size;
+  }
+
+  /**
+   * @return the estimated number of bytes taken by the entries in the cache
+   */
+  public long getBytes() {
+    return bytes;
+  }
+
+  /**
+   * @return the number of lookups that found their key
+   */
+  public long getHits() {
+    return hits;
+  }
+
+  /**
+   * @return the number of lookups that didn't find their key
+   */
+  public long getMisses() {
+    return misses;
+  }
+
+  /**
+   * @return the number of entries that were evicted to make room for new ones
+   */
+  public long getEvictions() {
+    return evictions;
+  }
+
+  /**
+   * Remove all entries, the counters are kept.
+   */
+  public void clear() {
+    Arrays.fill( slots, 0 );
+    Arrays.fill( keys, 0, used, null );
+    size = 0;
+    used = 0;
+    nrFree = 0;
+    bytes = 0;
+    hand = 0;
+  }
+
+  private int find( byte[] key, int hashCode ) {
+    int slot = hashCode & mask;
+    int entry;
+    while ( ( entry = slots[ slot ] - 1 ) >= 0 ) {
+      if ( hashCodes[ entry ] == hashCode && Arrays.equals( keys[ entry ], key ) ) {
+        return entry;
+      }
+      slot = ( slot + 1 ) & mask;
+    }
+    return -1;
+  }
+
+  /**
+   * Advance the clock hand to the first entry without reference bit, remove it and move the hand past it. Every entry
+   * passed loses its reference bit so this ends within two sweeps.
+   */
+  private void evict() {
+    while ( keys[ hand ] == null || referenced[ hand ] ) {
+      referenced[ hand ] = false;
+      hand++;
+      if ( hand == used ) {
+        hand = 0;
+      }
+    }
+    remove( hand );
+    hand++;
+    if ( hand == used ) {
+      hand = 0;
+    }
+    evictions++;
+  }
+
+  private void remove( int entry ) {
+    int slot = slotOf( entry );
+    deleteSlot( slot );
+    bytes -= keys[ entry ].length + ENTRY_OVERHEAD;
+    keys[ entry ] = null;
+    size--;
+    freePositions[ nrFree++ ] = entry;
+  }
+
+  private int slotOf( int entry ) {
+    int slot = hashCodes[ entry ] & mask;
+    while ( slots[ slot ] != entry + 1 ) {
+      slot = ( slot + 1 ) & mask;
+    }
+    return slot;
+  }
+
+  /**
+   * Empty a slot and shift the following entries of the probe sequence back so that no tombstones are needed.
+   */
+  private void deleteSlot( int slot ) {
+    slots[ slot ] = 0;
+    int next = ( slot + 1 ) & mask;
+    while ( slots[ next ] != 0 ) {
+      int ideal = hashCodes[ slots[ next ] - 1 ] & mask;
+      if ( ( ( next - ideal ) & mask ) >= ( ( next - slot ) & mask ) ) {
+        slots[ slot ] = slots[ next ];
+        slots[ next ] = 0;
+        slot = next;
+      }
+      next = ( next + 1 ) & mask;
+    }
+  }
+
+  private void resize() {
+    int capacity = slots.length * 2;
+    int[] newSlots = new int[ capacity ];
+    int newMask = capacity - 1;
+    for ( int entry = 0; entry < used; entry++ ) {
+      if ( keys[ entry ] == null ) {
+        continue;
+      }
+      int slot = hashCodes[ entry ] & newMask;
+      while ( newSlots[ slot ] != 0 ) {
+        slot = ( slot + 1 ) & newMask;
+      }
+      newSlots[ slot ] = entry + 1;
+    }
+    slots = newSlots;
+    mask = newMask;
+    resizeThreshold = (int) ( capacity * STANDARD_LOAD_FACTOR );
+  }
+}
@@ -0,0 +1,290 @@
+/*! ******************************************************************************
+ *
+ * Hop : The Hop Orchestration Platform
+ *
+ * http://www.project-hop.org
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+
+package org.apache.hop.core.hash;
+
+import java.util.Arrays;
+
+/**
+ * An open addressing hash index which hands out a dense integer id (0, 1, 2, ...) for every distinct key. Keys are
+ * serialized rows (see {@link org.apache.hop.core.row.RowMeta#extractData(org.apache.hop.core.row.IRowMeta, Object[])})
+ * or any other byte encoding.<br>
+ * <br>
+ * Contrary to {@link ByteArrayHashMap} the keys are hashed on their bytes instead of on the de-serialized row and they
+ * are copied into large shared pages. Looking up a key doesn't allocate anything which makes it possible to keep tens
+ * of millions of keys around without putting pressure on the garbage collector. The ids can be used to index
+ * columnar data kept in primitive arrays.
+ */
+public class ByteArrayIdIndex {
+
+  private static final int STANDARD_INDEX_SIZE = 1024;
+  private static final float STANDARD_LOAD_FACTOR = 0.7f;
+  private static final int PAGE_SIZE = 1 << 20;
+
+  /**
+   * For every slot in the table: the id of the key + 1, 0 means empty.
+   */
+  private int[] slots;
+  private int mask;
+  private int resizeThreshold;
+
+  private int[] hashCodes;
+  private int[] pageNumbers;
+  private int[] pageOffsets;
+  private int[] keyLengths;
+  private int size;
+
+  private byte[][] pages;
+  private int pageCount;
+  private int currentPage;
+  private int pagePosition;
+
+  public ByteArrayIdIndex() {
+    this( STANDARD_INDEX_SIZE );
+  }
+
+  /**
+   * @param expectedSize the number of keys to reserve room for
+   */
+  public ByteArrayIdIndex( int expectedSize ) {
+    int capacity = 16;
+    while ( capacity * STANDARD_LOAD_FACTOR < expectedSize ) {
+      capacity <<= 1;
+    }
+    slots = new int[ capacity ];
+    mask = capacity - 1;
+    resizeThreshold = (int) ( capacity * STANDARD_LOAD_FACTOR );
+
+    int idCapacity = Math.max( 16, expectedSize );
+    hashCodes = new int[ idCapacity ];
+    pageNumbers = new int[ idCapacity ];
+    pageOffsets = new int[ idCapacity ];
+    keyLengths = new int[ idCapacity ];
+    pages = new byte[ 4 ][];
+    pageCount = 0;
+    currentPage = -1;
+    pagePosition = PAGE_SIZE;
+  }
+
+  /**
+   * @return the number of distinct keys in the index
+   */
+  public int getSize() {
+    return size;
+  }
+
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  /**
+   * Look up the id of a key.
+   *
+   * @param key    the buffer containing the key
+   * @param offset the offset of the key in the buffer
+   * @param length the length of the key
+   * @return the id of the key or -1 if the key is not in the index
+   */
+  public int get( byte[] key, int offset, int length ) {
+    int hashCode = hashCode( key, offset, length );
+    int slot = hashCode & mask;
+    int id;
+    while ( ( id = slots[ slot ] - 1 ) >= 0 ) {
+      if ( hashCodes[ id ] == hashCode && equalsKey( id, key, offset, length ) ) {
+        return id;
+      }
+      slot = ( slot + 1 ) & mask;
+    }
+    return -1;
+  }
+
+  public int get( byte[] key ) {
+    return get( key, 0, key.length );
+  }
+
+  /**
+   * Look up the id of a key, adding the key if it is not in the index yet. The key bytes are copied so the buffer can
+   * be re-used by the caller. A new key gets id {@link #getSize()} - 1 after the call.
+   *
+   * @param key    the buffer containing the key
+   * @param offset the offset of the key in the buffer
+   * @param length the length of the key
+   * @return the id of the key
+   */
+  public int put( byte[] key, int offset, int length ) {
+    int hashCode = hashCode( key, offset, length );
+    int slot = hashCode & mask;
+    int id;
+    while ( ( id = slots[ slot ] - 1 ) >= 0 ) {
+      if ( hashCodes[ id ] == hashCode && equalsKey( id, key, offset, length ) ) {
+        return id;
+      }
+      slot = ( slot + 1 ) & mask;
+    }
+
+    id = size++;
+    if ( id == hashCodes.length ) {
+      int newLength = hashCodes.length + ( hashCodes.length >> 1 );
+      hashCodes = Arrays.copyOf( hashCodes, newLength );
+      pageNumbers = Arrays.copyOf( pageNumbers, newLength );
+      pageOffsets = Arrays.copyOf( pageOffsets, newLength );
+      keyLengths = Arrays.copyOf( keyLengths, newLength );
+    }
+    hashCodes[ id ] = hashCode;
+    keyLengths[ id ] = length;
+    storeKey( id, key, offset, length );
+    slots[ slot ] = id + 1;
+
+    if ( size > resizeThreshold ) {
+      resize();
+    }
+    return id;
+  }
+
+  public int put( byte[] key ) {
+    return put( key, 0, key.length );
+  }
+
+  /**
+   * @param id the id of the key
+   * @return a copy of the key with the given id
+   */
+  public byte[] getKey( int id ) {
+    if ( id < 0 || id >= size ) {
+      throw new IndexOutOfBoundsException( "Key id " + id + " is not in the index (size " + size + ")" );
+    }
+    return Arrays.copyOfRange( pages[ pageNumbers[ id ] ], pageOffsets[ id ], pageOffsets[ id ] + keyLengths[ id ] );
+  }
+
+  /**
+   * @param id the id of the key
+   * @return the hash code of the key with the given id, see {@link #hashCode(byte[], int, int)}
+   */
+  public int getHashCode( int id ) {
+    return hashCodes[ id ];
+  }
+
+  /**
+   * @return An estimate of the number of bytes of heap memory taken by this index
+   */
+  public long getMemoryUsage() {
+    long usage = 4L * slots.length + 16L * hashCodes.length;
+    for ( int i = 0; i < pageCount; i++ ) {
+      usage += pages[ i ].length;
+    }
+    return usage;
+  }
+
+  /**
+   * Remove all keys, the allocated memory is released.
+   */
+  public void clear() {
+    slots = new int[ 16 ];
+    mask = 15;
+    resizeThreshold = (int) ( 16 * STANDARD_LOAD_FACTOR );
+    hashCodes = new int[ 16 ];
+    pageNumbers = new int[ 16 ];
+    pageOffsets = new int[ 16 ];
+    keyLengths = new int[ 16 ];
+    size = 0;
+    pages = new byte[ 4 ][];
+    pageCount = 0;
+    currentPage = -1;
+    pagePosition = PAGE_SIZE;
+  }
+
+  private void storeKey( int id, byte[] key, int offset, int length ) {
+    byte[] page;
+    if ( length > PAGE_SIZE / 4 ) {
+      // Large keys get a page of their own, the current page stays open for the next small keys.
+      //
+      page = new byte[ length ];
+      pageNumbers[ id ] = addPage( page );
+      pageOffsets[ id ] = 0;
+    } else {
+      if ( currentPage < 0 || pagePosition + length > PAGE_SIZE ) {
+        currentPage = addPage( new byte[ PAGE_SIZE ] );
+        pagePosition = 0;
+      }
+      page = pages[ currentPage ];
+      pageNumbers[ id ] = currentPage;
+      pageOffsets[ id ] = pagePosition;
+      pagePosition += length;
+    }
+    System.arraycopy( key, offset, page, pageOffsets[ id ], length );
+  }
+
+  private int addPage( byte[] page ) {
+    if ( pageCount == pages.length ) {
+      pages = Arrays.copyOf( pages, pageCount * 2 );
+    }
+    pages[ pageCount ] = page;
+    return pageCount++;
+  }
+
+  private boolean equalsKey( int id, byte[] key, int offset, int length ) {
+    if ( keyLengths[ id ] != length ) {
+      return false;
+    }
+    byte[] page = pages[ pageNumbers[ id ] ];
+    int pageOffset = pageOffsets[ id ];
+    for ( int i = 0; i < length; i++ ) {
+      if ( page[ pageOffset + i ] != key[ offset + i ] ) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private void resize() {
+    int capacity = slots.length * 2;
+    int[] newSlots = new int[ capacity ];
+    int newMask = capacity - 1;
+    for ( int id = 0; id < size; id++ ) {
+      int slot = hashCodes[ id ] & newMask;
+      while ( newSlots[ slot ] != 0 ) {
+        slot = ( slot + 1 ) & newMask;
+      }
+      newSlots[ slot ] = id + 1;
+    }
+    slots = newSlots;
+    mask = newMask;
+    resizeThreshold = (int) ( capacity * STANDARD_LOAD_FACTOR );
+  }
+
+  /**
+   * Calculates a well spread hash code over the bytes of a key: the low bits are used to find the slot in the table.
+   */
+  public static int hashCode( byte[] key, int offset, int length ) {
+    int hash = 0x9747b28c ^ length;
+    for ( int i = 0; i < length; i++ ) {
+      hash = ( hash ^ ( key[ offset + i ] & 0xff ) ) * 0x01000193;
+    }
+    hash ^= hash >>> 16;
+    hash *= 0x85ebca6b;
+    hash ^= hash >>> 13;
+    hash *= 0xc2b2ae35;
+    hash ^= hash >>> 16;
+    return hash;
+  }
+}
@@ -0,0 +1,179 @@
+/*! ******************************************************************************
+ *
+ * Hop : The Hop Orchestration Platform
+ *
+ * http://www.project-hop.org
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+
+package org.apache.hop.core.hash;
+
+/**
+ * A set of primitive long values using open addressing. Nothing is allocated when adding or looking up values, which
+ * makes it suitable to keep track of large numbers of (combined) ids, for example to count distinct values.
+ */
+public class LongHashSet {
+
+  private static final int STANDARD_INDEX_SIZE = 1024;
+  private static final float STANDARD_LOAD_FACTOR = 0.7f;
+  private static final long EMPTY = 0L;
+
+  private long[] values;
+  private int mask;
+  private int resizeThreshold;
+  private int size;
+
+  /**
+   * The empty marker can't be stored in the table so we keep track of it separately.
+   */
+  private boolean containsEmpty;
+
+  public LongHashSet() {
+    this( STANDARD_INDEX_SIZE );
+  }
+
+  /**
+   * @param expectedSize the number of values to reserve room for
+   */
+  public LongHashSet( int expectedSize ) {
+    int capacity = 16;
+    while ( capacity * STANDARD_LOAD_FACTOR < expectedSize ) {
+      capacity <<= 1;
+    }
+    allocate( capacity );
+  }
+
+  /**
+   * @return the number of values in the set
+   */
+  public int getSize() {
+    return size;
+  }
+
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  /**
+   * Add a value to the set
+   *
+   * @param value the value to add
+   * @return true if the value was added, false if it was already in the set
+   */
+  public boolean add( long value ) {
+    if ( value == EMPTY ) {
+      if ( containsEmpty ) {
+        return false;
+      }
+      containsEmpty = true;
+      size++;
+      return true;
+    }
+    int slot = hashCode( value ) & mask;
+    long check;
+    while ( ( check = values[ slot ] ) != EMPTY ) {
+      if ( check == value ) {
+        return false;
+      }
+      slot = ( slot + 1 ) & mask;
+    }
+    values[ slot ] = value;
+    size++;
+    if ( size > resizeThreshold ) {
+      resize();
+    }
+    return true;
+  }
+
+  public boolean contains( long value ) {
+    if ( value == EMPTY ) {
+      return containsEmpty;
+    }
+    int slot = hashCode( value ) & mask;
+    long check;
+    while ( ( check = values[ slot ] ) != EMPTY ) {
+      if ( check == value ) {
+        return true;
+      }
+      slot = ( slot + 1 ) & mask;
+    }
+    return false;
+  }
+
+  /**
+   * @return all the values of the set in no particular order
+   */
+  public long[] toArray() {
+    long[] result = new long[ size ];
+    int index = 0;
+    if ( containsEmpty ) {
+      result[ index++ ] = EMPTY;
+    }
+    for ( long value : values ) {
+      if ( value != EMPTY ) {
+        result[ index++ ] = value;
+      }
+    }
+    return result;
+  }
+
+  /**
+   * @return An estimate of the number of bytes of heap memory taken by this set
+   */
+  public long getMemoryUsage() {
+    return 8L * values.length;
+  }
+
+  /**
+   * Remove all values, the allocated memory is released.
+   */
+  public void clear() {
+    allocate( 16 );
+    size = 0;
+    containsEmpty = false;
+  }
+
+  private void allocate( int capacity ) {
+    values = new long[ capacity ];
+    mask = capacity - 1;
+    resizeThreshold = (int) ( capacity * STANDARD_LOAD_FACTOR );
+  }
+
+  private void resize() {
+    long[] oldValues = values;
+    allocate( oldValues.length * 2 );
+    for ( long value : oldValues ) {
+      if ( value != EMPTY ) {
+        int slot = hashCode( value ) & mask;
+        while ( values[ slot ] != EMPTY ) {
+          slot = ( slot + 1 ) & mask;
+        }
+        values[ slot ] = value;
+      }
+    }
+  }
+
+  public static int hashCode( long value ) {
+    value ^= value >>> 33;
+    value *= 0xff51afd7ed558ccdL;
+    value ^= value >>> 33;
+    value *= 0xc4ceb9fe1a85ec53L;
+    value ^= value >>> 33;
+    return (int) value;
+  }
+}
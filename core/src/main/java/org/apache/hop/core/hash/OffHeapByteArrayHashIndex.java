@@ -0,0 +1,253 @@
+/*! ******************************************************************************
+ *
+ * Hop : The Hop Orchestration Platform
+ *
+ * http://www.project-hop.org
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+
+package org.apache.hop.core.hash;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A hash index mapping serialized keys to serialized values (see
+ * {@link org.apache.hop.core.row.RowMeta#extractData(org.apache.hop.core.row.IRowMeta, Object[])}) which keeps the
+ * key and value bytes outside of the Java heap.<br>
+ * <br>
+ * The entries are appended to direct byte buffers of a fixed block size as [key length][value length][key][value].
+ * Only the table of entry addresses and hash codes lives on the heap, so a large lookup table doesn't put pressure on
+ * the garbage collector. The off-heap memory is bounded by -XX:MaxDirectMemorySize and given back when the index is
+ * closed and the buffers are collected.<br>
+ * <br>
+ * The index supports a single writer. Once it is fully built and safely published, any number of threads can read
+ * from it concurrently.
+ */
+public class OffHeapByteArrayHashIndex implements AutoCloseable {
+
+  public static final int DEFAULT_BLOCK_SIZE = 64 * 1024 * 1024;
+
+  private static final int STANDARD_INDEX_SIZE = 512;
+  private static final float STANDARD_LOAD_FACTOR = 0.75f;
+  private static final long EMPTY = -1L;
+  private static final int RECORD_HEADER_SIZE = 8;
+
+  private final int blockSize;
+  private final List<ByteBuffer> blocks;
+
+  /**
+   * For every slot in the table: the address of the entry (block number in the high and offset in the low 32 bits) or
+   * EMPTY.
+   */
+  private long[] addresses;
+  private int[] hashCodes;
+  private int mask;
+  private int resizeThreshold;
+  private int size;
+  private long bytesUsed;
+  private boolean closed;
+
+  public OffHeapByteArrayHashIndex() {
+    this( STANDARD_INDEX_SIZE, DEFAULT_BLOCK_SIZE );
+  }
+
+  /**
+   * Create an off-heap hash index
+   *
+   * @param size      the initial number of slots in the index
+   * @param blockSize the size of the direct buffers the entries are stored in. An entry larger than this gets a
+   *                  block of its own.
+   */
+  public OffHeapByteArrayHashIndex( int size, int blockSize ) {
+    if ( blockSize <= RECORD_HEADER_SIZE ) {
+      throw new IllegalArgumentException( "The block size needs to be larger than " + RECORD_HEADER_SIZE );
+    }
+    this.blockSize = blockSize;
+    this.blocks = new ArrayList<>();
+    int capacity = Integer.highestOneBit( Math.max( size, 16 ) - 1 ) << 1;
+    allocateTable( capacity );
+  }
+
+  private void allocateTable( int capacity ) {
+    addresses = new long[ capacity ];
+    Arrays.fill( addresses, EMPTY );
+    hashCodes = new int[ capacity ];
+    mask = capacity - 1;
+    resizeThreshold = (int) ( capacity * STANDARD_LOAD_FACTOR );
+  }
+
+  private static int hash( byte[] key ) {
+    int h = Arrays.hashCode( key );
+    return h ^ ( h >>> 16 );
+  }
+
+  /**
+   * Store a value for a key, replacing the previous value of the key if there is one.
+   *
+   * @param key   the serialized key
+   * @param value the serialized value
+   */
+  public void put( byte[] key, byte[] value ) {
+    checkOpen();
+    int hashCode = hash( key );
+    int slot = findSlot( key, hashCode );
+    if ( addresses[ slot ] == EMPTY ) {
+      if ( size >= resizeThreshold ) {
+        resize();
+        slot = findSlot( key, hashCode );
+      }
+      size++;
+    }
+    addresses[ slot ] = append( key, value );
+    hashCodes[ slot ] = hashCode;
+  }
+
+  /**
+   * Look up the value of a key
+   *
+   * @param key the serialized key
+   * @return a copy of the serialized value or null if the key isn't in the index
+   */
+  public byte[] get( byte[] key ) {
+    checkOpen();
+    int slot = findSlot( key, hash( key ) );
+    long address = addresses[ slot ];
+    if ( address == EMPTY ) {
+      return null;
+    }
+    ByteBuffer block = blocks.get( (int) ( address >>> 32 ) );
+    int offset = (int) address;
+    int keyLength = block.getInt( offset );
+    int valueLength = block.getInt( offset + 4 );
+    byte[] value = new byte[ valueLength ];
+    ByteBuffer view = block.duplicate();
+    view.position( offset + RECORD_HEADER_SIZE + keyLength );
+    view.get( value );
+    return value;
+  }
+
+  private int findSlot( byte[] key, int hashCode ) {
+    int slot = hashCode & mask;
+    while ( addresses[ slot ] != EMPTY ) {
+      if ( hashCodes[ slot ] == hashCode && keyEquals( addresses[ slot ], key ) ) {
+        return slot;
+      }
+      slot = ( slot + 1 ) & mask;
+    }
+    return slot;
+  }
+
+  private boolean keyEquals( long address, byte[] key ) {
+    ByteBuffer block = blocks.get( (int) ( address >>> 32 ) );
+    int offset = (int) address;
+    if ( block.getInt( offset ) != key.length ) {
+      return false;
+    }
+    int start = offset + RECORD_HEADER_SIZE;
+    for ( int i = 0; i < key.length; i++ ) {
+      if ( block.get( start + i ) != key[ i ] ) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private long append( byte[] key, byte[] value ) {
+    int recordSize = RECORD_HEADER_SIZE + key.length + value.length;
+    ByteBuffer block = blocks.isEmpty() ? null : blocks.get( blocks.size() - 1 );
+    if ( block == null || block.remaining() < recordSize ) {
+      block = ByteBuffer.allocateDirect( Math.max( blockSize, recordSize ) );
+      blocks.add( block );
+    }
+    int offset = block.position();
+    block.putInt( key.length );
+    block.putInt( value.length );
+    block.put( key );
+    block.put( value );
+    bytesUsed += recordSize;
+    return ( (long) ( blocks.size() - 1 ) << 32 ) | offset;
+  }
+
+  private void resize() {
+    long[] oldAddresses = addresses;
+    int[] oldHashCodes = hashCodes;
+    allocateTable( oldAddresses.length << 1 );
+    for ( int i = 0; i < oldAddresses.length; i++ ) {
+      if ( oldAddresses[ i ] != EMPTY ) {
+        int slot = oldHashCodes[ i ] & mask;
+        while ( addresses[ slot ] != EMPTY ) {
+          slot = ( slot + 1 ) & mask;
+        }
+        addresses[ slot ] = oldAddresses[ i ];
+        hashCodes[ slot ] = oldHashCodes[ i ];
+      }
+    }
+  }
+
+  private void checkOpen() {
+    if ( closed ) {
+      throw new IllegalStateException( "The off-heap hash index is closed" );
+    }
+  }
+
+  public int getSize() {
+    return size;
+  }
+
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  /**
+   * @return the number of off-heap bytes used by the entries, including the record headers
+   */
+  public long getBytesUsed() {
+    return bytesUsed;
+  }
+
+  /**
+   * @return the number of off-heap bytes allocated for the blocks
+   */
+  public long getBytesAllocated() {
+    long allocated = 0L;
+    for ( ByteBuffer block : blocks ) {
+      allocated += block.capacity();
+    }
+    return allocated;
+  }
+
+  public boolean isClosed() {
+    return closed;
+  }
+
+  /**
+   * Drop the references to the direct buffers so that their memory can be reclaimed.
+   */
+  @Override
+  public void close() {
+    closed = true;
+    blocks.clear();
+    addresses = new long[ 0 ];
+    hashCodes = new int[ 0 ];
+    size = 0;
+    bytesUsed = 0L;
+  }
+}
@@ -0,0 +1,195 @@
+/*! ******************************************************************************
+ *
+ * Hop : The Hop Orchestration Platform
+ *
+ * http://www.project-hop.org
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+
+package org.apache.hop.core.hash;
+
+import org.apache.hop.core.exception.HopException;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.BooleanSupplier;
+
+/**
+ * A lookup table which is built once and shared between the transform copies and pipelines running in the same JVM
+ * that attach to it under the same name.<br>
+ * <br>
+ * The first attached party to call {@link #startBuilding()} builds the table and hands it over with
+ * {@link #publish(Object)}, the others block in {@link #waitForTable(BooleanSupplier)} until it is available. The table
+ * must not be modified after it was published. Every party which attached calls {@link #release()} when it is done;
+ * when nobody is attached anymore the table is evicted from the registry and closed if it is {@link AutoCloseable}.
+ *
+ * @param <T> the type of the shared table
+ */
+public class SharedLookupTable<T> {
+
+  private static final long WAIT_INTERVAL_MS = 100L;
+
+  private static final Map<String, SharedLookupTable<?>> registry = new HashMap<>();
+
+  private final String name;
+  private int references;
+  private boolean building;
+  private boolean failed;
+  private T table;
+
+  private SharedLookupTable( String name ) {
+    this.name = name;
+  }
+
+  /**
+   * Attach to the shared table with the given name, registering it if nobody is attached to it yet.
+   *
+   * @param name the name of the shared table
+   * @return the shared table, call {@link #release()} when it is no longer needed
+   */
+  @SuppressWarnings( "unchecked" )
+  public static <T> SharedLookupTable<T> attach( String name ) {
+    synchronized ( registry ) {
+      SharedLookupTable<T> shared = (SharedLookupTable<T>) registry.get( name );
+      if ( shared == null ) {
+        shared = new SharedLookupTable<>( name );
+        registry.put( name, shared );
+      }
+      synchronized ( shared ) {
+        shared.references++;
+      }
+      return shared;
+    }
+  }
+
+  /**
+   * @param name the name of the shared table
+   * @return the number of parties attached to the shared table with the given name, 0 if it isn't registered
+   */
+  public static int getReferences( String name ) {
+    synchronized ( registry ) {
+      SharedLookupTable<?> shared = registry.get( name );
+      if ( shared == null ) {
+        return 0;
+      }
+      synchronized ( shared ) {
+        return shared.references;
+      }
+    }
+  }
+
+  /**
+   * Claim the building of the table.
+   *
+   * @return true if the caller has to build and publish (or fail) the table, false if the table is built by somebody
+   * else or is already available.
+   */
+  public synchronized boolean startBuilding() {
+    if ( building || table != null ) {
+      return false;
+    }
+    building = true;
+    failed = false;
+    return true;
+  }
+
+  /**
+   * Make the built table available to everybody attached.
+   *
+   * @param table the table, not to be modified anymore
+   */
+  public synchronized void publish( T table ) {
+    this.table = table;
+    building = false;
+    notifyAll();
+  }
+
+  /**
+   * Signal that the table could not be built. The parties waiting for it get an exception, the next party to call
+   * {@link #startBuilding()} can give it another try.
+   */
+  public synchronized void fail() {
+    building = false;
+    failed = true;
+    notifyAll();
+  }
+
+  /**
+   * Wait until the table is published.
+   *
+   * @param stopped tells if the caller was stopped in the meantime
+   * @return the table or null if the caller was stopped before the table became available
+   * @throws HopException if the building of the table failed
+   */
+  public synchronized T waitForTable( BooleanSupplier stopped ) throws HopException {
+    while ( table == null ) {
+      if ( failed ) {
+        throw new HopException( "The building of shared lookup table '" + name + "' failed" );
+      }
+      if ( stopped.getAsBoolean() ) {
+        return null;
+      }
+      try {
+        wait( WAIT_INTERVAL_MS );
+      } catch ( InterruptedException e ) {
+        Thread.currentThread().interrupt();
+        return null;
+      }
+    }
+    return table;
+  }
+
+  public synchronized T getTable() {
+    return table;
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  /**
+   * Detach from the shared table. The last party to detach evicts the table.
+   */
+  public void release() {
+    T evicted = null;
+    synchronized ( registry ) {
+      synchronized ( this ) {
+        if ( references == 0 ) {
+          return;
+        }
+        references--;
+        if ( references == 0 ) {
+          if ( registry.get( name ) == this ) {
+            registry.remove( name );
+          }
+          evicted = table;
+          table = null;
+          building = false;
+        }
+      }
+    }
+    if ( evicted instanceof AutoCloseable ) {
+      try {
+        ( (AutoCloseable) evicted ).close();
+      } catch ( Exception e ) {
+        // Nobody uses the table anymore, there's nothing left to do about it
+        //
+      }
+    }
+  }
+}
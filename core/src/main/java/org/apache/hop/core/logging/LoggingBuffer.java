@@ -26,26 +26,65 @@ import com.google.common.annotations.VisibleForTesting;
 import org.apache.hop.core.Const;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArrayList;
-import java.util.concurrent.locks.ReadWriteLock;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
 
 /**
- * This class keeps the last N lines in a buffer
+ * This class keeps the last N lines in a buffer.
+ * <p>
+ * The lines are kept in a ring buffer: appending a line and evicting the oldest one are constant time operations.
+ * Writers serialize on a lock that is only held for that constant time work, readers never lock. Every line is also
+ * linked into a per log channel index, so that looking up or removing the lines of a few log channels doesn't have
+ * to scan the whole buffer.
+ * <p>
+ * Lines removed from the middle of the buffer (for example with {@link #removeChannelFromBuffer(String)}) leave a
+ * hole. The limit on the number of lines only counts the lines that are left, the holes are compacted away once the
+ * ring runs out of slots. To keep that compaction rare the ring has room for twice the maximum number of lines.
  *
  * @author matt
  */
 public class LoggingBuffer {
+  private static final int INITIAL_UNLIMITED_CAPACITY = 1024;
+
   private String name;
 
-  private List<BufferLine> buffer;
-  private ReadWriteLock lock = new ReentrantReadWriteLock();
+  /**
+   * The ring, the line appended at position p lives in slot p % length. Replaced as a whole when resized.
+   */
+  private volatile AtomicReferenceArray<Entry> ring;
+
+  /**
+   * The position of the next line to append. Only modified while holding the lock, after the slot is written.
+   */
+  private volatile long head;
+
+  /**
+   * The position of the oldest line that isn't evicted yet. Only modified while holding the lock.
+   */
+  private volatile long tail;
+
+  private volatile int nrLines;
+
+  private final Map<String, ChannelLines> channels = new ConcurrentHashMap<>();
+
+  /**
+   * The lines without a log channel ID, these can't be put in the map.
+   */
+  private final ChannelLines noChannelLines = new ChannelLines( null );
+
+  private final Lock lock = new ReentrantLock();
 
   private int bufferSize;
 
@@ -57,10 +96,7 @@ public class LoggingBuffer {
 
   public LoggingBuffer( int bufferSize ) {
     this.bufferSize = bufferSize;
-    // The buffer overflow protection allows it to be overflowed for 1 item within a single thread.
-    // Considering a possible high contention, let's set it's max overflow size to be 10%.
-    // Anyway, even an overflow goes higher than 10%, it wouldn't cost us too much.
-    buffer = new ArrayList<>( (int) ( bufferSize * 1.1 ) );
+    ring = new AtomicReferenceArray<>( bufferSize > 0 ? ringCapacity( bufferSize ) : INITIAL_UNLIMITED_CAPACITY );
     layout = new HopLogLayout( true );
     eventListeners = new CopyOnWriteArrayList<>();
   }
@@ -69,16 +105,16 @@ public class LoggingBuffer {
    * @return the number (sequence, 1..N) of the last log line. If no records are present in the buffer, 0 is returned.
    */
   public int getLastBufferLineNr() {
-    lock.readLock().lock();
-    try {
-      if ( buffer.size() > 0 ) {
-        return buffer.get( buffer.size() - 1 ).getNr();
-      } else {
-        return 0;
+    long position = head;
+    AtomicReferenceArray<Entry> lines = ring;
+    long oldest = Math.max( tail, position - lines.length() );
+    while ( --position >= oldest ) {
+      Entry entry = getEntry( lines, position );
+      if ( entry != null ) {
+        return entry.line.getNr();
       }
-    } finally {
-      lock.readLock().unlock();
     }
+    return 0;
   }
 
   /**
@@ -90,19 +126,37 @@ public class LoggingBuffer {
    */
   public List<HopLoggingEvent> getLogBufferFromTo( List<String> channelId, boolean includeGeneral, int from,
                                                    int to ) {
-    lock.readLock().lock();
-    try {
-      Stream<BufferLine> bufferStream = buffer.stream().filter( line -> line.getNr() > from && line.getNr() <= to );
-      if ( channelId != null ) {
-        bufferStream = bufferStream.filter( line -> {
-          String logChannelId = getLogChId( line );
-          return includeGeneral ? isGeneral( logChannelId ) || channelId.contains( logChannelId ) : channelId.contains( logChannelId );
-        } );
+    if ( channelId == null ) {
+      List<HopLoggingEvent> events = new ArrayList<>();
+      forEachLine( line -> {
+        if ( line.getNr() > from && line.getNr() <= to ) {
+          events.add( line.getEvent() );
+        }
+      } );
+      return events;
+    }
+
+    // Only visit the lines of the requested channels, using the channel index
+    //
+    Set<String> channelIds = new HashSet<>( channelId );
+    List<BufferLine> lines = new ArrayList<>();
+    for ( ChannelLines channel : channels.values() ) {
+      if ( channelIds.contains( channel.logChannelId ) || ( includeGeneral && isGeneral( channel.logChannelId ) ) ) {
+        channel.collect( from, to, lines );
       }
-      return bufferStream.map( BufferLine::getEvent ).collect( Collectors.toList() );
-    } finally {
-      lock.readLock().unlock();
     }
+    if ( channelIds.contains( null ) ) {
+      noChannelLines.collect( from, to, lines );
+    }
+
+    // Lines of the different channels are interleaved in the buffer
+    //
+    lines.sort( Comparator.comparingInt( BufferLine::getNr ) );
+    List<HopLoggingEvent> events = new ArrayList<>( lines.size() );
+    for ( BufferLine line : lines ) {
+      events.add( line.getEvent() );
+    }
+    return events;
   }
 
   /**
@@ -152,14 +206,33 @@ public class LoggingBuffer {
 
   public void doAppend( HopLoggingEvent event ) {
     if ( event.getMessage() instanceof LogMessage ) {
-      lock.writeLock().lock();
+      String logChannelId = ( (LogMessage) event.getMessage() ).getLogChannelId();
+      lock.lock();
       try {
-        buffer.add( new BufferLine( event ) );
-        while ( bufferSize > 0 && buffer.size() > bufferSize ) {
-          buffer.remove( 0 );
+        if ( bufferSize > 0 ) {
+          while ( nrLines >= bufferSize ) {
+            evictOldest();
+          }
         }
+        AtomicReferenceArray<Entry> lines = ring;
+        if ( head - tail >= lines.length() ) {
+          // No free slot left: compact the holes away, growing the ring if the lines take more than half of it
+          //
+          int capacity = lines.length();
+          if ( bufferSize <= 0 && nrLines >= capacity / 2 ) {
+            capacity *= 2;
+          }
+          lines = resize( capacity );
+        }
+        // The line number is handed out while holding the lock so the numbers increase along the ring
+        //
+        Entry entry = new Entry( head, new BufferLine( event ) );
+        lines.set( (int) ( head % lines.length() ), entry );
+        getChannelLines( logChannelId ).append( entry );
+        nrLines++;
+        head++;
       } finally {
-        lock.writeLock().unlock();
+        lock.unlock();
       }
     }
   }
@@ -185,11 +258,18 @@ public class LoggingBuffer {
   }
 
   public void clear() {
-    lock.writeLock().lock();
+    lock.lock();
     try {
-      buffer.clear();
+      AtomicReferenceArray<Entry> lines = ring;
+      for ( int i = 0; i < lines.length(); i++ ) {
+        lines.set( i, null );
+      }
+      channels.clear();
+      noChannelLines.clear();
+      tail = head;
+      nrLines = 0;
     } finally {
-      lock.writeLock().unlock();
+      lock.unlock();
     }
   }
 
@@ -204,14 +284,27 @@ public class LoggingBuffer {
    * @param maxNrLines the maximum number of lines that this buffer should contain, 0 or lower means: no limit
    */
   public void setMaxNrLines( int maxNrLines ) {
-    this.bufferSize = maxNrLines;
+    lock.lock();
+    try {
+      this.bufferSize = maxNrLines;
+      if ( maxNrLines > 0 ) {
+        while ( nrLines > maxNrLines ) {
+          evictOldest();
+        }
+        resize( ringCapacity( maxNrLines ) );
+      } else if ( ring.length() < INITIAL_UNLIMITED_CAPACITY ) {
+        resize( INITIAL_UNLIMITED_CAPACITY );
+      }
+    } finally {
+      lock.unlock();
+    }
   }
 
   /**
    * @return the nrLines
    */
   public int getNrLines() {
-    return buffer.size();
+    return nrLines;
   }
 
   /**
@@ -220,24 +313,36 @@ public class LoggingBuffer {
    * @param id the id of the logging channel to remove
    */
   public void removeChannelFromBuffer( String id ) {
-    lock.writeLock().lock();
+    lock.lock();
     try {
-      buffer.removeIf( line -> id.equals( getLogChId( line ) ) );
+      ChannelLines channel = id == null ? noChannelLines : channels.remove( id );
+      if ( channel != null ) {
+        removeAll( channel );
+        skipHoles();
+      }
     } finally {
-      lock.writeLock().unlock();
+      lock.unlock();
     }
   }
 
   public int size() {
-    return buffer.size();
+    return nrLines;
   }
 
   public void removeGeneralMessages() {
-    lock.writeLock().lock();
+    lock.lock();
     try {
-      buffer.removeIf( line -> isGeneral( getLogChId( line ) ) );
+      Iterator<ChannelLines> iterator = channels.values().iterator();
+      while ( iterator.hasNext() ) {
+        ChannelLines channel = iterator.next();
+        if ( isGeneral( channel.logChannelId ) ) {
+          iterator.remove();
+          removeAll( channel );
+        }
+      }
+      skipHoles();
     } finally {
-      lock.writeLock().unlock();
+      lock.unlock();
     }
   }
 
@@ -251,7 +356,9 @@ public class LoggingBuffer {
   @Deprecated
   @VisibleForTesting
   public Iterator<BufferLine> getBufferIterator() {
-    return buffer.iterator();
+    List<BufferLine> lines = new ArrayList<>( nrLines );
+    forEachLine( lines::add );
+    return Collections.unmodifiableList( lines ).iterator();
   }
 
   /**
@@ -260,17 +367,12 @@ public class LoggingBuffer {
   @Deprecated
   public String dump() {
     StringBuilder buf = new StringBuilder( 50000 );
-    lock.readLock().lock();
-    try {
-      buffer.forEach( line -> {
-        LogMessage message = (LogMessage) line.getEvent().getMessage();
-        buf.append( message.getLogChannelId() ).append( "\t" )
-          .append( message.getSubject() ).append( "\n" );
-      } );
-      return buf.toString();
-    } finally {
-      lock.readLock().unlock();
-    }
+    forEachLine( line -> {
+      LogMessage message = (LogMessage) line.getEvent().getMessage();
+      buf.append( message.getLogChannelId() ).append( "\t" )
+        .append( message.getSubject() ).append( "\n" );
+    } );
+    return buf.toString();
   }
 
   /**
@@ -280,11 +382,23 @@ public class LoggingBuffer {
    */
   @Deprecated
   public void removeBufferLines( List<BufferLine> linesToRemove ) {
-    lock.writeLock().lock();
+    // Like before, we just need to remove the exact objects we were given
+    //
+    Set<BufferLine> lines = Collections.newSetFromMap( new IdentityHashMap<>() );
+    lines.addAll( linesToRemove );
+    lock.lock();
     try {
-      buffer.removeAll( linesToRemove );
+      AtomicReferenceArray<Entry> ringLines = ring;
+      for ( long position = tail; position < head; position++ ) {
+        Entry entry = getEntry( ringLines, position );
+        if ( entry != null && lines.contains( entry.line ) ) {
+          removeFromRing( ringLines, entry );
+          skipRemovedLines( entry.channel );
+        }
+      }
+      skipHoles();
     } finally {
-      lock.writeLock().unlock();
+      lock.unlock();
     }
   }
 
@@ -295,34 +409,28 @@ public class LoggingBuffer {
    */
   @Deprecated
   public List<BufferLine> getBufferLinesBefore( long minTimeBoundary ) {
-    lock.readLock().lock();
-    try {
-      return buffer.stream().filter( line -> line.getEvent().timeStamp < minTimeBoundary )
-        .collect( Collectors.toList() );
-    } finally {
-      lock.readLock().unlock();
-    }
+    List<BufferLine> lines = new ArrayList<>();
+    forEachLine( line -> {
+      if ( line.getEvent().timeStamp < minTimeBoundary ) {
+        lines.add( line );
+      }
+    } );
+    return lines;
   }
 
   public void removeBufferLinesBefore( long minTimeBoundary ) {
-    // Using HashSet even though BufferLine does not implement hashcode and equals,
-    // we just need to remove the exact objects we have found and put in the set.
-    Set<BufferLine> linesToRemove = new HashSet<>();
-    lock.writeLock().lock();
+    lock.lock();
     try {
-      for ( BufferLine bufferLine : buffer ) {
-        if ( bufferLine.getEvent().timeStamp < minTimeBoundary ) {
-          linesToRemove.add( bufferLine );
-        } else {
+      AtomicReferenceArray<Entry> lines = ring;
+      while ( tail < head ) {
+        Entry entry = getEntry( lines, tail );
+        if ( entry != null && entry.line.getEvent().timeStamp >= minTimeBoundary ) {
           break;
         }
+        evictOldest();
       }
-      // removeAll should run fast against a HashSet,
-      // since ArrayList.batchRemove check for each element of a collection given if it is in the ArrayList.
-      // Thus, removeAll should run in a linear time.
-      buffer.removeAll( linesToRemove );
     } finally {
-      lock.writeLock().unlock();
+      lock.unlock();
     }
   }
 
@@ -340,11 +448,240 @@ public class LoggingBuffer {
   }
 
   private boolean isGeneral( String logChannelId ) {
+    if ( logChannelId == null ) {
+      return false;
+    }
     ILoggingObject loggingObject = loggingRegistry.getLoggingObject( logChannelId );
     return loggingObject != null && LoggingObjectType.GENERAL.equals( loggingObject.getObjectType() );
   }
 
-  private static String getLogChId( BufferLine bufferLine ) {
-    return ( (LogMessage) bufferLine.getEvent().getMessage() ).getLogChannelId();
+  /**
+   * Visits the lines in the buffer from the oldest to the newest without locking. Lines appended or removed while
+   * doing so may or may not be seen.
+   */
+  private void forEachLine( Consumer<BufferLine> consumer ) {
+    long last = head;
+    AtomicReferenceArray<Entry> lines = ring;
+    for ( long position = Math.max( tail, last - lines.length() ); position < last; position++ ) {
+      Entry entry = getEntry( lines, position );
+      if ( entry != null ) {
+        consumer.accept( entry.line );
+      }
+    }
+  }
+
+  /**
+   * @return the live entry at the given position or null if it was removed, evicted or overwritten.
+   */
+  private static Entry getEntry( AtomicReferenceArray<Entry> lines, long position ) {
+    Entry entry = lines.get( (int) ( position % lines.length() ) );
+    if ( entry == null || entry.position != position || entry.removed ) {
+      return null;
+    }
+    return entry;
+  }
+
+  private ChannelLines getChannelLines( String logChannelId ) {
+    if ( logChannelId == null ) {
+      return noChannelLines;
+    }
+    return channels.computeIfAbsent( logChannelId, ChannelLines::new );
+  }
+
+  /**
+   * Drops the line at the tail of the ring. Must be called while holding the lock.
+   */
+  private void evictOldest() {
+    AtomicReferenceArray<Entry> lines = ring;
+    Entry entry = getEntry( lines, tail );
+    if ( entry != null ) {
+      lines.set( (int) ( tail % lines.length() ), null );
+      entry.removed = true;
+      nrLines--;
+
+      // This is the oldest line of its channel too, anything still linked in front of it was removed already
+      //
+      entry.channel.first = entry.nextInChannel;
+      skipRemovedLines( entry.channel );
+    }
+    tail++;
+  }
+
+  /**
+   * Moves the tail past the holes at the oldest end of the ring. Must be called while holding the lock.
+   */
+  private void skipHoles() {
+    AtomicReferenceArray<Entry> lines = ring;
+    while ( tail < head && getEntry( lines, tail ) == null ) {
+      tail++;
+    }
+  }
+
+  /**
+   * Unlinks the removed lines at the start of a channel and drops the channel from the index once it is empty.
+   */
+  private void skipRemovedLines( ChannelLines channel ) {
+    Entry first = channel.first;
+    while ( first != null && first.removed ) {
+      first = first.nextInChannel;
+    }
+    channel.first = first;
+    if ( first == null ) {
+      channel.last = null;
+      if ( channel != noChannelLines ) {
+        channels.remove( channel.logChannelId, channel );
+      }
+    }
+  }
+
+  /**
+   * Removes all the lines of a channel that is no longer in the channel index. Must be called while holding the lock.
+   */
+  private void removeAll( ChannelLines channel ) {
+    AtomicReferenceArray<Entry> lines = ring;
+    for ( Entry entry = channel.first; entry != null; entry = entry.nextInChannel ) {
+      if ( !entry.removed ) {
+        removeFromRing( lines, entry );
+      }
+    }
+    channel.clear();
+  }
+
+  /**
+   * Leaves a hole in the ring for the given live entry, the channel index skips it from now on.
+   */
+  private void removeFromRing( AtomicReferenceArray<Entry> lines, Entry entry ) {
+    entry.removed = true;
+    lines.compareAndSet( (int) ( entry.position % lines.length() ), entry, null );
+    nrLines--;
+  }
+
+  /**
+   * Moves the lines that are not evicted yet to a ring with the given capacity, leaving out the holes. The lines get
+   * new positions right before the head, so new entries and channel links are made for them. Must be called while
+   * holding the lock, the readers keep working with the ring and the entries they already had.
+   */
+  private AtomicReferenceArray<Entry> resize( int capacity ) {
+    AtomicReferenceArray<Entry> lines = ring;
+    AtomicReferenceArray<Entry> newLines = new AtomicReferenceArray<>( capacity );
+    Map<ChannelLines, Entry[]> newChannelLines = new IdentityHashMap<>();
+    int nrLive = 0;
+    for ( long position = tail; position < head; position++ ) {
+      if ( getEntry( lines, position ) != null ) {
+        nrLive++;
+      }
+    }
+    long newTail = head - nrLive;
+    long newPosition = newTail;
+    for ( long position = tail; position < head; position++ ) {
+      Entry entry = getEntry( lines, position );
+      if ( entry != null ) {
+        Entry newEntry = new Entry( newPosition, entry.line );
+        newEntry.channel = entry.channel;
+        newLines.set( (int) ( newPosition % capacity ), newEntry );
+        newPosition++;
+
+        // first and last entry of the channel
+        //
+        Entry[] firstLast = newChannelLines.computeIfAbsent( entry.channel, channel -> new Entry[ 2 ] );
+        if ( firstLast[ 1 ] == null ) {
+          firstLast[ 0 ] = newEntry;
+        } else {
+          firstLast[ 1 ].nextInChannel = newEntry;
+        }
+        firstLast[ 1 ] = newEntry;
+      }
+    }
+    ring = newLines;
+    tail = newTail;
+
+    // Only now hand the new entries to the channel index, readers following the old links still see the old lines
+    //
+    for ( ChannelLines channel : channels.values() ) {
+      relink( channel, newChannelLines.get( channel ) );
+    }
+    relink( noChannelLines, newChannelLines.get( noChannelLines ) );
+    return newLines;
+  }
+
+  private void relink( ChannelLines channel, Entry[] firstLast ) {
+    if ( firstLast == null ) {
+      channel.clear();
+      if ( channel != noChannelLines ) {
+        channels.remove( channel.logChannelId, channel );
+      }
+    } else {
+      channel.first = firstLast[ 0 ];
+      channel.last = firstLast[ 1 ];
+    }
+  }
+
+  /**
+   * @return the capacity of the ring for the given maximum number of lines
+   */
+  private static int ringCapacity( int maxNrLines ) {
+    return (int) Math.min( Integer.MAX_VALUE - 8, 2L * maxNrLines );
+  }
+
+  @VisibleForTesting
+  int getCapacity() {
+    return ring.length();
+  }
+
+  /**
+   * A line in the ring. Besides the line itself we keep its position to detect overwritten slots and a link to the
+   * next line of the same log channel.
+   */
+  private static final class Entry {
+    private final long position;
+    private final BufferLine line;
+    private ChannelLines channel;
+    private volatile Entry nextInChannel;
+    private volatile boolean removed;
+
+    private Entry( long position, BufferLine line ) {
+      this.position = position;
+      this.line = line;
+    }
+  }
+
+  /**
+   * The lines of a single log channel, oldest first, linked through the entries in the ring.
+   */
+  private static final class ChannelLines {
+    private final String logChannelId;
+    private volatile Entry first;
+    private Entry last;
+
+    private ChannelLines( String logChannelId ) {
+      this.logChannelId = logChannelId;
+    }
+
+    private void append( Entry entry ) {
+      entry.channel = this;
+      if ( last == null ) {
+        first = entry;
+      } else {
+        last.nextInChannel = entry;
+      }
+      last = entry;
+    }
+
+    private void collect( int from, int to, List<BufferLine> lines ) {
+      for ( Entry entry = first; entry != null; entry = entry.nextInChannel ) {
+        int nr = entry.line.getNr();
+        if ( nr > to ) {
+          break;
+        }
+        if ( nr > from && !entry.removed ) {
+          lines.add( entry.line );
+        }
+      }
+    }
+
+    private void clear() {
+      first = null;
+      last = null;
+    }
   }
 }
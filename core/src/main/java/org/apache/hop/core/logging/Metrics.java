@@ -94,6 +94,13 @@ public class Metrics implements IMetrics {
   public static Metrics METRIC_DATABASE_GET_ROW_MAX_TIME = new Metrics(
     MetricsSnapshotType.MAX, "METRIC_DATABASE_GET_ROW_MAX_TIME", "Get row from DB (max time)" );
 
+  public static Metrics METRIC_DATABASE_POOL_BORROW_COUNT = new Metrics(
+    MetricsSnapshotType.COUNT, "METRIC_DATABASE_POOL_BORROW_COUNT", "Borrow connection from pool (count)" );
+  public static Metrics METRIC_DATABASE_POOL_BORROW_MAX_TIME = new Metrics(
+    MetricsSnapshotType.MAX, "METRIC_DATABASE_POOL_BORROW_MAX_TIME", "Borrow connection from pool (max time)" );
+  public static Metrics METRIC_DATABASE_POOL_ACTIVE_MAX = new Metrics(
+    MetricsSnapshotType.MAX, "METRIC_DATABASE_POOL_ACTIVE_MAX", "Connections in use from pool (max)" );
+
   // Plugin registry...
   //
   public static Metrics METRIC_PLUGIN_REGISTRY_PLUGIN_REGISTRATION_START = new Metrics(
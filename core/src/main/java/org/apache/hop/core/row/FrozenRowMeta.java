@@ -0,0 +1,339 @@
+/*! ******************************************************************************
+ *
+ * Hop : The Hop Orchestration Platform
+ *
+ * http://www.project-hop.org
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+
+package org.apache.hop.core.row;
+
+import org.apache.hop.core.exception.HopEofException;
+import org.apache.hop.core.exception.HopFileException;
+import org.apache.hop.core.exception.HopValueException;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An immutable, array backed row metadata. Since the list of values can't change, none of the read operations need
+ * to take a lock and the name to index lookups are computed up front.<br>
+ * Any attempt to change the list of values throws an {@link UnsupportedOperationException}. Use {@link #clone()} to
+ * get a regular (mutable) copy.<br>
+ * Please note that the value metadata objects themselves are shared with the row metadata this instance was created
+ * from.
+ */
+public class FrozenRowMeta extends RowMeta {
+
+  private final IValueMeta[] valueMetas;
+  private final List<IValueMeta> valueMetaListView;
+  private final Map<String, Integer> indexes;
+  private final String[] fieldNames;
+  private final int[] realCloneIndexes;
+
+  public FrozenRowMeta( IRowMeta rowMeta ) {
+    super();
+
+    List<IValueMeta> list = rowMeta.getValueMetaList();
+    valueMetas = list.toArray( new IValueMeta[ list.size() ] );
+    valueMetaListView = Collections.unmodifiableList( Arrays.asList( valueMetas ) );
+
+    indexes = new HashMap<>();
+    fieldNames = new String[ valueMetas.length ];
+    List<Integer> realClones = new ArrayList<>();
+    for ( int i = 0; i < valueMetas.length; i++ ) {
+      String name = valueMetas[ i ].getName();
+      fieldNames[ i ] = name == null ? "" : name;
+      if ( name != null ) {
+        // Like RowMeta.indexOfValue(): the first field with a matching name wins
+        //
+        indexes.putIfAbsent( foldCase( name ), i );
+      }
+      if ( valueMetas[ i ].requiresRealClone() ) {
+        realClones.add( i );
+      }
+    }
+    realCloneIndexes = new int[ realClones.size() ];
+    for ( int i = 0; i < realCloneIndexes.length; i++ ) {
+      realCloneIndexes[ i ] = realClones.get( i );
+    }
+
+    // The inherited methods (clone(), toString(), getXml(), ...) work on this list
+    //
+    this.valueMetaList = valueMetaListView;
+    this.needRealClone = null;
+  }
+
+  @Override
+  public IRowMeta asImmutable() {
+    return this;
+  }
+
+  @Override
+  public FrozenRowMeta freeze() {
+    return this;
+  }
+
+  @Override
+  public boolean isImmutable() {
+    return true;
+  }
+
+  @Override
+  public List<IValueMeta> getValueMetaList() {
+    return valueMetaListView;
+  }
+
+  @Override
+  public int size() {
+    return valueMetas.length;
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return valueMetas.length == 0;
+  }
+
+  @Override
+  public IValueMeta getValueMeta( int index ) {
+    if ( index >= 0 && index < valueMetas.length ) {
+      return valueMetas[ index ];
+    }
+    return null;
+  }
+
+  @Override
+  public int indexOfValue( String valueName ) {
+    if ( valueName == null ) {
+      return -1;
+    }
+    Integer index = indexes.get( foldCase( valueName ) );
+    return index == null ? -1 : index;
+  }
+
+  /**
+   * Folds the case of a field name the way {@link String#equalsIgnoreCase(String)} compares it, whatever the default
+   * locale: two names are equal ignoring case if and only if their folded forms are equal.
+   */
+  private static String foldCase( String name ) {
+    char[] chars = name.toCharArray();
+    for ( int i = 0; i < chars.length; i++ ) {
+      chars[ i ] = Character.toLowerCase( Character.toUpperCase( chars[ i ] ) );
+    }
+    return new String( chars );
+  }
+
+  @Override
+  public IValueMeta searchValueMeta( String valueName ) {
+    int index = indexOfValue( valueName );
+    return index < 0 ? null : valueMetas[ index ];
+  }
+
+  @Override
+  public String[] getFieldNames() {
+    return fieldNames.clone();
+  }
+
+  @Override
+  public Object[] cloneRow( Object[] objects, Object[] newObjects ) throws HopValueException {
+    for ( int i : realCloneIndexes ) {
+      newObjects[ i ] = valueMetas[ i ].cloneValueData( objects[ i ] );
+    }
+    return newObjects;
+  }
+
+  @Override
+  public String getString( Object[] row ) throws HopValueException {
+    StringBuilder buffer = new StringBuilder();
+    for ( int i = 0; i < valueMetas.length; i++ ) {
+      if ( i > 0 ) {
+        buffer.append( ", " );
+      }
+      buffer.append( "[" );
+      buffer.append( valueMetas[ i ].getString( row[ i ] ) );
+      buffer.append( "]" );
+    }
+    return buffer.toString();
+  }
+
+  @Override
+  public void writeData( DataOutputStream outputStream, Object[] data ) throws HopFileException {
+    // Write all values in the row
+    for ( int i = 0; i < valueMetas.length; i++ ) {
+      valueMetas[ i ].writeData( outputStream, data[ i ] );
+    }
+
+    // If there are 0 values in the row, we write a marker flag to be able to detect an EOF on the other end (sockets
+    // etc)
+    //
+    if ( valueMetas.length == 0 ) {
+      try {
+        outputStream.writeBoolean( true );
+      } catch ( IOException e ) {
+        throw new HopFileException( "Error writing marker flag", e );
+      }
+    }
+  }
+
+  @Override
+  public Object[] readData( DataInputStream inputStream ) throws HopFileException, SocketTimeoutException {
+    Object[] data = new Object[ valueMetas.length ];
+    for ( int i = 0; i < valueMetas.length; i++ ) {
+      data[ i ] = valueMetas[ i ].readData( inputStream );
+    }
+    if ( valueMetas.length == 0 ) {
+      try {
+        inputStream.readBoolean();
+      } catch ( EOFException e ) {
+        throw new HopEofException( e );
+      } catch ( SocketTimeoutException e ) {
+        throw e;
+      } catch ( IOException e ) {
+        throw new HopFileException( toString() + " : Unable to read the marker flag data from input stream", e );
+      }
+    }
+    return data;
+  }
+
+  @Override
+  public int compare( Object[] rowData1, Object[] rowData2, int[] fieldnrs ) throws HopValueException {
+    for ( int fieldnr : fieldnrs ) {
+      int cmp = valueMetas[ fieldnr ].compare( rowData1[ fieldnr ], rowData2[ fieldnr ] );
+      if ( cmp != 0 ) {
+        return cmp;
+      }
+    }
+    return 0;
+  }
+
+  @Override
+  public boolean equals( Object[] rowData1, Object[] rowData2, int[] fieldnrs ) throws HopValueException {
+    return compare( rowData1, rowData2, fieldnrs ) == 0;
+  }
+
+  @Override
+  public int compare( Object[] rowData1, Object[] rowData2, int[] fieldnrs1, int[] fieldnrs2 )
+    throws HopValueException {
+    int len = Math.min( fieldnrs1.length, fieldnrs2.length );
+    for ( int i = 0; i < len; i++ ) {
+      int cmp = valueMetas[ fieldnrs1[ i ] ].compare( rowData1[ fieldnrs1[ i ] ], rowData2[ fieldnrs2[ i ] ] );
+      if ( cmp != 0 ) {
+        return cmp;
+      }
+    }
+    return 0;
+  }
+
+  @Override
+  public int compare( Object[] rowData1, IRowMeta rowMeta2, Object[] rowData2, int[] fieldnrs1,
+                      int[] fieldnrs2 ) throws HopValueException {
+    int len = Math.min( fieldnrs1.length, fieldnrs2.length );
+    for ( int i = 0; i < len; i++ ) {
+      IValueMeta valueMeta2 = rowMeta2.getValueMeta( fieldnrs2[ i ] );
+      int cmp = valueMetas[ fieldnrs1[ i ] ].compare( rowData1[ fieldnrs1[ i ] ], valueMeta2, rowData2[ fieldnrs2[ i ] ] );
+      if ( cmp != 0 ) {
+        return cmp;
+      }
+    }
+    return 0;
+  }
+
+  @Override
+  public int compare( Object[] rowData1, Object[] rowData2 ) throws HopValueException {
+    for ( int i = 0; i < valueMetas.length; i++ ) {
+      int cmp = valueMetas[ i ].compare( rowData1[ i ], rowData2[ i ] );
+      if ( cmp != 0 ) {
+        return cmp;
+      }
+    }
+    return 0;
+  }
+
+  @Override
+  public int convertedValuesHashCode( Object[] rowData ) throws HopValueException {
+    if ( rowData == null ) {
+      return 0;
+    }
+    int result = 1;
+    for ( int i = 0; i < rowData.length; i++ ) {
+      result = 31 * result + valueMetas[ i ].hashCode();
+    }
+    return result;
+  }
+
+  // The list of values can't be changed...
+  //
+
+  @Override
+  public void setValueMetaList( List<IValueMeta> valueMetaList ) {
+    throw immutable();
+  }
+
+  @Override
+  public void addValueMeta( IValueMeta meta ) {
+    throw immutable();
+  }
+
+  @Override
+  public void addValueMeta( int index, IValueMeta meta ) {
+    throw immutable();
+  }
+
+  @Override
+  public void setValueMeta( int index, IValueMeta valueMeta ) {
+    throw immutable();
+  }
+
+  @Override
+  public void addRowMeta( IRowMeta rowMeta ) {
+    throw immutable();
+  }
+
+  @Override
+  public void mergeRowMeta( IRowMeta r, String originTransformName ) {
+    throw immutable();
+  }
+
+  @Override
+  public void clear() {
+    throw immutable();
+  }
+
+  @Override
+  public void removeValueMeta( String valueName ) throws HopValueException {
+    throw immutable();
+  }
+
+  @Override
+  public void removeValueMeta( int index ) {
+    throw immutable();
+  }
+
+  private UnsupportedOperationException immutable() {
+    return new UnsupportedOperationException( "This row metadata is frozen and can't be modified, use clone() to get a modifiable copy" );
+  }
+}
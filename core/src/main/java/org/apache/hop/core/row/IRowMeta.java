@@ -250,6 +250,25 @@ public interface IRowMeta extends Cloneable {
    */
   IRowMeta cloneToType( int targetType ) throws HopValueException;
 
+  /**
+   * Get an immutable, lock-free view of this row metadata. The view shares the value metadata objects with this row
+   * metadata but any attempt to change the list of values (add, remove, replace, ...) fails with an
+   * {@link UnsupportedOperationException}. Changes made to this row metadata afterwards are not reflected in the
+   * view.
+   *
+   * @return an immutable view of this row metadata
+   */
+  default IRowMeta asImmutable() {
+    return new FrozenRowMeta( this );
+  }
+
+  /**
+   * @return true if the list of values of this row metadata can't be changed
+   */
+  default boolean isImmutable() {
+    return false;
+  }
+
   /**
    * Gets the string.
    *
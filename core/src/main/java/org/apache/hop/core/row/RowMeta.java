@@ -118,6 +118,21 @@ public class RowMeta implements IRowMeta {
     }
   }
 
+  /**
+   * Creates an immutable, array backed copy of the list of values of this row metadata. Reading from the frozen row
+   * metadata doesn't require any locking which makes it suitable for use on the data path of a transform.
+   *
+   * @return the frozen row metadata
+   */
+  public FrozenRowMeta freeze() {
+    return new FrozenRowMeta( this );
+  }
+
+  @Override
+  public IRowMeta asImmutable() {
+    return freeze();
+  }
+
   @Override
   public String toString() {
     StringBuilder buffer = new StringBuilder();
@@ -0,0 +1,291 @@
+/*! ******************************************************************************
+ *
+ * Hop : The Hop Orchestration Platform
+ *
+ * Copyright (C) 2002-2018 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+
+package org.apache.hop.core.row.value;
+
+import java.text.DecimalFormat;
+import java.text.NumberFormat;
+import java.text.SimpleDateFormat;
+import java.time.DateTimeException;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.zone.ZoneRules;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.GregorianCalendar;
+import java.util.List;
+import java.util.TimeZone;
+
+/**
+ * An immutable, thread-safe parser for the common numeric date masks like <code>yyyy/MM/dd HH:mm:ss.SSS</code>,
+ * <code>yyyy-MM-dd</code> or <code>dd/MM/yyyy</code>. It is compiled from a {@link SimpleDateFormat} and parses
+ * exactly like it for strings which follow the mask to the letter: every field has the width of the mask, all values
+ * are within range, the local time exists only once in the time zone and its offset is the same for java.time and
+ * {@link TimeZone}.
+ * <p>
+ * For every other string {@link #parse(String)} returns null and the caller is expected to fall back to the
+ * {@link SimpleDateFormat}. That way lenient parsing, unusual input and error messages stay the same.
+ */
+public final class FastDateParser {
+
+  private static final int YEAR = 0;
+  private static final int MONTH = 1;
+  private static final int DAY = 2;
+  private static final int HOUR = 3;
+  private static final int MINUTE = 4;
+  private static final int SECOND = 5;
+  private static final int MILLISECOND = 6;
+  private static final int LITERAL = -1;
+
+  /**
+   * The default change from the Julian to the Gregorian calendar (October 15, 1582)
+   */
+  private static final long GREGORIAN_CHANGE = -12219292800000L;
+
+  /**
+   * Before this year we leave everything to SimpleDateFormat: the Julian/Gregorian calendar and the local mean time
+   * offsets of java.time don't match those of TimeZone
+   */
+  private static final int MIN_YEAR = 1900;
+
+  private static final FastDateParser UNSUPPORTED = new FastDateParser( null, null, null, null, null );
+
+  private final int[] fields;
+  private final int[] widths;
+  private final char[] literals;
+  private final ZoneRules zoneRules;
+  private final TimeZone timeZone;
+
+  private FastDateParser( int[] fields, int[] widths, char[] literals, ZoneRules zoneRules, TimeZone timeZone ) {
+    this.fields = fields;
+    this.widths = widths;
+    this.literals = literals;
+    this.zoneRules = zoneRules;
+    this.timeZone = timeZone;
+  }
+
+  /**
+   * Compile a parser for the pattern, time zone and calendar of the given date format.
+   *
+   * @param format the date format to mimic
+   * @return the parser, never null. If the format isn't supported, the parser doesn't parse anything.
+   */
+  public static FastDateParser compile( SimpleDateFormat format ) {
+    // Subclasses like SimpleTimestampFormat parse differently
+    //
+    if ( format == null || format.getClass() != SimpleDateFormat.class ) {
+      return UNSUPPORTED;
+    }
+
+    // Other calendars (Buddhist, Japanese imperial) and non ASCII digits are left to SimpleDateFormat
+    //
+    Calendar calendar = format.getCalendar();
+    if ( calendar.getClass() != GregorianCalendar.class
+      || ( (GregorianCalendar) calendar ).getGregorianChange().getTime() != GREGORIAN_CHANGE ) {
+      return UNSUPPORTED;
+    }
+    NumberFormat numberFormat = format.getNumberFormat();
+    if ( !( numberFormat instanceof DecimalFormat )
+      || ( (DecimalFormat) numberFormat ).getDecimalFormatSymbols().getZeroDigit() != '0' ) {
+      return UNSUPPORTED;
+    }
+
+    TimeZone timeZone = (TimeZone) format.getTimeZone().clone();
+    ZoneRules zoneRules;
+    try {
+      zoneRules = timeZone.toZoneId().getRules();
+    } catch ( DateTimeException e ) {
+      return UNSUPPORTED;
+    }
+
+    List<int[]> tokens = new ArrayList<>();
+    boolean[] seen = new boolean[ MILLISECOND + 1 ];
+    String pattern = format.toPattern();
+    int index = 0;
+    while ( index < pattern.length() ) {
+      char c = pattern.charAt( index );
+      if ( c == '\'' ) {
+        // A quoted literal, like 'T'. Escaped quotes aren't supported.
+        //
+        int end = pattern.indexOf( '\'', index + 1 );
+        if ( end < 0 || end == index + 1 ) {
+          return UNSUPPORTED;
+        }
+        for ( int i = index + 1; i < end; i++ ) {
+          tokens.add( new int[] { LITERAL, pattern.charAt( i ) } );
+        }
+        index = end + 1;
+      } else if ( ( c >= 'a' && c <= 'z' ) || ( c >= 'A' && c <= 'Z' ) ) {
+        int end = index;
+        while ( end < pattern.length() && pattern.charAt( end ) == c ) {
+          end++;
+        }
+        int field = getField( c, end - index );
+        if ( field == LITERAL || seen[ field ] ) {
+          return UNSUPPORTED;
+        }
+        seen[ field ] = true;
+        tokens.add( new int[] { field, end - index } );
+        index = end;
+      } else {
+        tokens.add( new int[] { LITERAL, c } );
+        index++;
+      }
+    }
+    if ( !seen[ YEAR ] || !seen[ MONTH ] || !seen[ DAY ] ) {
+      return UNSUPPORTED;
+    }
+
+    int[] fields = new int[ tokens.size() ];
+    int[] widths = new int[ tokens.size() ];
+    char[] literals = new char[ tokens.size() ];
+    for ( int i = 0; i < tokens.size(); i++ ) {
+      int[] token = tokens.get( i );
+      fields[ i ] = token[ 0 ];
+      if ( token[ 0 ] == LITERAL ) {
+        literals[ i ] = (char) token[ 1 ];
+      } else {
+        widths[ i ] = token[ 1 ];
+      }
+    }
+    return new FastDateParser( fields, widths, literals, zoneRules, timeZone );
+  }
+
+  private static int getField( char letter, int count ) {
+    switch ( letter ) {
+      case 'y':
+        return count == 4 ? YEAR : LITERAL;
+      case 'M':
+        return count == 2 ? MONTH : LITERAL;
+      case 'd':
+        return count == 2 ? DAY : LITERAL;
+      case 'H':
+        return count == 2 ? HOUR : LITERAL;
+      case 'm':
+        return count == 2 ? MINUTE : LITERAL;
+      case 's':
+        return count == 2 ? SECOND : LITERAL;
+      case 'S':
+        return count == 3 ? MILLISECOND : LITERAL;
+      default:
+        return LITERAL;
+    }
+  }
+
+  /**
+   * @return true if this parser can parse anything at all
+   */
+  public boolean isSupported() {
+    return zoneRules != null;
+  }
+
+  /**
+   * Parse a string which follows the mask exactly.
+   *
+   * @param string the string to parse
+   * @return the date or null if the string needs to be parsed by the original date format
+   */
+  public Date parse( String string ) {
+    if ( zoneRules == null ) {
+      return null;
+    }
+
+    int[] values = new int[] { 0, 1, 1, 0, 0, 0, 0 };
+    int length = string.length();
+    int position = 0;
+    for ( int i = 0; i < fields.length; i++ ) {
+      if ( fields[ i ] == LITERAL ) {
+        if ( position >= length || string.charAt( position ) != literals[ i ] ) {
+          return null;
+        }
+        position++;
+      } else {
+        int end = position + widths[ i ];
+        if ( end > length ) {
+          return null;
+        }
+        int value = 0;
+        for ( ; position < end; position++ ) {
+          char c = string.charAt( position );
+          if ( c < '0' || c > '9' ) {
+            return null;
+          }
+          value = value * 10 + c - '0';
+        }
+        values[ fields[ i ] ] = value;
+      }
+    }
+
+    // SimpleDateFormat keeps on reading digits for the last field, it ignores anything else.
+    //
+    if ( fields[ fields.length - 1 ] != LITERAL && position < length ) {
+      char c = string.charAt( position );
+      if ( c >= '0' && c <= '9' ) {
+        return null;
+      }
+    }
+
+    int year = values[ YEAR ];
+    int month = values[ MONTH ];
+    int day = values[ DAY ];
+    if ( year < MIN_YEAR || month < 1 || month > 12 || day < 1 || day > lengthOfMonth( year, month )
+      || values[ HOUR ] > 23 || values[ MINUTE ] > 59 || values[ SECOND ] > 59 ) {
+      return null;
+    }
+
+    LocalDateTime localDateTime =
+      LocalDateTime.of( year, month, day, values[ HOUR ], values[ MINUTE ], values[ SECOND ] );
+
+    // In a gap or an overlap (daylight saving time changes) we let the calendar decide
+    //
+    List<ZoneOffset> offsets = zoneRules.getValidOffsets( localDateTime );
+    if ( offsets.size() != 1 ) {
+      return null;
+    }
+
+    // The rules of TimeZone, used by SimpleDateFormat, don't always agree with those of java.time (far future
+    // transitions, custom time zones). If they don't give the same offset we let the calendar decide as well.
+    //
+    ZoneOffset offset = offsets.get( 0 );
+    long time = localDateTime.toEpochSecond( offset ) * 1000L;
+    if ( timeZone.getOffset( time ) != offset.getTotalSeconds() * 1000 ) {
+      return null;
+    }
+    return new Date( time + values[ MILLISECOND ] );
+  }
+
+  private static int lengthOfMonth( int year, int month ) {
+    switch ( month ) {
+      case 2:
+        return ( year % 4 == 0 && ( year % 100 != 0 || year % 400 == 0 ) ) ? 29 : 28;
+      case 4:
+      case 6:
+      case 9:
+      case 11:
+        return 30;
+      default:
+        return 31;
+    }
+  }
+}
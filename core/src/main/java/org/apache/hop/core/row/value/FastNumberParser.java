@@ -0,0 +1,150 @@
+/*! ******************************************************************************
+ *
+ * Hop : The Hop Orchestration Platform
+ *
+ * Copyright (C) 2002-2018 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+
+package org.apache.hop.core.row.value;
+
+import java.text.DecimalFormat;
+import java.text.DecimalFormatSymbols;
+
+/**
+ * An immutable, thread-safe parser for plain numbers like <code>-1234</code> or <code>12.75</code>. It is compiled
+ * from a {@link DecimalFormat} and gives the same result as the decimal format for strings which only consist of an
+ * optional minus sign, digits and an optional decimal separator.
+ * <p>
+ * For every other string (grouping symbols, currency, exponents, trailing characters, ...) the parse methods return
+ * null and the caller is expected to fall back to the {@link DecimalFormat}. That way lenient parsing, see
+ * {@link org.apache.hop.core.Const#HOP_LENIENT_STRING_TO_NUMBER_CONVERSION}, and error messages stay the same.
+ */
+public final class FastNumberParser {
+
+  /**
+   * Up to this number of digits the value always fits in a long and the digits are never truncated.
+   */
+  private static final int MAX_DIGITS = 18;
+
+  private static final FastNumberParser UNSUPPORTED = new FastNumberParser( false, false, '.' );
+
+  private final boolean supported;
+  private final boolean decimalsSupported;
+  private final char decimalSeparator;
+
+  private FastNumberParser( boolean supported, boolean decimalsSupported, char decimalSeparator ) {
+    this.supported = supported;
+    this.decimalsSupported = decimalsSupported;
+    this.decimalSeparator = decimalSeparator;
+  }
+
+  /**
+   * Compile a parser for the given decimal format.
+   *
+   * @param format the decimal format to mimic
+   * @return the parser, never null. If the format isn't supported, the parser doesn't parse anything.
+   */
+  public static FastNumberParser compile( DecimalFormat format ) {
+    if ( format == null ) {
+      return UNSUPPORTED;
+    }
+
+    // No currency, percentages or special signs
+    //
+    if ( !format.getPositivePrefix().isEmpty() || !format.getPositiveSuffix().isEmpty()
+      || !"-".equals( format.getNegativePrefix() ) || !format.getNegativeSuffix().isEmpty()
+      || format.getMultiplier() != 1 ) {
+      return UNSUPPORTED;
+    }
+
+    DecimalFormatSymbols symbols = format.getDecimalFormatSymbols();
+    char decimalSeparator = symbols.getDecimalSeparator();
+    if ( symbols.getZeroDigit() != '0' || ( decimalSeparator >= '0' && decimalSeparator <= '9' )
+      || decimalSeparator == '-' ) {
+      return UNSUPPORTED;
+    }
+
+    return new FastNumberParser( true, !format.isParseIntegerOnly(), decimalSeparator );
+  }
+
+  /**
+   * @return true if this parser can parse anything at all
+   */
+  public boolean isSupported() {
+    return supported;
+  }
+
+  /**
+   * Parse a plain number with an optional decimal separator.
+   *
+   * @param string the string to parse
+   * @return the number or null if the string needs to be parsed by the original decimal format
+   */
+  public Double parseNumber( String string ) {
+    if ( !decimalsSupported ) {
+      return null;
+    }
+    int length = string.length();
+    int position = string.startsWith( "-" ) ? 1 : 0;
+    int digits = 0;
+    int separator = -1;
+    for ( ; position < length; position++ ) {
+      char c = string.charAt( position );
+      if ( c >= '0' && c <= '9' ) {
+        digits++;
+      } else if ( c == decimalSeparator && separator < 0 ) {
+        separator = position;
+      } else {
+        return null;
+      }
+    }
+    if ( digits == 0 || digits > MAX_DIGITS ) {
+      return null;
+    }
+    if ( separator >= 0 && decimalSeparator != '.' ) {
+      string = string.replace( decimalSeparator, '.' );
+    }
+    return Double.parseDouble( string );
+  }
+
+  /**
+   * Parse a plain integer.
+   *
+   * @param string the string to parse
+   * @return the integer or null if the string needs to be parsed by the original decimal format
+   */
+  public Long parseInteger( String string ) {
+    if ( !supported ) {
+      return null;
+    }
+    int length = string.length();
+    int position = string.startsWith( "-" ) ? 1 : 0;
+    int digits = length - position;
+    if ( digits == 0 || digits > MAX_DIGITS ) {
+      return null;
+    }
+    for ( ; position < length; position++ ) {
+      char c = string.charAt( position );
+      if ( c < '0' || c > '9' ) {
+        return null;
+      }
+    }
+    return Long.parseLong( string );
+  }
+}
@@ -156,6 +156,15 @@ public class ValueMetaBase implements IValueMeta {
   protected DecimalFormat decimalFormat;
   protected boolean decimalFormatChanged;
 
+  /**
+   * Immutable parsers for the common cases, compiled from the date and decimal formats above. They allow for string
+   * conversion without locking the value metadata.
+   */
+  private volatile FastDateParser fastDateParser;
+  private SimpleDateFormat fastDateParserFormat;
+  private volatile FastNumberParser fastNumberParser;
+  private DecimalFormat fastNumberParserFormat;
+
   protected IValueMeta storageMetadata;
   protected boolean identicalFormat;
 
@@ -417,6 +426,8 @@ public class ValueMetaBase implements IValueMeta {
       ValueMetaBase valueMeta = (ValueMetaBase) super.clone();
       valueMeta.dateFormat = null;
       valueMeta.decimalFormat = null;
+      valueMeta.fastDateParser = null;
+      valueMeta.fastNumberParser = null;
       if ( dateFormatLocale != null ) {
         valueMeta.dateFormatLocale = (Locale) dateFormatLocale.clone();
       }
@@ -862,7 +873,7 @@ public class ValueMetaBase implements IValueMeta {
     return compatibleDateFormat.format( date );
   }
 
-  public synchronized Date convertStringToDate( String string ) throws HopValueException {
+  public Date convertStringToDate( String string ) throws HopValueException {
     string = Const.trimToType( string, getTrimType() ); // see if trimming needs
     // to be performed before
     // conversion
@@ -871,6 +882,19 @@ public class ValueMetaBase implements IValueMeta {
       return null;
     }
 
+    // The common case doesn't need the lock on the shared date format
+    //
+    FastDateParser parser = getFastDateParser();
+    if ( parser != null ) {
+      Date date = parser.parse( string );
+      if ( date != null ) {
+        return date;
+      }
+    }
+    return parseStringToDate( string );
+  }
+
+  private synchronized Date parseStringToDate( String string ) throws HopValueException {
     try {
       ParsePosition pp = new ParsePosition( 0 );
       Date result = getDateFormat( TYPE_DATE ).parse( string, pp );
@@ -958,7 +982,7 @@ public class ValueMetaBase implements IValueMeta {
     return Double.toString( number );
   }
 
-  protected synchronized Double convertStringToNumber( String string ) throws HopValueException {
+  protected Double convertStringToNumber( String string ) throws HopValueException {
     string = Const.trimToType( string, getTrimType() ); // see if trimming needs
     // to be performed before
     // conversion
@@ -967,6 +991,19 @@ public class ValueMetaBase implements IValueMeta {
       return null;
     }
 
+    // The common case doesn't need the lock on the shared decimal format
+    //
+    FastNumberParser parser = getFastNumberParser();
+    if ( parser != null ) {
+      Double number = parser.parseNumber( string );
+      if ( number != null ) {
+        return number;
+      }
+    }
+    return parseStringToNumber( string );
+  }
+
+  private synchronized Double parseStringToNumber( String string ) throws HopValueException {
     try {
       DecimalFormat format = getDecimalFormat( false );
       Number number;
@@ -990,6 +1027,53 @@ public class ValueMetaBase implements IValueMeta {
     }
   }
 
+  /**
+   * @return the parser for the common date strings or null if the date format of the conversion metadata is used
+   */
+  private FastDateParser getFastDateParser() {
+    FastDateParser parser = fastDateParser;
+    if ( parser != null && !dateFormatChanged && fastDateParserFormat == dateFormat && conversionMetadata == null ) {
+      return parser;
+    }
+    return compileFastDateParser();
+  }
+
+  private synchronized FastDateParser compileFastDateParser() {
+    if ( conversionMetadata != null ) {
+      return null;
+    }
+    SimpleDateFormat format = getDateFormat( TYPE_DATE );
+    if ( fastDateParser == null || fastDateParserFormat != format ) {
+      fastDateParserFormat = format;
+      fastDateParser = FastDateParser.compile( format );
+    }
+    return fastDateParser;
+  }
+
+  /**
+   * @return the parser for the common number strings or null if the decimal format of the conversion metadata is used
+   */
+  private FastNumberParser getFastNumberParser() {
+    FastNumberParser parser = fastNumberParser;
+    if ( parser != null && !decimalFormatChanged && fastNumberParserFormat == decimalFormat
+      && conversionMetadata == null ) {
+      return parser;
+    }
+    return compileFastNumberParser();
+  }
+
+  private synchronized FastNumberParser compileFastNumberParser() {
+    if ( conversionMetadata != null ) {
+      return null;
+    }
+    DecimalFormat format = getDecimalFormat( false );
+    if ( fastNumberParser == null || fastNumberParserFormat != format ) {
+      fastNumberParserFormat = format;
+      fastNumberParser = FastNumberParser.compile( format );
+    }
+    return fastNumberParser;
+  }
+
   @Override
   public synchronized SimpleDateFormat getDateFormat() {
     return getDateFormat( getType() );
@@ -1271,7 +1355,7 @@ public class ValueMetaBase implements IValueMeta {
     return Long.toString( integer );
   }
 
-  protected synchronized Long convertStringToInteger( String string ) throws HopValueException {
+  protected Long convertStringToInteger( String string ) throws HopValueException {
     string = Const.trimToType( string, getTrimType() ); // see if trimming needs
     // to be performed before
     // conversion
@@ -1280,6 +1364,19 @@ public class ValueMetaBase implements IValueMeta {
       return null;
     }
 
+    // The common case doesn't need the lock on the shared decimal format
+    //
+    FastNumberParser parser = getFastNumberParser();
+    if ( parser != null ) {
+      Long integer = parser.parseInteger( string );
+      if ( integer != null ) {
+        return integer;
+      }
+    }
+    return parseStringToInteger( string );
+  }
+
+  private synchronized Long parseStringToInteger( String string ) throws HopValueException {
     try {
       Number number;
       if ( lenientStringToNumber ) {
@@ -0,0 +1,147 @@
+/*! ******************************************************************************
+ *
+ * Hop : The Hop Orchestration Platform
+ *
+ * http://www.project-hop.org
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+
+package org.apache.hop.core;
+
+import org.apache.hop.core.row.IRowMeta;
+import org.apache.hop.core.row.RowMeta;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class BlockingBulkRowSetTest {
+  IRowMeta rowMeta;
+  BlockingBulkRowSet rowSet;
+
+  @Before
+  public void setup() {
+    rowMeta = new RowMeta();
+    rowSet = new BlockingBulkRowSet( 4 );
+  }
+
+  @Test
+  public void testPutGetRow() throws Exception {
+    Object[] row = new Object[] {};
+    assertTrue( rowSet.putRow( rowMeta, row ) );
+    assertEquals( 1, rowSet.size() );
+    assertSame( row, rowSet.getRow() );
+    assertNull( rowSet.getRowImmediate() );
+    assertNull( rowSet.getRowWait( 1, TimeUnit.MILLISECONDS ) );
+  }
+
+  @Test
+  public void testSingleRowIsVisibleImmediately() throws Exception {
+    // The old batching row set kept rows back until a batch was full
+    //
+    rowSet.putRowWait( rowMeta, new Object[] { 1 }, 1, TimeUnit.MILLISECONDS );
+    assertEquals( 1, rowSet.getRowImmediate()[ 0 ] );
+  }
+
+  @Test
+  public void testPutRowsStopsWhenFull() throws Exception {
+    Object[][] rows = new Object[ 6 ][];
+    for ( int i = 0; i < rows.length; i++ ) {
+      rows[ i ] = new Object[] { i };
+    }
+    assertEquals( 4, rowSet.putRows( rowMeta, rows, rows.length ) );
+    assertFalse( rowSet.putRowWait( rowMeta, rows[ 4 ], 1, TimeUnit.MILLISECONDS ) );
+
+    Object[][] read = rowSet.getRowsImmediate( 3 );
+    assertEquals( 3, read.length );
+    for ( int i = 0; i < read.length; i++ ) {
+      assertEquals( i, read[ i ][ 0 ] );
+    }
+
+    // wrap around the end of the buffer
+    //
+    assertEquals( 2, rowSet.putRows( rowMeta, new Object[][] { rows[ 4 ], rows[ 5 ] }, 2 ) );
+    read = rowSet.getRows( 10 );
+    assertEquals( 3, read.length );
+    for ( int i = 0; i < read.length; i++ ) {
+      assertEquals( i + 3, read[ i ][ 0 ] );
+    }
+    assertNull( rowSet.getRowsImmediate( 10 ) );
+  }
+
+  @Test
+  public void testClear() throws Exception {
+    rowSet.putRow( rowMeta, new Object[] {} );
+    rowSet.setDone();
+    rowSet.clear();
+    assertEquals( 0, rowSet.size() );
+    assertFalse( rowSet.isDone() );
+  }
+
+  @Test
+  public void testProducerConsumer() throws Exception {
+    final int nrRows = 100000;
+    final AtomicReference<String> error = new AtomicReference<>();
+
+    Thread consumer = new Thread( () -> {
+      long expected = 0;
+      while ( expected < nrRows ) {
+        Object[][] rows = rowSet.getRows( 3 );
+        if ( rows == null ) {
+          continue;
+        }
+        for ( Object[] r : rows ) {
+          if ( !Long.valueOf( expected ).equals( r[ 0 ] ) ) {
+            error.set( "Expected row " + expected + " but got " + r[ 0 ] );
+            return;
+          }
+          expected++;
+        }
+      }
+    } );
+    consumer.start();
+
+    Object[][] batch = new Object[ 7 ][];
+    long i = 0;
+    while ( i < nrRows ) {
+      int size = (int) Math.min( batch.length, nrRows - i );
+      for ( int b = 0; b < size; b++ ) {
+        batch[ b ] = new Object[] { i + b };
+      }
+      int offset = 0;
+      while ( offset < size ) {
+        Object[][] remaining = new Object[ size - offset ][];
+        System.arraycopy( batch, offset, remaining, 0, remaining.length );
+        offset += rowSet.putRows( rowMeta, remaining, remaining.length );
+      }
+      i += size;
+    }
+    consumer.join( 60000 );
+
+    assertNull( error.get() );
+    assertFalse( consumer.isAlive() );
+    assertEquals( 0, rowSet.size() );
+  }
+}
@@ -27,6 +27,7 @@ import org.apache.hop.core.row.IRowMeta;
 import org.apache.hop.core.row.ValueMetaAndData;
 import org.apache.hop.core.row.value.ValueMetaInteger;
 import org.apache.hop.core.row.value.ValueMetaNumber;
+import org.apache.hop.core.row.value.ValueMetaString;
 import org.apache.hop.junit.rules.RestoreHopEnvironment;
 import org.junit.ClassRule;
 import org.junit.Test;
@@ -82,4 +83,105 @@ public class ConditionTest {
     condition = new Condition( left, Condition.FUNC_SMALLER_EQUAL, null, right_exact );
     assertFalse( condition.evaluate( rowMeta1, new Object[] { null, "test" } ) );
   }
+
+  private static IRowMeta stringAndInteger() {
+    IRowMeta rowMeta = new RowMeta();
+    rowMeta.addValueMeta( new ValueMetaString( "str" ) );
+    rowMeta.addValueMeta( new ValueMetaInteger( "int" ) );
+    rowMeta.addValueMeta( new ValueMetaString( "pattern" ) );
+    return rowMeta;
+  }
+
+  private static ValueMetaAndData string( String value ) {
+    return new ValueMetaAndData( new ValueMetaString( "constant" ), value );
+  }
+
+  @Test
+  public void testStringFunctionsOnConstants() throws Exception {
+    IRowMeta rowMeta = stringAndInteger();
+    Object[] row = new Object[] { "hop-2020", 5L, null };
+
+    assertTrue( new Condition( "str", Condition.FUNC_REGEXP, null, string( "hop-[0-9]+" ) ).evaluate( rowMeta, row ) );
+    assertFalse( new Condition( "str", Condition.FUNC_REGEXP, null, string( "[0-9]+" ) ).evaluate( rowMeta, row ) );
+    assertTrue( new Condition( "str", Condition.FUNC_LIKE, null, string( "ho?-%" ) ).evaluate( rowMeta, row ) );
+    assertFalse( new Condition( "str", Condition.FUNC_LIKE, null, string( "%x%" ) ).evaluate( rowMeta, row ) );
+    assertTrue( new Condition( "str", Condition.FUNC_IN_LIST, null, string( "a;hop-2020;b" ) ).evaluate( rowMeta, row ) );
+    assertFalse( new Condition( "str", Condition.FUNC_IN_LIST, null, string( "a;b" ) ).evaluate( rowMeta, row ) );
+    assertTrue( new Condition( "int", Condition.FUNC_IN_LIST, null, string( "4;5;6" ) ).evaluate( rowMeta, row ) );
+    assertTrue( new Condition( "str", Condition.FUNC_CONTAINS, null, string( "-20" ) ).evaluate( rowMeta, row ) );
+    assertTrue( new Condition( "str", Condition.FUNC_STARTS_WITH, null, string( "hop" ) ).evaluate( rowMeta, row ) );
+    assertTrue( new Condition( "str", Condition.FUNC_ENDS_WITH, null, string( "2020" ) ).evaluate( rowMeta, row ) );
+    assertFalse( new Condition( "str", Condition.FUNC_ENDS_WITH, null, string( "hop" ) ).evaluate( rowMeta, row ) );
+    assertTrue( new Condition( true, "str", Condition.FUNC_ENDS_WITH, null, string( "hop" ) ).evaluate( rowMeta, row ) );
+  }
+
+  @Test
+  public void testRegexpAgainstField() throws Exception {
+    IRowMeta rowMeta = stringAndInteger();
+    Condition condition = new Condition( "str", Condition.FUNC_REGEXP, "pattern", null );
+
+    assertTrue( condition.evaluate( rowMeta, new Object[] { "abc", 1L, "a.c" } ) );
+    assertFalse( condition.evaluate( rowMeta, new Object[] { "abc", 1L, "b.*" } ) );
+    assertFalse( condition.evaluate( rowMeta, new Object[] { "abc", 1L, null } ) );
+  }
+
+  @Test
+  public void testConstantConvertedToFieldType() throws Exception {
+    IRowMeta rowMeta = stringAndInteger();
+    Condition condition = new Condition( "int", Condition.FUNC_LARGER, null, string( "10" ) );
+
+    assertTrue( condition.evaluate( rowMeta, new Object[] { "a", 11L, null } ) );
+    assertFalse( condition.evaluate( rowMeta, new Object[] { "a", 9L, null } ) );
+    assertFalse( condition.evaluate( rowMeta, new Object[] { "a", null, null } ) );
+  }
+
+  @Test
+  public void testMissingLeftFieldIsFalseEvenWhenNegated() throws Exception {
+    Condition condition = new Condition( true, "missing", Condition.FUNC_NULL, null, null );
+    assertFalse( condition.evaluate( stringAndInteger(), new Object[] { "a", 1L, null } ) );
+  }
+
+  @Test
+  public void testChangesAfterEvaluationAreSeen() throws Exception {
+    IRowMeta rowMeta = stringAndInteger();
+    Object[] row = new Object[] { "abc", 1L, null };
+    ValueMetaAndData exact = string( "abc" );
+    Condition condition = new Condition( "str", Condition.FUNC_EQUAL, null, exact );
+    assertTrue( condition.evaluate( rowMeta, row ) );
+
+    exact.setValueData( "xyz" );
+    assertFalse( condition.evaluate( rowMeta, row ) );
+
+    condition.setLeftValuename( "pattern" );
+    condition.setFunction( Condition.FUNC_NULL );
+    assertTrue( condition.evaluate( rowMeta, row ) );
+
+    IRowMeta other = new RowMeta();
+    other.addValueMeta( new ValueMetaString( "pattern" ) );
+    assertFalse( condition.evaluate( other, new Object[] { "x" } ) );
+  }
+
+  @Test
+  public void testCompositeShortCircuits() throws Exception {
+    IRowMeta rowMeta = stringAndInteger();
+    Object[] row = new Object[] { "abc", 1L, null };
+
+    // The invalid pattern fails the evaluation only when it is used
+    //
+    Condition and = new Condition();
+    and.addCondition( new Condition( "str", Condition.FUNC_NULL, null, null ) );
+    and.addCondition( new Condition( Condition.OPERATOR_AND, "str", Condition.FUNC_REGEXP, null, string( "[" ) ) );
+    assertFalse( and.evaluate( rowMeta, row ) );
+
+    Condition or = new Condition();
+    or.addCondition( new Condition( "str", Condition.FUNC_NOT_NULL, null, null ) );
+    or.addCondition( new Condition( Condition.OPERATOR_OR, "str", Condition.FUNC_REGEXP, null, string( "[" ) ) );
+    assertTrue( or.evaluate( rowMeta, row ) );
+  }
+
+  @Test( expected = RuntimeException.class )
+  public void testInvalidPatternFailsWhenUsed() throws Exception {
+    new Condition( "str", Condition.FUNC_REGEXP, null, string( "[" ) )
+      .evaluate( stringAndInteger(), new Object[] { "abc", 1L, null } );
+  }
 }
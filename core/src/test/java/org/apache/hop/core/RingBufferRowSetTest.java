@@ -0,0 +1,168 @@
+/*! ******************************************************************************
+ *
+ * Hop : The Hop Orchestration Platform
+ *
+ * http://www.project-hop.org
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+
+package org.apache.hop.core;
+
+import org.apache.hop.core.row.IRowMeta;
+import org.apache.hop.core.row.RowMeta;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class RingBufferRowSetTest {
+  Object[] row;
+  RingBufferRowSet rowSet;
+
+  @Before
+  public void setup() {
+    rowSet = new RingBufferRowSet( 3 );
+    row = new Object[] {};
+  }
+
+  @Test
+  public void testPutRow() throws Exception {
+    assertTrue( rowSet.putRow( new RowMeta(), row ) );
+    assertSame( row, rowSet.getRow() );
+    assertNull( rowSet.getRowImmediate() );
+  }
+
+  @Test
+  public void testPutRowWait() throws Exception {
+    rowSet.putRowWait( new RowMeta(), row, 1, TimeUnit.SECONDS );
+    assertSame( row, rowSet.getRowWait( 1, TimeUnit.SECONDS ) );
+  }
+
+  @Test
+  public void testPutNullRow() throws Exception {
+    assertFalse( rowSet.putRow( new RowMeta(), null ) );
+    assertEquals( 0, rowSet.size() );
+  }
+
+  @Test
+  public void testFullBufferTimesOut() throws Exception {
+    IRowMeta rowMeta = new RowMeta();
+    for ( int i = 0; i < 3; i++ ) {
+      assertTrue( rowSet.putRowWait( rowMeta, new Object[] { i }, 1, TimeUnit.MILLISECONDS ) );
+    }
+    assertFalse( rowSet.putRowWait( rowMeta, row, 1, TimeUnit.MILLISECONDS ) );
+    assertEquals( 3, rowSet.size() );
+
+    // The order is preserved
+    //
+    for ( int i = 0; i < 3; i++ ) {
+      assertEquals( i, rowSet.getRowImmediate()[ 0 ] );
+    }
+    assertNull( rowSet.getRowWait( 1, TimeUnit.MILLISECONDS ) );
+  }
+
+  @Test
+  public void testSize() throws Exception {
+    assertEquals( 0, rowSet.size() );
+    rowSet.putRow( new RowMeta(), row );
+    assertEquals( 1, rowSet.size() );
+    rowSet.putRow( new RowMeta(), row );
+    assertEquals( 2, rowSet.size() );
+    rowSet.setDone();
+    rowSet.clear();
+    assertEquals( 0, rowSet.size() );
+    assertFalse( rowSet.isDone() );
+  }
+
+  @Test
+  public void testProducerConsumer() throws Exception {
+    for ( RingBufferRowSet.WaitStrategy waitStrategy : RingBufferRowSet.WaitStrategy.values() ) {
+      final RingBufferRowSet set = new RingBufferRowSet( 10, waitStrategy );
+      final IRowMeta rowMeta = new RowMeta();
+      final int nrRows = 10000;
+      final AtomicReference<String> error = new AtomicReference<>();
+
+      Thread consumer = new Thread( () -> {
+        long expected = 0;
+        while ( expected < nrRows ) {
+          Object[] r = set.getRow();
+          if ( r == null ) {
+            continue;
+          }
+          if ( !Long.valueOf( expected ).equals( r[ 0 ] ) ) {
+            error.set( "Expected row " + expected + " but got " + r[ 0 ] );
+            return;
+          }
+          expected++;
+        }
+      } );
+      consumer.start();
+
+      for ( long i = 0; i < nrRows; i++ ) {
+        Object[] r = new Object[] { i };
+        while ( !set.putRow( rowMeta, r ) ) {
+          // retry, like BaseTransform does
+        }
+      }
+      consumer.join( 60000 );
+
+      assertNull( error.get() );
+      assertFalse( consumer.isAlive() );
+      assertEquals( 0, set.size() );
+    }
+  }
+
+  @Test
+  public void testPutGetRows() throws Exception {
+    IRowMeta rowMeta = new RowMeta();
+    Object[][] rows = new Object[ 5 ][];
+    for ( int i = 0; i < rows.length; i++ ) {
+      rows[ i ] = new Object[] { i };
+    }
+
+    // Capacity is rounded up to 4, only 3 rows are accepted though
+    //
+    assertEquals( 3, rowSet.putRows( rowMeta, rows, rows.length ) );
+    Object[][] read = rowSet.getRowsImmediate( 2 );
+    assertEquals( 2, read.length );
+    assertEquals( 0, read[ 0 ][ 0 ] );
+    assertEquals( 1, read[ 1 ][ 0 ] );
+
+    assertEquals( 2, rowSet.putRows( rowMeta, new Object[][] { rows[ 3 ], rows[ 4 ] }, 2 ) );
+    read = rowSet.getRows( 10 );
+    assertEquals( 3, read.length );
+    for ( int i = 0; i < read.length; i++ ) {
+      assertEquals( i + 2, read[ i ][ 0 ] );
+    }
+    assertNull( rowSet.getRowsImmediate( 10 ) );
+  }
+
+  @Test
+  public void testGetWaitStrategy() {
+    assertEquals( RingBufferRowSet.WaitStrategy.YIELD, RingBufferRowSet.WaitStrategy.getWaitStrategy( "yield" ) );
+    assertEquals( RingBufferRowSet.WaitStrategy.PARK, RingBufferRowSet.WaitStrategy.getWaitStrategy( null ) );
+    assertEquals( RingBufferRowSet.WaitStrategy.PARK, rowSet.getWaitStrategy() );
+  }
+}
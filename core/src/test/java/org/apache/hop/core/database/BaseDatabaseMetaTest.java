@@ -103,6 +103,7 @@ public class BaseDatabaseMetaTest {
     assertNull( nativeMeta.getSqlUnlockTables( new String[] { "FOO" } ) );
     assertTrue( nativeMeta.supportsTimeStampToDateConversion() );
     assertTrue( nativeMeta.supportsBatchUpdates() );
+    assertEquals( 1000, nativeMeta.getMaxLookupParameters() );
     assertFalse( nativeMeta.supportsBooleanDataType() );
     assertFalse( nativeMeta.supportsTimestampDataType() );
     assertTrue( nativeMeta.preserveReservedCase() );
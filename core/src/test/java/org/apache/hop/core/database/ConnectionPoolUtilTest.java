@@ -0,0 +1,259 @@
+/*! ******************************************************************************
+ *
+ * Hop : The Hop Orchestration Platform
+ *
+ * Copyright (C) 2002-2018 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+
+package org.apache.hop.core.database;
+
+import org.apache.hop.core.HopClientEnvironment;
+import org.apache.hop.core.database.map.DatabaseConnectionMap;
+import org.apache.hop.core.exception.HopDatabaseException;
+import org.apache.hop.core.logging.ILogChannel;
+import org.apache.hop.core.logging.ILoggingObject;
+import org.apache.hop.core.logging.LogLevel;
+import org.apache.hop.junit.rules.RestoreHopEnvironment;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.Driver;
+import java.sql.DriverManager;
+import java.sql.DriverPropertyInfo;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class ConnectionPoolUtilTest {
+  @ClassRule public static RestoreHopEnvironment env = new RestoreHopEnvironment();
+
+  private static final String URL = "jdbc:hop-pool-test:";
+
+  private static CountingDriver driver = new CountingDriver();
+
+  private ILogChannel log = mock( ILogChannel.class );
+
+  @BeforeClass
+  public static void setUp() throws Exception {
+    HopClientEnvironment.init();
+    DriverManager.registerDriver( driver );
+  }
+
+  @AfterClass
+  public static void deregisterDriver() throws SQLException {
+    DriverManager.deregisterDriver( driver );
+  }
+
+  @After
+  public void closePools() {
+    ConnectionPoolUtil.closeAll();
+    driver.connects.set( 0 );
+  }
+
+  @Test
+  public void testConnectionsAreReused() throws Exception {
+    DatabaseMeta databaseMeta = createDatabaseMeta( "pooled" );
+    for ( int i = 0; i < 10; i++ ) {
+      Connection connection = getConnection( databaseMeta, URL + "db" );
+      connection.close();
+    }
+    assertTrue( "Connections should be reused, found " + driver.connects.get() + " connects", driver.connects.get() < 10 );
+
+    List<ConnectionPoolUtil.PoolStatus> status = ConnectionPoolUtil.getPoolStatus();
+    assertEquals( 1, status.size() );
+    assertEquals( "pooled", status.get( 0 ).getName() );
+    assertEquals( 10, status.get( 0 ).getBorrowed() );
+    assertEquals( 0, status.get( 0 ).getActive() );
+    assertEquals( 2, status.get( 0 ).getMaximum() );
+  }
+
+  @Test
+  public void testPoolPerUrlAndPartition() throws Exception {
+    DatabaseMeta databaseMeta = createDatabaseMeta( "pooled" );
+    getConnection( databaseMeta, URL + "one" ).close();
+    getConnection( databaseMeta, URL + "two" ).close();
+    ConnectionPoolUtil.getConnection( log, databaseMeta, databaseMeta, "partition", URL + "two", new Properties() )
+      .close();
+    getConnection( databaseMeta, URL + "one" ).close();
+
+    assertEquals( 3, ConnectionPoolUtil.getPoolStatus().size() );
+  }
+
+  @Test
+  public void testPoolExhausted() throws Exception {
+    DatabaseMeta databaseMeta = createDatabaseMeta( "exhausted" );
+    databaseMeta.setMaximumPoolSizeString( "1" );
+    Properties poolingProperties = new Properties();
+    poolingProperties.setProperty( "maxWait", "10" );
+    databaseMeta.setConnectionPoolingProperties( poolingProperties );
+
+    Connection connection = getConnection( databaseMeta, URL + "db" );
+    try {
+      getConnection( databaseMeta, URL + "db" );
+      fail( "The only connection of the pool is in use" );
+    } catch ( HopDatabaseException e ) {
+      // expected
+    }
+    ConnectionPoolUtil.PoolStatus status = ConnectionPoolUtil.getPoolStatus().get( 0 );
+    assertEquals( 1, status.getActive() );
+    assertEquals( 1, status.getFailed() );
+
+    // handing back the connection makes it available again
+    //
+    connection.close();
+    getConnection( databaseMeta, URL + "db" ).close();
+  }
+
+  @Test
+  public void testSharedConnectionGroup() throws Exception {
+    DatabaseMeta databaseMeta = createDatabaseMeta( "group" );
+    databaseMeta.setManualUrl( URL + "group" );
+    ( (GenericDatabaseMeta) databaseMeta.getIDatabase() ).setDriverClass( CountingDriver.class.getName() );
+
+    ILoggingObject parent = mock( ILoggingObject.class );
+    when( parent.getLogLevel() ).thenReturn( LogLevel.NOTHING );
+    Database db1 = new Database( parent, databaseMeta );
+    Database db2 = new Database( parent, databaseMeta );
+    try {
+      db1.connect( "pool-group", null );
+      db2.connect( "pool-group", null );
+      assertSame( db1.getConnection(), db2.getConnection() );
+      assertEquals( 1, ConnectionPoolUtil.getPoolStatus().get( 0 ).getActive() );
+
+      // closing the connection of the group hands it back to the pool
+      //
+      db1.closeConnectionOnly();
+      assertEquals( 0, ConnectionPoolUtil.getPoolStatus().get( 0 ).getActive() );
+    } finally {
+      DatabaseConnectionMap.getInstance().removeConnection( "pool-group", null, db1 );
+    }
+  }
+
+  @Test
+  public void testPoolPropertiesResolveVariables() {
+    DatabaseMeta databaseMeta = createDatabaseMeta( "variables" );
+    databaseMeta.setVariable( "POOL_SIZE", "7" );
+    databaseMeta.setVariable( "QUERY", "select 1" );
+    databaseMeta.setMaximumPoolSizeString( "${POOL_SIZE}" );
+    Properties poolingProperties = new Properties();
+    poolingProperties.setProperty( "validationQuery", "${QUERY}" );
+    poolingProperties.setProperty( "minIdle", "${NOT_SET_ANYWHERE}" );
+    poolingProperties.setProperty( "maxIdle", "" );
+    databaseMeta.setConnectionPoolingProperties( poolingProperties );
+
+    Properties properties = ConnectionPoolUtil.getPoolProperties( databaseMeta, databaseMeta, URL + "db" );
+    assertEquals( "7", properties.getProperty( "maxActive" ) );
+    assertEquals( "1", properties.getProperty( "initialSize" ) );
+    assertEquals( "select 1", properties.getProperty( "validationQuery" ) );
+    assertEquals( "${NOT_SET_ANYWHERE}", properties.getProperty( "minIdle" ) );
+    assertFalse( properties.containsKey( "maxIdle" ) );
+    assertEquals( URL + "db", properties.getProperty( "url" ) );
+  }
+
+  @Test
+  public void testPoolingAttributes() {
+    DatabaseMeta databaseMeta = new DatabaseMeta();
+    assertFalse( databaseMeta.isUsingConnectionPool() );
+    assertEquals( BaseDatabaseMeta.DEFAULT_INITIAL_POOL_SIZE, databaseMeta.getInitialPoolSize() );
+    assertEquals( BaseDatabaseMeta.DEFAULT_MAXIMUM_POOL_SIZE, databaseMeta.getMaximumPoolSize() );
+
+    Properties properties = new Properties();
+    properties.setProperty( "minIdle", "2" );
+    properties.setProperty( "validationQuery", "select 1" );
+    databaseMeta.setConnectionPoolingProperties( properties );
+    assertEquals( properties, databaseMeta.getConnectionPoolingProperties() );
+
+    properties = new Properties();
+    properties.setProperty( "maxIdle", "4" );
+    databaseMeta.setConnectionPoolingProperties( properties );
+    assertEquals( properties, databaseMeta.getConnectionPoolingProperties() );
+    assertEquals( "4", databaseMeta.getAttributes().get( BaseDatabaseMeta.ATTRIBUTE_POOLING_PARAMETER_PREFIX + "maxIdle" ) );
+  }
+
+  private DatabaseMeta createDatabaseMeta( String name ) {
+    DatabaseMeta databaseMeta = new DatabaseMeta();
+    databaseMeta.setName( name );
+    databaseMeta.setUsingConnectionPool( true );
+    databaseMeta.setInitialPoolSizeString( "1" );
+    databaseMeta.setMaximumPoolSizeString( "2" );
+    return databaseMeta;
+  }
+
+  private Connection getConnection( DatabaseMeta databaseMeta, String url ) throws HopDatabaseException {
+    return ConnectionPoolUtil.getConnection( log, databaseMeta, databaseMeta, null, url, new Properties() );
+  }
+
+  public static class CountingDriver implements Driver {
+    private final AtomicInteger connects = new AtomicInteger();
+
+    @Override
+    public Connection connect( String url, Properties info ) {
+      if ( !acceptsURL( url ) ) {
+        return null;
+      }
+      connects.incrementAndGet();
+      return mock( Connection.class );
+    }
+
+    @Override
+    public boolean acceptsURL( String url ) {
+      return url.startsWith( URL );
+    }
+
+    @Override
+    public DriverPropertyInfo[] getPropertyInfo( String url, Properties info ) {
+      return new DriverPropertyInfo[ 0 ];
+    }
+
+    @Override
+    public int getMajorVersion() {
+      return 1;
+    }
+
+    @Override
+    public int getMinorVersion() {
+      return 0;
+    }
+
+    @Override
+    public boolean jdbcCompliant() {
+      return false;
+    }
+
+    @Override
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+      throw new SQLFeatureNotSupportedException();
+    }
+  }
+}
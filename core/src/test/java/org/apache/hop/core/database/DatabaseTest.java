@@ -30,7 +30,9 @@ import org.apache.hop.core.logging.ILoggingObject;
 import org.apache.hop.core.logging.LogLevel;
 import org.apache.hop.core.row.IRowMeta;
 import org.apache.hop.core.row.IValueMeta;
+import org.apache.hop.core.row.RowMeta;
 import org.apache.hop.core.row.value.ValueMetaNumber;
+import org.apache.hop.core.row.value.ValueMetaString;
 import org.apache.hop.core.variables.IVariables;
 import org.apache.hop.junit.rules.RestoreHopEnvironment;
 import org.junit.After;
@@ -49,6 +51,7 @@ import java.sql.ResultSet;
 import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
 import java.sql.Types;
+import java.util.Arrays;
 import java.util.List;
 
 import static org.hamcrest.core.StringContains.containsString;
@@ -61,6 +64,7 @@ import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 import static org.mockito.AdditionalMatchers.aryEq;
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
 import static org.mockito.Matchers.anyString;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.doReturn;
@@ -177,6 +181,85 @@ public class DatabaseTest {
     verify( rsMetaData, times( 1 ) ).getColumnCount();
   }
 
+  @Test
+  public void testGetLookupRowsPerKeySql() {
+    when( meta.getQuotedSchemaTableCombination( "s", "t" ) ).thenReturn( "s.t" );
+    when( meta.quoteField( anyString() ) ).thenAnswer( invocation -> invocation.getArguments()[ 0 ] );
+    Database db = new Database( log, meta );
+
+    assertEquals( "SELECT 0 AS KEY_NR, name FROM s.t WHERE id = ? UNION ALL SELECT 1, name FROM s.t WHERE id = ?",
+      db.getLookupRowsPerKeySql( "s", "t", new String[] { "id" }, new String[] { "name" }, 2 ) );
+    assertEquals( "SELECT 0 AS KEY_NR, c FROM s.t WHERE a = ? AND b = ?",
+      db.getLookupRowsPerKeySql( "s", "t", new String[] { "a", "b" }, new String[] { "c" }, 1 ) );
+    assertEquals( "SELECT CASE WHEN id = ? THEN 0 WHEN id = ? THEN 1 END AS KEY_NR, name FROM s.t"
+        + " WHERE ( id = ? ) OR ( id = ? ) ORDER BY KEY_NR, name DESC",
+      db.getLookupRowsPerKeySql( "s", "t", new String[] { "id" }, new String[] { "name" }, "name DESC", 2 ) );
+    assertEquals( "SELECT CASE WHEN a = ? AND b = ? THEN 0 END AS KEY_NR, c FROM s.t WHERE ( a = ? AND b = ? )"
+        + " ORDER BY KEY_NR, c",
+      db.getLookupRowsPerKeySql( "s", "t", new String[] { "a", "b" }, new String[] { "c" }, "c", 1 ) );
+  }
+
+  @Test
+  public void testGetLookupRowsPerKeySplitsKeysInChunks() throws Exception {
+    when( meta.getQuotedSchemaTableCombination( anyString(), anyString() ) ).thenReturn( "t" );
+    when( meta.quoteField( anyString() ) ).thenAnswer( invocation -> invocation.getArguments()[ 0 ] );
+    when( meta.stripCR( anyString() ) ).thenAnswer( invocation -> invocation.getArguments()[ 0 ] );
+    when( meta.getMaxLookupParameters() ).thenReturn( 4 );
+    when( ps.executeQuery() ).thenReturn( rs );
+    when( rs.getMetaData() ).thenReturn( rsMetaData );
+    when( rsMetaData.getColumnCount() ).thenReturn( 0 );
+    Connection conn = mock( Connection.class );
+    when( conn.prepareStatement( anyString(), anyInt(), anyInt() ) ).thenReturn( ps );
+
+    Database db = new Database( log, meta );
+    db.setConnection( conn );
+    IRowMeta keysMeta = new RowMeta();
+    keysMeta.addValueMeta( new ValueMetaString( "a" ) );
+    keysMeta.addValueMeta( new ValueMetaString( "b" ) );
+    List<Object[]> keys = Arrays.asList(
+      new Object[] { "1", "x" }, new Object[] { "2", "x" }, new Object[] { "3", "x" }, new Object[] { "4", "x" },
+      new Object[] { "5", "x" } );
+
+    db.getLookupRowsPerKey( null, "t", new String[] { "a", "b" }, keysMeta, keys, new String[] { "c" } );
+
+    verify( conn, times( 2 ) ).prepareStatement(
+      eq( "SELECT 0 AS KEY_NR, c FROM t WHERE a = ? AND b = ? UNION ALL SELECT 1, c FROM t WHERE a = ? AND b = ?" ),
+      anyInt(), anyInt() );
+    verify( conn ).prepareStatement( eq( "SELECT 0 AS KEY_NR, c FROM t WHERE a = ? AND b = ?" ), anyInt(), anyInt() );
+    verify( ps, times( 3 ) ).executeQuery();
+    verify( ps ).setString( 1, "5" );
+  }
+
+  @Test
+  public void testGetSortedLookupRowsPerKeyBindsTheKeysTwice() throws Exception {
+    when( meta.getQuotedSchemaTableCombination( anyString(), anyString() ) ).thenReturn( "t" );
+    when( meta.quoteField( anyString() ) ).thenAnswer( invocation -> invocation.getArguments()[ 0 ] );
+    when( meta.stripCR( anyString() ) ).thenAnswer( invocation -> invocation.getArguments()[ 0 ] );
+    when( meta.getMaxLookupParameters() ).thenReturn( 4 );
+    when( ps.executeQuery() ).thenReturn( rs );
+    when( rs.getMetaData() ).thenReturn( rsMetaData );
+    when( rsMetaData.getColumnCount() ).thenReturn( 0 );
+    Connection conn = mock( Connection.class );
+    when( conn.prepareStatement( anyString(), anyInt(), anyInt() ) ).thenReturn( ps );
+
+    Database db = new Database( log, meta );
+    db.setConnection( conn );
+    IRowMeta keysMeta = new RowMeta();
+    keysMeta.addValueMeta( new ValueMetaString( "a" ) );
+    keysMeta.addValueMeta( new ValueMetaString( "b" ) );
+    List<Object[]> keys = Arrays.asList( new Object[] { "1", "x" }, new Object[] { "2", "y" } );
+
+    db.getLookupRowsPerKey( null, "t", new String[] { "a", "b" }, keysMeta, keys, new String[] { "c" }, "c" );
+
+    verify( conn, times( 2 ) ).prepareStatement( eq( "SELECT CASE WHEN a = ? AND b = ? THEN 0 END AS KEY_NR, c FROM t"
+      + " WHERE ( a = ? AND b = ? ) ORDER BY KEY_NR, c" ), anyInt(), anyInt() );
+    verify( ps, times( 2 ) ).executeQuery();
+    verify( ps ).setString( 1, "2" );
+    verify( ps ).setString( 2, "y" );
+    verify( ps ).setString( 3, "2" );
+    verify( ps ).setString( 4, "y" );
+  }
+
   /**
    * Test that for every PreparedStatement passed into lookup signature we do reset and re-create row meta.
    *
@@ -0,0 +1,176 @@
+/*! ******************************************************************************
+ *
+ * Hop : The Hop Orchestration Platform
+ *
+ * http://www.project-hop.org
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+
+
+package org.apache.hop.core.hash;
+
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test class for the basic functionality of ByteArrayClockCache.
+ */
+public class ByteArrayClockCacheTest {
+
+  @Test
+  public void testGetAndPut() {
+    ByteArrayClockCache cache = new ByteArrayClockCache( 0, 0 );
+    cache.put( bytes( "one" ), 1L );
+    cache.put( bytes( "two" ), 2L );
+    cache.put( bytes( "one" ), 11L );
+    assertEquals( 2, cache.getSize() );
+
+    assertEquals( 11L, cache.getValue( cache.get( bytes( "one" ) ) ) );
+    assertEquals( 2L, cache.getValue( cache.get( bytes( "two" ) ) ) );
+    assertEquals( -1, cache.get( bytes( "three" ) ) );
+    assertEquals( 2, cache.getHits() );
+    assertEquals( 1, cache.getMisses() );
+    assertEquals( 0, cache.getEvictions() );
+  }
+
+  @Test
+  public void testEntryLimitKeepsRecentlyUsedKeys() {
+    ByteArrayClockCache cache = new ByteArrayClockCache( 3, 0 );
+    cache.put( bytes( "hot" ), 1L );
+    cache.put( bytes( "a" ), 2L );
+    cache.put( bytes( "b" ), 3L );
+
+    // the hot key gets a second chance, the keys which were never looked up go first
+    //
+    for ( int i = 0; i < 10; i++ ) {
+      assertTrue( cache.get( bytes( "hot" ) ) >= 0 );
+      cache.put( bytes( "new" + i ), 10L + i );
+      assertEquals( 3, cache.getSize() );
+    }
+    assertEquals( 1L, cache.getValue( cache.get( bytes( "hot" ) ) ) );
+    assertEquals( 19L, cache.getValue( cache.get( bytes( "new9" ) ) ) );
+    assertEquals( -1, cache.get( bytes( "a" ) ) );
+    assertEquals( 10, cache.getEvictions() );
+  }
+
+  @Test
+  public void testHotKeysSurviveOneOffKeys() {
+    ByteArrayClockCache cache = new ByteArrayClockCache( 8, 0 );
+    for ( int i = 0; i < 4; i++ ) {
+      cache.put( bytes( "hot" + i ), i );
+    }
+
+    for ( int i = 0; i < 1000; i++ ) {
+      for ( int h = 0; h < 4; h++ ) {
+        assertTrue( "hot" + h + " evicted at row " + i, cache.get( bytes( "hot" + h ) ) >= 0 );
+      }
+      cache.put( bytes( "once" + i ), i );
+      assertTrue( cache.getSize() <= 8 );
+    }
+    assertEquals( 1000 - 4, cache.getEvictions() );
+  }
+
+  @Test
+  public void testNewKeySurvivesNextInsert() {
+    ByteArrayClockCache cache = new ByteArrayClockCache( 4, 0 );
+    for ( int i = 0; i < 1000; i++ ) {
+      cache.put( bytes( "key" + i ), i );
+    }
+
+    // without lookups the oldest key goes first: the last keys put are all still there
+    //
+    for ( int i = 996; i < 1000; i++ ) {
+      assertTrue( "key" + i + " was evicted", cache.get( bytes( "key" + i ) ) >= 0 );
+    }
+    assertEquals( 996, cache.getEvictions() );
+  }
+
+  @Test
+  public void testColdKeysAreEvicted() {
+    ByteArrayClockCache cache = new ByteArrayClockCache( 4, 0 );
+
+    // every key is looked up again two rows later: the new keys must not be evicted one after the other
+    //
+    for ( int i = 0; i < 1000; i++ ) {
+      cache.put( bytes( "key" + i ), i );
+      if ( i >= 2 ) {
+        cache.get( bytes( "key" + ( i - 2 ) ) );
+      }
+    }
+    assertTrue( "hits: " + cache.getHits(), cache.getHits() >= 998 / 2 );
+
+    // the oldest keys don't stay in the cache forever
+    //
+    for ( int i = 0; i < 10; i++ ) {
+      assertEquals( -1, cache.get( bytes( "key" + i ) ) );
+    }
+  }
+
+  @Test
+  public void testByteLimit() {
+    long entryBytes = 4 + ByteArrayClockCache.ENTRY_OVERHEAD;
+    ByteArrayClockCache cache = new ByteArrayClockCache( 0, 5 * entryBytes );
+    for ( int i = 1000; i < 1100; i++ ) {
+      cache.put( bytes( Integer.toString( i ) ), i );
+      assertTrue( cache.getBytes() <= 5 * entryBytes );
+    }
+    assertEquals( 5, cache.getSize() );
+    assertEquals( 95, cache.getEvictions() );
+
+    // a key larger than the whole budget is not stored
+    //
+    cache.put( new byte[ (int) ( 5 * entryBytes ) ], 1L );
+    assertEquals( 5, cache.getSize() );
+  }
+
+  @Test
+  public void testAgainstHashMap() {
+    ByteArrayClockCache cache = new ByteArrayClockCache( 500, 0 );
+    Map<String, Long> reference = new HashMap<>();
+    Random random = new Random( 42 );
+    for ( int i = 0; i < 100000; i++ ) {
+      String key = "key" + random.nextInt( 2000 );
+      int entry = cache.get( bytes( key ) );
+      if ( entry >= 0 ) {
+        assertEquals( reference.get( key ).longValue(), cache.getValue( entry ) );
+      } else {
+        long value = random.nextLong();
+        cache.put( bytes( key ), value );
+        reference.put( key, value );
+      }
+      assertTrue( cache.getSize() <= 500 );
+    }
+    assertEquals( 100000, cache.getHits() + cache.getMisses() );
+    assertEquals( cache.getMisses() - cache.getSize(), cache.getEvictions() );
+
+    cache.clear();
+    assertEquals( 0, cache.getSize() );
+    assertEquals( -1, cache.get( bytes( "key1" ) ) );
+  }
+
+  private static byte[] bytes( String string ) {
+    return string.getBytes( StandardCharsets.UTF_8 );
+  }
+}
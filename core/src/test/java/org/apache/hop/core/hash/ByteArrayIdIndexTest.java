@@ -0,0 +1,96 @@
+/*! ******************************************************************************
+ *
+ * Hop : The Hop Orchestration Platform
+ *
+ * http://www.project-hop.org
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+
+package org.apache.hop.core.hash;
+
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test class for the basic functionality of ByteArrayIdIndex.
+ */
+public class ByteArrayIdIndexTest {
+
+  @Test
+  public void testDenseIds() {
+    ByteArrayIdIndex index = new ByteArrayIdIndex();
+    assertTrue( index.isEmpty() );
+    assertEquals( 0, index.put( bytes( "one" ) ) );
+    assertEquals( 1, index.put( bytes( "two" ) ) );
+    assertEquals( 0, index.put( bytes( "one" ) ) );
+    assertEquals( 2, index.put( new byte[ 0 ] ) );
+    assertEquals( 3, index.getSize() );
+
+    assertEquals( 1, index.get( bytes( "two" ) ) );
+    assertEquals( 2, index.get( new byte[ 0 ] ) );
+    assertEquals( -1, index.get( bytes( "three" ) ) );
+    assertArrayEquals( bytes( "two" ), index.getKey( 1 ) );
+  }
+
+  @Test
+  public void testBufferOffsets() {
+    ByteArrayIdIndex index = new ByteArrayIdIndex();
+    byte[] buffer = bytes( "xxabcxx" );
+    int id = index.put( buffer, 2, 3 );
+    buffer[ 2 ] = 'z';
+    assertEquals( id, index.get( bytes( "abc" ) ) );
+    assertEquals( -1, index.get( buffer, 2, 3 ) );
+    assertArrayEquals( bytes( "abc" ), index.getKey( id ) );
+  }
+
+  @Test
+  public void testManyKeys() {
+    ByteArrayIdIndex index = new ByteArrayIdIndex( 10 );
+    int nrKeys = 200000;
+    for ( int i = 0; i < nrKeys; i++ ) {
+      assertEquals( i, index.put( bytes( "key-" + i ) ) );
+    }
+    // A few large keys in between should not disturb the small ones
+    //
+    byte[] large = new byte[ 500000 ];
+    new Random( 123 ).nextBytes( large );
+    assertEquals( nrKeys, index.put( large ) );
+    assertEquals( nrKeys + 1, index.put( bytes( "after-large" ) ) );
+
+    for ( int i = 0; i < nrKeys; i++ ) {
+      assertEquals( i, index.get( bytes( "key-" + i ) ) );
+    }
+    assertArrayEquals( large, index.getKey( nrKeys ) );
+    assertArrayEquals( bytes( "after-large" ), index.getKey( nrKeys + 1 ) );
+    assertTrue( index.getMemoryUsage() > large.length );
+
+    index.clear();
+    assertEquals( 0, index.getSize() );
+    assertEquals( -1, index.get( bytes( "key-1" ) ) );
+  }
+
+  private static byte[] bytes( String string ) {
+    return string.getBytes( StandardCharsets.UTF_8 );
+  }
+}
@@ -0,0 +1,79 @@
+/*! ******************************************************************************
+ *
+ * Hop : The Hop Orchestration Platform
+ *
+ * http://www.project-hop.org
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+
+package org.apache.hop.core.hash;
+
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test class for the basic functionality of LongHashSet.
+ */
+public class LongHashSetTest {
+
+  @Test
+  public void testAddContains() {
+    LongHashSet set = new LongHashSet();
+    assertTrue( set.add( 0L ) );
+    assertFalse( set.add( 0L ) );
+    assertTrue( set.add( -1L ) );
+    assertTrue( set.add( Long.MIN_VALUE ) );
+    assertFalse( set.add( -1L ) );
+    assertEquals( 3, set.getSize() );
+    assertTrue( set.contains( 0L ) );
+    assertTrue( set.contains( Long.MIN_VALUE ) );
+    assertFalse( set.contains( 1L ) );
+
+    set.clear();
+    assertTrue( set.isEmpty() );
+    assertFalse( set.contains( 0L ) );
+  }
+
+  @Test
+  public void testCompareWithHashSet() {
+    LongHashSet set = new LongHashSet( 4 );
+    Set<Long> reference = new HashSet<>();
+    Random random = new Random( 42 );
+    for ( int i = 0; i < 100000; i++ ) {
+      long value = random.nextInt( 50000 ) * 0x100000000L;
+      assertEquals( reference.add( value ), set.add( value ) );
+    }
+    assertEquals( reference.size(), set.getSize() );
+    for ( long value : reference ) {
+      assertTrue( set.contains( value ) );
+    }
+
+    long[] values = set.toArray();
+    assertEquals( reference.size(), values.length );
+    for ( long value : values ) {
+      assertTrue( reference.remove( value ) );
+    }
+  }
+}
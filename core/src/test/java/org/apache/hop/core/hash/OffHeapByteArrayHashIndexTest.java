@@ -0,0 +1,93 @@
+/*! ******************************************************************************
+ *
+ * Hop : The Hop Orchestration Platform
+ *
+ * http://www.project-hop.org
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+
+package org.apache.hop.core.hash;
+
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test class for the basic functionality of OffHeapByteArrayHashIndex.
+ */
+public class OffHeapByteArrayHashIndexTest {
+
+  @Test
+  public void testGetAndPut() {
+    OffHeapByteArrayHashIndex index = new OffHeapByteArrayHashIndex();
+    assertTrue( index.isEmpty() );
+    index.put( bytes( "one" ), bytes( "1" ) );
+    index.put( bytes( "two" ), bytes( "2" ) );
+    index.put( bytes( "one" ), bytes( "11" ) );
+
+    assertEquals( 2, index.getSize() );
+    assertArrayEquals( bytes( "11" ), index.get( bytes( "one" ) ) );
+    assertArrayEquals( bytes( "2" ), index.get( bytes( "two" ) ) );
+    assertNull( index.get( bytes( "three" ) ) );
+    index.close();
+  }
+
+  @Test
+  public void testResizeAndMultipleBlocks() {
+    OffHeapByteArrayHashIndex index = new OffHeapByteArrayHashIndex( 4, 256 );
+    for ( int i = 0; i < 10000; i++ ) {
+      index.put( bytes( "key" + i ), bytes( "value" + i ) );
+    }
+    assertEquals( 10000, index.getSize() );
+    for ( int i = 0; i < 10000; i++ ) {
+      assertArrayEquals( bytes( "value" + i ), index.get( bytes( "key" + i ) ) );
+    }
+    assertTrue( index.getBytesAllocated() > 256 );
+    assertTrue( index.getBytesAllocated() >= index.getBytesUsed() );
+  }
+
+  @Test
+  public void testEntryLargerThanBlock() {
+    OffHeapByteArrayHashIndex index = new OffHeapByteArrayHashIndex( 16, 16 );
+    byte[] value = new byte[ 1000 ];
+    value[ 999 ] = 42;
+    index.put( bytes( "small" ), bytes( "s" ) );
+    index.put( bytes( "large" ), value );
+    assertArrayEquals( value, index.get( bytes( "large" ) ) );
+    assertArrayEquals( bytes( "s" ), index.get( bytes( "small" ) ) );
+  }
+
+  @Test( expected = IllegalStateException.class )
+  public void testClosedIndex() {
+    OffHeapByteArrayHashIndex index = new OffHeapByteArrayHashIndex();
+    index.put( bytes( "one" ), bytes( "1" ) );
+    index.close();
+    assertTrue( index.isClosed() );
+    assertEquals( 0L, index.getBytesAllocated() );
+    index.get( bytes( "one" ) );
+  }
+
+  private static byte[] bytes( String s ) {
+    return s.getBytes( StandardCharsets.UTF_8 );
+  }
+}
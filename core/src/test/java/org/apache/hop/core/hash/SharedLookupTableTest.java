@@ -0,0 +1,107 @@
+/*! ******************************************************************************
+ *
+ * Hop : The Hop Orchestration Platform
+ *
+ * http://www.project-hop.org
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+
+package org.apache.hop.core.hash;
+
+import org.apache.hop.core.exception.HopException;
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test class for the registration, building and eviction of SharedLookupTable.
+ */
+public class SharedLookupTableTest {
+
+  @Test
+  public void testBuildOnceAndShare() throws Exception {
+    SharedLookupTable<OffHeapByteArrayHashIndex> first = SharedLookupTable.attach( "testBuildOnceAndShare" );
+    SharedLookupTable<OffHeapByteArrayHashIndex> second = SharedLookupTable.attach( "testBuildOnceAndShare" );
+    assertSame( first, second );
+    assertEquals( 2, SharedLookupTable.getReferences( "testBuildOnceAndShare" ) );
+
+    assertTrue( first.startBuilding() );
+    assertFalse( second.startBuilding() );
+
+    AtomicReference<Object> waited = new AtomicReference<>();
+    Thread waiter = new Thread( () -> {
+      try {
+        waited.set( second.waitForTable( () -> false ) );
+      } catch ( HopException e ) {
+        waited.set( e );
+      }
+    } );
+    waiter.start();
+
+    OffHeapByteArrayHashIndex table = new OffHeapByteArrayHashIndex();
+    first.publish( table );
+    waiter.join( 10000L );
+    assertSame( table, waited.get() );
+
+    first.release();
+    assertEquals( 1, SharedLookupTable.getReferences( "testBuildOnceAndShare" ) );
+    assertFalse( table.isClosed() );
+
+    second.release();
+    assertEquals( 0, SharedLookupTable.getReferences( "testBuildOnceAndShare" ) );
+    assertTrue( table.isClosed() );
+
+    // Releasing twice doesn't affect a new registration under the same name
+    //
+    SharedLookupTable<OffHeapByteArrayHashIndex> third = SharedLookupTable.attach( "testBuildOnceAndShare" );
+    second.release();
+    assertEquals( 1, SharedLookupTable.getReferences( "testBuildOnceAndShare" ) );
+    assertTrue( third.startBuilding() );
+    third.release();
+  }
+
+  @Test( expected = HopException.class )
+  public void testFailedBuild() throws Exception {
+    SharedLookupTable<Object> builder = SharedLookupTable.attach( "testFailedBuild" );
+    SharedLookupTable<Object> reader = SharedLookupTable.attach( "testFailedBuild" );
+    try {
+      assertTrue( builder.startBuilding() );
+      builder.fail();
+      reader.waitForTable( () -> false );
+    } finally {
+      builder.release();
+      reader.release();
+    }
+  }
+
+  @Test
+  public void testWaitWhenStopped() throws Exception {
+    SharedLookupTable<Object> reader = SharedLookupTable.attach( "testWaitWhenStopped" );
+    try {
+      assertNull( reader.waitForTable( () -> true ) );
+    } finally {
+      reader.release();
+    }
+  }
+}
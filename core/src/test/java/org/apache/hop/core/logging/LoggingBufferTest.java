@@ -25,7 +25,10 @@ import org.apache.hop.core.Const;
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Iterator;
+import java.util.List;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.atomic.AtomicBoolean;
 
@@ -175,4 +178,135 @@ public class LoggingBufferTest {
     Assert.assertEquals( 10, loggingBuffer.size() );
   }
 
+  @Test
+  public void testGetLogBufferFromToUsesChannels() {
+    LoggingBuffer loggingBuffer = new LoggingBuffer( 100 );
+    for ( int i = 0; i < 30; i++ ) {
+      addEvent( loggingBuffer, "line " + i, String.valueOf( i % 3 ) );
+    }
+    int first = loggingBuffer.getLastBufferLineNr() - 30;
+
+    List<HopLoggingEvent> events = loggingBuffer.getLogBufferFromTo( Arrays.asList( "0", "2" ), false, first, first + 30 );
+    Assert.assertEquals( 20, events.size() );
+    // The lines of both channels come back in the order they were logged
+    for ( int i = 0, line = 0; i < events.size(); i++, line++ ) {
+      if ( line % 3 == 1 ) {
+        line++;
+      }
+      Assert.assertEquals( "line " + line, ( (LogMessage) events.get( i ).getMessage() ).getMessage() );
+    }
+
+    events = loggingBuffer.getLogBufferFromTo( Collections.singletonList( "1" ), false, first + 10, first + 20 );
+    Assert.assertEquals( 4, events.size() );
+    Assert.assertEquals( "line 10", ( (LogMessage) events.get( 0 ).getMessage() ).getMessage() );
+
+    Assert.assertEquals( 30, loggingBuffer.getLogBufferFromTo( (List<String>) null, false, first, first + 30 ).size() );
+    Assert.assertEquals( 0, loggingBuffer.getLogBufferFromTo( Collections.singletonList( "unknown" ), false, first, first + 30 ).size() );
+  }
+
+  @Test
+  public void testEvictionUpdatesChannels() {
+    LoggingBuffer loggingBuffer = new LoggingBuffer( 10 );
+    for ( int i = 0; i < 5; i++ ) {
+      addEvent( loggingBuffer, "old " + i, "old" );
+    }
+    for ( int i = 0; i < 8; i++ ) {
+      addEvent( loggingBuffer, "new " + i, "new" );
+    }
+    int last = loggingBuffer.getLastBufferLineNr();
+
+    Assert.assertEquals( 10, loggingBuffer.size() );
+    List<HopLoggingEvent> events = loggingBuffer.getLogBufferFromTo( Collections.singletonList( "old" ), false, 0, last );
+    Assert.assertEquals( 2, events.size() );
+    Assert.assertEquals( "old 3", ( (LogMessage) events.get( 0 ).getMessage() ).getMessage() );
+
+    loggingBuffer.removeChannelFromBuffer( "old" );
+    Assert.assertEquals( 8, loggingBuffer.size() );
+    Assert.assertEquals( 0, loggingBuffer.getLogBufferFromTo( Collections.singletonList( "old" ), false, 0, last ).size() );
+    Assert.assertEquals( 8, loggingBuffer.getLogBufferFromTo( Collections.singletonList( "new" ), false, 0, last ).size() );
+    Assert.assertEquals( last, loggingBuffer.getLastBufferLineNr() );
+
+    // The buffer keeps filling up after removing lines
+    for ( int i = 0; i < 20; i++ ) {
+      addEvent( loggingBuffer, "newer " + i, "new" );
+    }
+    Assert.assertEquals( 10, loggingBuffer.size() );
+    Assert.assertEquals( 10, loggingBuffer.getLogBufferFromTo( Collections.singletonList( "new" ), false, 0, last + 20 ).size() );
+  }
+
+  @Test
+  public void testUnlimitedBufferAndResize() {
+    LoggingBuffer loggingBuffer = new LoggingBuffer( 0 );
+    for ( int i = 0; i < 5000; i++ ) {
+      addEvent( loggingBuffer, "line " + i, "channel" );
+    }
+    Assert.assertEquals( 5000, loggingBuffer.size() );
+
+    loggingBuffer.setMaxNrLines( 100 );
+    Assert.assertEquals( 100, loggingBuffer.size() );
+    Iterator<BufferLine> it = loggingBuffer.getBufferIterator();
+    Assert.assertEquals( "line 4900", ( (LogMessage) it.next().getEvent().getMessage() ).getMessage() );
+
+    addEvent( loggingBuffer, "line 5000", "channel" );
+    Assert.assertEquals( 100, loggingBuffer.size() );
+    int last = loggingBuffer.getLastBufferLineNr();
+    List<HopLoggingEvent> events = loggingBuffer.getLogBufferFromTo( Collections.singletonList( "channel" ), false, 0, last );
+    Assert.assertEquals( 100, events.size() );
+    Assert.assertEquals( "line 4901", ( (LogMessage) events.get( 0 ).getMessage() ).getMessage() );
+    Assert.assertEquals( "line 5000", ( (LogMessage) events.get( 99 ).getMessage() ).getMessage() );
+  }
+
+  @Test
+  public void testRemovedChannelsDontGrowUnlimitedBuffer() {
+    LoggingBuffer loggingBuffer = new LoggingBuffer( 0 );
+
+    // A server running pipelines one after the other, removing the lines of every finished pipeline
+    //
+    for ( int i = 0; i < 1000; i++ ) {
+      for ( int j = 0; j < 50; j++ ) {
+        addEvent( loggingBuffer, "pipeline line " + j, "pipeline" + i );
+      }
+      addEvent( loggingBuffer, "server line " + i, "server" );
+      loggingBuffer.removeChannelFromBuffer( "pipeline" + i );
+    }
+    Assert.assertEquals( 1000, loggingBuffer.size() );
+    Assert.assertTrue( "capacity " + loggingBuffer.getCapacity(), loggingBuffer.getCapacity() <= 4096 );
+
+    Iterator<BufferLine> it = loggingBuffer.getBufferIterator();
+    for ( int i = 0; i < 1000; i++ ) {
+      Assert.assertEquals( "server line " + i, ( (LogMessage) it.next().getEvent().getMessage() ).getMessage() );
+    }
+    Assert.assertFalse( it.hasNext() );
+  }
+
+  @Test
+  public void testRemovedChannelsDontEvictLinesOfBoundedBuffer() {
+    LoggingBuffer loggingBuffer = new LoggingBuffer( 100 );
+    for ( int i = 0; i < 1000; i++ ) {
+      for ( int j = 0; j < 10; j++ ) {
+        addEvent( loggingBuffer, "pipeline line " + j, "pipeline" + i );
+      }
+      addEvent( loggingBuffer, "server line " + i, "server" );
+      loggingBuffer.removeChannelFromBuffer( "pipeline" + i );
+
+      // The holes left by the removed lines don't count, only the lines of the running pipeline push out server lines
+      //
+      Assert.assertEquals( Math.min( i + 1, 90 ), loggingBuffer.size() );
+      Assert.assertEquals( 200, loggingBuffer.getCapacity() );
+    }
+
+    int last = loggingBuffer.getLastBufferLineNr();
+    List<HopLoggingEvent> events = loggingBuffer.getLogBufferFromTo( Collections.singletonList( "server" ), false, 0, last );
+    Assert.assertEquals( 90, events.size() );
+    Assert.assertEquals( "server line 910", ( (LogMessage) events.get( 0 ).getMessage() ).getMessage() );
+    Assert.assertEquals( "server line 999", ( (LogMessage) events.get( 89 ).getMessage() ).getMessage() );
+  }
+
+  private static void addEvent( LoggingBuffer loggingBuffer, String message, String logChannelId ) {
+    HopLoggingEvent event = new HopLoggingEvent();
+    event.setMessage( new LogMessage( message, logChannelId, LogLevel.BASIC ) );
+    event.setTimeStamp( System.currentTimeMillis() );
+    loggingBuffer.addLogggingEvent( event );
+  }
+
 }
@@ -0,0 +1,190 @@
+/*! ******************************************************************************
+ *
+ * Hop : The Hop Orchestration Platform
+ *
+ * http://www.project-hop.org
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+
+package org.apache.hop.core.row;
+
+import org.apache.hop.core.row.value.ValueMetaBinary;
+import org.apache.hop.core.row.value.ValueMetaInteger;
+import org.apache.hop.core.row.value.ValueMetaString;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.util.Locale;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class FrozenRowMetaTest {
+  RowMeta rowMeta;
+  FrozenRowMeta frozen;
+
+  @Before
+  public void setUp() {
+    rowMeta = new RowMeta();
+    rowMeta.addValueMeta( new ValueMetaString( "Name" ) );
+    rowMeta.addValueMeta( new ValueMetaInteger( "id" ) );
+    rowMeta.addValueMeta( new ValueMetaBinary( "bin" ) );
+    frozen = rowMeta.freeze();
+  }
+
+  @Test
+  public void testReadAccess() {
+    assertTrue( frozen.isImmutable() );
+    assertFalse( rowMeta.isImmutable() );
+    assertSame( frozen, frozen.asImmutable() );
+    assertEquals( 3, frozen.size() );
+    assertFalse( frozen.isEmpty() );
+    assertSame( rowMeta.getValueMeta( 1 ), frozen.getValueMeta( 1 ) );
+    assertNull( frozen.getValueMeta( 3 ) );
+    assertNull( frozen.getValueMeta( -1 ) );
+    assertArrayEquals( new String[] { "Name", "id", "bin" }, frozen.getFieldNames() );
+    assertEquals( 3, frozen.getValueMetaList().size() );
+  }
+
+  @Test
+  public void testIndexOfValueDoesNotDependOnTheLocale() {
+    Locale locale = Locale.getDefault();
+    try {
+      // In Turkish "I".toLowerCase() is a dotless i
+      //
+      Locale.setDefault( new Locale( "tr", "TR" ) );
+      RowMeta turkish = new RowMeta();
+      turkish.addValueMeta( new ValueMetaInteger( "ID" ) );
+      turkish.addValueMeta( new ValueMetaString( "title" ) );
+      FrozenRowMeta frozenTurkish = turkish.freeze();
+
+      assertEquals( 0, frozenTurkish.indexOfValue( "id" ) );
+      assertEquals( 0, frozenTurkish.indexOfValue( "Id" ) );
+      assertEquals( 1, frozenTurkish.indexOfValue( "TITLE" ) );
+
+      // like String.equalsIgnoreCase(), which matches the dotless i with I
+      //
+      assertEquals( 1, frozenTurkish.indexOfValue( "t\u0131tle" ) );
+    } finally {
+      Locale.setDefault( locale );
+    }
+  }
+
+  @Test
+  public void testIndexOfValueIsCaseInsensitive() {
+    assertEquals( 0, frozen.indexOfValue( "name" ) );
+    assertEquals( 0, frozen.indexOfValue( "NAME" ) );
+    assertEquals( 1, frozen.indexOfValue( "id" ) );
+    assertEquals( -1, frozen.indexOfValue( "unknown" ) );
+    assertEquals( -1, frozen.indexOfValue( null ) );
+    assertSame( frozen.getValueMeta( 2 ), frozen.searchValueMeta( "BIN" ) );
+    assertNull( frozen.searchValueMeta( "unknown" ) );
+  }
+
+  @Test
+  public void testMutationsFailFast() throws Exception {
+    try {
+      frozen.addValueMeta( new ValueMetaString( "extra" ) );
+      fail( "Adding a value to frozen row metadata should fail" );
+    } catch ( UnsupportedOperationException e ) {
+      // expected
+    }
+    try {
+      frozen.removeValueMeta( 0 );
+      fail( "Removing a value from frozen row metadata should fail" );
+    } catch ( UnsupportedOperationException e ) {
+      // expected
+    }
+    try {
+      frozen.mergeRowMeta( new RowMeta() );
+      fail( "Merging into frozen row metadata should fail" );
+    } catch ( UnsupportedOperationException e ) {
+      // expected
+    }
+    try {
+      frozen.getValueMetaList().add( new ValueMetaString( "extra" ) );
+      fail( "The list of values of frozen row metadata should be unmodifiable" );
+    } catch ( UnsupportedOperationException e ) {
+      // expected
+    }
+    assertEquals( 3, frozen.size() );
+  }
+
+  @Test
+  public void testCloneIsMutable() {
+    IRowMeta clone = frozen.clone();
+    assertFalse( clone.isImmutable() );
+    clone.addValueMeta( new ValueMetaString( "extra" ) );
+    assertEquals( 4, clone.size() );
+    assertEquals( 3, frozen.size() );
+  }
+
+  @Test
+  public void testLaterChangesAreNotVisible() {
+    rowMeta.addValueMeta( new ValueMetaString( "extra" ) );
+    assertEquals( 3, frozen.size() );
+    assertEquals( -1, frozen.indexOfValue( "extra" ) );
+  }
+
+  @Test
+  public void testCloneRow() throws Exception {
+    byte[] binary = new byte[] { 1, 2 };
+    Object[] row = new Object[] { "a", 1L, binary };
+    Object[] clone = frozen.cloneRow( row );
+    assertNotSame( row, clone );
+    assertSame( row[ 0 ], clone[ 0 ] );
+    assertNotSame( binary, clone[ 2 ] );
+    assertArrayEquals( binary, (byte[]) clone[ 2 ] );
+  }
+
+  @Test
+  public void testCompare() throws Exception {
+    Object[] row1 = new Object[] { "a", 1L, null };
+    Object[] row2 = new Object[] { "a", 2L, null };
+    assertEquals( rowMeta.compare( row1, row2 ), frozen.compare( row1, row2 ) );
+    assertEquals( rowMeta.compare( row1, row2, new int[] { 1 } ), frozen.compare( row1, row2, new int[] { 1 } ) );
+    assertEquals( 0, frozen.compare( row1, row2, new int[] { 0 } ) );
+    assertTrue( frozen.equals( row1, row2, new int[] { 0 } ) );
+    assertFalse( frozen.equals( row1, row2, new int[] { 0, 1 } ) );
+  }
+
+  @Test
+  public void testWriteReadData() throws Exception {
+    Object[] row = new Object[] { "a", 1L, new byte[] { 3 } };
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    frozen.writeData( new DataOutputStream( out ), row );
+
+    Object[] read = rowMeta.readData( new DataInputStream( new ByteArrayInputStream( out.toByteArray() ) ) );
+    assertEquals( "a", read[ 0 ] );
+    assertEquals( 1L, read[ 1 ] );
+    assertArrayEquals( new byte[] { 3 }, (byte[]) read[ 2 ] );
+
+    read = frozen.readData( new DataInputStream( new ByteArrayInputStream( out.toByteArray() ) ) );
+    assertEquals( "a", read[ 0 ] );
+  }
+}
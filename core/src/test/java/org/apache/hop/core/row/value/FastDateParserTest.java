@@ -0,0 +1,151 @@
+/*! ******************************************************************************
+ *
+ * Hop : The Hop Orchestration Platform
+ *
+ * Copyright (C) 2002-2018 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+
+package org.apache.hop.core.row.value;
+
+import org.apache.hop.core.row.value.timestamp.SimpleTimestampFormat;
+import org.junit.Test;
+
+import java.text.ParsePosition;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.TimeZone;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class FastDateParserTest {
+
+  private static final String[] INPUTS = new String[] {
+    "2020/01/05 12:34:56.789", "2020/02/29 00:00:00.000", "2019/02/29 00:00:00.000", "2020/13/01 00:00:00.000",
+    "2020/1/5 12:34:56.789", "2020/01/05 12:34:56.7890", "2020/01/05 12:34:56.789 extra", "2020/01/05 24:00:00.000",
+    "2020/01/05", "1500/01/05 12:34:56.789", "2020/03/29 02:30:00.000", "2020/10/25 02:30:00.000",
+    "2020-01-05 12:34:56", "2020-01-05", "2020-01-05T12:34:56", "20200105", "05/01/2020", "2020-01-05 12:34:56x",
+    "2020-01-0512", "2020-12-31 23:59:59", "-2020-01-05", " 2020-01-05", "2020-01-05 ", "9999-12-31 23:59:59",
+  };
+
+  private static final String[] MASKS = new String[] {
+    "yyyy/MM/dd HH:mm:ss.SSS", "yyyy-MM-dd HH:mm:ss", "yyyy-MM-dd", "yyyy-MM-dd'T'HH:mm:ss", "yyyyMMdd",
+    "dd/MM/yyyy", "MM/dd/yyyy HH:mm",
+  };
+
+  @Test
+  public void testSameResultAsSimpleDateFormat() {
+    for ( String timeZone : new String[] { "UTC", "Europe/Brussels", "America/New_York", "Asia/Kolkata" } ) {
+      for ( String mask : MASKS ) {
+        for ( boolean lenient : new boolean[] { true, false } ) {
+          SimpleDateFormat format = new SimpleDateFormat( mask );
+          format.setTimeZone( TimeZone.getTimeZone( timeZone ) );
+          format.setLenient( lenient );
+          FastDateParser parser = FastDateParser.compile( format );
+          assertTrue( mask, parser.isSupported() );
+
+          for ( String input : INPUTS ) {
+            Date fast = parser.parse( input );
+            if ( fast != null ) {
+              ParsePosition position = new ParsePosition( 0 );
+              Date expected = format.parse( input, position );
+              assertTrue( mask + " : " + input, position.getErrorIndex() < 0 );
+              assertEquals( mask + " : " + input + " in " + timeZone, expected, fast );
+            }
+          }
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testParse() {
+    SimpleDateFormat format = new SimpleDateFormat( "yyyy/MM/dd HH:mm:ss.SSS" );
+    format.setTimeZone( TimeZone.getTimeZone( "UTC" ) );
+    FastDateParser parser = FastDateParser.compile( format );
+
+    assertEquals( new Date( 1578227696789L ), parser.parse( "2020/01/05 12:34:56.789" ) );
+    assertEquals( new Date( 1578227696789L ), parser.parse( "2020/01/05 12:34:56.789 CET" ) );
+
+    // These are left to SimpleDateFormat
+    //
+    assertNull( parser.parse( "2020/01/05" ) );
+    assertNull( parser.parse( "2020/1/05 12:34:56.789" ) );
+    assertNull( parser.parse( "2020/01/05 12:34:56.7890" ) );
+    assertNull( parser.parse( "2020/02/30 12:34:56.789" ) );
+    assertNull( parser.parse( "1500/01/05 12:34:56.789" ) );
+  }
+
+  @Test
+  public void testDaylightSavingTime() {
+    SimpleDateFormat format = new SimpleDateFormat( "yyyy-MM-dd HH:mm" );
+    format.setTimeZone( TimeZone.getTimeZone( "Europe/Brussels" ) );
+    FastDateParser parser = FastDateParser.compile( format );
+
+    assertEquals( new Date( 1585445400000L ), parser.parse( "2020-03-29 03:30" ) );
+    assertNull( parser.parse( "2020-03-29 02:30" ) ); // gap
+    assertNull( parser.parse( "2020-10-25 02:30" ) ); // overlap
+  }
+
+  @Test
+  public void testTimeZoneRulesOfSimpleDateFormat() {
+    // java.time uses local mean time before 1900 and follows the transitions of every future year, TimeZone doesn't
+    //
+    assertSameResult( "Europe/Amsterdam", "yyyy/MM/dd HH:mm:ss", "1899/12/31 23:00:00" );
+    assertSameResult( "Europe/Amsterdam", "yyyy/MM/dd HH:mm:ss", "1900/01/01 00:30:00" );
+    assertSameResult( "Europe/Amsterdam", "yyyy/MM/dd HH:mm:ss", "1937/07/01 12:00:00" );
+    for ( int year = 2030; year <= 2090; year += 3 ) {
+      for ( int month = 1; month <= 12; month++ ) {
+        assertSameResult( "Africa/Casablanca", "yyyy-MM-dd HH:mm", String.format( "%d-%02d-15 12:00", year, month ) );
+      }
+    }
+
+    for ( String timeZone : TimeZone.getAvailableIDs() ) {
+      for ( String input : new String[] { "1899-12-31 23:00", "1900-01-01 00:30", "1950-06-30 12:00",
+        "2040-01-15 12:00", "2040-07-15 12:00", "2087-04-15 12:00" } ) {
+        assertSameResult( timeZone, "yyyy-MM-dd HH:mm", input );
+      }
+    }
+  }
+
+  private static void assertSameResult( String timeZone, String mask, String input ) {
+    SimpleDateFormat format = new SimpleDateFormat( mask );
+    format.setTimeZone( TimeZone.getTimeZone( timeZone ) );
+    Date fast = FastDateParser.compile( format ).parse( input );
+    if ( fast != null ) {
+      assertEquals( mask + " : " + input + " in " + timeZone, format.parse( input, new ParsePosition( 0 ) ), fast );
+    }
+  }
+
+  @Test
+  public void testUnsupportedFormats() {
+    assertFalse( FastDateParser.compile( new SimpleDateFormat( "yy-MM-dd" ) ).isSupported() );
+    assertFalse( FastDateParser.compile( new SimpleDateFormat( "dd MMM yyyy" ) ).isSupported() );
+    assertFalse( FastDateParser.compile( new SimpleDateFormat( "yyyy-MM-dd hh:mm a" ) ).isSupported() );
+    assertFalse( FastDateParser.compile( new SimpleDateFormat( "HH:mm:ss" ) ).isSupported() );
+    assertFalse( FastDateParser.compile( new SimpleDateFormat( "yyyy-MM-dd''HH" ) ).isSupported() );
+    assertFalse( FastDateParser.compile( new SimpleDateFormat( "yyyy-MM-dd", new Locale( "th", "TH" ) ) )
+      .isSupported() );
+    assertFalse( FastDateParser.compile( new SimpleTimestampFormat( "yyyy-MM-dd" ) ).isSupported() );
+    assertNull( FastDateParser.compile( new SimpleDateFormat( "yy-MM-dd" ) ).parse( "20-01-05" ) );
+  }
+}
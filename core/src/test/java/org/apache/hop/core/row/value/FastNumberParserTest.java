@@ -0,0 +1,117 @@
+/*! ******************************************************************************
+ *
+ * Hop : The Hop Orchestration Platform
+ *
+ * Copyright (C) 2002-2018 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+
+package org.apache.hop.core.row.value;
+
+import org.junit.Test;
+
+import java.text.DecimalFormat;
+import java.text.DecimalFormatSymbols;
+import java.text.ParsePosition;
+import java.util.Locale;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class FastNumberParserTest {
+
+  private static final String[] INPUTS = new String[] {
+    "0", "-0", "1", "-1", "007", "1234567890", "123456789012345678", "1234567890123456789", "1.5", "-1.5", ".5",
+    "-.5", "5.", "0.1", "3.14159265358979", "-", ".", "", "1,234", "1,234.5", "1.2.3", "1e5", "+5", "5-", " 5",
+    "5 ", "12abc", "0.000000000000001", "99999999999999999.9",
+  };
+
+  private static final String[] MASKS = new String[] {
+    "####0.0#########", "####0", "#,##0.00", "0.00", "######0.0###################",
+  };
+
+  @Test
+  public void testSameResultAsDecimalFormat() {
+    for ( String mask : MASKS ) {
+      DecimalFormat format = (DecimalFormat) DecimalFormat.getInstance( Locale.US );
+      format.applyPattern( mask );
+      FastNumberParser parser = FastNumberParser.compile( format );
+      assertTrue( mask, parser.isSupported() );
+
+      for ( String input : INPUTS ) {
+        Double number = parser.parseNumber( input );
+        if ( number != null ) {
+          assertEquals( mask + " : " + input, parse( format, input ).doubleValue(), number, 0.0 );
+          assertEquals( mask + " : " + input, Double.doubleToLongBits( parse( format, input ).doubleValue() ),
+            Double.doubleToLongBits( number ) );
+        }
+        Long integer = parser.parseInteger( input );
+        if ( integer != null ) {
+          assertEquals( mask + " : " + input, parse( format, input ).longValue(), integer.longValue() );
+        }
+      }
+    }
+  }
+
+  private static Number parse( DecimalFormat format, String input ) {
+    ParsePosition position = new ParsePosition( 0 );
+    Number number = format.parse( input, position );
+    assertEquals( input, input.length(), position.getIndex() );
+    return number;
+  }
+
+  @Test
+  public void testParse() {
+    DecimalFormat format = (DecimalFormat) DecimalFormat.getInstance( Locale.US );
+    format.applyPattern( "####0.0#########" );
+    FastNumberParser parser = FastNumberParser.compile( format );
+
+    assertEquals( -12.75, parser.parseNumber( "-12.75" ), 0.0 );
+    assertEquals( Long.valueOf( -1275 ), parser.parseInteger( "-1275" ) );
+
+    // These are left to the decimal format
+    //
+    assertNull( parser.parseNumber( "1,275.5" ) );
+    assertNull( parser.parseNumber( "12abc" ) );
+    assertNull( parser.parseNumber( "1234567890123456789" ) );
+    assertNull( parser.parseInteger( "12.5" ) );
+    assertNull( parser.parseInteger( "-" ) );
+  }
+
+  @Test
+  public void testDecimalSeparator() {
+    DecimalFormatSymbols symbols = new DecimalFormatSymbols( Locale.US );
+    symbols.setDecimalSeparator( ',' );
+    symbols.setGroupingSeparator( '.' );
+    DecimalFormat format = new DecimalFormat( "#,##0.00", symbols );
+    FastNumberParser parser = FastNumberParser.compile( format );
+
+    assertEquals( 1234.5, parser.parseNumber( "1234,5" ), 0.0 );
+    assertNull( parser.parseNumber( "1.234,5" ) );
+  }
+
+  @Test
+  public void testUnsupportedFormats() {
+    assertFalse( FastNumberParser.compile( new DecimalFormat( "0.00%" ) ).isSupported() );
+    assertFalse( FastNumberParser.compile( new DecimalFormat( "$0.00" ) ).isSupported() );
+    assertFalse( FastNumberParser.compile( new DecimalFormat( "0.00;(0.00)" ) ).isSupported() );
+    assertNull( FastNumberParser.compile( new DecimalFormat( "0.00%" ) ).parseNumber( "5" ) );
+  }
+}
@@ -0,0 +1,94 @@
+/*! ******************************************************************************
+ *
+ * Hop : The Hop Orchestration Platform
+ *
+ * Copyright (C) 2002-2017 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.apache.hop.core.compress;
+
+import java.util.Arrays;
+
+/**
+ * The offsets and uncompressed sizes of the independently compressed blocks of a file.
+ *
+ * @see ISplittableCompressionProvider
+ */
+public class CompressedBlockIndex {
+
+  private long[] offsets;
+  private long[] uncompressedSizes;
+  private int size;
+
+  public CompressedBlockIndex() {
+    offsets = new long[ 64 ];
+    uncompressedSizes = new long[ 64 ];
+  }
+
+  /**
+   * Adds the next block of the file to the index.
+   *
+   * @param offset           The offset of the block in the compressed file
+   * @param uncompressedSize The size of the data in the block once decompressed
+   */
+  public void addBlock( long offset, long uncompressedSize ) {
+    if ( size == offsets.length ) {
+      offsets = Arrays.copyOf( offsets, size * 2 );
+      uncompressedSizes = Arrays.copyOf( uncompressedSizes, size * 2 );
+    }
+    offsets[ size ] = offset;
+    uncompressedSizes[ size ] = uncompressedSize;
+    size++;
+  }
+
+  /**
+   * @return the number of blocks in the file
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * @param block The block number
+   * @return the offset of the block in the compressed file
+   */
+  public long getOffset( int block ) {
+    return offsets[ block ];
+  }
+
+  /**
+   * @param block The block number
+   * @return the size of the data in the block once decompressed
+   */
+  public long getUncompressedSize( int block ) {
+    return uncompressedSizes[ block ];
+  }
+
+  /**
+   * @param fromBlock The first block, inclusive
+   * @param toBlock   The last block, exclusive
+   * @return the size of the data in the range of blocks once decompressed
+   */
+  public long getUncompressedSize( int fromBlock, int toBlock ) {
+    long total = 0L;
+    for ( int i = fromBlock; i < toBlock; i++ ) {
+      total += uncompressedSizes[ i ];
+    }
+    return total;
+  }
+}
@@ -0,0 +1,54 @@
+/*! ******************************************************************************
+ *
+ * Hop : The Hop Orchestration Platform
+ *
+ * Copyright (C) 2002-2017 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.apache.hop.core.compress;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.FileChannel;
+
+/**
+ * A compression provider for formats that consist of independently compressed blocks. The files of such a format can
+ * be split in ranges of blocks which are decompressed and read in parallel.
+ */
+public interface ISplittableCompressionProvider extends ICompressionProvider {
+
+  /**
+   * Builds the index of the compressed blocks of a file without decompressing them.
+   *
+   * @param channel The channel of the compressed file, its position is not changed
+   * @return the index of the blocks or null if the file is not made of independently compressed blocks
+   * @throws IOException
+   */
+  CompressedBlockIndex createBlockIndex( FileChannel channel ) throws IOException;
+
+  /**
+   * Creates an input stream that decompresses the file starting with the block at the given offset until the end of the
+   * file.
+   *
+   * @param channel The channel of the compressed file
+   * @param offset  The offset of the first block to decompress, as found in the block index
+   * @return an input stream with the decompressed data
+   * @throws IOException
+   */
+  InputStream createBlockInputStream( FileChannel channel, long offset ) throws IOException;
+}
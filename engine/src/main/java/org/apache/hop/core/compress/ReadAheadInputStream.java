@@ -0,0 +1,190 @@
+/*! ******************************************************************************
+ *
+ * Hop : The Hop Orchestration Platform
+ *
+ * Copyright (C) 2002-2017 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.apache.hop.core.compress;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * An input stream that reads its source in a background thread, ahead of the consumer. Wrapped around a decompressing
+ * stream, the decompression runs on its own core while the data of the previous buffers is being parsed.
+ * <p>
+ * The buffers are recycled: at most the given number of buffers is filled ahead of the consumer.
+ */
+public class ReadAheadInputStream extends InputStream {
+
+  public static final int DEFAULT_BUFFER_SIZE = 1024 * 1024;
+  public static final int DEFAULT_NR_BUFFERS = 4;
+
+  private static final Chunk END = new Chunk( new byte[ 0 ] );
+
+  private final InputStream in;
+  private final BlockingQueue<Chunk> filled;
+  private final BlockingQueue<Chunk> free;
+  private final Thread reader;
+
+  private IOException error;
+  private volatile boolean closed;
+
+  private Chunk current;
+  private int position;
+  private boolean endReached;
+
+  public ReadAheadInputStream( InputStream in ) {
+    this( in, DEFAULT_BUFFER_SIZE, DEFAULT_NR_BUFFERS );
+  }
+
+  /**
+   * @param in         The stream to read ahead of the consumer
+   * @param bufferSize The size of the buffers
+   * @param nrBuffers  The number of buffers, at least 2
+   */
+  public ReadAheadInputStream( InputStream in, int bufferSize, int nrBuffers ) {
+    if ( nrBuffers < 2 ) {
+      throw new IllegalArgumentException( "At least 2 buffers are needed to read ahead" );
+    }
+    this.in = in;
+    this.filled = new ArrayBlockingQueue<>( nrBuffers + 1 );
+    this.free = new ArrayBlockingQueue<>( nrBuffers );
+    for ( int i = 0; i < nrBuffers; i++ ) {
+      free.add( new Chunk( new byte[ bufferSize ] ) );
+    }
+    this.reader = new Thread( this::readAhead, "ReadAheadInputStream" );
+    this.reader.setDaemon( true );
+    this.reader.start();
+  }
+
+  private void readAhead() {
+    try {
+      while ( !closed ) {
+        Chunk chunk = free.take();
+        int n = 0;
+        int read = 0;
+        while ( n < chunk.data.length && !closed && ( read = in.read( chunk.data, n, chunk.data.length - n ) ) >= 0 ) {
+          n += read;
+        }
+        chunk.length = n;
+        if ( n > 0 ) {
+          filled.put( chunk );
+        }
+        if ( read < 0 ) {
+          break;
+        }
+      }
+    } catch ( IOException e ) {
+      error = e;
+    } catch ( InterruptedException e ) {
+      // Closed by the consumer
+      //
+    } catch ( Throwable e ) {
+      // A corrupt compressed stream can make the decompressor fail with anything: don't let it look like the end
+      //
+      error = new IOException( "Error reading ahead: " + e.getMessage(), e );
+    } finally {
+      // There is always room left for the end marker
+      //
+      filled.offer( END );
+    }
+  }
+
+  private boolean nextChunk() throws IOException {
+    if ( current != null ) {
+      free.offer( current );
+      current = null;
+    }
+    if ( endReached ) {
+      return false;
+    }
+    Chunk chunk;
+    try {
+      chunk = filled.take();
+    } catch ( InterruptedException e ) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException( "Interrupted while waiting for data to be read ahead" );
+    }
+    if ( chunk == END ) {
+      endReached = true;
+      if ( error != null ) {
+        throw error;
+      }
+      return false;
+    }
+    current = chunk;
+    position = 0;
+    return true;
+  }
+
+  @Override
+  public int read() throws IOException {
+    if ( ( current == null || position >= current.length ) && !nextChunk() ) {
+      return -1;
+    }
+    return current.data[ position++ ] & 0xff;
+  }
+
+  @Override
+  public int read( byte[] b, int off, int len ) throws IOException {
+    if ( len == 0 ) {
+      return 0;
+    }
+    if ( ( current == null || position >= current.length ) && !nextChunk() ) {
+      return -1;
+    }
+    int n = Math.min( len, current.length - position );
+    System.arraycopy( current.data, position, b, off, n );
+    position += n;
+    return n;
+  }
+
+  @Override
+  public int available() {
+    return current == null ? 0 : current.length - position;
+  }
+
+  @Override
+  public void close() throws IOException {
+    closed = true;
+    reader.interrupt();
+    try {
+      // The reader thread can be in the middle of reading the source, only close it once the thread is gone
+      //
+      reader.join();
+    } catch ( InterruptedException e ) {
+      Thread.currentThread().interrupt();
+    } finally {
+      in.close();
+    }
+  }
+
+  private static class Chunk {
+    private final byte[] data;
+    private int length;
+
+    private Chunk( byte[] data ) {
+      this.data = data;
+    }
+  }
+}
@@ -23,13 +23,23 @@
 
 package org.apache.hop.core.compress.gzip;
 
-import org.apache.hop.core.compress.ICompressionProvider;
+import org.apache.hop.core.compress.CompressedBlockIndex;
+import org.apache.hop.core.compress.ISplittableCompressionProvider;
 
+import java.io.BufferedInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.util.zip.GZIPInputStream;
 
-public class GzipCompressionProvider implements ICompressionProvider {
+public class GzipCompressionProvider implements ISplittableCompressionProvider {
+
+  private static final int GZIP_HEADER_SIZE = 12;
+  private static final int FLAG_EXTRA = 4;
 
   @Override
   public GzipCompressionInputStream createInputStream( InputStream in ) throws IOException {
@@ -65,4 +75,80 @@ public class GzipCompressionProvider implements ICompressionProvider {
   public String getDefaultExtension() {
     return "gz";
   }
+
+  /**
+   * Indexes the members of a BGZF file (blocked gzip as written by bgzip). Every member carries its compressed size in
+   * the "BC" extra field and its uncompressed size in the trailer, so the index is built without inflating anything.
+   * Regular gzip files don't record the size of their members and can't be split.
+   */
+  @Override
+  public CompressedBlockIndex createBlockIndex( FileChannel channel ) throws IOException {
+    CompressedBlockIndex index = new CompressedBlockIndex();
+    ByteBuffer header = ByteBuffer.allocate( GZIP_HEADER_SIZE ).order( ByteOrder.LITTLE_ENDIAN );
+    ByteBuffer trailer = ByteBuffer.allocate( 4 ).order( ByteOrder.LITTLE_ENDIAN );
+    long size = channel.size();
+    long offset = 0L;
+    while ( offset < size ) {
+      header.clear();
+      if ( !readFully( channel, header, offset ) ) {
+        return null;
+      }
+      if ( ( header.get( 0 ) & 0xff ) != 0x1f || ( header.get( 1 ) & 0xff ) != 0x8b || header.get( 2 ) != 8
+        || ( header.get( 3 ) & FLAG_EXTRA ) == 0 ) {
+        return null;
+      }
+      int extraLength = header.getShort( 10 ) & 0xffff;
+      ByteBuffer extra = ByteBuffer.allocate( extraLength ).order( ByteOrder.LITTLE_ENDIAN );
+      if ( !readFully( channel, extra, offset + GZIP_HEADER_SIZE ) ) {
+        return null;
+      }
+      int blockSize = getBgzfBlockSize( extra );
+      if ( blockSize < GZIP_HEADER_SIZE + extraLength + 4 || offset + blockSize > size ) {
+        return null;
+      }
+      trailer.clear();
+      if ( !readFully( channel, trailer, offset + blockSize - 4 ) ) {
+        return null;
+      }
+      long uncompressedSize = trailer.getInt( 0 ) & 0xffffffffL;
+      if ( uncompressedSize > 0 ) {
+        index.addBlock( offset, uncompressedSize );
+      }
+      offset += blockSize;
+    }
+    return index;
+  }
+
+  /**
+   * @return the total size of the member as found in the "BC" subfield, or -1 if the member has no such subfield
+   */
+  private static int getBgzfBlockSize( ByteBuffer extra ) {
+    int position = 0;
+    while ( position + 4 <= extra.limit() ) {
+      int subfieldLength = extra.getShort( position + 2 ) & 0xffff;
+      if ( extra.get( position ) == 'B' && extra.get( position + 1 ) == 'C' && subfieldLength == 2
+        && position + 6 <= extra.limit() ) {
+        return ( extra.getShort( position + 4 ) & 0xffff ) + 1;
+      }
+      position += 4 + subfieldLength;
+    }
+    return -1;
+  }
+
+  private static boolean readFully( FileChannel channel, ByteBuffer buffer, long position ) throws IOException {
+    while ( buffer.hasRemaining() ) {
+      if ( channel.read( buffer, position + buffer.position() ) < 0 ) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  @Override
+  public InputStream createBlockInputStream( FileChannel channel, long offset ) throws IOException {
+    channel.position( offset );
+    // The members following the first one are read as one concatenated gzip stream
+    //
+    return new GZIPInputStream( new BufferedInputStream( Channels.newInputStream( channel ) ) );
+  }
 }
@@ -22,13 +22,22 @@
 
 package org.apache.hop.core.compress.snappy;
 
-import org.apache.hop.core.compress.ICompressionProvider;
+import org.apache.hop.core.compress.CompressedBlockIndex;
+import org.apache.hop.core.compress.ISplittableCompressionProvider;
+import org.xerial.snappy.SnappyCodec;
+import org.xerial.snappy.SnappyInputStream;
 
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.io.SequenceInputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
 
-public class SnappyCompressionProvider implements ICompressionProvider {
+public class SnappyCompressionProvider implements ISplittableCompressionProvider {
 
   @Override
   public SnappyCompressionInputStream createInputStream( InputStream in ) throws IOException {
@@ -65,6 +74,90 @@ public class SnappyCompressionProvider implements ICompressionProvider {
     return null;
   }
 
+  /**
+   * Indexes the chunks of a Snappy stream: a header followed by chunks that are each prefixed with their compressed
+   * length. The uncompressed length is read from the preamble of every chunk, nothing is decompressed.
+   */
+  @Override
+  public CompressedBlockIndex createBlockIndex( FileChannel channel ) throws IOException {
+    ByteBuffer header = ByteBuffer.allocate( SnappyCodec.headerSize() );
+    if ( !readFully( channel, header, 0L ) ) {
+      return null;
+    }
+    for ( int i = 0; i < SnappyCodec.MAGIC_LEN; i++ ) {
+      if ( header.get( i ) != SnappyCodec.MAGIC_HEADER[ i ] ) {
+        return null;
+      }
+    }
+
+    CompressedBlockIndex index = new CompressedBlockIndex();
+    ByteBuffer chunkHeader = ByteBuffer.allocate( 4 );
+    ByteBuffer preamble = ByteBuffer.allocate( 5 );
+    long size = channel.size();
+    long offset = header.capacity();
+    while ( offset < size ) {
+      chunkHeader.clear();
+      if ( !readFully( channel, chunkHeader, offset ) ) {
+        return null;
+      }
+      int compressedSize = chunkHeader.getInt( 0 );
+      if ( compressedSize <= 0 || offset + 4 + compressedSize > size ) {
+        return null;
+      }
+      preamble.clear();
+      preamble.limit( Math.min( preamble.capacity(), compressedSize ) );
+      if ( !readFully( channel, preamble, offset + 4 ) ) {
+        return null;
+      }
+      long uncompressedSize = readVarInt( preamble );
+      if ( uncompressedSize < 0 ) {
+        return null;
+      }
+      if ( uncompressedSize > 0 ) {
+        index.addBlock( offset, uncompressedSize );
+      }
+      offset += 4 + compressedSize;
+    }
+    return index;
+  }
+
+  /**
+   * @return the little endian base 128 number at the start of the buffer, or -1 if it isn't complete
+   */
+  private static long readVarInt( ByteBuffer buffer ) {
+    long value = 0L;
+    for ( int i = 0; i < buffer.limit(); i++ ) {
+      int b = buffer.get( i ) & 0xff;
+      value |= (long) ( b & 0x7f ) << ( 7 * i );
+      if ( ( b & 0x80 ) == 0 ) {
+        return value;
+      }
+    }
+    return -1L;
+  }
+
+  private static boolean readFully( FileChannel channel, ByteBuffer buffer, long position ) throws IOException {
+    while ( buffer.hasRemaining() ) {
+      if ( channel.read( buffer, position + buffer.position() ) < 0 ) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  @Override
+  public InputStream createBlockInputStream( FileChannel channel, long offset ) throws IOException {
+    // The chunks can only be read after the stream header, so we replay it in front of the first chunk
+    //
+    ByteBuffer header = ByteBuffer.allocate( SnappyCodec.headerSize() );
+    if ( !readFully( channel, header, 0L ) ) {
+      throw new IOException( "Unable to read the header of the Snappy stream" );
+    }
+    channel.position( offset );
+    return new SnappyInputStream( new SequenceInputStream( new ByteArrayInputStream( header.array() ),
+      new BufferedInputStream( Channels.newInputStream( channel ) ) ) );
+  }
+
   /*
    * } else if ( sFileCompression != null && sFileCompression.equals( "Hadoop-snappy" ) ) { if ( log.isDetailed() ) {
    * logDetailed( "This is a snappy compressed file" ); } // data.sis = new SnappyInputStream(data.fr); data.sis =
@@ -26,13 +26,14 @@ package org.apache.hop.pipeline;
 import org.apache.commons.lang.StringUtils;
 import org.apache.commons.vfs2.FileName;
 import org.apache.commons.vfs2.FileObject;
-import org.apache.hop.core.BlockingBatchingRowSet;
+import org.apache.hop.core.BlockingBulkRowSet;
 import org.apache.hop.core.BlockingRowSet;
 import org.apache.hop.core.Const;
 import org.apache.hop.core.IExecutor;
 import org.apache.hop.core.IExtensionData;
 import org.apache.hop.core.IRowSet;
 import org.apache.hop.core.QueueRowSet;
+import org.apache.hop.core.RingBufferRowSet;
 import org.apache.hop.core.Result;
 import org.apache.hop.core.ResultFile;
 import org.apache.hop.core.RowMetaAndData;
@@ -474,6 +475,16 @@ public abstract class Pipeline implements IVariables, INamedParams, IHasLogChann
 
   protected int rowSetSize;
 
+  /**
+   * Whether lock-free ring buffer row sets are used on hops with a single source and target copy.
+   */
+  protected boolean usingRingBufferRowSets;
+
+  /**
+   * How the ring buffer row sets wait for rows or room in the buffer.
+   */
+  protected RingBufferRowSet.WaitStrategy rowSetWaitStrategy;
+
   /**
    * Whether the feedback is shown.
    */
@@ -511,6 +522,7 @@ public abstract class Pipeline implements IVariables, INamedParams, IHasLogChann
     extensionDataMap = new HashMap<>();
 
     rowSetSize = Const.ROWS_IN_ROWSET;
+    rowSetWaitStrategy = RingBufferRowSet.WaitStrategy.PARK;
   }
 
   /**
@@ -802,15 +814,20 @@ public abstract class Pipeline implements IVariables, INamedParams, IHasLogChann
             IRowSet rowSet;
             switch ( pipelineMeta.getPipelineType() ) {
               case Normal:
-                // This is a temporary patch until the batching rowset has proven
-                // to be working in all situations.
-                // Currently there are stalling problems when dealing with small
-                // amounts of rows.
+                // With one producing and one consuming thread we don't need any locking at all.
+                //
+                if ( usingRingBufferRowSets && dispatchType == TYPE_DISP_1_1 ) {
+                  rowSet = new RingBufferRowSet( rowSetSize, rowSetWaitStrategy );
+                  break;
+                }
+
+                // The bulk row set moves batches of rows with a single lock acquisition.
+                // Unlike the old batching row set it doesn't stall on small amounts of rows.
                 //
                 Boolean batchingRowSet =
                   ValueMetaString.convertStringToBoolean( System.getProperty( Const.HOP_BATCHING_ROWSET ) );
                 if ( batchingRowSet != null && batchingRowSet.booleanValue() ) {
-                  rowSet = new BlockingBatchingRowSet( rowSetSize );
+                  rowSet = new BlockingBulkRowSet( rowSetSize );
                 } else {
                   rowSet = new BlockingRowSet( rowSetSize );
                 }
@@ -3553,6 +3570,38 @@ public abstract class Pipeline implements IVariables, INamedParams, IHasLogChann
     this.rowSetSize = rowSetSize;
   }
 
+  /**
+   * Gets usingRingBufferRowSets
+   *
+   * @return value of usingRingBufferRowSets
+   */
+  public boolean isUsingRingBufferRowSets() {
+    return usingRingBufferRowSets;
+  }
+
+  /**
+   * @param usingRingBufferRowSets The usingRingBufferRowSets to set
+   */
+  public void setUsingRingBufferRowSets( boolean usingRingBufferRowSets ) {
+    this.usingRingBufferRowSets = usingRingBufferRowSets;
+  }
+
+  /**
+   * Gets rowSetWaitStrategy
+   *
+   * @return value of rowSetWaitStrategy
+   */
+  public RingBufferRowSet.WaitStrategy getRowSetWaitStrategy() {
+    return rowSetWaitStrategy;
+  }
+
+  /**
+   * @param rowSetWaitStrategy The rowSetWaitStrategy to set
+   */
+  public void setRowSetWaitStrategy( RingBufferRowSet.WaitStrategy rowSetWaitStrategy ) {
+    this.rowSetWaitStrategy = rowSetWaitStrategy;
+  }
+
   /**
    * Gets feedbackShown
    *
@@ -23,6 +23,7 @@
 package org.apache.hop.pipeline.engines.local;
 
 import org.apache.hop.core.Const;
+import org.apache.hop.core.RingBufferRowSet;
 import org.apache.hop.core.exception.HopException;
 import org.apache.hop.core.logging.ILoggingObject;
 import org.apache.hop.core.parameters.INamedParams;
@@ -79,6 +80,10 @@ public class LocalPipelineEngine extends Pipeline implements IPipelineEngine<Pip
 
     int sizeRowsSet = Const.toInt( pipelineMeta.environmentSubstitute( config.getRowSetSize() ), Const.ROWS_IN_ROWSET );
     setRowSetSize( sizeRowsSet );
+    LocalPipelineRunConfiguration.RowSetType rowSetType =
+      LocalPipelineRunConfiguration.RowSetType.getRowSetType( pipelineMeta.environmentSubstitute( config.getRowSetType() ) );
+    setUsingRingBufferRowSets( rowSetType == LocalPipelineRunConfiguration.RowSetType.RingBuffer );
+    setRowSetWaitStrategy( RingBufferRowSet.WaitStrategy.getWaitStrategy( pipelineMeta.environmentSubstitute( config.getRowSetWaitStrategy() ) ) );
     setSafeModeEnabled( config.isSafeModeEnabled() );
     setSortingTransformsTopologically( config.isSortingTransformsTopologically() );
     setGatheringMetrics( config.isGatheringMetrics() );
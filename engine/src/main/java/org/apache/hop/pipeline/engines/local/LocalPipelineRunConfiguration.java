@@ -23,6 +23,7 @@
 package org.apache.hop.pipeline.engines.local;
 
 import org.apache.hop.core.Const;
+import org.apache.hop.core.RingBufferRowSet;
 import org.apache.hop.core.gui.plugin.GuiElementType;
 import org.apache.hop.core.gui.plugin.GuiPlugin;
 import org.apache.hop.core.gui.plugin.GuiWidgetElement;
@@ -140,10 +141,61 @@ public class LocalPipelineRunConfiguration extends EmptyPipelineRunConfiguration
   @HopMetadataProperty(key="sample_size")
   protected String sampleSize;
 
+  /**
+   * The type of row set to use on hops between a single source and a single target transform copy.
+   */
+  @GuiWidgetElement(
+    id = "rowSetType",
+    order = "90",
+    parentId = PipelineRunConfiguration.GUI_PLUGIN_ELEMENT_PARENT_ID,
+    type = GuiElementType.COMBO,
+    i18nPackage = "org.apache.hop.ui.pipeline.config",
+    label = "PipelineRunConfigurationDialog.RowSetType.Label",
+    comboValuesMethod = "getRowSetTypes"
+  )
+  @HopMetadataProperty(key="rowset_type")
+  protected String rowSetType;
+
+  /**
+   * How the lock-free ring buffer row sets wait for rows or room in the buffer.
+   */
+  @GuiWidgetElement(
+    id = "rowSetWaitStrategy",
+    order = "100",
+    parentId = PipelineRunConfiguration.GUI_PLUGIN_ELEMENT_PARENT_ID,
+    type = GuiElementType.COMBO,
+    i18nPackage = "org.apache.hop.ui.pipeline.config",
+    label = "PipelineRunConfigurationDialog.RowSetWaitStrategy.Label",
+    comboValuesMethod = "getRowSetWaitStrategies"
+  )
+  @HopMetadataProperty(key="rowset_wait_strategy")
+  protected String rowSetWaitStrategy;
+
   public enum SampleType {
     None, First, Last, Random;
   }
 
+  public enum RowSetType {
+    /**
+     * Blocking row sets backed by a bounded queue, usable on all hops
+     */
+    Blocking,
+
+    /**
+     * Lock-free single producer, single consumer ring buffers on 1:1 hops, blocking row sets everywhere else
+     */
+    RingBuffer;
+
+    public static RowSetType getRowSetType( String name ) {
+      for ( RowSetType type : values() ) {
+        if ( type.name().equalsIgnoreCase( name ) ) {
+          return type;
+        }
+      }
+      return Blocking;
+    }
+  }
+
   public LocalPipelineRunConfiguration() {
     super();
     this.rowSetSize = Integer.toString( Const.ROWS_IN_ROWSET );
@@ -151,6 +203,8 @@ public class LocalPipelineRunConfiguration extends EmptyPipelineRunConfiguration
     this.feedbackSize = Integer.toString( Const.ROWS_UPDATE );
     this.sampleTypeInGui = SampleType.First.name();
     this.sampleSize = "100";
+    this.rowSetType = RowSetType.Blocking.name();
+    this.rowSetWaitStrategy = RingBufferRowSet.WaitStrategy.PARK.name();
   }
 
   public LocalPipelineRunConfiguration( LocalPipelineRunConfiguration config ) {
@@ -163,6 +217,8 @@ public class LocalPipelineRunConfiguration extends EmptyPipelineRunConfiguration
     this.sortingTransformsTopologically = config.sortingTransformsTopologically;
     this.sampleTypeInGui = config.sampleTypeInGui;
     this.sampleSize = config.sampleSize;
+    this.rowSetType = config.rowSetType;
+    this.rowSetWaitStrategy = config.rowSetWaitStrategy;
   }
 
   public LocalPipelineRunConfiguration clone() {
@@ -176,6 +232,23 @@ public class LocalPipelineRunConfiguration extends EmptyPipelineRunConfiguration
     }
     return list;
   }
+
+  public List<String> getRowSetTypes( ILogChannel log, IHopMetadataProvider metadataProvider ) {
+    List<String> list = new ArrayList<>();
+    for ( RowSetType type : RowSetType.values() ) {
+      list.add( type.name() );
+    }
+    return list;
+  }
+
+  public List<String> getRowSetWaitStrategies( ILogChannel log, IHopMetadataProvider metadataProvider ) {
+    List<String> list = new ArrayList<>();
+    for ( RingBufferRowSet.WaitStrategy strategy : RingBufferRowSet.WaitStrategy.values() ) {
+      list.add( strategy.name() );
+    }
+    return list;
+  }
+
   /**
    * Gets rowSetSize
    *
@@ -303,4 +376,36 @@ public class LocalPipelineRunConfiguration extends EmptyPipelineRunConfiguration
   public void setSampleSize( String sampleSize ) {
     this.sampleSize = sampleSize;
   }
+
+  /**
+   * Gets rowSetType
+   *
+   * @return value of rowSetType
+   */
+  public String getRowSetType() {
+    return rowSetType;
+  }
+
+  /**
+   * @param rowSetType The rowSetType to set
+   */
+  public void setRowSetType( String rowSetType ) {
+    this.rowSetType = rowSetType;
+  }
+
+  /**
+   * Gets rowSetWaitStrategy
+   *
+   * @return value of rowSetWaitStrategy
+   */
+  public String getRowSetWaitStrategy() {
+    return rowSetWaitStrategy;
+  }
+
+  /**
+   * @param rowSetWaitStrategy The rowSetWaitStrategy to set
+   */
+  public void setRowSetWaitStrategy( String rowSetWaitStrategy ) {
+    this.rowSetWaitStrategy = rowSetWaitStrategy;
+  }
 }
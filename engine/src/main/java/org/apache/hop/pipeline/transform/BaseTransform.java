@@ -235,6 +235,11 @@ public class BaseTransform<Meta extends ITransformMeta, Data extends ITransformD
 
   private int currentInputRowSetNr, currentOutputRowSetNr;
 
+  /**
+   * The input row set which delivered the last row read by getRow(), null if no row was read
+   */
+  private IRowSet lastReadRowSet;
+
   /**
    * The rowsets on the input, size() == nr of source transforms
    */
@@ -327,6 +332,11 @@ public class BaseTransform<Meta extends ITransformMeta, Data extends ITransformD
 
   private IRowMeta inputRowMeta;
 
+  /**
+   * The row metadata of the input row set which was used to create the frozen inputRowMeta
+   */
+  private IRowMeta inputRowMetaSource;
+
   /**
    * transform partitioning information of the NEXT transform
    */
@@ -378,6 +388,11 @@ public class BaseTransform<Meta extends ITransformMeta, Data extends ITransformD
    */
   private boolean allowEmptyFieldNamesAndTypes = false;
 
+  /**
+   * set this flag to true to hand an immutable, lock-free copy of the input row metadata to processRow()
+   */
+  private boolean freezingInputRowMeta = false;
+
   /**
    * Keeps track of the number of rows read for input deadlock verification.
    */
@@ -516,6 +531,7 @@ public class BaseTransform<Meta extends ITransformMeta, Data extends ITransformD
 
     // BACKLOG-18004
     allowEmptyFieldNamesAndTypes = Boolean.parseBoolean( System.getProperties().getProperty( Const.HOP_ALLOW_EMPTY_FIELD_NAMES_AND_TYPES, "false" ) );
+    freezingInputRowMeta = Boolean.parseBoolean( System.getProperties().getProperty( Const.HOP_FREEZE_INPUT_ROW_META, "true" ) );
 
 
     // Getting ans setting the error handling values
@@ -657,6 +673,19 @@ public class BaseTransform<Meta extends ITransformMeta, Data extends ITransformD
     }
   }
 
+  /**
+   * Increments the number of lines read from previous transforms
+   *
+   * @param nrLines the number of lines to add
+   * @return Returns the new value
+   */
+  public long incrementLinesRead( long nrLines ) {
+    synchronized ( statusCountersLock ) {
+      linesRead += nrLines;
+      return linesRead;
+    }
+  }
+
   /**
    * Decrements the number of lines read from previous transforms by one
    *
@@ -758,6 +787,19 @@ public class BaseTransform<Meta extends ITransformMeta, Data extends ITransformD
     }
   }
 
+  /**
+   * Increments the number of lines written to next transforms
+   *
+   * @param nrLines the number of lines to add
+   * @return Returns the new value
+   */
+  public long incrementLinesWritten( long nrLines ) {
+    synchronized ( statusCountersLock ) {
+      linesWritten += nrLines;
+      return linesWritten;
+    }
+  }
+
   /**
    * Decrements the number of lines written to next transforms by one
    *
@@ -996,6 +1038,42 @@ public class BaseTransform<Meta extends ITransformMeta, Data extends ITransformD
    */
   @Override
   public void putRow( IRowMeta rowMeta, Object[] row ) throws HopTransformException {
+    verifyFieldNamesAndTypes( rowMeta );
+    getRowHandler().putRow( rowMeta, row );
+
+    // This transform is not reading data, only writing
+    //
+    if (firstRowReadDate==null) {
+      firstRowReadDate = new Date();
+    }
+  }
+
+  /**
+   * putRows is used to hand over a batch of rows to the output rowset(s) in one go. The pause, stop and running checks
+   * and the locking of the output rowsets are only done once per batch. The rows are distributed or copied to the
+   * output rowsets exactly like {@link #putRow(IRowMeta, Object[])} would.
+   *
+   * @param rowMeta The row meta-data of the rows
+   * @param rows    The rows to put to the destination rowset(s)
+   * @param nrRows  The number of rows to put, taken from the start of the array
+   * @throws HopTransformException
+   */
+  @Override
+  public void putRows( IRowMeta rowMeta, Object[][] rows, int nrRows ) throws HopTransformException {
+    if ( nrRows <= 0 ) {
+      return;
+    }
+    verifyFieldNamesAndTypes( rowMeta );
+    getRowHandler().putRows( rowMeta, rows, nrRows );
+
+    // This transform is not reading data, only writing
+    //
+    if (firstRowReadDate==null) {
+      firstRowReadDate = new Date();
+    }
+  }
+
+  private void verifyFieldNamesAndTypes( IRowMeta rowMeta ) throws HopTransformException {
     if ( rowMeta != null ) {
       if ( !allowEmptyFieldNamesAndTypes ) {
         // check row meta for empty field name (BACKLOG-18004)
@@ -1009,13 +1087,6 @@ public class BaseTransform<Meta extends ITransformMeta, Data extends ITransformD
         }
       }
     }
-    getRowHandler().putRow( rowMeta, row );
-
-    // This transform is not reading data, only writing
-    //
-    if (firstRowReadDate==null) {
-      firstRowReadDate = new Date();
-    }
   }
 
   private void handlePutRow( IRowMeta rowMeta, Object[] row ) throws HopTransformException {
@@ -1105,6 +1176,111 @@ public class BaseTransform<Meta extends ITransformMeta, Data extends ITransformD
     }
   }
 
+  private void handlePutRows( IRowMeta rowMeta, Object[][] rows, int nrRows ) throws HopTransformException {
+    // Partitioning, plugin defined row distribution and terminator rows are handled row by row.
+    //
+    if ( repartitioning != TransformPartitioningMeta.PARTITIONING_METHOD_NONE
+      || ( distributed && rowDistribution != null ) || terminator ) {
+      for ( int i = 0; i < nrRows; i++ ) {
+        handlePutRow( rowMeta, rows[ i ] );
+      }
+      return;
+    }
+
+    // Are we pausing the transform? If so, stall forever...
+    //
+    while ( paused.get() && !stopped.get() ) {
+      try {
+        Thread.sleep( 1 );
+      } catch ( InterruptedException e ) {
+        throw new HopTransformException( e );
+      }
+    }
+
+    if ( stopped.get() && !safeStopped.get() ) {
+      if ( log.isDebug() ) {
+        logDebug( BaseMessages.getString( PKG, "BaseTransform.Log.StopPuttingARow" ) );
+      }
+      stopAll();
+      return;
+    }
+
+    waitUntilPipelineIsStarted();
+
+    // call all row listeners...
+    //
+    for ( IRowListener listener : rowListeners ) {
+      for ( int i = 0; i < nrRows; i++ ) {
+        listener.rowWrittenEvent( rowMeta, rows[ i ] );
+      }
+    }
+
+    outputRowSetsLock.readLock().lock();
+    try {
+      if ( outputRowSets.isEmpty() ) {
+        // No more output rowsets!
+        // Still update the nr of lines written.
+        //
+        incrementLinesWritten( nrRows );
+        return;
+      }
+
+      if ( distributed && outputRowSets.size() > 1 ) {
+        // Round robin: every row goes to the next output rowset
+        //
+        for ( int i = 0; i < nrRows; i++ ) {
+          noPartitioning( rowMeta, rows[ i ] );
+        }
+      } else {
+        // Copy the rows to the other output rowsets...
+        //
+        for ( int r = 1; r < outputRowSets.size(); r++ ) { // start at 1
+          Object[][] copies = new Object[ nrRows ][];
+          try {
+            for ( int i = 0; i < nrRows; i++ ) {
+              copies[ i ] = rowMeta.cloneRow( rows[ i ] );
+            }
+          } catch ( HopValueException e ) {
+            throw new HopTransformException( "Unable to clone row while copying rows to multiple target transforms", e );
+          }
+          putRowsToRowSet( outputRowSets.get( r ), rowMeta, copies, nrRows );
+          incrementLinesWritten( nrRows );
+        }
+
+        // set the rows in the first output rowset
+        //
+        putRowsToRowSet( outputRowSets.get( 0 ), rowMeta, rows, nrRows );
+        incrementLinesWritten( nrRows );
+      }
+    } finally {
+      outputRowSetsLock.readLock().unlock();
+    }
+  }
+
+  private void putRowsToRowSet( IRowSet rs, IRowMeta rowMeta, Object[][] rows, int nrRows ) {
+    IRowMeta metaFromRs = rs.getRowMeta();
+    IRowMeta toBeSent = metaFromRs == null ? rowMeta.clone() : metaFromRs;
+
+    Object[][] remaining = rows;
+    int nrRemaining = nrRows;
+    while ( nrRemaining > 0 ) {
+      int added = rs.putRows( toBeSent, remaining, nrRemaining );
+      if ( added <= 0 ) {
+        // No room at all: loop on the first row until we find room in the target rowset
+        //
+        putRowToRowSet( rs, toBeSent, remaining[ 0 ] );
+        if ( isStopped() && !safeStopped.get() ) {
+          return;
+        }
+        added = 1;
+      }
+      if ( added < nrRemaining ) {
+        remaining = Arrays.copyOfRange( remaining, added, nrRemaining );
+      }
+      nrRemaining -= added;
+    }
+  }
+
   /**
    * Copy always to all target transforms/copies
    */
@@ -1502,6 +1678,88 @@ public class BaseTransform<Meta extends ITransformMeta, Data extends ITransformD
   }
 
 
+  /**
+   * The metadata of the rows of the row set becomes the input row metadata. Unless disabled with
+   * {@link Const#HOP_FREEZE_INPUT_ROW_META} a frozen copy is used so that reading the metadata doesn't take any locks.
+   * The copy is only made again when the row set metadata changes.
+   */
+  private void setInputRowMetaFrom( IRowSet rowSet ) {
+    IRowMeta rowMeta = rowSet.getRowMeta();
+    if ( !freezingInputRowMeta || rowMeta == null || rowMeta.isImmutable() ) {
+      inputRowMeta = rowMeta;
+    } else if ( rowMeta != inputRowMetaSource || inputRowMeta == null ) {
+      inputRowMeta = rowMeta.asImmutable();
+    }
+    inputRowMetaSource = rowMeta;
+  }
+
+  /**
+   * Get a batch of rows from the input rowsets. The first row is read exactly like {@link #getRow()} does, after that
+   * all the rows which are immediately available in the same input rowset are added to the batch, up to maxRows.
+   *
+   * @param maxRows the maximum number of rows to return
+   * @return the rows or null if there are no more rows
+   * @throws HopException
+   */
+  @Override
+  public Object[][] getRows( int maxRows ) throws HopException {
+    Object[][] rows = getRowHandler().getRows( maxRows );
+
+    if (firstRowReadDate==null) {
+      firstRowReadDate = new Date();
+    }
+
+    return rows;
+  }
+
+  private Object[][] handleGetRows( int maxRows ) throws HopException {
+    Object[] row = getRow();
+    if ( row == null ) {
+      return null;
+    }
+    if ( maxRows <= 1 || isStopped() ) {
+      return new Object[][] { row };
+    }
+
+    // Take whatever else is available right now in the row set we just read from.
+    // getRow() can move on to another input row set after reading the row so use the one that delivered it.
+    //
+    IRowSet rowSet = lastReadRowSet;
+    Object[][] more = null;
+    inputRowSetsLock.readLock().lock();
+    try {
+      if ( rowSet != null ) {
+        int max = maxRows - 1;
+        if ( inputRowSets.size() > 1 ) {
+          // Give the other input row sets their turn as well
+          //
+          max = Math.min( max, NR_OF_ROWS_IN_BLOCK - blockPointer );
+        }
+        if ( max > 0 ) {
+          more = rowSet.getRowsImmediate( max );
+        }
+      }
+    } finally {
+      inputRowSetsLock.readLock().unlock();
+    }
+    if ( more == null || more.length == 0 ) {
+      return new Object[][] { row };
+    }
+
+    incrementLinesRead( more.length );
+    blockPointer += more.length;
+    for ( IRowListener listener : rowListeners ) {
+      for ( Object[] r : more ) {
+        listener.rowReadEvent( inputRowMeta, r );
+      }
+    }
+
+    Object[][] rows = new Object[ more.length + 1 ][];
+    rows[ 0 ] = row;
+    System.arraycopy( more, 0, rows, 1, more.length );
+    return rows;
+  }
+
   private Object[] handleGetRow() throws HopException {
 
     // Are we pausing the transform? If so, stall forever...
@@ -1528,6 +1786,7 @@ public class BaseTransform<Meta extends ITransformMeta, Data extends ITransformD
 
     IRowSet inputRowSet = null;
     Object[] row = null;
+    lastReadRowSet = null;
 
     inputRowSetsLock.readLock().lock();
     try {
@@ -1551,6 +1810,7 @@ public class BaseTransform<Meta extends ITransformMeta, Data extends ITransformD
           row = inputRowSet.getRowImmediate();
         }
         if ( row != null ) {
+          lastReadRowSet = inputRowSet;
           incrementLinesRead();
         }
       } else {
@@ -1589,6 +1849,7 @@ public class BaseTransform<Meta extends ITransformMeta, Data extends ITransformD
         //
         row = inputRowSet.getRowWait( 1, TimeUnit.MILLISECONDS );
         if ( row != null ) {
+          lastReadRowSet = inputRowSet;
           incrementLinesRead();
           blockPointer++;
         } else {
@@ -1620,6 +1881,7 @@ public class BaseTransform<Meta extends ITransformMeta, Data extends ITransformD
                 inputRowSetsLock.writeLock().unlock();
               }
             } else {
+              lastReadRowSet = inputRowSet;
               incrementLinesRead();
             }
           }
@@ -1643,6 +1905,9 @@ public class BaseTransform<Meta extends ITransformMeta, Data extends ITransformD
         nextInputStream();
         inputRowSet = currentInputStream();
         row = getRowFrom( inputRowSet );
+        if ( row != null ) {
+          lastReadRowSet = inputRowSet;
+        }
       }
     } finally {
       inputRowSetsLock.readLock().unlock();
@@ -1651,7 +1916,7 @@ public class BaseTransform<Meta extends ITransformMeta, Data extends ITransformD
     // Also set the meta data on the first occurrence.
     // or if prevTransforms.length > 1 inputRowMeta can be changed
     if ( inputRowMeta == null || prevTransforms.length > 1 ) {
-      inputRowMeta = inputRowSet.getRowMeta();
+      setInputRowMetaFrom( inputRowSet );
     }
 
     if ( row != null ) {
@@ -3196,6 +3461,21 @@ public class BaseTransform<Meta extends ITransformMeta, Data extends ITransformD
     return inputRowMeta;
   }
 
+  /**
+   * @return true if an immutable, lock-free copy of the row metadata of the input row sets is handed to processRow()
+   */
+  public boolean isFreezingInputRowMeta() {
+    return freezingInputRowMeta;
+  }
+
+  /**
+   * @param freezingInputRowMeta true to hand an immutable, lock-free copy of the row metadata of the input row sets
+   *                             to processRow()
+   */
+  public void setFreezingInputRowMeta( boolean freezingInputRowMeta ) {
+    this.freezingInputRowMeta = freezingInputRowMeta;
+  }
+
   /**
    * @param rowMeta the rowMeta to set
    */
@@ -3709,6 +3989,14 @@ public class BaseTransform<Meta extends ITransformMeta, Data extends ITransformD
       handlePutRow( rowMeta, row );
     }
 
+    @Override public Object[][] getRows( int maxRows ) throws HopException {
+      return handleGetRows( maxRows );
+    }
+
+    @Override public void putRows( IRowMeta rowMeta, Object[][] rows, int nrRows ) throws HopTransformException {
+      handlePutRows( rowMeta, rows, nrRows );
+    }
+
     @Override public void putError( IRowMeta rowMeta, Object[] row, long nrErrors, String errorDescriptions,
                                     String fieldNames, String errorCodes ) throws HopTransformException {
       handlePutError( rowMeta, row, nrErrors, errorDescriptions, fieldNames, errorCodes );
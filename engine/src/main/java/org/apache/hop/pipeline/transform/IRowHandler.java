@@ -50,6 +50,30 @@ public interface IRowHandler {
   void putError( IRowMeta rowMeta, Object[] row, long nrErrors, String errorDescriptions,
                  String fieldNames, String errorCodes ) throws HopTransformException;
 
+  /**
+   * Put a batch of rows. The default implementation simply puts the rows one by one.
+   *
+   * @param rowMeta the description of the rows
+   * @param rows    the rows
+   * @param nrRows  the number of rows to put, taken from the start of the array
+   */
+  default void putRows( IRowMeta rowMeta, Object[][] rows, int nrRows ) throws HopTransformException {
+    for ( int i = 0; i < nrRows; i++ ) {
+      putRow( rowMeta, rows[ i ] );
+    }
+  }
+
+  /**
+   * Get a batch of rows. The default implementation returns a batch with the single row from {@link #getRow()}.
+   *
+   * @param maxRows the maximum number of rows to return
+   * @return the rows or null if there are no more rows
+   */
+  default Object[][] getRows( int maxRows ) throws HopException {
+    Object[] row = getRow();
+    return row == null ? null : new Object[][] { row };
+  }
+
   default void putRowTo( IRowMeta rowMeta, Object[] row, IRowSet rowSet )
     throws HopTransformException {
     throw new UnsupportedOperationException(
@@ -237,6 +237,32 @@ public interface ITransform<Meta extends ITransformMeta, Data extends ITransform
    */
   Object[] getRow() throws HopException;
 
+  /**
+   * Put a batch of rows on the destination rowsets.
+   * The default implementation puts the rows one by one.
+   *
+   * @param rowMeta The description of the rows
+   * @param rows    The rows to send to the destination transforms
+   * @param nrRows  The number of rows to send, taken from the start of the array
+   */
+  default void putRows( IRowMeta rowMeta, Object[][] rows, int nrRows ) throws HopException {
+    for ( int i = 0; i < nrRows; i++ ) {
+      putRow( rowMeta, rows[ i ] );
+    }
+  }
+
+  /**
+   * Get a batch of rows from the source transform(s).
+   * The default implementation returns a single row at a time.
+   *
+   * @param maxRows the maximum number of rows to return
+   * @return the rows or null if there are no more rows
+   */
+  default Object[][] getRows( int maxRows ) throws HopException {
+    Object[] row = getRow();
+    return row == null ? null : new Object[][] { row };
+  }
+
   /**
    * Signal output done to destination transforms
    */
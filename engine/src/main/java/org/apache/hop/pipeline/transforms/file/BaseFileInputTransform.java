@@ -359,9 +359,13 @@ public abstract class BaseFileInputTransform<Meta extends BaseFileInputMeta, Dat
   private void rejectCurrentFile( String errorMsg ) {
     if ( StringUtils.isNotBlank( meta.errorHandling.fileErrorField ) || StringUtils.isNotBlank(
       meta.errorHandling.fileErrorMessageField ) ) {
+      // The input row metadata can be frozen and is shared with the input row set: add the fields to a copy
+      //
       IRowMeta rowMeta = getInputRowMeta();
       if ( rowMeta == null ) {
         rowMeta = new RowMeta();
+      } else {
+        rowMeta = rowMeta.clone();
       }
 
       int errorFileIndex =
@@ -376,6 +380,8 @@ public abstract class BaseFileInputTransform<Meta extends BaseFileInputMeta, Dat
         Object[] rowData = getRow();
         if ( rowData == null ) {
           rowData = RowDataUtil.allocateRowData( rowMeta.size() );
+        } else {
+          rowData = RowDataUtil.resizeArray( rowData, rowMeta.size() );
         }
 
         if ( errorFileIndex >= 0 ) {
@@ -42,6 +42,7 @@ import org.apache.hop.pipeline.transform.TransformMeta;
 
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.Arrays;
 
 /**
  * Reads information from a database table by using freehand SQL
@@ -139,21 +140,8 @@ public class TableInput extends BaseTransform<TableInputMeta, TableInputData> im
       }
     } else {
       if ( data.thisrow != null ) { // We can expect more rows
-
-        try {
-          data.nextrow = data.db.getRow( data.rs, false );
-        } catch ( HopDatabaseException e ) {
-          if ( e.getCause() instanceof SQLException && isStopped() ) {
-            //This exception indicates we tried reading a row after the statment for this transform was cancelled
-            //this is expected and ok so do not pass the exception up
-            logDebug( e.getMessage() );
-            return false;
-          } else {
-            throw e;
-          }
-        }
-        if ( data.nextrow != null ) {
-          incrementLinesInput();
+        if ( !readNextRow() ) {
+          return false;
         }
       }
     }
@@ -195,19 +183,60 @@ public class TableInput extends BaseTransform<TableInputMeta, TableInputData> im
         return false; // end of data or error.
       }
     } else {
-      putRow( data.rowMeta, data.thisrow ); // fill the rowset(s). (wait for empty)
-      data.thisrow = data.nextrow;
+      // Hand over the current row together with the rows directly behind it in the result set in one batch
+      //
+      int nrRows = 0;
+      boolean reading = true;
+      while ( reading ) {
+        data.outputBatch[ nrRows++ ] = data.thisrow;
+        data.thisrow = data.nextrow;
+
+        if ( checkFeedback( getLinesInput() ) ) {
+          if ( log.isBasic() ) {
+            logBasic( "linenr " + getLinesInput() );
+          }
+        }
 
-      if ( checkFeedback( getLinesInput() ) ) {
-        if ( log.isBasic() ) {
-          logBasic( "linenr " + getLinesInput() );
+        if ( data.thisrow == null || nrRows >= data.outputBatch.length || isStopped() ) {
+          break;
         }
+        reading = readNextRow();
+      }
+      putRows( data.rowMeta, data.outputBatch, nrRows ); // fill the rowset(s). (wait for empty)
+      Arrays.fill( data.outputBatch, 0, nrRows, null );
+      if ( !reading ) {
+        return false;
       }
     }
 
     return true;
   }
 
+  /**
+   * Reads the next row from the result set into data.nextrow
+   *
+   * @return false if the query was cancelled because the transform was stopped
+   * @throws HopDatabaseException
+   */
+  private boolean readNextRow() throws HopDatabaseException {
+    try {
+      data.nextrow = data.db.getRow( data.rs, false );
+    } catch ( HopDatabaseException e ) {
+      if ( e.getCause() instanceof SQLException && isStopped() ) {
+        //This exception indicates we tried reading a row after the statment for this transform was cancelled
+        //this is expected and ok so do not pass the exception up
+        logDebug( e.getMessage() );
+        return false;
+      } else {
+        throw e;
+      }
+    }
+    if ( data.nextrow != null ) {
+      incrementLinesInput();
+    }
+    return true;
+  }
+
   private void closePreviousQuery() throws HopDatabaseException {
     if ( data.db != null ) {
       data.db.closeQuery( data.rs );
@@ -22,6 +22,7 @@
 
 package org.apache.hop.pipeline.transforms.tableinput;
 
+import org.apache.hop.core.Const;
 import org.apache.hop.core.IRowSet;
 import org.apache.hop.core.database.Database;
 import org.apache.hop.core.row.IRowMeta;
@@ -45,6 +46,7 @@ public class TableInputData extends BaseTransformData implements ITransformData
   public IRowSet rowSet;
   public boolean isCanceled;
   public IStream infoStream;
+  public Object[][] outputBatch;
 
   public TableInputData() {
     super();
@@ -54,6 +56,7 @@ public class TableInputData extends BaseTransformData implements ITransformData
     nextrow = null;
     rs = null;
     lookupTransform = null;
+    outputBatch = new Object[ Const.ROWS_IN_BATCH ][];
   }
 
 }
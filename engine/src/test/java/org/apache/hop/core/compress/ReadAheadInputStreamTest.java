@@ -0,0 +1,182 @@
+/*! ******************************************************************************
+ *
+ * Hop : The Hop Orchestration Platform
+ *
+ * Copyright (C) 2002-2018 by Hitachi Vantara : http://www.pentaho.com
+ * http://www.project-hop.org
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.apache.hop.core.compress;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ReadAheadInputStreamTest {
+
+  @Test
+  public void testReadsAllData() throws IOException {
+    byte[] data = new byte[ 100000 ];
+    new Random( 1 ).nextBytes( data );
+
+    try ( ReadAheadInputStream in = new ReadAheadInputStream( new ByteArrayInputStream( data ), 1000, 3 ) ) {
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      byte[] buffer = new byte[ 777 ];
+      int n;
+      while ( ( n = in.read( buffer ) ) >= 0 ) {
+        out.write( buffer, 0, n );
+      }
+      assertArrayEquals( data, out.toByteArray() );
+      assertEquals( -1, in.read() );
+    }
+  }
+
+  @Test
+  public void testReadSingleBytes() throws IOException {
+    byte[] data = { 1, 2, (byte) 255 };
+    try ( ReadAheadInputStream in = new ReadAheadInputStream( new ByteArrayInputStream( data ), 2, 2 ) ) {
+      assertEquals( 1, in.read() );
+      assertEquals( 2, in.read() );
+      assertEquals( 255, in.read() );
+      assertEquals( -1, in.read() );
+    }
+  }
+
+  @Test
+  public void testEmptyStream() throws IOException {
+    try ( ReadAheadInputStream in = new ReadAheadInputStream( new ByteArrayInputStream( new byte[ 0 ] ) ) ) {
+      assertEquals( -1, in.read( new byte[ 10 ], 0, 10 ) );
+    }
+  }
+
+  @Test
+  public void testErrorIsForwarded() throws IOException {
+    InputStream failing = new InputStream() {
+      private int count;
+
+      @Override
+      public int read() throws IOException {
+        if ( count++ >= 10 ) {
+          throw new IOException( "broken" );
+        }
+        return 'a';
+      }
+    };
+    try ( ReadAheadInputStream in = new ReadAheadInputStream( failing, 4, 2 ) ) {
+      int n = 0;
+      while ( in.read() >= 0 ) {
+        n++;
+      }
+      fail( "Expected the read error after " + n + " bytes" );
+    } catch ( IOException e ) {
+      assertEquals( "broken", e.getMessage() );
+    }
+  }
+
+  @Test
+  public void testRuntimeErrorIsForwarded() throws IOException {
+    InputStream corrupt = new InputStream() {
+      private int count;
+
+      @Override
+      public int read() {
+        if ( count++ >= 10 ) {
+          throw new IllegalStateException( "corrupt block" );
+        }
+        return 'a';
+      }
+    };
+    try ( ReadAheadInputStream in = new ReadAheadInputStream( corrupt, 4, 2 ) ) {
+      int n = 0;
+      while ( in.read() >= 0 ) {
+        n++;
+      }
+      fail( "Expected the decompression error after " + n + " bytes instead of the end of the data" );
+    } catch ( IOException e ) {
+      assertTrue( e.getCause() instanceof IllegalStateException );
+    }
+  }
+
+  @Test
+  public void testCloseWaitsForPendingRead() throws Exception {
+    final CountDownLatch reading = new CountDownLatch( 1 );
+    final AtomicBoolean readBusy = new AtomicBoolean();
+    final AtomicBoolean closedWhileReading = new AtomicBoolean();
+    InputStream slow = new InputStream() {
+      @Override
+      public int read() {
+        readBusy.set( true );
+        reading.countDown();
+        try {
+          Thread.sleep( 50 );
+        } catch ( InterruptedException e ) {
+          // A blocking read of a file doesn't stop on an interrupt either
+          //
+          try {
+            Thread.sleep( 50 );
+          } catch ( InterruptedException e2 ) {
+            // ignore
+          }
+        }
+        readBusy.set( false );
+        return 'a';
+      }
+
+      @Override
+      public void close() {
+        closedWhileReading.set( readBusy.get() );
+      }
+    };
+    ReadAheadInputStream in = new ReadAheadInputStream( slow, 4, 2 );
+    reading.await();
+    in.close();
+    assertFalse( closedWhileReading.get() );
+  }
+
+  @Test
+  public void testCloseStopsReadingAhead() throws Exception {
+    final boolean[] closed = { false };
+    InputStream endless = new InputStream() {
+      @Override
+      public int read() {
+        return 'a';
+      }
+
+      @Override
+      public void close() {
+        closed[ 0 ] = true;
+      }
+    };
+    ReadAheadInputStream in = new ReadAheadInputStream( endless, 16, 2 );
+    assertEquals( 'a', in.read() );
+    in.close();
+    assertTrue( closed[ 0 ] );
+  }
+}
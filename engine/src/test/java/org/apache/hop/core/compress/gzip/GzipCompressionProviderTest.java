@@ -23,6 +23,8 @@
 
 package org.apache.hop.core.compress.gzip;
 
+import org.apache.commons.io.IOUtils;
+import org.apache.hop.core.compress.CompressedBlockIndex;
 import org.apache.hop.core.compress.CompressionPluginType;
 import org.apache.hop.core.compress.CompressionProviderFactory;
 import org.apache.hop.core.plugins.PluginRegistry;
@@ -36,12 +38,24 @@ import org.junit.Test;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
 import java.util.zip.GZIPInputStream;
 import java.util.zip.GZIPOutputStream;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
 public class GzipCompressionProviderTest {
@@ -125,4 +139,71 @@ public class GzipCompressionProviderTest {
     GzipCompressionOutputStream ncis2 = provider.createOutputStream( gos );
     assertNotNull( ncis2 );
   }
+
+  @Test
+  public void testCreateBlockIndex() throws IOException {
+    GzipCompressionProvider provider = (GzipCompressionProvider) factory.getCompressionProviderByName( PROVIDER_NAME );
+    byte[] data = new byte[ 10000 ];
+    for ( int i = 0; i < data.length; i++ ) {
+      data[ i ] = (byte) ( 'a' + i % 26 );
+    }
+    File file = File.createTempFile( "bgzf", ".gz" );
+    file.deleteOnExit();
+    try ( FileOutputStream out = new FileOutputStream( file ) ) {
+      for ( int i = 0; i < data.length; i += 3000 ) {
+        out.write( bgzfBlock( Arrays.copyOfRange( data, i, Math.min( data.length, i + 3000 ) ) ) );
+      }
+      out.write( bgzfBlock( new byte[ 0 ] ) );
+    }
+
+    try ( RandomAccessFile raf = new RandomAccessFile( file, "r" ); FileChannel channel = raf.getChannel() ) {
+      CompressedBlockIndex index = provider.createBlockIndex( channel );
+      assertNotNull( index );
+      assertEquals( 4, index.size() );
+      assertEquals( 0L, index.getOffset( 0 ) );
+      assertEquals( 3000L, index.getUncompressedSize( 0 ) );
+      assertEquals( 1000L, index.getUncompressedSize( 3 ) );
+      assertEquals( 0L, channel.position() );
+
+      try ( InputStream in = provider.createBlockInputStream( channel, index.getOffset( 2 ) ) ) {
+        assertArrayEquals( Arrays.copyOfRange( data, 6000, data.length ), IOUtils.toByteArray( in ) );
+      }
+    }
+  }
+
+  @Test
+  public void testCreateBlockIndexOfRegularGzip() throws IOException {
+    GzipCompressionProvider provider = (GzipCompressionProvider) factory.getCompressionProviderByName( PROVIDER_NAME );
+    File file = File.createTempFile( "gzip", ".gz" );
+    file.deleteOnExit();
+    try ( GZIPOutputStream out = new GZIPOutputStream( new FileOutputStream( file ) ) ) {
+      out.write( "Test".getBytes() );
+    }
+    try ( RandomAccessFile raf = new RandomAccessFile( file, "r" ); FileChannel channel = raf.getChannel() ) {
+      assertNull( provider.createBlockIndex( channel ) );
+    }
+  }
+
+  /**
+   * @return a gzip member with the BGZF extra field holding the size of the member
+   */
+  static byte[] bgzfBlock( byte[] data ) {
+    Deflater deflater = new Deflater( Deflater.DEFAULT_COMPRESSION, true );
+    deflater.setInput( data );
+    deflater.finish();
+    byte[] compressed = new byte[ data.length + 1024 ];
+    int compressedLength = deflater.deflate( compressed );
+    deflater.end();
+
+    CRC32 crc = new CRC32();
+    crc.update( data );
+
+    ByteBuffer block = ByteBuffer.allocate( 18 + compressedLength + 8 ).order( ByteOrder.LITTLE_ENDIAN );
+    block.put( (byte) 0x1f ).put( (byte) 0x8b ).put( (byte) 8 ).put( (byte) 4 ).putInt( 0 ).put( (byte) 0 )
+      .put( (byte) 0xff ).putShort( (short) 6 ).put( (byte) 'B' ).put( (byte) 'C' ).putShort( (short) 2 )
+      .putShort( (short) ( block.capacity() - 1 ) );
+    block.put( compressed, 0, compressedLength );
+    block.putInt( (int) crc.getValue() ).putInt( data.length );
+    return block.array();
+  }
 }
@@ -22,6 +22,8 @@
 
 package org.apache.hop.core.compress.snappy;
 
+import org.apache.commons.io.IOUtils;
+import org.apache.hop.core.compress.CompressedBlockIndex;
 import org.apache.hop.core.compress.CompressionPluginType;
 import org.apache.hop.core.compress.CompressionProviderFactory;
 import org.apache.hop.core.plugins.PluginRegistry;
@@ -37,8 +39,15 @@ import org.xerial.snappy.SnappyOutputStream;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
@@ -116,6 +125,47 @@ public class SnappyCompressionProviderTest {
     assertNotNull( ncis );
   }
 
+  @Test
+  public void testCreateBlockIndex() throws IOException {
+    SnappyCompressionProvider provider =
+      (SnappyCompressionProvider) factory.getCompressionProviderByName( PROVIDER_NAME );
+    byte[] data = new byte[ 10000 ];
+    for ( int i = 0; i < data.length; i++ ) {
+      data[ i ] = (byte) ( 'a' + i % 26 );
+    }
+    File file = File.createTempFile( "snappy", ".snappy" );
+    file.deleteOnExit();
+    try ( SnappyOutputStream out = new SnappyOutputStream( new FileOutputStream( file ), 4096 ) ) {
+      out.write( data );
+    }
+
+    try ( RandomAccessFile raf = new RandomAccessFile( file, "r" ); FileChannel channel = raf.getChannel() ) {
+      CompressedBlockIndex index = provider.createBlockIndex( channel );
+      assertNotNull( index );
+      assertEquals( 3, index.size() );
+      assertEquals( 4096L, index.getUncompressedSize( 0 ) );
+      assertEquals( data.length, index.getUncompressedSize( 0, index.size() ) );
+
+      try ( InputStream in = provider.createBlockInputStream( channel, index.getOffset( 1 ) ) ) {
+        assertArrayEquals( Arrays.copyOfRange( data, 4096, data.length ), IOUtils.toByteArray( in ) );
+      }
+    }
+  }
+
+  @Test
+  public void testCreateBlockIndexWithoutHeader() throws IOException {
+    SnappyCompressionProvider provider =
+      (SnappyCompressionProvider) factory.getCompressionProviderByName( PROVIDER_NAME );
+    File file = File.createTempFile( "snappy", ".txt" );
+    file.deleteOnExit();
+    try ( FileOutputStream out = new FileOutputStream( file ) ) {
+      out.write( "Not compressed at all".getBytes() );
+    }
+    try ( RandomAccessFile raf = new RandomAccessFile( file, "r" ); FileChannel channel = raf.getChannel() ) {
+      assertNull( provider.createBlockIndex( channel ) );
+    }
+  }
+
   private SnappyInputStream createSnappyInputStream() throws IOException {
     // Create an in-memory ZIP output stream for use by the input stream (to avoid exceptions)
     ByteArrayOutputStream baos = new ByteArrayOutputStream();
@@ -51,14 +51,29 @@ public class PipelineTestingUtil {
 
     int i = 0;
     List<Object[]> result = new ArrayList<>( expectedRowsAmount );
-    while ( transform.processRow() && i < expectedRowsAmount ) {
-      Object[] row = output.getRowImmediate();
-      assertNotNull( Integer.toString( i ), row );
-      result.add( row );
+    while ( true ) {
+      boolean expectedReached = i >= expectedRowsAmount;
+      boolean running = transform.processRow();
+      if ( expectedReached ) {
+        break;
+      }
 
-      i++;
+      // A transform can hand over several rows in one processRow() call
+      //
+      Object[] row = output.getRowImmediate();
+      if ( running ) {
+        assertNotNull( Integer.toString( i ), row );
+      }
+      while ( row != null ) {
+        result.add( row );
+        i++;
+        row = output.getRowImmediate();
+      }
+      if ( !running ) {
+        break;
+      }
     }
-    assertEquals( "The amount of executions should be equal to expected", expectedRowsAmount, i );
+    assertEquals( "The amount of rows should be equal to expected", expectedRowsAmount, i );
     if ( checkIsDone ) {
       assertTrue( output.isDone() );
     }
@@ -58,15 +58,19 @@ import java.util.Calendar;
 import java.util.Date;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyLong;
 import static org.mockito.Mockito.anyObject;
 import static org.mockito.Mockito.doNothing;
 import static org.mockito.Mockito.doReturn;
@@ -472,4 +476,61 @@ public class BaseTransformTest {
     baseTransformSpy.getRow();
     verify( mockHelper.pipelineMeta, times( 1 ) ).checkRowMixingStatically( any( TransformMeta.class ), anyObject() );
   }
+
+  @Test
+  public void testGetRowFreezesInputRowMeta() throws HopException {
+    BaseTransform baseTransformSpy =
+      spy( new BaseTransform( mockHelper.transformMeta, mockHelper.iTransformMeta, mockHelper.iTransformData,
+        0, mockHelper.pipelineMeta, mockHelper.pipeline ) );
+    doNothing().when( baseTransformSpy ).waitUntilPipelineIsStarted();
+    baseTransformSpy.setFreezingInputRowMeta( true );
+
+    BlockingRowSet rowSet = new BlockingRowSet( 2 );
+    RowMeta rowMeta = new RowMeta();
+    rowMeta.addValueMeta( new ValueMetaInteger( "x" ) );
+    rowSet.putRow( rowMeta, new Object[] { 1L } );
+    rowSet.putRow( rowMeta, new Object[] { 2L } );
+
+    baseTransformSpy.setInputRowSets( Arrays.asList( rowSet ) );
+    doReturn( rowSet ).when( baseTransformSpy ).currentInputStream();
+
+    baseTransformSpy.getRow();
+    IRowMeta inputRowMeta = baseTransformSpy.getInputRowMeta();
+    assertTrue( inputRowMeta.isImmutable() );
+    assertEquals( 0, inputRowMeta.indexOfValue( "X" ) );
+    assertFalse( inputRowMeta.clone().isImmutable() );
+
+    baseTransformSpy.getRow();
+    assertSame( inputRowMeta, baseTransformSpy.getInputRowMeta() );
+  }
+
+  @Test
+  public void testGetRowsReadsBatchFromDeliveringRowSet() throws HopException {
+    BaseTransform baseTransformSpy =
+      spy( new BaseTransform( mockHelper.transformMeta, mockHelper.iTransformMeta, mockHelper.iTransformData,
+        0, mockHelper.pipelineMeta, mockHelper.pipeline ) );
+    doNothing().when( baseTransformSpy ).waitUntilPipelineIsStarted();
+
+    RowMeta rowMeta = new RowMeta();
+    rowMeta.addValueMeta( new ValueMetaInteger( "x" ) );
+
+    // The first row set only hands out its last row after it is done: getRow() moves on to the next row set
+    //
+    IRowSet doneRowSet = mock( IRowSet.class );
+    when( doneRowSet.getRowMeta() ).thenReturn( rowMeta );
+    when( doneRowSet.isDone() ).thenReturn( true );
+    when( doneRowSet.getRowWait( anyLong(), any( TimeUnit.class ) ) ).thenReturn( null, new Object[] { 1L } );
+    when( doneRowSet.getRowsImmediate( anyInt() ) ).thenReturn( new Object[][] { { 2L } } );
+
+    BlockingRowSet otherRowSet = new BlockingRowSet( 2 );
+    otherRowSet.putRow( rowMeta, new Object[] { 10L } );
+
+    baseTransformSpy.setInputRowSets( new ArrayList<>( Arrays.asList( doneRowSet, otherRowSet ) ) );
+
+    Object[][] rows = baseTransformSpy.getRows( 10 );
+    assertEquals( 2, rows.length );
+    assertEquals( 1L, rows[ 0 ][ 0 ] );
+    assertEquals( 2L, rows[ 1 ][ 0 ] );
+    assertEquals( 1, otherRowSet.size() );
+  }
 }
@@ -582,6 +582,14 @@ public class MsSqlServerDatabaseMeta extends BaseDatabaseMeta implements IDataba
         return 8000;
     }
 
+    /**
+     * SQL Server accepts up to 2100 parameters per statement.
+     */
+    @Override
+    public int getMaxLookupParameters() {
+        return 2000;
+    }
+
     @Override
     public boolean isMsSqlServerVariant() {
         return true;
@@ -136,6 +136,7 @@ public class MsSqlServerDatabaseMetaTest {
     assertFalse( nativeMeta.useSafePoints() );
     assertTrue( nativeMeta.supportsErrorHandlingOnBatchUpdates() );
     assertEquals( 8000, nativeMeta.getMaxVARCHARLength() );
+    assertEquals( 2000, nativeMeta.getMaxLookupParameters() );
   }
 
 
@@ -204,4 +204,12 @@ public class SqliteDatabaseMeta extends BaseDatabaseMeta implements IDatabase {
     return true;
   }
 
+  /**
+   * @return the maximum number of parameters in a lookup statement: older SQLite versions allow only 999 host parameters.
+   */
+  @Override
+  public int getMaxLookupParameters() {
+    return 999;
+  }
+
 }
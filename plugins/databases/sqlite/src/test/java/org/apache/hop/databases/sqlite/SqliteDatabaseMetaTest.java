@@ -52,6 +52,7 @@ public class SqliteDatabaseMetaTest {
     assertFalse( nativeMeta.supportsBitmapIndex() );
     assertFalse( nativeMeta.supportsSynonyms() );
     assertFalse( nativeMeta.supportsErrorHandling() );
+    assertEquals( 999, nativeMeta.getMaxLookupParameters() );
 
     assertEquals( "FOO.BAR", nativeMeta.getSchemaTableCombination( "FOO", "BAR" ) );
 
@@ -22,76 +22,128 @@
 
 package org.apache.hop.beam.core.coder;
 
-import org.apache.beam.sdk.coders.AtomicCoder;
 import org.apache.beam.sdk.coders.CoderException;
+import org.apache.beam.sdk.coders.CustomCoder;
+import org.apache.beam.sdk.util.VarInt;
 import org.apache.hop.beam.core.HopRow;
+import org.apache.hop.core.row.IRowMeta;
 import org.apache.hop.core.row.IValueMeta;
 
+import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
 import java.io.OutputStream;
 import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
 import java.sql.Timestamp;
+import java.util.Arrays;
 import java.util.Date;
 
-public class HopRowCoder extends AtomicCoder<HopRow> {
+/**
+ * Encodes Hop rows in a compact binary format.
+ * <p>
+ * When the row metadata of the collection is known, pass it to {@link #HopRowCoder(IRowMeta)}: values which have the
+ * data type of their field are then written without any type information. Values that don't match their field (or
+ * fields beyond the row metadata) are written with a one byte type tag. Without row metadata every value is tagged.
+ * <p>
+ * A row is encoded as:
+ * <ul>
+ *   <li>varint: (row length + 1) &lt;&lt; 1 | tagged values flag, 0 for a null row</li>
+ *   <li>null bitmap: one bit per value</li>
+ *   <li>tagged bitmap: one bit per value, only present if the flag is set</li>
+ *   <li>the non-null values, preceded by their type if tagged</li>
+ * </ul>
+ * Integers and dates are zig-zag varints, strings are length prefixed UTF-8, big numbers are the scale followed by the
+ * unscaled two's complement bytes and timestamps are the milliseconds followed by the nanoseconds.
+ */
+public class HopRowCoder extends CustomCoder<HopRow> {
+
+  /**
+   * The value types of the fields in the collection, serializable unlike the row metadata itself
+   */
+  private final int[] valueTypes;
+
+  public HopRowCoder() {
+    this.valueTypes = new int[ 0 ];
+  }
+
+  /**
+   * @param rowMeta The row metadata of all the rows in the collection this coder is used for
+   */
+  public HopRowCoder( IRowMeta rowMeta ) {
+    this.valueTypes = new int[ rowMeta.size() ];
+    for ( int i = 0; i < valueTypes.length; i++ ) {
+      valueTypes[ i ] = rowMeta.getValueMeta( i ).getType();
+    }
+  }
 
   @Override public void encode( HopRow value, OutputStream outStream ) throws CoderException, IOException {
 
     Object[] row = value.getRow();
-    ObjectOutputStream out = new ObjectOutputStream( outStream );
-
-    // Length
-    //
     if ( row == null ) {
-      out.writeInt( -1 );
+      VarInt.encode( 0, outStream );
       return; // all done
-    } else {
-      out.writeInt( row.length );
     }
 
-    // The values
+    // Figure out which values are null and which ones don't match their field type
     //
+    int bitmapSize = ( row.length + 7 ) >>> 3;
+    byte[] nullBitmap = new byte[ bitmapSize ];
+    byte[] taggedBitmap = null;
     for ( int i = 0; i < row.length; i++ ) {
       Object object = row[ i ];
-      // Null?
-      //
-      out.writeBoolean( object == null );
+      if ( object == null ) {
+        nullBitmap[ i >>> 3 ] |= 1 << ( i & 7 );
+      } else if ( i >= valueTypes.length || !isOfType( valueTypes[ i ], object ) ) {
+        if ( taggedBitmap == null ) {
+          taggedBitmap = new byte[ bitmapSize ];
+        }
+        taggedBitmap[ i >>> 3 ] |= 1 << ( i & 7 );
+      }
+    }
 
-      if ( object != null ) {
-        // Type?
-        //
-        int objectType = getObjectType( object );
-        out.writeInt( objectType );
+    VarInt.encode( ( ( (long) row.length + 1 ) << 1 ) | ( taggedBitmap == null ? 0 : 1 ), outStream );
+    outStream.write( nullBitmap );
+    if ( taggedBitmap != null ) {
+      outStream.write( taggedBitmap );
+    }
 
-        // The object itself
-        //
-        write( out, objectType, object );
+    // The values
+    //
+    for ( int i = 0; i < row.length; i++ ) {
+      Object object = row[ i ];
+      if ( object != null ) {
+        if ( isSet( taggedBitmap, i ) ) {
+          int objectType = getObjectType( object );
+          outStream.write( objectType );
+          write( outStream, objectType, object );
+        } else {
+          write( outStream, valueTypes[ i ], object );
+        }
       }
     }
-    out.flush();
   }
 
-
   @Override public HopRow decode( InputStream inStream ) throws CoderException, IOException {
 
-    ObjectInputStream in = new ObjectInputStream( inStream );
-
-    Object[] row = null;
-    int length = in.readInt();
-    if ( length < 0 ) {
-      return new HopRow( row );
+    long header = VarInt.decodeLong( inStream );
+    if ( header == 0 ) {
+      return new HopRow( null );
     }
-    row = new Object[ length ];
+    int length = (int) ( ( header >>> 1 ) - 1 );
+    int bitmapSize = ( length + 7 ) >>> 3;
+    byte[] nullBitmap = readFully( inStream, bitmapSize );
+    byte[] taggedBitmap = ( header & 1 ) != 0 ? readFully( inStream, bitmapSize ) : null;
+
+    Object[] row = new Object[ length ];
     for ( int i = 0; i < length; i++ ) {
-      // Null?
-      boolean isNull = in.readBoolean();
-      if ( !isNull ) {
-        int objectType = in.readInt();
-        Object object = read( in, objectType );
-        row[ i ] = object;
+      if ( !isSet( nullBitmap, i ) ) {
+        if ( isSet( taggedBitmap, i ) ) {
+          row[ i ] = read( inStream, readByte( inStream ) );
+        } else {
+          row[ i ] = read( inStream, valueTypes[ i ] );
+        }
       }
     }
 
@@ -102,37 +154,86 @@ public class HopRowCoder extends AtomicCoder<HopRow> {
     // Sure
   }
 
+  @Override public boolean equals( Object other ) {
+    if ( this == other ) {
+      return true;
+    }
+    if ( other == null || getClass() != other.getClass() ) {
+      return false;
+    }
+    return Arrays.equals( valueTypes, ( (HopRowCoder) other ).valueTypes );
+  }
+
+  @Override public int hashCode() {
+    return Arrays.hashCode( valueTypes );
+  }
+
+  private static boolean isSet( byte[] bitmap, int index ) {
+    return bitmap != null && ( bitmap[ index >>> 3 ] & ( 1 << ( index & 7 ) ) ) != 0;
+  }
+
+  private static boolean isOfType( int valueType, Object object ) {
+    switch ( valueType ) {
+      case IValueMeta.TYPE_STRING:
+        return object instanceof String;
+      case IValueMeta.TYPE_INTEGER:
+        return object instanceof Long;
+      case IValueMeta.TYPE_DATE:
+        return object instanceof Date && !( object instanceof Timestamp );
+      case IValueMeta.TYPE_TIMESTAMP:
+        return object instanceof Timestamp;
+      case IValueMeta.TYPE_BOOLEAN:
+        return object instanceof Boolean;
+      case IValueMeta.TYPE_NUMBER:
+        return object instanceof Double;
+      case IValueMeta.TYPE_BIGNUMBER:
+        return object instanceof BigDecimal;
+      case IValueMeta.TYPE_BINARY:
+        return object instanceof byte[];
+      default:
+        return false;
+    }
+  }
 
-  private void write( ObjectOutputStream out, int objectType, Object object ) throws IOException {
+  private void write( OutputStream out, int objectType, Object object ) throws IOException {
     switch ( objectType ) {
       case IValueMeta.TYPE_STRING: {
-        String string = (String) object;
-        out.writeUTF( string );
+        writeBytes( out, ( (String) object ).getBytes( StandardCharsets.UTF_8 ) );
       }
       break;
       case IValueMeta.TYPE_INTEGER: {
-        Long lng = (Long) object;
-        out.writeLong( lng );
+        writeZigZag( out, (Long) object );
       }
       break;
       case IValueMeta.TYPE_DATE: {
-        Long lng = ( (Date) object ).getTime();
-        out.writeLong( lng );
+        writeZigZag( out, ( (Date) object ).getTime() );
+      }
+      break;
+      case IValueMeta.TYPE_TIMESTAMP: {
+        Timestamp timestamp = (Timestamp) object;
+        writeZigZag( out, timestamp.getTime() );
+        VarInt.encode( timestamp.getNanos(), out );
       }
       break;
       case IValueMeta.TYPE_BOOLEAN: {
-        boolean b = (Boolean) object;
-        out.writeBoolean( b );
+        out.write( ( (Boolean) object ) ? 1 : 0 );
       }
       break;
       case IValueMeta.TYPE_NUMBER: {
-        Double dbl = (Double) object;
-        out.writeDouble( dbl );
+        long bits = Double.doubleToLongBits( (Double) object );
+        for ( int shift = 56; shift >= 0; shift -= 8 ) {
+          out.write( (int) ( bits >>> shift ) );
+        }
       }
       break;
       case IValueMeta.TYPE_BIGNUMBER: {
         BigDecimal bd = (BigDecimal) object;
-        out.writeUTF( bd.toString() );
+        writeZigZag( out, bd.scale() );
+        writeBytes( out, bd.unscaledValue().toByteArray() );
+      }
+      break;
+      case IValueMeta.TYPE_BINARY: {
+        writeBytes( out, (byte[]) object );
       }
       break;
       default:
@@ -140,42 +241,89 @@ public class HopRowCoder extends AtomicCoder<HopRow> {
     }
   }
 
-  private Object read( ObjectInputStream in, int objectType ) throws IOException {
+  private Object read( InputStream in, int objectType ) throws IOException {
     switch ( objectType ) {
       case IValueMeta.TYPE_STRING: {
-        String string = in.readUTF();
-        return string;
+        return new String( readBytes( in ), StandardCharsets.UTF_8 );
       }
 
       case IValueMeta.TYPE_INTEGER: {
-        Long lng = in.readLong();
-        return lng;
+        return readZigZag( in );
       }
 
       case IValueMeta.TYPE_DATE: {
-        Long lng = in.readLong();
-        return new Date( lng );
+        return new Date( readZigZag( in ) );
+      }
+
+      case IValueMeta.TYPE_TIMESTAMP: {
+        Timestamp timestamp = new Timestamp( readZigZag( in ) );
+        timestamp.setNanos( VarInt.decodeInt( in ) );
+        return timestamp;
       }
 
       case IValueMeta.TYPE_BOOLEAN: {
-        boolean b = in.readBoolean();
-        return b;
+        return readByte( in ) != 0;
       }
 
       case IValueMeta.TYPE_NUMBER: {
-        Double dbl = in.readDouble();
-        return dbl;
+        long bits = 0;
+        for ( int i = 0; i < 8; i++ ) {
+          bits = ( bits << 8 ) | readByte( in );
+        }
+        return Double.longBitsToDouble( bits );
       }
 
       case IValueMeta.TYPE_BIGNUMBER: {
-        String bd = in.readUTF();
-        return new BigDecimal( bd );
+        int scale = (int) readZigZag( in );
+        return new BigDecimal( new BigInteger( readBytes( in ) ), scale );
+      }
+
+      case IValueMeta.TYPE_BINARY: {
+        return readBytes( in );
       }
       default:
         throw new IOException( "Data type not supported yet: " + objectType );
     }
   }
 
+  private static void writeZigZag( OutputStream out, long value ) throws IOException {
+    VarInt.encode( ( value << 1 ) ^ ( value >> 63 ), out );
+  }
+
+  private static long readZigZag( InputStream in ) throws IOException {
+    long value = VarInt.decodeLong( in );
+    return ( value >>> 1 ) ^ -( value & 1 );
+  }
+
+  private static void writeBytes( OutputStream out, byte[] bytes ) throws IOException {
+    VarInt.encode( bytes.length, out );
+    out.write( bytes );
+  }
+
+  private static byte[] readBytes( InputStream in ) throws IOException {
+    return readFully( in, VarInt.decodeInt( in ) );
+  }
+
+  private static int readByte( InputStream in ) throws IOException {
+    int b = in.read();
+    if ( b < 0 ) {
+      throw new EOFException( "Unexpected end of stream while decoding a Hop row" );
+    }
+    return b;
+  }
+
+  private static byte[] readFully( InputStream in, int length ) throws IOException {
+    byte[] bytes = new byte[ length ];
+    int offset = 0;
+    while ( offset < length ) {
+      int read = in.read( bytes, offset, length - offset );
+      if ( read < 0 ) {
+        throw new EOFException( "Unexpected end of stream while decoding a Hop row" );
+      }
+      offset += read;
+    }
+    return bytes;
+  }
 
   private int getObjectType( Object object ) throws CoderException {
     if ( object instanceof String ) {
@@ -184,12 +332,14 @@ public class HopRowCoder extends AtomicCoder<HopRow> {
     if ( object instanceof Long ) {
       return IValueMeta.TYPE_INTEGER;
     }
-    if ( object instanceof Date ) {
-      return IValueMeta.TYPE_DATE;
-    }
+    // Check timestamps before dates, a Timestamp is a Date too
+    //
     if ( object instanceof Timestamp ) {
       return IValueMeta.TYPE_TIMESTAMP;
     }
+    if ( object instanceof Date ) {
+      return IValueMeta.TYPE_DATE;
+    }
     if ( object instanceof Boolean ) {
       return IValueMeta.TYPE_BOOLEAN;
     }
@@ -199,6 +349,9 @@ public class HopRowCoder extends AtomicCoder<HopRow> {
     if ( object instanceof BigDecimal ) {
       return IValueMeta.TYPE_BIGNUMBER;
     }
+    if ( object instanceof byte[] ) {
+      return IValueMeta.TYPE_BINARY;
+    }
     throw new CoderException( "Data type for object class " + object.getClass().getName() + " isn't supported yet" );
   }
 
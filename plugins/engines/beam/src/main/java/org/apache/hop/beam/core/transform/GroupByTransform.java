@@ -22,6 +22,7 @@
 
 package org.apache.hop.beam.core.transform;
 
+import org.apache.beam.sdk.coders.KvCoder;
 import org.apache.beam.sdk.metrics.Counter;
 import org.apache.beam.sdk.metrics.Metrics;
 import org.apache.beam.sdk.transforms.GroupByKey;
@@ -31,6 +32,7 @@ import org.apache.beam.sdk.values.KV;
 import org.apache.beam.sdk.values.PCollection;
 import org.apache.hop.beam.core.BeamHop;
 import org.apache.hop.beam.core.HopRow;
+import org.apache.hop.beam.core.coder.HopRowCoder;
 import org.apache.hop.beam.core.fn.GroupByFn;
 import org.apache.hop.beam.core.fn.HopKeyValueFn;
 import org.apache.hop.beam.core.util.JsonRowMeta;
@@ -99,6 +101,10 @@ public class GroupByTransform extends PTransform<PCollection<HopRow>, PCollectio
         new HopKeyValueFn( rowMetaJson, transformPluginClasses, xpPluginClasses, groupFields, subjects, transformName )
       ) );
 
+      // The keys and values are shuffled, encode them using their row metadata
+      //
+      groupSubjects.setCoder( KvCoder.of( new HopRowCoder( groupRowMeta ), new HopRowCoder( subjectRowMeta ) ) );
+
       // Now we need to aggregate the groups with a Combine
       GroupByKey<HopRow, HopRow> byKey = GroupByKey.<HopRow, HopRow>create();
       PCollection<KV<HopRow, Iterable<HopRow>>> grouped = groupSubjects.apply( byKey );
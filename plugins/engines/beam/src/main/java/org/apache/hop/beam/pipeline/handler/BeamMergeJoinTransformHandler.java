@@ -23,12 +23,14 @@
 package org.apache.hop.beam.pipeline.handler;
 
 import org.apache.beam.sdk.Pipeline;
+import org.apache.beam.sdk.coders.KvCoder;
 import org.apache.beam.sdk.extensions.joinlibrary.Join;
 import org.apache.beam.sdk.transforms.DoFn;
 import org.apache.beam.sdk.transforms.ParDo;
 import org.apache.beam.sdk.values.KV;
 import org.apache.beam.sdk.values.PCollection;
 import org.apache.hop.beam.core.HopRow;
+import org.apache.hop.beam.core.coder.HopRowCoder;
 import org.apache.hop.beam.core.fn.AssemblerFn;
 import org.apache.hop.beam.core.fn.HopKeyValueFn;
 import org.apache.hop.beam.core.util.JsonRowMeta;
@@ -117,6 +119,7 @@ public class BeamMergeJoinTransformHandler extends BeamBaseTransformHandler impl
     HopKeyValueFn leftKVFn = new HopKeyValueFn(
       JsonRowMeta.toJson( leftRowMeta ), transformPluginClasses, xpPluginClasses, leftK.toArray( new String[ 0 ] ), leftV.toArray( new String[ 0 ] ), transformMeta.getName() );
     PCollection<KV<HopRow, HopRow>> leftKVPCollection = leftPCollection.apply( ParDo.of( leftKVFn ) );
+    leftKVPCollection.setCoder( KvCoder.of( new HopRowCoder( leftKRowMeta ), new HopRowCoder( leftVRowMeta ) ) );
 
     // Create key-value pairs (KV) for the left collections
     //
@@ -138,6 +141,7 @@ public class BeamMergeJoinTransformHandler extends BeamBaseTransformHandler impl
     HopKeyValueFn rightKVFn = new HopKeyValueFn(
       JsonRowMeta.toJson( rightRowMeta ), transformPluginClasses, xpPluginClasses, rightK.toArray( new String[ 0 ] ), rightV.toArray( new String[ 0 ] ), transformMeta.getName() );
     PCollection<KV<HopRow, HopRow>> rightKVPCollection = rightPCollection.apply( ParDo.of( rightKVFn ) );
+    rightKVPCollection.setCoder( KvCoder.of( new HopRowCoder( rightKRowMeta ), new HopRowCoder( rightVRowMeta ) ) );
 
     PCollection<KV<HopRow, KV<HopRow, HopRow>>> kvpCollection;
 
@@ -24,11 +24,24 @@ package org.apache.hop.beam.core.coder;
 
 import junit.framework.TestCase;
 import org.apache.hop.beam.core.HopRow;
+import org.apache.hop.core.row.IRowMeta;
+import org.apache.hop.core.row.RowMeta;
+import org.apache.hop.core.row.value.ValueMetaBigNumber;
+import org.apache.hop.core.row.value.ValueMetaBinary;
+import org.apache.hop.core.row.value.ValueMetaBoolean;
+import org.apache.hop.core.row.value.ValueMetaDate;
+import org.apache.hop.core.row.value.ValueMetaInteger;
+import org.apache.hop.core.row.value.ValueMetaNumber;
+import org.apache.hop.core.row.value.ValueMetaString;
+import org.apache.hop.core.row.value.ValueMetaTimestamp;
 import org.junit.Test;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.util.Arrays;
 import java.util.Date;
 
 public class HopRowCoderTest extends TestCase {
@@ -60,6 +73,92 @@ public class HopRowCoderTest extends TestCase {
 
 
   @Test
-  public void decode() {
+  public void testEncodeWithRowMeta() throws IOException {
+    IRowMeta rowMeta = new RowMeta();
+    rowMeta.addValueMeta( new ValueMetaString( "string" ) );
+    rowMeta.addValueMeta( new ValueMetaInteger( "integer" ) );
+    rowMeta.addValueMeta( new ValueMetaNumber( "number" ) );
+    rowMeta.addValueMeta( new ValueMetaDate( "date" ) );
+    rowMeta.addValueMeta( new ValueMetaTimestamp( "timestamp" ) );
+    rowMeta.addValueMeta( new ValueMetaBoolean( "boolean" ) );
+    rowMeta.addValueMeta( new ValueMetaBigNumber( "bignumber" ) );
+    rowMeta.addValueMeta( new ValueMetaInteger( "null" ) );
+    HopRowCoder schemaCoder = new HopRowCoder( rowMeta );
+
+    Timestamp timestamp = new Timestamp( 876876868L );
+    timestamp.setNanos( 123456789 );
+    HopRow row = new HopRow( new Object[] { "AAA", -100L, 1.234, new Date( 876876868 ), timestamp, true,
+      new BigDecimal( "-12345678901234567890.123456789" ), null, null, null } );
+
+    byte[] bytes = encode( schemaCoder, row );
+    assertEquals( row, decode( schemaCoder, bytes ) );
+
+    // No type information is needed for these values so this has to be smaller than the self-describing version
+    assertTrue( bytes.length < encode( hopRowCoder, row ).length );
+    assertEquals( row, decode( hopRowCoder, encode( hopRowCoder, row ) ) );
+  }
+
+  @Test
+  public void testEncodeMismatchedValues() throws IOException {
+    IRowMeta rowMeta = new RowMeta();
+    rowMeta.addValueMeta( new ValueMetaInteger( "integer" ) );
+    rowMeta.addValueMeta( new ValueMetaDate( "date" ) );
+    HopRowCoder schemaCoder = new HopRowCoder( rowMeta );
+
+    // A string in an integer field, a timestamp in a date field and a value beyond the row metadata
+    HopRow row = new HopRow( new Object[] { "not a number", new Timestamp( 1000L ), 3.0 } );
+    HopRow decoded = decode( schemaCoder, encode( schemaCoder, row ) );
+    assertEquals( row, decoded );
+    assertTrue( decoded.getRow()[ 1 ] instanceof Timestamp );
+  }
+
+  @Test
+  public void testEncodeBinaryAndLongStrings() throws IOException {
+    IRowMeta rowMeta = new RowMeta();
+    rowMeta.addValueMeta( new ValueMetaBinary( "binary" ) );
+    rowMeta.addValueMeta( new ValueMetaString( "string" ) );
+    HopRowCoder schemaCoder = new HopRowCoder( rowMeta );
+
+    char[] chars = new char[ 100000 ];
+    Arrays.fill( chars, '\u00e9' );
+    String longString = new String( chars );
+    byte[] binary = new byte[] { 0, 1, 2, -1, -128, 127 };
+
+    for ( HopRowCoder coder : new HopRowCoder[] { schemaCoder, hopRowCoder } ) {
+      Object[] decoded = decode( coder, encode( coder, new HopRow( new Object[] { binary, longString } ) ) ).getRow();
+      assertTrue( Arrays.equals( binary, (byte[]) decoded[ 0 ] ) );
+      assertEquals( longString, decoded[ 1 ] );
+    }
+  }
+
+  @Test
+  public void testEncodeNullRows() throws IOException {
+    assertNull( decode( hopRowCoder, encode( hopRowCoder, new HopRow( null ) ) ).getRow() );
+    assertEquals( 0, decode( hopRowCoder, encode( hopRowCoder, new HopRow( new Object[ 0 ] ) ) ).getRow().length );
+    assertEquals( new HopRow( new Object[ 20 ] ), decode( hopRowCoder, encode( hopRowCoder, new HopRow( new Object[ 20 ] ) ) ) );
+  }
+
+  @Test
+  public void testEncodeNested() throws IOException {
+    // Rows are written one after the other in keyed and grouped collections
+    HopRow row1 = new HopRow( new Object[] { "AAA", 1L } );
+    HopRow row2 = new HopRow( new Object[] { null, 2L, "BBB" } );
+    hopRowCoder.encode( row1, outputStream );
+    hopRowCoder.encode( row2, outputStream );
+
+    ByteArrayInputStream inputStream = new ByteArrayInputStream( outputStream.toByteArray() );
+    assertEquals( row1, hopRowCoder.decode( inputStream ) );
+    assertEquals( row2, hopRowCoder.decode( inputStream ) );
+    assertEquals( -1, inputStream.read() );
+  }
+
+  private static byte[] encode( HopRowCoder coder, HopRow row ) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    coder.encode( row, out );
+    return out.toByteArray();
+  }
+
+  private static HopRow decode( HopRowCoder coder, byte[] bytes ) throws IOException {
+    return coder.decode( new ByteArrayInputStream( bytes ) );
   }
 }
\ No newline at end of file
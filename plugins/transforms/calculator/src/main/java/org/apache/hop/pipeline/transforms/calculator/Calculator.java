@@ -22,6 +22,7 @@
 
 package org.apache.hop.pipeline.transforms.calculator;
 
+import org.apache.hop.core.Const;
 import org.apache.hop.core.exception.HopException;
 import org.apache.hop.core.exception.HopFileNotFoundException;
 import org.apache.hop.core.exception.HopTransformException;
@@ -67,8 +68,8 @@ public class Calculator extends BaseTransform<CalculatorMeta, CalculatorData> im
   @Override
   public boolean processRow() throws HopException {
 
-    Object[] r = getRow(); // get row, set busy!
-    if ( r == null ) { // no more input to be expected...
+    Object[][] rows = getRows( Const.ROWS_IN_BATCH ); // get rows, set busy!
+    if ( rows == null ) { // no more input to be expected...
       setOutputDone();
       data.clearValuesMetaMapping();
       return false;
@@ -148,35 +149,65 @@ public class Calculator extends BaseTransform<CalculatorMeta, CalculatorData> im
       for ( int i = 0; i < data.getTempIndexes().length; i++ ) {
         data.getTempIndexes()[ i ] = tempIndexes.get( i );
       }
-    }
 
-    if ( log.isRowLevel() ) {
-      logRowlevel( BaseMessages.getString( PKG, "Calculator.Log.ReadRow" )
-        + getLinesRead() + " : " + getInputRowMeta().getString( r ) );
+      // Generate a class doing the numeric calculations on primitives, the rest is still done in calcField()
+      //
+      data.setCompiledCalculation( null );
+      CalculatorCompiler compiler = new CalculatorCompiler( meta.getCalculation(), data.getFieldIndexes(),
+        data.getCalcRowMeta(), getInputRowMeta().size() );
+      if ( compiler.getNrGenerated() > 0 ) {
+        try {
+          data.setCompiledCalculation( compiler.compile( this ) );
+          if ( log.isDetailed() ) {
+            logDetailed( BaseMessages.getString( PKG, "Calculator.Log.Compiled", "" + compiler.getNrGenerated(),
+              "" + meta.getCalculation().length ) );
+          }
+        } catch ( HopException e ) {
+          logError( BaseMessages.getString( PKG, "Calculator.Log.UnableToCompile" ), e );
+        }
+      }
     }
 
-    try {
-      Object[] row = calcFields( getInputRowMeta(), r );
-      putRow( data.getOutputRowMeta(), row ); // copy row to possible alternate rowset(s).
+    Object[][] outputRows = new Object[ rows.length ][];
+    int nrOutputRows = 0;
+    long linesRead = getLinesRead() - rows.length;
 
+    for ( Object[] r : rows ) {
+      linesRead++;
       if ( log.isRowLevel() ) {
-        logRowlevel( "Wrote row #" + getLinesWritten() + " : " + getInputRowMeta().getString( r ) );
+        logRowlevel( BaseMessages.getString( PKG, "Calculator.Log.ReadRow" )
+          + linesRead + " : " + getInputRowMeta().getString( r ) );
       }
-      if ( checkFeedback( getLinesRead() ) ) {
-        if ( log.isBasic() ) {
-          logBasic( BaseMessages.getString( PKG, "Calculator.Log.Linenr", "" + getLinesRead() ) );
+
+      try {
+        Object[] row = calcFields( getInputRowMeta(), r );
+        outputRows[ nrOutputRows++ ] = row;
+
+        if ( log.isRowLevel() ) {
+          logRowlevel( "Wrote row #" + ( getLinesWritten() + nrOutputRows ) + " : " + getInputRowMeta().getString( r ) );
         }
+        if ( checkFeedback( linesRead ) ) {
+          if ( log.isBasic() ) {
+            logBasic( BaseMessages.getString( PKG, "Calculator.Log.Linenr", "" + linesRead ) );
+          }
+        }
+      } catch ( HopFileNotFoundException e ) {
+        if ( meta.isFailIfNoFile() ) {
+          logError( BaseMessages.getString( PKG, "Calculator.Log.NoFile" ) + " : " + e.getFilepath() );
+          setErrors( getErrors() + 1 );
+          // Pass on the rows of this batch calculated before the failing one, like row by row processing did
+          //
+          putRows( data.getOutputRowMeta(), outputRows, nrOutputRows );
+          return false;
+        }
+      } catch ( HopException e ) {
+        putRows( data.getOutputRowMeta(), outputRows, nrOutputRows );
+        logError( BaseMessages.getString( PKG, "Calculator.ErrorInTransformRunning" + " : " + e.getMessage() ) );
+        throw new HopTransformException( BaseMessages.getString( PKG, "Calculator.ErrorInTransformRunning" ), e );
       }
-    } catch ( HopFileNotFoundException e ) {
-      if ( meta.isFailIfNoFile() ) {
-        logError( BaseMessages.getString( PKG, "Calculator.Log.NoFile" ) + " : " + e.getFilepath() );
-        setErrors( getErrors() + 1 );
-        return false;
-      }
-    } catch ( HopException e ) {
-      logError( BaseMessages.getString( PKG, "Calculator.ErrorInTransformRunning" + " : " + e.getMessage() ) );
-      throw new HopTransformException( BaseMessages.getString( PKG, "Calculator.ErrorInTransformRunning" ), e );
     }
+
+    putRows( data.getOutputRowMeta(), outputRows, nrOutputRows ); // copy rows to possible alternate rowset(s).
     return true;
   }
 
@@ -191,449 +222,468 @@ public class Calculator extends BaseTransform<CalculatorMeta, CalculatorData> im
     // First copy the input data to the new result...
     Object[] calcData = RowDataUtil.resizeArray( r, data.getCalcRowMeta().size() );
 
-    for ( int i = 0, index = inputRowMeta.size() + i; i < meta.getCalculation().length; i++, index++ ) {
-      CalculatorMetaFunction fn = meta.getCalculation()[ i ];
-      if ( !Utils.isEmpty( fn.getFieldName() ) ) {
-        IValueMeta targetMeta = data.getCalcRowMeta().getValueMeta( index );
+    if ( data.getCompiledCalculation() != null ) {
+      data.getCompiledCalculation().calculate( calcData );
+    } else {
+      for ( int i = 0, index = inputRowMeta.size() + i; i < meta.getCalculation().length; i++, index++ ) {
+        calcField( calcData, i, index );
+      }
+    }
 
-        // Get the metadata & the data...
-        // IValueMeta metaTarget = data.calcRowMeta.getValueMeta(i);
+    // OK, now we should refrain from adding the temporary fields to the result.
+    // So we remove them.
+    //
+    if ( data.getTempIndexes().length == 0 ) {
+      return calcData;
+    }
+    return RowDataUtil.removeItems( calcData, data.getTempIndexes() );
+  }
 
-        IValueMeta metaA = null;
-        Object dataA = null;
+  /**
+   * Calculate a single field and store it in the calculation row.
+   *
+   * @param calcData the row with the input data and the calculated fields so far
+   * @param i        the index of the calculation
+   * @param index    the index of the calculated field in the calculation row
+   * @throws HopValueException in case there is a calculation error.
+   */
+  void calcField( Object[] calcData, int i, int index ) throws HopValueException, HopFileNotFoundException {
+    CalculatorMetaFunction fn = meta.getCalculation()[ i ];
+    if ( !Utils.isEmpty( fn.getFieldName() ) ) {
+      IValueMeta targetMeta = data.getCalcRowMeta().getValueMeta( index );
 
-        if ( data.getFieldIndexes()[ i ].indexA >= 0 ) {
-          metaA = data.getCalcRowMeta().getValueMeta( data.getFieldIndexes()[ i ].indexA );
-          dataA = calcData[ data.getFieldIndexes()[ i ].indexA ];
-        }
+      // Get the metadata & the data...
+      // IValueMeta metaTarget = data.calcRowMeta.getValueMeta(i);
 
-        IValueMeta metaB = null;
-        Object dataB = null;
+      IValueMeta metaA = null;
+      Object dataA = null;
 
-        if ( data.getFieldIndexes()[ i ].indexB >= 0 ) {
-          metaB = data.getCalcRowMeta().getValueMeta( data.getFieldIndexes()[ i ].indexB );
-          dataB = calcData[ data.getFieldIndexes()[ i ].indexB ];
-        }
+      if ( data.getFieldIndexes()[ i ].indexA >= 0 ) {
+        metaA = data.getCalcRowMeta().getValueMeta( data.getFieldIndexes()[ i ].indexA );
+        dataA = calcData[ data.getFieldIndexes()[ i ].indexA ];
+      }
 
-        IValueMeta metaC = null;
-        Object dataC = null;
+      IValueMeta metaB = null;
+      Object dataB = null;
 
-        if ( data.getFieldIndexes()[ i ].indexC >= 0 ) {
-          metaC = data.getCalcRowMeta().getValueMeta( data.getFieldIndexes()[ i ].indexC );
-          dataC = calcData[ data.getFieldIndexes()[ i ].indexC ];
-        }
+      if ( data.getFieldIndexes()[ i ].indexB >= 0 ) {
+        metaB = data.getCalcRowMeta().getValueMeta( data.getFieldIndexes()[ i ].indexB );
+        dataB = calcData[ data.getFieldIndexes()[ i ].indexB ];
+      }
 
-        int calcType = fn.getCalcType();
-        // The data types are those of the first argument field, convert to the target field.
-        // Exceptions:
-        // - multiply can be string
-        // - constant is string
-        // - all date functions except add days/months
-        // - hex encode / decodes
-
-        int resultType;
-        if ( metaA != null ) {
-          resultType = metaA.getType();
-        } else {
-          resultType = IValueMeta.TYPE_NONE;
-        }
+      IValueMeta metaC = null;
+      Object dataC = null;
 
-        switch ( calcType ) {
-          case CalculatorMetaFunction.CALC_NONE:
-            break;
-          case CalculatorMetaFunction.CALC_COPY_OF_FIELD: // Create a copy of field A
+      if ( data.getFieldIndexes()[ i ].indexC >= 0 ) {
+        metaC = data.getCalcRowMeta().getValueMeta( data.getFieldIndexes()[ i ].indexC );
+        dataC = calcData[ data.getFieldIndexes()[ i ].indexC ];
+      }
 
-            calcData[ index ] = dataA;
+      int calcType = fn.getCalcType();
+      // The data types are those of the first argument field, convert to the target field.
+      // Exceptions:
+      // - multiply can be string
+      // - constant is string
+      // - all date functions except add days/months
+      // - hex encode / decodes
+
+      int resultType;
+      if ( metaA != null ) {
+        resultType = metaA.getType();
+      } else {
+        resultType = IValueMeta.TYPE_NONE;
+      }
 
-            break;
-          case CalculatorMetaFunction.CALC_ADD: // A + B
-            calcData[ index ] = ValueDataUtil.plus( metaA, dataA, metaB, dataB );
-            if ( metaA.isString() || metaB.isString() ) {
-              resultType = IValueMeta.TYPE_STRING;
-            }
-            break;
-          case CalculatorMetaFunction.CALC_SUBTRACT: // A - B
-            calcData[ index ] = ValueDataUtil.minus( metaA, dataA, metaB, dataB );
-            if ( metaA.isDate() ) {
-              resultType = IValueMeta.TYPE_INTEGER;
-            }
-            break;
-          case CalculatorMetaFunction.CALC_MULTIPLY: // A * B
-            calcData[ index ] = ValueDataUtil.multiply( metaA, dataA, metaB, dataB );
-            if ( metaA.isString() || metaB.isString() ) {
-              resultType = IValueMeta.TYPE_STRING;
-            }
-            break;
-          case CalculatorMetaFunction.CALC_DIVIDE: // A / B
-            calcData[ index ] = ValueDataUtil.divide( metaA, dataA, metaB, dataB );
-            break;
-          case CalculatorMetaFunction.CALC_SQUARE: // A * A
-            calcData[ index ] = ValueDataUtil.multiply( metaA, dataA, metaA, dataA );
-            break;
-          case CalculatorMetaFunction.CALC_SQUARE_ROOT: // SQRT( A )
-            calcData[ index ] = ValueDataUtil.sqrt( metaA, dataA );
-            break;
-          case CalculatorMetaFunction.CALC_PERCENT_1: // 100 * A / B
-            calcData[ index ] = ValueDataUtil.percent1( metaA, dataA, metaB, dataB );
-            break;
-          case CalculatorMetaFunction.CALC_PERCENT_2: // A - ( A * B / 100 )
-            calcData[ index ] = ValueDataUtil.percent2( metaA, dataA, metaB, dataB );
-            break;
-          case CalculatorMetaFunction.CALC_PERCENT_3: // A + ( A * B / 100 )
-            calcData[ index ] = ValueDataUtil.percent3( metaA, dataA, metaB, dataB );
-            break;
-          case CalculatorMetaFunction.CALC_COMBINATION_1: // A + B * C
-            calcData[ index ] = ValueDataUtil.combination1( metaA, dataA, metaB, dataB, metaC, dataC );
-            break;
-          case CalculatorMetaFunction.CALC_COMBINATION_2: // SQRT( A*A + B*B )
-            calcData[ index ] = ValueDataUtil.combination2( metaA, dataA, metaB, dataB );
-            break;
-          case CalculatorMetaFunction.CALC_ROUND_1: // ROUND( A )
-            calcData[ index ] = ValueDataUtil.round( metaA, dataA );
-            break;
-          case CalculatorMetaFunction.CALC_ROUND_2: // ROUND( A , B )
-            calcData[ index ] = ValueDataUtil.round( metaA, dataA, metaB, dataB );
-            break;
-          case CalculatorMetaFunction.CALC_ROUND_CUSTOM_1: // ROUND( A , B )
-            calcData[ index ] = ValueDataUtil.round( metaA, dataA, metaB.getNumber( dataB ).intValue() );
-            break;
-          case CalculatorMetaFunction.CALC_ROUND_CUSTOM_2: // ROUND( A , B, C )
-            calcData[ index ] = ValueDataUtil.round( metaA, dataA, metaB, dataB, metaC.getNumber( dataC ).intValue() );
-            break;
-          case CalculatorMetaFunction.CALC_ROUND_STD_1: // ROUND( A )
-            calcData[ index ] = ValueDataUtil.round( metaA, dataA, java.math.BigDecimal.ROUND_HALF_UP );
-            break;
-          case CalculatorMetaFunction.CALC_ROUND_STD_2: // ROUND( A , B )
-            calcData[ index ] = ValueDataUtil.round( metaA, dataA, metaB, dataB, java.math.BigDecimal.ROUND_HALF_UP );
-            break;
-          case CalculatorMetaFunction.CALC_CEIL: // CEIL( A )
-            calcData[ index ] = ValueDataUtil.ceil( metaA, dataA );
-            break;
-          case CalculatorMetaFunction.CALC_FLOOR: // FLOOR( A )
-            calcData[ index ] = ValueDataUtil.floor( metaA, dataA );
-            break;
-          case CalculatorMetaFunction.CALC_CONSTANT: // Set field to constant value...
-            calcData[ index ] = fn.getFieldA(); // A string
-            resultType = CalculatorMetaFunction.calcDefaultResultType[ calcType ];
-            break;
-          case CalculatorMetaFunction.CALC_NVL: // Replace null values with another value
-            calcData[ index ] = ValueDataUtil.nvl( metaA, dataA, metaB, dataB );
-            break;
-          case CalculatorMetaFunction.CALC_ADD_DAYS: // Add B days to date field A
-            calcData[ index ] = ValueDataUtil.addDays( metaA, dataA, metaB, dataB );
-            resultType = CalculatorMetaFunction.calcDefaultResultType[ calcType ];
-            break;
-          case CalculatorMetaFunction.CALC_ADD_HOURS: // Add B hours to date field A
-            calcData[ index ] = ValueDataUtil.addHours( metaA, dataA, metaB, dataB );
-            resultType = CalculatorMetaFunction.calcDefaultResultType[ calcType ];
-            break;
-          case CalculatorMetaFunction.CALC_ADD_MINUTES: // Add B minutes to date field A
-            calcData[ index ] = ValueDataUtil.addMinutes( metaA, dataA, metaB, dataB );
-            resultType = CalculatorMetaFunction.calcDefaultResultType[ calcType ];
-            break;
-          case CalculatorMetaFunction.CALC_YEAR_OF_DATE: // What is the year (Integer) of a date?
-            calcData[ index ] = ValueDataUtil.yearOfDate( metaA, dataA );
-            resultType = CalculatorMetaFunction.calcDefaultResultType[ calcType ];
-            break;
-          case CalculatorMetaFunction.CALC_MONTH_OF_DATE: // What is the month (Integer) of a date?
-            calcData[ index ] = ValueDataUtil.monthOfDate( metaA, dataA );
-            resultType = CalculatorMetaFunction.calcDefaultResultType[ calcType ];
-            break;
-          case CalculatorMetaFunction.CALC_DAY_OF_YEAR: // What is the day of year (Integer) of a date?
-            calcData[ index ] = ValueDataUtil.dayOfYear( metaA, dataA );
-            resultType = CalculatorMetaFunction.calcDefaultResultType[ calcType ];
-            break;
-          case CalculatorMetaFunction.CALC_DAY_OF_MONTH: // What is the day of month (Integer) of a date?
-            calcData[ index ] = ValueDataUtil.dayOfMonth( metaA, dataA );
-            resultType = CalculatorMetaFunction.calcDefaultResultType[ calcType ];
-            break;
-          case CalculatorMetaFunction.CALC_DAY_OF_WEEK: // What is the day of week (Integer) of a date?
-            calcData[ index ] = ValueDataUtil.dayOfWeek( metaA, dataA );
-            resultType = CalculatorMetaFunction.calcDefaultResultType[ calcType ];
-            break;
-          case CalculatorMetaFunction.CALC_WEEK_OF_YEAR: // What is the week of year (Integer) of a date?
-            calcData[ index ] = ValueDataUtil.weekOfYear( metaA, dataA );
-            resultType = CalculatorMetaFunction.calcDefaultResultType[ calcType ];
-            break;
-          case CalculatorMetaFunction.CALC_WEEK_OF_YEAR_ISO8601: // What is the week of year (Integer) of a date ISO8601
-            // style?
-            calcData[ index ] = ValueDataUtil.weekOfYearISO8601( metaA, dataA );
-            resultType = CalculatorMetaFunction.calcDefaultResultType[ calcType ];
-            break;
-          case CalculatorMetaFunction.CALC_YEAR_OF_DATE_ISO8601: // What is the year (Integer) of a date ISO8601 style?
-            calcData[ index ] = ValueDataUtil.yearOfDateISO8601( metaA, dataA );
-            resultType = CalculatorMetaFunction.calcDefaultResultType[ calcType ];
-            break;
-          case CalculatorMetaFunction.CALC_BYTE_TO_HEX_ENCODE: // Byte to Hex encode string field A
-            calcData[ index ] = ValueDataUtil.byteToHexEncode( metaA, dataA );
-            resultType = CalculatorMetaFunction.calcDefaultResultType[ calcType ];
-            break;
-          case CalculatorMetaFunction.CALC_HEX_TO_BYTE_DECODE: // Hex to Byte decode string field A
-            calcData[ index ] = ValueDataUtil.hexToByteDecode( metaA, dataA );
-            resultType = CalculatorMetaFunction.calcDefaultResultType[ calcType ];
-            break;
-
-          case CalculatorMetaFunction.CALC_CHAR_TO_HEX_ENCODE: // Char to Hex encode string field A
-            calcData[ index ] = ValueDataUtil.charToHexEncode( metaA, dataA );
-            resultType = CalculatorMetaFunction.calcDefaultResultType[ calcType ];
-            break;
-          case CalculatorMetaFunction.CALC_HEX_TO_CHAR_DECODE: // Hex to Char decode string field A
-            calcData[ index ] = ValueDataUtil.hexToCharDecode( metaA, dataA );
-            resultType = CalculatorMetaFunction.calcDefaultResultType[ calcType ];
-            break;
-          case CalculatorMetaFunction.CALC_CRC32: // CRC32
-            calcData[ index ] = ValueDataUtil.checksumCRC32( metaA, dataA, meta.isFailIfNoFile() );
-            resultType = CalculatorMetaFunction.calcDefaultResultType[ calcType ];
-            break;
-          case CalculatorMetaFunction.CALC_ADLER32: // ADLER32
-            calcData[ index ] = ValueDataUtil.checksumAdler32( metaA, dataA, meta.isFailIfNoFile() );
-            resultType = CalculatorMetaFunction.calcDefaultResultType[ calcType ];
-            break;
-          case CalculatorMetaFunction.CALC_MD5: // MD5
-            calcData[ index ] = ValueDataUtil.createChecksum( metaA, dataA, "MD5", meta.isFailIfNoFile() );
-            resultType = CalculatorMetaFunction.calcDefaultResultType[ calcType ];
-            break;
-          case CalculatorMetaFunction.CALC_SHA1: // SHA-1
-            calcData[ index ] = ValueDataUtil.createChecksum( metaA, dataA, "SHA-1", meta.isFailIfNoFile() );
-            resultType = CalculatorMetaFunction.calcDefaultResultType[ calcType ];
-            break;
-          case CalculatorMetaFunction.CALC_LEVENSHTEIN_DISTANCE: // LEVENSHTEIN DISTANCE
-            calcData[ index ] = ValueDataUtil.getLevenshtein_Distance( metaA, dataA, metaB, dataB );
-            resultType = CalculatorMetaFunction.calcDefaultResultType[ calcType ];
-            break;
-          case CalculatorMetaFunction.CALC_METAPHONE: // METAPHONE
-            calcData[ index ] = ValueDataUtil.get_Metaphone( metaA, dataA );
-            resultType = CalculatorMetaFunction.calcDefaultResultType[ calcType ];
-            break;
-          case CalculatorMetaFunction.CALC_DOUBLE_METAPHONE: // Double METAPHONE
-            calcData[ index ] = ValueDataUtil.get_Double_Metaphone( metaA, dataA );
-            resultType = CalculatorMetaFunction.calcDefaultResultType[ calcType ];
-            break;
-          case CalculatorMetaFunction.CALC_ABS: // ABS( A )
-            calcData[ index ] = ValueDataUtil.abs( metaA, dataA );
-            break;
-          case CalculatorMetaFunction.CALC_REMOVE_TIME_FROM_DATE: // Remove Time from field A
-            calcData[ index ] = ValueDataUtil.removeTimeFromDate( metaA, dataA );
-            break;
-          case CalculatorMetaFunction.CALC_DATE_DIFF: // DateA - DateB
-            calcData[ index ] = ValueDataUtil.DateDiff( metaA, dataA, metaB, dataB, "d" );
-            resultType = CalculatorMetaFunction.calcDefaultResultType[ calcType ];
-            break;
-          case CalculatorMetaFunction.CALC_ADD3: // A + B + C
-            calcData[ index ] = ValueDataUtil.plus3( metaA, dataA, metaB, dataB, metaC, dataC );
-            if ( metaA.isString() || metaB.isString() || metaC.isString() ) {
-              resultType = IValueMeta.TYPE_STRING;
-            }
-            break;
-          case CalculatorMetaFunction.CALC_INITCAP: // InitCap( A )
-            calcData[ index ] = ValueDataUtil.initCap( metaA, dataA );
-            resultType = CalculatorMetaFunction.calcDefaultResultType[ calcType ];
-            break;
-          case CalculatorMetaFunction.CALC_UPPER_CASE: // UpperCase( A )
-            calcData[ index ] = ValueDataUtil.upperCase( metaA, dataA );
-            resultType = CalculatorMetaFunction.calcDefaultResultType[ calcType ];
-            break;
-          case CalculatorMetaFunction.CALC_LOWER_CASE: // UpperCase( A )
-            calcData[ index ] = ValueDataUtil.lowerCase( metaA, dataA );
-            resultType = CalculatorMetaFunction.calcDefaultResultType[ calcType ];
-            break;
-          case CalculatorMetaFunction.CALC_MASK_XML: // escapeXML( A )
-            calcData[ index ] = ValueDataUtil.escapeXml( metaA, dataA );
-            resultType = CalculatorMetaFunction.calcDefaultResultType[ calcType ];
-            break;
-          case CalculatorMetaFunction.CALC_USE_CDATA: // CDATA( A )
-            calcData[ index ] = ValueDataUtil.useCDATA( metaA, dataA );
-            resultType = CalculatorMetaFunction.calcDefaultResultType[ calcType ];
-            break;
-          case CalculatorMetaFunction.CALC_REMOVE_CR: // REMOVE CR FROM A
-            calcData[ index ] = ValueDataUtil.removeCR( metaA, dataA );
-            resultType = CalculatorMetaFunction.calcDefaultResultType[ calcType ];
-            break;
-          case CalculatorMetaFunction.CALC_REMOVE_LF: // REMOVE LF FROM A
-            calcData[ index ] = ValueDataUtil.removeLF( metaA, dataA );
-            resultType = CalculatorMetaFunction.calcDefaultResultType[ calcType ];
-            break;
-          case CalculatorMetaFunction.CALC_REMOVE_CRLF: // REMOVE CRLF FROM A
-            calcData[ index ] = ValueDataUtil.removeCRLF( metaA, dataA );
-            resultType = CalculatorMetaFunction.calcDefaultResultType[ calcType ];
-            break;
-          case CalculatorMetaFunction.CALC_REMOVE_TAB: // REMOVE TAB FROM A
-            calcData[ index ] = ValueDataUtil.removeTAB( metaA, dataA );
-            resultType = CalculatorMetaFunction.calcDefaultResultType[ calcType ];
-            break;
-          case CalculatorMetaFunction.CALC_GET_ONLY_DIGITS: // GET ONLY DIGITS FROM A
-            calcData[ index ] = ValueDataUtil.getDigits( metaA, dataA );
-            resultType = CalculatorMetaFunction.calcDefaultResultType[ calcType ];
-            break;
-          case CalculatorMetaFunction.CALC_REMOVE_DIGITS: // REMOVE DIGITS FROM A
-            calcData[ index ] = ValueDataUtil.removeDigits( metaA, dataA );
-            resultType = CalculatorMetaFunction.calcDefaultResultType[ calcType ];
-            break;
-          case CalculatorMetaFunction.CALC_STRING_LEN: // RETURN THE LENGTH OF A
-            calcData[ index ] = ValueDataUtil.stringLen( metaA, dataA );
-            resultType = CalculatorMetaFunction.calcDefaultResultType[ calcType ];
-            break;
-          case CalculatorMetaFunction.CALC_LOAD_FILE_CONTENT_BINARY: // LOAD CONTENT OF A FILE A IN A BLOB
-            calcData[ index ] = ValueDataUtil.loadFileContentInBinary( metaA, dataA, meta.isFailIfNoFile() );
-            resultType = CalculatorMetaFunction.calcDefaultResultType[ calcType ];
-            break;
-          case CalculatorMetaFunction.CALC_ADD_TIME_TO_DATE: // Add time B to a date A
-            calcData[ index ] = ValueDataUtil.addTimeToDate( metaA, dataA, metaB, dataB, metaC, dataC );
-            resultType = CalculatorMetaFunction.calcDefaultResultType[ calcType ];
-            break;
-          case CalculatorMetaFunction.CALC_QUARTER_OF_DATE: // What is the quarter (Integer) of a date?
-            calcData[ index ] = ValueDataUtil.quarterOfDate( metaA, dataA );
-            resultType = CalculatorMetaFunction.calcDefaultResultType[ calcType ];
-            break;
-          case CalculatorMetaFunction.CALC_SUBSTITUTE_VARIABLE: // variable substitution in string
-            calcData[ index ] = environmentSubstitute( dataA.toString() );
-            resultType = CalculatorMetaFunction.calcDefaultResultType[ calcType ];
-            break;
-          case CalculatorMetaFunction.CALC_UNESCAPE_XML: // UnescapeXML( A )
-            calcData[ index ] = ValueDataUtil.unEscapeXml( metaA, dataA );
-            resultType = CalculatorMetaFunction.calcDefaultResultType[ calcType ];
-            break;
-          case CalculatorMetaFunction.CALC_ESCAPE_HTML: // EscapeHTML( A )
-            calcData[ index ] = ValueDataUtil.escapeHtml( metaA, dataA );
-            resultType = CalculatorMetaFunction.calcDefaultResultType[ calcType ];
-            break;
-          case CalculatorMetaFunction.CALC_UNESCAPE_HTML: // UnescapeHTML( A )
-            calcData[ index ] = ValueDataUtil.unEscapeHtml( metaA, dataA );
-            resultType = CalculatorMetaFunction.calcDefaultResultType[ calcType ];
-            break;
-          case CalculatorMetaFunction.CALC_ESCAPE_SQL: // EscapeSQL( A )
-            calcData[ index ] = ValueDataUtil.escapeSql( metaA, dataA );
-            resultType = CalculatorMetaFunction.calcDefaultResultType[ calcType ];
-            break;
-          case CalculatorMetaFunction.CALC_DATE_WORKING_DIFF: // DateWorkingDiff( A , B)
-            calcData[ index ] = ValueDataUtil.DateWorkingDiff( metaA, dataA, metaB, dataB );
-            resultType = CalculatorMetaFunction.calcDefaultResultType[ calcType ];
-            break;
-          case CalculatorMetaFunction.CALC_ADD_MONTHS: // Add B months to date field A
-            calcData[ index ] = ValueDataUtil.addMonths( metaA, dataA, metaB, dataB );
-            resultType = CalculatorMetaFunction.calcDefaultResultType[ calcType ];
-            break;
-          case CalculatorMetaFunction.CALC_CHECK_XML_FILE_WELL_FORMED: // Check if file A is well formed
-            calcData[ index ] = ValueDataUtil.isXmlFileWellFormed( metaA, dataA, meta.isFailIfNoFile() );
-            resultType = CalculatorMetaFunction.calcDefaultResultType[ calcType ];
-            break;
-          case CalculatorMetaFunction.CALC_CHECK_XML_WELL_FORMED: // Check if xml A is well formed
-            calcData[ index ] = ValueDataUtil.isXmlWellFormed( metaA, dataA );
-            resultType = CalculatorMetaFunction.calcDefaultResultType[ calcType ];
-            break;
-          case CalculatorMetaFunction.CALC_GET_FILE_ENCODING: // Get file encoding from a file A
-            calcData[ index ] = ValueDataUtil.getFileEncoding( metaA, dataA, meta.isFailIfNoFile() );
-            resultType = CalculatorMetaFunction.calcDefaultResultType[ calcType ];
-            break;
-          case CalculatorMetaFunction.CALC_DAMERAU_LEVENSHTEIN: // DAMERAULEVENSHTEIN DISTANCE
-            calcData[ index ] = ValueDataUtil.getDamerauLevenshtein_Distance( metaA, dataA, metaB, dataB );
-            resultType = CalculatorMetaFunction.calcDefaultResultType[ calcType ];
-            break;
-          case CalculatorMetaFunction.CALC_NEEDLEMAN_WUNSH: // NEEDLEMANWUNSH DISTANCE
-            calcData[ index ] = CalculatorValueDataUtil.getNeedlemanWunschDistance( dataA, dataB );
-            resultType = CalculatorMetaFunction.calcDefaultResultType[ calcType ];
-            break;
-          case CalculatorMetaFunction.CALC_JARO: // Jaro DISTANCE
-            calcData[ index ] = ValueDataUtil.getJaro_Similitude( metaA, dataA, metaB, dataB );
-            resultType = CalculatorMetaFunction.calcDefaultResultType[ calcType ];
-            break;
-          case CalculatorMetaFunction.CALC_JARO_WINKLER: // Jaro DISTANCE
-            calcData[ index ] = ValueDataUtil.getJaroWinkler_Similitude( metaA, dataA, metaB, dataB );
-            resultType = CalculatorMetaFunction.calcDefaultResultType[ calcType ];
-            break;
-          case CalculatorMetaFunction.CALC_SOUNDEX: // SOUNDEX
-            calcData[ index ] = ValueDataUtil.get_SoundEx( metaA, dataA );
-            resultType = CalculatorMetaFunction.calcDefaultResultType[ calcType ];
-            break;
-          case CalculatorMetaFunction.CALC_REFINED_SOUNDEX: // REFINEDSOUNDEX
-            calcData[ index ] = ValueDataUtil.get_RefinedSoundEx( metaA, dataA );
-            resultType = CalculatorMetaFunction.calcDefaultResultType[ calcType ];
-            break;
-          case CalculatorMetaFunction.CALC_DATE_DIFF_MSEC: // DateA - DateB (ms)
-            calcData[ index ] = ValueDataUtil.DateDiff( metaA, dataA, metaB, dataB, "ms" );
-            resultType = CalculatorMetaFunction.calcDefaultResultType[ calcType ];
-            break;
-          case CalculatorMetaFunction.CALC_DATE_DIFF_SEC: // DateA - DateB (s)
-            calcData[ index ] = ValueDataUtil.DateDiff( metaA, dataA, metaB, dataB, "s" );
-            resultType = CalculatorMetaFunction.calcDefaultResultType[ calcType ];
-            break;
-          case CalculatorMetaFunction.CALC_DATE_DIFF_MN: // DateA - DateB (mn)
-            calcData[ index ] = ValueDataUtil.DateDiff( metaA, dataA, metaB, dataB, "mn" );
-            resultType = CalculatorMetaFunction.calcDefaultResultType[ calcType ];
-            break;
-          case CalculatorMetaFunction.CALC_DATE_DIFF_HR: // DateA - DateB (h)
-            calcData[ index ] = ValueDataUtil.DateDiff( metaA, dataA, metaB, dataB, "h" );
-            resultType = CalculatorMetaFunction.calcDefaultResultType[ calcType ];
-            break;
-          case CalculatorMetaFunction.CALC_HOUR_OF_DAY:
-            calcData[ index ] = ValueDataUtil.hourOfDay( metaA, dataA );
-            resultType = CalculatorMetaFunction.calcDefaultResultType[ calcType ];
-            break;
-          case CalculatorMetaFunction.CALC_MINUTE_OF_HOUR:
-            calcData[ index ] = ValueDataUtil.minuteOfHour( metaA, dataA );
-            resultType = CalculatorMetaFunction.calcDefaultResultType[ calcType ];
-            break;
-          case CalculatorMetaFunction.CALC_SECOND_OF_MINUTE:
-            calcData[ index ] = ValueDataUtil.secondOfMinute( metaA, dataA );
-            resultType = CalculatorMetaFunction.calcDefaultResultType[ calcType ];
-            break;
-          case CalculatorMetaFunction.CALC_ADD_SECONDS: // Add B seconds to date field A
-            calcData[ index ] = ValueDataUtil.addSeconds( metaA, dataA, metaB, dataB );
-            resultType = CalculatorMetaFunction.calcDefaultResultType[ calcType ];
-            break;
-          case CalculatorMetaFunction.CALC_REMAINDER:
-            if ( targetMeta.getType() != metaA.getType() || targetMeta.getType() != metaB.getType() ) {
-              dataA = targetMeta.convertData( metaA, dataA );
-              metaA = targetMeta.clone();
-              dataB = targetMeta.convertData( metaB, dataB );
-              metaB = targetMeta.clone();
-            }
-            calcData[ index ] = ValueDataUtil.remainder( metaA, dataA, metaB, dataB );
-            resultType = targetMeta.getType();
-            break;
-          default:
-            throw new HopValueException( BaseMessages.getString( PKG, "Calculator.Log.UnknownCalculationType" )
-              + fn.getCalcType() );
-        }
+      switch ( calcType ) {
+        case CalculatorMetaFunction.CALC_NONE:
+          break;
+        case CalculatorMetaFunction.CALC_COPY_OF_FIELD: // Create a copy of field A
 
-        // If we don't have a target data type, throw an error.
-        // Otherwise the result is non-deterministic.
-        //
-        if ( targetMeta.getType() == IValueMeta.TYPE_NONE ) {
-          throw new HopValueException( BaseMessages.getString( PKG, "Calculator.Log.NoType" )
-            + ( i + 1 ) + " : " + fn.getFieldName() + " = " + fn.getCalcTypeDesc() + " / "
-            + fn.getCalcTypeLongDesc() );
-        }
+          calcData[ index ] = dataA;
 
-        // Convert the data to the correct target data type.
-        //
-        if ( calcData[ index ] != null ) {
-          if ( targetMeta.getType() != resultType ) {
-            IValueMeta resultMeta;
-            try {
-              // clone() is not necessary as one data instance belongs to one transform instance and no race condition occurs
-              resultMeta = data.getValueMetaFor( resultType, "result" );
-            } catch ( Exception exception ) {
-              throw new HopValueException( "Error creating value" );
-            }
-            resultMeta.setConversionMask( fn.getConversionMask() );
-            resultMeta.setGroupingSymbol( fn.getGroupingSymbol() );
-            resultMeta.setDecimalSymbol( fn.getDecimalSymbol() );
-            resultMeta.setCurrencySymbol( fn.getCurrencySymbol() );
-            try {
-              calcData[ index ] = targetMeta.convertData( resultMeta, calcData[ index ] );
-            } catch ( Exception ex ) {
-              throw new HopValueException( "resultType: "
-                + resultType + "; targetMeta: " + targetMeta.getType(), ex );
-            }
+          break;
+        case CalculatorMetaFunction.CALC_ADD: // A + B
+          calcData[ index ] = ValueDataUtil.plus( metaA, dataA, metaB, dataB );
+          if ( metaA.isString() || metaB.isString() ) {
+            resultType = IValueMeta.TYPE_STRING;
+          }
+          break;
+        case CalculatorMetaFunction.CALC_SUBTRACT: // A - B
+          calcData[ index ] = ValueDataUtil.minus( metaA, dataA, metaB, dataB );
+          if ( metaA.isDate() ) {
+            resultType = IValueMeta.TYPE_INTEGER;
+          }
+          break;
+        case CalculatorMetaFunction.CALC_MULTIPLY: // A * B
+          calcData[ index ] = ValueDataUtil.multiply( metaA, dataA, metaB, dataB );
+          if ( metaA.isString() || metaB.isString() ) {
+            resultType = IValueMeta.TYPE_STRING;
+          }
+          break;
+        case CalculatorMetaFunction.CALC_DIVIDE: // A / B
+          calcData[ index ] = ValueDataUtil.divide( metaA, dataA, metaB, dataB );
+          break;
+        case CalculatorMetaFunction.CALC_SQUARE: // A * A
+          calcData[ index ] = ValueDataUtil.multiply( metaA, dataA, metaA, dataA );
+          break;
+        case CalculatorMetaFunction.CALC_SQUARE_ROOT: // SQRT( A )
+          calcData[ index ] = ValueDataUtil.sqrt( metaA, dataA );
+          break;
+        case CalculatorMetaFunction.CALC_PERCENT_1: // 100 * A / B
+          calcData[ index ] = ValueDataUtil.percent1( metaA, dataA, metaB, dataB );
+          break;
+        case CalculatorMetaFunction.CALC_PERCENT_2: // A - ( A * B / 100 )
+          calcData[ index ] = ValueDataUtil.percent2( metaA, dataA, metaB, dataB );
+          break;
+        case CalculatorMetaFunction.CALC_PERCENT_3: // A + ( A * B / 100 )
+          calcData[ index ] = ValueDataUtil.percent3( metaA, dataA, metaB, dataB );
+          break;
+        case CalculatorMetaFunction.CALC_COMBINATION_1: // A + B * C
+          calcData[ index ] = ValueDataUtil.combination1( metaA, dataA, metaB, dataB, metaC, dataC );
+          break;
+        case CalculatorMetaFunction.CALC_COMBINATION_2: // SQRT( A*A + B*B )
+          calcData[ index ] = ValueDataUtil.combination2( metaA, dataA, metaB, dataB );
+          break;
+        case CalculatorMetaFunction.CALC_ROUND_1: // ROUND( A )
+          calcData[ index ] = ValueDataUtil.round( metaA, dataA );
+          break;
+        case CalculatorMetaFunction.CALC_ROUND_2: // ROUND( A , B )
+          calcData[ index ] = ValueDataUtil.round( metaA, dataA, metaB, dataB );
+          break;
+        case CalculatorMetaFunction.CALC_ROUND_CUSTOM_1: // ROUND( A , B )
+          calcData[ index ] = ValueDataUtil.round( metaA, dataA, metaB.getNumber( dataB ).intValue() );
+          break;
+        case CalculatorMetaFunction.CALC_ROUND_CUSTOM_2: // ROUND( A , B, C )
+          calcData[ index ] = ValueDataUtil.round( metaA, dataA, metaB, dataB, metaC.getNumber( dataC ).intValue() );
+          break;
+        case CalculatorMetaFunction.CALC_ROUND_STD_1: // ROUND( A )
+          calcData[ index ] = ValueDataUtil.round( metaA, dataA, java.math.BigDecimal.ROUND_HALF_UP );
+          break;
+        case CalculatorMetaFunction.CALC_ROUND_STD_2: // ROUND( A , B )
+          calcData[ index ] = ValueDataUtil.round( metaA, dataA, metaB, dataB, java.math.BigDecimal.ROUND_HALF_UP );
+          break;
+        case CalculatorMetaFunction.CALC_CEIL: // CEIL( A )
+          calcData[ index ] = ValueDataUtil.ceil( metaA, dataA );
+          break;
+        case CalculatorMetaFunction.CALC_FLOOR: // FLOOR( A )
+          calcData[ index ] = ValueDataUtil.floor( metaA, dataA );
+          break;
+        case CalculatorMetaFunction.CALC_CONSTANT: // Set field to constant value...
+          calcData[ index ] = fn.getFieldA(); // A string
+          resultType = CalculatorMetaFunction.calcDefaultResultType[ calcType ];
+          break;
+        case CalculatorMetaFunction.CALC_NVL: // Replace null values with another value
+          calcData[ index ] = ValueDataUtil.nvl( metaA, dataA, metaB, dataB );
+          break;
+        case CalculatorMetaFunction.CALC_ADD_DAYS: // Add B days to date field A
+          calcData[ index ] = ValueDataUtil.addDays( metaA, dataA, metaB, dataB );
+          resultType = CalculatorMetaFunction.calcDefaultResultType[ calcType ];
+          break;
+        case CalculatorMetaFunction.CALC_ADD_HOURS: // Add B hours to date field A
+          calcData[ index ] = ValueDataUtil.addHours( metaA, dataA, metaB, dataB );
+          resultType = CalculatorMetaFunction.calcDefaultResultType[ calcType ];
+          break;
+        case CalculatorMetaFunction.CALC_ADD_MINUTES: // Add B minutes to date field A
+          calcData[ index ] = ValueDataUtil.addMinutes( metaA, dataA, metaB, dataB );
+          resultType = CalculatorMetaFunction.calcDefaultResultType[ calcType ];
+          break;
+        case CalculatorMetaFunction.CALC_YEAR_OF_DATE: // What is the year (Integer) of a date?
+          calcData[ index ] = ValueDataUtil.yearOfDate( metaA, dataA );
+          resultType = CalculatorMetaFunction.calcDefaultResultType[ calcType ];
+          break;
+        case CalculatorMetaFunction.CALC_MONTH_OF_DATE: // What is the month (Integer) of a date?
+          calcData[ index ] = ValueDataUtil.monthOfDate( metaA, dataA );
+          resultType = CalculatorMetaFunction.calcDefaultResultType[ calcType ];
+          break;
+        case CalculatorMetaFunction.CALC_DAY_OF_YEAR: // What is the day of year (Integer) of a date?
+          calcData[ index ] = ValueDataUtil.dayOfYear( metaA, dataA );
+          resultType = CalculatorMetaFunction.calcDefaultResultType[ calcType ];
+          break;
+        case CalculatorMetaFunction.CALC_DAY_OF_MONTH: // What is the day of month (Integer) of a date?
+          calcData[ index ] = ValueDataUtil.dayOfMonth( metaA, dataA );
+          resultType = CalculatorMetaFunction.calcDefaultResultType[ calcType ];
+          break;
+        case CalculatorMetaFunction.CALC_DAY_OF_WEEK: // What is the day of week (Integer) of a date?
+          calcData[ index ] = ValueDataUtil.dayOfWeek( metaA, dataA );
+          resultType = CalculatorMetaFunction.calcDefaultResultType[ calcType ];
+          break;
+        case CalculatorMetaFunction.CALC_WEEK_OF_YEAR: // What is the week of year (Integer) of a date?
+          calcData[ index ] = ValueDataUtil.weekOfYear( metaA, dataA );
+          resultType = CalculatorMetaFunction.calcDefaultResultType[ calcType ];
+          break;
+        case CalculatorMetaFunction.CALC_WEEK_OF_YEAR_ISO8601: // What is the week of year (Integer) of a date ISO8601
+          // style?
+          calcData[ index ] = ValueDataUtil.weekOfYearISO8601( metaA, dataA );
+          resultType = CalculatorMetaFunction.calcDefaultResultType[ calcType ];
+          break;
+        case CalculatorMetaFunction.CALC_YEAR_OF_DATE_ISO8601: // What is the year (Integer) of a date ISO8601 style?
+          calcData[ index ] = ValueDataUtil.yearOfDateISO8601( metaA, dataA );
+          resultType = CalculatorMetaFunction.calcDefaultResultType[ calcType ];
+          break;
+        case CalculatorMetaFunction.CALC_BYTE_TO_HEX_ENCODE: // Byte to Hex encode string field A
+          calcData[ index ] = ValueDataUtil.byteToHexEncode( metaA, dataA );
+          resultType = CalculatorMetaFunction.calcDefaultResultType[ calcType ];
+          break;
+        case CalculatorMetaFunction.CALC_HEX_TO_BYTE_DECODE: // Hex to Byte decode string field A
+          calcData[ index ] = ValueDataUtil.hexToByteDecode( metaA, dataA );
+          resultType = CalculatorMetaFunction.calcDefaultResultType[ calcType ];
+          break;
+
+        case CalculatorMetaFunction.CALC_CHAR_TO_HEX_ENCODE: // Char to Hex encode string field A
+          calcData[ index ] = ValueDataUtil.charToHexEncode( metaA, dataA );
+          resultType = CalculatorMetaFunction.calcDefaultResultType[ calcType ];
+          break;
+        case CalculatorMetaFunction.CALC_HEX_TO_CHAR_DECODE: // Hex to Char decode string field A
+          calcData[ index ] = ValueDataUtil.hexToCharDecode( metaA, dataA );
+          resultType = CalculatorMetaFunction.calcDefaultResultType[ calcType ];
+          break;
+        case CalculatorMetaFunction.CALC_CRC32: // CRC32
+          calcData[ index ] = ValueDataUtil.checksumCRC32( metaA, dataA, meta.isFailIfNoFile() );
+          resultType = CalculatorMetaFunction.calcDefaultResultType[ calcType ];
+          break;
+        case CalculatorMetaFunction.CALC_ADLER32: // ADLER32
+          calcData[ index ] = ValueDataUtil.checksumAdler32( metaA, dataA, meta.isFailIfNoFile() );
+          resultType = CalculatorMetaFunction.calcDefaultResultType[ calcType ];
+          break;
+        case CalculatorMetaFunction.CALC_MD5: // MD5
+          calcData[ index ] = ValueDataUtil.createChecksum( metaA, dataA, "MD5", meta.isFailIfNoFile() );
+          resultType = CalculatorMetaFunction.calcDefaultResultType[ calcType ];
+          break;
+        case CalculatorMetaFunction.CALC_SHA1: // SHA-1
+          calcData[ index ] = ValueDataUtil.createChecksum( metaA, dataA, "SHA-1", meta.isFailIfNoFile() );
+          resultType = CalculatorMetaFunction.calcDefaultResultType[ calcType ];
+          break;
+        case CalculatorMetaFunction.CALC_LEVENSHTEIN_DISTANCE: // LEVENSHTEIN DISTANCE
+          calcData[ index ] = ValueDataUtil.getLevenshtein_Distance( metaA, dataA, metaB, dataB );
+          resultType = CalculatorMetaFunction.calcDefaultResultType[ calcType ];
+          break;
+        case CalculatorMetaFunction.CALC_METAPHONE: // METAPHONE
+          calcData[ index ] = ValueDataUtil.get_Metaphone( metaA, dataA );
+          resultType = CalculatorMetaFunction.calcDefaultResultType[ calcType ];
+          break;
+        case CalculatorMetaFunction.CALC_DOUBLE_METAPHONE: // Double METAPHONE
+          calcData[ index ] = ValueDataUtil.get_Double_Metaphone( metaA, dataA );
+          resultType = CalculatorMetaFunction.calcDefaultResultType[ calcType ];
+          break;
+        case CalculatorMetaFunction.CALC_ABS: // ABS( A )
+          calcData[ index ] = ValueDataUtil.abs( metaA, dataA );
+          break;
+        case CalculatorMetaFunction.CALC_REMOVE_TIME_FROM_DATE: // Remove Time from field A
+          calcData[ index ] = ValueDataUtil.removeTimeFromDate( metaA, dataA );
+          break;
+        case CalculatorMetaFunction.CALC_DATE_DIFF: // DateA - DateB
+          calcData[ index ] = ValueDataUtil.DateDiff( metaA, dataA, metaB, dataB, "d" );
+          resultType = CalculatorMetaFunction.calcDefaultResultType[ calcType ];
+          break;
+        case CalculatorMetaFunction.CALC_ADD3: // A + B + C
+          calcData[ index ] = ValueDataUtil.plus3( metaA, dataA, metaB, dataB, metaC, dataC );
+          if ( metaA.isString() || metaB.isString() || metaC.isString() ) {
+            resultType = IValueMeta.TYPE_STRING;
+          }
+          break;
+        case CalculatorMetaFunction.CALC_INITCAP: // InitCap( A )
+          calcData[ index ] = ValueDataUtil.initCap( metaA, dataA );
+          resultType = CalculatorMetaFunction.calcDefaultResultType[ calcType ];
+          break;
+        case CalculatorMetaFunction.CALC_UPPER_CASE: // UpperCase( A )
+          calcData[ index ] = ValueDataUtil.upperCase( metaA, dataA );
+          resultType = CalculatorMetaFunction.calcDefaultResultType[ calcType ];
+          break;
+        case CalculatorMetaFunction.CALC_LOWER_CASE: // UpperCase( A )
+          calcData[ index ] = ValueDataUtil.lowerCase( metaA, dataA );
+          resultType = CalculatorMetaFunction.calcDefaultResultType[ calcType ];
+          break;
+        case CalculatorMetaFunction.CALC_MASK_XML: // escapeXML( A )
+          calcData[ index ] = ValueDataUtil.escapeXml( metaA, dataA );
+          resultType = CalculatorMetaFunction.calcDefaultResultType[ calcType ];
+          break;
+        case CalculatorMetaFunction.CALC_USE_CDATA: // CDATA( A )
+          calcData[ index ] = ValueDataUtil.useCDATA( metaA, dataA );
+          resultType = CalculatorMetaFunction.calcDefaultResultType[ calcType ];
+          break;
+        case CalculatorMetaFunction.CALC_REMOVE_CR: // REMOVE CR FROM A
+          calcData[ index ] = ValueDataUtil.removeCR( metaA, dataA );
+          resultType = CalculatorMetaFunction.calcDefaultResultType[ calcType ];
+          break;
+        case CalculatorMetaFunction.CALC_REMOVE_LF: // REMOVE LF FROM A
+          calcData[ index ] = ValueDataUtil.removeLF( metaA, dataA );
+          resultType = CalculatorMetaFunction.calcDefaultResultType[ calcType ];
+          break;
+        case CalculatorMetaFunction.CALC_REMOVE_CRLF: // REMOVE CRLF FROM A
+          calcData[ index ] = ValueDataUtil.removeCRLF( metaA, dataA );
+          resultType = CalculatorMetaFunction.calcDefaultResultType[ calcType ];
+          break;
+        case CalculatorMetaFunction.CALC_REMOVE_TAB: // REMOVE TAB FROM A
+          calcData[ index ] = ValueDataUtil.removeTAB( metaA, dataA );
+          resultType = CalculatorMetaFunction.calcDefaultResultType[ calcType ];
+          break;
+        case CalculatorMetaFunction.CALC_GET_ONLY_DIGITS: // GET ONLY DIGITS FROM A
+          calcData[ index ] = ValueDataUtil.getDigits( metaA, dataA );
+          resultType = CalculatorMetaFunction.calcDefaultResultType[ calcType ];
+          break;
+        case CalculatorMetaFunction.CALC_REMOVE_DIGITS: // REMOVE DIGITS FROM A
+          calcData[ index ] = ValueDataUtil.removeDigits( metaA, dataA );
+          resultType = CalculatorMetaFunction.calcDefaultResultType[ calcType ];
+          break;
+        case CalculatorMetaFunction.CALC_STRING_LEN: // RETURN THE LENGTH OF A
+          calcData[ index ] = ValueDataUtil.stringLen( metaA, dataA );
+          resultType = CalculatorMetaFunction.calcDefaultResultType[ calcType ];
+          break;
+        case CalculatorMetaFunction.CALC_LOAD_FILE_CONTENT_BINARY: // LOAD CONTENT OF A FILE A IN A BLOB
+          calcData[ index ] = ValueDataUtil.loadFileContentInBinary( metaA, dataA, meta.isFailIfNoFile() );
+          resultType = CalculatorMetaFunction.calcDefaultResultType[ calcType ];
+          break;
+        case CalculatorMetaFunction.CALC_ADD_TIME_TO_DATE: // Add time B to a date A
+          calcData[ index ] = ValueDataUtil.addTimeToDate( metaA, dataA, metaB, dataB, metaC, dataC );
+          resultType = CalculatorMetaFunction.calcDefaultResultType[ calcType ];
+          break;
+        case CalculatorMetaFunction.CALC_QUARTER_OF_DATE: // What is the quarter (Integer) of a date?
+          calcData[ index ] = ValueDataUtil.quarterOfDate( metaA, dataA );
+          resultType = CalculatorMetaFunction.calcDefaultResultType[ calcType ];
+          break;
+        case CalculatorMetaFunction.CALC_SUBSTITUTE_VARIABLE: // variable substitution in string
+          calcData[ index ] = environmentSubstitute( dataA.toString() );
+          resultType = CalculatorMetaFunction.calcDefaultResultType[ calcType ];
+          break;
+        case CalculatorMetaFunction.CALC_UNESCAPE_XML: // UnescapeXML( A )
+          calcData[ index ] = ValueDataUtil.unEscapeXml( metaA, dataA );
+          resultType = CalculatorMetaFunction.calcDefaultResultType[ calcType ];
+          break;
+        case CalculatorMetaFunction.CALC_ESCAPE_HTML: // EscapeHTML( A )
+          calcData[ index ] = ValueDataUtil.escapeHtml( metaA, dataA );
+          resultType = CalculatorMetaFunction.calcDefaultResultType[ calcType ];
+          break;
+        case CalculatorMetaFunction.CALC_UNESCAPE_HTML: // UnescapeHTML( A )
+          calcData[ index ] = ValueDataUtil.unEscapeHtml( metaA, dataA );
+          resultType = CalculatorMetaFunction.calcDefaultResultType[ calcType ];
+          break;
+        case CalculatorMetaFunction.CALC_ESCAPE_SQL: // EscapeSQL( A )
+          calcData[ index ] = ValueDataUtil.escapeSql( metaA, dataA );
+          resultType = CalculatorMetaFunction.calcDefaultResultType[ calcType ];
+          break;
+        case CalculatorMetaFunction.CALC_DATE_WORKING_DIFF: // DateWorkingDiff( A , B)
+          calcData[ index ] = ValueDataUtil.DateWorkingDiff( metaA, dataA, metaB, dataB );
+          resultType = CalculatorMetaFunction.calcDefaultResultType[ calcType ];
+          break;
+        case CalculatorMetaFunction.CALC_ADD_MONTHS: // Add B months to date field A
+          calcData[ index ] = ValueDataUtil.addMonths( metaA, dataA, metaB, dataB );
+          resultType = CalculatorMetaFunction.calcDefaultResultType[ calcType ];
+          break;
+        case CalculatorMetaFunction.CALC_CHECK_XML_FILE_WELL_FORMED: // Check if file A is well formed
+          calcData[ index ] = ValueDataUtil.isXmlFileWellFormed( metaA, dataA, meta.isFailIfNoFile() );
+          resultType = CalculatorMetaFunction.calcDefaultResultType[ calcType ];
+          break;
+        case CalculatorMetaFunction.CALC_CHECK_XML_WELL_FORMED: // Check if xml A is well formed
+          calcData[ index ] = ValueDataUtil.isXmlWellFormed( metaA, dataA );
+          resultType = CalculatorMetaFunction.calcDefaultResultType[ calcType ];
+          break;
+        case CalculatorMetaFunction.CALC_GET_FILE_ENCODING: // Get file encoding from a file A
+          calcData[ index ] = ValueDataUtil.getFileEncoding( metaA, dataA, meta.isFailIfNoFile() );
+          resultType = CalculatorMetaFunction.calcDefaultResultType[ calcType ];
+          break;
+        case CalculatorMetaFunction.CALC_DAMERAU_LEVENSHTEIN: // DAMERAULEVENSHTEIN DISTANCE
+          calcData[ index ] = ValueDataUtil.getDamerauLevenshtein_Distance( metaA, dataA, metaB, dataB );
+          resultType = CalculatorMetaFunction.calcDefaultResultType[ calcType ];
+          break;
+        case CalculatorMetaFunction.CALC_NEEDLEMAN_WUNSH: // NEEDLEMANWUNSH DISTANCE
+          calcData[ index ] = CalculatorValueDataUtil.getNeedlemanWunschDistance( dataA, dataB );
+          resultType = CalculatorMetaFunction.calcDefaultResultType[ calcType ];
+          break;
+        case CalculatorMetaFunction.CALC_JARO: // Jaro DISTANCE
+          calcData[ index ] = ValueDataUtil.getJaro_Similitude( metaA, dataA, metaB, dataB );
+          resultType = CalculatorMetaFunction.calcDefaultResultType[ calcType ];
+          break;
+        case CalculatorMetaFunction.CALC_JARO_WINKLER: // Jaro DISTANCE
+          calcData[ index ] = ValueDataUtil.getJaroWinkler_Similitude( metaA, dataA, metaB, dataB );
+          resultType = CalculatorMetaFunction.calcDefaultResultType[ calcType ];
+          break;
+        case CalculatorMetaFunction.CALC_SOUNDEX: // SOUNDEX
+          calcData[ index ] = ValueDataUtil.get_SoundEx( metaA, dataA );
+          resultType = CalculatorMetaFunction.calcDefaultResultType[ calcType ];
+          break;
+        case CalculatorMetaFunction.CALC_REFINED_SOUNDEX: // REFINEDSOUNDEX
+          calcData[ index ] = ValueDataUtil.get_RefinedSoundEx( metaA, dataA );
+          resultType = CalculatorMetaFunction.calcDefaultResultType[ calcType ];
+          break;
+        case CalculatorMetaFunction.CALC_DATE_DIFF_MSEC: // DateA - DateB (ms)
+          calcData[ index ] = ValueDataUtil.DateDiff( metaA, dataA, metaB, dataB, "ms" );
+          resultType = CalculatorMetaFunction.calcDefaultResultType[ calcType ];
+          break;
+        case CalculatorMetaFunction.CALC_DATE_DIFF_SEC: // DateA - DateB (s)
+          calcData[ index ] = ValueDataUtil.DateDiff( metaA, dataA, metaB, dataB, "s" );
+          resultType = CalculatorMetaFunction.calcDefaultResultType[ calcType ];
+          break;
+        case CalculatorMetaFunction.CALC_DATE_DIFF_MN: // DateA - DateB (mn)
+          calcData[ index ] = ValueDataUtil.DateDiff( metaA, dataA, metaB, dataB, "mn" );
+          resultType = CalculatorMetaFunction.calcDefaultResultType[ calcType ];
+          break;
+        case CalculatorMetaFunction.CALC_DATE_DIFF_HR: // DateA - DateB (h)
+          calcData[ index ] = ValueDataUtil.DateDiff( metaA, dataA, metaB, dataB, "h" );
+          resultType = CalculatorMetaFunction.calcDefaultResultType[ calcType ];
+          break;
+        case CalculatorMetaFunction.CALC_HOUR_OF_DAY:
+          calcData[ index ] = ValueDataUtil.hourOfDay( metaA, dataA );
+          resultType = CalculatorMetaFunction.calcDefaultResultType[ calcType ];
+          break;
+        case CalculatorMetaFunction.CALC_MINUTE_OF_HOUR:
+          calcData[ index ] = ValueDataUtil.minuteOfHour( metaA, dataA );
+          resultType = CalculatorMetaFunction.calcDefaultResultType[ calcType ];
+          break;
+        case CalculatorMetaFunction.CALC_SECOND_OF_MINUTE:
+          calcData[ index ] = ValueDataUtil.secondOfMinute( metaA, dataA );
+          resultType = CalculatorMetaFunction.calcDefaultResultType[ calcType ];
+          break;
+        case CalculatorMetaFunction.CALC_ADD_SECONDS: // Add B seconds to date field A
+          calcData[ index ] = ValueDataUtil.addSeconds( metaA, dataA, metaB, dataB );
+          resultType = CalculatorMetaFunction.calcDefaultResultType[ calcType ];
+          break;
+        case CalculatorMetaFunction.CALC_REMAINDER:
+          if ( targetMeta.getType() != metaA.getType() || targetMeta.getType() != metaB.getType() ) {
+            dataA = targetMeta.convertData( metaA, dataA );
+            metaA = targetMeta.clone();
+            dataB = targetMeta.convertData( metaB, dataB );
+            metaB = targetMeta.clone();
+          }
+          calcData[ index ] = ValueDataUtil.remainder( metaA, dataA, metaB, dataB );
+          resultType = targetMeta.getType();
+          break;
+        default:
+          throw new HopValueException( BaseMessages.getString( PKG, "Calculator.Log.UnknownCalculationType" )
+            + fn.getCalcType() );
+      }
+
+      // If we don't have a target data type, throw an error.
+      // Otherwise the result is non-deterministic.
+      //
+      if ( targetMeta.getType() == IValueMeta.TYPE_NONE ) {
+        throw new HopValueException( BaseMessages.getString( PKG, "Calculator.Log.NoType" )
+          + ( i + 1 ) + " : " + fn.getFieldName() + " = " + fn.getCalcTypeDesc() + " / "
+          + fn.getCalcTypeLongDesc() );
+      }
+
+      // Convert the data to the correct target data type.
+      //
+      if ( calcData[ index ] != null ) {
+        if ( targetMeta.getType() != resultType ) {
+          IValueMeta resultMeta;
+          try {
+            // clone() is not necessary as one data instance belongs to one transform instance and no race condition occurs
+            resultMeta = data.getValueMetaFor( resultType, "result" );
+          } catch ( Exception exception ) {
+            throw new HopValueException( "Error creating value" );
+          }
+          resultMeta.setConversionMask( fn.getConversionMask() );
+          resultMeta.setGroupingSymbol( fn.getGroupingSymbol() );
+          resultMeta.setDecimalSymbol( fn.getDecimalSymbol() );
+          resultMeta.setCurrencySymbol( fn.getCurrencySymbol() );
+          try {
+            calcData[ index ] = targetMeta.convertData( resultMeta, calcData[ index ] );
+          } catch ( Exception ex ) {
+            throw new HopValueException( "resultType: "
+              + resultType + "; targetMeta: " + targetMeta.getType(), ex );
           }
         }
       }
     }
-
-    // OK, now we should refrain from adding the temporary fields to the result.
-    // So we remove them.
-    //
-    return RowDataUtil.removeItems( calcData, data.getTempIndexes() );
   }
 }
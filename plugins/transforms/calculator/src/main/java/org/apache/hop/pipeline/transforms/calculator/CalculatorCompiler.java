@@ -0,0 +1,301 @@
+/*! ******************************************************************************
+ *
+ * Hop : The Hop Orchestration Platform
+ *
+ * Copyright (C) 2002-2020 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+
+package org.apache.hop.pipeline.transforms.calculator;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import org.apache.hop.core.exception.HopException;
+import org.apache.hop.core.row.IRowMeta;
+import org.apache.hop.core.row.IValueMeta;
+import org.codehaus.janino.ClassBodyEvaluator;
+
+/**
+ * Generates a class for a calculator configuration with Janino.
+ * <p>
+ * Arithmetic on Number or Integer fields is done on primitive doubles and longs. Intermediate results stay in local
+ * variables, and a temporary field is only stored in the row if a calculation which is not generated needs it. All
+ * other calculations are handed back to {@link Calculator}, so the results are the same as without the generated class.
+ */
+public class CalculatorCompiler {
+
+  private static final Cache<String, Class<?>> classCache = CacheBuilder.newBuilder().maximumSize( 100 ).build();
+
+  private final CalculatorMetaFunction[] calculations;
+  private final Calculator.FieldIndexes[] fieldIndexes;
+  private final IRowMeta calcRowMeta;
+  private final int inputSize;
+
+  /**
+   * The primitive type of every generated calculation, null if the calculation is not generated
+   */
+  private final String[] primitives;
+
+  /**
+   * The number of arguments of every generated calculation
+   */
+  private final int[] nrArguments;
+
+  public CalculatorCompiler( CalculatorMetaFunction[] calculations, Calculator.FieldIndexes[] fieldIndexes,
+                             IRowMeta calcRowMeta, int inputSize ) {
+    this.calculations = calculations;
+    this.fieldIndexes = fieldIndexes;
+    this.calcRowMeta = calcRowMeta;
+    this.inputSize = inputSize;
+
+    primitives = new String[ calculations.length ];
+    nrArguments = new int[ calculations.length ];
+    for ( int i = 0; i < calculations.length; i++ ) {
+      nrArguments[ i ] = getNrArguments( calculations[ i ].getCalcType() );
+      primitives[ i ] = getPrimitive( i );
+    }
+  }
+
+  /**
+   * @return the number of calculations done in generated code
+   */
+  public int getNrGenerated() {
+    int nr = 0;
+    for ( String primitive : primitives ) {
+      if ( primitive != null ) {
+        nr++;
+      }
+    }
+    return nr;
+  }
+
+  /**
+   * Generate, compile and instantiate the class for the configuration.
+   *
+   * @param calculator the calculator transform which does the calculations that are not generated
+   * @return the compiled calculation
+   * @throws HopException in case the generated class can't be compiled
+   */
+  public CompiledCalculation compile( Calculator calculator ) throws HopException {
+    String source = generateSource();
+    try {
+      Class<?> clazz = classCache.getIfPresent( source );
+      if ( clazz == null ) {
+        ClassBodyEvaluator cbe = new ClassBodyEvaluator();
+        cbe.setParentClassLoader( CompiledCalculation.class.getClassLoader() );
+        cbe.setExtendedClass( CompiledCalculation.class );
+        cbe.setDefaultImports( new String[] { "org.apache.hop.core.exception.*" } );
+        cbe.cook( source );
+        clazz = cbe.getClazz();
+        classCache.put( source, clazz );
+      }
+      CompiledCalculation compiled = (CompiledCalculation) clazz.newInstance();
+      compiled.setCalculator( calculator );
+      return compiled;
+    } catch ( Exception e ) {
+      throw new HopException( "Unable to compile the calculations", e );
+    }
+  }
+
+  /**
+   * @return the primitive type to do calculation i with, or null if it needs to be handed back to the calculator
+   */
+  private String getPrimitive( int i ) {
+    CalculatorMetaFunction fn = calculations[ i ];
+    IValueMeta targetMeta = calcRowMeta.getValueMeta( inputSize + i );
+    if ( targetMeta == null ) {
+      return null;
+    }
+
+    // No conversion of the result: the target type has to be the type of the first argument
+    //
+    int type = targetMeta.getType();
+    if ( type != IValueMeta.TYPE_NUMBER && type != IValueMeta.TYPE_INTEGER ) {
+      return null;
+    }
+
+    // The Integer version of ABS goes through a double
+    //
+    if ( nrArguments[ i ] == 0
+      || ( fn.getCalcType() == CalculatorMetaFunction.CALC_ABS && type != IValueMeta.TYPE_NUMBER ) ) {
+      return null;
+    }
+
+    int[] arguments = getArguments( i );
+    for ( int a = 0; a < nrArguments[ i ]; a++ ) {
+      IValueMeta argumentMeta = arguments[ a ] >= 0 ? calcRowMeta.getValueMeta( arguments[ a ] ) : null;
+      if ( argumentMeta == null || argumentMeta.getType() != type
+        || argumentMeta.getStorageType() != IValueMeta.STORAGE_TYPE_NORMAL ) {
+        return null;
+      }
+    }
+    return type == IValueMeta.TYPE_NUMBER ? "double" : "long";
+  }
+
+  /**
+   * @return the number of arguments of a calculation type that can be generated, 0 if it can't be generated
+   */
+  private static int getNrArguments( int calcType ) {
+    switch ( calcType ) {
+      case CalculatorMetaFunction.CALC_COPY_OF_FIELD:
+      case CalculatorMetaFunction.CALC_SQUARE:
+      case CalculatorMetaFunction.CALC_ABS:
+        return 1;
+      case CalculatorMetaFunction.CALC_ADD:
+      case CalculatorMetaFunction.CALC_SUBTRACT:
+      case CalculatorMetaFunction.CALC_MULTIPLY:
+      case CalculatorMetaFunction.CALC_DIVIDE:
+      case CalculatorMetaFunction.CALC_PERCENT_1:
+      case CalculatorMetaFunction.CALC_PERCENT_2:
+      case CalculatorMetaFunction.CALC_PERCENT_3:
+        return 2;
+      case CalculatorMetaFunction.CALC_COMBINATION_1:
+      case CalculatorMetaFunction.CALC_ADD3:
+        return 3;
+      default:
+        return 0;
+    }
+  }
+
+  private int[] getArguments( int i ) {
+    return new int[] { fieldIndexes[ i ].indexA, fieldIndexes[ i ].indexB, fieldIndexes[ i ].indexC };
+  }
+
+  /**
+   * @return true if the result of generated calculation i needs to be stored in the row
+   */
+  private boolean isStored( int i ) {
+    if ( !calculations[ i ].isRemovedFromResult() ) {
+      return true;
+    }
+    int index = inputSize + i;
+    for ( int j = 0; j < calculations.length; j++ ) {
+      if ( primitives[ j ] != null && j > i ) {
+        continue;
+      }
+      for ( int argument : getArguments( j ) ) {
+        if ( argument == index ) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  private String getExpression( int i, String primitive ) {
+    String hundred = "double".equals( primitive ) ? "100.0D" : "100L";
+    switch ( calculations[ i ].getCalcType() ) {
+      case CalculatorMetaFunction.CALC_COPY_OF_FIELD:
+        return "a";
+      case CalculatorMetaFunction.CALC_SQUARE:
+        return "a * a";
+      case CalculatorMetaFunction.CALC_ABS:
+        return "Math.abs( a )";
+      case CalculatorMetaFunction.CALC_ADD:
+        return "a + b";
+      case CalculatorMetaFunction.CALC_SUBTRACT:
+        return "a - b";
+      case CalculatorMetaFunction.CALC_MULTIPLY:
+        return "a * b";
+      case CalculatorMetaFunction.CALC_DIVIDE:
+        return "a / b";
+      case CalculatorMetaFunction.CALC_PERCENT_1:
+        return "( " + hundred + " * a ) / b";
+      case CalculatorMetaFunction.CALC_PERCENT_2:
+        return "a - ( ( a * b ) / " + hundred + " )";
+      case CalculatorMetaFunction.CALC_PERCENT_3:
+        return "a + ( ( a * b ) / " + hundred + " )";
+      case CalculatorMetaFunction.CALC_COMBINATION_1:
+        return "a + ( b * c )";
+      case CalculatorMetaFunction.CALC_ADD3:
+        return "a + b + c";
+      default:
+        throw new IllegalStateException( "Calculation #" + ( i + 1 ) + " can't be generated" );
+    }
+  }
+
+  /**
+   * @return the body of the class extending {@link CompiledCalculation}
+   */
+  String generateSource() {
+    StringBuilder source = new StringBuilder();
+    source.append( "protected void calculateRow( Object[] calcData ) throws HopValueException, "
+      + "HopFileNotFoundException {\n" );
+
+    // The null flag and value of every generated calculation
+    //
+    for ( int i = 0; i < calculations.length; i++ ) {
+      if ( primitives[ i ] != null ) {
+        source.append( "  boolean n" ).append( i ).append( " = true;\n" );
+        source.append( "  " ).append( primitives[ i ] ).append( " v" ).append( i ).append( " = 0;\n" );
+      }
+    }
+
+    for ( int i = 0; i < calculations.length; i++ ) {
+      int index = inputSize + i;
+      source.append( "  // #" ).append( i + 1 ).append( " : " ).append( calculations[ i ].getCalcTypeDesc() )
+        .append( "\n" );
+      String primitive = primitives[ i ];
+      if ( primitive == null ) {
+        source.append( "  calcField( calcData, " ).append( i ).append( ", " ).append( index ).append( " );\n" );
+        continue;
+      }
+
+      String box = "double".equals( primitive ) ? "Double" : "Long";
+      String expression = getExpression( i, primitive );
+      int[] arguments = getArguments( i );
+      String[] names = { "a", "b", "c" };
+
+      StringBuilder nullCheck = new StringBuilder();
+      StringBuilder values = new StringBuilder();
+      source.append( "  {\n" );
+      for ( int a = 0; a < nrArguments[ i ]; a++ ) {
+        if ( nullCheck.length() > 0 ) {
+          nullCheck.append( " || " );
+        }
+        int calc = arguments[ a ] - inputSize;
+        if ( calc >= 0 && calc < i && primitives[ calc ] != null ) {
+          // The result of an earlier generated calculation
+          //
+          nullCheck.append( "n" ).append( calc );
+          values.append( "      " ).append( primitive ).append( " " ).append( names[ a ] ).append( " = v" )
+            .append( calc ).append( ";\n" );
+        } else {
+          source.append( "    Object o" ).append( names[ a ] ).append( " = calcData[ " ).append( arguments[ a ] )
+            .append( " ];\n" );
+          nullCheck.append( "o" ).append( names[ a ] ).append( " == null" );
+          values.append( "      " ).append( primitive ).append( " " ).append( names[ a ] ).append( " = ( (" )
+            .append( box ).append( ") o" ).append( names[ a ] ).append( " )." ).append( primitive )
+            .append( "Value();\n" );
+        }
+      }
+      source.append( "    n" ).append( i ).append( " = " ).append( nullCheck ).append( ";\n" );
+      source.append( "    if ( !n" ).append( i ).append( " ) {\n" );
+      source.append( values );
+      source.append( "      v" ).append( i ).append( " = " ).append( expression ).append( ";\n" );
+      source.append( "    }\n" );
+      if ( isStored( i ) ) {
+        source.append( "    calcData[ " ).append( index ).append( " ] = n" ).append( i ).append( " ? null : " )
+          .append( box ).append( ".valueOf( v" ).append( i ).append( " );\n" );
+      }
+      source.append( "  }\n" );
+    }
+    source.append( "}\n" );
+    return source.toString();
+  }
+}
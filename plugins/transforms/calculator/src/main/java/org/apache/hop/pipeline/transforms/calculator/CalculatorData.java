@@ -44,6 +44,8 @@ public class CalculatorData extends BaseTransformData implements ITransformData
 
   private int[] tempIndexes;
 
+  private CompiledCalculation compiledCalculation;
+
   private final Map<Integer, IValueMeta> resultMetaMapping;
 
   public CalculatorData() {
@@ -83,6 +85,14 @@ public class CalculatorData extends BaseTransformData implements ITransformData
     this.tempIndexes = tempIndexes;
   }
 
+  public CompiledCalculation getCompiledCalculation() {
+    return compiledCalculation;
+  }
+
+  public void setCompiledCalculation( CompiledCalculation compiledCalculation ) {
+    this.compiledCalculation = compiledCalculation;
+  }
+
   public IValueMeta getValueMetaFor( int resultType, String name ) throws HopPluginException {
     // don't need any synchronization as data instance belongs only to one transform instance
     IValueMeta meta = resultMetaMapping.get( resultType );
@@ -0,0 +1,69 @@
+/*! ******************************************************************************
+ *
+ * Hop : The Hop Orchestration Platform
+ *
+ * Copyright (C) 2002-2020 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+
+package org.apache.hop.pipeline.transforms.calculator;
+
+import org.apache.hop.core.exception.HopFileNotFoundException;
+import org.apache.hop.core.exception.HopValueException;
+
+/**
+ * Base class of the classes generated by {@link CalculatorCompiler} for a calculator configuration. Calculations which
+ * are not generated are handed back to the calculator transform.
+ */
+public abstract class CompiledCalculation {
+
+  private Calculator calculator;
+
+  void setCalculator( Calculator calculator ) {
+    this.calculator = calculator;
+  }
+
+  /**
+   * Calculate all fields of a row.
+   *
+   * @param calcData the row with the input data, resized to hold the calculated fields
+   * @throws HopValueException        in case there is a calculation error.
+   * @throws HopFileNotFoundException in case a file to calculate on can't be found
+   */
+  public final void calculate( Object[] calcData ) throws HopValueException, HopFileNotFoundException {
+    try {
+      calculateRow( calcData );
+    } catch ( ClassCastException e ) {
+      throw new HopValueException( "Unexpected data type found in the calculation row", e );
+    }
+  }
+
+  protected abstract void calculateRow( Object[] calcData ) throws HopValueException, HopFileNotFoundException;
+
+  /**
+   * Calculate a single field the way the calculator transform does it.
+   *
+   * @param calcData the row with the input data and the calculated fields so far
+   * @param i        the index of the calculation
+   * @param index    the index of the calculated field in the calculation row
+   */
+  protected final void calcField( Object[] calcData, int i, int index ) throws HopValueException,
+    HopFileNotFoundException {
+    calculator.calcField( calcData, i, index );
+  }
+}
@@ -0,0 +1,222 @@
+/*! ******************************************************************************
+ *
+ * Hop : The Hop Orchestration Platform
+ *
+ * Copyright (C) 2002-2020 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+
+package org.apache.hop.pipeline.transforms.calculator;
+
+import org.apache.hop.core.HopEnvironment;
+import org.apache.hop.core.IRowSet;
+import org.apache.hop.core.exception.HopException;
+import org.apache.hop.core.logging.ILoggingObject;
+import org.apache.hop.core.row.IRowMeta;
+import org.apache.hop.core.row.IValueMeta;
+import org.apache.hop.core.row.RowMeta;
+import org.apache.hop.core.row.value.ValueMetaInteger;
+import org.apache.hop.core.row.value.ValueMetaNumber;
+import org.apache.hop.core.row.value.ValueMetaString;
+import org.apache.hop.core.util.Utils;
+import org.apache.hop.junit.rules.RestoreHopEngineEnvironment;
+import org.apache.hop.pipeline.transform.RowAdapter;
+import org.apache.hop.pipeline.transforms.mock.TransformMockHelper;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.when;
+
+public class CalculatorCompilerTest {
+  @ClassRule public static RestoreHopEngineEnvironment env = new RestoreHopEngineEnvironment();
+
+  private TransformMockHelper<CalculatorMeta, CalculatorData> smh;
+
+  @BeforeClass
+  public static void init() throws HopException {
+    HopEnvironment.init();
+  }
+
+  @Before
+  public void setUp() {
+    smh = new TransformMockHelper<>( "Calculator", CalculatorMeta.class, CalculatorData.class );
+    when( smh.logChannelFactory.create( any(), any( ILoggingObject.class ) ) ).thenReturn(
+      smh.logChannelInterface );
+    when( smh.pipeline.isRunning() ).thenReturn( true );
+  }
+
+  @After
+  public void cleanUp() {
+    smh.cleanUp();
+  }
+
+  private static IRowMeta getInputRowMeta() {
+    RowMeta inputRowMeta = new RowMeta();
+    inputRowMeta.addValueMeta( new ValueMetaNumber( "n1" ) );
+    inputRowMeta.addValueMeta( new ValueMetaNumber( "n2" ) );
+    inputRowMeta.addValueMeta( new ValueMetaInteger( "i1" ) );
+    inputRowMeta.addValueMeta( new ValueMetaInteger( "i2" ) );
+    inputRowMeta.addValueMeta( new ValueMetaString( "s" ) );
+    return inputRowMeta;
+  }
+
+  private static CalculatorMetaFunction function( String name, int calcType, String a, String b, String c, int type,
+                                                  boolean temporary ) {
+    return new CalculatorMetaFunction( name, calcType, a, b, c, type, 0, 0, temporary, "", "", "", "" );
+  }
+
+  private static CalculatorMetaFunction[] getCalculations() {
+    return new CalculatorMetaFunction[] {
+      function( "tmp", CalculatorMetaFunction.CALC_MULTIPLY, "n1", "n2", null, IValueMeta.TYPE_NUMBER, true ),
+      function( "total", CalculatorMetaFunction.CALC_ADD, "tmp", "n1", null, IValueMeta.TYPE_NUMBER, false ),
+      function( "pct", CalculatorMetaFunction.CALC_PERCENT_1, "i1", "i2", null, IValueMeta.TYPE_INTEGER, false ),
+      function( "upper", CalculatorMetaFunction.CALC_UPPER_CASE, "s", null, null, IValueMeta.TYPE_STRING, false ),
+      function( "tmp2", CalculatorMetaFunction.CALC_SUBTRACT, "i1", "i2", null, IValueMeta.TYPE_INTEGER, true ),
+      function( "copy", CalculatorMetaFunction.CALC_COPY_OF_FIELD, "tmp2", null, null, IValueMeta.TYPE_INTEGER,
+        false ),
+      function( "combi", CalculatorMetaFunction.CALC_COMBINATION_1, "n1", "n2", "total", IValueMeta.TYPE_NUMBER,
+        false ),
+      function( "text", CalculatorMetaFunction.CALC_ADD, "s", "s", null, IValueMeta.TYPE_STRING, false ),
+      function( "rounded", CalculatorMetaFunction.CALC_ROUND_1, "tmp", null, null, IValueMeta.TYPE_NUMBER, false ), };
+  }
+
+  private List<Object[]> calculate( CalculatorData data, Object[][] rows ) throws HopException {
+    IRowMeta inputRowMeta = getInputRowMeta();
+    IRowSet inputRowSet = smh.getMockInputRowSet( rows );
+    inputRowSet.setRowMeta( inputRowMeta );
+
+    CalculatorMeta meta = new CalculatorMeta();
+    meta.setCalculation( getCalculations() );
+
+    Calculator calculator = new Calculator( smh.transformMeta, meta, data, 0, smh.pipelineMeta, smh.pipeline );
+    calculator.addRowSetToInputRowSets( inputRowSet );
+    calculator.setInputRowMeta( inputRowMeta );
+    calculator.init();
+
+    final List<Object[]> result = new ArrayList<>();
+    calculator.addRowListener( new RowAdapter() {
+      @Override public void rowWrittenEvent( IRowMeta rowMeta, Object[] row ) {
+        result.add( row );
+      }
+    } );
+    for ( int i = 0; i < rows.length; i++ ) {
+      calculator.processRow();
+    }
+    return result;
+  }
+
+  @Test
+  public void testGeneratedCalculations() throws Exception {
+    CalculatorData data = new CalculatorData();
+    List<Object[]> result = calculate( data, new Object[][] {
+      { 2.5, 4.0, 7L, 2L, "abc" },
+      { null, 4.0, 7L, null, null } } );
+
+    assertNotNull( data.getCompiledCalculation() );
+    assertEquals( 2, result.size() );
+
+    Object[] row = result.get( 0 );
+    assertEquals( 12.5, row[ 5 ] );
+    assertEquals( 350L, row[ 6 ] );
+    assertEquals( "ABC", row[ 7 ] );
+    assertEquals( 5L, row[ 8 ] );
+    assertEquals( 52.5, row[ 9 ] );
+    assertEquals( "abcabc", row[ 10 ] );
+    assertEquals( 10.0, row[ 11 ] );
+
+    row = result.get( 1 );
+    for ( int i = 5; i <= 11; i++ ) {
+      assertNull( row[ i ] );
+    }
+  }
+
+  @Test
+  public void testSameResultsAsInterpreted() throws Exception {
+    Object[][] rows = new Object[][] {
+      { 1.1, -3.3, 10L, 3L, "x" },
+      { 0.0, 0.0, -7L, 2L, "" },
+      { 1e300, 1e10, Long.MAX_VALUE, 1L, "y" } };
+
+    List<Object[]> compiled = calculate( new CalculatorData(), rows );
+
+    smh.cleanUp();
+    setUp();
+    CalculatorData data = new CalculatorData() {
+      @Override public void setCompiledCalculation( CompiledCalculation compiledCalculation ) {
+        // Always interpret
+      }
+    };
+    List<Object[]> interpreted = calculate( data, rows );
+    assertNull( data.getCompiledCalculation() );
+
+    assertEquals( interpreted.size(), compiled.size() );
+    for ( int i = 0; i < interpreted.size(); i++ ) {
+      assertArrayEquals( interpreted.get( i ), compiled.get( i ) );
+    }
+  }
+
+  @Test
+  public void testGeneratedSource() throws Exception {
+    Calculator calculator = new Calculator( smh.transformMeta, new CalculatorMeta(), new CalculatorData(), 0,
+      smh.pipelineMeta, smh.pipeline );
+    CalculatorMeta meta = new CalculatorMeta();
+    meta.setCalculation( getCalculations() );
+    IRowMeta calcRowMeta = meta.getAllFields( getInputRowMeta() );
+
+    CalculatorMetaFunction[] calculations = meta.getCalculation();
+    Calculator.FieldIndexes[] fieldIndexes = new Calculator.FieldIndexes[ calculations.length ];
+    for ( int i = 0; i < calculations.length; i++ ) {
+      fieldIndexes[ i ] = calculator.new FieldIndexes();
+      fieldIndexes[ i ].indexA = calcRowMeta.indexOfValue( calculations[ i ].getFieldA() );
+      if ( !Utils.isEmpty( calculations[ i ].getFieldB() ) ) {
+        fieldIndexes[ i ].indexB = calcRowMeta.indexOfValue( calculations[ i ].getFieldB() );
+      }
+      fieldIndexes[ i ].indexC = -1;
+      if ( !Utils.isEmpty( calculations[ i ].getFieldC() ) ) {
+        fieldIndexes[ i ].indexC = calcRowMeta.indexOfValue( calculations[ i ].getFieldC() );
+      }
+    }
+
+    CalculatorCompiler compiler = new CalculatorCompiler( calculations, fieldIndexes, calcRowMeta, 5 );
+    assertEquals( 6, compiler.getNrGenerated() );
+
+    String source = compiler.generateSource();
+    // The temporary product is rounded by calcField(), the temporary difference is only used by generated code
+    //
+    assertTrue( source.contains( "calcData[ 5 ] = n0 ? null : Double.valueOf( v0 );" ) );
+    assertTrue( source.contains( "double a = v0;" ) );
+    assertFalse( source.contains( "calcData[ 9 ] =" ) );
+    assertTrue( source.contains( "long a = v4;" ) );
+    assertTrue( source.contains( "calcField( calcData, 3, 8 );" ) );
+    assertTrue( source.contains( "calcField( calcData, 7, 12 );" ) );
+    assertTrue( source.contains( "calcField( calcData, 8, 13 );" ) );
+  }
+}
@@ -26,6 +26,7 @@ import junit.framework.Assert;
 import org.apache.hop.core.Const;
 import org.apache.hop.core.HopEnvironment;
 import org.apache.hop.core.IRowSet;
+import org.apache.hop.core.QueueRowSet;
 import org.apache.hop.core.exception.HopException;
 import org.apache.hop.core.exception.HopTransformException;
 import org.apache.hop.core.logging.ILoggingObject;
@@ -48,6 +49,7 @@ import org.junit.ClassRule;
 import org.junit.Test;
 import org.mockito.ArgumentMatcher;
 
+import java.io.File;
 import java.math.BigDecimal;
 import java.math.BigInteger;
 import java.text.ParseException;
@@ -133,6 +135,44 @@ public class CalculatorUnitTest {
     assertFalse( processed );
   }
 
+  @Test
+  public void testMissingFileKeepsEarlierRowsOfBatch() throws Exception {
+    RowMeta inputRowMeta = new RowMeta();
+    inputRowMeta.addValueMeta( new ValueMetaString( "Path" ) );
+
+    File existingFile = File.createTempFile( "calculator", ".txt" );
+    existingFile.deleteOnExit();
+    IRowSet inputRowSet = new QueueRowSet();
+    inputRowSet.putRow( inputRowMeta, new Object[] { existingFile.getAbsolutePath() } );
+    inputRowSet.putRow( inputRowMeta, new Object[] { "missingFile" } );
+    inputRowSet.setDone();
+
+    CalculatorMeta meta = new CalculatorMeta();
+    meta.setCalculation( new CalculatorMetaFunction[] {
+      new CalculatorMetaFunction( "result", CalculatorMetaFunction.CALC_MD5, "Path", null, null,
+        IValueMeta.TYPE_STRING, 0, 0, false, "", "", "", "" ) } );
+    meta.setFailIfNoFile( true );
+
+    Calculator calculator =
+      new Calculator( smh.transformMeta, meta, new CalculatorData(), 0, smh.pipelineMeta, smh.pipeline );
+    calculator.addRowSetToInputRowSets( inputRowSet );
+    calculator.setInputRowMeta( inputRowMeta );
+    calculator.init();
+
+    final List<Object[]> written = new ArrayList<>();
+    calculator.addRowListener( new RowAdapter() {
+      @Override
+      public void rowWrittenEvent( IRowMeta rowMeta, Object[] row ) throws HopTransformException {
+        written.add( row );
+      }
+    } );
+
+    assertFalse( calculator.processRow() );
+    assertEquals( 1, written.size() );
+    assertEquals( existingFile.getAbsolutePath(), written.get( 0 )[ 0 ] );
+    assertEquals( 1L, calculator.getErrors() );
+  }
+
   @Test
   public void testAddSeconds() throws HopException {
     RowMeta inputRowMeta = new RowMeta();
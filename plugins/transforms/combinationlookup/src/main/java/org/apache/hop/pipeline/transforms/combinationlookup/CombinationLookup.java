@@ -24,7 +24,6 @@ package org.apache.hop.pipeline.transforms.combinationlookup;
 
 import org.apache.hop.core.Const;
 import org.apache.hop.core.Counters;
-import org.apache.hop.core.RowMetaAndData;
 import org.apache.hop.core.database.Database;
 import org.apache.hop.core.database.DatabaseMeta;
 import org.apache.hop.core.exception.HopConfigException;
@@ -32,6 +31,7 @@ import org.apache.hop.core.exception.HopDatabaseException;
 import org.apache.hop.core.exception.HopException;
 import org.apache.hop.core.exception.HopTransformException;
 import org.apache.hop.core.exception.HopValueException;
+import org.apache.hop.core.hash.ByteArrayClockCache;
 import org.apache.hop.core.row.IRowMeta;
 import org.apache.hop.core.row.IValueMeta;
 import org.apache.hop.core.row.RowMeta;
@@ -50,10 +50,7 @@ import org.apache.hop.pipeline.transform.TransformMeta;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
-import java.util.ArrayList;
-import java.util.Collections;
 import java.util.Date;
-import java.util.HashMap;
 import java.util.List;
 
 /**
@@ -109,7 +106,7 @@ public class CombinationLookup extends BaseTransform<CombinationLookupMeta, Comb
     }
   }
 
-  private Long lookupInCache( IRowMeta rowMeta, Object[] row ) {
+  private Long lookupInCache( IRowMeta rowMeta, Object[] row ) throws HopValueException {
     // Short circuit if cache is disabled.
     if ( meta.getCacheSize() == -1 ) {
       return null;
@@ -117,16 +114,25 @@ public class CombinationLookup extends BaseTransform<CombinationLookupMeta, Comb
 
     // try to find the row in the cache...
     //
-    Long tk = data.cache.get( new RowMetaAndData( rowMeta, row ) );
-    return tk;
+    int entry = data.cache.get( getCacheKey( rowMeta, row ) );
+    return entry < 0 ? null : data.cache.getValue( entry );
   }
 
   /**
-   * Adds a row to the cache In case we are doing updates, we need to store the complete rows from the database. These
-   * are the values we need to store
-   * <p>
-   * Key: - natural key fields Value: - Technical key - lookup fields / extra fields (allows us to compare or retrieve)
-   * - Date_from - Date_to
+   * Serializes the natural key into the compact form used as key in the cache. The values are converted to normal
+   * storage first so that lazy converted input and values read from the database give the same bytes.
+   */
+  private byte[] getCacheKey( IRowMeta rowMeta, Object[] row ) throws HopValueException {
+    Object[] keyRow = new Object[ data.cacheKeyMeta.size() ];
+    for ( int i = 0; i < keyRow.length; i++ ) {
+      keyRow[ i ] = rowMeta.getValueMeta( i ).convertToNormalStorageType( row[ i ] );
+    }
+    return RowMeta.extractData( data.cacheKeyMeta, keyRow );
+  }
+
+  /**
+   * Adds a row to the cache. The cache is bounded by the cache size in rows and by the cache memory limit, when it is
+   * full the least recently used entries are evicted (CLOCK).
    *
    * @param rowMeta
    * @param row
@@ -140,68 +146,7 @@ public class CombinationLookup extends BaseTransform<CombinationLookupMeta, Comb
     }
 
     // store it in the cache if needed.
-    data.cache.put( new RowMetaAndData( rowMeta, row ), tk );
-
-    // check if the size is not too big...
-    // Allow for a buffer overrun of 20% and then remove those 20% in one go.
-    // Just to keep performance in track.
-    //
-    int tenPercent = meta.getCacheSize() / 10;
-    if ( meta.getCacheSize() > 0 && data.cache.size() > meta.getCacheSize() + tenPercent ) {
-      // Which cache entries do we delete here?
-      // We delete those with the lowest technical key...
-      // Those would arguably be the "oldest" dimension entries.
-      // Oh well... Nothing is going to be perfect here...
-      //
-      // Getting the lowest 20% requires some kind of sorting algorithm and I'm not sure we want to do that.
-      // Sorting is slow and even in the best case situation we need to do 2 passes over the cache entries...
-      //
-      // Perhaps we should get 20% random values and delete everything below the lowest but one TK.
-      //
-      List<RowMetaAndData> keys = new ArrayList<RowMetaAndData>( data.cache.keySet() );
-      int sizeBefore = keys.size();
-      List<Long> samples = new ArrayList<Long>();
-
-      // Take 10 sample technical keys....
-      int transformsize = keys.size() / 5;
-      if ( transformsize < 1 ) {
-        transformsize = 1; // make sure we have no endless loop
-      }
-      for ( int i = 0; i < keys.size(); i += transformsize ) {
-        RowMetaAndData key = keys.get( i );
-        Long value = data.cache.get( key );
-        if ( value != null ) {
-          samples.add( value );
-        }
-      }
-      // Sort these 5 elements...
-      Collections.sort( samples );
-
-      // What is the smallest?
-      // Take the second, not the fist in the list, otherwise we would be removing a single entry = not good.
-      if ( samples.size() > 1 ) {
-        data.smallestCacheKey = samples.get( 1 ).longValue();
-      } else { // except when there is only one sample
-        data.smallestCacheKey = samples.get( 0 ).longValue();
-      }
-
-      // Remove anything in the cache <= smallest.
-      // This makes it almost single pass...
-      // This algorithm is not 100% correct, but I guess it beats sorting the whole cache all the time.
-      //
-      for ( int i = 0; i < keys.size(); i++ ) {
-        RowMetaAndData key = keys.get( i );
-        Long value = data.cache.get( key );
-        if ( value != null ) {
-          if ( value.longValue() <= data.smallestCacheKey ) {
-            data.cache.remove( key ); // this one has to go.
-          }
-        }
-      }
-
-      int sizeAfter = data.cache.size();
-      logDetailed( "Reduced the lookup cache from " + sizeBefore + " to " + sizeAfter + " rows." );
-    }
+    data.cache.put( getCacheKey( rowMeta, row ), tk );
 
     if ( isRowLevel() ) {
       logRowlevel( "Cache store: key=" + rowMeta.getString( row ) + "    key=" + tk );
@@ -374,8 +319,13 @@ public class CombinationLookup extends BaseTransform<CombinationLookupMeta, Comb
       // Determine the metadata row to calculate hashcodes.
       //
       data.hashRowMeta = new RowMeta();
+      data.cacheKeyMeta = new RowMeta();
       for ( int i = 0; i < meta.getKeyField().length; i++ ) {
         data.hashRowMeta.addValueMeta( getInputRowMeta().getValueMeta( data.keynrs[ i ] ) ); // KEYi = ?
+
+        IValueMeta cacheKeyValueMeta = getInputRowMeta().getValueMeta( data.keynrs[ i ] ).clone();
+        cacheKeyValueMeta.setStorageType( IValueMeta.STORAGE_TYPE_NORMAL );
+        data.cacheKeyMeta.addValueMeta( cacheKeyValueMeta );
       }
 
       setCombiLookup( getInputRowMeta() );
@@ -673,10 +623,8 @@ public class CombinationLookup extends BaseTransform<CombinationLookupMeta, Comb
       data.realSchemaName = environmentSubstitute( meta.getSchemaName() );
       data.realTableName = environmentSubstitute( meta.getTableName() );
 
-      if ( meta.getCacheSize() > 0 ) {
-        data.cache = new HashMap<RowMetaAndData, Long>( (int) ( meta.getCacheSize() * 1.5 ) );
-      } else {
-        data.cache = new HashMap<RowMetaAndData, Long>();
+      if ( meta.getCacheSize() >= 0 ) {
+        data.cache = new ByteArrayClockCache( meta.getCacheSize(), meta.getCacheMemoryLimit() * 1024L * 1024L );
       }
       if ( meta.getDatabaseMeta() == null ) {
         logError( BaseMessages.getString( PKG, "CombinationLookup.Init.ConnectionMissing", getTransformName() ) );
@@ -700,8 +648,24 @@ public class CombinationLookup extends BaseTransform<CombinationLookupMeta, Comb
     return false;
   }
 
+  /**
+   * Adds the cache statistics to the status so that a thrashing cache can be spotted while the pipeline runs.
+   */
+  @Override
+  public String getStatusDescription() {
+    if ( data.cache == null ) {
+      return super.getStatusDescription();
+    }
+    return BaseMessages.getString( PKG, "CombinationLookup.Status.Cache", super.getStatusDescription(),
+      data.cache.getHits(), data.cache.getMisses(), data.cache.getEvictions() );
+  }
+
   @Override
   public void dispose(){
+    if ( data.cache != null && log.isDetailed() ) {
+      logDetailed( BaseMessages.getString( PKG, "CombinationLookup.Log.CacheStatistics", data.cache.getSize(),
+        data.cache.getBytes(), data.cache.getHits(), data.cache.getMisses(), data.cache.getEvictions() ) );
+    }
     if ( data.db != null ) {
       try {
         if ( !data.db.isAutoCommit() ) {
@@ -783,13 +747,19 @@ public class CombinationLookup extends BaseTransform<CombinationLookupMeta, Comb
         logDebug( "Using preload cache statement:" + Const.CR + sql );
       }
       cacheValues = data.db.getRows( databaseMeta.stripCR( sql ), meta.getCacheSize() );
+      IRowMeta cacheRowMeta = data.db.getReturnRowMeta();
       for ( Object[] cacheRow : cacheValues ) {
         // Create a correctly structured array for the cache
-        Object[] hashRow = new Object[ data.hashRowMeta.size() ];
+        // The database can hand back other data types than the ones of the stream, convert them.
+        Object[] hashRow = new Object[ data.cacheKeyMeta.size() ];
         // Assumes the technical key is at position 0 !!
-        System.arraycopy( cacheRow, 1, hashRow, 0, hashRow.length );
-        // Potential Cache Overflow is ahndled inside
-        addToCache( hashRowMeta, hashRow, (Long) cacheRow[ 0 ] );
+        for ( int i = 0; i < hashRow.length; i++ ) {
+          IValueMeta keyMeta = data.cacheKeyMeta.getValueMeta( i );
+          IValueMeta dbMeta = cacheRowMeta.getValueMeta( i + 1 );
+          hashRow[ i ] = keyMeta.getType() == dbMeta.getType() ? cacheRow[ i + 1 ] : keyMeta.convertData( dbMeta, cacheRow[ i + 1 ] );
+        }
+        // Potential Cache Overflow is handled inside
+        addToCache( data.cacheKeyMeta, hashRow, cacheRowMeta.getInteger( cacheRow, 0 ) );
         incrementLinesInput();
       }
 
@@ -22,14 +22,13 @@
 
 package org.apache.hop.pipeline.transforms.combinationlookup;
 
-import org.apache.hop.core.RowMetaAndData;
 import org.apache.hop.core.database.Database;
+import org.apache.hop.core.hash.ByteArrayClockCache;
 import org.apache.hop.core.row.IRowMeta;
 import org.apache.hop.pipeline.transform.BaseTransformData;
 import org.apache.hop.pipeline.transform.ITransformData;
 
 import java.sql.PreparedStatement;
-import java.util.Map;
 
 /**
  * @author Matt
@@ -39,12 +38,13 @@ public class CombinationLookupData extends BaseTransformData implements ITransfo
   public Database db;
   public int[] keynrs; // nrs in row of the keys
 
-  public Map<RowMetaAndData, Long> cache;
+  public ByteArrayClockCache cache;
 
   public IRowMeta outputRowMeta;
   public IRowMeta lookupRowMeta;
   public IRowMeta insertRowMeta;
   public IRowMeta hashRowMeta;
+  public IRowMeta cacheKeyMeta; // the natural key in normal storage, used to serialize the cache keys
   public String realTableName;
   public String realSchemaName;
   public boolean[] removeField;
@@ -53,7 +53,6 @@ public class CombinationLookupData extends BaseTransformData implements ITransfo
 
   public PreparedStatement prepStatementLookup;
   public PreparedStatement prepStatementInsert;
-  public long smallestCacheKey;
 
   /**
    * Default Constructor
@@ -88,6 +88,8 @@ public class CombinationLookupDialog extends BaseTransformDialog implements ITra
 
   private Text wCachesize;
 
+  private Text wCacheMemoryLimit;
+
   private Button wPreloadCache;
 
   private Text wTk;
@@ -287,12 +289,32 @@ public class CombinationLookupDialog extends BaseTransformDialog implements ITra
     wCachesize.setLayoutData( fdCachesize );
     wCachesize.setToolTipText( BaseMessages.getString( PKG, "CombinationLookupDialog.Cachesize.ToolTip" ) );
 
+    // Cache memory limit
+    Label wlCacheMemoryLimit = new Label( shell, SWT.RIGHT );
+    wlCacheMemoryLimit.setText( BaseMessages.getString( PKG, "CombinationLookupDialog.CacheMemoryLimit.Label" ) );
+    props.setLook( wlCacheMemoryLimit );
+    FormData fdlCacheMemoryLimit = new FormData();
+    fdlCacheMemoryLimit.top = new FormAttachment( wCachesize, margin );
+    fdlCacheMemoryLimit.left = new FormAttachment( wCommit, margin );
+    fdlCacheMemoryLimit.right = new FormAttachment( middle + 2 * ( 100 - middle ) / 3, -margin );
+    wlCacheMemoryLimit.setLayoutData( fdlCacheMemoryLimit );
+    wCacheMemoryLimit = new Text( shell, SWT.SINGLE | SWT.LEFT | SWT.BORDER );
+    props.setLook( wCacheMemoryLimit );
+    wCacheMemoryLimit.addModifyListener( lsMod );
+    FormData fdCacheMemoryLimit = new FormData();
+    fdCacheMemoryLimit.top = new FormAttachment( wCachesize, margin );
+    fdCacheMemoryLimit.left = new FormAttachment( wlCacheMemoryLimit, margin );
+    fdCacheMemoryLimit.right = new FormAttachment( 100, 0 );
+    wCacheMemoryLimit.setLayoutData( fdCacheMemoryLimit );
+    wCacheMemoryLimit.setToolTipText(
+      BaseMessages.getString( PKG, "CombinationLookupDialog.CacheMemoryLimit.ToolTip" ) );
+
     // Preload Cache
     Label wlPreloadCache = new Label( shell, SWT.RIGHT );
     wlPreloadCache.setText( BaseMessages.getString( PKG, "CombinationLookupDialog.PreloadCache.Label" ) );
     props.setLook( wlPreloadCache );
     FormData fdlPreloadCache = new FormData();
-    fdlPreloadCache.top = new FormAttachment( wCachesize, margin );
+    fdlPreloadCache.top = new FormAttachment( wCacheMemoryLimit, margin );
     fdlPreloadCache.left = new FormAttachment( wCommit, margin );
     fdlPreloadCache.right = new FormAttachment( middle + 2 * ( 100 - middle ) / 3, -margin );
     wlPreloadCache.setLayoutData( fdlPreloadCache );
@@ -572,6 +594,7 @@ public class CombinationLookupDialog extends BaseTransformDialog implements ITra
     wSeq.addSelectionListener( lsDef );
     wTk.addSelectionListener( lsDef );
     wCachesize.addSelectionListener( lsDef );
+    wCacheMemoryLimit.addSelectionListener( lsDef );
     wHashfield.addSelectionListener( lsDef );
 
     // Detect X or ALT-F4 or something that kills this window...
@@ -797,6 +820,7 @@ public class CombinationLookupDialog extends BaseTransformDialog implements ITra
 
     wCommit.setText( "" + input.getCommitSize() );
     wCachesize.setText( "" + input.getCacheSize() );
+    wCacheMemoryLimit.setText( "" + input.getCacheMemoryLimit() );
 
     wLastUpdateField.setText( Const.NVL( input.getLastUpdateField(), "" ) );
 
@@ -874,6 +898,7 @@ public class CombinationLookupDialog extends BaseTransformDialog implements ITra
 
     in.setCommitSize( Const.toInt( wCommit.getText(), 0 ) );
     in.setCacheSize( Const.toInt( wCachesize.getText(), 0 ) );
+    in.setCacheMemoryLimit( Const.toInt( wCacheMemoryLimit.getText(), 0 ) );
 
     in.setLastUpdateField( wLastUpdateField.getText() );
   }
@@ -164,6 +164,12 @@ public class CombinationLookupMeta extends BaseTransformMeta implements ITransfo
   @Injection( name = "CACHE_SIZE" )
   private int cacheSize;
 
+  /**
+   * Limit the memory taken by the cache to this number of MB, 0 means no limit
+   */
+  @Injection( name = "CACHE_MEMORY_LIMIT" )
+  private int cacheMemoryLimit;
+
   /**
    * Use the auto-increment feature of the database to generate keys.
    */
@@ -249,6 +255,20 @@ public class CombinationLookupMeta extends BaseTransformMeta implements ITransfo
     this.cacheSize = cacheSize;
   }
 
+  /**
+   * @return Returns the memory limit of the cache in MB, 0 means no limit.
+   */
+  public int getCacheMemoryLimit() {
+    return cacheMemoryLimit;
+  }
+
+  /**
+   * @param cacheMemoryLimit The memory limit of the cache in MB to set.
+   */
+  public void setCacheMemoryLimit( int cacheMemoryLimit ) {
+    this.cacheMemoryLimit = cacheMemoryLimit;
+  }
+
   /**
    * @return Returns the hashField.
    */
@@ -426,6 +446,7 @@ public class CombinationLookupMeta extends BaseTransformMeta implements ITransfo
       commitSize = Const.toInt( commit, 0 );
       csize = XmlHandler.getTagValue( transformNode, "cache_size" );
       cacheSize = Const.toInt( csize, 0 );
+      cacheMemoryLimit = Const.toInt( XmlHandler.getTagValue( transformNode, "cache_memory_limit" ), 0 );
 
       replaceFields = "Y".equalsIgnoreCase( XmlHandler.getTagValue( transformNode, "replace" ) );
       preloadCache = "Y".equalsIgnoreCase( XmlHandler.getTagValue( transformNode, "preloadCache" ) );
@@ -468,6 +489,7 @@ public class CombinationLookupMeta extends BaseTransformMeta implements ITransfo
     databaseMeta = null;
     commitSize = 100;
     cacheSize = DEFAULT_CACHE_SIZE;
+    cacheMemoryLimit = 0;
     replaceFields = false;
     preloadCache = false;
     useHash = false;
@@ -515,6 +537,7 @@ public class CombinationLookupMeta extends BaseTransformMeta implements ITransfo
       databaseMeta == null ? "" : databaseMeta.getName() ) );
     retval.append( "      " ).append( XmlHandler.addTagValue( "commit", commitSize ) );
     retval.append( "      " ).append( XmlHandler.addTagValue( "cache_size", cacheSize ) );
+    retval.append( "      " ).append( XmlHandler.addTagValue( "cache_memory_limit", cacheMemoryLimit ) );
     retval.append( "      " ).append( XmlHandler.addTagValue( "replace", replaceFields ) );
     retval.append( "      " ).append( XmlHandler.addTagValue( "preloadCache", preloadCache ) );
     retval.append( "      " ).append( XmlHandler.addTagValue( "crc", useHash ) );
@@ -997,6 +1020,9 @@ public class CombinationLookupMeta extends BaseTransformMeta implements ITransfo
     if ( getCacheSize() != o.getCacheSize() ) {
       return false;
     }
+    if ( getCacheMemoryLimit() != o.getCacheMemoryLimit() ) {
+      return false;
+    }
     if ( !getTechKeyCreation().equals( o.getTechKeyCreation() ) ) {
       return false;
     }
@@ -1051,7 +1077,7 @@ public class CombinationLookupMeta extends BaseTransformMeta implements ITransfo
 
   @Override
   public int hashCode() {
-    return Objects.hash( getCommitSize(), getCacheSize(), getTechKeyCreation(), replaceFields(), useHash(),
+    return Objects.hash( getCommitSize(), getCacheSize(), getCacheMemoryLimit(), getTechKeyCreation(), replaceFields(), useHash(),
       getPreloadCache(), getSequenceFrom(), getSchemaName(), getTableName(), getHashField(), getTechnicalKeyField() );
   }
 
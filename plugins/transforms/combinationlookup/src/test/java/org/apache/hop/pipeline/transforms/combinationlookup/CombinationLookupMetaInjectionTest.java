@@ -50,6 +50,7 @@ public class CombinationLookupMetaInjectionTest extends BaseMetadataInjectionTes
     check( "COMMIT_SIZE", () -> meta.getCommitSize() );
     check( "PRELOAD_CACHE", () -> meta.getPreloadCache() );
     check( "CACHE_SIZE", () -> meta.getCacheSize() );
+    check( "CACHE_MEMORY_LIMIT", () -> meta.getCacheMemoryLimit() );
     check( "AUTO_INC", () -> meta.isUseAutoinc() );
     check( "TECHNICAL_KEY_CREATION", () -> meta.getTechKeyCreation() );
     check( "LAST_UPDATE_FIELD", () -> meta.getLastUpdateField() );
@@ -62,7 +62,7 @@ public class CombinationLookupMetaTest implements IInitializer<ITransformMeta> {
     List<String> attributes =
       Arrays.asList( "schemaName", "tableName", "databaseMeta", "replaceFields", "keyField", "keyLookup",
         "useHash", "hashField", "technicalKeyField", "sequenceFrom", "commitSize", "preloadCache", "cacheSize",
-        "useAutoinc", "techKeyCreation", "lastUpdateField" );
+        "cacheMemoryLimit", "useAutoinc", "techKeyCreation", "lastUpdateField" );
 
     Map<String, String> getterMap = new HashMap<String, String>() {
       {
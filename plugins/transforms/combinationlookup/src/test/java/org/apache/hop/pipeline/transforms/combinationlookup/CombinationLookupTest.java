@@ -24,9 +24,11 @@ package org.apache.hop.pipeline.transforms.combinationlookup;
 
 import org.apache.hop.core.database.Database;
 import org.apache.hop.core.database.DatabaseMeta;
+import org.apache.hop.core.hash.ByteArrayClockCache;
 import org.apache.hop.core.row.IRowMeta;
 import org.apache.hop.pipeline.Pipeline;
 import org.apache.hop.pipeline.PipelineMeta;
+import org.apache.hop.pipeline.engine.EngineComponent.ComponentExecutionStatus;
 import org.apache.hop.pipeline.transform.TransformMeta;
 import org.apache.hop.pipeline.transform.TransformPartitioningMeta;
 import org.junit.Before;
@@ -34,6 +36,7 @@ import org.junit.Test;
 
 import java.sql.Connection;
 
+import static org.junit.Assert.assertTrue;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyLong;
 import static org.mockito.Mockito.anyString;
@@ -90,4 +93,17 @@ public class CombinationLookupTest {
     combinationLookup.combiInsert( any( IRowMeta.class ), any( Object[].class ), anyLong(), anyLong() );
     verify( databaseMeta, times( 2 ) ).supportsAutoGeneratedKeys();
   }
+
+  @Test
+  public void testStatusDescriptionShowsCacheStatistics() {
+    combinationLookupData.cache = new ByteArrayClockCache( 1, 0 );
+    combinationLookupData.cache.put( new byte[] { 1 }, 1L );
+    combinationLookupData.cache.put( new byte[] { 2 }, 2L );
+    combinationLookupData.cache.get( new byte[] { 2 } );
+    combinationLookupData.cache.get( new byte[] { 3 } );
+    doReturn( ComponentExecutionStatus.STATUS_RUNNING ).when( combinationLookup ).getStatus();
+
+    String status = combinationLookup.getStatusDescription();
+    assertTrue( status, status.endsWith( "(cache: 1 hits, 1 misses, 1 evictions)" ) );
+  }
 }
@@ -24,6 +24,7 @@ package org.apache.hop.pipeline.transforms.databaselookup;
 
 import com.google.common.annotations.VisibleForTesting;
 import org.apache.hop.core.Const;
+import org.apache.hop.core.RowMetaAndData;
 import org.apache.hop.core.database.Database;
 import org.apache.hop.core.database.DatabaseMeta;
 import org.apache.hop.core.exception.HopDatabaseException;
@@ -44,8 +45,11 @@ import org.apache.hop.pipeline.transform.ITransform;
 import org.apache.hop.pipeline.transform.TransformMeta;
 import org.apache.hop.pipeline.transforms.databaselookup.readallcache.ReadAllCache;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Looks up values in a database using keys from input streams.
@@ -72,41 +76,12 @@ public class DatabaseLookup extends BaseTransform<DatabaseLookupMeta, DatabaseLo
   synchronized Object[] lookupValues( IRowMeta inputRowMeta, Object[] row ) throws HopException {
     Object[] outputRow = RowDataUtil.resizeArray( row, data.outputRowMeta.size() );
 
-    Object[] lookupRow = new Object[ data.lookupMeta.size() ];
-    int lookupIndex = 0;
-
-    for ( int i = 0; i < meta.getStreamKeyField1().length; i++ ) {
-      if ( data.keynrs[ i ] >= 0 ) {
-        IValueMeta input = inputRowMeta.getValueMeta( data.keynrs[ i ] );
-        IValueMeta value = data.lookupMeta.getValueMeta( lookupIndex );
-        lookupRow[ lookupIndex ] = row[ data.keynrs[ i ] ];
-
-        // Try to convert type if needed
-        if ( input.getType() != value.getType()
-          || IValueMeta.STORAGE_TYPE_BINARY_STRING == input.getStorageType() ) {
-          lookupRow[ lookupIndex ] = value.convertData( input, lookupRow[ lookupIndex ] );
-          value.setStorageType( IValueMeta.STORAGE_TYPE_NORMAL );
-        }
-        lookupIndex++;
-      }
-      if ( data.keynrs2[ i ] >= 0 ) {
-        IValueMeta input = inputRowMeta.getValueMeta( data.keynrs2[ i ] );
-        IValueMeta value = data.lookupMeta.getValueMeta( lookupIndex );
-        lookupRow[ lookupIndex ] = row[ data.keynrs2[ i ] ];
-
-        // Try to convert type if needed
-        if ( input.getType() != value.getType()
-          || IValueMeta.STORAGE_TYPE_BINARY_STRING == input.getStorageType() ) {
-          lookupRow[ lookupIndex ] = value.convertData( input, lookupRow[ lookupIndex ] );
-          value.setStorageType( IValueMeta.STORAGE_TYPE_NORMAL );
-        }
-        lookupIndex++;
-      }
-    }
+    Object[] lookupRow = getLookupRow( inputRowMeta, row );
 
     Object[] add;
     boolean cache_now = false;
     boolean cacheHit = false;
+    boolean batchHit = false;
 
     // First, check if we looked up before
     if ( meta.isCached() ) {
@@ -118,7 +93,18 @@ public class DatabaseLookup extends BaseTransform<DatabaseLookupMeta, DatabaseLo
       add = null;
     }
 
-    if ( add == null ) {
+    // Then see if the key was resolved by the last set based lookup
+    //
+    if ( add == null && data.batchResults != null ) {
+      RowMetaAndData key = new RowMetaAndData( data.lookupMeta, lookupRow );
+      if ( data.batchResults.containsKey( key ) ) {
+        add = data.batchResults.get( key );
+        batchHit = true;
+        cache_now = true;
+      }
+    }
+
+    if ( add == null && !batchHit ) {
       if ( !( meta.isCached() && meta.isLoadingAllDataInCache() ) || data.hasDBCondition ) { // do not go to the
         // database when all rows
         // are in (exception LIKE
@@ -166,8 +152,8 @@ public class DatabaseLookup extends BaseTransform<DatabaseLookupMeta, DatabaseLo
       }
 
       // Only verify the data types if the data comes from the DB, NOT when we have a cache hit
-      // In that case, we already know the data type is OK.
-      if ( !cacheHit ) {
+      // In that case, we already know the data type is OK. The same goes for the answers of a set based lookup.
+      if ( !cacheHit && !batchHit ) {
         incrementLinesInput();
 
         int[] types = meta.getReturnValueDefaultType();
@@ -190,8 +176,9 @@ public class DatabaseLookup extends BaseTransform<DatabaseLookupMeta, DatabaseLo
 
     // Store in cache if we need to!
     // If we already loaded all data into the cache, storing more makes no sense.
+    // The cache is keyed by the complete lookup tuple, so the answers to range lookups can be cached as well.
     //
-    if ( meta.isCached() && cache_now && !meta.isLoadingAllDataInCache() && data.allEquals ) {
+    if ( meta.isCached() && cache_now && !meta.isLoadingAllDataInCache() ) {
       data.cache.storeRowInCache( meta, data.lookupMeta, lookupRow, add );
     }
 
@@ -202,6 +189,136 @@ public class DatabaseLookup extends BaseTransform<DatabaseLookupMeta, DatabaseLo
     return outputRow;
   }
 
+  /**
+   * Resolves the keys of all buffered input rows with a single set based query. The answers are kept in
+   * {@link DatabaseLookupData#batchResults} where {@link #lookupValues(IRowMeta, Object[])} picks them up. The database
+   * tells which key every row belongs to, so the keys are compared exactly like the lookup of a single key does.
+   *
+   * @throws HopException In case something goes wrong.
+   */
+  @VisibleForTesting
+  synchronized void lookupBatch() throws HopException {
+    Map<RowMetaAndData, Object[]> results = new HashMap<>();
+    List<RowMetaAndData> keys = new ArrayList<>();
+
+    for ( Object[] row : data.batchRows ) {
+      Object[] lookupRow = getLookupRow( getInputRowMeta(), row );
+      RowMetaAndData key = new RowMetaAndData( data.lookupMeta, lookupRow );
+      if ( results.containsKey( key ) ) {
+        continue;
+      }
+      if ( meta.isCached() && data.cache.getRowFromCache( data.lookupMeta, lookupRow ) != null ) {
+        continue;
+      }
+      results.put( key, null );
+
+      // A null never equals anything: there is no need to ask the database
+      //
+      if ( !hasNullValue( lookupRow ) ) {
+        keys.add( key );
+      }
+    }
+
+    if ( !keys.isEmpty() ) {
+      List<Object[]> keysData = new ArrayList<>( keys.size() );
+      for ( RowMetaAndData key : keys ) {
+        keysData.add( key.getData() );
+      }
+      String orderBy = meta.getOrderByClause();
+      List<Object[]> rows = data.db.getLookupRowsPerKey(
+        environmentSubstitute( meta.getSchemaName() ), environmentSubstitute( meta.getTablename() ),
+        meta.getTableKeyField(), data.lookupMeta, keysData, meta.getReturnValueField(), orderBy );
+      IRowMeta rowMeta = data.db.getReturnRowMeta();
+      int[] types = meta.getReturnValueDefaultType();
+
+      for ( Object[] row : rows ) {
+        RowMetaAndData key = keys.get( ( (Long) row[ 0 ] ).intValue() );
+        if ( results.get( key ) != null ) {
+          // The first row (honouring the order by clause) wins
+          //
+          if ( meta.isFailingOnMultipleResults() ) {
+            throw new HopDatabaseException(
+              "Only 1 row was expected as a result of a lookup, and at least 2 were found!" );
+          }
+          continue;
+        }
+
+        Object[] add = new Object[ data.returnMeta.size() ];
+        for ( int i = 0; i < add.length; i++ ) {
+          IValueMeta returned = rowMeta.getValueMeta( i + 1 );
+          IValueMeta expected = data.returnMeta.getValueMeta( i );
+          add[ i ] = row[ i + 1 ];
+          if ( returned != null && types[ i ] > 0 && types[ i ] != returned.getType() ) {
+            // Set the type to the default return type
+            add[ i ] = expected.convertData( returned, add[ i ] );
+          }
+        }
+        results.put( key, add );
+        incrementLinesInput();
+      }
+
+      // A sorted lookup gives the rows of keys the database considers equal to the first of them only: the keys
+      // without rows are looked up one by one
+      //
+      if ( !Utils.isEmpty( orderBy ) ) {
+        for ( RowMetaAndData key : keys ) {
+          if ( results.get( key ) == null ) {
+            results.remove( key );
+          }
+        }
+      }
+    }
+
+    data.batchResults = results;
+  }
+
+  private static boolean hasNullValue( Object[] lookupRow ) {
+    for ( Object value : lookupRow ) {
+      if ( value == null ) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Builds the tuple of values to look up from an input row, converted to the data types of the lookup table.
+   */
+  private Object[] getLookupRow( IRowMeta inputRowMeta, Object[] row ) throws HopException {
+    Object[] lookupRow = new Object[ data.lookupMeta.size() ];
+    int lookupIndex = 0;
+
+    for ( int i = 0; i < meta.getStreamKeyField1().length; i++ ) {
+      if ( data.keynrs[ i ] >= 0 ) {
+        IValueMeta input = inputRowMeta.getValueMeta( data.keynrs[ i ] );
+        IValueMeta value = data.lookupMeta.getValueMeta( lookupIndex );
+        lookupRow[ lookupIndex ] = row[ data.keynrs[ i ] ];
+
+        // Try to convert type if needed
+        if ( input.getType() != value.getType()
+          || IValueMeta.STORAGE_TYPE_BINARY_STRING == input.getStorageType() ) {
+          lookupRow[ lookupIndex ] = value.convertData( input, lookupRow[ lookupIndex ] );
+          value.setStorageType( IValueMeta.STORAGE_TYPE_NORMAL );
+        }
+        lookupIndex++;
+      }
+      if ( data.keynrs2[ i ] >= 0 ) {
+        IValueMeta input = inputRowMeta.getValueMeta( data.keynrs2[ i ] );
+        IValueMeta value = data.lookupMeta.getValueMeta( lookupIndex );
+        lookupRow[ lookupIndex ] = row[ data.keynrs2[ i ] ];
+
+        // Try to convert type if needed
+        if ( input.getType() != value.getType()
+          || IValueMeta.STORAGE_TYPE_BINARY_STRING == input.getStorageType() ) {
+          lookupRow[ lookupIndex ] = value.convertData( input, lookupRow[ lookupIndex ] );
+          value.setStorageType( IValueMeta.STORAGE_TYPE_NORMAL );
+        }
+        lookupIndex++;
+      }
+    }
+    return lookupRow;
+  }
+
   // visible for testing purposes
   void determineFieldsTypesQueryingDb() throws HopException {
     final String[] keyFields = meta.getTableKeyField();
@@ -305,6 +422,9 @@ public class DatabaseLookup extends BaseTransform<DatabaseLookupMeta, DatabaseLo
   public boolean processRow() throws HopException {
     Object[] r = getRow(); // Get row from input rowset & set row busy!
     if ( r == null ) { // no more input to be expected...
+      if ( data.batchRows != null && !data.batchRows.isEmpty() && !processBatch() ) {
+        return false;
+      }
       setOutputDone();
       return false;
     }
@@ -376,6 +496,9 @@ public class DatabaseLookup extends BaseTransform<DatabaseLookupMeta, DatabaseLo
         loadAllTableDataIntoTheCache();
       }
 
+      if ( data.batchLookup ) {
+        data.batchRows = new ArrayList<>( meta.getLookupBatchSize() );
+      }
     }
 
     if ( log.isRowLevel() ) {
@@ -383,6 +506,52 @@ public class DatabaseLookup extends BaseTransform<DatabaseLookupMeta, DatabaseLo
         + getInputRowMeta().getString( r ) );
     }
 
+    if ( data.batchLookup ) {
+      data.batchRows.add( r );
+      if ( data.batchRows.size() >= meta.getLookupBatchSize() ) {
+        return processBatch();
+      }
+      return true;
+    }
+
+    return processLookupRow( r );
+  }
+
+  /**
+   * Resolves the buffered rows with one set based lookup and passes them on in their original order.
+   */
+  private boolean processBatch() throws HopException {
+    try {
+      lookupBatch();
+    } catch ( HopException e ) {
+      if ( getTransformMeta().isDoingErrorHandling() ) {
+        // Look the rows up one by one so that only the offending rows end up in the error stream
+        //
+        data.batchResults = null;
+      } else {
+        logError( BaseMessages.getString( PKG, "DatabaseLookup.ERROR003.UnexpectedErrorDuringProcessing" )
+          + e.getMessage() );
+        setErrors( 1 );
+        stopAll();
+        setOutputDone(); // signal end to receiver(s)
+        return false;
+      }
+    }
+
+    try {
+      for ( Object[] row : data.batchRows ) {
+        if ( !processLookupRow( row ) ) {
+          return false;
+        }
+      }
+    } finally {
+      data.batchRows.clear();
+      data.batchResults = null;
+    }
+    return true;
+  }
+
+  private boolean processLookupRow( Object[] r ) throws HopException {
     try {
       // add new lookup values to the row
       Object[] outputRow = lookupValues( getInputRowMeta(), r );
@@ -563,6 +732,7 @@ public class DatabaseLookup extends BaseTransform<DatabaseLookupMeta, DatabaseLo
         //
         data.allEquals = true;
         data.hasDBCondition = false;
+        data.batchLookup = meta.getLookupBatchSize() > 1;
         data.conditions = new int[ meta.getKeyCondition().length ];
         for ( int i = 0; i < meta.getKeyCondition().length; i++ ) {
           data.conditions[ i ] =
@@ -573,6 +743,17 @@ public class DatabaseLookup extends BaseTransform<DatabaseLookupMeta, DatabaseLo
           if ( data.conditions[ i ] == DatabaseLookupMeta.CONDITION_LIKE ) {
             data.hasDBCondition = true;
           }
+          if ( !"=".equals( meta.getKeyCondition()[ i ] ) ) {
+            data.batchLookup = false;
+          }
+        }
+
+        // Set based lookups only make sense for equality keys that are not all in memory already
+        //
+        if ( meta.getLookupBatchSize() > 1 && ( !data.batchLookup || meta.getKeyCondition().length == 0
+          || ( meta.isCached() && meta.isLoadingAllDataInCache() ) ) ) {
+          data.batchLookup = false;
+          logBasic( BaseMessages.getString( PKG, "DatabaseLookup.Log.LookupBatchDisabled" ) );
         }
 
         return true;
@@ -22,12 +22,16 @@
 
 package org.apache.hop.pipeline.transforms.databaselookup;
 
+import org.apache.hop.core.RowMetaAndData;
 import org.apache.hop.core.database.Database;
 import org.apache.hop.core.exception.HopException;
 import org.apache.hop.core.row.IRowMeta;
 import org.apache.hop.pipeline.transform.BaseTransformData;
 import org.apache.hop.pipeline.transform.ITransformData;
 
+import java.util.List;
+import java.util.Map;
+
 /**
  * @author Matt
  * @since 24-jan-2005
@@ -49,6 +53,10 @@ public class DatabaseLookupData extends BaseTransformData implements ITransformD
   public int[] conditions;
   public boolean hasDBCondition;
 
+  public boolean batchLookup; // resolve the keys of several input rows with a single query
+  public List<Object[]> batchRows; // input rows waiting for the next set based lookup
+  public Map<RowMetaAndData, Object[]> batchResults; // looked up keys of the current batch, null when not found
+
   public DatabaseLookupData() {
     super();
 
@@ -155,6 +155,11 @@ public class DatabaseLookupMeta extends BaseTransformMeta implements ITransformM
    */
   private boolean loadingAllDataInCache;
 
+  /**
+   * Resolve this many input rows with a single set based query (0 or 1 looks up row by row)
+   */
+  private int lookupBatchSize;
+
   /**
    * Have the lookup fail if multiple results were found, renders the orderByClause useless
    */
@@ -422,6 +427,7 @@ public class DatabaseLookupMeta extends BaseTransformMeta implements ITransformM
       loadingAllDataInCache = "Y".equalsIgnoreCase( XmlHandler.getTagValue( transformNode, "cache_load_all" ) );
       csize = XmlHandler.getTagValue( transformNode, "cache_size" );
       cacheSize = Const.toInt( csize, 0 );
+      lookupBatchSize = Const.toInt( XmlHandler.getTagValue( transformNode, "lookup_batch_size" ), 0 );
       schemaName = XmlHandler.getTagValue( transformNode, "lookup", "schema" );
       tablename = XmlHandler.getTagValue( transformNode, "lookup", "table" );
 
@@ -476,6 +482,7 @@ public class DatabaseLookupMeta extends BaseTransformMeta implements ITransformM
     databaseMeta = null;
     cached = false;
     cacheSize = 0;
+    lookupBatchSize = 0;
     schemaName = "";
     tablename = BaseMessages.getString( PKG, "DatabaseLookupMeta.Default.TableName" );
 
@@ -541,6 +548,7 @@ public class DatabaseLookupMeta extends BaseTransformMeta implements ITransformM
     retval.append( "    " ).append( XmlHandler.addTagValue( "cache", cached ) );
     retval.append( "    " ).append( XmlHandler.addTagValue( "cache_load_all", loadingAllDataInCache ) );
     retval.append( "    " ).append( XmlHandler.addTagValue( "cache_size", cacheSize ) );
+    retval.append( "    " ).append( XmlHandler.addTagValue( "lookup_batch_size", lookupBatchSize ) );
     retval.append( "    <lookup>" ).append( Const.CR );
     retval.append( "      " ).append( XmlHandler.addTagValue( "schema", schemaName ) );
     retval.append( "      " ).append( XmlHandler.addTagValue( "table", tablename ) );
@@ -840,6 +848,20 @@ public class DatabaseLookupMeta extends BaseTransformMeta implements ITransformM
     this.loadingAllDataInCache = loadingAllDataInCache;
   }
 
+  /**
+   * @return the number of input rows resolved with a single set based query, 0 or 1 looks up row by row
+   */
+  public int getLookupBatchSize() {
+    return lookupBatchSize;
+  }
+
+  /**
+   * @param lookupBatchSize the number of input rows resolved with a single set based query
+   */
+  public void setLookupBatchSize( int lookupBatchSize ) {
+    this.lookupBatchSize = lookupBatchSize;
+  }
+
   @Override public RowMeta getRowMeta( ITransformData transformData ) {
     return (RowMeta) ( (DatabaseLookupData) transformData ).returnMeta;
   }
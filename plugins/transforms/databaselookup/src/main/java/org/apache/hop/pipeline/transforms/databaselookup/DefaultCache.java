@@ -23,19 +23,21 @@
 package org.apache.hop.pipeline.transforms.databaselookup;
 
 import org.apache.hop.core.RowMetaAndData;
-import org.apache.hop.core.TimedRow;
 import org.apache.hop.core.exception.HopException;
 import org.apache.hop.core.row.IRowMeta;
-import org.apache.hop.core.row.IValueMeta;
 
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.Date;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
-import java.util.List;
 
 /**
- * Old code, copied from {@linkplain DatabaseLookup}
+ * The cache used by {@linkplain DatabaseLookup} when rows are looked up one by one. Entries are keyed by the complete
+ * lookup tuple and hold the answer the database gave for it, so the cache is valid for any set of conditions, not only
+ * for equality. The map is kept in access order and the least recently used entry is evicted once the configured cache
+ * size is exceeded.
+ * <p/>
+ * Range conditions against the complete table are served by
+ * {@linkplain org.apache.hop.pipeline.transforms.databaselookup.readallcache.ReadAllCache ReadAllCache}, which is the
+ * only mode where the cache holds table rows rather than previous answers.
  *
  * @author Andrey Khayrutdinov
  */
@@ -52,93 +54,17 @@ public class DefaultCache implements DatabaseLookupData.ICache {
 
 
   private final DatabaseLookupData data;
-  private final LinkedHashMap<RowMetaAndData, TimedRow> map;
+  private final LinkedHashMap<RowMetaAndData, Object[]> map;
 
   DefaultCache( DatabaseLookupData data, int capacity ) {
     this.data = data;
-    map = new LinkedHashMap<>( capacity );
+    // access order turns the map into an LRU list: get() moves the entry to the tail
+    map = new LinkedHashMap<>( capacity, 0.75f, true );
   }
 
   @Override
   public Object[] getRowFromCache( IRowMeta lookupMeta, Object[] lookupRow ) throws HopException {
-    if ( data.allEquals ) {
-      // only do the map lookup when all equals otherwise conditions >, <, <> will give wrong results
-      TimedRow timedRow = map.get( new RowMetaAndData( data.lookupMeta, lookupRow ) );
-      if ( timedRow != null ) {
-        return timedRow.getRow();
-      }
-    } else { // special handling of conditions <,>, <> etc.
-      if ( !data.hasDBCondition ) { // e.g. LIKE not handled by this routine, yet
-        // TODO: find an alternative way to look up the data based on the condition.
-        // Not all conditions are "=" so we are going to have to evaluate row by row
-        // A sorted list or index might be a good solution here...
-        //
-        for ( RowMetaAndData key : map.keySet() ) {
-          // Now verify that the key is matching our conditions...
-          //
-          boolean match = true;
-          int lookupIndex = 0;
-          for ( int i = 0; i < data.conditions.length && match; i++ ) {
-            IValueMeta cmpMeta = lookupMeta.getValueMeta( lookupIndex );
-            Object cmpData = lookupRow[ lookupIndex ];
-            IValueMeta keyMeta = key.getValueMeta( i );
-            Object keyData = key.getData()[ i ];
-
-            switch ( data.conditions[ i ] ) {
-              case DatabaseLookupMeta.CONDITION_EQ:
-                match = ( cmpMeta.compare( cmpData, keyMeta, keyData ) == 0 );
-                break;
-              case DatabaseLookupMeta.CONDITION_NE:
-                match = ( cmpMeta.compare( cmpData, keyMeta, keyData ) != 0 );
-                break;
-              case DatabaseLookupMeta.CONDITION_LT:
-                match = ( cmpMeta.compare( cmpData, keyMeta, keyData ) > 0 );
-                break;
-              case DatabaseLookupMeta.CONDITION_LE:
-                match = ( cmpMeta.compare( cmpData, keyMeta, keyData ) >= 0 );
-                break;
-              case DatabaseLookupMeta.CONDITION_GT:
-                match = ( cmpMeta.compare( cmpData, keyMeta, keyData ) < 0 );
-                break;
-              case DatabaseLookupMeta.CONDITION_GE:
-                match = ( cmpMeta.compare( cmpData, keyMeta, keyData ) <= 0 );
-                break;
-              case DatabaseLookupMeta.CONDITION_IS_NULL:
-                match = keyMeta.isNull( keyData );
-                break;
-              case DatabaseLookupMeta.CONDITION_IS_NOT_NULL:
-                match = !keyMeta.isNull( keyData );
-                break;
-              case DatabaseLookupMeta.CONDITION_BETWEEN:
-                // Between key >= cmp && key <= cmp2
-                IValueMeta cmpMeta2 = lookupMeta.getValueMeta( lookupIndex + 1 );
-                Object cmpData2 = lookupRow[ lookupIndex + 1 ];
-                match = ( keyMeta.compare( keyData, cmpMeta, cmpData ) >= 0 );
-                if ( match ) {
-                  match = ( keyMeta.compare( keyData, cmpMeta2, cmpData2 ) <= 0 );
-                }
-                lookupIndex++;
-                break;
-              // TODO: add LIKE operator (think of changing the hasDBCondition logic then)
-              default:
-                match = false;
-                data.hasDBCondition = true; // avoid looping in here the next time, also safety when a new condition
-                // will be introduced
-                break;
-
-            }
-            lookupIndex++;
-          }
-          if ( match ) {
-            TimedRow timedRow = map.get( key );
-            if ( timedRow != null ) {
-              return timedRow.getRow();
-            }
-          }
-        }
-      }
-    }
-    return null;
+    return map.get( new RowMetaAndData( data.lookupMeta, lookupRow ) );
   }
 
   @Override
@@ -155,43 +81,22 @@ public class DefaultCache implements DatabaseLookupData.ICache {
     // if (!data.look.containsKey(rowMetaAndData)) {
     // data.look.put(rowMetaAndData, new TimedRow(add));
     // }
-    map.put( rowMetaAndData, new TimedRow( add ) );
-
-    // See if we have to limit the cache_size.
-    // Sample 10% of the rows in the cache.
-    // Remove everything below the second lowest date.
-    // That should on average remove more than 10% of the entries
-    // It's not exact science, but it will be faster than the old algorithm
+    map.put( rowMetaAndData, add );
 
     // DEinspanjer 2009-02-01: If you had previously set a cache size and then turned on load all, this
     // method would throw out entries if the previous cache size wasn't big enough.
-    if ( !meta.isLoadingAllDataInCache() && meta.getCacheSize() > 0 && map.size() > meta.getCacheSize() ) {
-      List<RowMetaAndData> keys = new ArrayList<RowMetaAndData>( map.keySet() );
-      List<Date> samples = new ArrayList<Date>();
-      int incr = keys.size() / 10;
-      if ( incr == 0 ) {
-        incr = 1;
-      }
-      for ( int k = 0; k < keys.size(); k += incr ) {
-        RowMetaAndData key = keys.get( k );
-        TimedRow timedRow = map.get( key );
-        samples.add( timedRow.getLogDate() );
-      }
-
-      Collections.sort( samples );
-
-      if ( samples.size() > 1 ) {
-        Date smallest = samples.get( 1 );
-
-        // Everything below the smallest date goes away...
-        for ( RowMetaAndData key : keys ) {
-          TimedRow timedRow = map.get( key );
-
-          if ( timedRow.getLogDate().compareTo( smallest ) < 0 ) {
-            map.remove( key );
-          }
-        }
+    if ( !meta.isLoadingAllDataInCache() && meta.getCacheSize() > 0 ) {
+      // Evict the least recently used entries, they are at the head of the access-ordered map
+      //
+      Iterator<RowMetaAndData> eldest = map.keySet().iterator();
+      while ( map.size() > meta.getCacheSize() && eldest.hasNext() ) {
+        eldest.next();
+        eldest.remove();
       }
     }
   }
+
+  int size() {
+    return map.size();
+  }
 }
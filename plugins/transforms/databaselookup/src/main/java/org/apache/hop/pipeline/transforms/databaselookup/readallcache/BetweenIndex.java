@@ -0,0 +1,78 @@
+/*! ******************************************************************************
+ *
+ * Hop : The Hop Orchestration Platform
+ *
+ * Copyright (C) 2002-2017 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+package org.apache.hop.pipeline.transforms.databaselookup.readallcache;
+
+import org.apache.hop.core.row.IRowMeta;
+import org.apache.hop.core.row.IValueMeta;
+
+import java.util.BitSet;
+
+/**
+ * Interval index for {@code BETWEEN}: both bounds are located in the same sorted array, hence only the rows lying
+ * between the two insertion points are marked as candidates.
+ */
+class BetweenIndex extends Index {
+
+  BetweenIndex( int column, IValueMeta valueMeta, int rowsAmount ) {
+    super( column, valueMeta, rowsAmount );
+  }
+
+  @Override
+  public void applyRestrictionsTo( SearchingContext context, IRowMeta lookupMeta, Object[] lookupRow,
+                                   int lookupIndex ) {
+    doApply( context, lookupRow[ lookupIndex ], lookupRow[ lookupIndex + 1 ] );
+  }
+
+  @Override
+  void doApply( SearchingContext context, IValueMeta lookupMeta, Object lookupValue ) {
+    // a degenerated interval
+    doApply( context, lookupValue, lookupValue );
+  }
+
+  void doApply( SearchingContext context, Object from, Object to ) {
+    if ( from == null || to == null ) {
+      // nothing is between null and something
+      context.setEmpty();
+      return;
+    }
+
+    // the first value, that is not less than "from", and the first one, that is greater than "to"
+    int lower = findInsertionPointOf( new IndexedValue( from, -1 ) );
+    int upper = findInsertionPointOf( new IndexedValue( to, Integer.MAX_VALUE ) );
+    if ( lower >= upper ) {
+      context.setEmpty();
+      return;
+    }
+
+    BitSet bitSet = context.getWorkingSet();
+    for ( int i = lower; i < upper; i++ ) {
+      bitSet.set( values[ i ].row, true );
+    }
+    context.intersect( bitSet, false );
+  }
+
+  @Override
+  int getRestrictionPower() {
+    // stronger than a half-open range, but weaker than equality
+    return -2000;
+  }
+}
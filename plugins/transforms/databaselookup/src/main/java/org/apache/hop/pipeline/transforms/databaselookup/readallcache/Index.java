@@ -24,6 +24,7 @@ package org.apache.hop.pipeline.transforms.databaselookup.readallcache;
 
 import org.apache.hop.core.exception.HopException;
 import org.apache.hop.core.exception.HopValueException;
+import org.apache.hop.core.row.IRowMeta;
 import org.apache.hop.core.row.IValueMeta;
 
 import java.util.Arrays;
@@ -74,6 +75,23 @@ abstract class Index {
     return column;
   }
 
+  /**
+   * Applies the restriction taking the argument(s) from the lookup row, starting at {@code lookupIndex}
+   *
+   * @param context     searching context
+   * @param lookupMeta  lookup row's meta
+   * @param lookupRow   lookup row
+   * @param lookupIndex position of the first argument of the condition in the lookup row
+   */
+  public void applyRestrictionsTo( SearchingContext context, IRowMeta lookupMeta, Object[] lookupRow,
+                                   int lookupIndex ) {
+    // IS (NOT) NULL operation does not require second argument
+    // hence, lookupValue can be absent
+    // basically, the index ignores both meta and value, so we can pass everything there
+    Object lookupValue = ( lookupIndex < lookupRow.length ) ? lookupRow[ lookupIndex ] : null;
+    applyRestrictionsTo( context, lookupMeta.getValueMeta( lookupIndex ), lookupValue );
+  }
+
   public void applyRestrictionsTo( SearchingContext context, IValueMeta lookupMeta, Object lookupValue ) {
     try {
       doApply( context, lookupMeta, lookupValue );
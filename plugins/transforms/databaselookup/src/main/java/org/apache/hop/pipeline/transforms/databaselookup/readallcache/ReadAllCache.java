@@ -24,12 +24,10 @@ package org.apache.hop.pipeline.transforms.databaselookup.readallcache;
 
 import org.apache.hop.core.exception.HopException;
 import org.apache.hop.core.row.IRowMeta;
-import org.apache.hop.core.row.IValueMeta;
 import org.apache.hop.pipeline.transforms.databaselookup.DatabaseLookupData;
 import org.apache.hop.pipeline.transforms.databaselookup.DatabaseLookupMeta;
 
 import java.util.ArrayList;
-import java.util.BitSet;
 import java.util.List;
 import java.util.PriorityQueue;
 
@@ -50,6 +48,9 @@ public class ReadAllCache implements DatabaseLookupData.ICache {
   private final Object[][] data;
 
   private final Index[] indexes;
+  // position of the first argument of each condition in the lookup row,
+  // they differ from conditions' positions after a BETWEEN, because it takes two arguments
+  private final int[] lookupIndexes;
 
   // this is an array of pairs (column; condition),
   // such structure was chosen not to introduce separate data-container class
@@ -64,6 +65,17 @@ public class ReadAllCache implements DatabaseLookupData.ICache {
     Object[] pair = createIndexes( transformData, keysMeta, keys );
     indexes = (Index[]) pair[ 0 ];
     otherConditions = (int[][]) pair[ 1 ];
+    lookupIndexes = createLookupIndexes( transformData.conditions );
+  }
+
+  private static int[] createLookupIndexes( int[] conditions ) {
+    int[] result = new int[ conditions.length ];
+    int lookupIndex = 0;
+    for ( int i = 0; i < conditions.length; i++ ) {
+      result[ i ] = lookupIndex;
+      lookupIndex += ( conditions[ i ] == DatabaseLookupMeta.CONDITION_BETWEEN ) ? 2 : 1;
+    }
+    return result;
   }
 
 
@@ -103,6 +115,9 @@ public class ReadAllCache implements DatabaseLookupData.ICache {
         case DatabaseLookupMeta.CONDITION_IS_NOT_NULL:
           index = new IsNullIndex( i, keysMeta.getValueMeta( i ), rowsAmount, false );
           break;
+        case DatabaseLookupMeta.CONDITION_BETWEEN:
+          index = new BetweenIndex( i, keysMeta.getValueMeta( i ), rowsAmount );
+          break;
       }
       if ( index == null ) {
         otherConditions.add( new int[] { i, condition } );
@@ -131,66 +146,24 @@ public class ReadAllCache implements DatabaseLookupData.ICache {
     context.init( keys.length );
 
     for ( Index index : indexes ) {
-      int column = index.getColumn();
-      // IS (NOT) NULL operation does not require second argument
-      // hence, lookupValue can be absent
-      // basically, the index ignores both meta and value, so we can pass everything there
-      Object lookupValue = ( column < lookupRow.length ) ? lookupRow[ column ] : null;
-      index.applyRestrictionsTo( context, lookupMeta.getValueMeta( column ), lookupValue );
+      index.applyRestrictionsTo( context, lookupMeta, lookupRow, lookupIndexes[ index.getColumn() ] );
       if ( context.isEmpty() ) {
         // if nothing matches, break the search
         return null;
       }
     }
 
-    // iterate through all elements survived after filtering stage
-    // and find the first matching
-    BitSet candidates = context.getCandidates();
-    int candidate = candidates.nextSetBit( 0 );
-    while ( candidate != -1 ) {
-      Object[] dataKeys = keys[ candidate ];
-
-      boolean matches = true;
-      int lookupShift = 0;
-      for ( int i = 0, len = otherConditions.length; i < len && matches; i++ ) {
-        int[] columnConditionPair = otherConditions[ i ];
-
-        final int column = columnConditionPair[ 0 ];
-        Object keyData = dataKeys[ column ];
-        IValueMeta keyMeta = keysMeta.getValueMeta( column );
-
-        int lookupIndex = column + lookupShift;
-        Object cmpData = lookupRow[ lookupIndex ];
-        IValueMeta cmpMeta = lookupMeta.getValueMeta( lookupIndex );
-
-        int condition = columnConditionPair[ 1 ];
-        if ( condition == DatabaseLookupMeta.CONDITION_BETWEEN ) {
-          // BETWEEN is a special condition demanding two arguments
-          // technically there are no obstacles to implement it,
-          // as it is just a short form of: (a <= b) && (b <= c)
-          // however, let it be so for now
-          matches = ( keyMeta.compare( keyData, cmpMeta, cmpData ) >= 0 );
-          if ( matches ) {
-            lookupShift++;
-            lookupIndex++;
-            IValueMeta cmpMeta2 = lookupMeta.getValueMeta( lookupIndex );
-            Object cmpData2 = lookupRow[ lookupIndex ];
-            matches = ( keyMeta.compare( keyData, cmpMeta2, cmpData2 ) <= 0 );
-          }
-        } else {
-          // if not BETWEEN, than it is LIKE (or some new operator)
-          // for now, LIKE is not supported here
-          matches = false;
-          transformData.hasDBCondition = true;
-        }
-      }
-      if ( matches ) {
-        return data[ candidate ];
-      } else {
-        candidate = candidates.nextSetBit( candidate + 1 );
-      }
+    if ( otherConditions.length > 0 ) {
+      // all comparisons, including BETWEEN, are served by indexes,
+      // hence it is LIKE (or some new operator)
+      // for now, LIKE is not supported here
+      transformData.hasDBCondition = true;
+      return null;
     }
-    return null;
+
+    // the first element survived after filtering stage is the matching one
+    int candidate = context.getCandidates().nextSetBit( 0 );
+    return ( candidate == -1 ) ? null : data[ candidate ];
   }
 
   @Override
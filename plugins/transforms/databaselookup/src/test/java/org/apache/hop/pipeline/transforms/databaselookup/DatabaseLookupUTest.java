@@ -49,6 +49,7 @@ import org.junit.Before;
 import org.junit.BeforeClass;
 import org.junit.ClassRule;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Matchers;
 import org.mockito.Mockito;
 import org.mockito.invocation.InvocationOnMock;
@@ -60,12 +61,15 @@ import java.sql.ResultSet;
 import java.sql.ResultSetMetaData;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.List;
 import java.util.concurrent.TimeUnit;
 
 import static org.hamcrest.CoreMatchers.instanceOf;
 import static org.hamcrest.CoreMatchers.is;
 import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Matchers.any;
@@ -79,6 +83,7 @@ import static org.mockito.Mockito.doNothing;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.mockingDetails;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -320,16 +325,165 @@ public class DatabaseLookupUTest {
     data.cache.storeRowInCache( mockHelper.iTransformMeta, lookupMeta, kgsRow1, add1 );
     data.cache.storeRowInCache( mockHelper.iTransformMeta, lookupMeta, kgsRow2, add2 );
 
-    Object[] rowToCache = new Object[ 1 ];
-    rowToCache[ 0 ] = 0L;
+    // the cache holds database answers for exact lookup tuples, whatever the conditions are
+    data.lookupMeta = lookupMeta;
     data.conditions = new int[ 1 ];
     data.conditions[ 0 ] = DatabaseLookupMeta.CONDITION_GE;
-    Object[] dataFromCache = data.cache.getRowFromCache( lookupMeta, rowToCache );
+    assertNull( data.cache.getRowFromCache( lookupMeta, new Object[] { 0L } ) );
+    assertArrayEquals( add1, data.cache.getRowFromCache( lookupMeta, new Object[] { 1L } ) );
+    assertArrayEquals( add2, data.cache.getRowFromCache( lookupMeta, new Object[] { 2L } ) );
+  }
+
+  @Test
+  public void defaultCacheEvictsLeastRecentlyUsed() throws HopException {
+    RowMeta lookupMeta = new RowMeta();
+    lookupMeta.addValueMeta( new ValueMetaInteger( "fieldTest" ) );
+
+    DatabaseLookupData data = new DatabaseLookupData();
+    data.lookupMeta = lookupMeta;
+    DefaultCache cache = DefaultCache.newCache( data, 2 );
 
-    assertArrayEquals( dataFromCache, add1 );
+    DatabaseLookupMeta meta = new DatabaseLookupMeta();
+    meta.setCacheSize( 2 );
+
+    cache.storeRowInCache( meta, lookupMeta, new Object[] { 1L }, new Object[] { 10L } );
+    cache.storeRowInCache( meta, lookupMeta, new Object[] { 2L }, new Object[] { 20L } );
+    // touch the first entry, so that the second becomes the eldest one
+    assertNotNull( cache.getRowFromCache( lookupMeta, new Object[] { 1L } ) );
+    cache.storeRowInCache( meta, lookupMeta, new Object[] { 3L }, new Object[] { 30L } );
+
+    assertEquals( 2, cache.size() );
+    assertArrayEquals( new Object[] { 10L }, cache.getRowFromCache( lookupMeta, new Object[] { 1L } ) );
+    assertNull( cache.getRowFromCache( lookupMeta, new Object[] { 2L } ) );
+    assertArrayEquals( new Object[] { 30L }, cache.getRowFromCache( lookupMeta, new Object[] { 3L } ) );
   }
 
 
+  @Test
+  @SuppressWarnings( "unchecked" )
+  public void batchLookupResolvesDistinctKeysWithOneQuery() throws Exception {
+    DatabaseLookupMeta meta = new DatabaseLookupMeta();
+    meta.setSchemaName( "" );
+    meta.setTablename( "VirtualTable" );
+    meta.setTableKeyField( new String[] { ID_FIELD } );
+    meta.setKeyCondition( new String[] { "=" } );
+    meta.setStreamKeyField1( new String[] { "key" } );
+    meta.setStreamKeyField2( new String[] { null } );
+    meta.setReturnValueField( new String[] { "name" } );
+    meta.setReturnValueNewName( new String[] { "name" } );
+    meta.setReturnValueDefaultType( new int[] { IValueMeta.TYPE_STRING } );
+    meta.setLookupBatchSize( 5 );
+
+    RowMeta inputRowMeta = new RowMeta();
+    inputRowMeta.addValueMeta( new ValueMetaInteger( "key" ) );
+    RowMeta returnRowMeta = new RowMeta();
+    returnRowMeta.addValueMeta( new ValueMetaInteger( "KEY_NR" ) );
+    returnRowMeta.addValueMeta( new ValueMetaString( "name" ) );
+
+    // the database tells which key a row belongs to
+    Database db = mock( Database.class );
+    when( db.getReturnRowMeta() ).thenReturn( returnRowMeta );
+    when( db.getLookupRowsPerKey( anyString(), anyString(), any( String[].class ), any( IRowMeta.class ),
+      any( List.class ), any( String[].class ), anyString() ) ).thenReturn( Arrays.asList(
+      new Object[] { 1L, "two" }, new Object[] { 0L, "one" }, new Object[] { 0L, "uno" } ) );
+
+    DatabaseLookupData data = new DatabaseLookupData();
+    data.db = db;
+    data.keynrs = new int[] { 0 };
+    data.keynrs2 = new int[] { -1 };
+    data.nullif = new Object[] { null };
+    data.lookupMeta = new RowMeta();
+    data.lookupMeta.addValueMeta( new ValueMetaInteger( ID_FIELD ) );
+    data.returnMeta = new RowMeta();
+    data.returnMeta.addValueMeta( new ValueMetaString( "name" ) );
+    data.outputRowMeta = inputRowMeta.clone();
+    data.outputRowMeta.addValueMeta( new ValueMetaString( "name" ) );
+    data.batchRows = Arrays.asList(
+      new Object[] { 1L }, new Object[] { 2L }, new Object[] { 3L }, new Object[] { null }, new Object[] { 1L } );
+
+    DatabaseLookup lookup =
+      new DatabaseLookup( mockHelper.transformMeta, meta, data, 0, mockHelper.pipelineMeta, mockHelper.pipeline );
+    lookup.setInputRowMeta( inputRowMeta );
+    lookup.lookupBatch();
+
+    ArgumentCaptor<List> keys = ArgumentCaptor.forClass( List.class );
+    verify( db ).getLookupRowsPerKey( anyString(), anyString(), any( String[].class ), any( IRowMeta.class ),
+      keys.capture(), any( String[].class ), anyString() );
+    assertEquals( 3, keys.getValue().size() );
+
+    // the first row of a key wins, keys that were not returned are not found, nulls never match
+    assertArrayEquals( new Object[] { 1L, "one" },
+      Arrays.copyOf( lookup.lookupValues( inputRowMeta, new Object[] { 1L } ), 2 ) );
+    assertArrayEquals( new Object[] { 2L, "two" },
+      Arrays.copyOf( lookup.lookupValues( inputRowMeta, new Object[] { 2L } ), 2 ) );
+    assertArrayEquals( new Object[] { 3L, null },
+      Arrays.copyOf( lookup.lookupValues( inputRowMeta, new Object[] { 3L } ), 2 ) );
+    assertArrayEquals( new Object[] { null, null },
+      Arrays.copyOf( lookup.lookupValues( inputRowMeta, new Object[] { null } ), 2 ) );
+    verify( db, never() ).getLookup( anyBoolean() );
+    verify( db, never() ).setValuesLookup( any( IRowMeta.class ), any( Object[].class ) );
+  }
+
+  @Test
+  @SuppressWarnings( "unchecked" )
+  public void sortedBatchLookupLeavesKeysWithoutRowsToSingleLookups() throws Exception {
+    DatabaseLookupMeta meta = new DatabaseLookupMeta();
+    meta.setSchemaName( "" );
+    meta.setTablename( "VirtualTable" );
+    meta.setTableKeyField( new String[] { ID_FIELD } );
+    meta.setKeyCondition( new String[] { "=" } );
+    meta.setStreamKeyField1( new String[] { "key" } );
+    meta.setStreamKeyField2( new String[] { null } );
+    meta.setReturnValueField( new String[] { "name" } );
+    meta.setReturnValueNewName( new String[] { "name" } );
+    meta.setReturnValueDefaultType( new int[] { IValueMeta.TYPE_STRING } );
+    meta.setOrderByClause( "name DESC" );
+    meta.setLookupBatchSize( 5 );
+
+    RowMeta inputRowMeta = new RowMeta();
+    inputRowMeta.addValueMeta( new ValueMetaString( "key" ) );
+    RowMeta returnRowMeta = new RowMeta();
+    returnRowMeta.addValueMeta( new ValueMetaInteger( "KEY_NR" ) );
+    returnRowMeta.addValueMeta( new ValueMetaString( "name" ) );
+
+    RowMeta singleRowMeta = new RowMeta();
+    singleRowMeta.addValueMeta( new ValueMetaString( "name" ) );
+
+    // "A" equals "a" in the database: its rows all go to the first key
+    Database db = mock( Database.class );
+    when( db.getReturnRowMeta() ).thenReturn( returnRowMeta, singleRowMeta );
+    when( db.getLookupRowsPerKey( anyString(), anyString(), any( String[].class ), any( IRowMeta.class ),
+      any( List.class ), any( String[].class ), eq( "name DESC" ) ) ).thenReturn( Arrays.asList(
+      new Object[] { 0L, "two" }, new Object[] { 0L, "one" } ) );
+    when( db.getLookup( anyBoolean() ) ).thenReturn( new Object[] { "two" } );
+
+    DatabaseLookupData data = new DatabaseLookupData();
+    data.db = db;
+    data.keynrs = new int[] { 0 };
+    data.keynrs2 = new int[] { -1 };
+    data.nullif = new Object[] { null };
+    data.lookupMeta = new RowMeta();
+    data.lookupMeta.addValueMeta( new ValueMetaString( ID_FIELD ) );
+    data.returnMeta = new RowMeta();
+    data.returnMeta.addValueMeta( new ValueMetaString( "name" ) );
+    data.outputRowMeta = inputRowMeta.clone();
+    data.outputRowMeta.addValueMeta( new ValueMetaString( "name" ) );
+    data.batchRows = Arrays.asList( new Object[] { "a" }, new Object[] { "A" } );
+
+    DatabaseLookup lookup =
+      new DatabaseLookup( mockHelper.transformMeta, meta, data, 0, mockHelper.pipelineMeta, mockHelper.pipeline );
+    lookup.setInputRowMeta( inputRowMeta );
+    lookup.lookupBatch();
+
+    assertArrayEquals( new Object[] { "a", "two" },
+      Arrays.copyOf( lookup.lookupValues( inputRowMeta, new Object[] { "a" } ), 2 ) );
+    verify( db, never() ).getLookup( anyBoolean() );
+    assertArrayEquals( new Object[] { "A", "two" },
+      Arrays.copyOf( lookup.lookupValues( inputRowMeta, new Object[] { "A" } ), 2 ) );
+    verify( db ).setValuesLookup( any( IRowMeta.class ), eq( new Object[] { "A" } ) );
+    verify( db ).getLookup( anyBoolean() );
+  }
+
   @Test
   public void createsReadOnlyCache_WhenReadAll_AndNotAllEquals() throws Exception {
     DatabaseLookupData data = getCreatedData( false );
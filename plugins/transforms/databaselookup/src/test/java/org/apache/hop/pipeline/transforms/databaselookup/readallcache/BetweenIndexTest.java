@@ -0,0 +1,128 @@
+/*! ******************************************************************************
+ *
+ * Hop : The Hop Orchestration Platform
+ *
+ * Copyright (C) 2002-2017 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+package org.apache.hop.pipeline.transforms.databaselookup.readallcache;
+
+import org.apache.hop.core.row.RowMeta;
+import org.apache.hop.core.row.value.ValueMetaInteger;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import java.util.BitSet;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Each lookup is done for the interval [value; value + 1]
+ */
+@RunWith( Parameterized.class )
+public class BetweenIndexTest extends IndexTestBase<BetweenIndex> {
+
+  @Parameterized.Parameters
+  public static List<Object[]> createSampleData() {
+    return IndexTestBase.createSampleData();
+  }
+
+  public BetweenIndexTest( Long[][] rows ) {
+    super( BetweenIndex.class, rows );
+  }
+
+  @Override
+  void doAssertMatches( BitSet candidates, long lookupValue, long actualValue ) {
+    if ( !( lookupValue <= actualValue && actualValue <= lookupValue + 1 ) ) {
+      fail( String.format( "All found values are expected to be between [%d] and [%d], but got [%d] among %s",
+        lookupValue, lookupValue + 1, actualValue, candidates ) );
+    }
+  }
+
+  private void applyInterval( Long from, Long to ) {
+    RowMeta lookupMeta = new RowMeta();
+    lookupMeta.addValueMeta( new ValueMetaInteger() );
+    lookupMeta.addValueMeta( new ValueMetaInteger() );
+    lookupMeta.addValueMeta( new ValueMetaInteger() );
+    // the interval's bounds are preceded by some other lookup value
+    index.applyRestrictionsTo( context, lookupMeta, new Object[] { -100L, from, to }, 1 );
+  }
+
+  private void testFindsInterval( long lookupValue, int expectedAmount ) {
+    assertFalse( context.isEmpty() );
+    applyInterval( lookupValue, lookupValue + 1 );
+
+    assertFalse( "Expected to find something", context.isEmpty() );
+    BitSet actual = context.getCandidates();
+    assertEquals( actual.toString(), expectedAmount, actual.cardinality() );
+    for ( int i = actual.nextSetBit( 0 ); i >= 0; i = actual.nextSetBit( i + 1 ) ) {
+      doAssertMatches( actual, lookupValue, rows[ i ][ 0 ] );
+    }
+  }
+
+  private void testFindsNothingInInterval( Long from, Long to ) {
+    assertFalse( context.isEmpty() );
+    applyInterval( from, to );
+    assertTrue( "Expected not to find anything between " + from + " and " + to, context.isEmpty() );
+  }
+
+
+  @Override
+  public void lookupFor_MinusOne() {
+    testFindsInterval( -1, 1 );
+  }
+
+  @Override
+  public void lookupFor_Zero() {
+    testFindsInterval( 0, 2 );
+  }
+
+  @Override
+  public void lookupFor_One() {
+    testFindsInterval( 1, 3 );
+  }
+
+  @Override
+  public void lookupFor_Two() {
+    testFindsInterval( 2, 3 );
+  }
+
+  @Override
+  public void lookupFor_Three() {
+    testFindsInterval( 3, 1 );
+  }
+
+  @Override
+  public void lookupFor_Hundred() {
+    testFindsNothingInInterval( 100L, 101L );
+  }
+
+  @Test
+  public void lookupFor_InvertedInterval() {
+    testFindsNothingInInterval( 2L, 1L );
+  }
+
+  @Test
+  public void lookupFor_NullBound() {
+    testFindsNothingInInterval( null, 3L );
+  }
+}
@@ -158,6 +158,21 @@ public class ReadAllCacheTest {
     assertNull( "(1000 <= keys[2] <= 2000) --> none", found );
   }
 
+  @Test
+  public void lookup_Finds_WithIndexAfterBetweenOperator() throws Exception {
+    RowMeta meta = new RowMeta();
+    meta.addValueMeta( new ValueMetaInteger() );
+    meta.addValueMeta( new ValueMetaInteger() );
+    meta.addValueMeta( new ValueMetaString() );
+    meta.addValueMeta( new ValueMetaDate() );
+    meta.addValueMeta( new ValueMetaInteger() );
+
+    ReadAllCache cache = buildCache( "BETWEEN,=,>=,IS NULL" );
+    Object[] found = cache.getRowFromCache(
+      meta, new Object[] { 0L, 1L, "1", new Date( 120 ), null } );
+    assertArrayEquals( "(0 <= keys[0] <= 1) && (keys[1] == '1') && (keys[2] >= 120) --> row 4", data[ 4 ], found );
+  }
+
   private ReadAllCache buildCache( String conditions ) throws Exception {
     StringTokenizer tokenizer = new StringTokenizer( conditions, "," );
     List<String> operators = Arrays.asList( DatabaseLookupMeta.conditionStrings );
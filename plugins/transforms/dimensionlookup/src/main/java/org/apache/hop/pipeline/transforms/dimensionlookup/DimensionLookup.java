@@ -47,6 +47,7 @@ import org.apache.hop.pipeline.transform.BaseTransform;
 import org.apache.hop.pipeline.transform.ITransform;
 import org.apache.hop.pipeline.transform.TransformMeta;
 
+import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.ArrayList;
@@ -282,23 +283,21 @@ public class DimensionLookup extends BaseTransform<DimensionLookupMeta, Dimensio
       sql += " FROM " + data.schemaTable;
       logDetailed( "Pre-loading cache by reading from database with: " + Const.CR + sql + Const.CR );
 
-      List<Object[]> rows = data.db.getRows( sql, -1 );
-      IRowMeta rowMeta = data.db.getReturnRowMeta();
-
-      data.preloadKeyIndexes = new int[ meta.getKeyLookup().length ];
-      for ( int i = 0; i < data.preloadKeyIndexes.length; i++ ) {
-        data.preloadKeyIndexes[ i ] = rowMeta.indexOfValue( meta.getKeyLookup()[ i ] ); // the field in the table
-      }
-      data.preloadFromDateIndex = rowMeta.indexOfValue( meta.getDateFrom() );
-      data.preloadToDateIndex = rowMeta.indexOfValue( meta.getDateTo() );
+      if ( meta.isPreloadingCacheOffHeap() ) {
+        preloadOffHeapCache( sql );
+      } else {
+        List<Object[]> rows = data.db.getRows( sql, -1 );
+        IRowMeta rowMeta = data.db.getReturnRowMeta();
+        determinePreloadIndexes( rowMeta );
 
-      data.preloadCache =
-        new DimensionCache( rowMeta, data.preloadKeyIndexes, data.preloadFromDateIndex, data.preloadToDateIndex );
-      data.preloadCache.setRowCache( rows );
+        data.preloadCache =
+          new DimensionCache( rowMeta, data.preloadKeyIndexes, data.preloadFromDateIndex, data.preloadToDateIndex );
+        data.preloadCache.setRowCache( rows );
 
-      logDetailed( "Sorting the cache rows..." );
-      data.preloadCache.sortRows();
-      logDetailed( "Sorting of cached rows finished." );
+        logDetailed( "Sorting the cache rows..." );
+        data.preloadCache.sortRows();
+        logDetailed( "Sorting of cached rows finished." );
+      }
 
       // Also see what indexes to take to populate the lookup row...
       // We only ever compare indexes and the lookup date in the cache, the rest is not needed...
@@ -321,6 +320,44 @@ public class DimensionLookup extends BaseTransform<DimensionLookupMeta, Dimensio
     }
   }
 
+  /**
+   * Stream the dimension into the off-heap cache, only one row at a time is kept on the heap.
+   */
+  private void preloadOffHeapCache( String sql ) throws HopException {
+    ResultSet resultSet = data.db.openQuery( sql );
+    try {
+      IRowMeta rowMeta = data.db.getReturnRowMeta();
+      determinePreloadIndexes( rowMeta );
+
+      data.offHeapPreloadCache =
+        new OffHeapDimensionCache( rowMeta, data.preloadKeyIndexes, data.preloadFromDateIndex,
+          data.preloadToDateIndex );
+
+      Object[] row = data.db.getRow( resultSet );
+      while ( row != null && !isStopped() ) {
+        data.offHeapPreloadCache.addRow( row );
+        row = data.db.getRow( resultSet );
+      }
+    } finally {
+      data.db.closeQuery( resultSet );
+    }
+
+    logDetailed( "Sorting the cache rows..." );
+    data.offHeapPreloadCache.sortRows();
+    logDetailed( "Sorting of cached rows finished: " + data.offHeapPreloadCache.getSize() + " rows in "
+      + data.offHeapPreloadCache.getBytes() + " bytes off-heap" );
+  }
+
+  private void determinePreloadIndexes( IRowMeta rowMeta ) {
+    data.preloadRowMeta = rowMeta;
+    data.preloadKeyIndexes = new int[ meta.getKeyLookup().length ];
+    for ( int i = 0; i < data.preloadKeyIndexes.length; i++ ) {
+      data.preloadKeyIndexes[ i ] = rowMeta.indexOfValue( meta.getKeyLookup()[ i ] ); // the field in the table
+    }
+    data.preloadFromDateIndex = rowMeta.indexOfValue( meta.getDateFrom() );
+    data.preloadToDateIndex = rowMeta.indexOfValue( meta.getDateTo() );
+  }
+
   private synchronized Object[] lookupValues( IRowMeta rowMeta, Object[] row ) throws HopException {
     Object[] outputRow = new Object[ data.outputRowMeta.size() ];
 
@@ -346,11 +383,11 @@ public class DimensionLookup extends BaseTransform<DimensionLookupMeta, Dimensio
       //
       // Create a row to compare with
       //
-      IRowMeta preloadRowMeta = data.preloadCache.getRowMeta();
+      IRowMeta preloadRowMeta = data.preloadRowMeta;
 
       // In this case it's all the same. (simple)
       //
-      data.returnRowMeta = data.preloadCache.getRowMeta();
+      data.returnRowMeta = data.preloadRowMeta;
       lookupRowMeta = preloadRowMeta;
       lookupRow = new Object[ preloadRowMeta.size() ];
 
@@ -358,7 +395,7 @@ public class DimensionLookup extends BaseTransform<DimensionLookupMeta, Dimensio
       //
       for ( int i = 0; i < data.preloadIndexes.size(); i++ ) {
         int from = data.preloadIndexes.get( i ); // Input row index
-        int to = data.preloadCache.getKeyIndexes()[ i ]; // Lookup row index
+        int to = data.preloadKeyIndexes[ i ]; // Lookup row index
 
         // From data type...
         //
@@ -366,7 +403,7 @@ public class DimensionLookup extends BaseTransform<DimensionLookupMeta, Dimensio
 
         // to date type...
         //
-        IValueMeta toValueMeta = data.preloadCache.getRowMeta().getValueMeta( to );
+        IValueMeta toValueMeta = preloadRowMeta.getValueMeta( to );
 
         // From value:
         //
@@ -387,11 +424,15 @@ public class DimensionLookup extends BaseTransform<DimensionLookupMeta, Dimensio
 
       // Look up the row in the pre-load cache...
       //
-      int index = data.preloadCache.lookupRow( lookupRow );
-      if ( index >= 0 ) {
-        returnRow = data.preloadCache.getRow( index );
+      if ( data.offHeapPreloadCache != null ) {
+        returnRow = data.offHeapPreloadCache.lookupRow( lookupRow );
       } else {
-        returnRow = null; // Nothing found!
+        int index = data.preloadCache.lookupRow( lookupRow );
+        if ( index >= 0 ) {
+          returnRow = data.preloadCache.getRow( index );
+        } else {
+          returnRow = null; // Nothing found!
+        }
       }
 
     } else {
@@ -1732,6 +1773,10 @@ public class DimensionLookup extends BaseTransform<DimensionLookupMeta, Dimensio
         data.db.disconnect();
       }
     }
+    if ( data.offHeapPreloadCache != null ) {
+      data.offHeapPreloadCache.close();
+      data.offHeapPreloadCache = null;
+    }
     super.dispose();
   }
 }
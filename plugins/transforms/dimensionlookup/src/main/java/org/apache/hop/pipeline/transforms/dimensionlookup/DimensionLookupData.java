@@ -87,8 +87,12 @@ public class DimensionLookupData extends BaseTransformData implements ITransform
   public int preloadFromDateIndex;
   public int preloadToDateIndex;
 
+  public IRowMeta preloadRowMeta;
+
   public DimensionCache preloadCache;
 
+  public OffHeapDimensionCache offHeapPreloadCache;
+
   public List<Integer> preloadIndexes;
 
   public List<Integer> lazyList;
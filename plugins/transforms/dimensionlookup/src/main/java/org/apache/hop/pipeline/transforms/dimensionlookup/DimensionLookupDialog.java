@@ -84,6 +84,9 @@ public class DimensionLookupDialog extends BaseTransformDialog implements ITrans
   private Label wlPreloadCache;
   private Button wPreloadCache;
 
+  private Label wlPreloadCacheOffHeap;
+  private Button wPreloadCacheOffHeap;
+
   private Label wlCacheSize;
   private Text wCacheSize;
 
@@ -393,6 +396,30 @@ public class DimensionLookupDialog extends BaseTransformDialog implements ITrans
     fdPreloadCache.right = new FormAttachment( 100, 0 );
     wPreloadCache.setLayoutData( fdPreloadCache );
 
+    // Preload cache off-heap?
+    wlPreloadCacheOffHeap = new Label( comp, SWT.RIGHT );
+    wlPreloadCacheOffHeap.setText( BaseMessages.getString( PKG, "DimensionLookupDialog.PreloadCacheOffHeap.Label" ) );
+    wlPreloadCacheOffHeap.setToolTipText(
+      BaseMessages.getString( PKG, "DimensionLookupDialog.PreloadCacheOffHeap.Tooltip" ) );
+    props.setLook( wlPreloadCacheOffHeap );
+    FormData fdlPreloadCacheOffHeap = new FormData();
+    fdlPreloadCacheOffHeap.left = new FormAttachment( 0, 0 );
+    fdlPreloadCacheOffHeap.right = new FormAttachment( middle, -margin );
+    fdlPreloadCacheOffHeap.top = new FormAttachment( wPreloadCache, margin );
+    wlPreloadCacheOffHeap.setLayoutData( fdlPreloadCacheOffHeap );
+    wPreloadCacheOffHeap = new Button( comp, SWT.CHECK );
+    props.setLook( wPreloadCacheOffHeap );
+    wPreloadCacheOffHeap.addSelectionListener( new SelectionAdapter() {
+      public void widgetSelected( SelectionEvent arg0 ) {
+        input.setChanged();
+      }
+    } );
+    FormData fdPreloadCacheOffHeap = new FormData();
+    fdPreloadCacheOffHeap.left = new FormAttachment( middle, 0 );
+    fdPreloadCacheOffHeap.top = new FormAttachment( wlPreloadCacheOffHeap, 0, SWT.CENTER );
+    fdPreloadCacheOffHeap.right = new FormAttachment( 100, 0 );
+    wPreloadCacheOffHeap.setLayoutData( fdPreloadCacheOffHeap );
+
     // Cache size ...
     wlCacheSize = new Label(comp, SWT.RIGHT );
     wlCacheSize.setText( BaseMessages.getString( PKG, "DimensionLookupDialog.CacheSize.Label" ) );
@@ -400,14 +427,14 @@ public class DimensionLookupDialog extends BaseTransformDialog implements ITrans
     FormData fdlCacheSize = new FormData();
     fdlCacheSize.left = new FormAttachment( 0, 0 );
     fdlCacheSize.right = new FormAttachment( middle, -margin );
-    fdlCacheSize.top = new FormAttachment( wPreloadCache, margin );
+    fdlCacheSize.top = new FormAttachment( wPreloadCacheOffHeap, margin );
     wlCacheSize.setLayoutData( fdlCacheSize );
     wCacheSize = new Text(comp, SWT.SINGLE | SWT.LEFT | SWT.BORDER );
     props.setLook( wCacheSize );
     wCacheSize.addModifyListener( lsMod );
     FormData fdCacheSize = new FormData();
     fdCacheSize.left = new FormAttachment( middle, 0 );
-    fdCacheSize.top = new FormAttachment( wPreloadCache, margin );
+    fdCacheSize.top = new FormAttachment( wPreloadCacheOffHeap, margin );
     fdCacheSize.right = new FormAttachment( 100, 0 );
     wCacheSize.setLayoutData( fdCacheSize );
 
@@ -1106,6 +1133,10 @@ public class DimensionLookupDialog extends BaseTransformDialog implements ITrans
     //
     wlPreloadCache.setEnabled( wUseCache.getSelection() && !wUpdate.getSelection() );
     wPreloadCache.setEnabled( wUseCache.getSelection() && !wUpdate.getSelection() );
+    wlPreloadCacheOffHeap.setEnabled(
+      wUseCache.getSelection() && !wUpdate.getSelection() && wPreloadCache.getSelection() );
+    wPreloadCacheOffHeap.setEnabled(
+      wUseCache.getSelection() && !wUpdate.getSelection() && wPreloadCache.getSelection() );
 
     wlCacheSize.setEnabled( wUseCache.getSelection() && !wPreloadCache.getSelection() );
     wCacheSize.setEnabled( wUseCache.getSelection() && !wPreloadCache.getSelection() );
@@ -1275,6 +1306,7 @@ public class DimensionLookupDialog extends BaseTransformDialog implements ITrans
 
     wUseCache.setSelection( input.getCacheSize() >= 0 );
     wPreloadCache.setSelection( input.isPreloadingCache() );
+    wPreloadCacheOffHeap.setSelection( input.isPreloadingCacheOffHeap() );
     if ( input.getCacheSize() >= 0 ) {
       wCacheSize.setText( "" + input.getCacheSize() );
     }
@@ -1399,6 +1431,7 @@ public class DimensionLookupDialog extends BaseTransformDialog implements ITrans
       in.setCacheSize( -1 );
     }
     in.setPreloadingCache( wPreloadCache.getSelection() );
+    in.setPreloadingCacheOffHeap( wPreloadCacheOffHeap.getSelection() );
     if ( wPreloadCache.getSelection() ) {
       in.setCacheSize( 0 );
     }
@@ -281,6 +281,12 @@ public class DimensionLookupMeta extends BaseTransformMeta implements ITransform
   @Injection( name = "PRELOAD_CACHE" )
   private boolean preloadingCache;
 
+  /**
+   * Keep the pre-loaded cache in memory-mapped temporary files outside of the Java heap
+   */
+  @Injection( name = "PRELOAD_CACHE_OFF_HEAP" )
+  private boolean preloadingCacheOffHeap;
+
   public DimensionLookupMeta() {
     super(); // allocate BaseTransformMeta
   }
@@ -768,6 +774,7 @@ public class DimensionLookupMeta extends BaseTransformMeta implements ITransform
 
     cacheSize = 5000;
     preloadingCache = false;
+    preloadingCacheOffHeap = false;
   }
 
   @Override
@@ -907,6 +914,7 @@ public class DimensionLookupMeta extends BaseTransformMeta implements ITransform
 
     retval.append( "      " ).append( XmlHandler.addTagValue( "cache_size", cacheSize ) );
     retval.append( "      " ).append( XmlHandler.addTagValue( "preload_cache", preloadingCache ) );
+    retval.append( "      " ).append( XmlHandler.addTagValue( "preload_cache_off_heap", preloadingCacheOffHeap ) );
 
     retval.append( "      " ).append( XmlHandler.addTagValue( "use_start_date_alternative",
       usingStartDateAlternative ) );
@@ -987,6 +995,8 @@ public class DimensionLookupMeta extends BaseTransformMeta implements ITransform
 
       cacheSize = Const.toInt( XmlHandler.getTagValue( transformNode, "cache_size" ), -1 );
       preloadingCache = "Y".equalsIgnoreCase( XmlHandler.getTagValue( transformNode, "preload_cache" ) );
+      preloadingCacheOffHeap =
+        "Y".equalsIgnoreCase( XmlHandler.getTagValue( transformNode, "preload_cache_off_heap" ) );
       useBatchUpdate = "Y".equalsIgnoreCase( XmlHandler.getTagValue( transformNode, "useBatch" ) );
 
       usingStartDateAlternative =
@@ -1794,6 +1804,20 @@ public class DimensionLookupMeta extends BaseTransformMeta implements ITransform
     this.preloadingCache = preloadingCache;
   }
 
+  /**
+   * @return true if the pre-loaded cache is kept in memory-mapped files outside of the Java heap
+   */
+  public boolean isPreloadingCacheOffHeap() {
+    return preloadingCacheOffHeap;
+  }
+
+  /**
+   * @param preloadingCacheOffHeap true to keep the pre-loaded cache in memory-mapped files outside of the Java heap
+   */
+  public void setPreloadingCacheOffHeap( boolean preloadingCacheOffHeap ) {
+    this.preloadingCacheOffHeap = preloadingCacheOffHeap;
+  }
+
   /**
    * @return the useBatchUpdate
    */
@@ -0,0 +1,447 @@
+/*! ******************************************************************************
+ *
+ * Hop : The Hop Orchestration Platform
+ *
+ * Copyright (C) 2002-2017 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+
+package org.apache.hop.pipeline.transforms.dimensionlookup;
+
+import org.apache.hop.core.exception.HopException;
+import org.apache.hop.core.exception.HopFileException;
+import org.apache.hop.core.row.IRowMeta;
+import org.apache.hop.core.row.IValueMeta;
+import org.apache.hop.core.row.RowMeta;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.math.BigDecimal;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * A pre-load cache for the dimension lookup which keeps the dimension outside of the Java heap. Like
+ * {@link DimensionCache} it holds all versions of every dimension entry, but instead of a sorted list of rows it
+ * keeps:
+ * <ul>
+ * <li>a column of fixed size records: the hash of the natural key, the start and end of the date range in
+ * milliseconds and the position of the row data,</li>
+ * <li>the serialized natural key and row data.</li>
+ * </ul>
+ * Both live in memory-mapped temporary files so the operating system pages them in and out as needed. The records
+ * are sorted on key hash and start date and searched with primitive comparisons. Only the row that is found is
+ * de-serialized on the heap.
+ * <p>
+ * Natural keys are compared on their serialized form, after conversion to the data types of the dimension table.
+ */
+public class OffHeapDimensionCache implements Closeable {
+
+  private static final int RECORD_SIZE = 32;
+  private static final int HASH_OFFSET = 0;
+  private static final int FROM_OFFSET = 8;
+  private static final int TO_OFFSET = 16;
+  private static final int DATA_OFFSET = 24;
+
+  private static final int DEFAULT_CHUNK_SHIFT = 27; // 128MB per mapped chunk
+
+  private final IRowMeta rowMeta;
+  private final int[] keyIndexes;
+  private final int fromDateIndex;
+  private final int toDateIndex;
+  private final IRowMeta keyMeta;
+
+  private final MappedArea records;
+  private final MappedArea data;
+  private long size;
+  private long dataSize;
+
+  /**
+   * Create a new off-heap dimension cache
+   *
+   * @param rowMeta       the description of the rows to store
+   * @param keyIndexes    the indexes of the natural key (in that order)
+   * @param fromDateIndex the field index where the start of the date range can be found
+   * @param toDateIndex   the field index where the end of the date range can be found
+   * @throws HopFileException in case the temporary files can't be created
+   */
+  public OffHeapDimensionCache( IRowMeta rowMeta, int[] keyIndexes, int fromDateIndex, int toDateIndex )
+    throws HopFileException {
+    this( rowMeta, keyIndexes, fromDateIndex, toDateIndex, DEFAULT_CHUNK_SHIFT );
+  }
+
+  OffHeapDimensionCache( IRowMeta rowMeta, int[] keyIndexes, int fromDateIndex, int toDateIndex, int chunkShift )
+    throws HopFileException {
+    this.rowMeta = rowMeta;
+    this.keyIndexes = keyIndexes;
+    this.fromDateIndex = fromDateIndex;
+    this.toDateIndex = toDateIndex;
+
+    keyMeta = new RowMeta();
+    for ( int keyIndex : keyIndexes ) {
+      IValueMeta valueMeta = rowMeta.getValueMeta( keyIndex ).clone();
+      valueMeta.setStorageType( IValueMeta.STORAGE_TYPE_NORMAL );
+      keyMeta.addValueMeta( valueMeta );
+    }
+
+    records = new MappedArea( "records", chunkShift );
+    try {
+      data = new MappedArea( "data", chunkShift );
+    } catch ( HopFileException e ) {
+      records.close();
+      throw e;
+    }
+  }
+
+  /**
+   * Add a row as read from the dimension table. Call {@link #sortRows()} when all rows are added.
+   *
+   * @param row the row to add
+   * @throws HopException in case the row can't be stored
+   */
+  public void addRow( Object[] row ) throws HopException {
+    byte[] key = getKey( row );
+    byte[] rowData = RowMeta.extractData( rowMeta, row );
+
+    // The key and the row data are stored together, never across 2 chunks
+    //
+    int length = 8 + key.length + rowData.length;
+    long position = data.reserve( dataSize, length );
+    data.putInt( position, key.length );
+    data.put( position + 4, key );
+    data.putInt( position + 4 + key.length, rowData.length );
+    data.put( position + 8 + key.length, rowData );
+    dataSize = position + length;
+
+    long record = size * RECORD_SIZE;
+    records.reserve( record, RECORD_SIZE );
+    records.putLong( record + HASH_OFFSET, hash( key ) );
+    records.putLong( record + FROM_OFFSET, getTime( row, fromDateIndex, Long.MIN_VALUE ) );
+    records.putLong( record + TO_OFFSET, getTime( row, toDateIndex, Long.MAX_VALUE ) );
+    records.putLong( record + DATA_OFFSET, position );
+    size++;
+  }
+
+  /**
+   * Sort the records on key hash and start of the date range.
+   */
+  public void sortRows() {
+    sort( 0, size - 1 );
+  }
+
+  /**
+   * Looks up a row in the (sorted) cache.
+   *
+   * @param lookupRowData The data of the lookup row. Make sure that on the index of the from date, you put the lookup
+   *                      date.
+   * @return the dimension row which has the natural key and of which the date range contains the lookup date or null
+   * if there is no such row
+   * @throws HopException in case there are conversion errors during the lookup of the row
+   */
+  public Object[] lookupRow( Object[] lookupRowData ) throws HopException {
+    byte[] key = getKey( lookupRowData );
+    long hash = hash( key );
+    long lookupTime = getTime( lookupRowData, fromDateIndex, Long.MIN_VALUE );
+
+    // Find the first record with this hash
+    //
+    long low = 0;
+    long high = size;
+    while ( low < high ) {
+      long middle = ( low + high ) >>> 1;
+      if ( getLong( middle, HASH_OFFSET ) < hash ) {
+        low = middle + 1;
+      } else {
+        high = middle;
+      }
+    }
+
+    for ( long index = low; index < size && getLong( index, HASH_OFFSET ) == hash; index++ ) {
+      if ( getLong( index, FROM_OFFSET ) <= lookupTime && getLong( index, TO_OFFSET ) > lookupTime ) {
+        long position = getLong( index, DATA_OFFSET );
+        if ( data.equals( position + 4, data.getInt( position ), key ) ) {
+          int rowPosition = 4 + key.length;
+          byte[] rowData = data.get( position + rowPosition + 4, data.getInt( position + rowPosition ) );
+          return RowMeta.getRow( rowMeta, rowData );
+        }
+      }
+    }
+    return null;
+  }
+
+  /**
+   * @return the number of rows in the cache
+   */
+  public long getSize() {
+    return size;
+  }
+
+  /**
+   * @return the number of bytes taken by the cache in the temporary files
+   */
+  public long getBytes() {
+    return size * RECORD_SIZE + dataSize;
+  }
+
+  /**
+   * @return the description of the rows in the cache
+   */
+  public IRowMeta getRowMeta() {
+    return rowMeta;
+  }
+
+  /**
+   * @return the indexes of the natural key
+   */
+  public int[] getKeyIndexes() {
+    return keyIndexes;
+  }
+
+  /**
+   * Release the mapped memory and delete the temporary files.
+   */
+  @Override
+  public void close() {
+    records.close();
+    data.close();
+  }
+
+  private byte[] getKey( Object[] row ) throws HopException {
+    Object[] key = new Object[ keyIndexes.length ];
+    for ( int i = 0; i < keyIndexes.length; i++ ) {
+      Object value = rowMeta.getValueMeta( keyIndexes[ i ] ).convertToNormalStorageType( row[ keyIndexes[ i ] ] );
+      if ( value instanceof BigDecimal ) {
+        // 1.0 and 1.00 are the same key
+        //
+        value = ( (BigDecimal) value ).stripTrailingZeros();
+      }
+      key[ i ] = value;
+    }
+    return RowMeta.extractData( keyMeta, key );
+  }
+
+  private long getTime( Object[] row, int index, long nullValue ) throws HopException {
+    // The lookup date is a plain java.util.Date, even for timestamp columns
+    //
+    Object value = row[ index ];
+    Date date = value instanceof Date ? (Date) value : rowMeta.getDate( row, index );
+    return date == null ? nullValue : date.getTime();
+  }
+
+  private long getLong( long index, int offset ) {
+    return records.getLong( index * RECORD_SIZE + offset );
+  }
+
+  private int compare( long index1, long index2 ) {
+    int cmp = Long.compare( getLong( index1, HASH_OFFSET ), getLong( index2, HASH_OFFSET ) );
+    if ( cmp != 0 ) {
+      return cmp;
+    }
+    return Long.compare( getLong( index1, FROM_OFFSET ), getLong( index2, FROM_OFFSET ) );
+  }
+
+  private void swap( long index1, long index2 ) {
+    for ( int offset = 0; offset < RECORD_SIZE; offset += 8 ) {
+      long value = getLong( index1, offset );
+      records.putLong( index1 * RECORD_SIZE + offset, getLong( index2, offset ) );
+      records.putLong( index2 * RECORD_SIZE + offset, value );
+    }
+  }
+
+  /**
+   * In place quick sort of the records. The smaller partition is sorted recursively, the larger one in the loop which
+   * keeps the stack depth logarithmic.
+   */
+  private void sort( long low, long high ) {
+    while ( high - low > 16 ) {
+      long middle = ( low + high ) >>> 1;
+
+      // median of three as pivot, moved to the end of the range
+      //
+      if ( compare( middle, low ) < 0 ) {
+        swap( middle, low );
+      }
+      if ( compare( high, low ) < 0 ) {
+        swap( high, low );
+      }
+      if ( compare( middle, high ) < 0 ) {
+        swap( middle, high );
+      }
+
+      long store = low;
+      for ( long i = low; i < high; i++ ) {
+        if ( compare( i, high ) < 0 ) {
+          swap( i, store++ );
+        }
+      }
+      swap( store, high );
+
+      if ( store - low < high - store ) {
+        sort( low, store - 1 );
+        low = store + 1;
+      } else {
+        sort( store + 1, high );
+        high = store - 1;
+      }
+    }
+
+    // insertion sort for the small ranges
+    //
+    for ( long i = low + 1; i <= high; i++ ) {
+      for ( long j = i; j > low && compare( j, j - 1 ) < 0; j-- ) {
+        swap( j, j - 1 );
+      }
+    }
+  }
+
+  /**
+   * A 64 bit FNV-1a hash with a final mix so that the natural keys spread over the whole range of longs.
+   */
+  static long hash( byte[] key ) {
+    long hash = 0xcbf29ce484222325L;
+    for ( byte b : key ) {
+      hash ^= b & 0xff;
+      hash *= 0x100000001b3L;
+    }
+    hash ^= hash >>> 33;
+    hash *= 0xff51afd7ed558ccdL;
+    hash ^= hash >>> 33;
+    return hash;
+  }
+
+  /**
+   * A growing temporary file which is mapped in memory in chunks of a fixed size.
+   */
+  private static class MappedArea {
+    private final int chunkShift;
+    private final long chunkSize;
+    private final File file;
+    private final RandomAccessFile randomAccessFile;
+    private final List<MappedByteBuffer> chunks = new ArrayList<>();
+
+    MappedArea( String name, int chunkShift ) throws HopFileException {
+      this.chunkShift = chunkShift;
+      this.chunkSize = 1L << chunkShift;
+      try {
+        file = File.createTempFile( "hop-dimension-" + name + "-", ".tmp" );
+        file.deleteOnExit();
+        randomAccessFile = new RandomAccessFile( file, "rw" );
+      } catch ( IOException e ) {
+        throw new HopFileException( "Unable to create a temporary file for the dimension cache", e );
+      }
+    }
+
+    /**
+     * @return the position at which the given number of bytes can be written within a single chunk, starting from
+     * the given position or from the start of the next chunk
+     */
+    long reserve( long position, int length ) throws HopFileException {
+      if ( length > chunkSize ) {
+        throw new HopFileException( "A row of " + length + " bytes doesn't fit in the dimension cache" );
+      }
+      if ( ( position & ( chunkSize - 1 ) ) + length > chunkSize ) {
+        position = ( ( position >>> chunkShift ) + 1 ) << chunkShift;
+      }
+      int lastChunk = (int) ( ( position + length - 1 ) >>> chunkShift );
+      try {
+        while ( chunks.size() <= lastChunk ) {
+          chunks.add( randomAccessFile.getChannel().map( FileChannel.MapMode.READ_WRITE, chunks.size() * chunkSize,
+            chunkSize ) );
+        }
+      } catch ( IOException e ) {
+        throw new HopFileException( "Unable to map the dimension cache file " + file + " in memory", e );
+      }
+      return position;
+    }
+
+    private MappedByteBuffer chunk( long position ) {
+      return chunks.get( (int) ( position >>> chunkShift ) );
+    }
+
+    private int offset( long position ) {
+      return (int) ( position & ( chunkSize - 1 ) );
+    }
+
+    long getLong( long position ) {
+      return chunk( position ).getLong( offset( position ) );
+    }
+
+    void putLong( long position, long value ) {
+      chunk( position ).putLong( offset( position ), value );
+    }
+
+    int getInt( long position ) {
+      return chunk( position ).getInt( offset( position ) );
+    }
+
+    void putInt( long position, int value ) {
+      chunk( position ).putInt( offset( position ), value );
+    }
+
+    void put( long position, byte[] bytes ) {
+      MappedByteBuffer chunk = chunk( position );
+      int offset = offset( position );
+      for ( int i = 0; i < bytes.length; i++ ) {
+        chunk.put( offset + i, bytes[ i ] );
+      }
+    }
+
+    byte[] get( long position, int length ) {
+      MappedByteBuffer chunk = chunk( position );
+      int offset = offset( position );
+      byte[] bytes = new byte[ length ];
+      for ( int i = 0; i < length; i++ ) {
+        bytes[ i ] = chunk.get( offset + i );
+      }
+      return bytes;
+    }
+
+    boolean equals( long position, int length, byte[] bytes ) {
+      if ( length != bytes.length ) {
+        return false;
+      }
+      MappedByteBuffer chunk = chunk( position );
+      int offset = offset( position );
+      for ( int i = 0; i < length; i++ ) {
+        if ( chunk.get( offset + i ) != bytes[ i ] ) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    /**
+     * The mapped chunks are released by the garbage collector. The file is deleted right away which is fine for the
+     * existing mappings on Unix, on Windows the delete on exit will take care of it.
+     */
+    void close() {
+      chunks.clear();
+      try {
+        randomAccessFile.close();
+      } catch ( IOException e ) {
+        // Nothing to be done about it, the file is deleted on exit
+      }
+      file.delete();
+    }
+  }
+}
@@ -64,6 +64,7 @@ public class DimensionLookupMetaInjectionTest extends BaseMetadataInjectionTest<
     check( "USE_ALTERNATIVE_START_DATE", () -> meta.isUsingStartDateAlternative() );
     check( "ALTERNATIVE_START_COLUMN", () -> meta.getStartDateFieldName() );
     check( "PRELOAD_CACHE", () -> meta.isPreloadingCache() );
+    check( "PRELOAD_CACHE_OFF_HEAP", () -> meta.isPreloadingCacheOffHeap() );
     check( "CONNECTION_NAME", () -> "My Connection", "My Connection" );
 
     IValueMeta mftt = new ValueMetaString( "f" );
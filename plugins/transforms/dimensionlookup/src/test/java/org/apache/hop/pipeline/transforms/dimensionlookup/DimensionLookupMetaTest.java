@@ -86,8 +86,8 @@ public class DimensionLookupMetaTest implements IInitializer<ITransformMeta> {
     List<String> attributes =
       Arrays.asList( "schemaName", "tableName", "update", "dateField", "dateFrom", "dateTo", "keyField", "keyRename",
         "autoIncrement", "versionField", "commitSize", "useBatchUpdate", "minYear", "maxYear", "techKeyCreation",
-        "cacheSize", "usingStartDateAlternative", "startDateAlternative", "startDateFieldName", "preloadingCache", "keyStream",
-        "keyLookup", "fieldStream", "fieldLookup", "fieldUpdate", "databaseMeta", "sequenceName" );
+        "cacheSize", "usingStartDateAlternative", "startDateAlternative", "startDateFieldName", "preloadingCache",
+        "preloadingCacheOffHeap", "keyStream", "keyLookup", "fieldStream", "fieldLookup", "fieldUpdate", "databaseMeta", "sequenceName" );
 
     Map<String, String> getterMap = new HashMap<String, String>() {
       {
@@ -0,0 +1,136 @@
+/*! ******************************************************************************
+ *
+ * Hop : The Hop Orchestration Platform
+ *
+ * Copyright (C) 2002-2017 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+
+package org.apache.hop.pipeline.transforms.dimensionlookup;
+
+import org.apache.hop.core.row.IRowMeta;
+import org.apache.hop.core.row.RowMeta;
+import org.apache.hop.core.row.value.ValueMetaInteger;
+import org.apache.hop.core.row.value.ValueMetaString;
+import org.apache.hop.core.row.value.ValueMetaTimestamp;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.sql.Timestamp;
+import java.util.Date;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class OffHeapDimensionCacheTest {
+
+  private static final long T0 = 1425300000000L;
+
+  private IRowMeta rowMeta;
+  private OffHeapDimensionCache cache;
+
+  @Before
+  public void setUp() throws Exception {
+    // tk, natural key, attribute, from, to
+    //
+    rowMeta = new RowMeta();
+    rowMeta.addValueMeta( new ValueMetaInteger( "TK" ) );
+    rowMeta.addValueMeta( new ValueMetaString( "CODE" ) );
+    rowMeta.addValueMeta( new ValueMetaString( "NAME" ) );
+    rowMeta.addValueMeta( new ValueMetaTimestamp( "DATE_FROM" ) );
+    rowMeta.addValueMeta( new ValueMetaTimestamp( "DATE_TO" ) );
+
+    // Small chunks to make sure rows are spread over a number of mapped chunks
+    //
+    cache = new OffHeapDimensionCache( rowMeta, new int[] { 1 }, 3, 4, 10 );
+  }
+
+  @After
+  public void tearDown() {
+    cache.close();
+  }
+
+  @Test
+  public void testLookupVersions() throws Exception {
+    // 3 versions per key, open ended on both sides, added in reverse order
+    //
+    for ( int key = 999; key >= 0; key-- ) {
+      cache.addRow( row( key * 3L + 2, "C" + key, date( 2 ), null ) );
+      cache.addRow( row( key * 3L + 1, "C" + key, date( 1 ), date( 2 ) ) );
+      cache.addRow( row( key * 3L, "C" + key, null, date( 1 ) ) );
+    }
+    cache.sortRows();
+    assertEquals( 3000, cache.getSize() );
+
+    for ( int key = 0; key < 1000; key++ ) {
+      assertEquals( key * 3L, lookup( "C" + key, date( 0 ) )[ 0 ] );
+      assertEquals( key * 3L, lookup( "C" + key, null )[ 0 ] );
+      assertEquals( key * 3L + 1, lookup( "C" + key, date( 1 ) )[ 0 ] );
+      assertEquals( key * 3L + 2, lookup( "C" + key, date( 2 ) )[ 0 ] );
+      assertEquals( key * 3L + 2, lookup( "C" + key, date( 100 ) )[ 0 ] );
+    }
+
+    Object[] found = lookup( "C42", date( 1 ) );
+    assertEquals( "name of C42", found[ 2 ] );
+    assertEquals( date( 1 ), found[ 3 ] );
+    assertEquals( date( 2 ), found[ 4 ] );
+
+    assertNull( lookup( "C1000", date( 1 ) ) );
+
+    // The lookup date isn't necessarily a timestamp
+    //
+    assertEquals( 43L * 3 + 1, lookup( "C43", new Date( T0 + 3600000L ) )[ 0 ] );
+  }
+
+  @Test
+  public void testLookupOutsideDateRange() throws Exception {
+    cache.addRow( row( 1L, "A", date( 1 ), date( 2 ) ) );
+    cache.addRow( row( 2L, "A", date( 3 ), date( 4 ) ) );
+    cache.sortRows();
+
+    assertNull( lookup( "A", date( 0 ) ) );
+    assertEquals( 1L, lookup( "A", date( 1 ) )[ 0 ] );
+    assertNull( lookup( "A", date( 2 ) ) );
+    assertEquals( 2L, lookup( "A", date( 3 ) )[ 0 ] );
+    assertNull( lookup( "A", date( 4 ) ) );
+    assertNull( lookup( "B", date( 3 ) ) );
+  }
+
+  @Test
+  public void testEmptyCache() throws Exception {
+    cache.sortRows();
+    assertEquals( 0, cache.getSize() );
+    assertNull( lookup( "A", date( 0 ) ) );
+  }
+
+  private Object[] lookup( String code, Date date ) throws Exception {
+    Object[] lookupRow = new Object[ rowMeta.size() ];
+    lookupRow[ 1 ] = code;
+    lookupRow[ 3 ] = date;
+    return cache.lookupRow( lookupRow );
+  }
+
+  private static Object[] row( long tk, String code, Date from, Date to ) {
+    return new Object[] { tk, code, "name of " + code, from, to };
+  }
+
+  private static Date date( int hours ) {
+    return new Timestamp( T0 + 3600000L * hours );
+  }
+}
@@ -68,10 +68,8 @@ public class FilterRows extends BaseTransform<FilterRowsMeta, FilterRowsData> im
 
   public boolean processRow() throws HopException {
 
-    boolean keep;
-
-    Object[] r = getRow(); // Get next usable row from input rowset(s)!
-    if ( r == null ) { // no more input to be expected...
+    Object[][] rows = getRows( Const.ROWS_IN_BATCH ); // Get next usable rows from input rowset(s)!
+    if ( rows == null ) { // no more input to be expected...
 
       setOutputDone();
       return false;
@@ -112,35 +110,54 @@ public class FilterRows extends BaseTransform<FilterRowsMeta, FilterRowsData> im
       }
     }
 
-    keep = keepRow( getInputRowMeta(), r ); // Keep this row?
-    if ( !data.chosesTargetTransforms ) {
-      if ( keep ) {
-        putRow( data.outputRowMeta, r ); // copy row to output rowset(s);
+    Object[][] keptRows = data.chosesTargetTransforms ? null : new Object[ rows.length ][];
+    int nrKeptRows = 0;
+    long linesRead = getLinesRead() - rows.length;
+
+    for ( Object[] r : rows ) {
+      linesRead++;
+      boolean keep; // Keep this row?
+      try {
+        keep = keepRow( getInputRowMeta(), r );
+      } catch ( HopException e ) {
+        // Pass on the rows of this batch kept before the failing one, like row by row processing did
+        //
+        putRows( data.outputRowMeta, keptRows, nrKeptRows );
+        throw e;
       }
-    } else {
-      if ( keep ) {
-        if ( data.trueRowSet != null ) {
-          if ( log.isRowLevel() ) {
-            logRowlevel( "Sending row to true  :" + data.trueTransformName + " : " + getInputRowMeta().getString( r ) );
-          }
-          putRowTo( data.outputRowMeta, r, data.trueRowSet );
+      if ( !data.chosesTargetTransforms ) {
+        if ( keep ) {
+          keptRows[ nrKeptRows++ ] = r; // copy row to output rowset(s) with the rest of the batch
         }
       } else {
-        if ( data.falseRowSet != null ) {
-          if ( log.isRowLevel() ) {
-            logRowlevel( "Sending row to false :" + data.falseTransformName + " : " + getInputRowMeta().getString( r ) );
+        if ( keep ) {
+          if ( data.trueRowSet != null ) {
+            if ( log.isRowLevel() ) {
+              logRowlevel( "Sending row to true  :" + data.trueTransformName + " : " + getInputRowMeta().getString( r ) );
+            }
+            putRowTo( data.outputRowMeta, r, data.trueRowSet );
+          }
+        } else {
+          if ( data.falseRowSet != null ) {
+            if ( log.isRowLevel() ) {
+              logRowlevel( "Sending row to false :" + data.falseTransformName + " : " + getInputRowMeta().getString( r ) );
+            }
+            putRowTo( data.outputRowMeta, r, data.falseRowSet );
           }
-          putRowTo( data.outputRowMeta, r, data.falseRowSet );
         }
       }
-    }
 
-    if ( checkFeedback( getLinesRead() ) ) {
-      if ( log.isBasic() ) {
-        logBasic( BaseMessages.getString( PKG, "FilterRows.Log.LineNumber" ) + getLinesRead() );
+      if ( checkFeedback( linesRead ) ) {
+        if ( log.isBasic() ) {
+          logBasic( BaseMessages.getString( PKG, "FilterRows.Log.LineNumber" ) + linesRead );
+        }
       }
     }
 
+    if ( !data.chosesTargetTransforms ) {
+      putRows( data.outputRowMeta, keptRows, nrKeptRows );
+    }
+
     return true;
   }
 
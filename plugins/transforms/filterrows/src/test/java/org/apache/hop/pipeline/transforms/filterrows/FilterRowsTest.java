@@ -0,0 +1,115 @@
+/*! ******************************************************************************
+ *
+ * Hop : The Hop Orchestration Platform
+ *
+ * http://www.project-hop.org
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+package org.apache.hop.pipeline.transforms.filterrows;
+
+import org.apache.hop.core.Condition;
+import org.apache.hop.core.HopEnvironment;
+import org.apache.hop.core.IRowSet;
+import org.apache.hop.core.QueueRowSet;
+import org.apache.hop.core.exception.HopException;
+import org.apache.hop.core.exception.HopTransformException;
+import org.apache.hop.core.logging.ILoggingObject;
+import org.apache.hop.core.row.IRowMeta;
+import org.apache.hop.core.row.RowMeta;
+import org.apache.hop.core.row.value.ValueMetaInteger;
+import org.apache.hop.junit.rules.RestoreHopEngineEnvironment;
+import org.apache.hop.pipeline.transform.RowAdapter;
+import org.apache.hop.pipeline.transforms.mock.TransformMockHelper;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class FilterRowsTest {
+  @ClassRule public static RestoreHopEngineEnvironment env = new RestoreHopEngineEnvironment();
+
+  private TransformMockHelper<FilterRowsMeta, FilterRowsData> helper;
+
+  @BeforeClass
+  public static void initHop() throws Exception {
+    HopEnvironment.init();
+  }
+
+  @Before
+  public void setUp() {
+    helper = new TransformMockHelper<>( "FilterRows", FilterRowsMeta.class, FilterRowsData.class );
+    when( helper.logChannelFactory.create( any(), any( ILoggingObject.class ) ) ).thenReturn(
+      helper.logChannelInterface );
+    when( helper.pipeline.isRunning() ).thenReturn( true );
+  }
+
+  @After
+  public void cleanUp() {
+    helper.cleanUp();
+  }
+
+  @Test
+  public void testConditionErrorKeepsEarlierRowsOfBatch() throws Exception {
+    RowMeta inputRowMeta = new RowMeta();
+    inputRowMeta.addValueMeta( new ValueMetaInteger( "x" ) );
+
+    IRowSet inputRowSet = new QueueRowSet();
+    for ( long i = 1; i <= 3; i++ ) {
+      inputRowSet.putRow( inputRowMeta, new Object[] { i } );
+    }
+    inputRowSet.setDone();
+
+    Condition condition = mock( Condition.class );
+    when( condition.evaluate( any( IRowMeta.class ), any( Object[].class ) ) )
+      .thenReturn( true )
+      .thenThrow( new RuntimeException( "evaluation failed" ) );
+    when( helper.iTransformMeta.getCondition() ).thenReturn( condition );
+
+    FilterRows filterRows =
+      new FilterRows( helper.transformMeta, helper.iTransformMeta, new FilterRowsData(), 0, helper.pipelineMeta,
+        helper.pipeline );
+    filterRows.addRowSetToInputRowSets( inputRowSet );
+    filterRows.setInputRowMeta( inputRowMeta );
+
+    final List<Object[]> written = new ArrayList<>();
+    filterRows.addRowListener( new RowAdapter() {
+      @Override
+      public void rowWrittenEvent( IRowMeta rowMeta, Object[] row ) throws HopTransformException {
+        written.add( row );
+      }
+    } );
+
+    try {
+      filterRows.processRow();
+      fail( "The condition error is expected to stop the transform" );
+    } catch ( HopException e ) {
+      // expected
+    }
+    assertEquals( 1, written.size() );
+    assertEquals( 1L, written.get( 0 )[ 0 ] );
+  }
+}
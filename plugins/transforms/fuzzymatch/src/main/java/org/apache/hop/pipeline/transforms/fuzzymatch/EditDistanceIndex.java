@@ -0,0 +1,167 @@
+/*! ******************************************************************************
+ *
+ * Hop : The Hop Orchestration Platform
+ *
+ * http://www.project-hop.org
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+
+package org.apache.hop.pipeline.transforms.fuzzymatch;
+
+import org.apache.commons.lang.StringUtils;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * A BK-tree over the lookup values using the Levenshtein distance. Every node holds a value and the rows with that
+ * value, the children are keyed on their distance to the node. The triangle inequality limits a search to the
+ * children that can hold values within the distance range.
+ */
+public class EditDistanceIndex extends FuzzyMatchIndex {
+
+  private final boolean caseSensitive;
+  private final int minimalDistance;
+  private final int maximalDistance;
+
+  private Node root;
+
+  /**
+   * @param look the cached rows
+   * @param caseSensitive false to compare the lower case values
+   * @param minimalDistance the smallest Levenshtein distance of a candidate
+   * @param maximalDistance the largest Levenshtein distance of a candidate
+   */
+  public EditDistanceIndex( Collection<Object[]> look, boolean caseSensitive, int minimalDistance, int maximalDistance ) {
+    super( look );
+    this.caseSensitive = caseSensitive;
+    this.minimalDistance = minimalDistance;
+    this.maximalDistance = maximalDistance;
+
+    for ( int rowNr = 0; rowNr < rows.length; rowNr++ ) {
+      add( getKey( (String) rows[ rowNr ][ 0 ] ), rowNr );
+    }
+  }
+
+  private String getKey( String value ) {
+    return caseSensitive ? value : value.toLowerCase();
+  }
+
+  private void add( String key, int rowNr ) {
+    if ( root == null ) {
+      root = new Node( key, rowNr );
+      return;
+    }
+    Node node = root;
+    while ( true ) {
+      int distance = StringUtils.getLevenshteinDistance( key, node.key );
+      if ( distance == 0 ) {
+        node.addRowNr( rowNr );
+        return;
+      }
+      Node child = node.getChild( distance );
+      if ( child == null ) {
+        node.addChild( distance, new Node( key, rowNr ) );
+        return;
+      }
+      node = child;
+    }
+  }
+
+  @Override
+  public List<Object[]> getCandidates( String lookupvalue ) {
+    if ( root == null || maximalDistance < 0 ) {
+      return Collections.emptyList();
+    }
+    String key = getKey( lookupvalue );
+
+    int[] rowNrs = new int[ 16 ];
+    int nrRowNrs = 0;
+
+    Deque<Node> nodes = new ArrayDeque<>();
+    nodes.push( root );
+    while ( !nodes.isEmpty() ) {
+      Node node = nodes.pop();
+      int distance = StringUtils.getLevenshteinDistance( key, node.key );
+      if ( minimalDistance <= distance && distance <= maximalDistance ) {
+        for ( int i = 0; i < node.nrRowNrs; i++ ) {
+          rowNrs = append( rowNrs, nrRowNrs++, node.rowNrs[ i ] );
+        }
+      }
+
+      // The values below a child at distance d are between |distance-d| and distance+d away from the key
+      //
+      long from = Math.max( (long) distance - maximalDistance, (long) minimalDistance - distance );
+      long to = (long) distance + maximalDistance;
+      for ( int i = 0; i < node.nrChildren; i++ ) {
+        int childDistance = node.childDistances[ i ];
+        if ( from <= childDistance && childDistance <= to ) {
+          nodes.push( node.children[ i ] );
+        }
+      }
+    }
+
+    return getRows( rowNrs, nrRowNrs );
+  }
+
+  private static class Node {
+    private final String key;
+
+    private int[] rowNrs;
+    private int nrRowNrs;
+
+    private int[] childDistances;
+    private Node[] children;
+    private int nrChildren;
+
+    private Node( String key, int rowNr ) {
+      this.key = key;
+      this.rowNrs = new int[] { rowNr };
+      this.nrRowNrs = 1;
+    }
+
+    private void addRowNr( int rowNr ) {
+      rowNrs = append( rowNrs, nrRowNrs++, rowNr );
+    }
+
+    private Node getChild( int distance ) {
+      for ( int i = 0; i < nrChildren; i++ ) {
+        if ( childDistances[ i ] == distance ) {
+          return children[ i ];
+        }
+      }
+      return null;
+    }
+
+    private void addChild( int distance, Node child ) {
+      if ( children == null ) {
+        childDistances = new int[ 4 ];
+        children = new Node[ 4 ];
+      } else if ( nrChildren == children.length ) {
+        childDistances = Arrays.copyOf( childDistances, nrChildren * 2 );
+        children = Arrays.copyOf( children, nrChildren * 2 );
+      }
+      childDistances[ nrChildren ] = distance;
+      children[ nrChildren++ ] = child;
+    }
+  }
+}
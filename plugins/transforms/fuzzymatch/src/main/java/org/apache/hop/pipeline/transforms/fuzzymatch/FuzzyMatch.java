@@ -49,7 +49,14 @@ import org.apache.hop.pipeline.transform.ITransformData;
 import org.apache.hop.pipeline.transform.ITransformMeta;
 import org.apache.hop.pipeline.transform.TransformMeta;
 
+import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Performs a fuzzy match for each main stream field row An approximative match is done in a lookup stream
@@ -60,6 +67,11 @@ import java.util.Iterator;
 public class FuzzyMatch extends BaseTransform<FuzzyMatchMeta, FuzzyMatchData> implements ITransform<FuzzyMatchMeta, FuzzyMatchData> {
   private static final Class<?> PKG = FuzzyMatchMeta.class; // for i18n purposes, needed by Translator!!
 
+  /**
+   * The number of main stream rows handed to the probe threads at once
+   */
+  private static final int PROBE_BATCH_SIZE = 1000;
+
   public FuzzyMatch( TransformMeta transformMeta, FuzzyMatchMeta meta, FuzzyMatchData data, int copyNr, PipelineMeta pipelineMeta,
                      Pipeline pipeline ) {
     super( transformMeta, meta, data, copyNr, pipelineMeta, pipeline );
@@ -166,6 +178,22 @@ public class FuzzyMatch extends BaseTransform<FuzzyMatchMeta, FuzzyMatchData> im
   }
 
   private Object[] lookupValues( IRowMeta rowMeta, Object[] row ) throws HopException {
+    prepareLookup();
+
+    Object[] add = null;
+    if ( row[ data.indexOfMainField ] == null ) {
+      add = buildEmptyRow();
+    } else {
+      try {
+        add = getFromCache( row );
+      } catch ( Exception e ) {
+        throw new HopTransformException( e );
+      }
+    }
+    return RowDataUtil.addRowData( row, rowMeta.size(), add );
+  }
+
+  private void prepareLookup() throws HopException {
     if ( first ) {
       first = false;
 
@@ -181,17 +209,44 @@ public class FuzzyMatch extends BaseTransform<FuzzyMatchMeta, FuzzyMatchData> im
           .getMainStreamField() ) );
       }
     }
-    Object[] add = null;
-    if ( row[ data.indexOfMainField ] == null ) {
-      add = buildEmptyRow();
-    } else {
-      try {
-        add = getFromCache( row );
-      } catch ( Exception e ) {
-        throw new HopTransformException( e );
+  }
+
+  /**
+   * Look up a main stream row on one of the probe threads. The lookup value is taken from the row in the transform
+   * thread, the matching only uses the cache.
+   *
+   * @param row the main stream row
+   * @return the values to add to the row
+   */
+  private Future<Object[]> submitLookup( Object[] row ) {
+    try {
+      prepareLookup();
+      if ( row[ data.indexOfMainField ] == null ) {
+        return CompletableFuture.completedFuture( buildEmptyRow() );
       }
+      logLookupRow( row );
+      String lookupvalue = getLookupValue( row );
+      return data.probeExecutor.submit( () -> getFromCache( lookupvalue ) );
+    } catch ( Exception e ) {
+      CompletableFuture<Object[]> lookup = new CompletableFuture<>();
+      lookup.completeExceptionally( e );
+      return lookup;
     }
-    return RowDataUtil.addRowData( row, rowMeta.size(), add );
+  }
+
+  private Object[] getLookupResult( Object[] row, Future<Object[]> lookup ) throws HopException {
+    Object[] add;
+    try {
+      add = lookup.get();
+    } catch ( InterruptedException e ) {
+      throw new HopException( e );
+    } catch ( ExecutionException e ) {
+      if ( e.getCause() instanceof HopException ) {
+        throw (HopException) e.getCause();
+      }
+      throw new HopTransformException( e.getCause() );
+    }
+    return RowDataUtil.addRowData( row, getInputRowMeta().size(), add );
   }
 
   private void addToCache( Object[] value ) throws HopException {
@@ -204,27 +259,62 @@ public class FuzzyMatch extends BaseTransform<FuzzyMatchMeta, FuzzyMatchData> im
   }
 
   private Object[] getFromCache( Object[] keyRow ) throws HopValueException {
+    logLookupRow( keyRow );
+    return getFromCache( getLookupValue( keyRow ) );
+  }
+
+  private void logLookupRow( Object[] keyRow ) throws HopValueException {
     if ( isDebug() ) {
       logDebug( BaseMessages.getString( PKG, "FuzzyMatch.Log.ReadingMainStreamRow", getInputRowMeta().getString(
         keyRow ) ) );
     }
+  }
+
+  private String getLookupValue( Object[] keyRow ) throws HopValueException {
+    String lookupvalue = null;
+    switch ( meta.getAlgorithmType() ) {
+      case FuzzyMatchMeta.OPERATION_TYPE_LEVENSHTEIN:
+      case FuzzyMatchMeta.OPERATION_TYPE_DAMERAU_LEVENSHTEIN:
+      case FuzzyMatchMeta.OPERATION_TYPE_NEEDLEMAN_WUNSH:
+        lookupvalue = getInputRowMeta().getString( keyRow, data.indexOfMainField );
+        break;
+      case FuzzyMatchMeta.OPERATION_TYPE_DOUBLE_METAPHONE:
+      case FuzzyMatchMeta.OPERATION_TYPE_METAPHONE:
+      case FuzzyMatchMeta.OPERATION_TYPE_SOUNDEX:
+      case FuzzyMatchMeta.OPERATION_TYPE_REFINED_SOUNDEX:
+        lookupvalue = (String) keyRow[ data.indexOfMainField ];
+        break;
+      case FuzzyMatchMeta.OPERATION_TYPE_JARO:
+      case FuzzyMatchMeta.OPERATION_TYPE_JARO_WINKLER:
+      case FuzzyMatchMeta.OPERATION_TYPE_PAIR_SIMILARITY:
+        Object o = keyRow[ data.indexOfMainField ];
+        lookupvalue = o == null ? "" : (String) o;
+        break;
+      default:
+
+        break;
+    }
+    return lookupvalue;
+  }
+
+  Object[] getFromCache( String lookupvalue ) {
     Object[] retval = null;
     switch ( meta.getAlgorithmType() ) {
       case FuzzyMatchMeta.OPERATION_TYPE_LEVENSHTEIN:
       case FuzzyMatchMeta.OPERATION_TYPE_DAMERAU_LEVENSHTEIN:
       case FuzzyMatchMeta.OPERATION_TYPE_NEEDLEMAN_WUNSH:
-        retval = doDistance( keyRow );
+        retval = doDistance( lookupvalue );
         break;
       case FuzzyMatchMeta.OPERATION_TYPE_DOUBLE_METAPHONE:
       case FuzzyMatchMeta.OPERATION_TYPE_METAPHONE:
       case FuzzyMatchMeta.OPERATION_TYPE_SOUNDEX:
       case FuzzyMatchMeta.OPERATION_TYPE_REFINED_SOUNDEX:
-        retval = doPhonetic( keyRow );
+        retval = doPhonetic( lookupvalue );
         break;
       case FuzzyMatchMeta.OPERATION_TYPE_JARO:
       case FuzzyMatchMeta.OPERATION_TYPE_JARO_WINKLER:
       case FuzzyMatchMeta.OPERATION_TYPE_PAIR_SIMILARITY:
-        retval = doSimilarity( keyRow );
+        retval = doSimilarity( lookupvalue );
         break;
       default:
 
@@ -234,17 +324,27 @@ public class FuzzyMatch extends BaseTransform<FuzzyMatchMeta, FuzzyMatchData> im
     return retval;
   }
 
-  private Object[] doDistance( Object[] row ) throws HopValueException {
+  /**
+   * Get the cached rows to compare with the lookup value, in the order they were read.
+   *
+   * @param lookupvalue the main stream value
+   * @return all cached rows or the candidates found in the index
+   */
+  private Iterator<Object[]> getCachedRows( String lookupvalue ) {
+    if ( data.index == null ) {
+      return data.look.iterator();
+    }
+    return data.index.getCandidates( lookupvalue ).iterator();
+  }
+
+  private Object[] doDistance( String lookupvalue ) {
     // Reserve room
     Object[] rowData = buildEmptyRow();
 
-    Iterator<Object[]> it = data.look.iterator();
+    Iterator<Object[]> it = getCachedRows( lookupvalue );
 
     long distance = -1;
 
-    // Object o=row[data.indexOfMainField];
-    String lookupvalue = getInputRowMeta().getString( row, data.indexOfMainField );
-
     while ( it.hasNext() ) {
       // Get cached row data
       Object[] cachedData = it.next();
@@ -306,14 +406,11 @@ public class FuzzyMatch extends BaseTransform<FuzzyMatchMeta, FuzzyMatchData> im
     return rowData;
   }
 
-  private Object[] doPhonetic( Object[] row ) {
+  private Object[] doPhonetic( String lookupvalue ) {
     // Reserve room
     Object[] rowData = buildEmptyRow();
 
-    Iterator<Object[]> it = data.look.iterator();
-
-    Object o = row[ data.indexOfMainField ];
-    String lookupvalue = (String) o;
+    Iterator<Object[]> it = getCachedRows( lookupvalue );
 
     String lookupValueMF = getEncodedMF( lookupvalue, meta.getAlgorithmType() );
 
@@ -325,7 +422,9 @@ public class FuzzyMatch extends BaseTransform<FuzzyMatchMeta, FuzzyMatchData> im
 
       String cacheValueMF = getEncodedMF( cacheValue, meta.getAlgorithmType() );
 
-      if ( lookupValueMF.equals( cacheValueMF ) ) {
+      // Values without a code (an empty double metaphone) don't match anything
+      //
+      if ( lookupValueMF != null && lookupValueMF.equals( cacheValueMF ) ) {
 
         // Add match value
         int index = 0;
@@ -349,7 +448,7 @@ public class FuzzyMatch extends BaseTransform<FuzzyMatchMeta, FuzzyMatchData> im
     return rowData;
   }
 
-  private String getEncodedMF( String value, Integer algorithmType ) {
+  static String getEncodedMF( String value, Integer algorithmType ) {
     String encodedValueMF = "";
     switch ( algorithmType ) {
       case FuzzyMatchMeta.OPERATION_TYPE_METAPHONE:
@@ -370,19 +469,14 @@ public class FuzzyMatch extends BaseTransform<FuzzyMatchMeta, FuzzyMatchData> im
     return encodedValueMF;
   }
 
-  private Object[] doSimilarity( Object[] row ) {
+  private Object[] doSimilarity( String lookupvalue ) {
 
     // Reserve room
     Object[] rowData = buildEmptyRow();
     // prepare to read from cache ...
-    Iterator<Object[]> it = data.look.iterator();
+    Iterator<Object[]> it = getCachedRows( lookupvalue );
     double similarity = 0;
 
-    // get current value from main stream
-    Object o = row[ data.indexOfMainField ];
-
-    String lookupvalue = o == null ? "" : (String) o;
-
     while ( it.hasNext() ) {
       // Get cached row data
       Object[] cachedData = it.next();
@@ -466,9 +560,31 @@ public class FuzzyMatch extends BaseTransform<FuzzyMatchMeta, FuzzyMatchData> im
       if ( isDetailed() ) {
         logDetailed( BaseMessages.getString( PKG, "FuzzyMatch.Log.ReadValuesInMemory", data.look.size() ) );
       }
+
+      data.index = FuzzyMatchIndex.createIndex( meta, data );
+      if ( data.index != null && isDetailed() ) {
+        logDetailed( BaseMessages.getString( PKG, "FuzzyMatch.Log.IndexBuilt", data.index.size() ) );
+      }
     }
 
     Object[] r = getRow(); // Get row from input rowset & set row busy!
+    if ( data.probeExecutor != null ) {
+      // Look up a batch of rows on the probe threads, the rows are passed on in the order they were read
+      //
+      if ( r != null ) {
+        data.pendingRows.add( r );
+        if ( data.pendingRows.size() < PROBE_BATCH_SIZE ) {
+          return true;
+        }
+      }
+      if ( !processPendingRows() ) {
+        return false;
+      }
+      if ( r != null ) {
+        return true;
+      }
+    }
+
     if ( r == null ) {
       // no more input to be expected...
       if ( isDetailed() ) {
@@ -478,10 +594,42 @@ public class FuzzyMatch extends BaseTransform<FuzzyMatchMeta, FuzzyMatchData> im
       return false;
     }
 
+    return processLookupRow( r, null );
+  }
+
+  private boolean processPendingRows() throws HopException {
+    List<Future<Object[]>> lookups = new ArrayList<>( data.pendingRows.size() );
+    for ( Object[] row : data.pendingRows ) {
+      lookups.add( submitLookup( row ) );
+    }
+    try {
+      for ( int i = 0; i < lookups.size(); i++ ) {
+        if ( !processLookupRow( data.pendingRows.get( i ), lookups.get( i ) ) ) {
+          for ( int j = i + 1; j < lookups.size(); j++ ) {
+            lookups.get( j ).cancel( true );
+          }
+          return false;
+        }
+      }
+    } finally {
+      data.pendingRows.clear();
+    }
+    return true;
+  }
+
+  /**
+   * Pass on a main stream row with the values looked up.
+   *
+   * @param r the main stream row
+   * @param lookup the lookup running on a probe thread or null to look up the row now
+   * @return false if the transform stopped
+   * @throws HopException
+   */
+  private boolean processLookupRow( Object[] r, Future<Object[]> lookup ) throws HopException {
     try {
 
       // Do the actual lookup in the hastable.
-      Object[] outputRow = lookupValues( getInputRowMeta(), r );
+      Object[] outputRow = lookup == null ? lookupValues( getInputRowMeta(), r ) : getLookupResult( r, lookup );
       if ( outputRow == null ) {
         setOutputDone(); // signal end to receiver(s)
         return false;
@@ -602,6 +750,20 @@ public class FuzzyMatch extends BaseTransform<FuzzyMatchMeta, FuzzyMatchData> im
           break;
       }
 
+      int probeThreads = Const.toInt( environmentSubstitute( meta.getProbeThreads() ), 1 );
+      if ( probeThreads > 1 && getTransformMeta().getCopies() == 1 ) {
+        if ( isDetailed() ) {
+          logDetailed( BaseMessages.getString( PKG, "FuzzyMatch.Log.ProbeThreads", probeThreads ) );
+        }
+        AtomicInteger threadNr = new AtomicInteger( 1 );
+        data.probeExecutor = Executors.newFixedThreadPool( probeThreads, runnable -> {
+          Thread thread = Executors.defaultThreadFactory().newThread( runnable );
+          thread.setDaemon( true );
+          thread.setName( getTransformName() + " probe " + threadNr.getAndIncrement() );
+          return thread;
+        } );
+      }
+
       data.readLookupValues = true;
 
       return true;
@@ -610,6 +772,11 @@ public class FuzzyMatch extends BaseTransform<FuzzyMatchMeta, FuzzyMatchData> im
   }
 
   public void dispose(){
+    if ( data.probeExecutor != null ) {
+      data.probeExecutor.shutdownNow();
+      data.probeExecutor = null;
+    }
+    data.index = null;
     data.look.clear();
     super.dispose();
   }
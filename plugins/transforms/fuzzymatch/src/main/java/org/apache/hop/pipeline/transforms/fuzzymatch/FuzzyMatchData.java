@@ -27,7 +27,11 @@ import org.apache.hop.pipeline.transform.BaseTransformData;
 import org.apache.hop.pipeline.transform.ITransformData;
 import org.apache.hop.pipeline.transform.errorhandling.IStream;
 
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
 
 /**
  * @author Samatar
@@ -38,7 +42,7 @@ public class FuzzyMatchData extends BaseTransformData implements ITransformData
   public IRowMeta outputRowMeta;
 
   /**
-   * used to store values in used to look up things
+   * used to store values in used to look up things, in the order they were read
    */
   public HashSet<Object[]> look;
 
@@ -73,14 +77,30 @@ public class FuzzyMatchData extends BaseTransformData implements ITransformData
   public int nrCachedFields;
   public IRowMeta infoCache;
 
+  /**
+   * index on the cached values, null to compare every cached value
+   */
+  public FuzzyMatchIndex index;
+
+  /**
+   * threads looking up the main stream rows, null to look up in the transform thread
+   */
+  public ExecutorService probeExecutor;
+
+  /**
+   * main stream rows waiting for the probe threads
+   */
+  public List<Object[]> pendingRows;
+
   public FuzzyMatchData() {
     super();
-    this.look = new HashSet<Object[]>();
+    this.look = new LinkedHashSet<Object[]>();
     this.indexOfMainField = -1;
     this.addValueFieldName = false;
     this.valueSeparator = "";
     this.nrCachedFields = 1;
     this.addAdditionalFields = false;
+    this.pendingRows = new ArrayList<Object[]>();
   }
 
 }
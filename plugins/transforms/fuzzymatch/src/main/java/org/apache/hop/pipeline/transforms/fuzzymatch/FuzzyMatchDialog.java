@@ -87,6 +87,8 @@ public class FuzzyMatchDialog extends BaseTransformDialog implements ITransformD
   private Label wlSeparator;
   private TextVar wSeparator;
 
+  private TextVar wProbeThreads;
+
   private Button wGetLU;
 
   private final FuzzyMatchMeta input;
@@ -431,6 +433,24 @@ public class FuzzyMatchDialog extends BaseTransformDialog implements ITransformD
     fdseparator.right = new FormAttachment( 100, 0 );
     wSeparator.setLayoutData(fdseparator);
 
+    Label wlProbeThreads = new Label( wSettingsGroup, SWT.RIGHT );
+    wlProbeThreads.setText( BaseMessages.getString( PKG, "FuzzyMatchDialog.probeThreads.Label" ) );
+    props.setLook( wlProbeThreads );
+    FormData fdlProbeThreads = new FormData();
+    fdlProbeThreads.left = new FormAttachment( 0, 0 );
+    fdlProbeThreads.top = new FormAttachment( wSeparator, margin );
+    fdlProbeThreads.right = new FormAttachment( middle, -margin );
+    wlProbeThreads.setLayoutData( fdlProbeThreads );
+    wProbeThreads = new TextVar( pipelineMeta, wSettingsGroup, SWT.SINGLE | SWT.LEFT | SWT.BORDER );
+    props.setLook( wProbeThreads );
+    wProbeThreads.setToolTipText( BaseMessages.getString( PKG, "FuzzyMatchDialog.probeThreads.Tooltip" ) );
+    wProbeThreads.addModifyListener( lsMod );
+    FormData fdProbeThreads = new FormData();
+    fdProbeThreads.left = new FormAttachment( middle, 0 );
+    fdProbeThreads.top = new FormAttachment( wSeparator, margin );
+    fdProbeThreads.right = new FormAttachment( 100, 0 );
+    wProbeThreads.setLayoutData( fdProbeThreads );
+
     FormData fdSettingsGroup = new FormData();
     fdSettingsGroup.left = new FormAttachment( 0, margin );
     fdSettingsGroup.top = new FormAttachment(wMainStreamGroup, margin );
@@ -670,6 +690,9 @@ public class FuzzyMatchDialog extends BaseTransformDialog implements ITransformD
     if ( input.getSeparator() != null ) {
       wSeparator.setText( input.getSeparator() );
     }
+    if ( input.getProbeThreads() != null ) {
+      wProbeThreads.setText( input.getProbeThreads() );
+    }
 
     if ( input.getValue() != null ) {
       for ( int i = 0; i < input.getValue().length; i++ ) {
@@ -716,6 +739,7 @@ public class FuzzyMatchDialog extends BaseTransformDialog implements ITransformD
     input.setOutputMatchField( wMatchField.getText() );
     input.setOutputValueField( wValueField.getText() );
     input.setSeparator( wSeparator.getText() );
+    input.setProbeThreads( wProbeThreads.getText() );
 
     int nrvalues = wReturn.nrNonEmpty();
     input.allocate( nrvalues );
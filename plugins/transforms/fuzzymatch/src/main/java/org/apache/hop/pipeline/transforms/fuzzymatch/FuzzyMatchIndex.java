@@ -0,0 +1,148 @@
+/*! ******************************************************************************
+ *
+ * Hop : The Hop Orchestration Platform
+ *
+ * http://www.project-hop.org
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+
+package org.apache.hop.pipeline.transforms.fuzzymatch;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * An index over the values read from the lookup stream. For a main stream value it returns the cached rows that can
+ * possibly match, in the order they were read from the lookup stream. Every row left out is one that the linear scan
+ * would not have used either, so running the matching loop over the candidates gives the same result as scanning the
+ * complete cache.
+ */
+public abstract class FuzzyMatchIndex {
+
+  /**
+   * The cached rows in the order they were read, the key value is the first value
+   */
+  protected final Object[][] rows;
+
+  protected FuzzyMatchIndex( Collection<Object[]> look ) {
+    this.rows = look.toArray( new Object[ look.size() ][] );
+  }
+
+  /**
+   * Build the index suited for the algorithm and settings of the transform.
+   *
+   * @param meta the transform metadata
+   * @param data the transform data with the cached lookup rows and the calculated limits
+   * @return the index or null if every cached row needs to be compared with each main stream value
+   */
+  public static FuzzyMatchIndex createIndex( FuzzyMatchMeta meta, FuzzyMatchData data ) {
+    for ( Object[] cachedData : data.look ) {
+      if ( !( cachedData[ 0 ] instanceof String ) ) {
+        // Let the linear scan report the value that can't be used
+        //
+        return null;
+      }
+    }
+
+    switch ( meta.getAlgorithmType() ) {
+      case FuzzyMatchMeta.OPERATION_TYPE_LEVENSHTEIN:
+        return new EditDistanceIndex( data.look, meta.isCaseSensitive(), data.minimalDistance, data.maximalDistance );
+      case FuzzyMatchMeta.OPERATION_TYPE_DAMERAU_LEVENSHTEIN:
+        // The optimal string alignment distance is at least half the Levenshtein distance and never more than it
+        //
+        long maximalDistance = Math.min( Integer.MAX_VALUE, 2L * data.maximalDistance );
+        return new EditDistanceIndex( data.look, meta.isCaseSensitive(), data.minimalDistance, (int) maximalDistance );
+      case FuzzyMatchMeta.OPERATION_TYPE_JARO:
+      case FuzzyMatchMeta.OPERATION_TYPE_JARO_WINKLER:
+      case FuzzyMatchMeta.OPERATION_TYPE_PAIR_SIMILARITY:
+        if ( !meta.isGetCloserValue() && data.minimalSimilarity <= 0 ) {
+          // Values without anything in common are part of the result
+          //
+          return null;
+        }
+        return new QGramIndex( data.look, meta.getAlgorithmType(), data.minimalSimilarity );
+      case FuzzyMatchMeta.OPERATION_TYPE_DOUBLE_METAPHONE:
+      case FuzzyMatchMeta.OPERATION_TYPE_METAPHONE:
+      case FuzzyMatchMeta.OPERATION_TYPE_SOUNDEX:
+      case FuzzyMatchMeta.OPERATION_TYPE_REFINED_SOUNDEX:
+        try {
+          return new PhoneticIndex( data.look, meta.getAlgorithmType() );
+        } catch ( IllegalArgumentException e ) {
+          // A lookup value that can't be encoded fails every lookup in the linear scan
+          //
+          return null;
+        }
+      default:
+        // Needleman-Wunsch is not a metric: scan all values
+        //
+        return null;
+    }
+  }
+
+  /**
+   * Get the cached rows which can match the lookup value.
+   *
+   * @param lookupvalue the value from the main stream
+   * @return the candidate rows in lookup stream order
+   */
+  public abstract List<Object[]> getCandidates( String lookupvalue );
+
+  /**
+   * @return the number of indexed rows
+   */
+  public int size() {
+    return rows.length;
+  }
+
+  /**
+   * Add a value to an array, growing it when needed.
+   *
+   * @param array the array to add to
+   * @param size the number of values in the array
+   * @param value the value to add
+   * @return the array holding the value
+   */
+  protected static int[] append( int[] array, int size, int value ) {
+    int[] result = array;
+    if ( size == result.length ) {
+      result = Arrays.copyOf( result, Math.max( 4, size * 2 ) );
+    }
+    result[ size ] = value;
+    return result;
+  }
+
+  /**
+   * Convert row numbers to the rows in lookup stream order. Duplicate numbers are only returned once.
+   *
+   * @param rowNrs the row numbers
+   * @param nrRowNrs the number of row numbers used
+   * @return the cached rows
+   */
+  protected List<Object[]> getRows( int[] rowNrs, int nrRowNrs ) {
+    Arrays.sort( rowNrs, 0, nrRowNrs );
+    List<Object[]> candidates = new ArrayList<>( nrRowNrs );
+    for ( int i = 0; i < nrRowNrs; i++ ) {
+      if ( i == 0 || rowNrs[ i ] != rowNrs[ i - 1 ] ) {
+        candidates.add( rows[ rowNrs[ i ] ] );
+      }
+    }
+    return candidates;
+  }
+}
@@ -154,6 +154,11 @@ public class FuzzyMatchMeta extends BaseTransformMeta implements ITransformMeta<
    **/
   private boolean closervalue;
 
+  /**
+   * number of threads probing the lookup index
+   **/
+  private String probeThreads;
+
   /**
    * return these field values from lookup
    */
@@ -340,6 +345,20 @@ public class FuzzyMatchMeta extends BaseTransformMeta implements ITransformMeta<
     this.separator = separator;
   }
 
+  /**
+   * @return Returns the number of threads probing the lookup index.
+   */
+  public String getProbeThreads() {
+    return probeThreads;
+  }
+
+  /**
+   * @param probeThreads The number of threads probing the lookup index.
+   */
+  public void setProbeThreads( String probeThreads ) {
+    this.probeThreads = probeThreads;
+  }
+
   public void loadXml( Node transformNode, IHopMetadataProvider metadataProvider ) throws HopXmlException {
     readData( transformNode, metadataProvider );
   }
@@ -401,6 +420,7 @@ public class FuzzyMatchMeta extends BaseTransformMeta implements ITransformMeta<
       minimalValue = XmlHandler.getTagValue( transformNode, "minimalValue" );
       maximalValue = XmlHandler.getTagValue( transformNode, "maximalValue" );
       separator = XmlHandler.getTagValue( transformNode, "separator" );
+      probeThreads = XmlHandler.getTagValue( transformNode, "probeThreads" );
 
       outputmatchfield = XmlHandler.getTagValue( transformNode, "outputmatchfield" );
       outputvaluefield = XmlHandler.getTagValue( transformNode, "outputvaluefield" );
@@ -443,6 +463,7 @@ public class FuzzyMatchMeta extends BaseTransformMeta implements ITransformMeta<
     minimalValue = "0";
     maximalValue = "1";
     caseSensitive = false;
+    probeThreads = "1";
     lookupfield = null;
     mainstreamfield = null;
     outputmatchfield = BaseMessages.getString( PKG, "FuzzyMatchMeta.OutputMatchFieldname" );
@@ -539,6 +560,7 @@ public class FuzzyMatchMeta extends BaseTransformMeta implements ITransformMeta<
     retval.append( "    " + XmlHandler.addTagValue( "minimalValue", minimalValue ) );
     retval.append( "    " + XmlHandler.addTagValue( "maximalValue", maximalValue ) );
     retval.append( "    " + XmlHandler.addTagValue( "separator", separator ) );
+    retval.append( "    " + XmlHandler.addTagValue( "probeThreads", probeThreads ) );
 
     retval.append( "    " ).append( XmlHandler.addTagValue( "algorithm", getAlgorithmTypeCode( algorithm ) ) );
 
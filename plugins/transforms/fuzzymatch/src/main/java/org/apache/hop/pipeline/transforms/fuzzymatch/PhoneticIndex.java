@@ -0,0 +1,67 @@
+/*! ******************************************************************************
+ *
+ * Hop : The Hop Orchestration Platform
+ *
+ * http://www.project-hop.org
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+
+package org.apache.hop.pipeline.transforms.fuzzymatch;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A hash of the phonetic codes of the lookup values. A phonetic lookup returns the last value with the same code as
+ * the main stream value, so that is the only one kept for every code.
+ */
+public class PhoneticIndex extends FuzzyMatchIndex {
+
+  private final int algorithm;
+
+  private final Map<String, Integer> lastRowNrs = new HashMap<>();
+
+  /**
+   * @param look the cached rows
+   * @param algorithm the phonetic algorithm
+   */
+  public PhoneticIndex( Collection<Object[]> look, int algorithm ) {
+    super( look );
+    this.algorithm = algorithm;
+
+    for ( int rowNr = 0; rowNr < rows.length; rowNr++ ) {
+      String code = FuzzyMatch.getEncodedMF( (String) rows[ rowNr ][ 0 ], algorithm );
+      if ( code != null ) {
+        lastRowNrs.put( code, rowNr );
+      }
+    }
+  }
+
+  @Override
+  public List<Object[]> getCandidates( String lookupvalue ) {
+    String code = FuzzyMatch.getEncodedMF( lookupvalue, algorithm );
+    Integer rowNr = code == null ? null : lastRowNrs.get( code );
+    if ( rowNr == null ) {
+      return Collections.emptyList();
+    }
+    return Collections.singletonList( rows[ rowNr ] );
+  }
+}
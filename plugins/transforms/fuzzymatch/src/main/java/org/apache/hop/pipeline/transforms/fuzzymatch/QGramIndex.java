@@ -0,0 +1,180 @@
+/*! ******************************************************************************
+ *
+ * Hop : The Hop Orchestration Platform
+ *
+ * http://www.project-hop.org
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+
+package org.apache.hop.pipeline.transforms.fuzzymatch;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An inverted index from q-grams to the lookup values holding them: lower case characters for Jaro and Jaro-Winkler
+ * and the upper case letter pairs for the pair letters similarity. The number of q-grams a value shares with the lookup value gives
+ * an upper bound of the similarity, values that can't reach the minimal similarity are skipped. Values without a
+ * common q-gram have a similarity of 0 and only matter when they are equal to the lookup value.
+ */
+public class QGramIndex extends FuzzyMatchIndex {
+
+  /**
+   * Allow for rounding differences between the bound and the similarity
+   */
+  private static final double EPSILON = 1e-9;
+
+  private final int algorithm;
+  private final double minimalSimilarity;
+
+  /**
+   * The number of q-grams in each value
+   */
+  private final int[] lengths;
+
+  private final Map<String, Postings> postings = new HashMap<>();
+
+  private final Map<String, Postings> equalValues = new HashMap<>();
+
+  private final ThreadLocal<int[]> commonCounts;
+
+  /**
+   * @param look the cached rows
+   * @param algorithm the similarity algorithm
+   * @param minimalSimilarity the smallest similarity of a candidate
+   */
+  public QGramIndex( Collection<Object[]> look, int algorithm, double minimalSimilarity ) {
+    super( look );
+    this.algorithm = algorithm;
+    this.minimalSimilarity = minimalSimilarity;
+    this.lengths = new int[ rows.length ];
+    this.commonCounts = ThreadLocal.withInitial( () -> new int[ rows.length ] );
+
+    for ( int rowNr = 0; rowNr < rows.length; rowNr++ ) {
+      String value = (String) rows[ rowNr ][ 0 ];
+      Map<String, Integer> grams = getGrams( value );
+      for ( Map.Entry<String, Integer> gram : grams.entrySet() ) {
+        postings.computeIfAbsent( gram.getKey(), k -> new Postings() ).add( rowNr, gram.getValue() );
+        lengths[ rowNr ] += gram.getValue();
+      }
+      equalValues.computeIfAbsent( value, k -> new Postings() ).add( rowNr, 1 );
+    }
+  }
+
+  private Map<String, Integer> getGrams( String value ) {
+    Map<String, Integer> grams = new HashMap<>();
+    if ( algorithm == FuzzyMatchMeta.OPERATION_TYPE_PAIR_SIMILARITY ) {
+      for ( String pair : LetterPairSimilarity.wordLetterPairs( value.toUpperCase() ) ) {
+        grams.merge( pair, 1, Integer::sum );
+      }
+    } else {
+      // Jaro compares the lower case values
+      //
+      String lowerCaseValue = value.toLowerCase();
+      for ( int i = 0; i < lowerCaseValue.length(); i++ ) {
+        grams.merge( String.valueOf( lowerCaseValue.charAt( i ) ), 1, Integer::sum );
+      }
+    }
+    return grams;
+  }
+
+  /**
+   * Calculate the highest similarity two values can have given the number of q-grams they share.
+   *
+   * @param common the number of common q-grams, at least 1
+   * @param length the number of q-grams of the cached value
+   * @param lookupLength the number of q-grams of the lookup value
+   * @return the upper bound of the similarity
+   */
+  private double getUpperBound( int common, int length, int lookupLength ) {
+    if ( algorithm == FuzzyMatchMeta.OPERATION_TYPE_PAIR_SIMILARITY ) {
+      return ( 2.0 * common ) / ( length + lookupLength );
+    }
+    // Jaro counts the common characters within a window, assume all are common and there are no transpositions
+    //
+    double jaro = ( (double) common / length + (double) common / lookupLength + 1.0 ) / 3.0;
+    if ( algorithm == FuzzyMatchMeta.OPERATION_TYPE_JARO_WINKLER ) {
+      // Winkler adds 0.1 for every character of the common prefix, up to 4
+      //
+      return jaro + 0.4 * ( 1.0 - jaro );
+    }
+    return jaro;
+  }
+
+  @Override
+  public List<Object[]> getCandidates( String lookupvalue ) {
+    Map<String, Integer> grams = getGrams( lookupvalue );
+    int lookupLength = 0;
+    for ( int count : grams.values() ) {
+      lookupLength += count;
+    }
+
+    // Count the common q-grams of every value sharing at least one
+    //
+    int[] counts = commonCounts.get();
+    int[] rowNrs = new int[ 16 ];
+    int nrRowNrs = 0;
+    for ( Map.Entry<String, Integer> gram : grams.entrySet() ) {
+      Postings gramPostings = postings.get( gram.getKey() );
+      if ( gramPostings == null ) {
+        continue;
+      }
+      int lookupCount = gram.getValue();
+      for ( int i = 0; i < gramPostings.size; i++ ) {
+        int rowNr = gramPostings.rowNrs[ i ];
+        if ( counts[ rowNr ] == 0 ) {
+          rowNrs = append( rowNrs, nrRowNrs++, rowNr );
+        }
+        counts[ rowNr ] += Math.min( lookupCount, gramPostings.counts[ i ] );
+      }
+    }
+
+    int nrCandidates = 0;
+    for ( int i = 0; i < nrRowNrs; i++ ) {
+      int rowNr = rowNrs[ i ];
+      int common = counts[ rowNr ];
+      counts[ rowNr ] = 0;
+      if ( getUpperBound( common, lengths[ rowNr ], lookupLength ) >= minimalSimilarity - EPSILON ) {
+        rowNrs[ nrCandidates++ ] = rowNr;
+      }
+    }
+
+    Postings equal = equalValues.get( lookupvalue );
+    if ( equal != null ) {
+      for ( int i = 0; i < equal.size; i++ ) {
+        rowNrs = append( rowNrs, nrCandidates++, equal.rowNrs[ i ] );
+      }
+    }
+
+    return getRows( rowNrs, nrCandidates );
+  }
+
+  private static class Postings {
+    private int[] rowNrs = new int[ 1 ];
+    private int[] counts = new int[ 1 ];
+    private int size;
+
+    private void add( int rowNr, int count ) {
+      rowNrs = append( rowNrs, size, rowNr );
+      counts = append( counts, size, count );
+      size++;
+    }
+  }
+}
@@ -0,0 +1,208 @@
+/*! ******************************************************************************
+ *
+ * Hop : The Hop Orchestration Platform
+ *
+ * http://www.project-hop.org
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+
+package org.apache.hop.pipeline.transforms.fuzzymatch;
+
+import org.apache.hop.core.logging.ILoggingObject;
+import org.apache.hop.core.row.IRowMeta;
+import org.apache.hop.core.row.RowMeta;
+import org.apache.hop.core.row.value.ValueMetaString;
+import org.apache.hop.pipeline.transforms.mock.TransformMockHelper;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.when;
+
+public class FuzzyMatchIndexTest {
+  private static final String[] NAMES = { "Catrine", "Catriny", "Katrina", "catrine", "John", "Jon", "Johan", "jOHN",
+    "", "Smith", "Smyth", "Schmidt", "Anna", "Ana", "Hannah", "Mary Ann", "Marianne", "Maria", "Cathy", "Kathy" };
+
+  private TransformMockHelper<FuzzyMatchMeta, FuzzyMatchData> mockHelper;
+
+  private List<String> lookupValues;
+  private List<String> mainValues;
+
+  @Before
+  public void setUp() throws Exception {
+    mockHelper =
+      new TransformMockHelper<FuzzyMatchMeta, FuzzyMatchData>( "Fuzzy Match", FuzzyMatchMeta.class, FuzzyMatchData.class );
+    when( mockHelper.logChannelFactory.create( any(), any( ILoggingObject.class ) ) ).thenReturn(
+      mockHelper.logChannelInterface );
+
+    // Short values from a small alphabet give plenty of duplicates and ties
+    //
+    Random random = new Random( 42 );
+    lookupValues = new ArrayList<>( Arrays.asList( NAMES ) );
+    for ( int i = 0; i < 150; i++ ) {
+      lookupValues.add( randomValue( random ) );
+    }
+    mainValues = new ArrayList<>( Arrays.asList( NAMES ) );
+    for ( int i = 0; i < 60; i++ ) {
+      mainValues.add( randomValue( random ) );
+    }
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    mockHelper.cleanUp();
+  }
+
+  private static String randomValue( Random random ) {
+    String alphabet = "abcdeAB ";
+    char[] value = new char[ random.nextInt( 8 ) ];
+    for ( int i = 0; i < value.length; i++ ) {
+      value[ i ] = alphabet.charAt( random.nextInt( alphabet.length() ) );
+    }
+    return new String( value );
+  }
+
+  @Test
+  public void testEditDistanceIndex() throws Exception {
+    for ( int algorithm : new int[] { FuzzyMatchMeta.OPERATION_TYPE_LEVENSHTEIN,
+      FuzzyMatchMeta.OPERATION_TYPE_DAMERAU_LEVENSHTEIN } ) {
+      for ( String[] range : new String[][] { { "0", "2" }, { "1", "3" }, { "0", "0" }, { "2", "5" } } ) {
+        assertSameResults( algorithm, range[ 0 ], range[ 1 ] );
+      }
+    }
+  }
+
+  @Test
+  public void testQGramIndex() throws Exception {
+    for ( int algorithm : new int[] { FuzzyMatchMeta.OPERATION_TYPE_JARO, FuzzyMatchMeta.OPERATION_TYPE_JARO_WINKLER,
+      FuzzyMatchMeta.OPERATION_TYPE_PAIR_SIMILARITY } ) {
+      for ( String[] range : new String[][] { { "0", "1" }, { "0.8", "1" }, { "0.5", "0.9" }, { "0.95", "1" } } ) {
+        assertSameResults( algorithm, range[ 0 ], range[ 1 ] );
+      }
+    }
+  }
+
+  @Test
+  public void testPhoneticIndex() throws Exception {
+    for ( int algorithm : new int[] { FuzzyMatchMeta.OPERATION_TYPE_METAPHONE,
+      FuzzyMatchMeta.OPERATION_TYPE_DOUBLE_METAPHONE, FuzzyMatchMeta.OPERATION_TYPE_SOUNDEX,
+      FuzzyMatchMeta.OPERATION_TYPE_REFINED_SOUNDEX } ) {
+      assertSameResults( algorithm, "0", "1" );
+    }
+  }
+
+  @Test
+  public void testLinearScanWithoutIndex() throws Exception {
+    FuzzyMatchData data = new FuzzyMatchData();
+    FuzzyMatchMeta meta = createMeta( FuzzyMatchMeta.OPERATION_TYPE_NEEDLEMAN_WUNSH, true, false, "0", "5" );
+    assertNull( FuzzyMatchIndex.createIndex( meta, data ) );
+
+    // All values are returned when the minimal similarity is 0
+    //
+    meta = createMeta( FuzzyMatchMeta.OPERATION_TYPE_JARO, false, false, "0", "1" );
+    assertNull( FuzzyMatchIndex.createIndex( meta, data ) );
+    data.minimalSimilarity = 0.5;
+    assertNotNull( FuzzyMatchIndex.createIndex( meta, data ) );
+
+    // Only strings can be indexed
+    //
+    data.look.add( new Object[] { 1L } );
+    assertNull( FuzzyMatchIndex.createIndex( meta, data ) );
+  }
+
+  @Test
+  public void testEditDistanceCandidates() throws Exception {
+    FuzzyMatchData data = new FuzzyMatchData();
+    for ( String name : NAMES ) {
+      data.look.add( new Object[] { name } );
+    }
+    EditDistanceIndex index = new EditDistanceIndex( data.look, false, 0, 1 );
+    assertEquals( NAMES.length, index.size() );
+
+    List<Object[]> candidates = index.getCandidates( "JOHN" );
+    assertEquals( 4, candidates.size() );
+    assertEquals( "John", candidates.get( 0 )[ 0 ] );
+    assertEquals( "Jon", candidates.get( 1 )[ 0 ] );
+    assertEquals( "Johan", candidates.get( 2 )[ 0 ] );
+    assertEquals( "jOHN", candidates.get( 3 )[ 0 ] );
+  }
+
+  private FuzzyMatchMeta createMeta( int algorithm, boolean closerValue, boolean caseSensitive, String minimal,
+                                     String maximal ) {
+    FuzzyMatchMeta meta = new FuzzyMatchMeta();
+    meta.setDefault();
+    meta.setAlgorithmType( algorithm );
+    meta.setGetCloserValue( closerValue );
+    meta.setCaseSensitive( caseSensitive );
+    meta.setMinimalValue( minimal );
+    meta.setMaximalValue( maximal );
+    meta.setMainStreamField( "name" );
+    meta.setLookupField( "name" );
+    meta.setValue( new String[] { "id" } );
+    meta.setValueName( new String[] { "id" } );
+    return meta;
+  }
+
+  private void assertSameResults( int algorithm, String minimal, String maximal ) throws Exception {
+    for ( boolean closerValue : new boolean[] { true, false } ) {
+      for ( boolean caseSensitive : new boolean[] { true, false } ) {
+        FuzzyMatchMeta meta = createMeta( algorithm, closerValue, caseSensitive, minimal, maximal );
+        FuzzyMatchData data = new FuzzyMatchData();
+        FuzzyMatch fuzzyMatch =
+          new FuzzyMatch( mockHelper.transformMeta, meta, data, 0, mockHelper.pipelineMeta, mockHelper.pipeline );
+        assertTrue( fuzzyMatch.init() );
+
+        IRowMeta outputRowMeta = new RowMeta();
+        outputRowMeta.addValueMeta( new ValueMetaString( "match" ) );
+        outputRowMeta.addValueMeta( new ValueMetaString( "value" ) );
+        outputRowMeta.addValueMeta( new ValueMetaString( "id" ) );
+        data.outputRowMeta = outputRowMeta;
+        for ( int i = 0; i < lookupValues.size(); i++ ) {
+          data.look.add( new Object[] { lookupValues.get( i ), (long) i } );
+        }
+
+        FuzzyMatchIndex index = FuzzyMatchIndex.createIndex( meta, data );
+        if ( closerValue || algorithm >= FuzzyMatchMeta.OPERATION_TYPE_METAPHONE || !"0".equals( minimal ) ) {
+          assertNotNull( index );
+        }
+        for ( String mainValue : mainValues ) {
+          data.index = null;
+          Object[] expected = fuzzyMatch.getFromCache( mainValue );
+          data.index = index;
+          Object[] actual = fuzzyMatch.getFromCache( mainValue );
+
+          assertArrayEquals( FuzzyMatchMeta.getAlgorithmTypeDesc( algorithm ) + " [" + minimal + "," + maximal
+            + "] closer=" + closerValue + " caseSensitive=" + caseSensitive + " value='" + mainValue + "'",
+            expected, actual );
+        }
+        fuzzyMatch.dispose();
+      }
+    }
+  }
+}
@@ -47,7 +47,7 @@ public class FuzzyMatchMetaTest {
     List<String> attributes =
       Arrays.asList( "value", "valueName", "algorithm", "lookupfield", "mainstreamfield",
         "outputmatchfield", "outputvaluefield", "caseSensitive", "minimalValue",
-        "maximalValue", "separator", "closervalue" );
+        "maximalValue", "separator", "closervalue", "probeThreads" );
 
     Map<String, String> getterMap = new HashMap<String, String>() {
       {
@@ -63,6 +63,7 @@ public class FuzzyMatchMetaTest {
         put( "maximalValue", "getMaximalValue" );
         put( "separator", "getSeparator" );
         put( "closervalue", "isGetCloserValue" );
+        put( "probeThreads", "getProbeThreads" );
       }
     };
 
@@ -80,6 +81,7 @@ public class FuzzyMatchMetaTest {
         put( "maximalValue", "setMaximalValue" );
         put( "separator", "setSeparator" );
         put( "closervalue", "setGetCloserValue" );
+        put( "probeThreads", "setProbeThreads" );
       }
     };
     IFieldLoadSaveValidator<String[]> stringArrayLoadSaveValidator =
@@ -23,13 +23,16 @@
 
 package org.apache.hop.pipeline.transforms.insertupdate;
 
+import com.google.common.annotations.VisibleForTesting;
 import org.apache.commons.lang.ArrayUtils;
 import org.apache.hop.core.Const;
+import org.apache.hop.core.RowMetaAndData;
 import org.apache.hop.core.database.Database;
 import org.apache.hop.core.database.DatabaseMeta;
 import org.apache.hop.core.exception.HopDatabaseException;
 import org.apache.hop.core.exception.HopException;
 import org.apache.hop.core.exception.HopTransformException;
+import org.apache.hop.core.exception.HopValueException;
 import org.apache.hop.core.row.RowMeta;
 import org.apache.hop.core.row.IRowMeta;
 import org.apache.hop.core.row.IValueMeta;
@@ -40,9 +43,13 @@ import org.apache.hop.pipeline.transform.BaseTransform;
 import org.apache.hop.pipeline.transform.ITransform;
 import org.apache.hop.pipeline.transform.TransformMeta;
 
+import java.sql.PreparedStatement;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Performs a lookup in a database table. If the key doesn't exist it inserts values into the table, otherwise it
@@ -60,27 +67,27 @@ public class InsertUpdate extends BaseTransform<InsertUpdateMeta, InsertUpdateDa
   protected synchronized void lookupValues( IRowMeta rowMeta, Object[] row ) throws HopException {
     // OK, now do the lookup.
     // We need the lookupvalues for that.
-    Object[] lookupRow = new Object[ data.lookupParameterRowMeta.size() ];
-    int lookupIndex = 0;
-
-    for ( int i = 0; i < data.keynrs.length; i++ ) {
-      if ( data.keynrs[ i ] >= 0 ) {
-        lookupRow[ lookupIndex ] = row[ data.keynrs[ i ] ];
-        lookupIndex++;
-      }
-      if ( data.keynrs2[ i ] >= 0 ) {
-        lookupRow[ lookupIndex ] = row[ data.keynrs2[ i ] ];
-        lookupIndex++;
-      }
-    }
+    Object[] lookupRow = getLookupRow( row );
+    RowMetaAndData batchKey = null;
+    Object[] add;
+    IRowMeta returnRowMeta;
 
-    data.db.setValues( data.lookupParameterRowMeta, lookupRow, data.prepStatementLookup );
+    if ( data.batchResults != null ) {
+      // The key was looked up together with the rest of the batch
+      //
+      batchKey = getBatchKey( lookupRow );
+      add = data.batchResults.get( batchKey );
+      returnRowMeta = data.batchReturnRowMeta;
+    } else {
+      data.db.setValues( data.lookupParameterRowMeta, lookupRow, data.prepStatementLookup );
 
-    if ( log.isDebug() ) {
-      logDebug( BaseMessages.getString( PKG, "InsertUpdate.Log.ValuesSetForLookup" )
-        + data.lookupParameterRowMeta.getString( lookupRow ) );
+      if ( log.isDebug() ) {
+        logDebug( BaseMessages.getString( PKG, "InsertUpdate.Log.ValuesSetForLookup" )
+          + data.lookupParameterRowMeta.getString( lookupRow ) );
+      }
+      add = data.db.getLookup( data.prepStatementLookup );
+      returnRowMeta = data.db.getReturnRowMeta();
     }
-    Object[] add = data.db.getLookup( data.prepStatementLookup );
     incrementLinesInput();
 
     if ( add == null ) {
@@ -105,9 +112,20 @@ public class InsertUpdate extends BaseTransform<InsertUpdateMeta, InsertUpdateDa
       data.db.setValuesInsert( data.insertRowMeta, insertRow );
 
       // Insert the row
-      data.db.insertRow();
+      if ( data.batchWrites ) {
+        data.db.insertRow( data.db.getPrepStatementInsert(), true, false );
+        data.batchInserts++;
+      } else {
+        data.db.insertRow();
+      }
 
       incrementLinesOutput();
+
+      if ( batchKey != null && !hasNullValue( batchKey.getData() ) ) {
+        // Later rows of the batch with the same key have to update the row we just inserted
+        //
+        rememberWrittenValues( batchKey, rowMeta, row );
+      }
     } else {
       if ( !meta.isUpdateBypassed() ) {
         if ( log.isRowLevel() ) {
@@ -124,7 +142,7 @@ public class InsertUpdate extends BaseTransform<InsertUpdateMeta, InsertUpdateDa
         for ( int i = 0; i < data.valuenrs.length; i++ ) {
           if ( meta.getUpdate()[ i ].booleanValue() ) {
             IValueMeta valueMeta = rowMeta.getValueMeta( data.valuenrs[ i ] );
-            IValueMeta retMeta = data.db.getReturnRowMeta().getValueMeta( i );
+            IValueMeta retMeta = returnRowMeta.getValueMeta( i );
 
             Object rowvalue = row[ data.valuenrs[ i ] ];
             Object retvalue = add[ i ];
@@ -154,8 +172,19 @@ public class InsertUpdate extends BaseTransform<InsertUpdateMeta, InsertUpdateDa
               + data.lookupParameterRowMeta.getString( lookupRow ) );
           }
           data.db.setValues( data.updateParameterRowMeta, updateRow, data.prepStatementUpdate );
-          data.db.insertRow( data.prepStatementUpdate );
+          if ( data.batchWrites ) {
+            data.db.insertRow( data.prepStatementUpdate, true, false );
+            data.batchUpdates++;
+          } else {
+            data.db.insertRow( data.prepStatementUpdate );
+          }
           incrementLinesUpdated();
+
+          if ( batchKey != null ) {
+            // Later rows of the batch with the same key compare with the values we just wrote
+            //
+            rememberWrittenValues( batchKey, rowMeta, row );
+          }
         } else {
           incrementLinesSkipped();
         }
@@ -168,15 +197,107 @@ public class InsertUpdate extends BaseTransform<InsertUpdateMeta, InsertUpdateDa
     }
   }
 
-  public boolean processRow() throws HopException {
+  private Object[] getLookupRow( Object[] row ) {
+    Object[] lookupRow = new Object[ data.lookupParameterRowMeta.size() ];
+    int lookupIndex = 0;
 
-    boolean sendToErrorRow = false;
-    String errorMessage = null;
+    for ( int i = 0; i < data.keynrs.length; i++ ) {
+      if ( data.keynrs[ i ] >= 0 ) {
+        lookupRow[ lookupIndex ] = row[ data.keynrs[ i ] ];
+        lookupIndex++;
+      }
+      if ( data.keynrs2[ i ] >= 0 ) {
+        lookupRow[ lookupIndex ] = row[ data.keynrs2[ i ] ];
+        lookupIndex++;
+      }
+    }
+    return lookupRow;
+  }
+
+  private RowMetaAndData getBatchKey( Object[] lookupRow ) throws HopValueException {
+    Object[] key = new Object[ lookupRow.length ];
+    for ( int i = 0; i < lookupRow.length; i++ ) {
+      key[ i ] = data.lookupParameterRowMeta.getValueMeta( i ).convertToNormalStorageType( lookupRow[ i ] );
+    }
+    return new RowMetaAndData( data.batchKeyMeta, key );
+  }
+
+  private boolean hasNullValue( Object[] key ) {
+    return Arrays.asList( key ).contains( null );
+  }
+
+  private void rememberWrittenValues( RowMetaAndData batchKey, IRowMeta rowMeta, Object[] row )
+    throws HopValueException {
+    Object[] written = new Object[ data.valuenrs.length ];
+    for ( int i = 0; i < data.valuenrs.length; i++ ) {
+      written[ i ] = data.batchReturnRowMeta.getValueMeta( i ).convertData(
+        rowMeta.getValueMeta( data.valuenrs[ i ] ), row[ data.valuenrs[ i ] ] );
+    }
+    data.batchResults.put( batchKey, written );
+  }
+
+  /**
+   * Looks up the keys of all buffered input rows with a single set based query. The answers are kept in
+   * {@link InsertUpdateData#batchResults}, keys that were not found map to null.
+   *
+   * @throws HopException In case something goes wrong.
+   */
+  @VisibleForTesting
+  void lookupBatch() throws HopException {
+    Map<RowMetaAndData, Object[]> results = new HashMap<>();
+    List<RowMetaAndData> keys = new ArrayList<>();
+
+    for ( Object[] row : data.batchRows ) {
+      RowMetaAndData key = getBatchKey( getLookupRow( row ) );
+      if ( !results.containsKey( key ) ) {
+        results.put( key, null );
+
+        // A null never equals anything: there is no need to ask the database
+        //
+        if ( !hasNullValue( key.getData() ) ) {
+          keys.add( key );
+        }
+      }
+    }
+
+    if ( !keys.isEmpty() ) {
+      List<Object[]> keysData = new ArrayList<>( keys.size() );
+      for ( RowMetaAndData key : keys ) {
+        keysData.add( key.getData() );
+      }
+
+      // The database tells which key a row belongs to: it can match a key that differs in case, padding, scale or
+      // precision from the value it returns, like the lookup of a single key
+      //
+      List<Object[]> rows = data.db.getLookupRowsPerKey(
+        environmentSubstitute( meta.getSchemaName() ), environmentSubstitute( meta.getTableName() ),
+        meta.getKeyLookup(), data.batchKeyMeta, keysData, meta.getUpdateLookup() );
+      IRowMeta rowMeta = data.db.getReturnRowMeta();
+
+      data.batchReturnRowMeta = new RowMeta();
+      for ( int i = 1; i < rowMeta.size(); i++ ) {
+        data.batchReturnRowMeta.addValueMeta( rowMeta.getValueMeta( i ) );
+      }
+
+      for ( Object[] row : rows ) {
+        RowMetaAndData key = keys.get( ( (Long) row[ 0 ] ).intValue() );
+        if ( results.get( key ) == null ) {
+          results.put( key, Arrays.copyOfRange( row, 1, rowMeta.size() ) );
+        }
+      }
+    }
+
+    data.batchResults = results;
+  }
+
+  public boolean processRow() throws HopException {
 
     Object[] r = getRow(); // Get row from input rowset & set row busy!
     if ( r == null ) {
       // no more input to be expected...
-
+      if ( data.batchRows != null && !data.batchRows.isEmpty() && !processBatch() ) {
+        return false;
+      }
       setOutputDone();
       return false;
     }
@@ -285,8 +406,126 @@ public class InsertUpdate extends BaseTransform<InsertUpdateMeta, InsertUpdateDa
         }
         prepareUpdate( getInputRowMeta() );
       }
+
+      initBatchLookup();
+    }
+
+    if ( data.batchLookup ) {
+      data.batchRows.add( r );
+      if ( data.batchRows.size() >= meta.getLookupBatchSize() ) {
+        return processBatch();
+      }
+      return true;
+    }
+
+    return processInsertUpdateRow( r );
+  }
+
+  private void initBatchLookup() throws HopDatabaseException {
+    data.batchLookup = meta.getLookupBatchSize() > 1 && meta.getKeyLookup().length > 0
+      && data.lookupParameterRowMeta.size() == meta.getKeyLookup().length;
+    for ( int i = 0; i < meta.getKeyCondition().length; i++ ) {
+      if ( !"=".equals( meta.getKeyCondition()[ i ] ) ) {
+        data.batchLookup = false;
+      }
+    }
+
+    if ( data.batchLookup ) {
+      data.batchRows = new ArrayList<>( meta.getLookupBatchSize() );
+      data.batchKeyMeta = new RowMeta();
+      for ( int i = 0; i < data.lookupParameterRowMeta.size(); i++ ) {
+        IValueMeta keyMeta = data.lookupParameterRowMeta.getValueMeta( i ).clone();
+        keyMeta.setStorageType( IValueMeta.STORAGE_TYPE_NORMAL );
+        data.batchKeyMeta.addValueMeta( keyMeta );
+      }
+
+      // Without error handling the inserts and updates of a batch can be sent as JDBC batches as well
+      //
+      data.commitSize = meta.getCommitSize( this );
+      data.batchWrites = !getTransformMeta().isDoingErrorHandling() && !data.db.isAutoCommit()
+        && data.db.getUseBatchInsert( true );
+    } else if ( meta.getLookupBatchSize() > 1 ) {
+      logBasic( BaseMessages.getString( PKG, "InsertUpdate.Log.LookupBatchDisabled" ) );
+    }
+  }
+
+  /**
+   * Looks up the buffered rows with one set based query and inserts or updates them in their original order.
+   */
+  private boolean processBatch() throws HopException {
+    try {
+      lookupBatch();
+    } catch ( HopException e ) {
+      if ( getTransformMeta().isDoingErrorHandling() ) {
+        // Look the rows up one by one so that only the offending rows end up in the error stream
+        //
+        data.batchResults = null;
+      } else {
+        logError( BaseMessages.getString( PKG, "InsertUpdate.Log.ErrorInTransform" ), e );
+        setErrors( 1 );
+        stopAll();
+        setOutputDone(); // signal end to receiver(s)
+        return false;
+      }
+    }
+
+    try {
+      for ( Object[] row : data.batchRows ) {
+        if ( !processInsertUpdateRow( row ) ) {
+          return false;
+        }
+      }
+      if ( data.batchWrites ) {
+        executeBatchWrites();
+      }
+    } catch ( HopException e ) {
+      logError( BaseMessages.getString( PKG, "InsertUpdate.Log.ErrorInTransform" ), e );
+      setErrors( 1 );
+      stopAll();
+      setOutputDone(); // signal end to receiver(s)
+      return false;
+    } finally {
+      data.batchRows.clear();
+      data.batchResults = null;
+    }
+    return true;
+  }
+
+  /**
+   * Sends the inserts and updates of the current batch to the database. The inserts go first: a row inserted by the
+   * batch can be updated by a later row of the same batch, never the other way around.
+   */
+  private void executeBatchWrites() throws HopDatabaseException {
+    if ( data.batchInserts > 0 ) {
+      executeBatch( data.db.getPrepStatementInsert() );
+    }
+    if ( data.batchUpdates > 0 ) {
+      executeBatch( data.prepStatementUpdate );
     }
 
+    data.batchUncommitted += data.batchInserts + data.batchUpdates;
+    data.batchInserts = 0;
+    data.batchUpdates = 0;
+
+    if ( data.batchUncommitted >= data.commitSize ) {
+      data.db.commit();
+      data.batchUncommitted = 0;
+    }
+  }
+
+  private void executeBatch( PreparedStatement ps ) throws HopDatabaseException {
+    try {
+      ps.executeBatch();
+      ps.clearBatch();
+    } catch ( SQLException e ) {
+      throw Database.createHopDatabaseBatchException( "Error updating batch", e );
+    }
+  }
+
+  private boolean processInsertUpdateRow( Object[] r ) throws HopException {
+    boolean sendToErrorRow = false;
+    String errorMessage = null;
+
     try {
       lookupValues( getInputRowMeta(), r ); // add new values to the row in rowset[0].
       putRow( data.outputRowMeta, r ); // Nothing changed to the input, return the same row, pass a "cloned" metadata
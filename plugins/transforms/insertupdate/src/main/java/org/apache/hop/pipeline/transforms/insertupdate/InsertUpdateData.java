@@ -23,6 +23,7 @@
 
 package org.apache.hop.pipeline.transforms.insertupdate;
 
+import org.apache.hop.core.RowMetaAndData;
 import org.apache.hop.core.annotations.Transform;
 import org.apache.hop.core.database.Database;
 import org.apache.hop.core.row.IRowMeta;
@@ -30,6 +31,8 @@ import org.apache.hop.pipeline.transform.BaseTransformData;
 import org.apache.hop.pipeline.transform.ITransformData;
 
 import java.sql.PreparedStatement;
+import java.util.List;
+import java.util.Map;
 
 /**
  * Stores data for the Insert/Update transform.
@@ -54,6 +57,18 @@ public class InsertUpdateData extends BaseTransformData implements ITransformDat
   public IRowMeta lookupReturnRowMeta;
   public IRowMeta insertRowMeta;
 
+  public boolean batchLookup; // look up the keys of several input rows with a single query
+  public List<Object[]> batchRows; // input rows waiting for the next set based lookup
+  public IRowMeta batchKeyMeta; // the key values in normal storage
+  public IRowMeta batchReturnRowMeta; // the looked up values as returned by the database
+  public Map<RowMetaAndData, Object[]> batchResults; // looked up keys of the current batch, null when not found
+
+  public boolean batchWrites; // send the inserts and updates of a batch as JDBC batches
+  public int batchInserts; // inserts added to the insert statement batch
+  public int batchUpdates; // updates added to the update statement batch
+  public int batchUncommitted; // rows written since the last commit
+  public int commitSize;
+
   /**
    * Default constructor.
    */
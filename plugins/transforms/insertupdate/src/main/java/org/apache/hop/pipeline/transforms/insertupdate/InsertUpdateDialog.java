@@ -81,6 +81,8 @@ public class InsertUpdateDialog extends BaseTransformDialog implements ITransfor
 
   private Button wUpdateBypassed;
 
+  private Text wLookupBatchSize;
+
   private final InsertUpdateMeta input;
 
   private final Map<String, Integer> inputFields;
@@ -244,12 +246,32 @@ public class InsertUpdateDialog extends BaseTransformDialog implements ITransfor
     wUpdateBypassed.setLayoutData(fdUpdateBypassed);
     wUpdateBypassed.addSelectionListener( new ComponentSelectionListener( input ) );
 
+    // Lookup batch size
+    Label wlLookupBatchSize = new Label( shell, SWT.RIGHT );
+    wlLookupBatchSize.setText( BaseMessages.getString( PKG, "InsertUpdateDialog.LookupBatchSize.Label" ) );
+    wlLookupBatchSize.setToolTipText( BaseMessages.getString( PKG, "InsertUpdateDialog.LookupBatchSize.Tooltip" ) );
+    props.setLook( wlLookupBatchSize );
+    FormData fdlLookupBatchSize = new FormData();
+    fdlLookupBatchSize.left = new FormAttachment( 0, 0 );
+    fdlLookupBatchSize.top = new FormAttachment( wUpdateBypassed, margin );
+    fdlLookupBatchSize.right = new FormAttachment( middle, -margin );
+    wlLookupBatchSize.setLayoutData( fdlLookupBatchSize );
+    wLookupBatchSize = new Text( shell, SWT.SINGLE | SWT.LEFT | SWT.BORDER );
+    wLookupBatchSize.setToolTipText( BaseMessages.getString( PKG, "InsertUpdateDialog.LookupBatchSize.Tooltip" ) );
+    props.setLook( wLookupBatchSize );
+    wLookupBatchSize.addModifyListener( lsMod );
+    FormData fdLookupBatchSize = new FormData();
+    fdLookupBatchSize.left = new FormAttachment( middle, 0 );
+    fdLookupBatchSize.top = new FormAttachment( wUpdateBypassed, margin );
+    fdLookupBatchSize.right = new FormAttachment( 100, 0 );
+    wLookupBatchSize.setLayoutData( fdLookupBatchSize );
+
     Label wlKey = new Label(shell, SWT.NONE);
     wlKey.setText( BaseMessages.getString( PKG, "InsertUpdateDialog.Keys.Label" ) );
     props.setLook(wlKey);
     FormData fdlKey = new FormData();
     fdlKey.left = new FormAttachment( 0, 0 );
-    fdlKey.top = new FormAttachment( wUpdateBypassed, margin );
+    fdlKey.top = new FormAttachment( wLookupBatchSize, margin );
     wlKey.setLayoutData(fdlKey);
 
     int nrKeyCols = 4;
@@ -396,6 +418,7 @@ public class InsertUpdateDialog extends BaseTransformDialog implements ITransfor
     wSchema.addSelectionListener( lsDef );
     wTable.addSelectionListener( lsDef );
     wCommit.addSelectionListener( lsDef );
+    wLookupBatchSize.addSelectionListener( lsDef );
 
     // Detect X or ALT-F4 or something that kills this window...
     shell.addShellListener( new ShellAdapter() {
@@ -585,6 +608,7 @@ public class InsertUpdateDialog extends BaseTransformDialog implements ITransfor
 
     wCommit.setText( input.getCommitSizeVar() );
     wUpdateBypassed.setSelection( input.isUpdateBypassed() );
+    wLookupBatchSize.setText( "" + input.getLookupBatchSize() );
 
     if ( input.getKeyStream() != null ) {
       for ( int i = 0; i < input.getKeyStream().length; i++ ) {
@@ -655,6 +679,7 @@ public class InsertUpdateDialog extends BaseTransformDialog implements ITransfor
 
     inf.setCommitSize( wCommit.getText() );
     inf.setUpdateBypassed( wUpdateBypassed.getSelection() );
+    inf.setLookupBatchSize( Const.toInt( wLookupBatchSize.getText(), 0 ) );
 
     if ( log.isDebug() ) {
       logDebug( BaseMessages.getString( PKG, "InsertUpdateDialog.Log.FoundKeys", nrkeys + "" ) );
@@ -145,6 +145,12 @@ public class InsertUpdateMeta extends BaseTransformMeta implements ITransformMet
   @Injection( name = "DO_NOT" )
   private boolean updateBypassed;
 
+  /**
+   * The number of input rows to look up with a single query, 0 or 1 looks up row by row
+   */
+  @Injection( name = "LOOKUP_BATCH_SIZE" )
+  private int lookupBatchSize;
+
   @Injection( name = "CONNECTIONNAME" )
   public void setConnection( String connectionName ) {
     try {
@@ -369,6 +375,7 @@ public class InsertUpdateMeta extends BaseTransformMeta implements ITransformMet
       schemaName = XmlHandler.getTagValue( transformNode, "lookup", "schema" );
       tableName = XmlHandler.getTagValue( transformNode, "lookup", "table" );
       updateBypassed = "Y".equalsIgnoreCase( XmlHandler.getTagValue( transformNode, "update_bypassed" ) );
+      lookupBatchSize = Const.toInt( XmlHandler.getTagValue( transformNode, "lookup_batch_size" ), 0 );
 
       Node lookup = XmlHandler.getSubNode( transformNode, "lookup" );
       nrkeys = XmlHandler.countNodes( lookup, "key" );
@@ -419,6 +426,7 @@ public class InsertUpdateMeta extends BaseTransformMeta implements ITransformMet
     updateLookup = null;
     databaseMeta = null;
     commitSize = "100";
+    lookupBatchSize = 0;
     schemaName = "";
     tableName = BaseMessages.getString( PKG, "InsertUpdateMeta.DefaultTableName" );
 
@@ -449,6 +457,7 @@ public class InsertUpdateMeta extends BaseTransformMeta implements ITransformMet
       XmlHandler.addTagValue( "connection", databaseMeta == null ? "" : databaseMeta.getName() ) );
     retval.append( "    " ).append( XmlHandler.addTagValue( "commit", commitSize ) );
     retval.append( "    " ).append( XmlHandler.addTagValue( "update_bypassed", updateBypassed ) );
+    retval.append( "    " ).append( XmlHandler.addTagValue( "lookup_batch_size", lookupBatchSize ) );
     retval.append( "    <lookup>" ).append( Const.CR );
     retval.append( "      " ).append( XmlHandler.addTagValue( "schema", schemaName ) );
     retval.append( "      " ).append( XmlHandler.addTagValue( "table", tableName ) );
@@ -799,6 +808,20 @@ public class InsertUpdateMeta extends BaseTransformMeta implements ITransformMet
     this.updateBypassed = updateBypassed;
   }
 
+  /**
+   * @return The number of input rows to look up with a single query
+   */
+  public int getLookupBatchSize() {
+    return lookupBatchSize;
+  }
+
+  /**
+   * @param lookupBatchSize The number of input rows to look up with a single query
+   */
+  public void setLookupBatchSize( int lookupBatchSize ) {
+    this.lookupBatchSize = lookupBatchSize;
+  }
+
   public IRowMeta getRequiredFields( IVariables variables ) throws HopException {
     String realSchemaName = variables.environmentSubstitute( schemaName );
     String realTableName = variables.environmentSubstitute( tableName );
@@ -43,6 +43,7 @@ public class InsertUpdateMetaInjectionTest extends BaseMetadataInjectionTest<Ins
     check( "TABLE_NAME", () -> meta.getTableName() );
     check( "COMMIT_SIZE", () -> meta.getCommitSizeVar() );
     check( "DO_NOT", () -> meta.isUpdateBypassed() );
+    check( "LOOKUP_BATCH_SIZE", () -> meta.getLookupBatchSize() );
     check( "KEY_STREAM", () -> meta.getKeyStream()[ 0 ] );
     check( "KEY_LOOKUP", () -> meta.getKeyLookup()[ 0 ] );
     check( "KEY_CONDITION", () -> meta.getKeyCondition()[ 0 ] );
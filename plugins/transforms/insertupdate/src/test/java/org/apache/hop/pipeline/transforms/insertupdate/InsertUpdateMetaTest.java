@@ -148,7 +148,8 @@ public class InsertUpdateMetaTest {
   public void setUpLoadSave() throws Exception {
     List<String> attributes =
       Arrays.asList( "schemaName", "tableName", "databaseMeta", "keyStream", "keyLookup", "keyCondition",
-        "keyStream2", "updateLookup", "updateStream", "update", "commitSize", "updateBypassed" );
+        "keyStream2", "updateLookup", "updateStream", "update", "commitSize", "updateBypassed",
+        "lookupBatchSize" );
 
     Map<String, String> getterMap = new HashMap<String, String>() {
       {
@@ -164,6 +165,7 @@ public class InsertUpdateMetaTest {
         put( "update", "getUpdate" );
         put( "commitSize", "getCommitSizeVar" );
         put( "updateBypassed", "isUpdateBypassed" );
+        put( "lookupBatchSize", "getLookupBatchSize" );
       }
     };
 
@@ -181,6 +183,7 @@ public class InsertUpdateMetaTest {
         put( "update", "setUpdate" );
         put( "commitSize", "setCommitSize" );
         put( "updateBypassed", "setUpdateBypassed" );
+        put( "lookupBatchSize", "setLookupBatchSize" );
       }
     };
     IFieldLoadSaveValidator<String[]> stringArrayLoadSaveValidator =
@@ -0,0 +1,210 @@
+/*! ******************************************************************************
+ *
+ * Hop : The Hop Orchestration Platform
+ *
+ * Copyright (C) 2002-2017 by Hitachi Vantara : http://www.pentaho.com
+ * http://www.project-hop.org
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.apache.hop.pipeline.transforms.insertupdate;
+
+import org.apache.hop.core.database.Database;
+import org.apache.hop.core.logging.ILoggingObject;
+import org.apache.hop.core.row.IRowMeta;
+import org.apache.hop.core.row.RowMeta;
+import org.apache.hop.core.row.value.ValueMetaInteger;
+import org.apache.hop.core.row.value.ValueMetaString;
+import org.apache.hop.pipeline.transforms.mock.TransformMockHelper;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.AdditionalMatchers.aryEq;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class InsertUpdateTest {
+  private TransformMockHelper<InsertUpdateMeta, InsertUpdateData> smh;
+
+  @Before
+  public void setUp() {
+    smh = new TransformMockHelper<>( "InsertUpdate", InsertUpdateMeta.class, InsertUpdateData.class );
+    when( smh.logChannelFactory.create( any(), any( ILoggingObject.class ) ) ).thenReturn(
+      smh.logChannelInterface );
+    when( smh.pipeline.isRunning() ).thenReturn( true );
+  }
+
+  @After
+  public void cleanUp() {
+    smh.cleanUp();
+  }
+
+  @Test
+  @SuppressWarnings( "unchecked" )
+  public void testBatchLookupSendsInsertsAndUpdatesAsJdbcBatches() throws Exception {
+    InsertUpdateMeta meta = smh.iTransformMeta;
+    when( meta.getLookupBatchSize() ).thenReturn( 4 );
+    when( meta.getKeyLookup() ).thenReturn( new String[] { "id" } );
+    when( meta.getKeyCondition() ).thenReturn( new String[] { "=" } );
+    when( meta.getUpdateLookup() ).thenReturn( new String[] { "name" } );
+    when( meta.getUpdate() ).thenReturn( new Boolean[] { Boolean.TRUE } );
+
+    RowMeta inputRowMeta = new RowMeta();
+    inputRowMeta.addValueMeta( new ValueMetaInteger( "id" ) );
+    inputRowMeta.addValueMeta( new ValueMetaString( "name" ) );
+    RowMeta returnRowMeta = new RowMeta();
+    returnRowMeta.addValueMeta( new ValueMetaInteger( "KEY_NR" ) );
+    returnRowMeta.addValueMeta( new ValueMetaString( "name" ) );
+
+    PreparedStatement prepStatementInsert = mock( PreparedStatement.class );
+    PreparedStatement prepStatementUpdate = mock( PreparedStatement.class );
+    Database db = mock( Database.class );
+    when( db.getReturnRowMeta() ).thenReturn( returnRowMeta );
+    when( db.getPrepStatementInsert() ).thenReturn( prepStatementInsert );
+    when( db.getLookupRowsPerKey( anyString(), anyString(), any( String[].class ), any( IRowMeta.class ),
+      any( List.class ), any( String[].class ) ) ).thenReturn( Collections.singletonList( new Object[] { 0L, "x" } ) );
+
+    InsertUpdateData data = smh.iTransformData;
+    data.db = db;
+    data.keynrs = new int[] { 0 };
+    data.keynrs2 = new int[] { -1 };
+    data.valuenrs = new int[] { 1 };
+    data.outputRowMeta = inputRowMeta;
+    data.prepStatementUpdate = prepStatementUpdate;
+    data.lookupParameterRowMeta = new RowMeta();
+    data.lookupParameterRowMeta.addValueMeta( new ValueMetaInteger( "id" ) );
+    data.updateParameterRowMeta = new RowMeta();
+    data.updateParameterRowMeta.addValueMeta( new ValueMetaString( "name" ) );
+    data.updateParameterRowMeta.addValueMeta( new ValueMetaInteger( "id" ) );
+    data.insertRowMeta = new RowMeta();
+    data.insertRowMeta.addValueMeta( new ValueMetaString( "name" ) );
+    data.batchLookup = true;
+    data.batchRows = new ArrayList<>();
+    data.batchKeyMeta = data.lookupParameterRowMeta.clone();
+    data.batchWrites = true;
+    data.commitSize = 3;
+
+    InsertUpdate insertUpdate =
+      new InsertUpdate( smh.transformMeta, meta, data, 0, smh.pipelineMeta, smh.pipeline );
+    insertUpdate.setInputRowMeta( inputRowMeta );
+    insertUpdate.addRowSetToInputRowSets( smh.getMockInputRowSet( new Object[] { 1L, "a" },
+      new Object[] { 2L, "b" }, new Object[] { 2L, "b" }, new Object[] { 2L, "c" } ) );
+    insertUpdate.first = false;
+
+    for ( int i = 0; i < 4; i++ ) {
+      assertTrue( insertUpdate.processRow() );
+    }
+
+    verify( db ).getLookupRowsPerKey( anyString(), anyString(), any( String[].class ), any( IRowMeta.class ),
+      any( List.class ), any( String[].class ) );
+    verify( db, never() ).getLookup( any( PreparedStatement.class ) );
+
+    // key 1 is updated, key 2 is inserted once, left alone once and then updated with the value "c"
+    verify( db ).setValuesInsert( any( IRowMeta.class ), aryEq( new Object[] { "b" } ) );
+    verify( db ).insertRow( prepStatementInsert, true, false );
+    verify( db ).setValues( any( IRowMeta.class ), aryEq( new Object[] { "a", 1L } ), eq( prepStatementUpdate ) );
+    verify( db ).setValues( any( IRowMeta.class ), aryEq( new Object[] { "c", 2L } ), eq( prepStatementUpdate ) );
+    verify( db, times( 2 ) ).insertRow( prepStatementUpdate, true, false );
+    assertEquals( 1, insertUpdate.getLinesOutput() );
+    assertEquals( 2, insertUpdate.getLinesUpdated() );
+    assertEquals( 1, insertUpdate.getLinesSkipped() );
+
+    // the batches are executed once, after all the rows of the batch were processed, followed by a commit
+    verify( prepStatementInsert ).executeBatch();
+    verify( prepStatementUpdate ).executeBatch();
+    verify( db ).commit();
+  }
+
+  @Test
+  @SuppressWarnings( "unchecked" )
+  public void testBatchLookupUsesTheKeysMatchedByTheDatabase() throws Exception {
+    InsertUpdateMeta meta = smh.iTransformMeta;
+    when( meta.getLookupBatchSize() ).thenReturn( 2 );
+    when( meta.getKeyLookup() ).thenReturn( new String[] { "code" } );
+    when( meta.getKeyCondition() ).thenReturn( new String[] { "=" } );
+    when( meta.getUpdateLookup() ).thenReturn( new String[] { "name" } );
+    when( meta.getUpdate() ).thenReturn( new Boolean[] { Boolean.TRUE } );
+
+    RowMeta inputRowMeta = new RowMeta();
+    inputRowMeta.addValueMeta( new ValueMetaString( "code" ) );
+    inputRowMeta.addValueMeta( new ValueMetaString( "name" ) );
+    RowMeta returnRowMeta = new RowMeta();
+    returnRowMeta.addValueMeta( new ValueMetaInteger( "KEY_NR" ) );
+    returnRowMeta.addValueMeta( new ValueMetaString( "name" ) );
+
+    // A case insensitive database stores "abc" and finds it for the key "ABC ", the second key is not found
+    //
+    PreparedStatement prepStatementInsert = mock( PreparedStatement.class );
+    PreparedStatement prepStatementUpdate = mock( PreparedStatement.class );
+    Database db = mock( Database.class );
+    when( db.getReturnRowMeta() ).thenReturn( returnRowMeta );
+    when( db.getPrepStatementInsert() ).thenReturn( prepStatementInsert );
+    when( db.getLookupRowsPerKey( anyString(), anyString(), any( String[].class ), any( IRowMeta.class ),
+      any( List.class ), any( String[].class ) ) ).thenReturn( Collections.singletonList( new Object[] { 0L, "old" } ) );
+
+    InsertUpdateData data = smh.iTransformData;
+    data.db = db;
+    data.keynrs = new int[] { 0 };
+    data.keynrs2 = new int[] { -1 };
+    data.valuenrs = new int[] { 1 };
+    data.outputRowMeta = inputRowMeta;
+    data.prepStatementUpdate = prepStatementUpdate;
+    data.lookupParameterRowMeta = new RowMeta();
+    data.lookupParameterRowMeta.addValueMeta( new ValueMetaString( "code" ) );
+    data.updateParameterRowMeta = new RowMeta();
+    data.updateParameterRowMeta.addValueMeta( new ValueMetaString( "name" ) );
+    data.updateParameterRowMeta.addValueMeta( new ValueMetaString( "code" ) );
+    data.insertRowMeta = new RowMeta();
+    data.insertRowMeta.addValueMeta( new ValueMetaString( "name" ) );
+    data.batchLookup = true;
+    data.batchRows = new ArrayList<>();
+    data.batchKeyMeta = data.lookupParameterRowMeta.clone();
+    data.batchWrites = true;
+    data.commitSize = 3;
+
+    InsertUpdate insertUpdate =
+      new InsertUpdate( smh.transformMeta, meta, data, 0, smh.pipelineMeta, smh.pipeline );
+    insertUpdate.setInputRowMeta( inputRowMeta );
+    insertUpdate.addRowSetToInputRowSets( smh.getMockInputRowSet( new Object[] { "ABC ", "new" },
+      new Object[] { "xyz", "other" } ) );
+    insertUpdate.first = false;
+
+    assertTrue( insertUpdate.processRow() );
+    assertTrue( insertUpdate.processRow() );
+
+    // the existing row is updated rather than inserted a second time
+    verify( db ).setValues( any( IRowMeta.class ), aryEq( new Object[] { "new", "ABC " } ),
+      eq( prepStatementUpdate ) );
+    verify( db ).setValuesInsert( any( IRowMeta.class ), aryEq( new Object[] { "other" } ) );
+    assertEquals( 1, insertUpdate.getLinesOutput() );
+    assertEquals( 1, insertUpdate.getLinesUpdated() );
+  }
+}
@@ -47,6 +47,7 @@ import org.apache.hop.pipeline.transforms.jsoninput.exception.JsonInputException
 import org.apache.hop.pipeline.transforms.jsoninput.reader.FastJsonReader;
 import org.apache.hop.pipeline.transforms.jsoninput.reader.InputsReader;
 import org.apache.hop.pipeline.transforms.jsoninput.reader.RowOutputConverter;
+import org.apache.hop.pipeline.transforms.jsoninput.reader.StreamingJsonReader;
 import org.apache.poi.util.IOUtils;
 
 import java.io.ByteArrayInputStream;
@@ -256,14 +257,38 @@ public class JsonInput extends BaseFileInputTransform<JsonInputMeta, JsonInputDa
   private void parseNextInputToRowSet( InputStream input ) throws HopException {
     try {
       data.readerRowSet = data.reader.parse( input );
-      input.close();
     } catch ( HopException ke ) {
+      closeInput( input );
       logInputError( ke );
       throw new JsonInputException( ke );
     } catch ( Exception e ) {
+      closeInput( input );
       logInputError( e );
       throw new JsonInputException( e );
     }
+    // a streamed document is still being read and closes the input when done
+    //
+    if ( data.readerRowSet.isDone() ) {
+      closeInput( input );
+    }
+  }
+
+  private void closeInput( InputStream input ) {
+    try {
+      input.close();
+    } catch ( IOException e ) {
+      logError( BaseMessages.getString( PKG, "JsonInput.Log.UnexpectedError", e.toString() ), e );
+      incrementErrors();
+    }
+  }
+
+  private Object[] getReaderRow() throws HopException {
+    try {
+      return data.readerRowSet.getRow();
+    } catch ( StreamingJsonReader.StreamingException e ) {
+      logInputError( e.getCause() );
+      throw new JsonInputException( e.getCause() );
+    }
   }
 
   private void logInputError( HopException e ) {
@@ -321,19 +346,13 @@ public class JsonInput extends BaseFileInputTransform<JsonInputMeta, JsonInputDa
       return null;
     }
     Object[] rawReaderRow = null;
-    while ( ( rawReaderRow = data.readerRowSet.getRow() ) == null ) {
+    while ( ( rawReaderRow = getReaderRow() ) == null ) {
       if ( data.inputs.hasNext() && data.readerRowSet.isDone() ) {
-        try ( InputStream nextIn = data.inputs.next() ) {
-
-          if ( nextIn != null ) {
-            parseNextInputToRowSet( nextIn );
-          } else {
-            parseNextInputToRowSet( new ByteArrayInputStream( EMPTY_JSON ) );
-          }
-
-        } catch ( IOException e ) {
-          logError( BaseMessages.getString( PKG, "JsonInput.Log.UnexpectedError", e.toString() ), e );
-          incrementErrors();
+        InputStream nextIn = data.inputs.next();
+        if ( nextIn != null ) {
+          parseNextInputToRowSet( nextIn );
+        } else {
+          parseNextInputToRowSet( new ByteArrayInputStream( EMPTY_JSON ) );
         }
       } else {
         if ( isDetailed() ) {
@@ -439,7 +458,7 @@ public class JsonInput extends BaseFileInputTransform<JsonInputMeta, JsonInputDa
 
   private void createReader() throws HopException {
     // provide reader input fields with real path [PDI-15942]
-    // [PDI-18283] Need to have this run before we create the FastJsonReader, so we can use resolve Json Paths
+    // [PDI-18283] Need to have this run before we create the reader, so we can use resolve Json Paths
     JsonInputField[] inputFields = new JsonInputField[data.nrInputFields];
     for ( int i = 0; i < data.nrInputFields; i++ ) {
       JsonInputField field = meta.getInputFields()[ i ].clone();
@@ -447,7 +466,15 @@ public class JsonInput extends BaseFileInputTransform<JsonInputMeta, JsonInputDa
       inputFields[i] = field;
     }
     // Instead of putting in the meta.inputFields, we put in our json path resolved input fields
-    data.reader = new FastJsonReader( inputFields, meta.isDefaultPathLeafToNull(), log );
+    if ( meta.isStreamingReader() ) {
+      StreamingJsonReader reader = new StreamingJsonReader( inputFields, meta.isDefaultPathLeafToNull(), log );
+      if ( reader.isStreaming() && log.isDetailed() ) {
+        logDetailed( BaseMessages.getString( PKG, "JsonInput.Log.StreamingPaths" ) );
+      }
+      data.reader = reader;
+    } else {
+      data.reader = new FastJsonReader( inputFields, meta.isDefaultPathLeafToNull(), log );
+    }
     data.reader.setIgnoreMissingPath( meta.isIgnoreMissingPath() );
   }
 
@@ -458,6 +485,9 @@ public class JsonInput extends BaseFileInputTransform<JsonInputMeta, JsonInputDa
     }
     data.inputs = null;
     data.reader = null;
+    if ( data.readerRowSet != null ) {
+      data.readerRowSet.clear();
+    }
     data.readerRowSet = null;
     data.repeatedFields = null;
     super.dispose( );
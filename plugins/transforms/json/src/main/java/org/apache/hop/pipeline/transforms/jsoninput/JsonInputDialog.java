@@ -114,6 +114,8 @@ public class JsonInputDialog extends BaseTransformDialog implements ITransformDi
 
   private Button wDefaultPathLeafToNull;
 
+  private Button wStreamingReader;
+
   private Button wdoNotFailIfNoFile;
 
   private TextVar wShortFileFieldName;
@@ -569,12 +571,36 @@ public class JsonInputDialog extends BaseTransformDialog implements ITransformDi
     wDefaultPathLeafToNull.setLayoutData( fdDefaultPathLeafToNull );
     // default path leaf to null - end
 
+    // streaming reader
+    //
+    Label wlStreamingReader = new Label( wConf, SWT.RIGHT );
+    wlStreamingReader.setText( BaseMessages.getString( PKG, "JsonInputDialog.StreamingReader.Label" ) );
+    props.setLook( wlStreamingReader );
+    FormData fdlStreamingReader = new FormData();
+    fdlStreamingReader.left = new FormAttachment( 0, 0 );
+    fdlStreamingReader.top = new FormAttachment( wDefaultPathLeafToNull, margin );
+    fdlStreamingReader.right = new FormAttachment( middle, -margin );
+    wlStreamingReader.setLayoutData( fdlStreamingReader );
+    wStreamingReader = new Button( wConf, SWT.CHECK );
+    props.setLook( wStreamingReader );
+    wStreamingReader.addSelectionListener( new SelectionAdapter() {
+      public void widgetSelected( SelectionEvent e ) {
+        input.setChanged();
+      }
+    } );
+    wStreamingReader.setToolTipText( BaseMessages.getString( PKG, "JsonInputDialog.StreamingReader.Tooltip" ) );
+    FormData fdStreamingReader = new FormData();
+    fdStreamingReader.left = new FormAttachment( middle, 0 );
+    fdStreamingReader.top = new FormAttachment( wlStreamingReader, 0, SWT.CENTER );
+    wStreamingReader.setLayoutData( fdStreamingReader );
+    // streaming reader - end
+
     wlLimit = new Label( wConf, SWT.RIGHT );
     wlLimit.setText( BaseMessages.getString( PKG, "JsonInputDialog.Limit.Label" ) );
     props.setLook( wlLimit );
     FormData fdlLimit = new FormData();
     fdlLimit.left = new FormAttachment( 0, 0 );
-    fdlLimit.top = new FormAttachment( wDefaultPathLeafToNull, margin );
+    fdlLimit.top = new FormAttachment( wStreamingReader, margin );
     fdlLimit.right = new FormAttachment( middle, -margin );
     wlLimit.setLayoutData( fdlLimit );
     wLimit = new Text( wConf, SWT.SINGLE | SWT.LEFT | SWT.BORDER );
@@ -582,7 +608,7 @@ public class JsonInputDialog extends BaseTransformDialog implements ITransformDi
     wLimit.addModifyListener( lsMod );
     FormData fdLimit = new FormData();
     fdLimit.left = new FormAttachment( middle, 0 );
-    fdLimit.top = new FormAttachment( wDefaultPathLeafToNull, margin );
+    fdLimit.top = new FormAttachment( wStreamingReader, margin );
     fdLimit.right = new FormAttachment( 100, 0 );
     wLimit.setLayoutData( fdLimit );
 
@@ -1170,6 +1196,7 @@ public class JsonInputDialog extends BaseTransformDialog implements ITransformDi
     wdoNotFailIfNoFile.setSelection( in.isDoNotFailIfNoFile() );
     wIgnoreMissingPath.setSelection( in.isIgnoreMissingPath() );
     wDefaultPathLeafToNull.setSelection( in.isDefaultPathLeafToNull() );
+    wStreamingReader.setSelection( in.isStreamingReader() );
     wRemoveSourceField.setSelection( in.isRemoveSourceField() );
     wSourceStreamField.setSelection( in.isInFields() );
     wSourceIsAFile.setSelection( in.getIsAFile() );
@@ -1312,6 +1339,7 @@ public class JsonInputDialog extends BaseTransformDialog implements ITransformDi
     in.setDoNotFailIfNoFile( wdoNotFailIfNoFile.getSelection() );
     in.setIgnoreMissingPath( wIgnoreMissingPath.getSelection() );
     in.setDefaultPathLeafToNull( wDefaultPathLeafToNull.getSelection() );
+    in.setStreamingReader( wStreamingReader.getSelection() );
     in.setRemoveSourceField( wRemoveSourceField.getSelection() );
     in.setInFields( wSourceStreamField.getSelection() );
     in.setIsAFile( wSourceIsAFile.getSelection() );
@@ -261,6 +261,12 @@ public class JsonInputMeta
 
   private boolean defaultPathLeafToNull;
 
+  /**
+   * Flag : read the records while parsing when all paths iterate over the same records
+   */
+  @Injection( name = "STREAMING_READER" )
+  private boolean streamingReader;
+
   public JsonInputMeta() {
     additionalOutputFields = new AdditionalFileOutputFields();
     inputFiles = new InputFiles();
@@ -285,6 +291,20 @@ public class JsonInputMeta
     this.defaultPathLeafToNull = defaultPathLeafToNull;
   }
 
+  /**
+   * @return true if the records are read while parsing when all paths iterate over the same records
+   */
+  public boolean isStreamingReader() {
+    return streamingReader;
+  }
+
+  /**
+   * @param streamingReader true to read the records while parsing when all paths iterate over the same records
+   */
+  public void setStreamingReader( boolean streamingReader ) {
+    this.streamingReader = streamingReader;
+  }
+
   /**
    * @return Returns the shortFileFieldName.
    */
@@ -643,6 +663,7 @@ public class JsonInputMeta
     retval.append( "    " + XmlHandler.addTagValue( "doNotFailIfNoFile", doNotFailIfNoFile ) );
     retval.append( "    " + XmlHandler.addTagValue( "ignoreMissingPath", ignoreMissingPath ) );
     retval.append( "    " + XmlHandler.addTagValue( "defaultPathLeafToNull", defaultPathLeafToNull ) );
+    retval.append( "    " + XmlHandler.addTagValue( "streamingReader", streamingReader ) );
     retval.append( "    " ).append( XmlHandler.addTagValue( "rownum_field", rowNumberField ) );
 
     retval.append( "    <file>" ).append( Const.CR );
@@ -702,6 +723,7 @@ public class JsonInputMeta
       isIgnoreEmptyFile = "Y".equalsIgnoreCase( XmlHandler.getTagValue( transformNode, "IsIgnoreEmptyFile" ) );
       ignoreMissingPath = "Y".equalsIgnoreCase( XmlHandler.getTagValue( transformNode, "ignoreMissingPath" ) );
       defaultPathLeafToNull = getDefaultPathLeafToNull( transformNode );
+      streamingReader = "Y".equalsIgnoreCase( XmlHandler.getTagValue( transformNode, "streamingReader" ) );
       doNotFailIfNoFile = "Y".equalsIgnoreCase( XmlHandler.getTagValue( transformNode, "doNotFailIfNoFile" ) );
       includeRowNumber = "Y".equalsIgnoreCase( XmlHandler.getTagValue( transformNode, "rownum" ) );
       rowNumberField = XmlHandler.getTagValue( transformNode, "rownum_field" );
@@ -781,6 +803,7 @@ public class JsonInputMeta
     isIgnoreEmptyFile = false;
     ignoreMissingPath = true;
     defaultPathLeafToNull = true;
+    streamingReader = false;
     doNotFailIfNoFile = true;
     includeFilename = false;
     filenameField = "";
@@ -0,0 +1,508 @@
+/*! ******************************************************************************
+ *
+ * Hop : The Hop Orchestration Platform
+ *
+ * Copyright (C) 2016-2017 by Hitachi Vantara : http://www.pentaho.com
+ * http://www.project-hop.org
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.apache.hop.pipeline.transforms.jsoninput.reader;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.jayway.jsonpath.Configuration;
+import com.jayway.jsonpath.JsonPath;
+import com.jayway.jsonpath.spi.json.JsonProvider;
+import org.apache.hop.core.IRowSet;
+import org.apache.hop.core.SingleRowRowSet;
+import org.apache.hop.core.exception.HopException;
+import org.apache.hop.core.logging.ILogChannel;
+import org.apache.hop.i18n.BaseMessages;
+import org.apache.hop.pipeline.transforms.jsoninput.JsonInputField;
+import org.apache.hop.pipeline.transforms.jsoninput.JsonInputMeta;
+import org.apache.hop.pipeline.transforms.jsoninput.exception.JsonInputException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Reads the rows of a JSON document while it is being parsed instead of loading the whole document first.<br>
+ * This is possible when all the paths iterate over the same array or object, like $.data[*].id and $.data[*].name: the
+ * parser moves to $.data, materializes one element at a time and evaluates the rest of each path (.id, .name) on that
+ * element only. Paths using anything else than properties and a single [*] (deep scans, filters, indexes, ...) are read
+ * by the {@link FastJsonReader} as before.
+ */
+public class StreamingJsonReader extends FastJsonReader {
+  private static final Class<?> PKG = JsonInputMeta.class; // for i18n purposes, needed by Translator2!!
+
+  private static final JsonFactory JSON_FACTORY = new JsonFactory()
+    .enable( JsonParser.Feature.ALLOW_COMMENTS )
+    .enable( JsonParser.Feature.ALLOW_SINGLE_QUOTES )
+    .enable( JsonParser.Feature.ALLOW_UNQUOTED_FIELD_NAMES )
+    .enable( JsonParser.Feature.ALLOW_NON_NUMERIC_NUMBERS );
+
+  // json-smart keeps floating point numbers with more characters than this as BigDecimal
+  //
+  private static final int MAX_DOUBLE_LENGTH = 18;
+
+  private ILogChannel log;
+
+  private JsonInputField[] fields;
+
+  /**
+   * Properties leading from the root of the document to the records, null if the paths can't be streamed
+   */
+  private List<String> recordsPath;
+
+  /**
+   * The remainder of each field path, evaluated on a single record
+   */
+  private JsonPath[] recordPaths;
+
+  public StreamingJsonReader( JsonInputField[] fields, boolean defaultPathLeafToNull, ILogChannel log )
+    throws HopException {
+    super( fields, defaultPathLeafToNull, log );
+    this.log = log;
+  }
+
+  @Override
+  public void setFields( JsonInputField[] fields ) throws HopException {
+    super.setFields( fields );
+    this.fields = fields;
+    compileStreamingPaths( fields );
+  }
+
+  /**
+   * @return true if the rows are read while parsing, false if the whole document is read first
+   */
+  public boolean isStreaming() {
+    return recordsPath != null;
+  }
+
+  @Override
+  public IRowSet parse( InputStream in ) throws HopException {
+    if ( !isStreaming() ) {
+      return super.parse( in );
+    }
+    JsonParser parser = null;
+    try {
+      parser = JSON_FACTORY.createParser( new InputStreamReader( in, StandardCharsets.UTF_8 ) );
+      return new StreamingRowSet( parser, moveToRecords( parser ) );
+    } catch ( IOException e ) {
+      closeQuietly( parser );
+      throw new HopException( e );
+    }
+  }
+
+  private void compileStreamingPaths( JsonInputField[] fields ) {
+    recordsPath = null;
+    recordPaths = null;
+    if ( fields == null || fields.length == 0 ) {
+      return;
+    }
+    List<String> prefix = null;
+    JsonPath[] tails = new JsonPath[ fields.length ];
+    for ( int i = 0; i < fields.length; i++ ) {
+      List<String> fieldPrefix = new ArrayList<>();
+      String tail = splitPath( fields[ i ].getPath(), fieldPrefix );
+      if ( tail == null || ( prefix != null && !prefix.equals( fieldPrefix ) ) ) {
+        return;
+      }
+      prefix = fieldPrefix;
+      tails[ i ] = JsonPath.compile( "$" + tail );
+    }
+    recordsPath = prefix;
+    recordPaths = tails;
+  }
+
+  /**
+   * Splits a path like $.data[*].id in the properties leading to the records (data) and the part evaluated on each
+   * record (.id).
+   *
+   * @param path   the JsonPath expression of a field
+   * @param prefix receives the properties before the wildcard
+   * @return the part of the path after the wildcard, or null if the path can't be streamed
+   */
+  static String splitPath( String path, List<String> prefix ) {
+    if ( path == null ) {
+      return null;
+    }
+    String expression = path.trim();
+    if ( expression.startsWith( "$" ) ) {
+      expression = expression.substring( 1 );
+    } else if ( !expression.startsWith( "[" ) ) {
+      expression = "." + expression;
+    }
+    boolean wildcard = false;
+    int pos = 0;
+    int wildcardEnd = -1;
+    while ( pos < expression.length() ) {
+      String property;
+      char c = expression.charAt( pos );
+      if ( c == '.' && expression.startsWith( ".*", pos ) ) {
+        property = null;
+        pos += 2;
+      } else if ( c == '.' ) {
+        int end = pos + 1;
+        while ( end < expression.length() && isPropertyChar( expression.charAt( end ) ) ) {
+          end++;
+        }
+        if ( end == pos + 1 ) {
+          // deep scan or anything else than a plain property name
+          //
+          return null;
+        }
+        property = expression.substring( pos + 1, end );
+        pos = end;
+      } else if ( c == '[' && expression.startsWith( "[*]", pos ) ) {
+        property = null;
+        pos += 3;
+      } else if ( c == '[' && pos + 1 < expression.length()
+        && ( expression.charAt( pos + 1 ) == '\'' || expression.charAt( pos + 1 ) == '"' ) ) {
+        char quote = expression.charAt( pos + 1 );
+        int end = expression.indexOf( quote, pos + 2 );
+        if ( end < 0 || !expression.startsWith( "]", end + 1 ) ) {
+          return null;
+        }
+        property = expression.substring( pos + 2, end );
+        if ( property.indexOf( '\\' ) >= 0 ) {
+          return null;
+        }
+        pos = end + 2;
+      } else {
+        // indexes, slices, filters and functions
+        //
+        return null;
+      }
+      if ( property == null ) {
+        if ( wildcard ) {
+          return null;
+        }
+        wildcard = true;
+        wildcardEnd = pos;
+      } else if ( !wildcard ) {
+        prefix.add( property );
+      }
+    }
+    return wildcard ? expression.substring( wildcardEnd ) : null;
+  }
+
+  private static boolean isPropertyChar( char c ) {
+    return Character.isLetterOrDigit( c ) || c == '_' || c == '-';
+  }
+
+  /**
+   * Moves the parser to the start of the container holding the records.
+   *
+   * @return true if the records are the values of an object, false if they are the elements of an array or if there
+   * are no records at all, in which case the parser is closed
+   */
+  private Boolean moveToRecords( JsonParser parser ) throws IOException {
+    JsonToken token = parser.nextToken();
+    for ( String property : recordsPath ) {
+      if ( token != JsonToken.START_OBJECT || !moveToProperty( parser, property ) ) {
+        token = null;
+        break;
+      }
+      token = parser.nextToken();
+    }
+    if ( token == JsonToken.START_OBJECT || token == JsonToken.START_ARRAY ) {
+      return token == JsonToken.START_OBJECT;
+    }
+    parser.close();
+    return null;
+  }
+
+  private static boolean moveToProperty( JsonParser parser, String property ) throws IOException {
+    while ( parser.nextToken() == JsonToken.FIELD_NAME ) {
+      if ( property.equals( parser.getCurrentName() ) ) {
+        return true;
+      }
+      parser.nextToken();
+      parser.skipChildren();
+    }
+    return false;
+  }
+
+  /**
+   * Materializes the value at the current token the way the JsonPath provider would have parsed it.
+   */
+  private static Object readValue( JsonParser parser, JsonToken token, JsonProvider provider ) throws IOException {
+    if ( token == null ) {
+      throw new JsonParseException( parser, "Unexpected end of input" );
+    }
+    switch ( token ) {
+      case START_OBJECT:
+        Object map = provider.createMap();
+        while ( parser.nextToken() == JsonToken.FIELD_NAME ) {
+          String name = parser.getCurrentName();
+          provider.setProperty( map, name, readValue( parser, parser.nextToken(), provider ) );
+        }
+        return map;
+      case START_ARRAY:
+        Object array = provider.createArray();
+        int index = 0;
+        for ( JsonToken element = parser.nextToken(); element != JsonToken.END_ARRAY; element = parser.nextToken() ) {
+          provider.setArrayIndex( array, index++, readValue( parser, element, provider ) );
+        }
+        return array;
+      case VALUE_STRING:
+        return parser.getText();
+      case VALUE_NUMBER_INT:
+        return parser.getNumberValue();
+      case VALUE_NUMBER_FLOAT:
+        String number = parser.getText();
+        if ( number.length() > MAX_DOUBLE_LENGTH ) {
+          return new BigDecimal( number );
+        }
+        return parser.getDoubleValue();
+      case VALUE_TRUE:
+        return Boolean.TRUE;
+      case VALUE_FALSE:
+        return Boolean.FALSE;
+      case VALUE_NULL:
+        return null;
+      default:
+        throw new JsonParseException( parser, "Unexpected token " + token );
+    }
+  }
+
+  private static void closeQuietly( JsonParser parser ) {
+    if ( parser != null ) {
+      try {
+        parser.close();
+      } catch ( IOException e ) {
+        // ignore, we're already failing
+      }
+    }
+  }
+
+  /**
+   * Thrown by the rows of a streamed document when the rest of the document can't be read.
+   */
+  public static class StreamingException extends RuntimeException {
+    public StreamingException( HopException cause ) {
+      super( cause.getMessage(), cause );
+    }
+
+    @Override
+    public synchronized HopException getCause() {
+      return (HopException) super.getCause();
+    }
+  }
+
+  /**
+   * Produces the rows of the records as they are parsed, with the same results as the FastJsonReader: all-null rows are
+   * skipped unless they're the only row and an empty document gives a single all-null row.<br>
+   * <br>
+   * Every row is made of the values of a single record. A path has a value in every record with values, or in none of
+   * them, in which case it is left null like the FastJsonReader does. Otherwise the paths don't have the same number of
+   * values in the whole document either, and the bad structure error is raised on the first record showing this.
+   */
+  private class StreamingRowSet extends SingleRowRowSet {
+    private final JsonParser parser;
+    private final boolean hasRecords;
+    private final boolean objectRecords;
+    private final Configuration configuration;
+
+    /**
+     * The number of values found for each field, and the number of records with values
+     */
+    private final int[] valueCount;
+    private final boolean[] nonNullFound;
+    private int rowCount;
+
+    private Object[] recordRow;
+    private Object[] firstNullRow;
+    private Object[] lastRow;
+    private boolean parsed;
+    private boolean done;
+
+    StreamingRowSet( JsonParser parser, Boolean objectRecords ) {
+      super();
+      this.parser = parser;
+      this.hasRecords = objectRecords != null;
+      this.objectRecords = Boolean.TRUE.equals( objectRecords );
+      this.configuration = getJsonConfiguration();
+      this.valueCount = new int[ fields.length ];
+      this.nonNullFound = new boolean[ fields.length ];
+    }
+
+    @Override
+    public Object[] getRow() {
+      try {
+        while ( !parsed ) {
+          if ( !readRecord() ) {
+            parsed = true;
+            parser.close();
+            finish();
+            break;
+          }
+          Object[] row = nextRow();
+          if ( row != null ) {
+            return row;
+          }
+        }
+      } catch ( IOException e ) {
+        closeQuietly( parser );
+        throw new StreamingException( new HopException( e ) );
+      } catch ( HopException e ) {
+        closeQuietly( parser );
+        throw new StreamingException( e );
+      }
+      Object[] row = lastRow;
+      lastRow = null;
+      done = row == null;
+      return row;
+    }
+
+    /**
+     * @return the row of the last record read, unless it has no values or is an all-null row
+     */
+    private Object[] nextRow() {
+      Object[] row = recordRow;
+      recordRow = null;
+      if ( row == null ) {
+        return null;
+      }
+      boolean allNulls = true;
+      for ( Object value : row ) {
+        allNulls &= value == null;
+      }
+      if ( !allNulls ) {
+        firstNullRow = null;
+        return row;
+      }
+      // an all-null row is only kept if it turns out to be the only one
+      //
+      firstNullRow = rowCount == 1 ? row : null;
+      return null;
+    }
+
+    /**
+     * Evaluates the paths on the next record.
+     *
+     * @return false when there are no more records
+     */
+    private boolean readRecord() throws IOException, JsonInputException {
+      if ( !hasRecords ) {
+        return false;
+      }
+      JsonToken token = parser.nextToken();
+      if ( objectRecords ) {
+        if ( token != JsonToken.FIELD_NAME ) {
+          return false;
+        }
+        token = parser.nextToken();
+      } else if ( token == JsonToken.END_ARRAY ) {
+        return false;
+      }
+      Object record = readValue( parser, token, configuration.jsonProvider() );
+      Object[] row = new Object[ fields.length ];
+      boolean[] found = new boolean[ fields.length ];
+      boolean anyFound = false;
+      for ( int i = 0; i < recordPaths.length; i++ ) {
+        List<?> values;
+        if ( record != null ) {
+          values = recordPaths[ i ].read( record, configuration );
+        } else {
+          // a null record only has a value for the record itself
+          //
+          values = "$".equals( recordPaths[ i ].getPath() ) ? Collections.singletonList( null ) : Collections.emptyList();
+        }
+        // the remainder of a path only has properties, so there is one value at most
+        //
+        if ( !values.isEmpty() ) {
+          row[ i ] = values.get( 0 );
+          found[ i ] = true;
+          anyFound = true;
+          nonNullFound[ i ] |= row[ i ] != null;
+        }
+      }
+      if ( !anyFound ) {
+        return true;
+      }
+      rowCount++;
+      for ( int i = 0; i < fields.length; i++ ) {
+        if ( found[ i ] ) {
+          valueCount[ i ]++;
+        }
+      }
+      checkStructure();
+      recordRow = row;
+      return true;
+    }
+
+    private void checkStructure() throws JsonInputException {
+      for ( int i = 0; i < fields.length; i++ ) {
+        if ( valueCount[ i ] == 0 || valueCount[ i ] == rowCount ) {
+          continue;
+        }
+        for ( int j = 0; j < fields.length; j++ ) {
+          if ( valueCount[ j ] != valueCount[ i ] ) {
+            throw new JsonInputException( BaseMessages.getString( PKG, "JsonInput.Error.BadStructure",
+              valueCount[ i ], fields[ i ].getPath(), fields[ j ].getPath(), valueCount[ j ] ) );
+          }
+        }
+      }
+    }
+
+    /**
+     * Applies the missing path check of the FastJsonReader and keeps the row to give at the end, if any.
+     */
+    private void finish() throws JsonInputException {
+      for ( int i = 0; i < fields.length; i++ ) {
+        if ( !isIgnoreMissingPath() && !nonNullFound[ i ] ) {
+          throw new JsonInputException( BaseMessages.getString( PKG, "JsonReader.Error.CanNotFindPath", fields[ i ]
+            .getPath() ) );
+        }
+      }
+      if ( log.isDetailed() ) {
+        log.logDetailed( BaseMessages.getString( PKG, "JsonInput.Log.NrRecords", rowCount ) );
+      }
+      lastRow = rowCount == 0 ? new Object[ fields.length ] : firstNullRow;
+    }
+
+    @Override
+    public int size() {
+      return lastRow == null ? 0 : 1;
+    }
+
+    @Override
+    public boolean isDone() {
+      return done;
+    }
+
+    @Override
+    public void clear() {
+      closeQuietly( parser );
+      recordRow = null;
+      lastRow = null;
+      parsed = true;
+      done = true;
+    }
+  }
+}
@@ -0,0 +1,215 @@
+/*! ******************************************************************************
+ *
+ * Hop : The Hop Orchestration Platform
+ *
+ * Copyright (C) 2016 - 2018 by Hitachi Vantara : http://www.pentaho.com
+ * http://www.project-hop.org
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.apache.hop.pipeline.transforms.jsoninput.reader;
+
+import org.apache.hop.core.IRowSet;
+import org.apache.hop.core.exception.HopException;
+import org.apache.hop.core.logging.ILogChannel;
+import org.apache.hop.pipeline.transforms.jsoninput.JsonInputField;
+import org.apache.hop.pipeline.transforms.jsoninput.exception.JsonInputException;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+
+public class StreamingJsonReaderTest {
+  private static final String DOCUMENT = "{ \"header\": { \"ignored\": [ 1, 2, { \"id\": -1 } ] },"
+    + " \"data\": ["
+    + "  { \"id\": 1, \"name\": \"one\", \"price\": 1.5, \"tags\": [ \"a\", \"b\" ], \"info\": { \"size\": 10 } },"
+    + "  { \"id\": 12345678901, \"name\": null, \"info\": { } },"
+    + "  { \"id\": 3, \"name\": \"three\", \"price\": 1.2345678901234567890123, \"info\": { \"size\": true } }"
+    + " ], \"footer\": \"done\" }";
+
+  private ILogChannel logMock = mock( ILogChannel.class );
+
+  @Test
+  public void testSplitPath() {
+    List<String> prefix = new ArrayList<>();
+    assertEquals( ".id", StreamingJsonReader.splitPath( "$.data[*].id", prefix ) );
+    assertEquals( Arrays.asList( "data" ), prefix );
+
+    prefix.clear();
+    assertEquals( "['first name']", StreamingJsonReader.splitPath( "$['result'].items.*['first name']", prefix ) );
+    assertEquals( Arrays.asList( "result", "items" ), prefix );
+
+    prefix.clear();
+    assertEquals( "", StreamingJsonReader.splitPath( "data[*]", prefix ) );
+    assertEquals( Arrays.asList( "data" ), prefix );
+
+    assertNull( StreamingJsonReader.splitPath( "$.data.id", new ArrayList<>() ) );
+    assertNull( StreamingJsonReader.splitPath( "$..id", new ArrayList<>() ) );
+    assertNull( StreamingJsonReader.splitPath( "$.data[0].id", new ArrayList<>() ) );
+    assertNull( StreamingJsonReader.splitPath( "$.data[*].tags[*]", new ArrayList<>() ) );
+    assertNull( StreamingJsonReader.splitPath( "$.data[?(@.id > 1)].id", new ArrayList<>() ) );
+    assertNull( StreamingJsonReader.splitPath( "$.data[*].tags.length()", new ArrayList<>() ) );
+  }
+
+  @Test
+  public void testStreamingNeedsTheSameRecords() throws HopException {
+    assertTrue( reader( "$.data[*].id", "$.data.*.name" ).isStreaming() );
+    assertFalse( reader( "$.data[*].id", "$.header.ignored[*].id" ).isStreaming() );
+    assertFalse( reader( "$.data[*].id", "$..name" ).isStreaming() );
+  }
+
+  @Test
+  public void testSameRowsAsFastJsonReader() throws Exception {
+    assertSameRows( DOCUMENT, "$.data[*].id", "$.data[*].name", "$.data[*].price" );
+    assertSameRows( DOCUMENT, "$.data[*].tags", "$.data[*].info.size", "$.data[*]['info']" );
+    assertSameRows( DOCUMENT, "$.data[*]" );
+    assertSameRows( DOCUMENT, "$.data[*].missing" );
+    assertSameRows( DOCUMENT, "$.data[*].missing", "$.data[*].id" );
+    assertSameRows( DOCUMENT, "$.nodata[*].id", "$.nodata[*].name" );
+    assertSameRows( "{ \"data\": [ { \"other\": 1 } ] }", "$.data[*].id" );
+    assertSameRows( "{ \"data\": [ ] }", "$.data[*].id" );
+    assertSameRows( "{ \"data\": { \"a\": { \"id\": 1 }, \"b\": { \"id\": 2 } } }", "$.data.*.id" );
+    assertSameRows( "[ { \"id\": 1 }, { \"id\": 2 } ]", "$[*].id" );
+  }
+
+  @Test
+  public void testBadStructure() throws HopException {
+    // the second record has no value at all for the first path
+    //
+    String document = "{ \"data\": [ { \"a\": { \"b\": 1 } }, { \"c\": 2 } ] }";
+    IRowSet rowSet = reader( "$.data[*].a.b", "$.data[*]" ).parse( toStream( document ) );
+    try {
+      while ( rowSet.getRow() != null ) {
+        // consume
+      }
+      fail( "The paths don't have the same number of values" );
+    } catch ( StreamingJsonReader.StreamingException e ) {
+      assertTrue( e.getCause() instanceof JsonInputException );
+    }
+  }
+
+  @Test
+  public void testRecordWithAMissingPath() throws Exception {
+    String document = "{ \"data\": [ { \"id\": 1 }, { \"id\": 2, \"name\": \"x\" } ] }";
+
+    // a missing leaf is a null value of its record
+    //
+    assertSameRows( document, "$.data[*].id", "$.data[*].name" );
+    List<List<Object>> rows = readRows( reader( "$.data[*].id", "$.data[*].name" ).parse( toStream( document ) ) );
+    assertEquals( Arrays.asList( Arrays.asList( (Object) 1, null ), Arrays.asList( (Object) 2, "x" ) ), rows );
+
+    // without it, the values of the records are never mixed
+    //
+    StreamingJsonReader reader = new StreamingJsonReader( fields( "$.data[*].id", "$.data[*].name" ), false, logMock );
+    reader.setIgnoreMissingPath( true );
+    assertBadStructure( reader.parse( toStream( document ) ), Arrays.asList( (Object) 1, null ) );
+
+    // nor is a missing object on the path
+    //
+    document = "{ \"data\": [ { \"id\": 1 }, { \"id\": 2, \"a\": { \"b\": \"x\" } } ] }";
+    assertBadStructure( reader( "$.data[*].id", "$.data[*].a.b" ).parse( toStream( document ) ),
+      Arrays.asList( (Object) 1, null ) );
+  }
+
+  @Test
+  public void testPathWithoutValuesDoesNotHoldTheRows() throws HopException {
+    // the document is cut after the second record
+    //
+    String document = "{ \"data\": [ { \"id\": 1 }, { \"id\": 2 }, { \"id\"";
+    IRowSet rowSet = reader( "$.data[*].id", "$.data[*].a.b" ).parse( toStream( document ) );
+    assertEquals( Arrays.asList( (Object) 1, null ), Arrays.asList( rowSet.getRow() ) );
+    assertEquals( Arrays.asList( (Object) 2, null ), Arrays.asList( rowSet.getRow() ) );
+  }
+
+  @Test
+  public void testRowsAreReadWhileParsing() throws HopException {
+    // the document is cut after the second record
+    //
+    String document = "{ \"data\": [ { \"id\": 1 }, { \"id\": 2 }, { \"id\"";
+    IRowSet rowSet = reader( "$.data[*].id" ).parse( toStream( document ) );
+    assertEquals( 1, rowSet.getRow()[ 0 ] );
+    assertFalse( rowSet.isDone() );
+    assertEquals( 2, rowSet.getRow()[ 0 ] );
+    try {
+      rowSet.getRow();
+      fail( "The document is incomplete" );
+    } catch ( StreamingJsonReader.StreamingException e ) {
+      assertTrue( e.getCause() instanceof HopException );
+    }
+  }
+
+  private static void assertBadStructure( IRowSet rowSet, List<Object> firstRow ) {
+    assertEquals( firstRow, Arrays.asList( rowSet.getRow() ) );
+    try {
+      rowSet.getRow();
+      fail( "The paths don't have the same number of values" );
+    } catch ( StreamingJsonReader.StreamingException e ) {
+      assertTrue( e.getCause() instanceof JsonInputException );
+    }
+  }
+
+  private StreamingJsonReader reader( String... paths ) throws HopException {
+    StreamingJsonReader reader = new StreamingJsonReader( fields( paths ), true, logMock );
+    reader.setIgnoreMissingPath( true );
+    return reader;
+  }
+
+  private JsonInputField[] fields( String... paths ) {
+    JsonInputField[] fields = new JsonInputField[ paths.length ];
+    for ( int i = 0; i < paths.length; i++ ) {
+      fields[ i ] = new JsonInputField( "field" + i );
+      fields[ i ].setPath( paths[ i ] );
+    }
+    return fields;
+  }
+
+  private void assertSameRows( String document, String... paths ) throws HopException {
+    StreamingJsonReader streamingReader = reader( paths );
+    assertTrue( streamingReader.isStreaming() );
+    FastJsonReader fastReader = new FastJsonReader( fields( paths ), true, logMock );
+    fastReader.setIgnoreMissingPath( true );
+
+    List<List<Object>> expected = readRows( fastReader.parse( toStream( document ) ) );
+    List<List<Object>> actual = readRows( streamingReader.parse( toStream( document ) ) );
+    assertEquals( Arrays.toString( paths ), expected, actual );
+  }
+
+  private static List<List<Object>> readRows( IRowSet rowSet ) {
+    List<List<Object>> rows = new ArrayList<>();
+    Object[] row;
+    while ( ( row = rowSet.getRow() ) != null ) {
+      rows.add( Arrays.asList( row ) );
+    }
+    assertTrue( rowSet.isDone() );
+    return rows;
+  }
+
+  private static InputStream toStream( String document ) {
+    return new ByteArrayInputStream( document.getBytes( StandardCharsets.UTF_8 ) );
+  }
+}
@@ -0,0 +1,1079 @@
+/*! ******************************************************************************
+ *
+ * Hop : The Hop Orchestration Platform
+ *
+ * http://www.project-hop.org
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+
+package org.apache.hop.pipeline.transforms.memgroupby;
+
+import org.apache.commons.math3.stat.descriptive.rank.Percentile;
+import org.apache.hop.core.exception.HopException;
+import org.apache.hop.core.exception.HopFileException;
+import org.apache.hop.core.exception.HopValueException;
+import org.apache.hop.core.hash.ByteArrayIdIndex;
+import org.apache.hop.core.hash.LongHashSet;
+import org.apache.hop.core.row.IRowMeta;
+import org.apache.hop.core.row.IValueMeta;
+import org.apache.hop.core.row.ValueDataUtil;
+import org.apache.hop.core.row.value.ValueMetaInteger;
+import org.apache.hop.core.row.value.ValueMetaString;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * The aggregation engine of the Memory Group By transform.<br>
+ * <br>
+ * The group keys are serialized into a {@link ByteArrayIdIndex} which hands out a dense id for every group. The
+ * aggregates are kept per aggregation in columns of primitive arrays (long[], double[]) indexed by that group id.
+ * Count distinct keeps the (group id, value id) combinations in a {@link LongHashSet}. That way nothing is allocated
+ * per input row for the common numeric aggregations. Aggregations which need to keep the actual values around (first,
+ * last, min, max, concatenations, ...) store references in an Object[] column.<br>
+ * <br>
+ * Null values are skipped by all aggregations except count any, first and last including null, and minimum when a
+ * null minimum is valued.<br>
+ * <br>
+ * When the table grows too large the partial aggregates can be spilled to a number of partitions with
+ * {@link #spill(DataOutputStream[], int)} and merged back later on, one partition at a time, with
+ * {@link #mergeGroup(DataInputStream)}.
+ */
+public class GroupByHashTable {
+
+  private static final int INITIAL_CAPACITY = 1024;
+
+  private final IRowMeta inputRowMeta;
+  private final IRowMeta groupMeta;
+  private final IRowMeta entryMeta;
+  private final int[] groupnrs;
+  private final int[] subjectnrs;
+
+  private final ByteArrayIdIndex groupIndex;
+  private final KeyBuffer keyBuffer;
+  private final DataOutputStream keyStream;
+
+  private final Column[] columns;
+  private int capacity;
+  private byte[] readBuffer;
+
+  /**
+   * @param data            The transform data containing the input, group and aggregate metadata
+   * @param aggregateTypes  The aggregation types
+   * @param valueFields     The value fields of the aggregations (percentage, separator)
+   * @param minNullIsValued true if a null value is the minimum of a group
+   * @throws HopException in case an aggregation can't be handled
+   */
+  public GroupByHashTable( MemoryGroupByData data, int[] aggregateTypes, String[] valueFields,
+                           boolean minNullIsValued ) throws HopException {
+    this.inputRowMeta = data.inputRowMeta;
+    this.groupMeta = data.groupMeta;
+    this.entryMeta = data.entryMeta;
+    this.groupnrs = data.groupnrs;
+    this.subjectnrs = data.subjectnrs;
+
+    groupIndex = new ByteArrayIdIndex( INITIAL_CAPACITY );
+    keyBuffer = new KeyBuffer();
+    keyStream = new DataOutputStream( keyBuffer );
+
+    columns = new Column[ subjectnrs.length ];
+    for ( int i = 0; i < columns.length; i++ ) {
+      IValueMeta subjMeta = inputRowMeta.getValueMeta( subjectnrs[ i ] );
+      IValueMeta aggMeta = data.aggMeta.getValueMeta( i );
+      columns[ i ] = createColumn( aggregateTypes[ i ], subjMeta, aggMeta, valueFields[ i ], minNullIsValued );
+    }
+    capacity = 0;
+    grow( INITIAL_CAPACITY );
+  }
+
+  private static Column createColumn( int aggregateType, IValueMeta subjMeta, IValueMeta aggMeta, String valueField,
+                                      boolean minNullIsValued ) throws HopException {
+    switch ( aggregateType ) {
+      case MemoryGroupByMeta.TYPE_GROUP_SUM:
+      case MemoryGroupByMeta.TYPE_GROUP_AVERAGE:
+        boolean average = aggregateType == MemoryGroupByMeta.TYPE_GROUP_AVERAGE;
+        switch ( aggMeta.getType() ) {
+          case IValueMeta.TYPE_INTEGER:
+            aggMeta.setStorageType( IValueMeta.STORAGE_TYPE_NORMAL );
+            return new LongSumColumn( subjMeta, average );
+          case IValueMeta.TYPE_NUMBER:
+            aggMeta.setStorageType( IValueMeta.STORAGE_TYPE_NORMAL );
+            return new DoubleSumColumn( subjMeta, average );
+          default:
+            return new ObjectSumColumn( subjMeta, aggMeta, average );
+        }
+      case MemoryGroupByMeta.TYPE_GROUP_MEDIAN:
+      case MemoryGroupByMeta.TYPE_GROUP_PERCENTILE:
+        double percentile = 50.0;
+        if ( aggregateType == MemoryGroupByMeta.TYPE_GROUP_PERCENTILE ) {
+          percentile = Double.parseDouble( valueField );
+        }
+        return new PercentileColumn( subjMeta, percentile );
+      case MemoryGroupByMeta.TYPE_GROUP_STANDARD_DEVIATION:
+        return new StandardDeviationColumn( subjMeta );
+      case MemoryGroupByMeta.TYPE_GROUP_COUNT_DISTINCT:
+        switch ( subjMeta.getType() ) {
+          case IValueMeta.TYPE_INTEGER:
+          case IValueMeta.TYPE_NUMBER:
+          case IValueMeta.TYPE_STRING:
+          case IValueMeta.TYPE_BOOLEAN:
+          case IValueMeta.TYPE_BIGNUMBER:
+          case IValueMeta.TYPE_DATE:
+            return new CountDistinctColumn( subjMeta );
+          default:
+            return new GenericCountDistinctColumn( subjMeta );
+        }
+      case MemoryGroupByMeta.TYPE_GROUP_COUNT_ALL:
+      case MemoryGroupByMeta.TYPE_GROUP_COUNT_ANY:
+        return new CountColumn( subjMeta, aggregateType == MemoryGroupByMeta.TYPE_GROUP_COUNT_ANY );
+      case MemoryGroupByMeta.TYPE_GROUP_MIN:
+      case MemoryGroupByMeta.TYPE_GROUP_MAX:
+      case MemoryGroupByMeta.TYPE_GROUP_FIRST:
+      case MemoryGroupByMeta.TYPE_GROUP_LAST:
+      case MemoryGroupByMeta.TYPE_GROUP_FIRST_INCL_NULL:
+      case MemoryGroupByMeta.TYPE_GROUP_LAST_INCL_NULL:
+        return new ValueColumn( subjMeta, aggMeta, aggregateType, minNullIsValued );
+      case MemoryGroupByMeta.TYPE_GROUP_CONCAT_COMMA:
+        return new ConcatColumn( subjMeta, ", " );
+      case MemoryGroupByMeta.TYPE_GROUP_CONCAT_STRING:
+        return new ConcatColumn( subjMeta, valueField == null ? "" : valueField );
+      default:
+        throw new HopException( "Unknown aggregation type : " + aggregateType );
+    }
+  }
+
+  /**
+   * Add a row to the aggregates of its group.
+   *
+   * @param r the input row
+   * @return the id of the group of the row
+   * @throws HopException in case of a conversion error
+   */
+  public int addRow( Object[] r ) throws HopException {
+    keyBuffer.reset();
+    for ( int i = 0; i < groupnrs.length; i++ ) {
+      Object groupValue = groupMeta.getValueMeta( i ).convertToNormalStorageType( r[ groupnrs[ i ] ] );
+      entryMeta.getValueMeta( i ).writeData( keyStream, groupValue );
+    }
+    int size = groupIndex.getSize();
+    int group = groupIndex.put( keyBuffer.getBuffer(), 0, keyBuffer.size() );
+    boolean newGroup = group == size;
+    if ( newGroup && group == capacity ) {
+      grow( capacity + ( capacity >> 1 ) );
+    }
+
+    for ( int i = 0; i < columns.length; i++ ) {
+      columns[ i ].add( group, newGroup, r[ subjectnrs[ i ] ] );
+    }
+    return group;
+  }
+
+  /**
+   * Write the groups with their partial aggregates to the given partitions and empty the table. A group always ends up
+   * in the same partition for the same level, a different level gives a different distribution over the partitions.
+   * Every partition is closed with an end marker.
+   *
+   * @param partitions the streams to write the partitions to
+   * @param level      the partitioning level
+   * @throws HopException in case of a serialization error
+   */
+  public void spill( DataOutputStream[] partitions, int level ) throws HopException {
+    try {
+      for ( Column column : columns ) {
+        column.startSpill();
+      }
+      int size = groupIndex.getSize();
+      for ( int group = 0; group < size; group++ ) {
+        DataOutputStream outputStream =
+          partitions[ getPartition( groupIndex.getHashCode( group ), level, partitions.length ) ];
+        byte[] key = groupIndex.getKey( group );
+        outputStream.writeInt( key.length );
+        outputStream.write( key );
+        for ( Column column : columns ) {
+          column.writeState( group, outputStream );
+        }
+      }
+      for ( DataOutputStream outputStream : partitions ) {
+        outputStream.writeInt( -1 );
+      }
+    } catch ( IOException e ) {
+      throw new HopFileException( "Unable to write the partial aggregates", e );
+    }
+    clear();
+  }
+
+  /**
+   * Read one group with its partial aggregates as written by {@link #spill(DataOutputStream[], int)} and merge it into
+   * the table. Groups need to be merged in the order in which they were spilled for the first and last aggregations to
+   * work.
+   *
+   * @param inputStream the stream of the partition to read from
+   * @return false if the end of the partition was reached
+   * @throws HopException in case of a de-serialization error
+   */
+  public boolean mergeGroup( DataInputStream inputStream ) throws HopException {
+    try {
+      int length = inputStream.readInt();
+      if ( length < 0 ) {
+        return false;
+      }
+      if ( readBuffer == null || readBuffer.length < length ) {
+        readBuffer = new byte[ Math.max( length, 256 ) ];
+      }
+      inputStream.readFully( readBuffer, 0, length );
+
+      int size = groupIndex.getSize();
+      int group = groupIndex.put( readBuffer, 0, length );
+      boolean newGroup = group == size;
+      if ( newGroup && group == capacity ) {
+        grow( capacity + ( capacity >> 1 ) );
+      }
+      for ( Column column : columns ) {
+        column.mergeState( group, newGroup, inputStream );
+      }
+      return true;
+    } catch ( IOException e ) {
+      throw new HopFileException( "Unable to read the partial aggregates", e );
+    }
+  }
+
+  /**
+   * @return the partition of a group key for the given partitioning level
+   */
+  static int getPartition( int hashCode, int level, int nrPartitions ) {
+    int hash = LongHashSet.hashCode( ( (long) level << 32 ) | ( hashCode & 0xffffffffL ) );
+    return ( hash & Integer.MAX_VALUE ) % nrPartitions;
+  }
+
+  /**
+   * @return the number of groups
+   */
+  public int size() {
+    return groupIndex.getSize();
+  }
+
+  public boolean isEmpty() {
+    return groupIndex.isEmpty();
+  }
+
+  /**
+   * @param group the id of the group
+   * @return the values of the group fields in normal storage
+   * @throws HopFileException in case the key can't be de-serialized
+   */
+  public Object[] getGroup( int group ) throws HopFileException {
+    try {
+      DataInputStream inputStream = new DataInputStream( new ByteArrayInputStream( groupIndex.getKey( group ) ) );
+      Object[] groupData = new Object[ entryMeta.size() ];
+      for ( int i = 0; i < groupData.length; i++ ) {
+        groupData[ i ] = entryMeta.getValueMeta( i ).readData( inputStream );
+      }
+      return groupData;
+    } catch ( Exception e ) {
+      throw new HopFileException( "Unable to read the key of group " + group, e );
+    }
+  }
+
+  /**
+   * @param group           the id of the group
+   * @param allNullsAreZero true if an empty aggregate needs to be returned as zero
+   * @param aggMeta         the metadata of the aggregates
+   * @return the final aggregate values of the group
+   * @throws HopValueException in case of a conversion error
+   */
+  public Object[] getAggregateResult( int group, boolean allNullsAreZero, IRowMeta aggMeta ) throws HopValueException {
+    Object[] result = new Object[ columns.length ];
+    for ( int i = 0; i < columns.length; i++ ) {
+      Object ag = columns[ i ].getResult( group );
+      if ( ag == null && allNullsAreZero ) {
+        ag = ValueDataUtil.getZeroForValueMetaType( aggMeta.getValueMeta( i ) );
+      }
+      result[ i ] = ag;
+    }
+    return result;
+  }
+
+  /**
+   * @return An estimate of the number of bytes of heap memory taken by the groups and their aggregates
+   */
+  public long getMemoryUsage() {
+    long usage = groupIndex.getMemoryUsage();
+    for ( Column column : columns ) {
+      usage += column.getMemoryUsage();
+    }
+    return usage;
+  }
+
+  /**
+   * Remove all groups
+   */
+  public void clear() {
+    groupIndex.clear();
+    for ( Column column : columns ) {
+      column.clear();
+    }
+    capacity = 0;
+    grow( INITIAL_CAPACITY );
+  }
+
+  private void grow( int newCapacity ) {
+    for ( Column column : columns ) {
+      column.grow( newCapacity );
+    }
+    capacity = newCapacity;
+  }
+
+  /**
+   * A byte array output stream which gives access to its buffer to avoid copying the serialized key
+   */
+  private static class KeyBuffer extends ByteArrayOutputStream {
+    KeyBuffer() {
+      super( 256 );
+    }
+
+    byte[] getBuffer() {
+      return buf;
+    }
+  }
+
+  /**
+   * The aggregates of one aggregation for all the groups
+   */
+  private abstract static class Column {
+    protected final IValueMeta subjMeta;
+
+    Column( IValueMeta subjMeta ) {
+      this.subjMeta = subjMeta;
+    }
+
+    abstract void grow( int capacity );
+
+    abstract void add( int group, boolean newGroup, Object subj ) throws HopException;
+
+    abstract Object getResult( int group ) throws HopValueException;
+
+    abstract long getMemoryUsage();
+
+    /**
+     * Write the partial aggregate of a group
+     */
+    abstract void writeState( int group, DataOutputStream outputStream ) throws IOException, HopException;
+
+    /**
+     * Merge a partial aggregate as written by {@link #writeState(int, DataOutputStream)} into a group
+     */
+    abstract void mergeState( int group, boolean newGroup, DataInputStream inputStream )
+      throws IOException, HopException;
+
+    /**
+     * Called before the groups are written in order of their id
+     */
+    void startSpill() {
+    }
+
+    void clear() {
+      grow( 0 );
+    }
+  }
+
+  private static class CountColumn extends Column {
+    private final boolean countAny;
+    private long[] counts = new long[ 0 ];
+
+    CountColumn( IValueMeta subjMeta, boolean countAny ) {
+      super( subjMeta );
+      this.countAny = countAny;
+    }
+
+    @Override void grow( int capacity ) {
+      counts = Arrays.copyOf( counts, capacity );
+    }
+
+    @Override void add( int group, boolean newGroup, Object subj ) throws HopException {
+      if ( countAny || !subjMeta.isNull( subj ) ) {
+        counts[ group ]++;
+      }
+    }
+
+    @Override Object getResult( int group ) {
+      return counts[ group ];
+    }
+
+    @Override long getMemoryUsage() {
+      return 8L * counts.length;
+    }
+
+    @Override void writeState( int group, DataOutputStream outputStream ) throws IOException {
+      outputStream.writeLong( counts[ group ] );
+    }
+
+    @Override void mergeState( int group, boolean newGroup, DataInputStream inputStream ) throws IOException {
+      counts[ group ] += inputStream.readLong();
+    }
+  }
+
+  private static class LongSumColumn extends Column {
+    private final boolean average;
+    private long[] sums = new long[ 0 ];
+    private long[] counts = new long[ 0 ];
+
+    LongSumColumn( IValueMeta subjMeta, boolean average ) {
+      super( subjMeta );
+      this.average = average;
+    }
+
+    @Override void grow( int capacity ) {
+      sums = Arrays.copyOf( sums, capacity );
+      counts = Arrays.copyOf( counts, capacity );
+    }
+
+    @Override void add( int group, boolean newGroup, Object subj ) throws HopException {
+      Long value = subjMeta.getInteger( subj );
+      if ( value != null ) {
+        sums[ group ] += value;
+        counts[ group ]++;
+      }
+    }
+
+    @Override Object getResult( int group ) {
+      if ( counts[ group ] == 0 ) {
+        return null;
+      }
+      return average ? sums[ group ] / counts[ group ] : sums[ group ];
+    }
+
+    @Override long getMemoryUsage() {
+      return 16L * sums.length;
+    }
+
+    @Override void writeState( int group, DataOutputStream outputStream ) throws IOException {
+      outputStream.writeLong( sums[ group ] );
+      outputStream.writeLong( counts[ group ] );
+    }
+
+    @Override void mergeState( int group, boolean newGroup, DataInputStream inputStream ) throws IOException {
+      sums[ group ] += inputStream.readLong();
+      counts[ group ] += inputStream.readLong();
+    }
+  }
+
+  private static class DoubleSumColumn extends Column {
+    private final boolean average;
+    private double[] sums = new double[ 0 ];
+    private long[] counts = new long[ 0 ];
+
+    DoubleSumColumn( IValueMeta subjMeta, boolean average ) {
+      super( subjMeta );
+      this.average = average;
+    }
+
+    @Override void grow( int capacity ) {
+      sums = Arrays.copyOf( sums, capacity );
+      counts = Arrays.copyOf( counts, capacity );
+    }
+
+    @Override void add( int group, boolean newGroup, Object subj ) throws HopException {
+      Double value = subjMeta.getNumber( subj );
+      if ( value != null ) {
+        sums[ group ] += value;
+        counts[ group ]++;
+      }
+    }
+
+    @Override Object getResult( int group ) {
+      if ( counts[ group ] == 0 ) {
+        return null;
+      }
+      return average ? sums[ group ] / counts[ group ] : sums[ group ];
+    }
+
+    @Override long getMemoryUsage() {
+      return 16L * sums.length;
+    }
+
+    @Override void writeState( int group, DataOutputStream outputStream ) throws IOException {
+      outputStream.writeDouble( sums[ group ] );
+      outputStream.writeLong( counts[ group ] );
+    }
+
+    @Override void mergeState( int group, boolean newGroup, DataInputStream inputStream ) throws IOException {
+      sums[ group ] += inputStream.readDouble();
+      counts[ group ] += inputStream.readLong();
+    }
+  }
+
+  /**
+   * Sum and average of other data types (BigNumber, ...) through {@link ValueDataUtil#sum(IValueMeta, Object,
+   * IValueMeta, Object)}
+   */
+  private static class ObjectSumColumn extends Column {
+    private final IValueMeta aggMeta;
+    private final IValueMeta countMeta;
+    private final boolean average;
+    private Object[] sums = new Object[ 0 ];
+    private long[] counts = new long[ 0 ];
+
+    ObjectSumColumn( IValueMeta subjMeta, IValueMeta aggMeta, boolean average ) {
+      super( subjMeta );
+      this.aggMeta = aggMeta;
+      this.countMeta = new ValueMetaInteger( "c" );
+      this.average = average;
+    }
+
+    @Override void grow( int capacity ) {
+      sums = Arrays.copyOf( sums, capacity );
+      counts = Arrays.copyOf( counts, capacity );
+    }
+
+    @Override void add( int group, boolean newGroup, Object subj ) throws HopException {
+      if ( !average || !subjMeta.isNull( subj ) ) {
+        sums[ group ] = ValueDataUtil.sum( aggMeta, sums[ group ], subjMeta, subj );
+        counts[ group ]++;
+      }
+    }
+
+    @Override Object getResult( int group ) throws HopValueException {
+      if ( average ) {
+        return ValueDataUtil.divide( aggMeta, sums[ group ], countMeta, counts[ group ] );
+      }
+      return sums[ group ];
+    }
+
+    @Override long getMemoryUsage() {
+      return 48L * sums.length;
+    }
+
+    @Override void writeState( int group, DataOutputStream outputStream ) throws IOException, HopException {
+      aggMeta.writeData( outputStream, sums[ group ] );
+      outputStream.writeLong( counts[ group ] );
+    }
+
+    @Override void mergeState( int group, boolean newGroup, DataInputStream inputStream )
+      throws IOException, HopException {
+      Object sum = aggMeta.readData( inputStream );
+      sums[ group ] = ValueDataUtil.sum( aggMeta, sums[ group ], aggMeta, sum );
+      counts[ group ] += inputStream.readLong();
+    }
+
+  }
+
+  private static class StandardDeviationColumn extends Column {
+    private long[] counts = new long[ 0 ];
+    private double[] means = new double[ 0 ];
+    private double[] sums = new double[ 0 ];
+
+    StandardDeviationColumn( IValueMeta subjMeta ) {
+      super( subjMeta );
+    }
+
+    @Override void grow( int capacity ) {
+      counts = Arrays.copyOf( counts, capacity );
+      means = Arrays.copyOf( means, capacity );
+      sums = Arrays.copyOf( sums, capacity );
+    }
+
+    @Override void add( int group, boolean newGroup, Object subj ) throws HopException {
+      Double value = subjMeta.getNumber( subj );
+      if ( value == null ) {
+        return;
+      }
+      // Welford's online algorithm
+      //
+      double n = ++counts[ group ];
+      double x = value;
+      double mean = means[ group ];
+      double delta = x - mean;
+      mean = mean + ( delta / n );
+      sums[ group ] += delta * ( x - mean );
+      means[ group ] = mean;
+    }
+
+    @Override Object getResult( int group ) {
+      if ( counts[ group ] == 0 ) {
+        return null;
+      }
+      return Math.sqrt( sums[ group ] / counts[ group ] );
+    }
+
+    @Override long getMemoryUsage() {
+      return 24L * counts.length;
+    }
+
+    @Override void writeState( int group, DataOutputStream outputStream ) throws IOException {
+      outputStream.writeLong( counts[ group ] );
+      outputStream.writeDouble( means[ group ] );
+      outputStream.writeDouble( sums[ group ] );
+    }
+
+    @Override void mergeState( int group, boolean newGroup, DataInputStream inputStream ) throws IOException {
+      long countB = inputStream.readLong();
+      double meanB = inputStream.readDouble();
+      double sumB = inputStream.readDouble();
+      if ( countB == 0 ) {
+        return;
+      }
+      // Combine the two partial results (Chan et al.)
+      //
+      long countA = counts[ group ];
+      double n = countA + countB;
+      double delta = meanB - means[ group ];
+      means[ group ] += delta * countB / n;
+      sums[ group ] += sumB + delta * delta * countA * countB / n;
+      counts[ group ] = countA + countB;
+    }
+  }
+
+  private static class PercentileColumn extends Column {
+    private final double percentile;
+    private double[][] values = new double[ 0 ][];
+    private int[] sizes = new int[ 0 ];
+    private long valueCount;
+
+    PercentileColumn( IValueMeta subjMeta, double percentile ) {
+      super( subjMeta );
+      this.percentile = percentile;
+    }
+
+    @Override void grow( int capacity ) {
+      values = Arrays.copyOf( values, capacity );
+      sizes = Arrays.copyOf( sizes, capacity );
+    }
+
+    @Override void add( int group, boolean newGroup, Object subj ) throws HopException {
+      Double value = subjMeta.getNumber( subj );
+      if ( value == null ) {
+        return;
+      }
+      double[] groupValues = values[ group ];
+      int size = sizes[ group ];
+      if ( groupValues == null ) {
+        groupValues = new double[ 8 ];
+        values[ group ] = groupValues;
+      } else if ( size == groupValues.length ) {
+        groupValues = Arrays.copyOf( groupValues, size * 2 );
+        values[ group ] = groupValues;
+      }
+      groupValues[ size ] = value;
+      sizes[ group ] = size + 1;
+      valueCount++;
+    }
+
+    @Override Object getResult( int group ) {
+      double[] groupValues = values[ group ] == null ? new double[ 0 ] : values[ group ];
+      return new Percentile().evaluate( groupValues, 0, sizes[ group ], percentile );
+    }
+
+    @Override long getMemoryUsage() {
+      return 28L * values.length + 16L * valueCount;
+    }
+
+    @Override void writeState( int group, DataOutputStream outputStream ) throws IOException {
+      int size = sizes[ group ];
+      outputStream.writeInt( size );
+      for ( int i = 0; i < size; i++ ) {
+        outputStream.writeDouble( values[ group ][ i ] );
+      }
+    }
+
+    @Override void mergeState( int group, boolean newGroup, DataInputStream inputStream ) throws IOException {
+      int size = inputStream.readInt();
+      if ( size == 0 ) {
+        return;
+      }
+      int oldSize = sizes[ group ];
+      double[] groupValues = values[ group ];
+      if ( groupValues == null ) {
+        groupValues = new double[ size ];
+      } else if ( oldSize + size > groupValues.length ) {
+        groupValues = Arrays.copyOf( groupValues, oldSize + size );
+      }
+      for ( int i = 0; i < size; i++ ) {
+        groupValues[ oldSize + i ] = inputStream.readDouble();
+      }
+      values[ group ] = groupValues;
+      sizes[ group ] = oldSize + size;
+      valueCount += size;
+    }
+
+    @Override void clear() {
+      super.clear();
+      valueCount = 0;
+    }
+  }
+
+  /**
+   * Count distinct for the data types which can be encoded into bytes: every distinct value gets an id in a
+   * {@link ByteArrayIdIndex}, the (group, value) combinations are kept in a {@link LongHashSet}.
+   */
+  private static class CountDistinctColumn extends Column {
+    private final ByteArrayIdIndex valueIndex = new ByteArrayIdIndex();
+    private final LongHashSet groupValues = new LongHashSet();
+    private final KeyBuffer valueBuffer = new KeyBuffer();
+    private final DataOutputStream valueStream = new DataOutputStream( valueBuffer );
+    private long[] counts = new long[ 0 ];
+    private long[] spillValues;
+    private int spillPosition;
+
+    CountDistinctColumn( IValueMeta subjMeta ) {
+      super( subjMeta );
+    }
+
+    @Override void grow( int capacity ) {
+      counts = Arrays.copyOf( counts, capacity );
+    }
+
+    @Override void add( int group, boolean newGroup, Object subj ) throws HopException {
+      if ( subjMeta.isNull( subj ) ) {
+        return;
+      }
+      Object value = subjMeta.convertToNormalStorageType( subj );
+      valueBuffer.reset();
+      try {
+        switch ( subjMeta.getType() ) {
+          case IValueMeta.TYPE_INTEGER:
+            valueStream.writeLong( (Long) value );
+            break;
+          case IValueMeta.TYPE_NUMBER:
+            valueStream.writeLong( Double.doubleToLongBits( (Double) value ) );
+            break;
+          case IValueMeta.TYPE_DATE:
+            valueStream.writeLong( ( (Date) value ).getTime() );
+            break;
+          case IValueMeta.TYPE_BOOLEAN:
+            valueStream.writeBoolean( (Boolean) value );
+            break;
+          case IValueMeta.TYPE_BIGNUMBER:
+            // Same as the compareTo() of BigDecimal: 1.0 and 1.00 are the same value
+            //
+            valueStream.writeChars( ( (BigDecimal) value ).stripTrailingZeros().toString() );
+            break;
+          default:
+            valueStream.writeChars( (String) value );
+            break;
+        }
+      } catch ( IOException e ) {
+        throw new HopValueException( "Unable to encode value " + value, e );
+      }
+      addValue( group, valueBuffer.getBuffer(), valueBuffer.size() );
+    }
+
+    private void addValue( int group, byte[] value, int length ) {
+      long valueId = valueIndex.put( value, 0, length );
+      if ( groupValues.add( ( (long) group << 32 ) | valueId ) ) {
+        counts[ group ]++;
+      }
+    }
+
+    @Override Object getResult( int group ) {
+      return counts[ group ];
+    }
+
+    @Override long getMemoryUsage() {
+      return 8L * counts.length + valueIndex.getMemoryUsage() + groupValues.getMemoryUsage();
+    }
+
+    @Override void startSpill() {
+      // Sorting the (group, value) combinations puts the values of a group together, in order of the group id
+      //
+      spillValues = groupValues.toArray();
+      Arrays.sort( spillValues );
+      spillPosition = 0;
+    }
+
+    @Override void writeState( int group, DataOutputStream outputStream ) throws IOException {
+      int end = spillPosition;
+      while ( end < spillValues.length && ( spillValues[ end ] >>> 32 ) == group ) {
+        end++;
+      }
+      outputStream.writeInt( end - spillPosition );
+      for ( ; spillPosition < end; spillPosition++ ) {
+        byte[] value = valueIndex.getKey( (int) spillValues[ spillPosition ] );
+        outputStream.writeInt( value.length );
+        outputStream.write( value );
+      }
+    }
+
+    @Override void mergeState( int group, boolean newGroup, DataInputStream inputStream ) throws IOException {
+      int size = inputStream.readInt();
+      for ( int i = 0; i < size; i++ ) {
+        int length = inputStream.readInt();
+        byte[] value = new byte[ length ];
+        inputStream.readFully( value );
+        addValue( group, value, length );
+      }
+    }
+
+    @Override void clear() {
+      super.clear();
+      valueIndex.clear();
+      groupValues.clear();
+      spillValues = null;
+    }
+  }
+
+  /**
+   * Count distinct for the other data types, the distinct values are kept in a set per group.
+   */
+  private static class GenericCountDistinctColumn extends Column {
+    private final IValueMeta normalMeta;
+    private final IValueMeta stringMeta;
+    private Set<Object>[] distinctObjs = newSets( 0 );
+    private long valueCount;
+
+    GenericCountDistinctColumn( IValueMeta subjMeta ) {
+      super( subjMeta );
+      normalMeta = subjMeta.clone();
+      normalMeta.setStorageType( IValueMeta.STORAGE_TYPE_NORMAL );
+      stringMeta = new ValueMetaString( subjMeta.getName() );
+    }
+
+    @SuppressWarnings( "unchecked" )
+    private static Set<Object>[] newSets( int capacity ) {
+      return new Set[ capacity ];
+    }
+
+    @Override void grow( int capacity ) {
+      distinctObjs = Arrays.copyOf( distinctObjs, capacity );
+    }
+
+    @Override void add( int group, boolean newGroup, Object subj ) throws HopException {
+      if ( distinctObjs[ group ] == null ) {
+        distinctObjs[ group ] = new TreeSet<>();
+      }
+      if ( !subjMeta.isNull( subj ) ) {
+        Object obj = subjMeta.convertToNormalStorageType( subj );
+        // byte [] is not Comparable and can not be added to TreeSet.
+        //
+        if ( obj instanceof byte[] ) {
+          obj = new String( (byte[]) obj );
+        }
+        if ( distinctObjs[ group ].add( obj ) ) {
+          valueCount++;
+        }
+      }
+    }
+
+    @Override Object getResult( int group ) {
+      return distinctObjs[ group ] == null ? 0L : (long) distinctObjs[ group ].size();
+    }
+
+    @Override long getMemoryUsage() {
+      return 48L * distinctObjs.length + 64L * valueCount;
+    }
+
+    @Override void writeState( int group, DataOutputStream outputStream ) throws IOException, HopException {
+      Set<Object> set = distinctObjs[ group ];
+      outputStream.writeInt( set == null ? 0 : set.size() );
+      if ( set != null ) {
+        for ( Object obj : set ) {
+          // Binary values were converted to String
+          //
+          boolean string = obj instanceof String && normalMeta.getType() != IValueMeta.TYPE_STRING;
+          outputStream.writeBoolean( string );
+          ( string ? stringMeta : normalMeta ).writeData( outputStream, obj );
+        }
+      }
+    }
+
+    @Override void mergeState( int group, boolean newGroup, DataInputStream inputStream )
+      throws IOException, HopException {
+      if ( distinctObjs[ group ] == null ) {
+        distinctObjs[ group ] = new TreeSet<>();
+      }
+      int size = inputStream.readInt();
+      for ( int i = 0; i < size; i++ ) {
+        boolean string = inputStream.readBoolean();
+        Object obj = ( string ? stringMeta : normalMeta ).readData( inputStream );
+        if ( distinctObjs[ group ].add( obj ) ) {
+          valueCount++;
+        }
+      }
+    }
+
+    @Override void clear() {
+      super.clear();
+      valueCount = 0;
+    }
+  }
+
+  /**
+   * Minimum, maximum, first and last values: a reference to one of the subject values is kept per group.
+   */
+  private static class ValueColumn extends Column {
+    private final IValueMeta valueMeta;
+    private final int aggregateType;
+    private final boolean minNullIsValued;
+    private Object[] values = new Object[ 0 ];
+
+    ValueColumn( IValueMeta subjMeta, IValueMeta valueMeta, int aggregateType, boolean minNullIsValued ) {
+      super( subjMeta );
+      this.valueMeta = valueMeta;
+      this.aggregateType = aggregateType;
+      this.minNullIsValued = minNullIsValued;
+    }
+
+    @Override void grow( int capacity ) {
+      values = Arrays.copyOf( values, capacity );
+    }
+
+    @Override void add( int group, boolean newGroup, Object subj ) throws HopException {
+      // The partial aggregate of a group is one of its subject values so adding a row and merging are the same.
+      //
+      if ( newGroup ) {
+        values[ group ] = subj;
+        return;
+      }
+      Object value = values[ group ];
+      switch ( aggregateType ) {
+        case MemoryGroupByMeta.TYPE_GROUP_MIN:
+          boolean subjIsNull = subjMeta.isNull( subj );
+          boolean valueIsNull = valueMeta.isNull( value );
+          if ( minNullIsValued || ( !subjIsNull && !valueIsNull ) ) {
+            // PDI-11530 do not compare null
+            values[ group ] = subjMeta.compare( subj, valueMeta, value ) < 0 ? subj : value;
+          } else if ( valueIsNull && !subjIsNull ) {
+            // By default set aggregate to first not null value
+            values[ group ] = subj;
+          }
+          break;
+        case MemoryGroupByMeta.TYPE_GROUP_MAX:
+          if ( subjMeta.compare( subj, valueMeta, value ) > 0 ) {
+            values[ group ] = subj;
+          }
+          break;
+        case MemoryGroupByMeta.TYPE_GROUP_FIRST:
+          if ( !subjMeta.isNull( subj ) && value == null ) {
+            values[ group ] = subj;
+          }
+          break;
+        case MemoryGroupByMeta.TYPE_GROUP_LAST:
+          if ( !subjMeta.isNull( subj ) ) {
+            values[ group ] = subj;
+          }
+          break;
+        case MemoryGroupByMeta.TYPE_GROUP_LAST_INCL_NULL:
+          values[ group ] = subj;
+          break;
+        default:
+          // First including null: keep the value of the first row
+          break;
+      }
+    }
+
+    @Override Object getResult( int group ) {
+      return values[ group ];
+    }
+
+    @Override long getMemoryUsage() {
+      return 8L * values.length;
+    }
+
+    @Override void writeState( int group, DataOutputStream outputStream ) throws HopException {
+      subjMeta.writeData( outputStream, values[ group ] );
+    }
+
+    @Override void mergeState( int group, boolean newGroup, DataInputStream inputStream ) throws HopException {
+      try {
+        add( group, newGroup, subjMeta.readData( inputStream ) );
+      } catch ( IOException e ) {
+        throw new HopFileException( e );
+      }
+    }
+
+  }
+
+  private static class ConcatColumn extends Column {
+    private final String separator;
+    private StringBuilder[] builders = new StringBuilder[ 0 ];
+    private long characterCount;
+
+    ConcatColumn( IValueMeta subjMeta, String separator ) {
+      super( subjMeta );
+      this.separator = separator;
+    }
+
+    @Override void grow( int capacity ) {
+      builders = Arrays.copyOf( builders, capacity );
+    }
+
+    @Override void add( int group, boolean newGroup, Object subj ) throws HopException {
+      if ( subj == null ) {
+        return;
+      }
+      StringBuilder sb = builders[ group ];
+      if ( sb == null ) {
+        sb = new StringBuilder();
+        builders[ group ] = sb;
+      } else if ( sb.length() > 0 ) {
+        sb.append( separator );
+        characterCount += separator.length();
+      }
+      String string = subjMeta.getString( subj );
+      sb.append( string );
+      characterCount += string == null ? 4 : string.length();
+    }
+
+    @Override Object getResult( int group ) {
+      return builders[ group ] == null ? "" : builders[ group ].toString();
+    }
+
+    @Override long getMemoryUsage() {
+      return 48L * builders.length + 2L * characterCount;
+    }
+
+    @Override void writeState( int group, DataOutputStream outputStream ) throws IOException {
+      StringBuilder sb = builders[ group ];
+      outputStream.writeInt( sb == null ? -1 : sb.length() );
+      if ( sb != null ) {
+        outputStream.writeChars( sb.toString() );
+      }
+    }
+
+    @Override void mergeState( int group, boolean newGroup, DataInputStream inputStream ) throws IOException {
+      int length = inputStream.readInt();
+      if ( length < 0 ) {
+        return;
+      }
+      StringBuilder sb = builders[ group ];
+      if ( sb == null ) {
+        sb = new StringBuilder( length );
+        builders[ group ] = sb;
+      } else if ( sb.length() > 0 && length > 0 ) {
+        sb.append( separator );
+        characterCount += separator.length();
+      }
+      for ( int i = 0; i < length; i++ ) {
+        sb.append( inputStream.readChar() );
+      }
+      characterCount += length;
+    }
+
+    @Override void clear() {
+      super.clear();
+      characterCount = 0;
+    }
+  }
+}
@@ -23,33 +23,34 @@
 
 package org.apache.hop.pipeline.transforms.memgroupby;
 
-import org.apache.commons.math3.stat.descriptive.rank.Percentile;
+import org.apache.commons.vfs2.FileObject;
 import org.apache.hop.core.Const;
 import org.apache.hop.core.exception.HopException;
 import org.apache.hop.core.exception.HopValueException;
 import org.apache.hop.core.row.RowDataUtil;
 import org.apache.hop.core.row.RowMeta;
 import org.apache.hop.core.row.IRowMeta;
-import org.apache.hop.core.row.ValueDataUtil;
 import org.apache.hop.core.row.IValueMeta;
 import org.apache.hop.core.row.value.ValueMetaBase;
 import org.apache.hop.core.row.value.ValueMetaInteger;
 import org.apache.hop.core.row.value.ValueMetaNumber;
 import org.apache.hop.core.row.value.ValueMetaString;
 import org.apache.hop.core.util.Utils;
+import org.apache.hop.core.vfs.HopVfs;
 import org.apache.hop.i18n.BaseMessages;
 import org.apache.hop.pipeline.Pipeline;
 import org.apache.hop.pipeline.PipelineMeta;
 import org.apache.hop.pipeline.transform.BaseTransform;
 import org.apache.hop.pipeline.transform.ITransform;
 import org.apache.hop.pipeline.transform.TransformMeta;
-import org.apache.hop.pipeline.transforms.memgroupby.MemoryGroupByData.HashEntry;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Set;
-import java.util.TreeSet;
 
 /**
  * Groups information based on aggregation rules. (sum, count, ...)
@@ -60,6 +61,21 @@ import java.util.TreeSet;
 public class MemoryGroupBy extends BaseTransform<MemoryGroupByMeta, MemoryGroupByData> implements ITransform<MemoryGroupByMeta, MemoryGroupByData> {
   private static final Class<?> PKG = MemoryGroupByMeta.class; // for i18n purposes, needed by Translator!!
 
+  /**
+   * The number of partitions the hash table is split into when it's spilled to disk
+   */
+  static final int NR_SPILL_PARTITIONS = 8;
+
+  /**
+   * Partitions are split up again until this level, after that they're kept in memory regardless
+   */
+  private static final int MAX_SPILL_LEVEL = 6;
+
+  /**
+   * Don't spill for a free memory shortage when there are fewer groups than this in memory
+   */
+  private static final int MIN_SPILL_GROUPS = 5000;
+
   private boolean allNullsAreZero = false;
   private boolean minNullIsValued = false;
   private boolean compatibilityMode = false;
@@ -160,6 +176,12 @@ public class MemoryGroupBy extends BaseTransform<MemoryGroupByMeta, MemoryGroupB
       data.groupAggMeta = new RowMeta();
       data.groupAggMeta.addRowMeta( data.groupMeta );
       data.groupAggMeta.addRowMeta( data.aggMeta );
+
+      // The aggregation engine
+      //
+      if ( r != null ) {
+        data.table = new GroupByHashTable( data, meta.getAggregateType(), getAggregateValueFields(), minNullIsValued );
+      }
     }
 
     // Here is where we start to do the real work...
@@ -176,7 +198,11 @@ public class MemoryGroupBy extends BaseTransform<MemoryGroupByMeta, MemoryGroupB
       data.newBatch = false;
     }
 
-    addToAggregate( r );
+    data.table.addRow( r );
+
+    if ( isMemoryLimitReached( data.table ) ) {
+      data.spills.add( spill( data.table, 0 ) );
+    }
 
     if ( checkFeedback( getLinesRead() ) ) {
       if ( log.isBasic() ) {
@@ -188,27 +214,21 @@ public class MemoryGroupBy extends BaseTransform<MemoryGroupByMeta, MemoryGroupB
   }
 
   private void handleLastOfGroup() throws HopException {
-    // Dump the content of the map...
-    //
-    for ( HashEntry entry : data.map.keySet() ) {
-      Aggregate aggregate = data.map.get( entry );
-      Object[] aggregateResult = getAggregateResult( aggregate );
-
-      Object[] outputRowData = RowDataUtil.allocateRowData( data.outputRowMeta.size() );
-      int index = 0;
-      for ( int i = 0; i < data.groupMeta.size(); i++ ) {
-        outputRowData[ index++ ] = data.groupMeta.getValueMeta( i ).convertToNormalStorageType( entry.getGroupData()[ i ] );
-      }
-      for ( int i = 0; i < data.aggMeta.size(); i++ ) {
-        outputRowData[ index++ ] = data.aggMeta.getValueMeta( i ).convertToNormalStorageType( aggregateResult[ i ] );
-      }
-      putRow( data.outputRowMeta, outputRowData );
+    long nrGroups;
+    if ( data.spills.isEmpty() ) {
+      nrGroups = putGroups( data.table );
+    } else {
+      // Put what's left in memory on disk as well and merge the partitions one at a time...
+      //
+      data.spills.add( spill( data.table, 0 ) );
+      nrGroups = mergeSpills( new ArrayList<>( data.spills ), 1 );
+      data.spills.clear();
     }
 
     // What if we always need to give back one row?
     // This means we give back 0 for count all, count distinct, null for everything else
     //
-    if ( data.map.isEmpty() && meta.isAlwaysGivingBackOneRow() ) {
+    if ( nrGroups == 0 && meta.isAlwaysGivingBackOneRow() ) {
       Object[] outputRowData = RowDataUtil.allocateRowData( data.outputRowMeta.size() );
       int index = 0;
       for ( int i = 0; i < data.groupMeta.size(); i++ ) {
@@ -228,161 +248,164 @@ public class MemoryGroupBy extends BaseTransform<MemoryGroupByMeta, MemoryGroupB
   }
 
   /**
-   * Used for junits in MemoryGroupByAggregationNullsTest
+   * Write the groups of the hash table to the output, the groups come out in the order in which they were first seen.
    *
-   * @param r
+   * @param table the hash table, can be null if no rows were received
+   * @return the number of groups written
    * @throws HopException
    */
-  @SuppressWarnings( "unchecked" ) void addToAggregate( Object[] r ) throws HopException {
+  private long putGroups( GroupByHashTable table ) throws HopException {
+    // The group values are kept in normal storage in the table.
+    //
+    int nrGroups = table == null ? 0 : table.size();
+    for ( int group = 0; group < nrGroups; group++ ) {
+      Object[] groupData = table.getGroup( group );
+      Object[] aggregateResult = table.getAggregateResult( group, allNullsAreZero, data.aggMeta );
 
-    Object[] groupData = new Object[ data.groupMeta.size() ];
-    for ( int i = 0; i < data.groupnrs.length; i++ ) {
-      groupData[ i ] = r[ data.groupnrs[ i ] ];
+      Object[] outputRowData = RowDataUtil.allocateRowData( data.outputRowMeta.size() );
+      int index = 0;
+      for ( int i = 0; i < data.groupMeta.size(); i++ ) {
+        outputRowData[ index++ ] = groupData[ i ];
+      }
+      for ( int i = 0; i < data.aggMeta.size(); i++ ) {
+        outputRowData[ index++ ] = data.aggMeta.getValueMeta( i ).convertToNormalStorageType( aggregateResult[ i ] );
+      }
+      putRow( data.outputRowMeta, outputRowData );
     }
-    HashEntry entry = data.getHashEntry( groupData );
-
-    Aggregate aggregate = data.map.get( entry );
-    if ( aggregate == null ) {
-      // Create a new value...
-      //
-      aggregate = new Aggregate();
-      newAggregate( r, aggregate );
+    return nrGroups;
+  }
 
-      // Store it in the map!
-      //
-      data.map.put( entry, aggregate );
+  /**
+   * Verify the memory budget every 1000 rows or groups
+   *
+   * @param table the hash table
+   * @return true if the hash table needs to be spilled to disk
+   */
+  private boolean isMemoryLimitReached( GroupByHashTable table ) {
+    if ( data.memoryLimit <= 0 && data.freeMemoryPctLimit <= 0 ) {
+      return false;
+    }
+    data.freeCounter++;
+    if ( data.freeCounter < 1000 ) {
+      return false;
     }
+    data.freeCounter = 0;
 
-    for ( int i = 0; i < data.subjectnrs.length; i++ ) {
-      Object subj = r[ data.subjectnrs[ i ] ];
-      IValueMeta subjMeta = data.inputRowMeta.getValueMeta( data.subjectnrs[ i ] );
-      Object value = aggregate.agg[ i ];
-      IValueMeta valueMeta = data.aggMeta.getValueMeta( i );
+    if ( data.memoryLimit > 0 && table.getMemoryUsage() > data.memoryLimit ) {
+      return true;
+    }
+    return data.freeMemoryPctLimit > 0 && table.size() >= MIN_SPILL_GROUPS
+      && Const.getPercentageFreeMemory() < data.freeMemoryPctLimit;
+  }
 
-      switch ( meta.getAggregateType()[ i ] ) {
-        case MemoryGroupByMeta.TYPE_GROUP_SUM:
-          aggregate.agg[ i ] = ValueDataUtil.sum( valueMeta, value, subjMeta, subj );
-          break;
-        case MemoryGroupByMeta.TYPE_GROUP_AVERAGE:
-          if ( !subjMeta.isNull( subj ) ) {
-            aggregate.agg[ i ] = ValueDataUtil.sum( valueMeta, value, subjMeta, subj );
-            aggregate.counts[ i ]++;
-          }
-          break;
-        case MemoryGroupByMeta.TYPE_GROUP_MEDIAN:
-        case MemoryGroupByMeta.TYPE_GROUP_PERCENTILE:
-          if ( !subjMeta.isNull( subj ) ) {
-            ( (List<Double>) aggregate.agg[ i ] ).add( subjMeta.getNumber( subj ) );
-          }
-          break;
-        case MemoryGroupByMeta.TYPE_GROUP_STANDARD_DEVIATION:
-          if ( aggregate.mean == null ) {
-            aggregate.mean = new double[ meta.getSubjectField().length ];
-          }
-          aggregate.counts[ i ]++;
-          double n = aggregate.counts[ i ];
-          double x = subjMeta.getNumber( subj );
-          // for standard deviation null is exact 0
-          double sum = value == null ? new Double( 0 ) : (Double) value;
-          double mean = aggregate.mean[ i ];
-
-          double delta = x - mean;
-          mean = mean + ( delta / n );
-          sum = sum + delta * ( x - mean );
-
-          aggregate.mean[ i ] = mean;
-          aggregate.agg[ i ] = sum;
-          break;
-        case MemoryGroupByMeta.TYPE_GROUP_COUNT_DISTINCT:
-          if ( aggregate.distinctObjs == null ) {
-            aggregate.distinctObjs = new Set[ meta.getSubjectField().length ];
-          }
-          if ( aggregate.distinctObjs[ i ] == null ) {
-            aggregate.distinctObjs[ i ] = new TreeSet<>();
-          }
-          if ( !subjMeta.isNull( subj ) ) {
-            Object obj = subjMeta.convertToNormalStorageType( subj );
-            // byte [] is not Comparable and can not be added to TreeSet.
-            // For our case it can be binary array. It was typed as String.
-            // So it can be processing (comparing and displaying) correctly as String
-            if ( obj instanceof byte[] ) {
-              obj = new String( (byte[]) obj );
-            }
-            if ( !aggregate.distinctObjs[ i ].contains( obj ) ) {
-              aggregate.distinctObjs[ i ].add( obj );
-            }
-          }
-          aggregate.counts[ i ] = aggregate.distinctObjs[ i ].size();
-          break;
-        case MemoryGroupByMeta.TYPE_GROUP_COUNT_ALL:
-          if ( !subjMeta.isNull( subj ) ) {
-            aggregate.counts[ i ]++;
-          }
-          break;
-        case MemoryGroupByMeta.TYPE_GROUP_COUNT_ANY:
-          aggregate.counts[ i ]++;
-          break;
-        case MemoryGroupByMeta.TYPE_GROUP_MIN:
-          boolean subjIsNull = subjMeta.isNull( subj );
-          boolean valueIsNull = valueMeta.isNull( value );
-          if ( minNullIsValued || ( !subjIsNull && !valueIsNull ) ) {
-            // PDI-11530 do not compare null
-            aggregate.agg[ i ] = subjMeta.compare( subj, valueMeta, value ) < 0 ? subj : value;
-          } else if ( valueIsNull && !subjIsNull ) {
-            // By default set aggregate to first not null value
-            aggregate.agg[ i ] = subj;
-          }
-          break;
-        case MemoryGroupByMeta.TYPE_GROUP_MAX:
-          if ( subjMeta.compare( subj, valueMeta, value ) > 0 ) {
-            aggregate.agg[ i ] = subj;
-          }
-          break;
-        case MemoryGroupByMeta.TYPE_GROUP_FIRST:
-          if ( !subjMeta.isNull( subj ) && value == null ) {
-            aggregate.agg[ i ] = subj;
-          }
-          break;
-        case MemoryGroupByMeta.TYPE_GROUP_LAST:
-          if ( !subjMeta.isNull( subj ) ) {
-            aggregate.agg[ i ] = subj;
-          }
-          break;
-        case MemoryGroupByMeta.TYPE_GROUP_FIRST_INCL_NULL:
-          if ( aggregate.counts[ i ] == 0 ) {
-            aggregate.agg[ i ] = subj;
-            aggregate.counts[ i ]++;
-          }
-          break;
-        case MemoryGroupByMeta.TYPE_GROUP_LAST_INCL_NULL:
-          aggregate.agg[ i ] = subj;
-          break;
-        case MemoryGroupByMeta.TYPE_GROUP_CONCAT_COMMA:
-          if ( !( subj == null ) ) {
-            StringBuilder sb = (StringBuilder) value;
-            if ( sb.length() > 0 ) {
-              sb.append( ", " );
-            }
-            sb.append( subjMeta.getString( subj ) );
+  /**
+   * Write the partial aggregates of the hash table to temporary files, one file per partition. The table is empty
+   * afterwards.
+   *
+   * @param table the hash table
+   * @param level the partitioning level
+   * @return the temporary files of the partitions
+   * @throws HopException
+   */
+  private FileObject[] spill( GroupByHashTable table, int level ) throws HopException {
+    if ( log.isDetailed() ) {
+      logDetailed( BaseMessages.getString( PKG, "MemoryGroupBy.Detailed.SpillToDisk", table.size(), level,
+        table.getMemoryUsage() / 1024 / 1024 ) );
+    }
+    FileObject[] files = new FileObject[ NR_SPILL_PARTITIONS ];
+    DataOutputStream[] outputStreams = new DataOutputStream[ NR_SPILL_PARTITIONS ];
+    try {
+      String directory = environmentSubstitute( meta.getDirectory() );
+      if ( Utils.isEmpty( directory ) ) {
+        directory = System.getProperty( "java.io.tmpdir" );
+      }
+      for ( int p = 0; p < NR_SPILL_PARTITIONS; p++ ) {
+        files[ p ] = HopVfs.createTempFile( environmentSubstitute( meta.getPrefix() ), ".tmp", directory );
+        data.spillFiles.add( files[ p ] );
+        outputStreams[ p ] =
+          new DataOutputStream( new BufferedOutputStream( HopVfs.getOutputStream( files[ p ], false ), 65536 ) );
+      }
+      table.spill( outputStreams, level );
+    } catch ( IOException e ) {
+      throw new HopException( BaseMessages.getString( PKG, "MemoryGroupBy.Exception.UnableToSpill" ), e );
+    } finally {
+      for ( DataOutputStream outputStream : outputStreams ) {
+        if ( outputStream != null ) {
+          try {
+            outputStream.close();
+          } catch ( IOException e ) {
+            logError( BaseMessages.getString( PKG, "MemoryGroupBy.Exception.UnableToSpill" ), e );
           }
-          break;
-        case MemoryGroupByMeta.TYPE_GROUP_CONCAT_STRING:
-          if ( !( subj == null ) ) {
-            String separator = "";
-            if ( !Utils.isEmpty( meta.getValueField()[ i ] ) ) {
-              separator = environmentSubstitute( meta.getValueField()[ i ] );
-            }
-            StringBuilder sb = (StringBuilder) value;
-            if ( sb.length() > 0 ) {
-              sb.append( separator );
+        }
+      }
+    }
+    return files;
+  }
+
+  /**
+   * Merge the spilled partial aggregates partition by partition and write the groups to the output. When a partition
+   * doesn't fit in memory it is split up again on the next level.
+   *
+   * @param spills the spilled partitions in the order in which they were written
+   * @param level  the partitioning level for the partitions which are still too large
+   * @return the number of groups written
+   * @throws HopException
+   */
+  private long mergeSpills( List<FileObject[]> spills, int level ) throws HopException {
+    GroupByHashTable table = data.table;
+    long nrGroups = 0;
+    for ( int p = 0; p < NR_SPILL_PARTITIONS && !isStopped(); p++ ) {
+      List<FileObject[]> subSpills = new ArrayList<>();
+      for ( FileObject[] spill : spills ) {
+        FileObject file = spill[ p ];
+        try ( DataInputStream inputStream =
+                new DataInputStream( new BufferedInputStream( HopVfs.getInputStream( file ), 65536 ) ) ) {
+          while ( table.mergeGroup( inputStream ) ) {
+            if ( level <= MAX_SPILL_LEVEL && isMemoryLimitReached( table ) ) {
+              subSpills.add( spill( table, level ) );
             }
-            sb.append( subjMeta.getString( subj ) );
           }
-          break;
-        default:
-          break;
+        } catch ( IOException e ) {
+          throw new HopException( BaseMessages.getString( PKG, "MemoryGroupBy.Exception.UnableToReadSpill",
+            file.toString() ), e );
+        }
+        deleteSpillFile( file );
       }
+
+      if ( subSpills.isEmpty() ) {
+        nrGroups += putGroups( table );
+        table.clear();
+      } else {
+        subSpills.add( spill( table, level ) );
+        nrGroups += mergeSpills( subSpills, level + 1 );
+      }
+    }
+    return nrGroups;
+  }
+
+  private void deleteSpillFile( FileObject file ) {
+    try {
+      file.delete();
+    } catch ( Exception e ) {
+      logError( BaseMessages.getString( PKG, "MemoryGroupBy.Exception.UnableToDeleteSpill", file.toString() ), e );
+    }
+    data.spillFiles.remove( file );
+  }
+
+  /**
+   * The value fields of the aggregations as used by the aggregation engine: the separators of the string
+   * concatenations have variables resolved.
+   */
+  private String[] getAggregateValueFields() {
+    String[] valueFields = new String[ meta.getSubjectField().length ];
+    for ( int i = 0; i < valueFields.length; i++ ) {
+      String valueField = meta.getValueField() == null ? null : meta.getValueField()[ i ];
+      if ( meta.getAggregateType()[ i ] == MemoryGroupByMeta.TYPE_GROUP_CONCAT_STRING && !Utils.isEmpty( valueField ) ) {
+        valueField = environmentSubstitute( valueField );
+      }
+      valueFields[ i ] = valueField;
     }
+    return valueFields;
   }
 
   /**
@@ -475,85 +498,23 @@ public class MemoryGroupBy extends BaseTransform<MemoryGroupByMeta, MemoryGroupB
 
       IValueMeta normalMeta = valueMeta.clone();
       normalMeta.setStorageType( IValueMeta.STORAGE_TYPE_NORMAL );
+      data.entryMeta.addValueMeta( normalMeta );
     }
 
     return;
   }
 
-  /**
-   * Used for junits in MemoryGroupByAggregationNullsTest
-   *
-   * @param aggregate
-   * @return
-   * @throws HopValueException
-   */
-  Object[] getAggregateResult( Aggregate aggregate ) throws HopValueException {
-    Object[] result = new Object[ data.subjectnrs.length ];
-
-    if ( data.subjectnrs != null ) {
-      for ( int i = 0; i < data.subjectnrs.length; i++ ) {
-        Object ag = aggregate.agg[ i ];
-        switch ( meta.getAggregateType()[ i ] ) {
-          case MemoryGroupByMeta.TYPE_GROUP_SUM:
-            break;
-          case MemoryGroupByMeta.TYPE_GROUP_AVERAGE:
-            ag = ValueDataUtil.divide(
-              data.aggMeta.getValueMeta( i ), ag,
-              new ValueMetaInteger( "c" ), aggregate.counts[ i ]
-            );
-            break;
-          case MemoryGroupByMeta.TYPE_GROUP_MEDIAN:
-          case MemoryGroupByMeta.TYPE_GROUP_PERCENTILE:
-            double percentile = 50.0;
-            if ( meta.getAggregateType()[ i ] == MemoryGroupByMeta.TYPE_GROUP_PERCENTILE ) {
-              percentile = Double.parseDouble( meta.getValueField()[ i ] );
-            }
-            @SuppressWarnings( "unchecked" )
-            List<Double> valuesList = (List<Double>) aggregate.agg[ i ];
-            double[] values = new double[ valuesList.size() ];
-            for ( int v = 0; v < values.length; v++ ) {
-              values[ v ] = valuesList.get( v );
-            }
-            ag = new Percentile().evaluate( values, percentile );
-            break;
-          case MemoryGroupByMeta.TYPE_GROUP_COUNT_ANY:
-          case MemoryGroupByMeta.TYPE_GROUP_COUNT_ALL:
-          case MemoryGroupByMeta.TYPE_GROUP_COUNT_DISTINCT:
-            ag = aggregate.counts[ i ];
-            break;
-          case MemoryGroupByMeta.TYPE_GROUP_MIN:
-            break;
-          case MemoryGroupByMeta.TYPE_GROUP_MAX:
-            break;
-          case MemoryGroupByMeta.TYPE_GROUP_STANDARD_DEVIATION:
-            double sum = (Double) ag / aggregate.counts[ i ];
-            ag = Double.valueOf( Math.sqrt( sum ) );
-            break;
-          case MemoryGroupByMeta.TYPE_GROUP_CONCAT_COMMA:
-          case MemoryGroupByMeta.TYPE_GROUP_CONCAT_STRING:
-            ag = ( (StringBuilder) ag ).toString();
-            break;
-          default:
-            break;
-        }
-        if ( ag == null && allNullsAreZero ) {
-          // PDI-11530 seems all rows for min function was nulls...
-          IValueMeta vm = data.aggMeta.getValueMeta( i );
-          ag = ValueDataUtil.getZeroForValueMetaType( vm );
-        }
-        result[ i ] = ag;
-      }
-    }
-
-    return result;
-
-  }
-
   @Override
   public boolean init() {
 
     if ( super.init() ) {
-      data.map = new HashMap<HashEntry, Aggregate>( 5000 );
+      // The memory budget: the hash table is spilled to disk when it is exceeded
+      //
+      long memoryLimitMb = Const.toLong( environmentSubstitute( meta.getMemoryLimit() ), -1L );
+      data.memoryLimit = memoryLimitMb > 0 ? memoryLimitMb * 1024 * 1024 : -1L;
+      data.freeMemoryPctLimit = Const.toInt( environmentSubstitute( meta.getFreeMemoryLimit() ), -1 );
+      data.spills = new ArrayList<>();
+      data.spillFiles = new ArrayList<>();
       return true;
     }
     return false;
@@ -561,6 +522,13 @@ public class MemoryGroupBy extends BaseTransform<MemoryGroupByMeta, MemoryGroupB
 
   @Override
   public void dispose() {
+    // Clean up the temporary files in case we didn't get to merge them
+    //
+    if ( data.spillFiles != null ) {
+      for ( FileObject file : new ArrayList<>( data.spillFiles ) ) {
+        deleteSpillFile( file );
+      }
+    }
     super.dispose();
     ( (MemoryGroupByData) data ).clear();
   }
@@ -573,26 +541,10 @@ public class MemoryGroupBy extends BaseTransform<MemoryGroupByMeta, MemoryGroupB
 
     // Clear the complete cache...
     //
-    data.map.clear();
+    if ( data.table != null ) {
+      data.table.clear();
+    }
 
     data.newBatch = true;
   }
-
-  /**
-   * Used for junits in MemoryGroupByAggregationNullsTest
-   *
-   * @param allNullsAreZero the allNullsAreZero to set
-   */
-  void setAllNullsAreZero( boolean allNullsAreZero ) {
-    this.allNullsAreZero = allNullsAreZero;
-  }
-
-  /**
-   * Used for junits in MemoryGroupByAggregationNullsTest
-   *
-   * @param minNullIsValued the minNullIsValued to set
-   */
-  void setMinNullIsValued( boolean minNullIsValued ) {
-    this.minNullIsValued = minNullIsValued;
-  }
 }
@@ -23,59 +23,24 @@
 
 package org.apache.hop.pipeline.transforms.memgroupby;
 
-import org.apache.hop.core.exception.HopValueException;
+import org.apache.commons.vfs2.FileObject;
 import org.apache.hop.core.row.IRowMeta;
 import org.apache.hop.core.row.IValueMeta;
 import org.apache.hop.pipeline.transform.BaseTransformData;
 import org.apache.hop.pipeline.transform.ITransformData;
 
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * @author Matt
  * @since 24-jan-2005
  */
 public class MemoryGroupByData extends BaseTransformData implements ITransformData {
-  public class HashEntry {
-    private Object[] groupData;
-
-    public HashEntry( Object[] groupData ) {
-      this.groupData = groupData;
-    }
-
-    public Object[] getGroupData() {
-      return groupData;
-    }
-
-    public boolean equals( Object obj ) {
-      HashEntry entry = (HashEntry) obj;
-
-      try {
-        return groupMeta.compare( groupData, entry.groupData ) == 0;
-      } catch ( HopValueException e ) {
-        throw new RuntimeException( e );
-      }
-    }
-
-    public int hashCode() {
-      try {
-        return groupMeta.hashCode( getHashValue() );
-      } catch ( HopValueException e ) {
-        throw new RuntimeException( e );
-      }
-    }
-
-    private Object[] getHashValue() throws HopValueException {
-      Object[] groupDataHash = new Object[ groupMeta.size() ];
-      for ( int i = 0; i < groupMeta.size(); i++ ) {
-        IValueMeta valueMeta = groupMeta.getValueMeta( i );
-        groupDataHash[ i ] = valueMeta.convertToNormalStorageType( groupData[ i ] );
-      }
-      return groupDataHash;
-    }
-  }
-
-  public HashMap<HashEntry, Aggregate> map;
+  /**
+   * The groups and their aggregates
+   */
+  public GroupByHashTable table;
 
   public IRowMeta aggMeta;
   public IRowMeta groupMeta;
@@ -99,19 +64,38 @@ public class MemoryGroupByData extends BaseTransformData implements ITransformDa
 
   public boolean newBatch;
 
+  /**
+   * The memory budget of the hash table in bytes, -1 if there is none
+   */
+  public long memoryLimit;
+
+  /**
+   * Spill the hash table when the free memory percentage drops below this limit, -1 if there is none
+   */
+  public int freeMemoryPctLimit;
+
+  public int freeCounter;
+
+  /**
+   * The partitions of the hash table spilled to disk so far, in order
+   */
+  public List<FileObject[]> spills;
+
+  /**
+   * All temporary files which are not deleted yet
+   */
+  public List<FileObject> spillFiles;
+
   public MemoryGroupByData() {
     super();
 
   }
 
-  public HashEntry getHashEntry( Object[] groupData ) {
-    return new HashEntry( groupData );
-  }
-
   /**
    * Method responsible for clearing out memory hogs
    */
   public void clear() {
-    map = new HashMap<HashEntry, Aggregate>();
+    table = null;
+    spills = new ArrayList<>();
   }
 }
@@ -32,9 +32,11 @@ import org.apache.hop.pipeline.PipelineMeta;
 import org.apache.hop.pipeline.transform.BaseTransformMeta;
 import org.apache.hop.pipeline.transform.ITransformDialog;
 import org.apache.hop.pipeline.transform.TransformMeta;
+import org.apache.hop.ui.core.dialog.BaseDialog;
 import org.apache.hop.ui.core.dialog.ErrorDialog;
 import org.apache.hop.ui.core.widget.ColumnInfo;
 import org.apache.hop.ui.core.widget.TableView;
+import org.apache.hop.ui.core.widget.TextVar;
 import org.apache.hop.ui.pipeline.transform.BaseTransformDialog;
 import org.eclipse.swt.SWT;
 import org.eclipse.swt.events.*;
@@ -55,6 +57,14 @@ public class MemoryGroupByDialog extends BaseTransformDialog implements ITransfo
 
   private Button wAlwaysAddResult;
 
+  private TextVar wMemoryLimit;
+
+  private TextVar wFreeMemoryLimit;
+
+  private TextVar wTempDir;
+
+  private TextVar wPrefix;
+
   private final MemoryGroupByMeta input;
 
   private ColumnInfo[] ciKey;
@@ -136,12 +146,100 @@ public class MemoryGroupByDialog extends BaseTransformDialog implements ITransfo
     wAlwaysAddResult.setLayoutData(fdAlwaysAddResult);
     wAlwaysAddResult.addSelectionListener( lsSel );
 
+    // The memory budget before the partial aggregates are written to temporary files
+    //
+    Label wlMemoryLimit = new Label( shell, SWT.RIGHT );
+    wlMemoryLimit.setText( BaseMessages.getString( PKG, "MemoryGroupByDialog.MemoryLimit.Label" ) );
+    wlMemoryLimit.setToolTipText( BaseMessages.getString( PKG, "MemoryGroupByDialog.MemoryLimit.Tooltip" ) );
+    props.setLook( wlMemoryLimit );
+    FormData fdlMemoryLimit = new FormData();
+    fdlMemoryLimit.left = new FormAttachment( 0, 0 );
+    fdlMemoryLimit.top = new FormAttachment( wAlwaysAddResult, margin );
+    fdlMemoryLimit.right = new FormAttachment( middle, -margin );
+    wlMemoryLimit.setLayoutData( fdlMemoryLimit );
+    wMemoryLimit = new TextVar( pipelineMeta, shell, SWT.SINGLE | SWT.LEFT | SWT.BORDER );
+    wMemoryLimit.setToolTipText( BaseMessages.getString( PKG, "MemoryGroupByDialog.MemoryLimit.Tooltip" ) );
+    props.setLook( wMemoryLimit );
+    wMemoryLimit.addModifyListener( lsMod );
+    FormData fdMemoryLimit = new FormData();
+    fdMemoryLimit.left = new FormAttachment( middle, 0 );
+    fdMemoryLimit.top = new FormAttachment( wAlwaysAddResult, margin );
+    fdMemoryLimit.right = new FormAttachment( 100, 0 );
+    wMemoryLimit.setLayoutData( fdMemoryLimit );
+
+    Label wlFreeMemoryLimit = new Label( shell, SWT.RIGHT );
+    wlFreeMemoryLimit.setText( BaseMessages.getString( PKG, "MemoryGroupByDialog.FreeMemoryLimit.Label" ) );
+    wlFreeMemoryLimit.setToolTipText( BaseMessages.getString( PKG, "MemoryGroupByDialog.FreeMemoryLimit.Tooltip" ) );
+    props.setLook( wlFreeMemoryLimit );
+    FormData fdlFreeMemoryLimit = new FormData();
+    fdlFreeMemoryLimit.left = new FormAttachment( 0, 0 );
+    fdlFreeMemoryLimit.top = new FormAttachment( wMemoryLimit, margin );
+    fdlFreeMemoryLimit.right = new FormAttachment( middle, -margin );
+    wlFreeMemoryLimit.setLayoutData( fdlFreeMemoryLimit );
+    wFreeMemoryLimit = new TextVar( pipelineMeta, shell, SWT.SINGLE | SWT.LEFT | SWT.BORDER );
+    wFreeMemoryLimit.setToolTipText( BaseMessages.getString( PKG, "MemoryGroupByDialog.FreeMemoryLimit.Tooltip" ) );
+    props.setLook( wFreeMemoryLimit );
+    wFreeMemoryLimit.addModifyListener( lsMod );
+    FormData fdFreeMemoryLimit = new FormData();
+    fdFreeMemoryLimit.left = new FormAttachment( middle, 0 );
+    fdFreeMemoryLimit.top = new FormAttachment( wMemoryLimit, margin );
+    fdFreeMemoryLimit.right = new FormAttachment( 100, 0 );
+    wFreeMemoryLimit.setLayoutData( fdFreeMemoryLimit );
+
+    // Temp directory for the partial aggregates
+    //
+    Label wlTempDir = new Label( shell, SWT.RIGHT );
+    wlTempDir.setText( BaseMessages.getString( PKG, "MemoryGroupByDialog.TempDir.Label" ) );
+    props.setLook( wlTempDir );
+    FormData fdlTempDir = new FormData();
+    fdlTempDir.left = new FormAttachment( 0, 0 );
+    fdlTempDir.right = new FormAttachment( middle, -margin );
+    fdlTempDir.top = new FormAttachment( wFreeMemoryLimit, margin );
+    wlTempDir.setLayoutData( fdlTempDir );
+
+    Button wbTempDir = new Button( shell, SWT.PUSH | SWT.CENTER );
+    props.setLook( wbTempDir );
+    wbTempDir.setText( BaseMessages.getString( PKG, "MemoryGroupByDialog.Browse.Button" ) );
+    FormData fdbTempDir = new FormData();
+    fdbTempDir.right = new FormAttachment( 100, 0 );
+    fdbTempDir.top = new FormAttachment( wFreeMemoryLimit, margin );
+    wbTempDir.setLayoutData( fdbTempDir );
+
+    wTempDir = new TextVar( pipelineMeta, shell, SWT.SINGLE | SWT.LEFT | SWT.BORDER );
+    props.setLook( wTempDir );
+    wTempDir.addModifyListener( lsMod );
+    FormData fdTempDir = new FormData();
+    fdTempDir.left = new FormAttachment( middle, 0 );
+    fdTempDir.top = new FormAttachment( wFreeMemoryLimit, margin );
+    fdTempDir.right = new FormAttachment( wbTempDir, -margin );
+    wTempDir.setLayoutData( fdTempDir );
+    wbTempDir.addListener( SWT.Selection, e -> BaseDialog.presentDirectoryDialog( shell, wTempDir, pipelineMeta ) );
+
+    // Prefix of the temporary files
+    //
+    Label wlPrefix = new Label( shell, SWT.RIGHT );
+    wlPrefix.setText( BaseMessages.getString( PKG, "MemoryGroupByDialog.FilePrefix.Label" ) );
+    props.setLook( wlPrefix );
+    FormData fdlPrefix = new FormData();
+    fdlPrefix.left = new FormAttachment( 0, 0 );
+    fdlPrefix.right = new FormAttachment( middle, -margin );
+    fdlPrefix.top = new FormAttachment( wbTempDir, margin );
+    wlPrefix.setLayoutData( fdlPrefix );
+    wPrefix = new TextVar( pipelineMeta, shell, SWT.SINGLE | SWT.LEFT | SWT.BORDER );
+    props.setLook( wPrefix );
+    wPrefix.addModifyListener( lsMod );
+    FormData fdPrefix = new FormData();
+    fdPrefix.left = new FormAttachment( middle, 0 );
+    fdPrefix.top = new FormAttachment( wbTempDir, margin );
+    fdPrefix.right = new FormAttachment( 100, 0 );
+    wPrefix.setLayoutData( fdPrefix );
+
     Label wlGroup = new Label(shell, SWT.NONE);
     wlGroup.setText( BaseMessages.getString( PKG, "MemoryGroupByDialog.Group.Label" ) );
     props.setLook(wlGroup);
     FormData fdlGroup = new FormData();
     fdlGroup.left = new FormAttachment( 0, 0 );
-    fdlGroup.top = new FormAttachment(wlAlwaysAddResult, 2*margin );
+    fdlGroup.top = new FormAttachment( wPrefix, 2*margin );
     wlGroup.setLayoutData(fdlGroup);
 
     int nrKeyCols = 1;
@@ -320,6 +418,10 @@ public class MemoryGroupByDialog extends BaseTransformDialog implements ITransfo
     logDebug( BaseMessages.getString( PKG, "MemoryGroupByDialog.Log.GettingKeyInfo" ) );
 
     wAlwaysAddResult.setSelection( input.isAlwaysGivingBackOneRow() );
+    wMemoryLimit.setText( Const.NVL( input.getMemoryLimit(), "" ) );
+    wFreeMemoryLimit.setText( Const.NVL( input.getFreeMemoryLimit(), "" ) );
+    wTempDir.setText( Const.NVL( input.getDirectory(), "" ) );
+    wPrefix.setText( Const.NVL( input.getPrefix(), "" ) );
 
     if ( input.getGroupField() != null ) {
       for ( int i = 0; i < input.getGroupField().length; i++ ) {
@@ -370,6 +472,10 @@ public class MemoryGroupByDialog extends BaseTransformDialog implements ITransfo
     int nrFields = wAgg.nrNonEmpty();
 
     input.setAlwaysGivingBackOneRow( wAlwaysAddResult.getSelection() );
+    input.setMemoryLimit( wMemoryLimit.getText() );
+    input.setFreeMemoryLimit( wFreeMemoryLimit.getText() );
+    input.setDirectory( wTempDir.getText() );
+    input.setPrefix( wPrefix.getText() );
 
     input.allocate( sizegroup, nrFields );
 
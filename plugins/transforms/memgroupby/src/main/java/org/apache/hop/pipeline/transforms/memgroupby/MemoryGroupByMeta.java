@@ -150,6 +150,30 @@ public class MemoryGroupByMeta extends BaseTransformMeta implements ITransformMe
   /** Flag to indicate that we always give back one row. Defaults to true for existing pipelines. */
   private boolean alwaysGivingBackOneRow;
 
+  /**
+   * The memory budget of the hash table in MB, the partial aggregates are spilled to disk when it is exceeded
+   */
+  @Injection( name = "MEMORY_LIMIT" )
+  private String memoryLimit;
+
+  /**
+   * The free memory limit in percentages, the partial aggregates are spilled to disk when less memory is free
+   */
+  @Injection( name = "FREE_MEMORY_LIMIT" )
+  private String freeMemoryLimit;
+
+  /**
+   * Directory to store the temp files
+   */
+  @Injection( name = "SPILL_DIRECTORY" )
+  private String directory;
+
+  /**
+   * Temp files prefix...
+   */
+  @Injection( name = "SPILL_FILE_PREFIX" )
+  private String prefix;
+
   public MemoryGroupByMeta() {
     super(); // allocate BaseTransformMeta
   }
@@ -287,6 +311,11 @@ public class MemoryGroupByMeta extends BaseTransformMeta implements ITransformMe
         valueField[ i ] = XmlHandler.getTagValue( fnode, "valuefield" );
       }
 
+      memoryLimit = XmlHandler.getTagValue( transformNode, "memory_limit" );
+      freeMemoryLimit = XmlHandler.getTagValue( transformNode, "free_memory" );
+      directory = XmlHandler.getTagValue( transformNode, "directory" );
+      prefix = XmlHandler.getTagValue( transformNode, "prefix" );
+
       String giveBackRow = XmlHandler.getTagValue( transformNode, "give_back_row" );
       if ( Utils.isEmpty( giveBackRow ) ) {
         alwaysGivingBackOneRow = hasNumberOfValues;
@@ -333,6 +362,11 @@ public class MemoryGroupByMeta extends BaseTransformMeta implements ITransformMe
     int nrFields = 0;
 
     allocate( sizegroup, nrFields );
+
+    memoryLimit = "";
+    freeMemoryLimit = "";
+    directory = "${java.io.tmpdir}";
+    prefix = "grp";
   }
 
   @Override
@@ -449,6 +483,10 @@ public class MemoryGroupByMeta extends BaseTransformMeta implements ITransformMe
     StringBuilder retval = new StringBuilder( 500 );
 
     retval.append( "      " ).append( XmlHandler.addTagValue( "give_back_row", alwaysGivingBackOneRow ) );
+    retval.append( "      " ).append( XmlHandler.addTagValue( "memory_limit", memoryLimit ) );
+    retval.append( "      " ).append( XmlHandler.addTagValue( "free_memory", freeMemoryLimit ) );
+    retval.append( "      " ).append( XmlHandler.addTagValue( "directory", directory ) );
+    retval.append( "      " ).append( XmlHandler.addTagValue( "prefix", prefix ) );
 
     retval.append( "      <group>" ).append( Const.CR );
     for ( int i = 0; i < groupField.length; i++ ) {
@@ -510,6 +548,62 @@ public class MemoryGroupByMeta extends BaseTransformMeta implements ITransformMe
     this.alwaysGivingBackOneRow = alwaysGivingBackOneRow;
   }
 
+  /**
+   * @return the memory budget of the hash table in MB
+   */
+  public String getMemoryLimit() {
+    return memoryLimit;
+  }
+
+  /**
+   * @param memoryLimit the memory budget of the hash table in MB
+   */
+  public void setMemoryLimit( String memoryLimit ) {
+    this.memoryLimit = memoryLimit;
+  }
+
+  /**
+   * @return the free memory limit in percentages
+   */
+  public String getFreeMemoryLimit() {
+    return freeMemoryLimit;
+  }
+
+  /**
+   * @param freeMemoryLimit the free memory limit in percentages
+   */
+  public void setFreeMemoryLimit( String freeMemoryLimit ) {
+    this.freeMemoryLimit = freeMemoryLimit;
+  }
+
+  /**
+   * @return Returns the directory for the temporary files.
+   */
+  public String getDirectory() {
+    return directory;
+  }
+
+  /**
+   * @param directory The directory for the temporary files.
+   */
+  public void setDirectory( String directory ) {
+    this.directory = directory;
+  }
+
+  /**
+   * @return Returns the prefix of the temporary files.
+   */
+  public String getPrefix() {
+    return prefix;
+  }
+
+  /**
+   * @param prefix The prefix of the temporary files.
+   */
+  public void setPrefix( String prefix ) {
+    this.prefix = prefix;
+  }
+
   /**
    * If we use injection we can have different arrays lengths.
    * We need synchronize them for consistency behavior with UI
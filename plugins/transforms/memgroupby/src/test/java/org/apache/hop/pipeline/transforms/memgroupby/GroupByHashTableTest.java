@@ -0,0 +1,462 @@
+/*! ******************************************************************************
+ *
+ * Hop : The Hop Orchestration Platform
+ *
+ * http://www.project-hop.org
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+
+package org.apache.hop.pipeline.transforms.memgroupby;
+
+import org.apache.hop.core.HopClientEnvironment;
+import org.apache.hop.core.exception.HopException;
+import org.apache.hop.core.logging.ILoggingObject;
+import org.apache.hop.core.row.IRowMeta;
+import org.apache.hop.core.row.IValueMeta;
+import org.apache.hop.core.row.RowMeta;
+import org.apache.hop.core.row.value.ValueMetaBigNumber;
+import org.apache.hop.core.row.value.ValueMetaInteger;
+import org.apache.hop.core.row.value.ValueMetaNumber;
+import org.apache.hop.core.row.value.ValueMetaString;
+import org.apache.hop.pipeline.transforms.mock.TransformMockHelper;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.when;
+
+/**
+ * Verifies the results of the aggregation engine, also after spilling the partial aggregates and merging them back.
+ */
+public class GroupByHashTableTest {
+
+  static TransformMockHelper<MemoryGroupByMeta, MemoryGroupByData> mockHelper;
+
+  private MemoryGroupByMeta meta;
+  private MemoryGroupByData data;
+  private MemoryGroupBy transform;
+
+  @Rule
+  public TemporaryFolder tempFolder = new TemporaryFolder();
+
+  @BeforeClass
+  public static void setUpBeforeClass() throws Exception {
+    HopClientEnvironment.init();
+    mockHelper =
+      new TransformMockHelper<MemoryGroupByMeta, MemoryGroupByData>( "Memory Group By", MemoryGroupByMeta.class,
+        MemoryGroupByData.class );
+    when( mockHelper.logChannelFactory.create( any(), any( ILoggingObject.class ) ) ).thenReturn(
+      mockHelper.logChannelInterface );
+    when( mockHelper.pipeline.isRunning() ).thenReturn( true );
+  }
+
+  @AfterClass
+  public static void cleanUp() {
+    mockHelper.cleanUp();
+  }
+
+  @Before
+  public void setUp() throws Exception {
+    IRowMeta inputRowMeta = new RowMeta();
+    inputRowMeta.addValueMeta( new ValueMetaString( "group" ) );
+    inputRowMeta.addValueMeta( new ValueMetaInteger( "int" ) );
+    inputRowMeta.addValueMeta( new ValueMetaNumber( "num" ) );
+    inputRowMeta.addValueMeta( new ValueMetaString( "str" ) );
+    inputRowMeta.addValueMeta( new ValueMetaBigNumber( "big" ) );
+    inputRowMeta.addValueMeta( new ValueMetaInteger( "group2" ) );
+
+    Object[][] aggregations = {
+      { 1, MemoryGroupByMeta.TYPE_GROUP_SUM, null },
+      { 1, MemoryGroupByMeta.TYPE_GROUP_AVERAGE, null },
+      { 1, MemoryGroupByMeta.TYPE_GROUP_MIN, null },
+      { 1, MemoryGroupByMeta.TYPE_GROUP_MAX, null },
+      { 1, MemoryGroupByMeta.TYPE_GROUP_COUNT_ALL, null },
+      { 1, MemoryGroupByMeta.TYPE_GROUP_COUNT_ANY, null },
+      { 1, MemoryGroupByMeta.TYPE_GROUP_COUNT_DISTINCT, null },
+      { 1, MemoryGroupByMeta.TYPE_GROUP_FIRST, null },
+      { 1, MemoryGroupByMeta.TYPE_GROUP_LAST, null },
+      { 1, MemoryGroupByMeta.TYPE_GROUP_FIRST_INCL_NULL, null },
+      { 1, MemoryGroupByMeta.TYPE_GROUP_LAST_INCL_NULL, null },
+      { 1, MemoryGroupByMeta.TYPE_GROUP_MEDIAN, null },
+      { 2, MemoryGroupByMeta.TYPE_GROUP_SUM, null },
+      { 2, MemoryGroupByMeta.TYPE_GROUP_AVERAGE, null },
+      { 2, MemoryGroupByMeta.TYPE_GROUP_STANDARD_DEVIATION, null },
+      { 2, MemoryGroupByMeta.TYPE_GROUP_PERCENTILE, "90" },
+      { 2, MemoryGroupByMeta.TYPE_GROUP_COUNT_DISTINCT, null },
+      { 3, MemoryGroupByMeta.TYPE_GROUP_COUNT_DISTINCT, null },
+      { 3, MemoryGroupByMeta.TYPE_GROUP_CONCAT_COMMA, null },
+      { 3, MemoryGroupByMeta.TYPE_GROUP_CONCAT_STRING, "|" },
+      { 3, MemoryGroupByMeta.TYPE_GROUP_MIN, null },
+      { 3, MemoryGroupByMeta.TYPE_GROUP_MAX, null },
+      { 4, MemoryGroupByMeta.TYPE_GROUP_SUM, null },
+      { 4, MemoryGroupByMeta.TYPE_GROUP_AVERAGE, null },
+      { 4, MemoryGroupByMeta.TYPE_GROUP_COUNT_DISTINCT, null },
+    };
+
+    meta = new MemoryGroupByMeta();
+    meta.allocate( 2, aggregations.length );
+    meta.getGroupField()[ 0 ] = "group";
+    meta.getGroupField()[ 1 ] = "group2";
+
+    data = new MemoryGroupByData();
+    data.inputRowMeta = inputRowMeta;
+    data.groupnrs = new int[] { 0, 5 };
+    data.subjectnrs = new int[ aggregations.length ];
+    data.groupMeta = new RowMeta();
+    data.entryMeta = new RowMeta();
+    for ( int groupnr : data.groupnrs ) {
+      data.groupMeta.addValueMeta( inputRowMeta.getValueMeta( groupnr ) );
+      data.entryMeta.addValueMeta( inputRowMeta.getValueMeta( groupnr ).clone() );
+    }
+    for ( int i = 0; i < aggregations.length; i++ ) {
+      data.subjectnrs[ i ] = (Integer) aggregations[ i ][ 0 ];
+      meta.getSubjectField()[ i ] = inputRowMeta.getValueMeta( data.subjectnrs[ i ] ).getName();
+      meta.getAggregateType()[ i ] = (Integer) aggregations[ i ][ 1 ];
+      meta.getValueField()[ i ] = (String) aggregations[ i ][ 2 ];
+      meta.getAggregateField()[ i ] = "agg" + i;
+    }
+
+    when( mockHelper.transformMeta.getTransform() ).thenReturn( meta );
+    transform = new MemoryGroupBy( mockHelper.transformMeta, meta, data, 0, mockHelper.pipelineMeta, mockHelper.pipeline );
+    transform.newAggregate( null, null );
+  }
+
+  @Test
+  public void testAggregations() throws HopException {
+    GroupByHashTable table = createTable( false );
+    addRows( table );
+    assertEquals( 2, table.size() );
+    assertArrayEquals( new Object[] { "a", 1L }, table.getGroup( 0 ) );
+    assertArrayEquals( new Object[] { "b", 1L }, table.getGroup( 1 ) );
+
+    Object[] a = table.getAggregateResult( 0, false, data.aggMeta );
+    assertEquals( 4L, a[ 0 ] ); // sum
+    assertEquals( 2L, a[ 1 ] ); // average
+    assertEquals( 1L, a[ 2 ] ); // min
+    assertEquals( 3L, a[ 3 ] ); // max
+    assertEquals( 2L, a[ 4 ] ); // count all
+    assertEquals( 3L, a[ 5 ] ); // count any
+    assertEquals( 2L, a[ 6 ] ); // count distinct
+    assertEquals( 3L, a[ 7 ] ); // first
+    assertEquals( 1L, a[ 8 ] ); // last
+    assertEquals( 3L, a[ 9 ] ); // first including null
+    assertEquals( 1L, a[ 10 ] ); // last including null
+    assertEquals( 2.0, (Double) a[ 11 ], 1e-9 ); // median
+    assertEquals( 6.0, (Double) a[ 12 ], 1e-9 ); // sum
+    assertEquals( 2.0, (Double) a[ 13 ], 1e-9 ); // average
+    assertEquals( Math.sqrt( 2.0 / 3.0 ), (Double) a[ 14 ], 1e-9 ); // standard deviation
+    assertEquals( 3.0, (Double) a[ 15 ], 1e-9 ); // 90th percentile
+    assertEquals( 3L, a[ 16 ] ); // count distinct
+    assertEquals( 2L, a[ 17 ] ); // count distinct
+    assertEquals( "x, y", a[ 18 ] ); // concatenation with a comma
+    assertEquals( "x|y", a[ 19 ] ); // concatenation with a separator
+    assertEquals( "x", a[ 20 ] ); // min
+    assertEquals( "y", a[ 21 ] ); // max
+    assertEquals( 0, new BigDecimal( "4" ).compareTo( (BigDecimal) a[ 22 ] ) ); // sum
+    assertEquals( 0, new BigDecimal( "1.33" ).compareTo( (BigDecimal) a[ 23 ] ) ); // average, to the precision of the sum
+    assertEquals( 2L, a[ 24 ] ); // count distinct: 1.0 and 1.00 are the same value
+
+    // Only nulls for the integer subject
+    //
+    Object[] b = table.getAggregateResult( 1, false, data.aggMeta );
+    assertNull( b[ 0 ] );
+    assertNull( b[ 1 ] );
+    assertNull( b[ 2 ] );
+    assertNull( b[ 3 ] );
+    assertEquals( 0L, b[ 4 ] );
+    assertEquals( 1L, b[ 5 ] );
+    assertEquals( 0L, b[ 6 ] );
+    assertNull( b[ 7 ] );
+    assertNull( b[ 10 ] );
+    assertEquals( 0.0, (Double) b[ 14 ], 1e-9 );
+    assertEquals( 5.0, (Double) b[ 15 ], 1e-9 );
+  }
+
+  @Test
+  public void testAllNullsAreZero() throws HopException {
+    GroupByHashTable table = createTable( true );
+    addRows( table );
+
+    // The null of the second row is the minimum
+    //
+    assertNull( table.getAggregateResult( 0, false, data.aggMeta )[ 2 ] );
+    assertEquals( 0L, table.getAggregateResult( 0, true, data.aggMeta )[ 2 ] );
+
+    Object[] b = table.getAggregateResult( 1, true, data.aggMeta );
+    assertEquals( 0L, b[ 0 ] );
+    assertEquals( 0L, b[ 1 ] );
+    assertEquals( 0L, b[ 3 ] );
+    assertEquals( 0L, b[ 7 ] );
+    assertEquals( "x", b[ 20 ] );
+  }
+
+  @Test
+  public void testBinaryStringGroupValues() throws HopException {
+    IValueMeta groupValueMeta = data.inputRowMeta.getValueMeta( 0 );
+    groupValueMeta.setStorageType( IValueMeta.STORAGE_TYPE_BINARY_STRING );
+    groupValueMeta.setStorageMetadata( new ValueMetaString( "group" ) );
+    GroupByHashTable table = createTable( false );
+
+    // Different byte arrays with the same content are the same group
+    //
+    Object[] row = row( null, 1L );
+    row[ 0 ] = "key".getBytes();
+    assertEquals( 0, table.addRow( row ) );
+    row = row( null, 1L );
+    row[ 0 ] = "key".getBytes();
+    assertEquals( 0, table.addRow( row ) );
+    assertEquals( 1, table.size() );
+    assertArrayEquals( new Object[] { "key", 1L }, table.getGroup( 0 ) );
+  }
+
+  @Test
+  public void testGroupsInOrderOfAppearance() throws HopException {
+    GroupByHashTable table = createTable( false );
+    assertEquals( 0, table.addRow( row( "b", 1L ) ) );
+    assertEquals( 1, table.addRow( row( "a", 1L ) ) );
+    assertEquals( 2, table.addRow( row( null, null ) ) );
+    assertEquals( 0, table.addRow( row( "b", 1L ) ) );
+    assertEquals( 3, table.addRow( row( "b", 2L ) ) );
+    assertArrayEquals( new Object[] { "a", 1L }, table.getGroup( 1 ) );
+    assertArrayEquals( new Object[] { null, null }, table.getGroup( 2 ) );
+
+    // Count any of the integer subject
+    //
+    assertEquals( 2L, table.getAggregateResult( 0, false, data.aggMeta )[ 5 ] );
+
+    table.clear();
+    assertEquals( 0, table.size() );
+    assertEquals( 0, table.addRow( row( "a", 1L ) ) );
+    assertEquals( 1L, table.getAggregateResult( 0, false, data.aggMeta )[ 5 ] );
+  }
+
+  @Test
+  public void testSpillAndMerge() throws Exception {
+    GroupByHashTable table = createTable( false );
+    GroupByHashTable reference = createTable( false );
+    List<ByteArrayOutputStream[]> spills = new ArrayList<>();
+    List<Object[]> rows = generateRows( 5000 );
+    for ( int i = 0; i < rows.size(); i++ ) {
+      reference.addRow( rows.get( i ) );
+      table.addRow( rows.get( i ) );
+      if ( i % 700 == 699 ) {
+        spills.add( spill( table, 0 ) );
+        assertEquals( 0, table.size() );
+      }
+    }
+    spills.add( spill( table, 0 ) );
+
+    // Merge the partitions one by one, split up the first partition again on the next level.
+    //
+    int nrGroups = 0;
+    for ( int p = 0; p < MemoryGroupBy.NR_SPILL_PARTITIONS; p++ ) {
+      List<ByteArrayOutputStream[]> subSpills = new ArrayList<>();
+      for ( ByteArrayOutputStream[] spill : spills ) {
+        DataInputStream inputStream = new DataInputStream( new ByteArrayInputStream( spill[ p ].toByteArray() ) );
+        int merged = 0;
+        while ( table.mergeGroup( inputStream ) ) {
+          if ( p == 0 && ++merged % 3 == 0 ) {
+            subSpills.add( spill( table, 1 ) );
+          }
+        }
+      }
+      if ( !subSpills.isEmpty() ) {
+        subSpills.add( spill( table, 1 ) );
+        for ( int sp = 0; sp < MemoryGroupBy.NR_SPILL_PARTITIONS; sp++ ) {
+          for ( ByteArrayOutputStream[] subSpill : subSpills ) {
+            DataInputStream inputStream = new DataInputStream( new ByteArrayInputStream( subSpill[ sp ].toByteArray() ) );
+            while ( table.mergeGroup( inputStream ) ) {
+              // merging
+            }
+          }
+          nrGroups += table.size();
+          assertSameResults( table, reference );
+          table.clear();
+        }
+      } else {
+        nrGroups += table.size();
+        assertSameResults( table, reference );
+        table.clear();
+      }
+    }
+    assertEquals( reference.size(), nrGroups );
+  }
+
+  @Test
+  public void testTransformSpillsToDisk() throws Exception {
+    List<Object[]> rows = generateRows( 20000 );
+    List<Object[]> expected = runTransform( rows, -1L );
+    List<Object[]> actual = runTransform( rows, 1L );
+    assertEquals( 40, expected.size() );
+    assertEquals( expected.size(), actual.size() );
+
+    // Every group once, in a different order
+    //
+    Map<List<Object>, Object[]> expectedByGroup = new HashMap<>();
+    for ( Object[] row : expected ) {
+      expectedByGroup.put( Arrays.asList( row[ 0 ], row[ 1 ] ), row );
+    }
+    for ( Object[] row : actual ) {
+      Object[] expectedRow = expectedByGroup.remove( Arrays.asList( row[ 0 ], row[ 1 ] ) );
+      for ( int i = 0; i < data.outputRowMeta.size(); i++ ) {
+        if ( row[ i ] instanceof Double ) {
+          assertEquals( (Double) expectedRow[ i ], (Double) row[ i ], 1e-6 );
+        } else {
+          assertEquals( expectedRow[ i ], row[ i ] );
+        }
+      }
+    }
+    assertTrue( data.spillFiles.isEmpty() );
+    assertEquals( 0, tempFolder.getRoot().list().length );
+  }
+
+  private List<Object[]> runTransform( List<Object[]> rows, long memoryLimit ) throws HopException {
+    meta.setDirectory( tempFolder.getRoot().getAbsolutePath() );
+    meta.setPrefix( "grp" );
+    data.memoryLimit = memoryLimit;
+    data.freeMemoryPctLimit = -1;
+    data.freeCounter = 0;
+    data.spills = new ArrayList<>();
+    data.spillFiles = new ArrayList<>();
+
+    IRowMeta inputRowMeta = data.inputRowMeta;
+    Iterator<Object[]> rowIterator = rows.iterator();
+    List<Object[]> output = new ArrayList<>();
+    MemoryGroupBy memoryGroupBy =
+      new MemoryGroupBy( mockHelper.transformMeta, meta, data, 0, mockHelper.pipelineMeta, mockHelper.pipeline ) {
+        @Override
+        public Object[] getRow() {
+          return rowIterator.hasNext() ? rowIterator.next() : null;
+        }
+
+        @Override
+        public IRowMeta getInputRowMeta() {
+          return inputRowMeta;
+        }
+
+        @Override
+        public void putRow( IRowMeta rowMeta, Object[] row ) {
+          output.add( row );
+        }
+      };
+
+    while ( memoryGroupBy.processRow() ) {
+      // Keep going
+    }
+    return output;
+  }
+
+  private ByteArrayOutputStream[] spill( GroupByHashTable table, int level ) throws HopException {
+    ByteArrayOutputStream[] partitions = new ByteArrayOutputStream[ MemoryGroupBy.NR_SPILL_PARTITIONS ];
+    DataOutputStream[] outputStreams = new DataOutputStream[ partitions.length ];
+    for ( int p = 0; p < partitions.length; p++ ) {
+      partitions[ p ] = new ByteArrayOutputStream();
+      outputStreams[ p ] = new DataOutputStream( partitions[ p ] );
+    }
+    table.spill( outputStreams, level );
+    return partitions;
+  }
+
+  private GroupByHashTable createTable( boolean minNullIsValued ) throws HopException {
+    return new GroupByHashTable( data, meta.getAggregateType(), meta.getValueField(), minNullIsValued );
+  }
+
+  /**
+   * Compares the groups of a table with the same groups of a table which received all the rows without spilling
+   */
+  private void assertSameResults( GroupByHashTable table, GroupByHashTable reference ) throws HopException {
+    Map<List<Object>, Integer> referenceGroups = new HashMap<>();
+    for ( int group = 0; group < reference.size(); group++ ) {
+      referenceGroups.put( Arrays.asList( reference.getGroup( group ) ), group );
+    }
+    for ( int group = 0; group < table.size(); group++ ) {
+      Integer referenceGroup = referenceGroups.get( Arrays.asList( table.getGroup( group ) ) );
+      Object[] expected = reference.getAggregateResult( referenceGroup, false, data.aggMeta );
+      Object[] actual = table.getAggregateResult( group, false, data.aggMeta );
+      for ( int i = 0; i < expected.length; i++ ) {
+        if ( expected[ i ] instanceof Double && actual[ i ] instanceof Double ) {
+          assertEquals( "aggregate " + i, (Double) expected[ i ], (Double) actual[ i ], 1e-9 );
+        } else {
+          assertEquals( "aggregate " + i, expected[ i ], actual[ i ] );
+        }
+      }
+    }
+  }
+
+  private List<Object[]> generateRows( int nrRows ) {
+    Random random = new Random( 1234 );
+    List<Object[]> rows = new ArrayList<>();
+    for ( int i = 0; i < nrRows; i++ ) {
+      int group = random.nextInt( 40 );
+      Object[] row = row( group == 0 ? null : "group-" + group, (long) ( group % 3 ) );
+      row[ 1 ] = random.nextInt( 5 ) == 0 ? null : (long) random.nextInt( 20 );
+      row[ 2 ] = random.nextDouble() * 100;
+      row[ 3 ] = random.nextInt( 5 ) == 0 ? null : "s" + random.nextInt( 10 );
+      row[ 4 ] = random.nextBoolean() ? new BigDecimal( "1.0" ) : new BigDecimal( random.nextInt( 3 ) + ".00" );
+      rows.add( row );
+    }
+    return rows;
+  }
+
+  /**
+   * Two groups, the integer subject is only null in the second one
+   */
+  private void addRows( GroupByHashTable table ) throws HopException {
+    table.addRow( row( "a", 1L, 3L, 1.0, "x", "1.0" ) );
+    table.addRow( row( "a", 1L, null, 3.0, null, "2.00" ) );
+    table.addRow( row( "a", 1L, 1L, 2.0, "y", "1.00" ) );
+    table.addRow( row( "b", 1L, null, 5.0, "x", "1.0" ) );
+  }
+
+  private Object[] row( String group, Long group2, Long intValue, Double numValue, String strValue, String bigValue ) {
+    Object[] row = row( group, group2 );
+    row[ 1 ] = intValue;
+    row[ 2 ] = numValue;
+    row[ 3 ] = strValue;
+    row[ 4 ] = new BigDecimal( bigValue );
+    return row;
+  }
+
+  private Object[] row( String group, Long group2 ) {
+    Object[] row = new Object[ data.inputRowMeta.size() ];
+    row[ 0 ] = group;
+    row[ 5 ] = group2;
+    return row;
+  }
+}
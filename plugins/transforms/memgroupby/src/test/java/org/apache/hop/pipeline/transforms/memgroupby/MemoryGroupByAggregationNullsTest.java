@@ -24,88 +24,23 @@
 package org.apache.hop.pipeline.transforms.memgroupby;
 
 import org.apache.hop.core.exception.HopException;
-import org.apache.hop.core.exception.HopValueException;
-import org.apache.hop.core.logging.ILoggingObject;
-import org.apache.hop.core.row.IRowMeta;
 import org.apache.hop.core.row.IValueMeta;
-import org.apache.hop.core.row.value.ValueMetaFactory;
+import org.apache.hop.core.row.RowMeta;
+import org.apache.hop.core.row.value.ValueMetaBinary;
 import org.apache.hop.core.row.value.ValueMetaInteger;
 import org.apache.hop.core.row.value.ValueMetaString;
-import org.apache.hop.pipeline.transforms.memgroupby.MemoryGroupByData.HashEntry;
-import org.apache.hop.pipeline.transforms.mock.TransformMockHelper;
-import org.junit.*;
-import org.junit.runner.RunWith;
-import org.mockito.Mockito;
-import org.powermock.core.classloader.annotations.PrepareForTest;
-import org.powermock.modules.junit4.PowerMockRunner;
-
-import java.util.HashMap;
-
-import static org.mockito.Matchers.any;
-import static org.mockito.Mockito.spy;
-import static org.mockito.Mockito.when;
-
-@RunWith(PowerMockRunner.class)
-@PrepareForTest({ValueMetaFactory.class})
-public class MemoryGroupByAggregationNullsTest {
-
-  static TransformMockHelper<MemoryGroupByMeta, MemoryGroupByData> mockHelper;
-
-  MemoryGroupBy transform;
-  MemoryGroupByData data;
-
-  static int def = 113;
+import org.junit.Test;
 
-  Aggregate aggregate;
-  private IValueMeta vmi;
-  private IRowMeta rmi;
-  private MemoryGroupByMeta meta;
-
-  @BeforeClass
-  public static void setUpBeforeClass() throws Exception {
-    mockHelper =
-      new TransformMockHelper<MemoryGroupByMeta, MemoryGroupByData>( "Memory Group By", MemoryGroupByMeta.class,
-        MemoryGroupByData.class );
-    when( mockHelper.logChannelFactory.create( any(), any( ILoggingObject.class ) ) ).thenReturn(
-      mockHelper.logChannelInterface );
-    when( mockHelper.pipeline.isRunning() ).thenReturn( true );
-  }
-
-  @AfterClass
-  public static void cleanUp() {
-    mockHelper.cleanUp();
-  }
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 
-  @Before
-  public void setUp() throws Exception {
-    data = new MemoryGroupByData();
-    data.subjectnrs = new int[] { 0 };
-    meta = new MemoryGroupByMeta();
-    meta.setDefault();
-    meta.setAggregateType( new int[] { 5 } );
-    meta.setAggregateField( new String[] { "x" } );
-    vmi = new ValueMetaInteger();
-    when( mockHelper.transformMeta.getTransform() ).thenReturn( meta );
-    rmi = Mockito.mock( IRowMeta.class );
-    data.inputRowMeta = rmi;
-    data.outputRowMeta = rmi;
-    data.groupMeta = rmi;
-    data.groupnrs = new int[] {};
-    data.map = new HashMap<HashEntry, Aggregate>();
-    when( rmi.getValueMeta( Mockito.anyInt() ) ).thenReturn( vmi );
-    data.aggMeta = rmi;
-    transform = new MemoryGroupBy( mockHelper.transformMeta, meta, data, 0, mockHelper.pipelineMeta, mockHelper.pipeline );
-
-    // put aggregate into map with default predefined value
-    aggregate = new Aggregate();
-    aggregate.agg = new Object[] { def };
-    data.map.put( getHashEntry(), aggregate );
-  }
+/**
+ * The null handling of the aggregations of {@link GroupByHashTable}, aggregating a single subject without group fields.
+ */
+public class MemoryGroupByAggregationNullsTest {
 
-  // test hash entry
-  HashEntry getHashEntry() {
-    return data.getHashEntry( new Object[ data.groupMeta.size() ] );
-  }
+  private MemoryGroupByData data;
 
   /**
    * PDI-10250 - "Group by" transform - Minimum aggregation doesn't work
@@ -119,98 +54,99 @@ public class MemoryGroupByAggregationNullsTest {
    * @throws HopException
    */
   @Test
-  @Ignore
   public void calcAggregateResulTestMin_1_Test() throws HopException {
-    transform.setMinNullIsValued( true );
-    transform.addToAggregate( new Object[] { null } );
-
-    Aggregate agg = data.map.get( getHashEntry() );
-    Assert.assertNotNull( "Hash code strategy changed?", agg );
+    GroupByHashTable table = createTable( new ValueMetaInteger( "x" ), MemoryGroupByMeta.TYPE_GROUP_MIN, true );
+    table.addRow( new Object[] { 113L } );
+    table.addRow( new Object[] { null } );
 
-    Assert.assertNull( "Value is set", agg.agg[ 0 ] );
+    assertNull( "Value is set", table.getAggregateResult( 0, false, data.aggMeta )[ 0 ] );
   }
 
   @Test
-  @Ignore
   public void calcAggregateResulTestMin_5_Test() throws HopException {
-    transform.setMinNullIsValued( false );
-    transform.addToAggregate( new Object[] { null } );
+    GroupByHashTable table = createTable( new ValueMetaInteger( "x" ), MemoryGroupByMeta.TYPE_GROUP_MIN, false );
+    table.addRow( new Object[] { 113L } );
+    table.addRow( new Object[] { null } );
 
-    Aggregate agg = data.map.get( getHashEntry() );
-    Assert.assertNotNull( "Hash code strategy changed?", agg );
-
-    Assert.assertEquals( "Value is NOT set", def, agg.agg[ 0 ] );
+    assertEquals( "Value is NOT set", 113L, table.getAggregateResult( 0, false, data.aggMeta )[ 0 ] );
   }
 
   /**
    * Set this variable to Y to return 0 when all values within an aggregate are NULL. Otherwise by default a NULL is
    * returned when all values are NULL.
    *
-   * @throws HopValueException
+   * @throws HopException
    */
-
   @Test
-  @Ignore
-  public void getAggregateResulTestMin_0_Test() throws HopValueException {
-    // data.agg[0] is not null - this is the default behavior
-    transform.setAllNullsAreZero( true );
-    Object[] row = transform.getAggregateResult( aggregate );
-    Assert.assertEquals( "Default value is not corrupted", def, row[ 0 ] );
+  public void getAggregateResulTestMin_0_Test() throws HopException {
+    GroupByHashTable table = createTable( new ValueMetaInteger( "x" ), MemoryGroupByMeta.TYPE_GROUP_MIN, false );
+    table.addRow( new Object[] { 113L } );
+
+    assertEquals( "Default value is not corrupted", 113L, table.getAggregateResult( 0, true, data.aggMeta )[ 0 ] );
   }
 
   @Test
-  @Ignore
-  public void getAggregateResulTestMin_1_Test() throws HopValueException {
-    aggregate.agg[ 0 ] = null;
-    transform.setAllNullsAreZero( true );
-    Object[] row = transform.getAggregateResult( aggregate );
-    Assert.assertEquals( "Returns 0 if aggregation is null", new Long( 0 ), row[ 0 ] );
+  public void getAggregateResulTestMin_1_Test() throws HopException {
+    GroupByHashTable table = createTable( new ValueMetaInteger( "x" ), MemoryGroupByMeta.TYPE_GROUP_MIN, false );
+    table.addRow( new Object[] { null } );
+
+    assertEquals( "Returns 0 if aggregation is null", 0L, table.getAggregateResult( 0, true, data.aggMeta )[ 0 ] );
   }
 
   @Test
-  @Ignore
-  public void getAggregateResulTestMin_3_Test() throws HopValueException {
-    aggregate.agg[ 0 ] = null;
-    transform.setAllNullsAreZero( false );
-    Object[] row = transform.getAggregateResult( aggregate );
-    Assert.assertNull( "Returns null if aggregation is null", row[ 0 ] );
+  public void getAggregateResulTestMin_3_Test() throws HopException {
+    GroupByHashTable table = createTable( new ValueMetaInteger( "x" ), MemoryGroupByMeta.TYPE_GROUP_MIN, false );
+    table.addRow( new Object[] { null } );
+
+    assertNull( "Returns null if aggregation is null", table.getAggregateResult( 0, false, data.aggMeta )[ 0 ] );
   }
 
   @Test
-  @Ignore
-  public void addToAggregateLazyConversionMinTest() throws Exception {
-    vmi.setStorageType( IValueMeta.STORAGE_TYPE_BINARY_STRING );
-    vmi.setStorageMetadata( new ValueMetaString() );
-    aggregate.agg = new Object[] { new byte[ 0 ] };
+  public void lazyConversionMinTest() throws Exception {
+    IValueMeta subjMeta = new ValueMetaString( "x" );
+    subjMeta.setStorageType( IValueMeta.STORAGE_TYPE_BINARY_STRING );
+    subjMeta.setStorageMetadata( new ValueMetaString( "x" ) );
+    GroupByHashTable table = createTable( subjMeta, MemoryGroupByMeta.TYPE_GROUP_MIN, false );
     byte[] bytes = { 51 };
-    transform.addToAggregate( new Object[] { bytes } );
-    Aggregate result = data.map.get( getHashEntry() );
-    Assert.assertEquals( "Returns non-null value", bytes, result.agg[ 0 ] );
+    table.addRow( new Object[] { new byte[] { 52 } } );
+    table.addRow( new Object[] { bytes } );
+
+    assertSame( "Returns non-null value", bytes, table.getAggregateResult( 0, false, data.aggMeta )[ 0 ] );
   }
 
   // PDI-16150
   @Test
-  @Ignore
-  public void addToAggregateBinaryData() throws Exception {
-    MemoryGroupByMeta memoryGroupByMeta = spy( meta );
-    memoryGroupByMeta.setAggregateType( new int[] { MemoryGroupByMeta.TYPE_GROUP_COUNT_DISTINCT } );
-    when( mockHelper.transformMeta.getTransform() ).thenReturn( memoryGroupByMeta );
-    vmi.setStorageType( IValueMeta.STORAGE_TYPE_NORMAL );
-    vmi.setStorageMetadata( new ValueMetaString() );
-    aggregate.counts = new long[] { 0L };
-    Mockito.doReturn( new String[] { "test" } ).when( memoryGroupByMeta ).getSubjectField();
-    aggregate.agg = new Object[] { new byte[ 0 ] };
-    transform = new MemoryGroupBy( mockHelper.transformMeta, memoryGroupByMeta, data, 0, mockHelper.pipelineMeta, mockHelper.pipeline );
-
+  public void binaryDataCountDistinctTest() throws Exception {
+    GroupByHashTable table =
+      createTable( new ValueMetaBinary( "x" ), MemoryGroupByMeta.TYPE_GROUP_COUNT_DISTINCT, false );
     String binaryData0 = "11011";
     String binaryData1 = "01011";
-    transform.addToAggregate( new Object[] { binaryData0.getBytes() } );
-    transform.addToAggregate( new Object[] { binaryData1.getBytes() } );
+    table.addRow( new Object[] { binaryData0.getBytes() } );
+    table.addRow( new Object[] { binaryData1.getBytes() } );
+    table.addRow( new Object[] { binaryData0.getBytes() } );
 
-    Object[] distinctObjs = data.map.get( getHashEntry() ).distinctObjs[ 0 ].toArray();
-
-    Assert.assertEquals( binaryData0, distinctObjs[ 1 ] );
-    Assert.assertEquals( binaryData1, distinctObjs[ 0 ] );
+    assertEquals( 2L, table.getAggregateResult( 0, false, data.aggMeta )[ 0 ] );
   }
 
+  private GroupByHashTable createTable( IValueMeta subjMeta, int aggregateType, boolean minNullIsValued )
+    throws HopException {
+    data = new MemoryGroupByData();
+    data.inputRowMeta = new RowMeta();
+    data.inputRowMeta.addValueMeta( subjMeta );
+    data.groupMeta = new RowMeta();
+    data.entryMeta = new RowMeta();
+    data.groupnrs = new int[] {};
+    data.subjectnrs = new int[] { 0 };
+
+    data.aggMeta = new RowMeta();
+    if ( aggregateType == MemoryGroupByMeta.TYPE_GROUP_COUNT_DISTINCT ) {
+      data.aggMeta.addValueMeta( new ValueMetaInteger( "agg" ) );
+    } else {
+      IValueMeta valueMeta = subjMeta.clone();
+      valueMeta.setName( "agg" );
+      data.aggMeta.addValueMeta( valueMeta );
+    }
+
+    return new GroupByHashTable( data, new int[] { aggregateType }, new String[] { null }, minNullIsValued );
+  }
 }
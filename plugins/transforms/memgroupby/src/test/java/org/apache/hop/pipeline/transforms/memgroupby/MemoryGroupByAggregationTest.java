@@ -344,7 +344,6 @@ public class MemoryGroupByAggregationTest {
     }
 
     MemoryGroupByData data = new MemoryGroupByData();
-    data.map = Maps.newHashMap();
 
     // Add to pipeline
     PipelineMeta pipelineMeta = mock( PipelineMeta.class );
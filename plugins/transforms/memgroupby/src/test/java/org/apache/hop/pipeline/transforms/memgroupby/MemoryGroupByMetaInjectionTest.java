@@ -49,5 +49,9 @@ public class MemoryGroupByMetaInjectionTest extends BaseMetadataInjectionTest<Me
     check( "AGGREGATETYPE", () -> meta.getAggregateType()[ 0 ] );
     check( "VALUEFIELD", () -> meta.getValueField()[ 0 ] );
     check( "ALWAYSGIVINGBACKONEROW", () -> meta.isAlwaysGivingBackOneRow() );
+    check( "MEMORY_LIMIT", () -> meta.getMemoryLimit() );
+    check( "FREE_MEMORY_LIMIT", () -> meta.getFreeMemoryLimit() );
+    check( "SPILL_DIRECTORY", () -> meta.getDirectory() );
+    check( "SPILL_FILE_PREFIX", () -> meta.getPrefix() );
   }
 }
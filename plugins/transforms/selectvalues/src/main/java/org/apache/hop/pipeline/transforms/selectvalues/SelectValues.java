@@ -338,23 +338,13 @@ public class SelectValues extends BaseTransform<SelectValuesMeta, SelectValuesDa
   }
 
   public boolean processRow() throws HopException {
-    Object[] rowData = getRow(); // get row from rowset, wait for our turn, indicate busy!
-    if ( rowData == null ) { // no more input to be expected...
+    Object[][] rows = getRows( Const.ROWS_IN_BATCH ); // get rows from rowset, wait for our turn, indicate busy!
+    if ( rows == null ) { // no more input to be expected...
 
       setOutputDone();
       return false;
     }
 
-    Object[] rowCopy = null;
-    if ( getTransformMeta().isDoingErrorHandling() ) {
-      rowCopy = getInputRowMeta().cloneRow( rowData );
-    }
-
-    if ( log.isRowLevel() ) {
-      logRowlevel( BaseMessages.getString( PKG, "SelectValues.Log.GotRowFromPreviousTransform" )
-        + getInputRowMeta().getString( rowData ) );
-    }
-
     if ( first ) {
       first = false;
 
@@ -366,51 +356,75 @@ public class SelectValues extends BaseTransform<SelectValuesMeta, SelectValuesDa
       meta.getMetadataFields( data.metadataRowMeta, getTransformName(), this );
     }
 
-    try {
-      Object[] outputData = rowData;
+    Object[][] outputRows = new Object[ rows.length ][];
+    int nrOutputRows = 0;
+    long linesRead = getLinesRead() - rows.length;
 
-      if ( data.select ) {
-        outputData = selectValues( getInputRowMeta(), outputData );
-      }
-      if ( data.deselect ) {
-        outputData = removeValues( data.selectRowMeta, outputData );
-      }
-      if ( data.metadata ) {
-        outputData = metadataValues( data.deselectRowMeta, outputData );
-      }
+    for ( Object[] rowData : rows ) {
+      linesRead++;
 
-      if ( outputData == null ) {
-        setOutputDone(); // signal end to receiver(s)
-        return false;
+      Object[] rowCopy = null;
+      if ( getTransformMeta().isDoingErrorHandling() ) {
+        rowCopy = getInputRowMeta().cloneRow( rowData );
       }
 
-      // Send the row on its way
-      //
-      putRow( data.metadataRowMeta, outputData );
       if ( log.isRowLevel() ) {
-        logRowlevel( BaseMessages.getString( PKG, "SelectValues.Log.WroteRowToNextTransform" )
-          + data.metadataRowMeta.getString( outputData ) );
+        logRowlevel( BaseMessages.getString( PKG, "SelectValues.Log.GotRowFromPreviousTransform" )
+          + getInputRowMeta().getString( rowData ) );
       }
 
-    } catch ( HopException e ) {
-      if ( getTransformMeta().isDoingErrorHandling() ) {
-        String field;
-        if ( e instanceof HopConversionException ) {
-          List<IValueMeta> fields = ( (HopConversionException) e ).getFields();
-          field = fields.isEmpty() ? null : fields.get( 0 ).getName();
+      try {
+        Object[] outputData = rowData;
+
+        if ( data.select ) {
+          outputData = selectValues( getInputRowMeta(), outputData );
+        }
+        if ( data.deselect ) {
+          outputData = removeValues( data.selectRowMeta, outputData );
+        }
+        if ( data.metadata ) {
+          outputData = metadataValues( data.deselectRowMeta, outputData );
+        }
+
+        if ( outputData == null ) {
+          putRows( data.metadataRowMeta, outputRows, nrOutputRows );
+          setOutputDone(); // signal end to receiver(s)
+          return false;
+        }
+
+        // Send the row on its way with the rest of the batch
+        //
+        outputRows[ nrOutputRows++ ] = outputData;
+        if ( log.isRowLevel() ) {
+          logRowlevel( BaseMessages.getString( PKG, "SelectValues.Log.WroteRowToNextTransform" )
+            + data.metadataRowMeta.getString( outputData ) );
+        }
+
+      } catch ( HopException e ) {
+        if ( getTransformMeta().isDoingErrorHandling() ) {
+          String field;
+          if ( e instanceof HopConversionException ) {
+            List<IValueMeta> fields = ( (HopConversionException) e ).getFields();
+            field = fields.isEmpty() ? null : fields.get( 0 ).getName();
+          } else {
+            field = null;
+          }
+          putError( getInputRowMeta(), rowCopy, 1, e.getMessage(), field, "SELECT001" );
         } else {
-          field = null;
+          // Pass on the rows of this batch handled before the failing one, like row by row processing did
+          //
+          putRows( data.metadataRowMeta, outputRows, nrOutputRows );
+          throw e;
         }
-        putError( getInputRowMeta(), rowCopy, 1, e.getMessage(), field, "SELECT001" );
-      } else {
-        throw e;
       }
-    }
 
-    if ( checkFeedback( getLinesRead() ) ) {
-      logBasic( BaseMessages.getString( PKG, "SelectValues.Log.LineNumber" ) + getLinesRead() );
+      if ( checkFeedback( linesRead ) ) {
+        logBasic( BaseMessages.getString( PKG, "SelectValues.Log.LineNumber" ) + linesRead );
+      }
     }
 
+    putRows( data.metadataRowMeta, outputRows, nrOutputRows );
+
     return true;
   }
 
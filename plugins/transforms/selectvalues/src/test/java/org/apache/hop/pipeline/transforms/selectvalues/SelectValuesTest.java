@@ -25,7 +25,9 @@ package org.apache.hop.pipeline.transforms.selectvalues;
 import org.apache.hop.core.Const;
 import org.apache.hop.core.HopEnvironment;
 import org.apache.hop.core.IRowSet;
+import org.apache.hop.core.QueueRowSet;
 import org.apache.hop.core.exception.HopConversionException;
+import org.apache.hop.core.exception.HopException;
 import org.apache.hop.core.exception.HopTransformException;
 import org.apache.hop.core.row.IRowMeta;
 import org.apache.hop.core.row.IValueMeta;
@@ -38,6 +40,7 @@ import org.apache.hop.junit.rules.RestoreHopEngineEnvironment;
 import org.apache.hop.pipeline.Pipeline;
 import org.apache.hop.pipeline.PipelineMeta;
 import org.apache.hop.pipeline.transform.ITransformData;
+import org.apache.hop.pipeline.transform.RowAdapter;
 import org.apache.hop.pipeline.transform.TransformMeta;
 import org.apache.hop.pipeline.transforms.mock.TransformMockHelper;
 import org.apache.hop.pipeline.transforms.selectvalues.SelectValuesMeta.SelectField;
@@ -45,9 +48,12 @@ import org.hibernate.sql.Select;
 import org.junit.*;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyLong;
 import static org.mockito.Matchers.anyString;
@@ -338,6 +344,55 @@ public class SelectValuesTest {
     assertTrue( properException );
   }
 
+  @Test
+  public void testConversionErrorKeepsEarlierRowsOfBatch() throws Exception {
+    when( helper.transformMeta.isDoingErrorHandling() ).thenReturn( false );
+
+    SelectValuesMeta transformMeta = new SelectValuesMeta();
+    transformMeta.allocate( 1, 0, 1 );
+    transformMeta.getSelectFields()[ 0 ] = new SelectField();
+    transformMeta.getSelectFields()[ 0 ].setName( SELECTED_FIELD );
+    transformMeta.getMeta()[ 0 ] =
+      new SelectMetadataChange( SELECTED_FIELD, null, IValueMeta.TYPE_INTEGER, -2, -2,
+        IValueMeta.STORAGE_TYPE_NORMAL, null, false, null, null, false, null, null, null );
+
+    SelectValuesData transformData = new SelectValuesData();
+    transformData.select = true;
+    transformData.metadata = true;
+    transformData.firstselect = true;
+    transformData.firstmetadata = true;
+
+    RowMeta inputRowMeta = new RowMeta();
+    inputRowMeta.addValueMeta( new ValueMetaString( SELECTED_FIELD ) );
+    IRowSet inputRowSet = new QueueRowSet();
+    inputRowSet.putRow( inputRowMeta, new Object[] { "1" } );
+    inputRowSet.putRow( inputRowMeta, new Object[] { "not a number" } );
+    inputRowSet.putRow( inputRowMeta, new Object[] { "3" } );
+    inputRowSet.setDone();
+
+    SelectValues selectValues =
+      new SelectValues( helper.transformMeta, transformMeta, transformData, 1, helper.pipelineMeta, helper.pipeline );
+    selectValues.addRowSetToInputRowSets( inputRowSet );
+    selectValues.setInputRowMeta( inputRowMeta );
+
+    final List<Object[]> written = new ArrayList<>();
+    selectValues.addRowListener( new RowAdapter() {
+      @Override
+      public void rowWrittenEvent( IRowMeta rowMeta, Object[] row ) throws HopTransformException {
+        written.add( row );
+      }
+    } );
+
+    try {
+      selectValues.processRow();
+      fail( "The conversion error is expected to stop the transform" );
+    } catch ( HopException e ) {
+      // expected
+    }
+    assertEquals( 1, written.size() );
+    assertEquals( 1L, written.get( 0 )[ 0 ] );
+  }
+
   public class SelectValuesHandler extends SelectValues {
     private Object[] resultRow;
     private IRowMeta rowMeta;
@@ -354,6 +409,13 @@ public class SelectValuesTest {
       rowMeta = rm;
     }
 
+    @Override
+    public void putRows( IRowMeta rm, Object[][] rows, int nrRows ) throws HopTransformException {
+      for ( int i = 0; i < nrRows; i++ ) {
+        putRow( rm, rows[ i ] );
+      }
+    }
+
     /**
      * Find input row set.
      *
@@ -26,6 +26,7 @@ package org.apache.hop.pipeline.transforms.sort;
 import org.apache.commons.vfs2.FileObject;
 import org.apache.commons.vfs2.FileSystemException;
 import org.apache.hop.core.Const;
+import org.apache.hop.core.compress.CompressionProviderFactory;
 import org.apache.hop.core.exception.HopException;
 import org.apache.hop.core.exception.HopFileException;
 import org.apache.hop.core.exception.HopValueException;
@@ -42,11 +43,12 @@ import org.apache.hop.pipeline.transform.TransformMeta;
 import java.io.*;
 import java.net.SocketTimeoutException;
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.Arrays;
 import java.util.Comparator;
 import java.util.List;
-import java.util.zip.GZIPInputStream;
-import java.util.zip.GZIPOutputStream;
+import java.util.PriorityQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
 
 /**
  * Sort the rows in the input-streams based on certain criteria
@@ -115,111 +117,200 @@ public class SortRows extends BaseTransform<SortRowsMeta, SortRowsData> implemen
       return;
     }
 
-    // First sort the rows in buffer[]
-    quickSort( data.buffer );
-
-    // Then write them to disk...
-    DataOutputStream dos;
-    GZIPOutputStream gzos;
-    int p;
+    // Only one sorted run is written at any time: the rows of the next run keep coming in while this one is
+    // sorted and written to disk in the background.
+    //
+    waitForSpill();
 
+    final List<Object[]> rows = data.buffer;
+    final FileObject fileObject;
+    final OutputStream outputStream;
     try {
-      FileObject fileObject =
-        HopVfs.createTempFile( meta.getPrefix(), ".tmp", environmentSubstitute( meta.getDirectory() ));
-
-      data.files.add( fileObject ); // Remember the files!
-      OutputStream outputStream = HopVfs.getOutputStream( fileObject, false );
-      if ( data.compressFiles ) {
-        gzos = new GZIPOutputStream( new BufferedOutputStream( outputStream ) );
-        dos = new DataOutputStream( gzos );
-      } else {
-        dos = new DataOutputStream( new BufferedOutputStream( outputStream, 500000 ) );
-        gzos = null;
+      fileObject = HopVfs.createTempFile( meta.getPrefix(), ".tmp", environmentSubstitute( meta.getDirectory() ) );
+      outputStream = HopVfs.getOutputStream( fileObject, false );
+    } catch ( Exception e ) {
+      throw new HopException( "Error processing temp-file!", e );
+    }
+    data.files.add( fileObject ); // Remember the files!
+
+    if ( data.sortSize < 0 ) {
+      if ( rows.size() > data.minSortSize ) {
+        data.minSortSize = rows.size(); // if we did it once, we can do
+        // it again.
+
+        // Memory usage goes up over time, even with garbage collection
+        // We need pointers, file handles, etc.
+        // As such, we're going to lower the min sort size a bit
+        //
+        data.minSortSize = (int) Math.round( data.minSortSize * 0.90 );
       }
+    }
 
+    // Hand the full buffer over to the writer and start a new one
+    //
+    data.buffer = new ArrayList<Object[]>( rows.size() );
+    data.getBufferIndex = 0;
+
+    if ( data.spillExecutor == null ) {
+      data.spillExecutor = Executors.newSingleThreadExecutor( runnable -> {
+        Thread thread = new Thread( runnable, getTransformName() + " temp-file writer" );
+        thread.setDaemon( true );
+        return thread;
+      } );
+    }
+    data.pendingSpill = data.spillExecutor.submit( () -> writeSortedRun( rows, outputStream ) );
+  }
+
+  /**
+   * Sort the given rows and write them to a temporary file. This runs on the background writer thread so it only
+   * touches the rows and stream it was given.
+   *
+   * @param rows         The rows to sort and write
+   * @param outputStream The stream of the temporary file, closed when done
+   * @return The number of rows written to the file
+   */
+  private Integer writeSortedRun( List<Object[]> rows, OutputStream outputStream ) throws HopException {
+    // First sort the rows in buffer[]
+    quickSort( rows );
+
+    // Then write them to disk...
+    try ( DataOutputStream dos = getDataOutputStream( outputStream ) ) {
       // Just write the data, nothing else
-      List<Integer> duplicates = new ArrayList<Integer>();
+      int nrRows = 0;
       Object[] previousRow = null;
-      if ( meta.isOnlyPassingUniqueRows() ) {
-        int index = 0;
-        while ( index < data.buffer.size() ) {
-          Object[] row = data.buffer.get( index );
-          if ( previousRow != null ) {
-            int result = data.outputRowMeta.compare( row, previousRow, data.fieldnrs );
-            if ( result == 0 ) {
-              duplicates.add( index );
-              if ( log.isRowLevel() ) {
-                logRowlevel( BaseMessages.getString( PKG, "SortRows.RowLevel.DuplicateRowRemoved", data.outputRowMeta
-                  .getString( row ) ) );
-              }
-            }
+      for ( Object[] row : rows ) {
+        if ( meta.isOnlyPassingUniqueRows() && previousRow != null
+          && data.outputRowMeta.compare( row, previousRow, data.fieldnrs ) == 0 ) {
+          if ( log.isRowLevel() ) {
+            logRowlevel( BaseMessages.getString( PKG, "SortRows.RowLevel.DuplicateRowRemoved", data.outputRowMeta
+              .getString( row ) ) );
           }
-          index++;
-          previousRow = row;
+        } else {
+          data.outputRowMeta.writeData( dos, row );
+          nrRows++;
         }
+        previousRow = row;
       }
+      return nrRows;
+    } catch ( Exception e ) {
+      throw new HopException( "Error processing temp-file!", e );
+    }
+  }
+
+  private DataOutputStream getDataOutputStream( OutputStream outputStream ) throws IOException {
+    if ( data.compressFiles ) {
+      OutputStream compressed =
+        data.compressionProvider.createOutputStream( new BufferedOutputStream( outputStream, 500000 ) );
+      return new DataOutputStream( new BufferedOutputStream( compressed, 50000 ) );
+    }
+    return new DataOutputStream( new BufferedOutputStream( outputStream, 500000 ) );
+  }
 
-      // How many records do we have left?
-      data.bufferSizes.add( data.buffer.size() - duplicates.size() );
+  private DataInputStream getDataInputStream( InputStream inputStream ) throws IOException {
+    if ( data.compressFiles ) {
+      InputStream decompressed =
+        data.compressionProvider.createInputStream( new BufferedInputStream( inputStream, 50000 ) );
+      return new DataInputStream( new BufferedInputStream( decompressed, 50000 ) );
+    }
+    return new DataInputStream( new BufferedInputStream( inputStream, 50000 ) );
+  }
 
-      int duplicatesIndex = 0;
-      for ( p = 0; p < data.buffer.size(); p++ ) {
-        boolean skip = false;
-        if ( duplicatesIndex < duplicates.size() ) {
-          if ( p == duplicates.get( duplicatesIndex ) ) {
-            skip = true;
-            duplicatesIndex++;
-          }
-        }
-        if ( !skip ) {
-          data.outputRowMeta.writeData( dos, data.buffer.get( p ) );
-        }
+  /**
+   * Wait until the sorted run that is being written in the background is on disk.
+   */
+  void waitForSpill() throws HopException {
+    if ( data.pendingSpill == null ) {
+      return;
+    }
+    try {
+      // How many records do we have in the file?
+      data.bufferSizes.add( data.pendingSpill.get() );
+    } catch ( InterruptedException e ) {
+      Thread.currentThread().interrupt();
+      throw new HopException( "Error processing temp-file!", e );
+    } catch ( ExecutionException e ) {
+      throw new HopException( "Error processing temp-file!", e.getCause() );
+    } finally {
+      data.pendingSpill = null;
+    }
+
+    // How much memory do we have left?
+    //
+    data.freeMemoryPct = Const.getPercentageFreeMemory();
+    data.freeCounter = 0;
+    if ( data.sortSize <= 0 ) {
+      if ( log.isDetailed() ) {
+        logDetailed( BaseMessages.getString( PKG, "SortRows.Detailed.AvailableMemory", data.freeMemoryPct ) );
       }
+    }
+  }
 
-      if ( data.sortSize < 0 ) {
-        if ( data.buffer.size() > data.minSortSize ) {
-          data.minSortSize = data.buffer.size(); // if we did it once, we can do
-          // it again.
+  // Open all files at once and read one row from each file.
+  // The rows still in memory take part in the merge as one more sorted run after the files.
+  private void openTempFiles() {
+    if ( log.isBasic() ) {
+      logBasic( BaseMessages.getString( PKG, "SortRows.Basic.OpeningTempFiles", data.files.size() ) );
+    }
 
-          // Memory usage goes up over time, even with garbage collection
-          // We need pointers, file handles, etc.
-          // As such, we're going to lower the min sort size a bit
-          //
-          data.minSortSize = (int) Math.round( data.minSortSize * 0.90 );
+    try {
+      for ( int f = 0; f < data.files.size() && !isStopped(); f++ ) {
+        FileObject fileObject = data.files.get( f );
+        String filename = HopVfs.getFilename( fileObject );
+        if ( log.isDetailed() ) {
+          logDetailed( BaseMessages.getString( PKG, "SortRows.Detailed.OpeningTempFile", filename ) );
         }
-      }
+        InputStream fi = HopVfs.getInputStream( fileObject );
+        data.fis.add( fi );
+        DataInputStream di = getDataInputStream( fi );
+        data.dis.add( di );
 
-      // Clear the list
-      data.buffer.clear();
-
-      // Close temp-file
-      dos.close(); // close data stream
-      if ( gzos != null ) {
-        gzos.close(); // close gzip stream
-      }
-      outputStream.close(); // close file stream
+        // How long is the buffer?
+        int buffersize = data.bufferSizes.get( f );
 
-      // How much memory do we have left?
-      //
-      data.freeMemoryPct = Const.getPercentageFreeMemory();
-      data.freeCounter = 0;
-      if ( data.sortSize <= 0 ) {
         if ( log.isDetailed() ) {
-          logDetailed( BaseMessages.getString( PKG, "SortRows.Detailed.AvailableMemory", data.freeMemoryPct ) );
+          logDetailed( BaseMessages.getString( PKG, "SortRows.Detailed.FromFileExpectingRows",
+            filename, buffersize ) );
+        }
+
+        if ( buffersize > 0 ) {
+          Object[] row = data.outputRowMeta.readData( di );
+          data.tempRows.add( new RowTempFile( row, f ) ); // new row from input stream
         }
       }
 
+      if ( data.getBufferIndex < data.buffer.size() ) {
+        data.tempRows.add( new RowTempFile( data.buffer.get( data.getBufferIndex++ ), data.files.size() ) );
+      }
     } catch ( Exception e ) {
-      throw new HopException( "Error processing temp-file!", e );
+      logError( BaseMessages.getString( PKG, "SortRows.Error.ErrorReadingBackTempFiles" ), e );
     }
-
-    data.getBufferIndex = 0;
   }
 
-  private DataInputStream getDataInputStream( GZIPInputStream gzipInputStream ) {
-    DataInputStream result = new DataInputStream( gzipInputStream );
-    data.gzis.add( gzipInputStream );
-    return result;
+  // Read the next row of the given sorted run, null if the run is exhausted.
+  // Exhausted files are closed and removed right away.
+  private Object[] readNextRow( int fileNumber ) throws HopValueException {
+    if ( fileNumber == data.files.size() ) {
+      return data.getBufferIndex < data.buffer.size() ? data.buffer.get( data.getBufferIndex++ ) : null;
+    }
+
+    DataInputStream di = data.dis.get( fileNumber );
+    try {
+      return data.outputRowMeta.readData( di );
+    } catch ( HopFileException fe ) { // empty file or EOF mostly
+      FileObject file = data.files.get( fileNumber );
+      try {
+        di.close();
+        data.fis.get( fileNumber ).close();
+        file.delete();
+      } catch ( IOException e ) {
+        logError( BaseMessages.getString( PKG, "SortRows.Error.UnableToCloseFile", fileNumber, file.toString() ) );
+        setErrors( 1 );
+        stopAll();
+      }
+      return null;
+    } catch ( SocketTimeoutException e ) {
+      throw new HopValueException( e ); // should never happen on local files
+    }
   }
 
   // get sorted rows from available files in iterative manner.
@@ -228,49 +319,8 @@ public class SortRows extends BaseTransform<SortRowsMeta, SortRowsData> implemen
   Object[] getBuffer() throws HopValueException {
     Object[] retval;
 
-    // Open all files at once and read one row from each file...
-    if ( data.files.size() > 0 && ( data.dis.size() == 0 || data.fis.size() == 0 ) ) {
-      if ( log.isBasic() ) {
-        logBasic( BaseMessages.getString( PKG, "SortRows.Basic.OpeningTempFiles", data.files.size() ) );
-      }
-
-      try {
-        for ( int f = 0; f < data.files.size() && !isStopped(); f++ ) {
-          FileObject fileObject = data.files.get( f );
-          String filename = HopVfs.getFilename( fileObject );
-          if ( log.isDetailed() ) {
-            logDetailed( BaseMessages.getString( PKG, "SortRows.Detailed.OpeningTempFile", filename ) );
-          }
-          InputStream fi = HopVfs.getInputStream( fileObject );
-          DataInputStream di;
-          data.fis.add( fi );
-          if ( data.compressFiles ) {
-            di = getDataInputStream( new GZIPInputStream( new BufferedInputStream( fi ) ) );
-          } else {
-            di = new DataInputStream( new BufferedInputStream( fi, 50000 ) );
-          }
-          data.dis.add( di );
-
-          // How long is the buffer?
-          int buffersize = data.bufferSizes.get( f );
-
-          if ( log.isDetailed() ) {
-            logDetailed( BaseMessages.getString( PKG, "SortRows.Detailed.FromFileExpectingRows",
-              filename, buffersize ) );
-          }
-
-          if ( buffersize > 0 ) {
-            Object[] row = data.outputRowMeta.readData( di );
-            data.rowbuffer.add( row ); // new row from input stream
-            data.tempRows.add( new RowTempFile( row, f ) );
-          }
-        }
-
-        // Sort the data row buffer
-        Collections.sort( data.tempRows, data.comparator );
-      } catch ( Exception e ) {
-        logError( BaseMessages.getString( PKG, "SortRows.Error.ErrorReadingBackTempFiles" ), e );
-      }
+    if ( data.files.size() > 0 && data.dis.isEmpty() ) {
+      openTempFiles();
     }
 
     if ( data.files.size() == 0 ) {
@@ -285,73 +335,28 @@ public class SortRows extends BaseTransform<SortRowsMeta, SortRowsData> implemen
     } else {
       // read from disk processing
 
-      if ( data.rowbuffer.size() == 0 ) {
-        retval = null;
-      } else {
-        // We now have "filenr" rows waiting: which one is the smallest?
-        //
-        if ( log.isRowLevel() ) {
-          for ( int i = 0; i < data.rowbuffer.size() && !isStopped(); i++ ) {
-            Object[] b = data.rowbuffer.get( i );
-            logRowlevel( BaseMessages
-              .getString( PKG, "SortRows.RowLevel.PrintRow", i, data.outputRowMeta.getString( b ) ) );
-          }
+      // We now have one row waiting per sorted run: the queue gives us the smallest.
+      //
+      if ( log.isRowLevel() ) {
+        int i = 0;
+        for ( RowTempFile waiting : data.tempRows ) {
+          logRowlevel( BaseMessages
+            .getString( PKG, "SortRows.RowLevel.PrintRow", i++, data.outputRowMeta.getString( waiting.row ) ) );
         }
+      }
 
-        RowTempFile rowTempFile = data.tempRows.remove( 0 );
+      RowTempFile rowTempFile = data.tempRows.poll();
+      if ( rowTempFile == null ) {
+        retval = null;
+      } else {
         retval = rowTempFile.row;
-        int smallest = rowTempFile.fileNumber;
-
-        // now get another Row for position smallest
 
-        FileObject file = data.files.get( smallest );
-        DataInputStream di = data.dis.get( smallest );
-        InputStream fi = data.fis.get( smallest );
-
-        try {
-          Object[] row2 = data.outputRowMeta.readData( di );
-          RowTempFile extra = new RowTempFile( row2, smallest );
-
-          int index = Collections.binarySearch( data.tempRows, extra, data.comparator );
-          if ( index < 0 ) {
-            data.tempRows.add( index * ( -1 ) - 1, extra );
-          } else {
-            data.tempRows.add( index, extra );
-          }
-        } catch ( HopFileException fe ) { // empty file or EOF mostly
-          GZIPInputStream gzfi = ( data.compressFiles ) ? data.gzis.get( smallest ) : null;
-          try {
-            di.close();
-            fi.close();
-            if ( gzfi != null ) {
-              gzfi.close();
-            }
-            file.delete();
-          } catch ( IOException e ) {
-            logError( BaseMessages.getString( PKG, "SortRows.Error.UnableToCloseFile", smallest, file.toString() ) );
-            setErrors( 1 );
-            stopAll();
-            return null;
-          }
-
-          data.files.remove( smallest );
-          data.dis.remove( smallest );
-          data.fis.remove( smallest );
-
-          if ( gzfi != null ) {
-            data.gzis.remove( smallest );
-          }
-
-          // Also update all file numbers in in data.tempRows if they are larger
-          // than smallest.
-          //
-          for ( RowTempFile rtf : data.tempRows ) {
-            if ( rtf.fileNumber > smallest ) {
-              rtf.fileNumber--;
-            }
-          }
-        } catch ( SocketTimeoutException e ) {
-          throw new HopValueException( e ); // should never happen on local files
+        // now get another Row from the same run
+        //
+        Object[] next = readNextRow( rowTempFile.fileNumber );
+        if ( next != null ) {
+          rowTempFile.row = next;
+          data.tempRows.add( rowTempFile );
         }
       }
     }
@@ -405,6 +410,7 @@ public class SortRows extends BaseTransform<SortRowsMeta, SortRowsData> implemen
       data.outputRowMeta = inputRowMeta.clone();
       meta.getFields( data.outputRowMeta, getTransformName(), null, null, this, metadataProvider );
       data.comparator = new RowTemapFileComparator( data.outputRowMeta, data.fieldnrs );
+      data.tempRows = new PriorityQueue<RowTempFile>( 16, data.comparator );
 
       for ( int i = 0; i < fieldNames.length; i++ ) {
         data.fieldnrs[ i ] = inputRowMeta.indexOfValue( fieldNames[ i ] );
@@ -547,13 +553,16 @@ public class SortRows extends BaseTransform<SortRowsMeta, SortRowsData> implemen
     //
     data.buffer = new ArrayList<Object[]>( 5000 );
 
-    // Buffer for reading from disk
-    //
-    data.rowbuffer = new ArrayList<Object[]>( 5000 );
-
     data.compressFiles = getBooleanValueOfVariable( meta.getCompressFilesVariable(), meta.getCompressFiles() );
-
-    data.tempRows = new ArrayList<RowTempFile>();
+    if ( data.compressFiles ) {
+      String compressionType = environmentSubstitute( meta.getCompressionType() );
+      data.compressionProvider =
+        CompressionProviderFactory.getInstance().createCompressionProviderInstance( compressionType );
+      if ( data.compressionProvider == null ) {
+        logError( BaseMessages.getString( PKG, "SortRows.Error.UnknownCompressionType", compressionType ) );
+        return false;
+      }
+    }
 
     data.minSortSize = 5000;
 
@@ -562,6 +571,15 @@ public class SortRows extends BaseTransform<SortRowsMeta, SortRowsData> implemen
 
   @Override
   public void dispose() {
+    try {
+      waitForSpill();
+    } catch ( HopException e ) {
+      logError( e.getLocalizedMessage(), e );
+    }
+    if ( data.spillExecutor != null ) {
+      data.spillExecutor.shutdown();
+      data.spillExecutor = null;
+    }
     clearBuffers();
     super.dispose();
   }
@@ -571,7 +589,9 @@ public class SortRows extends BaseTransform<SortRowsMeta, SortRowsData> implemen
     // Clean out the sort buffer
     data.buffer.clear();
     data.getBufferIndex = 0;
-    data.rowbuffer.clear();
+    if ( data.tempRows != null ) {
+      data.tempRows.clear();
+    }
 
     // close any open DataInputStream objects
     if ( ( data.dis != null ) && ( data.dis.size() > 0 ) ) {
@@ -596,14 +616,22 @@ public class SortRows extends BaseTransform<SortRowsMeta, SortRowsData> implemen
         logError( e.getLocalizedMessage(), e );
       }
     }
+    data.files.clear();
+    data.fis.clear();
+    data.dis.clear();
+    data.bufferSizes.clear();
   }
 
   /**
-   * Sort the entire vector, if it is not empty.
+   * Sort the entire vector, if it is not empty. Large buffers are sorted on all available cores.
    */
   void quickSort( List<Object[]> elements ) throws HopException {
     if ( elements.size() > 0 ) {
-      Collections.sort( elements, data.rowComparator );
+      Object[][] rows = elements.toArray( new Object[ elements.size() ][] );
+      Arrays.parallelSort( rows, data.rowComparator );
+      for ( int i = 0; i < rows.length; i++ ) {
+        elements.set( i, rows[ i ] );
+      }
 
       long nrConversions = 0L;
       for ( IValueMeta valueMeta : data.outputRowMeta.getValueMetaList() ) {
@@ -629,8 +657,9 @@ public class SortRows extends BaseTransform<SortRowsMeta, SortRowsData> implemen
 
   private void preSortBeforeFlush() throws HopException {
     if ( data.files.size() > 0 ) {
-      // dump to dist and then read from disk
-      sortExternalRows();
+      // finish writing to disk and then merge the files with the rows left in memory
+      waitForSpill();
+      quickSort( data.buffer );
     } else {
       // sort in memory
       quickSort( data.buffer );
@@ -672,7 +701,10 @@ public class SortRows extends BaseTransform<SortRowsMeta, SortRowsData> implemen
     @Override
     public int compare( RowTempFile o1, RowTempFile o2 ) {
       try {
-        return rowMeta.compare( o1.row, o2.row, fieldNrs );
+        int cmp = rowMeta.compare( o1.row, o2.row, fieldNrs );
+        // Equal rows come out in the order of the runs: keeps the sort stable
+        //
+        return cmp != 0 ? cmp : Integer.compare( o1.fileNumber, o2.fileNumber );
       } catch ( HopValueException e ) {
         logError( "Error comparing rows: " + e.toString() );
         return 0;
@@ -23,6 +23,7 @@
 package org.apache.hop.pipeline.transforms.sort;
 
 import org.apache.commons.vfs2.FileObject;
+import org.apache.hop.core.compress.ICompressionProvider;
 import org.apache.hop.core.row.IRowMeta;
 import org.apache.hop.pipeline.transform.BaseTransformData;
 import org.apache.hop.pipeline.transform.ITransformData;
@@ -32,7 +33,9 @@ import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.List;
-import java.util.zip.GZIPInputStream;
+import java.util.PriorityQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 /**
  * @author Matt
@@ -44,19 +47,18 @@ public class SortRowsData extends BaseTransformData implements ITransformData {
   public int getBufferIndex;
 
   public List<InputStream> fis;
-  public List<GZIPInputStream> gzis;
   public List<DataInputStream> dis;
-  public List<Object[]> rowbuffer;
   public List<Integer> bufferSizes;
 
-  // To store rows and file references
-  public List<RowTempFile> tempRows;
+  // To store rows and file references: the head of every sorted run during the merge
+  public PriorityQueue<RowTempFile> tempRows;
 
   public int[] fieldnrs; // the corresponding field numbers;
   public FileObject fil;
   public IRowMeta outputRowMeta;
   public int sortSize;
   public boolean compressFiles;
+  public ICompressionProvider compressionProvider;
   public int[] convertKeysToNative;
   public boolean convertAnyKeysToNative;
 
@@ -69,6 +71,11 @@ public class SortRowsData extends BaseTransformData implements ITransformData {
   public int freeMemoryPctLimit;
   public int memoryReporting;
 
+  // Sorted runs are written to disk in the background, one at a time
+  //
+  public ExecutorService spillExecutor;
+  public Future<Integer> pendingSpill;
+
   /*
    * Group Fields Implementation heroic
    */
@@ -81,7 +88,6 @@ public class SortRowsData extends BaseTransformData implements ITransformData {
 
     files = new ArrayList<FileObject>();
     fis = new ArrayList<InputStream>();
-    gzis = new ArrayList<GZIPInputStream>();
     dis = new ArrayList<DataInputStream>();
     bufferSizes = new ArrayList<Integer>();
 
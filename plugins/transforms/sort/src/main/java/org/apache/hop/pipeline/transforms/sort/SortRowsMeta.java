@@ -68,6 +68,11 @@ public class SortRowsMeta extends BaseTransformMeta implements ITransformMeta<So
   private static final long serialVersionUID = -9075883720765645655L;
   private static final Class<?> PKG = SortRowsMeta.class; // for i18n purposes, needed by Translator!!
 
+  /**
+   * The compression provider used for the temporary files if none is specified
+   */
+  public static final String DEFAULT_COMPRESSION_TYPE = "GZip";
+
   /**
    * order by which fields?
    */
@@ -145,6 +150,12 @@ public class SortRowsMeta extends BaseTransformMeta implements ITransformMeta<So
    */
   private String compressFilesVariable;
 
+  /**
+   * The name of the compression provider used to compress the temporary files
+   */
+  @Injection( name = "COMPRESSION_TYPE" )
+  private String compressionType;
+
   public SortRowsMeta() {
     super(); // allocate BaseTransformMeta
   }
@@ -250,6 +261,8 @@ public class SortRowsMeta extends BaseTransformMeta implements ITransformMeta<So
       freeMemoryLimit = XmlHandler.getTagValue( transformNode, "free_memory" );
       compressFiles = "Y".equalsIgnoreCase( XmlHandler.getTagValue( transformNode, "compress" ) );
       compressFilesVariable = XmlHandler.getTagValue( transformNode, "compress_variable" );
+      compressionType =
+        Const.NVL( XmlHandler.getTagValue( transformNode, "compression_type" ), DEFAULT_COMPRESSION_TYPE );
       onlyPassingUniqueRows = "Y".equalsIgnoreCase( XmlHandler.getTagValue( transformNode, "unique_rows" ) );
 
       Node fields = XmlHandler.getSubNode( transformNode, "fields" );
@@ -286,6 +299,7 @@ public class SortRowsMeta extends BaseTransformMeta implements ITransformMeta<So
     freeMemoryLimit = null;
     compressFiles = false;
     compressFilesVariable = null;
+    compressionType = DEFAULT_COMPRESSION_TYPE;
     onlyPassingUniqueRows = false;
 
     int nrFields = 0;
@@ -310,6 +324,7 @@ public class SortRowsMeta extends BaseTransformMeta implements ITransformMeta<So
     retval.append( "      " ).append( XmlHandler.addTagValue( "free_memory", freeMemoryLimit ) );
     retval.append( "      " ).append( XmlHandler.addTagValue( "compress", compressFiles ) );
     retval.append( "      " ).append( XmlHandler.addTagValue( "compress_variable", compressFilesVariable ) );
+    retval.append( "      " ).append( XmlHandler.addTagValue( "compression_type", compressionType ) );
     retval.append( "      " ).append( XmlHandler.addTagValue( "unique_rows", onlyPassingUniqueRows ) );
 
     retval.append( "    <fields>" ).append( Const.CR );
@@ -531,6 +546,20 @@ public class SortRowsMeta extends BaseTransformMeta implements ITransformMeta<So
     this.compressFilesVariable = compressFilesVariable;
   }
 
+  /**
+   * @return the name of the compression provider used for the temporary files
+   */
+  public String getCompressionType() {
+    return compressionType;
+  }
+
+  /**
+   * @param compressionType the name of the compression provider used for the temporary files
+   */
+  public void setCompressionType( String compressionType ) {
+    this.compressionType = compressionType;
+  }
+
   /**
    * @return the caseSensitive
    */
@@ -46,7 +46,7 @@ public class SortRowsMetaTest {
   @Test
   public void testRoundTrips() throws HopException {
     List<String> attributes = Arrays.asList( "Directory", "Prefix", "SortSize", "FreeMemoryLimit", "CompressFiles",
-      "CompressFilesVariable", "OnlyPassingUniqueRows", "FieldName", "Ascending", "CaseSensitive", "CollatorEnabled",
+      "CompressFilesVariable", "CompressionType", "OnlyPassingUniqueRows", "FieldName", "Ascending", "CaseSensitive", "CollatorEnabled",
       "CollatorStrength", "PreSortedField" );
 
     Map<String, String> getterMap = new HashMap<>();
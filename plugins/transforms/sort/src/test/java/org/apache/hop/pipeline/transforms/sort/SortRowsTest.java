@@ -0,0 +1,198 @@
+/*! ******************************************************************************
+ *
+ * Hop : The Hop Orchestration Platform
+ *
+ * Copyright (C) 2002-2018 by Hitachi Vantara : http://www.pentaho.com
+ * http://www.project-hop.org
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+package org.apache.hop.pipeline.transforms.sort;
+
+import org.apache.hop.core.exception.HopException;
+import org.apache.hop.core.logging.ILoggingObject;
+import org.apache.hop.core.row.IRowMeta;
+import org.apache.hop.core.row.RowMeta;
+import org.apache.hop.core.row.value.ValueMetaInteger;
+import org.apache.hop.core.row.value.ValueMetaString;
+import org.apache.hop.junit.rules.RestoreHopEngineEnvironment;
+import org.apache.hop.pipeline.transforms.mock.TransformMockHelper;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.ClassRule;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.when;
+
+public class SortRowsTest {
+  @ClassRule public static RestoreHopEngineEnvironment env = new RestoreHopEngineEnvironment();
+
+  @Rule
+  public TemporaryFolder tempFolder = new TemporaryFolder();
+
+  private TransformMockHelper<SortRowsMeta, SortRowsData> mockHelper;
+
+  @Before
+  public void setUp() {
+    mockHelper = new TransformMockHelper<>( "Sort rows", SortRowsMeta.class, SortRowsData.class );
+    when( mockHelper.logChannelFactory.create( any(), any( ILoggingObject.class ) ) ).thenReturn(
+      mockHelper.logChannelInterface );
+    when( mockHelper.pipeline.isRunning() ).thenReturn( true );
+  }
+
+  @After
+  public void tearDown() {
+    mockHelper.cleanUp();
+  }
+
+  @Test
+  public void testSortInMemory() throws Exception {
+    List<Object[]> rows = generateRows( 5000 );
+    SortRowsData data = new SortRowsData();
+    List<Object[]> output = runTransform( createMeta( "100000", false, null, false ), data, rows );
+
+    assertSorted( rows.size(), output );
+    assertEquals( 0, data.bufferSizes.size() );
+  }
+
+  @Test
+  public void testExternalMerge() throws Exception {
+    List<Object[]> rows = generateRows( 20000 );
+    List<Object[]> output = runTransform( createMeta( "1000", false, null, false ), new SortRowsData(), rows );
+
+    assertSorted( rows.size(), output );
+    assertEquals( 0, tempFolder.getRoot().list().length );
+  }
+
+  @Test
+  public void testExternalMergeCompressed() throws Exception {
+    List<Object[]> rows = generateRows( 20000 );
+    for ( String compressionType : new String[] { "GZip", "Snappy", "None" } ) {
+      List<Object[]> output =
+        runTransform( createMeta( "1500", true, compressionType, false ), new SortRowsData(), rows );
+
+      assertSorted( rows.size(), output );
+      assertEquals( 0, tempFolder.getRoot().list().length );
+    }
+  }
+
+  @Test
+  public void testExternalMergeUniqueRows() throws Exception {
+    List<Object[]> rows = generateRows( 20000 );
+    List<Object[]> output = runTransform( createMeta( "1000", false, null, true ), new SortRowsData(), rows );
+
+    assertEquals( 200, output.size() );
+    for ( int i = 1; i < output.size(); i++ ) {
+      assertTrue( compareKeys( output.get( i - 1 ), output.get( i ) ) < 0 );
+    }
+  }
+
+  private SortRowsMeta createMeta( String sortSize, boolean compress, String compressionType, boolean unique ) {
+    SortRowsMeta meta = new SortRowsMeta();
+    meta.setDefault();
+    meta.allocate( 2 );
+    meta.getFieldName()[ 0 ] = "key";
+    meta.getAscending()[ 0 ] = true;
+    meta.getCaseSensitive()[ 0 ] = true;
+    meta.getFieldName()[ 1 ] = "number";
+    meta.getAscending()[ 1 ] = false;
+    meta.getCaseSensitive()[ 1 ] = true;
+    meta.setDirectory( tempFolder.getRoot().getAbsolutePath() );
+    meta.setSortSize( sortSize );
+    meta.setCompressFiles( compress );
+    if ( compressionType != null ) {
+      meta.setCompressionType( compressionType );
+    }
+    meta.setOnlyPassingUniqueRows( unique );
+    return meta;
+  }
+
+  private List<Object[]> runTransform( SortRowsMeta meta, SortRowsData data, List<Object[]> rows )
+    throws HopException {
+    IRowMeta inputRowMeta = new RowMeta();
+    inputRowMeta.addValueMeta( new ValueMetaString( "key" ) );
+    inputRowMeta.addValueMeta( new ValueMetaInteger( "number" ) );
+    inputRowMeta.addValueMeta( new ValueMetaInteger( "sequence" ) );
+
+    Iterator<Object[]> rowIterator = rows.iterator();
+    List<Object[]> output = new ArrayList<>();
+    SortRows sortRows =
+      new SortRows( mockHelper.transformMeta, meta, data, 0, mockHelper.pipelineMeta, mockHelper.pipeline ) {
+        @Override
+        public Object[] getRow() {
+          return rowIterator.hasNext() ? rowIterator.next().clone() : null;
+        }
+
+        @Override
+        public IRowMeta getInputRowMeta() {
+          return inputRowMeta;
+        }
+
+        @Override
+        public void putRow( IRowMeta rowMeta, Object[] row ) {
+          output.add( row );
+        }
+      };
+    assertTrue( sortRows.init() );
+
+    while ( sortRows.processRow() ) {
+      // Keep going
+    }
+    sortRows.dispose();
+    return output;
+  }
+
+  private void assertSorted( int expectedSize, List<Object[]> output ) {
+    assertEquals( expectedSize, output.size() );
+    for ( int i = 1; i < output.size(); i++ ) {
+      Object[] previous = output.get( i - 1 );
+      Object[] row = output.get( i );
+      int cmp = compareKeys( previous, row );
+      assertTrue( "row " + i, cmp <= 0 );
+
+      // Equal keys keep the order in which they came in
+      //
+      if ( cmp == 0 ) {
+        assertTrue( "row " + i, (Long) previous[ 2 ] < (Long) row[ 2 ] );
+      }
+    }
+  }
+
+  private int compareKeys( Object[] one, Object[] two ) {
+    int cmp = ( (String) one[ 0 ] ).compareTo( (String) two[ 0 ] );
+    return cmp != 0 ? cmp : ( (Long) two[ 1 ] ).compareTo( (Long) one[ 1 ] );
+  }
+
+  private List<Object[]> generateRows( int nrRows ) {
+    Random random = new Random( 1234 );
+    List<Object[]> rows = new ArrayList<>();
+    for ( int i = 0; i < nrRows; i++ ) {
+      rows.add( new Object[] { "key-" + random.nextInt( 100 ), (long) random.nextInt( 2 ), (long) i } );
+    }
+    return rows;
+  }
+}
@@ -29,6 +29,8 @@ import org.apache.hop.core.exception.HopException;
 import org.apache.hop.core.exception.HopTransformException;
 import org.apache.hop.core.exception.HopValueException;
 import org.apache.hop.core.hash.ByteArrayHashIndex;
+import org.apache.hop.core.hash.OffHeapByteArrayHashIndex;
+import org.apache.hop.core.hash.SharedLookupTable;
 import org.apache.hop.core.row.RowDataUtil;
 import org.apache.hop.core.row.RowMeta;
 import org.apache.hop.core.row.IRowMeta;
@@ -142,13 +144,61 @@ public class StreamLookup extends BaseTransform<StreamLookupMeta, StreamLookupDa
         + data.infoStream.getTransformName() + "]" );
     }
 
+    // Which row set do we read from?
+    //
+    IRowSet rowSet = findInputRowSet( data.infoStream.getTransformName() );
+
+    String sharedCacheName = environmentSubstitute( meta.getSharedCacheName() );
+    if ( Utils.isEmpty( sharedCacheName ) ) {
+      readLookupRows( rowSet );
+      return true;
+    }
+
+    // Build the lookup table once for all copies and pipelines attached under the same cache name
+    //
+    data.sharedTable = SharedLookupTable.attach( sharedCacheName );
+    if ( data.sharedTable.startBuilding() ) {
+      if ( log.isDetailed() ) {
+        logDetailed( BaseMessages.getString( PKG, "StreamLookup.Log.BuildingSharedTable", sharedCacheName ) );
+      }
+      boolean built = false;
+      try {
+        readLookupRows( rowSet );
+        built = !isStopped();
+      } finally {
+        if ( built ) {
+          data.sharedTable.publish( new StreamLookupTable( meta, data ) );
+        } else {
+          data.sharedTable.fail();
+        }
+      }
+    } else {
+      // Somebody else builds the table. We still consume our own lookup rows so that the info transform doesn't block.
+      //
+      while ( !isStopped() && getRowFrom( rowSet ) != null ) {
+        // Nothing to do with the row
+      }
+      StreamLookupTable table = data.sharedTable.waitForTable( this::isStopped );
+      if ( table != null ) {
+        if ( !table.isCompatible( meta ) ) {
+          throw new HopTransformException( BaseMessages.getString(
+            PKG, "StreamLookup.Exception.IncompatibleSharedTable", sharedCacheName ) );
+        }
+        table.applyTo( data );
+        if ( log.isDetailed() ) {
+          logDetailed( BaseMessages.getString( PKG, "StreamLookup.Log.UsingSharedTable", sharedCacheName ) );
+        }
+      }
+    }
+
+    return true;
+  }
+
+  private void readLookupRows( IRowSet rowSet ) throws HopException {
     int[] keyNrs = new int[ meta.getKeylookup().length ];
     int[] valueNrs = new int[ meta.getValue().length ];
     boolean firstRun = true;
 
-    // Which row set do we read from?
-    //
-    IRowSet rowSet = findInputRowSet( data.infoStream.getTransformName() );
     Object[] rowData = getRowFrom( rowSet ); // rows are originating from "lookup_from"
     while ( rowData != null ) {
       if ( log.isRowLevel() ) {
@@ -213,8 +263,6 @@ public class StreamLookup extends BaseTransform<StreamLookupMeta, StreamLookupDa
 
       rowData = getRowFrom( rowSet );
     }
-
-    return true;
   }
 
   private Object[] lookupValues( IRowMeta rowMeta, Object[] row ) throws HopException {
@@ -290,7 +338,12 @@ public class StreamLookup extends BaseTransform<StreamLookupMeta, StreamLookupDa
 
   private void addToCache( IRowMeta keyMeta, Object[] keyData, IRowMeta valueMeta,
                            Object[] valueData ) throws HopValueException {
-    if ( meta.isMemoryPreservationActive() ) {
+    if ( meta.isOffHeap() ) {
+      if ( data.offHeapIndex == null ) {
+        data.offHeapIndex = new OffHeapByteArrayHashIndex();
+      }
+      data.offHeapIndex.put( RowMeta.extractData( keyMeta, keyData ), RowMeta.extractData( valueMeta, valueData ) );
+    } else if ( meta.isMemoryPreservationActive() ) {
       if ( meta.isUsingSortedList() ) {
         KeyValue keyValue = new KeyValue( keyData, valueData );
         int idx = Collections.binarySearch( data.list, keyValue, data.comparator );
@@ -332,7 +385,13 @@ public class StreamLookup extends BaseTransform<StreamLookupMeta, StreamLookupDa
   }
 
   private Object[] getFromCache( IRowMeta keyMeta, Object[] keyData ) throws HopValueException {
-    if ( meta.isMemoryPreservationActive() ) {
+    if ( meta.isOffHeap() ) {
+      byte[] value = data.offHeapIndex.get( RowMeta.extractData( keyMeta, keyData ) );
+      if ( value == null ) {
+        return null;
+      }
+      return RowMeta.getRow( data.cacheValueMeta, value );
+    } else if ( meta.isMemoryPreservationActive() ) {
       if ( meta.isUsingSortedList() ) {
         KeyValue keyValue = new KeyValue( keyData, null );
         int idx = Collections.binarySearch( data.list, keyValue, data.comparator );
@@ -474,6 +533,16 @@ public class StreamLookup extends BaseTransform<StreamLookupMeta, StreamLookupDa
     data.hashIndex = null;
     data.longIndex = null;
 
+    // The shared table is evicted and its off-heap memory released when the last copy lets go of it
+    //
+    if ( data.sharedTable != null ) {
+      data.sharedTable.release();
+      data.sharedTable = null;
+    } else if ( data.offHeapIndex != null ) {
+      data.offHeapIndex.close();
+    }
+    data.offHeapIndex = null;
+
     super.dispose();
   }
 }
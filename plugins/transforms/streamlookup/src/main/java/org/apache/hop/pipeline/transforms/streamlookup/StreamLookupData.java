@@ -27,6 +27,8 @@ import org.apache.hop.core.RowMetaAndData;
 import org.apache.hop.core.exception.HopValueException;
 import org.apache.hop.core.hash.ByteArrayHashIndex;
 import org.apache.hop.core.hash.LongHashIndex;
+import org.apache.hop.core.hash.OffHeapByteArrayHashIndex;
+import org.apache.hop.core.hash.SharedLookupTable;
 import org.apache.hop.core.row.IRowMeta;
 import org.apache.hop.pipeline.transform.BaseTransformData;
 import org.apache.hop.pipeline.transform.ITransformData;
@@ -84,6 +86,12 @@ public class StreamLookupData extends BaseTransformData implements ITransformDat
 
   public ByteArrayHashIndex hashIndex;
   public LongHashIndex longIndex;
+  public OffHeapByteArrayHashIndex offHeapIndex;
+
+  /**
+   * The lookup table shared under the cache name, null if this copy builds its own
+   */
+  public SharedLookupTable<StreamLookupTable> sharedTable;
 
   public IRowMeta lookupMeta;
 
@@ -37,6 +37,7 @@ import org.apache.hop.pipeline.transform.errorhandling.IStream;
 import org.apache.hop.ui.core.dialog.ErrorDialog;
 import org.apache.hop.ui.core.widget.ColumnInfo;
 import org.apache.hop.ui.core.widget.TableView;
+import org.apache.hop.ui.core.widget.TextVar;
 import org.apache.hop.ui.pipeline.transform.BaseTransformDialog;
 import org.eclipse.swt.SWT;
 import org.eclipse.swt.custom.CCombo;
@@ -64,6 +65,10 @@ public class StreamLookupDialog extends BaseTransformDialog implements ITransfor
 
   private Button wIntegerPair;
 
+  private Button wOffHeap;
+
+  private TextVar wSharedCacheName;
+
   private final StreamLookupMeta input;
 
   private Listener lsGetLU;
@@ -273,6 +278,44 @@ public class StreamLookupDialog extends BaseTransformDialog implements ITransfor
       wIntegerPair.setEnabled( selection );
     } );
 
+    Label wlOffHeap = new Label(shell, SWT.RIGHT);
+    wlOffHeap.setText( BaseMessages.getString( PKG, "StreamLookupDialog.OffHeap.Label" ) );
+    props.setLook(wlOffHeap);
+    FormData fdlOffHeap = new FormData();
+    fdlOffHeap.left = new FormAttachment( 0, 0 );
+    fdlOffHeap.bottom = new FormAttachment(wlPreserveMemory, -margin );
+    fdlOffHeap.right = new FormAttachment( middle, -margin );
+    wlOffHeap.setLayoutData(fdlOffHeap);
+    wOffHeap = new Button( shell, SWT.CHECK );
+    props.setLook( wOffHeap );
+    FormData fdOffHeap = new FormData();
+    fdOffHeap.left = new FormAttachment( middle, 0 );
+    fdOffHeap.top = new FormAttachment(wlOffHeap, 0, SWT.CENTER );
+    fdOffHeap.right = new FormAttachment( 100, 0 );
+    wOffHeap.setLayoutData(fdOffHeap);
+    wOffHeap.addSelectionListener( new SelectionAdapter() {
+      public void widgetSelected( SelectionEvent e ) {
+        input.setChanged();
+      }
+    } );
+
+    Label wlSharedCacheName = new Label(shell, SWT.RIGHT);
+    wlSharedCacheName.setText( BaseMessages.getString( PKG, "StreamLookupDialog.SharedCacheName.Label" ) );
+    props.setLook(wlSharedCacheName);
+    FormData fdlSharedCacheName = new FormData();
+    fdlSharedCacheName.left = new FormAttachment( 0, 0 );
+    fdlSharedCacheName.bottom = new FormAttachment(wlOffHeap, -2*margin );
+    fdlSharedCacheName.right = new FormAttachment( middle, -margin );
+    wlSharedCacheName.setLayoutData(fdlSharedCacheName);
+    wSharedCacheName = new TextVar( pipelineMeta, shell, SWT.SINGLE | SWT.LEFT | SWT.BORDER );
+    props.setLook( wSharedCacheName );
+    wSharedCacheName.addModifyListener( lsMod );
+    FormData fdSharedCacheName = new FormData();
+    fdSharedCacheName.left = new FormAttachment( middle, 0 );
+    fdSharedCacheName.top = new FormAttachment(wlSharedCacheName, 0, SWT.CENTER );
+    fdSharedCacheName.right = new FormAttachment( 100, 0 );
+    wSharedCacheName.setLayoutData(fdSharedCacheName);
+
     // THE UPDATE/INSERT TABLE
     Label wlReturn = new Label(shell, SWT.NONE);
     wlReturn.setText( BaseMessages.getString( PKG, "StreamLookupDialog.ReturnFields.Label" ) );
@@ -312,7 +355,7 @@ public class StreamLookupDialog extends BaseTransformDialog implements ITransfor
     fdReturn.left = new FormAttachment( 0, 0 );
     fdReturn.top = new FormAttachment(wlReturn, margin );
     fdReturn.right = new FormAttachment( 100, 0 );
-    fdReturn.bottom = new FormAttachment(wlPreserveMemory, -2*margin );
+    fdReturn.bottom = new FormAttachment(wSharedCacheName, -2*margin );
     wReturn.setLayoutData(fdReturn);
 
 
@@ -474,6 +517,8 @@ public class StreamLookupDialog extends BaseTransformDialog implements ITransfor
     // but user will be forced to choose only one option later.
     wSortedList.setSelection( input.isUsingSortedList() );
     wIntegerPair.setSelection( input.isUsingIntegerPair() );
+    wOffHeap.setSelection( input.isOffHeap() );
+    wSharedCacheName.setText( Const.NVL( input.getSharedCacheName(), "" ) );
 
     wKey.setRowNums();
     wKey.optWidth( true );
@@ -501,6 +546,8 @@ public class StreamLookupDialog extends BaseTransformDialog implements ITransfor
     input.setMemoryPreservationActive( wPreserveMemory.getSelection() );
     input.setUsingSortedList( wSortedList.getSelection() );
     input.setUsingIntegerPair( wIntegerPair.getSelection() );
+    input.setOffHeap( wOffHeap.getSelection() );
+    input.setSharedCacheName( wSharedCacheName.getText() );
 
     if ( log.isDebug() ) {
       logDebug( BaseMessages.getString( PKG, "StreamLookupDialog.Log.FoundKeys", nrkeys + "" ) );
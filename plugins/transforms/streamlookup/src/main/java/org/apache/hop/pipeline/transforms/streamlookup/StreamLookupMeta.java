@@ -123,6 +123,18 @@ public class StreamLookupMeta extends BaseTransformMeta implements ITransformMet
   @Injection( name = "INTEGER_PAIR" )
   private boolean usingIntegerPair;
 
+  /**
+   * The name under which copies and pipelines in the same JVM share the lookup table, empty to build a private one
+   */
+  @Injection( name = "SHARED_CACHE_NAME" )
+  private String sharedCacheName;
+
+  /**
+   * Store the keys and values of the lookup table outside of the Java heap
+   */
+  @Injection( name = "OFF_HEAP" )
+  private boolean offHeap;
+
   public StreamLookupMeta() {
     super(); // allocate BaseTransformMeta
   }
@@ -185,6 +197,8 @@ public class StreamLookupMeta extends BaseTransformMeta implements ITransformMet
       setMemoryPreservationActive( "Y".equalsIgnoreCase( XmlHandler.getTagValue( transformNode, "preserve_memory" ) ) );
       setUsingSortedList( "Y".equalsIgnoreCase( XmlHandler.getTagValue( transformNode, "sorted_list" ) ) );
       setUsingIntegerPair( "Y".equalsIgnoreCase( XmlHandler.getTagValue( transformNode, "integer_pair" ) ) );
+      setSharedCacheName( XmlHandler.getTagValue( transformNode, "shared_cache_name" ) );
+      setOffHeap( "Y".equalsIgnoreCase( XmlHandler.getTagValue( transformNode, "off_heap" ) ) );
 
       Node lookup = XmlHandler.getSubNode( transformNode, "lookup" );
       nrkeys = XmlHandler.countNodes( lookup, "key" );
@@ -233,6 +247,8 @@ public class StreamLookupMeta extends BaseTransformMeta implements ITransformMet
     setMemoryPreservationActive( true );
     setUsingSortedList( false );
     setUsingIntegerPair( false );
+    setSharedCacheName( null );
+    setOffHeap( false );
 
     allocate( 0, 0 );
   }
@@ -276,6 +292,8 @@ public class StreamLookupMeta extends BaseTransformMeta implements ITransformMet
     retval.append( "    " ).append( XmlHandler.addTagValue( "preserve_memory", isMemoryPreservationActive() ) );
     retval.append( "    " ).append( XmlHandler.addTagValue( "sorted_list", isUsingSortedList() ) );
     retval.append( "    " ).append( XmlHandler.addTagValue( "integer_pair", isUsingIntegerPair() ) );
+    retval.append( "    " ).append( XmlHandler.addTagValue( "shared_cache_name", getSharedCacheName() ) );
+    retval.append( "    " ).append( XmlHandler.addTagValue( "off_heap", isOffHeap() ) );
 
     retval.append( "    <lookup>" ).append( Const.CR );
     for ( int i = 0; i < getKeystream().length; i++ ) {
@@ -618,6 +636,34 @@ public class StreamLookupMeta extends BaseTransformMeta implements ITransformMet
     this.usingIntegerPair = usingIntegerPair;
   }
 
+  /**
+   * @return the sharedCacheName
+   */
+  public String getSharedCacheName() {
+    return sharedCacheName;
+  }
+
+  /**
+   * @param sharedCacheName the sharedCacheName to set
+   */
+  public void setSharedCacheName( String sharedCacheName ) {
+    this.sharedCacheName = sharedCacheName;
+  }
+
+  /**
+   * @return the offHeap
+   */
+  public boolean isOffHeap() {
+    return offHeap;
+  }
+
+  /**
+   * @param offHeap the offHeap to set
+   */
+  public void setOffHeap( boolean offHeap ) {
+    this.offHeap = offHeap;
+  }
+
   /**
    * If we use injection we can have different arrays lengths.
    * We need synchronize them for consistency behavior with UI
@@ -0,0 +1,111 @@
+/*! ******************************************************************************
+ *
+ * Hop : The Hop Orchestration Platform
+ *
+ * Copyright (C) 2002-2020 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+
+package org.apache.hop.pipeline.transforms.streamlookup;
+
+import org.apache.hop.core.RowMetaAndData;
+import org.apache.hop.core.hash.ByteArrayHashIndex;
+import org.apache.hop.core.hash.LongHashIndex;
+import org.apache.hop.core.hash.OffHeapByteArrayHashIndex;
+import org.apache.hop.core.row.IRowMeta;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The lookup table built by a Stream Lookup copy, as shared with the other copies and pipelines attached under the
+ * same cache name. It is not modified anymore once it is published, so it can be read by all of them concurrently.
+ */
+public class StreamLookupTable implements AutoCloseable {
+  private final Map<RowMetaAndData, Object[]> look;
+  private final List<KeyValue> list;
+  private final ByteArrayHashIndex hashIndex;
+  private final LongHashIndex longIndex;
+  private final OffHeapByteArrayHashIndex offHeapIndex;
+  private final IRowMeta keyTypes;
+  private final IRowMeta cacheKeyMeta;
+  private final IRowMeta cacheValueMeta;
+  private final IRowMeta infoMeta;
+  private final boolean hasLookupRows;
+
+  private final boolean offHeap;
+  private final boolean memoryPreservationActive;
+  private final boolean usingSortedList;
+  private final boolean usingIntegerPair;
+
+  public StreamLookupTable( StreamLookupMeta meta, StreamLookupData data ) {
+    this.offHeap = meta.isOffHeap();
+    this.memoryPreservationActive = meta.isMemoryPreservationActive();
+    this.usingSortedList = meta.isUsingSortedList();
+    this.usingIntegerPair = meta.isUsingIntegerPair();
+    this.look = data.look;
+    this.list = data.list;
+    this.hashIndex = data.hashIndex;
+    this.longIndex = data.longIndex;
+    this.offHeapIndex = data.offHeapIndex;
+    this.keyTypes = data.keyTypes;
+    this.cacheKeyMeta = data.cacheKeyMeta;
+    this.cacheValueMeta = data.cacheValueMeta;
+    this.infoMeta = data.infoMeta;
+    this.hasLookupRows = data.hasLookupRows;
+  }
+
+  /**
+   * @param meta the metadata of a transform attaching to the table
+   * @return true if the table is stored the way the transform looks up values
+   */
+  public boolean isCompatible( StreamLookupMeta meta ) {
+    return offHeap == meta.isOffHeap()
+      && memoryPreservationActive == meta.isMemoryPreservationActive()
+      && usingSortedList == meta.isUsingSortedList()
+      && usingIntegerPair == meta.isUsingIntegerPair();
+  }
+
+  /**
+   * Make the transform data use this table. The row metadata is cloned as it's not safe to use across threads.
+   *
+   * @param data the data of the transform attaching to the table
+   */
+  public void applyTo( StreamLookupData data ) {
+    data.look = look;
+    data.list = list;
+    data.hashIndex = hashIndex;
+    data.longIndex = longIndex;
+    data.offHeapIndex = offHeapIndex;
+    data.keyTypes = keyTypes == null ? null : keyTypes.clone();
+    data.cacheKeyMeta = cacheKeyMeta == null ? null : cacheKeyMeta.clone();
+    data.cacheValueMeta = cacheValueMeta == null ? null : cacheValueMeta.clone();
+    data.infoMeta = infoMeta == null ? null : infoMeta.clone();
+    data.hasLookupRows = hasLookupRows;
+  }
+
+  /**
+   * Releases the off-heap memory, if any. Called when the last attached transform has released the table.
+   */
+  @Override
+  public void close() {
+    if ( offHeapIndex != null ) {
+      offHeapIndex.close();
+    }
+  }
+}
@@ -62,7 +62,8 @@ public class StreamLookupMetaTest implements IInitializer<ITransformMeta> {
     HopEnvironment.init();
     PluginRegistry.init( false );
     List<String> attributes =
-      Arrays.asList( "inputSorted", "memoryPreservationActive", "usingSortedList", "usingIntegerPair", "keystream",
+      Arrays.asList( "inputSorted", "memoryPreservationActive", "usingSortedList", "usingIntegerPair", "sharedCacheName",
+        "offHeap", "keystream",
         "keylookup", "value", "valueName", "valueDefault", "valueDefaultType" );
 
     IFieldLoadSaveValidator<String[]> stringArrayLoadSaveValidator =
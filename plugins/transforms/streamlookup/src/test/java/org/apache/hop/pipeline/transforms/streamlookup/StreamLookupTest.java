@@ -139,7 +139,7 @@ public class StreamLookupTest {
     return dataRowSet;
   }
 
-  private StreamLookupMeta mockProcessRowMeta( boolean memoryPreservationActive ) throws HopTransformException {
+  private StreamLookupMeta mockProcessRowMeta( boolean memoryPreservationActive, boolean offHeap ) throws HopTransformException {
     StreamLookupMeta meta = smh.iTransformMeta;
 
     TransformMeta lookupTransformMeta = when( mock( TransformMeta.class ).getName() ).thenReturn( "Lookup" ).getMock();
@@ -155,6 +155,7 @@ public class StreamLookupTest {
     doReturn( memoryPreservationActive ).when( meta ).isMemoryPreservationActive();
     doReturn( false ).when( meta ).isUsingSortedList();
     doReturn( false ).when( meta ).isUsingIntegerPair();
+    doReturn( offHeap ).when( meta ).isOffHeap();
     doReturn( new int[] { -1 } ).when( meta ).getValueDefaultType();
     doReturn( new String[] { "" } ).when( meta ).getValueDefault();
     doReturn( new String[] { "Value" } ).when( meta ).getValueName();
@@ -166,13 +167,18 @@ public class StreamLookupTest {
   }
 
   private void doTest( boolean memoryPreservationActive, boolean binaryLookupStream, boolean binaryDataStream ) throws HopException {
+    doTest( memoryPreservationActive, false, binaryLookupStream, binaryDataStream );
+  }
+
+  private void doTest( boolean memoryPreservationActive, boolean offHeap, boolean binaryLookupStream,
+                       boolean binaryDataStream ) throws HopException {
     StreamLookup transform = new StreamLookup( smh.transformMeta, smh.iTransformMeta, smh.iTransformData, 0, smh.pipelineMeta, smh.pipeline );
     transform.init();
     transform.addRowSetToInputRowSets( mockLookupRowSet( binaryLookupStream ) );
     transform.addRowSetToInputRowSets( mockDataRowSet( binaryDataStream ) );
     transform.addRowSetToOutputRowSets( new QueueRowSet() );
 
-    StreamLookupMeta meta = mockProcessRowMeta( memoryPreservationActive );
+    StreamLookupMeta meta = mockProcessRowMeta( memoryPreservationActive, offHeap );
     StreamLookupData data = new StreamLookupData();
     data.readLookupValues = true;
 
@@ -198,6 +204,7 @@ public class StreamLookupTest {
     }
 
     Assert.assertEquals( "Incorrect output row number", 2, rowNumber );
+    transform.dispose();
   }
 
   @Test
@@ -243,4 +250,14 @@ public class StreamLookupTest {
   public void testMemoryPreservationWithBinaryStreams() throws HopException {
     doTest( true, false, true );
   }
+
+  @Test
+  public void testOffHeapWithNormalStreams() throws HopException {
+    doTest( false, true, false, false );
+  }
+
+  @Test
+  public void testOffHeapWithBinaryStreams() throws HopException {
+    doTest( false, true, true, true );
+  }
 }
@@ -25,6 +25,7 @@ package org.apache.hop.pipeline.transforms.tableoutput;
 import org.apache.hop.core.Const;
 import org.apache.hop.core.RowMetaAndData;
 import org.apache.hop.core.database.Database;
+import org.apache.hop.core.database.DatabaseMeta;
 import org.apache.hop.core.database.IDatabase;
 import org.apache.hop.core.exception.HopDatabaseBatchException;
 import org.apache.hop.core.exception.HopDatabaseException;
@@ -45,8 +46,13 @@ import org.apache.hop.pipeline.transform.TransformMeta;
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Writes rows to a database table.
@@ -65,8 +71,8 @@ public class TableOutput extends BaseTransform<TableOutputMeta, TableOutputData>
 
   public boolean processRow() throws HopException {
 
-    Object[] r = getRow(); // this also waits for a previous transform to be finished.
-    if ( r == null ) { // no more input to be expected...
+    Object[][] rows = getRows( Const.ROWS_IN_BATCH ); // this also waits for a previous transform to be finished.
+    if ( rows == null ) { // no more input to be expected...
       // truncate the table if there are no rows at all coming into this transform
       if ( first && meta.truncateTable() ) {
         truncateTable();
@@ -77,6 +83,8 @@ public class TableOutput extends BaseTransform<TableOutputMeta, TableOutputData>
     if ( first ) {
       first = false;
       if ( meta.truncateTable() ) {
+        // The parallel writer loads a staging table: the truncation is committed together with its copy
+        //
         truncateTable();
       }
       data.outputRowMeta = getInputRowMeta().clone();
@@ -115,25 +123,36 @@ public class TableOutput extends BaseTransform<TableOutputMeta, TableOutputData>
       }
     }
 
+    Object[][] outputRows = new Object[ rows.length ][];
+    int nrOutputRows = 0;
+    long linesRead = getLinesRead() - rows.length;
+
     try {
-      Object[] outputRowData = writeToTable( getInputRowMeta(), r );
-      if ( outputRowData != null ) {
-        putRow( data.outputRowMeta, outputRowData ); // in case we want it go further...
-        incrementLinesOutput();
-      }
+      for ( Object[] r : rows ) {
+        linesRead++;
+        Object[] outputRowData = writeToTable( getInputRowMeta(), r );
+        if ( outputRowData != null ) {
+          outputRows[ nrOutputRows++ ] = outputRowData; // in case we want it go further...
+          incrementLinesOutput();
+        }
 
-      if ( checkFeedback( getLinesRead() ) ) {
-        if ( log.isBasic() ) {
-          logBasic( "linenr " + getLinesRead() );
+        if ( checkFeedback( linesRead ) ) {
+          if ( log.isBasic() ) {
+            logBasic( "linenr " + linesRead );
+          }
         }
       }
     } catch ( HopException e ) {
+      // Pass on the rows of this batch written before the failing one, like row by row processing did
+      //
+      putRows( data.outputRowMeta, outputRows, nrOutputRows );
       logError( "Because of an error, this transform can't continue: ", e );
       setErrors( 1 );
       stopAll();
       setOutputDone(); // signal end to receiver(s)
       return false;
     }
+    putRows( data.outputRowMeta, outputRows, nrOutputRows );
 
     return true;
   }
@@ -233,6 +252,17 @@ public class TableOutput extends BaseTransform<TableOutputMeta, TableOutputData>
       throw new HopTransformException( "The tablename is not defined (empty)" );
     }
 
+    if ( data.loadConnections != null ) {
+      // The parallel writer binds the row on one of its own connections
+      //
+      data.asyncInsertRows.add( insertRowData );
+      data.asyncOutputRows.add( outputRowData );
+      if ( data.asyncInsertRows.size() >= data.commitSize ) {
+        flushParallelBatch();
+      }
+      return null;
+    }
+
     insertStatement = data.preparedStatements.get( tableName );
     if ( insertStatement == null ) {
       String sql =
@@ -245,6 +275,17 @@ public class TableOutput extends BaseTransform<TableOutputMeta, TableOutputData>
       data.preparedStatements.put( tableName, insertStatement );
     }
 
+    if ( data.asyncBatchMode ) {
+      // The row is bound by the writer thread, and passed on once its batch is committed
+      //
+      data.asyncInsertRows.add( insertRowData );
+      data.asyncOutputRows.add( outputRowData );
+      if ( data.asyncInsertRows.size() >= data.commitSize ) {
+        flushAsyncBatch( insertStatement );
+      }
+      return null;
+    }
+
     try {
       // For PG & GP, we add a savepoint before the row.
       // Then revert to the savepoint afterwards... (not a transaction, so hopefully still fast)
@@ -330,16 +371,7 @@ public class TableOutput extends BaseTransform<TableOutputMeta, TableOutputData>
       } else {
         data.db.clearBatch( insertStatement );
         data.db.rollback();
-        StringBuilder msg = new StringBuilder( "Error batch inserting rows into table [" + tableName + "]." );
-        msg.append( Const.CR );
-        msg.append( "Errors encountered (first 10):" ).append( Const.CR );
-        for ( int x = 0; x < be.getExceptionsList().size() && x < 10; x++ ) {
-          Exception exception = be.getExceptionsList().get( x );
-          if ( exception.getMessage() != null ) {
-            msg.append( exception.getMessage() ).append( Const.CR );
-          }
-        }
-        throw new HopException( msg.toString(), be );
+        throw new HopException( getBatchErrorMessage( tableName, be ), be );
       }
     } catch ( HopDatabaseException dbe ) {
       if ( getTransformMeta().isDoingErrorHandling() ) {
@@ -425,6 +457,382 @@ public class TableOutput extends BaseTransform<TableOutputMeta, TableOutputData>
     return log.isRowLevel();
   }
 
+  private String getBatchErrorMessage( String tableName, HopDatabaseBatchException be ) {
+    StringBuilder msg = new StringBuilder( "Error batch inserting rows into table [" + tableName + "]." );
+    msg.append( Const.CR );
+    msg.append( "Errors encountered (first 10):" ).append( Const.CR );
+    for ( int x = 0; x < be.getExceptionsList().size() && x < 10; x++ ) {
+      Exception exception = be.getExceptionsList().get( x );
+      if ( exception.getMessage() != null ) {
+        msg.append( exception.getMessage() ).append( Const.CR );
+      }
+    }
+    return msg.toString();
+  }
+
+  /**
+   * Hands the batch filled so far over to the writer thread and starts a new one. The previous batch is waited for
+   * first: only one batch is in flight, as they share the connection.
+   */
+  void flushAsyncBatch( PreparedStatement insertStatement ) throws HopException {
+    waitForAsyncBatch( insertStatement );
+    if ( data.asyncInsertRows.isEmpty() ) {
+      return;
+    }
+
+    final List<Object[]> insertRows = data.asyncInsertRows;
+    data.pendingOutputRows = data.asyncOutputRows;
+    data.asyncInsertRows = new ArrayList<>( insertRows.size() );
+    data.asyncOutputRows = new ArrayList<>( insertRows.size() );
+    data.pendingBatch = data.batchWriter.submit( () -> writeBatch( data.db, insertStatement, insertRows, true ) );
+    data.asyncBatches++;
+  }
+
+  /**
+   * Runs on a writer thread: binds the rows, executes the batch and commits if asked to.
+   */
+  Void writeBatch( Database db, PreparedStatement insertStatement, List<Object[]> insertRows, boolean commit )
+    throws HopDatabaseException {
+    long start = System.nanoTime();
+    for ( Object[] insertRowData : insertRows ) {
+      db.setValues( data.insertRowMeta, insertRowData, insertStatement );
+      db.insertRow( insertStatement, data.batchMode, false );
+    }
+    long bound = System.nanoTime();
+    data.bindTime.addAndGet( bound - start );
+
+    if ( db.getUseBatchInsert( data.batchMode ) ) {
+      try {
+        insertStatement.executeBatch();
+        if ( commit ) {
+          db.commit();
+        }
+        insertStatement.clearBatch();
+      } catch ( SQLException ex ) {
+        throw Database.createHopDatabaseBatchException( "Error updating batch", ex );
+      }
+    } else if ( commit ) {
+      db.commit();
+    }
+    data.executeTime.addAndGet( System.nanoTime() - bound );
+    return null;
+  }
+
+  /**
+   * Waits for the batch in flight, then passes its rows on, or handles the error the same way as the synchronous
+   * batch mode does.
+   */
+  void waitForAsyncBatch( PreparedStatement insertStatement ) throws HopException {
+    if ( data.pendingBatch == null ) {
+      return;
+    }
+
+    List<Object[]> outputRows = data.pendingOutputRows;
+    long start = System.nanoTime();
+    try {
+      data.pendingBatch.get();
+    } catch ( InterruptedException e ) {
+      Thread.currentThread().interrupt();
+      throw new HopException( "Interrupted while waiting for the batch writer", e );
+    } catch ( ExecutionException e ) {
+      processAsyncBatchException( insertStatement, e.getCause(), outputRows );
+      return;
+    } finally {
+      data.waitTime += System.nanoTime() - start;
+      data.pendingBatch = null;
+      data.pendingOutputRows = null;
+    }
+
+    for ( Object[] row : outputRows ) {
+      putRow( data.outputRowMeta, row );
+      incrementLinesOutput();
+    }
+  }
+
+  private void processAsyncBatchException( PreparedStatement insertStatement, Throwable cause,
+                                           List<Object[]> outputRows ) throws HopException {
+    data.db.clearBatch( insertStatement );
+    if ( cause instanceof HopDatabaseBatchException ) {
+      HopDatabaseBatchException be = (HopDatabaseBatchException) cause;
+      if ( getTransformMeta().isDoingErrorHandling() ) {
+        data.db.commit( true );
+        data.batchBuffer.addAll( outputRows );
+        processBatchException( be.toString(), be.getUpdateCounts(), be.getExceptionsList() );
+      } else {
+        data.db.rollback();
+        throw new HopException( getBatchErrorMessage( data.tableName, be ), be );
+      }
+    } else {
+      data.db.rollback();
+      if ( getTransformMeta().isDoingErrorHandling() ) {
+        // Nothing of this batch was committed
+        for ( Object[] row : outputRows ) {
+          putError( data.outputRowMeta, row, 1L, cause.toString(), null, "TOP001" );
+        }
+      } else {
+        setErrors( getErrors() + 1 );
+        throw new HopException( "Error inserting rows into table [" + data.tableName + "]", cause );
+      }
+    }
+  }
+
+  private void finishAsyncBatches() throws HopException {
+    PreparedStatement insertStatement = data.preparedStatements.get( data.tableName );
+    if ( getErrors() == 0 && insertStatement != null ) {
+      flushAsyncBatch( insertStatement );
+    }
+    waitForAsyncBatch( insertStatement );
+    logBatchWriterMetrics();
+  }
+
+  private void logBatchWriterMetrics() {
+    if ( log.isBasic() ) {
+      logBasic( BaseMessages.getString( PKG, "TableOutput.Log.AsyncBatchWriterMetrics", data.asyncBatches,
+        TimeUnit.NANOSECONDS.toMillis( data.bindTime.get() ), TimeUnit.NANOSECONDS.toMillis( data.executeTime.get() ),
+        TimeUnit.NANOSECONDS.toMillis( data.waitTime ) ) );
+    }
+  }
+
+  private ExecutorService createBatchWriter( String name ) {
+    return Executors.newSingleThreadExecutor( runnable -> {
+      Thread thread = new Thread( runnable, name );
+      thread.setDaemon( true );
+      return thread;
+    } );
+  }
+
+  private String getLoadTableName() {
+    return data.stagingTableName != null ? data.stagingTableName : data.tableName;
+  }
+
+  private void openLoadConnections( int connections ) throws HopException {
+    String stagingTable = environmentSubstitute( meta.getStagingTable() );
+    data.stagingTableName = Utils.isEmpty( stagingTable ) ? null : stagingTable;
+    if ( data.stagingTableName != null ) {
+      // Start from an empty staging table, it is copied into the target table at the end
+      //
+      data.db.truncateTable( environmentSubstitute( meta.getSchemaName() ), data.stagingTableName );
+      data.db.commit();
+    }
+
+    data.loadConnections = new ArrayList<>( connections );
+    for ( int i = 0; i < connections; i++ ) {
+      TableOutputData.LoadConnection connection = new TableOutputData.LoadConnection();
+      connection.db = new Database( this, meta.getDatabaseMeta() );
+      connection.db.shareVariablesWith( this );
+      data.loadConnections.add( connection );
+
+      connection.db.connect( getPartitionId() );
+      connection.db.setCommit( data.commitSize );
+      connection.writer = createBatchWriter( getTransformName() + " writer " + ( i + 1 ) );
+    }
+    data.asyncInsertRows = new ArrayList<>();
+    data.asyncOutputRows = new ArrayList<>();
+    data.committedOutputRows = new ArrayList<>();
+    data.committedRowCount = 0;
+    data.passOnOutputRows = !getOutputRowSets().isEmpty();
+
+    if ( log.isBasic() ) {
+      logBasic( BaseMessages.getString( PKG, "TableOutput.Log.ParallelWriterConnected", connections ) );
+    }
+  }
+
+  /**
+   * Hands the batch filled so far over to the next connection, round-robin. A connection writes one batch at a time,
+   * so its previous batch is waited for first.
+   */
+  void flushParallelBatch() throws HopException {
+    if ( data.asyncInsertRows.isEmpty() ) {
+      return;
+    }
+
+    TableOutputData.LoadConnection connection = data.loadConnections.get( data.nextLoadConnection );
+    data.nextLoadConnection = ( data.nextLoadConnection + 1 ) % data.loadConnections.size();
+    waitForLoadConnection( connection );
+
+    if ( connection.insertStatement == null ) {
+      String sql =
+        data.db.getInsertStatement( environmentSubstitute( meta.getSchemaName() ), getLoadTableName(), data.insertRowMeta );
+      if ( log.isDetailed() ) {
+        logDetailed( "Prepared statement : " + sql );
+      }
+      connection.insertStatement = connection.db.prepareSql( sql );
+    }
+
+    final List<Object[]> insertRows = data.asyncInsertRows;
+    connection.pendingOutputRows = data.asyncOutputRows;
+    data.asyncInsertRows = new ArrayList<>( insertRows.size() );
+    data.asyncOutputRows = new ArrayList<>( insertRows.size() );
+
+    // The staging table is committed batch by batch, the target table only once all connections are done
+    //
+    final boolean commit = data.stagingTableName != null;
+    connection.pendingBatch =
+      connection.writer.submit( () -> writeBatch( connection.db, connection.insertStatement, insertRows, commit ) );
+    data.asyncBatches++;
+  }
+
+  void waitForLoadConnection( TableOutputData.LoadConnection connection ) throws HopException {
+    if ( connection.pendingBatch == null ) {
+      return;
+    }
+
+    List<Object[]> outputRows = connection.pendingOutputRows;
+    long start = System.nanoTime();
+    try {
+      connection.pendingBatch.get();
+    } catch ( InterruptedException e ) {
+      Thread.currentThread().interrupt();
+      throw new HopException( "Interrupted while waiting for the batch writer", e );
+    } catch ( ExecutionException e ) {
+      // All connections are rolled back when the transform is disposed
+      //
+      Throwable cause = e.getCause();
+      if ( cause instanceof HopDatabaseBatchException ) {
+        throw new HopException( getBatchErrorMessage( getLoadTableName(), (HopDatabaseBatchException) cause ), cause );
+      }
+      throw new HopException( "Error inserting rows into table [" + getLoadTableName() + "]", cause );
+    } finally {
+      data.waitTime += System.nanoTime() - start;
+      connection.pendingBatch = null;
+      connection.pendingOutputRows = null;
+    }
+
+    // The rows are only passed on once they are committed in the target table, at the end of the stream. Until then
+    // they are kept in memory, unless nothing reads them.
+    //
+    if ( data.passOnOutputRows ) {
+      data.committedOutputRows.addAll( outputRows );
+    }
+    data.committedRowCount += outputRows.size();
+  }
+
+  /**
+   * The single commit point of the parallel writer: once every connection wrote all of its batches, either all
+   * connections are committed, or the staging table is copied into the target table in one transaction. This only
+   * happens when the input ended normally: when the pipeline was stopped or failed, everything is rolled back.
+   */
+  void finishParallelLoad() throws HopException {
+    boolean completed = isInputCompleted();
+    if ( completed ) {
+      flushParallelBatch();
+    }
+    HopException error = null;
+    for ( TableOutputData.LoadConnection connection : data.loadConnections ) {
+      try {
+        waitForLoadConnection( connection );
+      } catch ( HopException e ) {
+        if ( error == null ) {
+          error = e;
+        }
+      }
+    }
+    if ( error != null ) {
+      throw error;
+    }
+    // Also when the pipeline was stopped while the last batches were written
+    //
+    if ( !completed || !isInputCompleted() ) {
+      rollbackParallelLoad();
+      return;
+    }
+
+    if ( data.stagingTableName == null ) {
+      for ( TableOutputData.LoadConnection connection : data.loadConnections ) {
+        connection.db.commit();
+      }
+      if ( log.isBasic() ) {
+        logBasic( BaseMessages.getString( PKG, "TableOutput.Log.ParallelWriterCommitted", data.loadConnections.size() ) );
+      }
+    } else {
+      if ( data.insertRowMeta != null ) {
+        data.db.execStatement( getStagingCopyStatement() );
+        if ( log.isBasic() ) {
+          logBasic( BaseMessages.getString( PKG, "TableOutput.Log.StagingTableCopied", data.stagingTableName, data.tableName ) );
+        }
+      }
+      // Together with the truncation of the target table, if any
+      //
+      data.db.commit();
+    }
+
+    for ( Object[] row : data.committedOutputRows ) {
+      putRow( data.outputRowMeta, row );
+    }
+    setLinesOutput( getLinesOutput() + data.committedRowCount );
+    data.committedOutputRows.clear();
+    data.committedRowCount = 0;
+    logBatchWriterMetrics();
+  }
+
+  private boolean isInputCompleted() {
+    return getErrors() == 0 && !isStopped() && getPipeline().getErrors() == 0;
+  }
+
+  /**
+   * Nothing of an incomplete load is published: the load connections are rolled back, and so is the truncation of the
+   * target table on the main connection.
+   */
+  private void rollbackParallelLoad() throws HopException {
+    for ( TableOutputData.LoadConnection connection : data.loadConnections ) {
+      connection.db.rollback();
+    }
+    data.db.rollback();
+    data.committedOutputRows.clear();
+    data.committedRowCount = 0;
+    if ( log.isBasic() ) {
+      logBasic( BaseMessages.getString( PKG, "TableOutput.Log.ParallelWriterRolledBack", data.loadConnections.size() ) );
+    }
+  }
+
+  String getStagingCopyStatement() {
+    DatabaseMeta databaseMeta = meta.getDatabaseMeta();
+    String schemaName = environmentSubstitute( meta.getSchemaName() );
+
+    StringBuilder fields = new StringBuilder();
+    for ( int i = 0; i < data.insertRowMeta.size(); i++ ) {
+      if ( i > 0 ) {
+        fields.append( ", " );
+      }
+      fields.append( databaseMeta.quoteField( data.insertRowMeta.getValueMeta( i ).getName() ) );
+    }
+
+    return "INSERT INTO " + databaseMeta.getQuotedSchemaTableCombination( schemaName, data.tableName )
+      + " (" + fields + ") SELECT " + fields
+      + " FROM " + databaseMeta.getQuotedSchemaTableCombination( schemaName, data.stagingTableName );
+  }
+
+  private void closeLoadConnections() {
+    for ( TableOutputData.LoadConnection connection : data.loadConnections ) {
+      if ( connection.pendingBatch != null ) {
+        try {
+          connection.pendingBatch.get();
+        } catch ( Exception e ) {
+          // The batch failed or we are stopping: the connection is rolled back below
+        }
+      }
+      if ( connection.writer != null ) {
+        connection.writer.shutdownNow();
+      }
+      if ( getErrors() > 0 ) {
+        try {
+          connection.db.rollback();
+        } catch ( HopDatabaseException e ) {
+          logError( "Unexpected error rolling back the database connection.", e );
+        }
+      }
+      if ( connection.insertStatement != null ) {
+        try {
+          connection.insertStatement.close();
+        } catch ( SQLException e ) {
+          logError( "Unexpected error closing the prepared statement.", e );
+        }
+      }
+      connection.db.disconnect();
+    }
+    data.loadConnections = null;
+  }
+
   private void processBatchException( String errorMessage, int[] updateCounts, List<Exception> exceptionsList ) throws HopException {
     // There was an error with the commit
     // We should put all the failing rows out there...
@@ -534,6 +942,42 @@ public class TableOutput extends BaseTransform<TableOutputMeta, TableOutputData>
           data.tableName = environmentSubstitute( meta.getTableName() );
         }
 
+        // The parallel writer loads a single table over several connections,
+        // failing rows can't be sent to the error hop as nothing is committed before the end of the stream
+        //
+        int connections = Const.toInt( environmentSubstitute( meta.getParallelConnections() ), 1 );
+        if ( connections > 1 ) {
+          if ( data.batchMode && !meta.isPartitioningEnabled() && !meta.isTableNameInField()
+            && !getTransformMeta().isDoingErrorHandling() ) {
+            // The other connections can't take part in the transaction of a shared connection,
+            // and they would wait for the lock of a truncation which is only committed at the end
+            //
+            if ( !Utils.isEmpty( data.db.getConnectionGroup() ) ) {
+              throw new HopException( BaseMessages.getString( PKG, "TableOutput.Exception.ParallelWriterSharedConnection" ) );
+            }
+            if ( meta.truncateTable() && Utils.isEmpty( environmentSubstitute( meta.getStagingTable() ) ) ) {
+              throw new HopException( BaseMessages.getString( PKG, "TableOutput.Exception.ParallelWriterTruncateNeedsStagingTable" ) );
+            }
+            openLoadConnections( connections );
+          } else if ( log.isBasic() ) {
+            logBasic( BaseMessages.getString( PKG, "TableOutput.Log.ParallelWriterDisabled" ) );
+          }
+        }
+
+        // The asynchronous writer hands complete batches of a single prepared statement over
+        //
+        data.asyncBatchMode =
+          meta.isAsyncBatchWriter() && data.batchMode && data.loadConnections == null
+            && !meta.isPartitioningEnabled() && !meta.isTableNameInField();
+        if ( meta.isAsyncBatchWriter() && !data.asyncBatchMode && log.isBasic() ) {
+          logBasic( BaseMessages.getString( PKG, "TableOutput.Log.AsyncBatchWriterDisabled" ) );
+        }
+        if ( data.asyncBatchMode ) {
+          data.asyncInsertRows = new ArrayList<>();
+          data.asyncOutputRows = new ArrayList<>();
+          data.batchWriter = createBatchWriter( getTransformName() + " batch writer" );
+        }
+
         return true;
       } catch ( HopException e ) {
         logError( "An error occurred intialising this transform: " + e.getMessage() );
@@ -561,6 +1005,11 @@ public class TableOutput extends BaseTransform<TableOutputMeta, TableOutputData>
 
     if ( data.db != null ) {
       try {
+        if ( data.loadConnections != null ) {
+          finishParallelLoad();
+        } else if ( data.asyncBatchMode ) {
+          finishAsyncBatches();
+        }
         for ( String schemaTable : data.preparedStatements.keySet() ) {
           // Get a commit counter per prepared statement to keep track of separate tables, etc.
           //
@@ -612,6 +1061,13 @@ public class TableOutput extends BaseTransform<TableOutputMeta, TableOutputData>
           }
         }
 
+        if ( data.batchWriter != null ) {
+          data.batchWriter.shutdownNow();
+          data.batchWriter = null;
+        }
+        if ( data.loadConnections != null ) {
+          closeLoadConnections();
+        }
         data.db.disconnect();
       }
       super.dispose();
@@ -36,6 +36,9 @@ import java.util.HashMap;
 import java.util.Hashtable;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Storage class for table output transform.
@@ -82,6 +85,53 @@ public class TableOutputData extends BaseTransformData implements ITransformData
 
   public int commitSize;
 
+  /**
+   * Asynchronous batch writer: the transform thread fills the next batch while the writer thread binds, executes and
+   * commits the previous one on the same connection. Only one batch is in flight at any time. The parallel writer fills
+   * its batches in the same lists.
+   */
+  public boolean asyncBatchMode;
+  public ExecutorService batchWriter;
+  public List<Object[]> asyncInsertRows;
+  public List<Object[]> asyncOutputRows;
+  public Future<?> pendingBatch;
+  public List<Object[]> pendingOutputRows;
+
+  /**
+   * Parallel writer: the batches are distributed round-robin over these connections. They are committed together at
+   * the end of the stream, unless a staging table is loaded, which is then copied in a single transaction.
+   */
+  public List<LoadConnection> loadConnections;
+  public int nextLoadConnection;
+  public String stagingTableName;
+
+  /**
+   * The rows written by the parallel writer, passed on after the final commit. They are only kept when there are next
+   * transforms, otherwise only counted.
+   */
+  public boolean passOnOutputRows;
+  public List<Object[]> committedOutputRows;
+  public long committedRowCount;
+
+  /**
+   * Batch writer metrics, in nanoseconds
+   */
+  public long asyncBatches;
+  public AtomicLong bindTime = new AtomicLong();
+  public AtomicLong executeTime = new AtomicLong();
+  public long waitTime;
+
+  /**
+   * A connection of the parallel writer, with its own prepared statement and writer thread
+   */
+  public static class LoadConnection {
+    public Database db;
+    public PreparedStatement insertStatement;
+    public ExecutorService writer;
+    public Future<?> pendingBatch;
+    public List<Object[]> pendingOutputRows;
+  }
+
   public TableOutputData() {
     super();
 
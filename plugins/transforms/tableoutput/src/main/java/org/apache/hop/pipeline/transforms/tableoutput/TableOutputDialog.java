@@ -85,6 +85,14 @@ public class TableOutputDialog extends BaseTransformDialog implements ITransform
   private Label wlBatch;
   private Button wBatch;
 
+  private Label wlAsyncBatch;
+  private Button wAsyncBatch;
+
+  private TextVar wParallelConnections;
+
+  private Label wlStagingTable;
+  private TextVar wStagingTable;
+
   private Button wUsePart;
 
   private Label wlPartField;
@@ -482,13 +490,72 @@ public class TableOutputDialog extends BaseTransformDialog implements ITransform
       }
     } );
 
+    // Asynchronous batch writer
+    wlAsyncBatch = new Label( wMainComp, SWT.RIGHT );
+    wlAsyncBatch.setText( BaseMessages.getString( PKG, "TableOutputDialog.AsyncBatch.Label" ) );
+    wlAsyncBatch.setToolTipText( BaseMessages.getString( PKG, "TableOutputDialog.AsyncBatch.Tooltip" ) );
+    props.setLook( wlAsyncBatch );
+    FormData fdlAsyncBatch = new FormData();
+    fdlAsyncBatch.left = new FormAttachment( 0, 0 );
+    fdlAsyncBatch.top = new FormAttachment( wBatch, margin );
+    fdlAsyncBatch.right = new FormAttachment( middle, -margin );
+    wlAsyncBatch.setLayoutData( fdlAsyncBatch );
+    wAsyncBatch = new Button( wMainComp, SWT.CHECK );
+    wAsyncBatch.setToolTipText( BaseMessages.getString( PKG, "TableOutputDialog.AsyncBatch.Tooltip" ) );
+    props.setLook( wAsyncBatch );
+    FormData fdAsyncBatch = new FormData();
+    fdAsyncBatch.left = new FormAttachment( middle, 0 );
+    fdAsyncBatch.top = new FormAttachment( wlAsyncBatch, 0, SWT.CENTER );
+    fdAsyncBatch.right = new FormAttachment( 100, 0 );
+    wAsyncBatch.setLayoutData( fdAsyncBatch );
+    wAsyncBatch.addSelectionListener( lsSelMod );
+
+    // Number of connections
+    Label wlParallelConnections = new Label( wMainComp, SWT.RIGHT );
+    wlParallelConnections.setText( BaseMessages.getString( PKG, "TableOutputDialog.ParallelConnections.Label" ) );
+    wlParallelConnections.setToolTipText( BaseMessages.getString( PKG, "TableOutputDialog.ParallelConnections.Tooltip" ) );
+    props.setLook( wlParallelConnections );
+    FormData fdlParallelConnections = new FormData();
+    fdlParallelConnections.left = new FormAttachment( 0, 0 );
+    fdlParallelConnections.top = new FormAttachment( wAsyncBatch, margin );
+    fdlParallelConnections.right = new FormAttachment( middle, -margin );
+    wlParallelConnections.setLayoutData( fdlParallelConnections );
+    wParallelConnections = new TextVar( pipelineMeta, wMainComp, SWT.SINGLE | SWT.LEFT | SWT.BORDER );
+    wParallelConnections.setToolTipText( BaseMessages.getString( PKG, "TableOutputDialog.ParallelConnections.Tooltip" ) );
+    props.setLook( wParallelConnections );
+    FormData fdParallelConnections = new FormData();
+    fdParallelConnections.left = new FormAttachment( middle, 0 );
+    fdParallelConnections.top = new FormAttachment( wlParallelConnections, 0, SWT.CENTER );
+    fdParallelConnections.right = new FormAttachment( 100, 0 );
+    wParallelConnections.setLayoutData( fdParallelConnections );
+    wParallelConnections.addModifyListener( e -> setFlags() );
+
+    // Staging table
+    wlStagingTable = new Label( wMainComp, SWT.RIGHT );
+    wlStagingTable.setText( BaseMessages.getString( PKG, "TableOutputDialog.StagingTable.Label" ) );
+    wlStagingTable.setToolTipText( BaseMessages.getString( PKG, "TableOutputDialog.StagingTable.Tooltip" ) );
+    props.setLook( wlStagingTable );
+    FormData fdlStagingTable = new FormData();
+    fdlStagingTable.left = new FormAttachment( 0, 0 );
+    fdlStagingTable.top = new FormAttachment( wParallelConnections, margin );
+    fdlStagingTable.right = new FormAttachment( middle, -margin );
+    wlStagingTable.setLayoutData( fdlStagingTable );
+    wStagingTable = new TextVar( pipelineMeta, wMainComp, SWT.SINGLE | SWT.LEFT | SWT.BORDER );
+    wStagingTable.setToolTipText( BaseMessages.getString( PKG, "TableOutputDialog.StagingTable.Tooltip" ) );
+    props.setLook( wStagingTable );
+    FormData fdStagingTable = new FormData();
+    fdStagingTable.left = new FormAttachment( middle, 0 );
+    fdStagingTable.top = new FormAttachment( wlStagingTable, 0, SWT.CENTER );
+    fdStagingTable.right = new FormAttachment( 100, 0 );
+    wStagingTable.setLayoutData( fdStagingTable );
+
     // NameInField
     Label wlNameInField = new Label( wMainComp, SWT.RIGHT );
     wlNameInField.setText( BaseMessages.getString( PKG, "TableOutputDialog.NameInField.Label" ) );
     props.setLook( wlNameInField );
     FormData fdlNameInField = new FormData();
     fdlNameInField.left = new FormAttachment( 0, 0 );
-    fdlNameInField.top = new FormAttachment( wBatch, margin * 5 );
+    fdlNameInField.top = new FormAttachment( wStagingTable, margin * 5 );
     fdlNameInField.right = new FormAttachment( middle, -margin );
     wlNameInField.setLayoutData( fdlNameInField );
     wNameInField = new Button( wMainComp, SWT.CHECK );
@@ -1118,6 +1185,17 @@ public class TableOutputDialog extends BaseTransformDialog implements ITransform
     wlBatch.setEnabled( enableBatch );
     wBatch.setEnabled( enableBatch );
 
+    // The asynchronous writer hands complete batches over, it needs a single table and batch updates
+    boolean enableAsyncBatch = useBatch && !usePartitioning && !isTableNameInField;
+    wlAsyncBatch.setEnabled( enableAsyncBatch );
+    wAsyncBatch.setEnabled( enableAsyncBatch );
+
+    // A staging table is only used by the parallel writer
+    boolean enableStagingTable = Const.toInt( pipelineMeta.environmentSubstitute( wParallelConnections.getText() ), 1 ) > 1
+      || wParallelConnections.getText().contains( "$" );
+    wlStagingTable.setEnabled( enableStagingTable );
+    wStagingTable.setEnabled( enableStagingTable );
+
     boolean specifyFields = wSpecifyFields.getSelection();
     wFields.setEnabled( specifyFields );
     wGetFields.setEnabled( specifyFields );
@@ -1163,6 +1241,9 @@ public class TableOutputDialog extends BaseTransformDialog implements ITransform
     wTruncate.setSelection( input.truncateTable() );
     wIgnore.setSelection( input.ignoreErrors() );
     wBatch.setSelection( input.useBatchUpdate() );
+    wAsyncBatch.setSelection( input.isAsyncBatchWriter() );
+    wParallelConnections.setText( Const.NVL( input.getParallelConnections(), "1" ) );
+    wStagingTable.setText( Const.NVL( input.getStagingTable(), "" ) );
 
     wCommit.setText( input.getCommitSize() );
 
@@ -1216,6 +1297,9 @@ public class TableOutputDialog extends BaseTransformDialog implements ITransform
     info.setTruncateTable( wTruncate.getSelection() );
     info.setIgnoreErrors( wIgnore.getSelection() );
     info.setUseBatchUpdate( wBatch.getSelection() );
+    info.setAsyncBatchWriter( wAsyncBatch.getSelection() );
+    info.setParallelConnections( wParallelConnections.getText() );
+    info.setStagingTable( wStagingTable.getText() );
     info.setPartitioningEnabled( wUsePart.getSelection() );
     info.setPartitioningField( wPartField.getText() );
     info.setPartitioningDaily( wPartDaily.getSelection() );
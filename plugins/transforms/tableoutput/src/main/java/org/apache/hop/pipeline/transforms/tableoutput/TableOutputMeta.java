@@ -69,6 +69,9 @@ public class TableOutputMeta extends BaseTransformMeta implements ITransformMeta
   private boolean truncateTable;
   private boolean ignoreErrors;
   private boolean useBatchUpdate;
+  private boolean asyncBatchWriter;
+  private String parallelConnections;
+  private String stagingTable;
 
   private boolean partitioningEnabled;
   private String partitioningField;
@@ -381,6 +384,49 @@ public class TableOutputMeta extends BaseTransformMeta implements ITransformMeta
     return useBatchUpdate;
   }
 
+  /**
+   * @return true if batches are executed and committed by a background writer while the next batch is being filled
+   */
+  public boolean isAsyncBatchWriter() {
+    return asyncBatchWriter;
+  }
+
+  /**
+   * @param asyncBatchWriter The asyncBatchWriter flag to set.
+   */
+  public void setAsyncBatchWriter( boolean asyncBatchWriter ) {
+    this.asyncBatchWriter = asyncBatchWriter;
+  }
+
+  /**
+   * @return the number of connections the rows are loaded over, more than one enables the parallel writer
+   */
+  public String getParallelConnections() {
+    return parallelConnections;
+  }
+
+  /**
+   * @param parallelConnections The number of connections to set.
+   */
+  public void setParallelConnections( String parallelConnections ) {
+    this.parallelConnections = parallelConnections;
+  }
+
+  /**
+   * @return the staging table the parallel writer loads, copied into the target table in a single transaction at the
+   * end of the stream. Empty to load the target table directly.
+   */
+  public String getStagingTable() {
+    return stagingTable;
+  }
+
+  /**
+   * @param stagingTable The stagingTable to set.
+   */
+  public void setStagingTable( String stagingTable ) {
+    this.stagingTable = stagingTable;
+  }
+
   private void readData( Node transformNode, IHopMetadataProvider metadataProvider ) throws HopXmlException {
     try {
       String con = XmlHandler.getTagValue( transformNode, "connection" );
@@ -391,6 +437,9 @@ public class TableOutputMeta extends BaseTransformMeta implements ITransformMeta
       truncateTable = "Y".equalsIgnoreCase( XmlHandler.getTagValue( transformNode, "truncate" ) );
       ignoreErrors = "Y".equalsIgnoreCase( XmlHandler.getTagValue( transformNode, "ignore_errors" ) );
       useBatchUpdate = "Y".equalsIgnoreCase( XmlHandler.getTagValue( transformNode, "use_batch" ) );
+      asyncBatchWriter = "Y".equalsIgnoreCase( XmlHandler.getTagValue( transformNode, "async_batch" ) );
+      parallelConnections = XmlHandler.getTagValue( transformNode, "parallel_connections" );
+      stagingTable = XmlHandler.getTagValue( transformNode, "staging_table" );
 
       // If not present it will be false to be compatible with pre-v3.2
       specifyFields = "Y".equalsIgnoreCase( XmlHandler.getTagValue( transformNode, "specify_fields" ) );
@@ -427,6 +476,8 @@ public class TableOutputMeta extends BaseTransformMeta implements ITransformMeta
     databaseMeta = null;
     tableName = "";
     commitSize = "1000";
+    parallelConnections = "1";
+    stagingTable = "";
 
     partitioningEnabled = false;
     partitioningMonthly = true;
@@ -449,6 +500,9 @@ public class TableOutputMeta extends BaseTransformMeta implements ITransformMeta
     retval.append( "    " + XmlHandler.addTagValue( "truncate", truncateTable ) );
     retval.append( "    " + XmlHandler.addTagValue( "ignore_errors", ignoreErrors ) );
     retval.append( "    " + XmlHandler.addTagValue( "use_batch", useBatchUpdate ) );
+    retval.append( "    " + XmlHandler.addTagValue( "async_batch", asyncBatchWriter ) );
+    retval.append( "    " + XmlHandler.addTagValue( "parallel_connections", parallelConnections ) );
+    retval.append( "    " + XmlHandler.addTagValue( "staging_table", stagingTable ) );
     retval.append( "    " + XmlHandler.addTagValue( "specify_fields", specifyFields ) );
 
     retval.append( "    " + XmlHandler.addTagValue( "partitioning_enabled", partitioningEnabled ) );
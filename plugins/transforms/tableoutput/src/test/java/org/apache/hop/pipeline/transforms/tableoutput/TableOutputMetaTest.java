@@ -130,6 +130,9 @@ public class TableOutputMetaTest {
       + "    <truncate>Y</truncate>\n"
       + "    <ignore_errors>N</ignore_errors>\n"
       + "    <use_batch>Y</use_batch>\n"
+      + "    <async_batch>N</async_batch>\n"
+      + "    <parallel_connections/>\n"
+      + "    <staging_table/>\n"
       + "    <specify_fields>Y</specify_fields>\n"
       + "    <partitioning_enabled>N</partitioning_enabled>\n"
       + "    <partitioning_field/>\n"
@@ -26,23 +26,44 @@ import org.apache.hop.core.database.Database;
 import org.apache.hop.core.database.IDatabase;
 import org.apache.hop.core.database.DatabaseMeta;
 import org.apache.hop.core.exception.HopException;
+import org.apache.hop.core.logging.LogLevel;
 import org.apache.hop.core.row.IRowMeta;
+import org.apache.hop.core.row.RowMeta;
+import org.apache.hop.core.row.value.ValueMetaInteger;
+import org.apache.hop.core.row.value.ValueMetaString;
 import org.apache.hop.pipeline.Pipeline;
 import org.apache.hop.pipeline.PipelineMeta;
+import org.apache.hop.pipeline.engine.IPipelineEngine;
 import org.apache.hop.pipeline.transform.TransformMeta;
 import org.apache.hop.pipeline.transform.TransformPartitioningMeta;
 import org.junit.Before;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
 
+import java.sql.BatchUpdateException;
 import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
 import java.util.Map;
+import java.util.concurrent.Executors;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.anyBoolean;
+import static org.mockito.Matchers.anyInt;
 import static org.mockito.Matchers.anyString;
 import static org.mockito.Mockito.any;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doNothing;
 import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.eq;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
@@ -91,7 +112,7 @@ public class TableOutputTest {
 
   private void setupTableOutputSpy() throws Exception {
 
-    tableOutput = new TableOutput( transformMeta, tableOutputMeta, tableOutputData, 1, pipelineMeta, mock( Pipeline.class ) );
+    tableOutput = new TableOutput( transformMeta, tableOutputMeta, tableOutputData, 1, pipelineMeta, createPipeline() );
     tableOutputSpy = spy( tableOutput );
     doReturn( transformMeta ).when( tableOutputSpy ).getTransformMeta();
     doReturn( false ).when( tableOutputSpy ).isRowLevel();
@@ -183,6 +204,239 @@ public class TableOutputTest {
     verify( tableOutputSpy, never() ).truncateTable();
   }
 
+  @Test
+  public void testProcessRow_passesOnRowsWrittenBeforeError() throws Exception {
+    Object[] row1 = new Object[] { 1L };
+    Object[] row2 = new Object[] { 2L };
+    Object[] row3 = new Object[] { 3L };
+    tableOutputSpy.first = false;
+    doReturn( new Object[][] { row1, row2, row3 } ).when( tableOutputSpy ).getRows( anyInt() );
+    doReturn( row1 ).when( tableOutputSpy ).writeToTable( any( IRowMeta.class ), eq( row1 ) );
+    doThrow( new HopException( "failed" ) ).when( tableOutputSpy ).writeToTable( any( IRowMeta.class ), eq( row2 ) );
+    doNothing().when( tableOutputSpy ).putRows( any( IRowMeta.class ), any( Object[][].class ), anyInt() );
+    doNothing().when( tableOutputSpy ).stopAll();
+
+    assertFalse( tableOutputSpy.processRow() );
+
+    // the row written before the failing one is passed on, the rest of the batch isn't written
+    ArgumentCaptor<Object[][]> rows = ArgumentCaptor.forClass( Object[][].class );
+    verify( tableOutputSpy ).putRows( any( IRowMeta.class ), rows.capture(), eq( 1 ) );
+    assertSame( row1, rows.getValue()[ 0 ] );
+    verify( tableOutputSpy, never() ).writeToTable( any( IRowMeta.class ), eq( row3 ) );
+  }
+
+  private TableOutput createAsyncTableOutput( PreparedStatement insertStatement ) throws Exception {
+    TableOutputData data = new TableOutputData();
+    data.db = db;
+    data.tableName = "sas";
+    data.batchMode = true;
+    data.commitSize = 2;
+    data.insertRowMeta = new RowMeta();
+    data.outputRowMeta = new RowMeta();
+    data.preparedStatements.put( "sas", insertStatement );
+    data.asyncBatchMode = true;
+    data.asyncInsertRows = new ArrayList<>();
+    data.asyncOutputRows = new ArrayList<>();
+    data.batchWriter = Executors.newSingleThreadExecutor();
+    doReturn( true ).when( db ).getUseBatchInsert( true );
+
+    TableOutput transform =
+      spy( new TableOutput( transformMeta, tableOutputMeta, data, 1, pipelineMeta, mock( Pipeline.class ) ) );
+    doReturn( transformMeta ).when( transform ).getTransformMeta();
+    doReturn( false ).when( transform ).isRowLevel();
+    doNothing().when( transform ).putRow( any( IRowMeta.class ), any( Object[].class ) );
+    return transform;
+  }
+
+  @Test
+  public void testAsyncBatchWriter_writesBatchesOnTheWriterThread() throws Exception {
+    PreparedStatement insertStatement = mock( PreparedStatement.class );
+    TableOutput transform = createAsyncTableOutput( insertStatement );
+    TableOutputData data = transform.getData();
+
+    for ( long i = 0; i < 5; i++ ) {
+      // rows are passed on only once their batch is committed
+      assertNull( transform.writeToTable( mock( IRowMeta.class ), new Object[] { i } ) );
+    }
+    assertEquals( 1, data.asyncInsertRows.size() );
+
+    transform.flushAsyncBatch( insertStatement );
+    transform.waitForAsyncBatch( insertStatement );
+
+    assertEquals( 3, data.asyncBatches );
+    verify( db, times( 5 ) ).insertRow( insertStatement, true, false );
+    verify( insertStatement, times( 3 ) ).executeBatch();
+    verify( db, times( 3 ) ).commit();
+    verify( transform, times( 5 ) ).putRow( any( IRowMeta.class ), any( Object[].class ) );
+    data.batchWriter.shutdown();
+  }
+
+  @Test
+  public void testAsyncBatchWriter_rollsBackFailedBatch() throws Exception {
+    PreparedStatement insertStatement = mock( PreparedStatement.class );
+    doThrow( new BatchUpdateException( "failed", new int[] { 1, -3 } ) ).when( insertStatement ).executeBatch();
+    TableOutput transform = createAsyncTableOutput( insertStatement );
+
+    transform.writeToTable( mock( IRowMeta.class ), new Object[] { 1L } );
+    transform.writeToTable( mock( IRowMeta.class ), new Object[] { 2L } );
+    try {
+      transform.waitForAsyncBatch( insertStatement );
+      fail( "The batch error is expected to stop the transform" );
+    } catch ( HopException e ) {
+      // expected
+    }
+
+    verify( db ).clearBatch( insertStatement );
+    verify( db ).rollback();
+    verify( db, never() ).commit();
+    verify( transform, never() ).putRow( any( IRowMeta.class ), any( Object[].class ) );
+    transform.getData().batchWriter.shutdown();
+  }
+
+  @Test
+  public void testParallelWriter_distributesBatchesWithoutCommitting() throws Exception {
+    TableOutputData data = createParallelWriterData( true );
+    TableOutput transform = createParallelWriter( data );
+
+    // batches of 2 rows, round-robin: 0-1 and 4 on the first connection, 2-3 on the second one
+    TableOutputData.LoadConnection first = data.loadConnections.get( 0 );
+    TableOutputData.LoadConnection second = data.loadConnections.get( 1 );
+    verify( first.db, times( 3 ) ).insertRow( first.insertStatement, true, false );
+    verify( first.insertStatement, times( 2 ) ).executeBatch();
+    verify( second.db, times( 2 ) ).insertRow( second.insertStatement, true, false );
+    verify( second.insertStatement, times( 1 ) ).executeBatch();
+
+    // nothing is committed before the end of the stream, and the main connection is not used for inserts
+    verify( first.db, never() ).commit();
+    verify( second.db, never() ).commit();
+    verify( db, never() ).insertRow( any( PreparedStatement.class ), anyBoolean(), anyBoolean() );
+    verify( transform, never() ).putRow( any( IRowMeta.class ), any( Object[].class ) );
+
+    // the rows are passed on once all connections are committed
+    transform.finishParallelLoad();
+    InOrder inOrder = inOrder( first.db, second.db, transform );
+    inOrder.verify( first.db ).commit();
+    inOrder.verify( second.db ).commit();
+    inOrder.verify( transform, times( 5 ) ).putRow( any( IRowMeta.class ), any( Object[].class ) );
+    assertEquals( 5, transform.getLinesOutput() );
+  }
+
+  @Test
+  public void testParallelWriter_keepsNoRowsWithoutNextTransforms() throws Exception {
+    TableOutputData data = createParallelWriterData( false );
+    TableOutput transform = createParallelWriter( data );
+    assertTrue( data.committedOutputRows.isEmpty() );
+
+    transform.finishParallelLoad();
+    verify( data.loadConnections.get( 0 ).db ).commit();
+    verify( data.loadConnections.get( 1 ).db ).commit();
+    verify( transform, never() ).putRow( any( IRowMeta.class ), any( Object[].class ) );
+    assertEquals( 5, transform.getLinesOutput() );
+  }
+
+  @Test
+  public void testParallelWriter_rollsBackWhenStopped() throws Exception {
+    TableOutputData data = createParallelWriterData( true );
+    TableOutput transform = createParallelWriter( data );
+    doReturn( true ).when( transform ).isStopped();
+
+    transform.finishParallelLoad();
+    for ( TableOutputData.LoadConnection connection : data.loadConnections ) {
+      verify( connection.db, never() ).commit();
+      verify( connection.db ).rollback();
+    }
+    verify( db, never() ).commit();
+    verify( db ).rollback();
+    verify( transform, never() ).putRow( any( IRowMeta.class ), any( Object[].class ) );
+    assertEquals( 0, transform.getLinesOutput() );
+  }
+
+  @Test
+  public void testParallelWriter_rollsBackWhenThePipelineFailed() throws Exception {
+    TableOutputData data = createParallelWriterData( true );
+    data.stagingTableName = "staging";
+    TableOutput transform = createParallelWriter( data );
+    IPipelineEngine<PipelineMeta> pipeline = transform.getPipeline();
+    doReturn( 1 ).when( pipeline ).getErrors();
+
+    transform.finishParallelLoad();
+    for ( TableOutputData.LoadConnection connection : data.loadConnections ) {
+      verify( connection.db ).rollback();
+    }
+    verify( db, never() ).execStatement( anyString() );
+    verify( db, never() ).commit();
+    verify( db ).rollback();
+    verify( transform, never() ).putRow( any( IRowMeta.class ), any( Object[].class ) );
+  }
+
+  private TableOutputData createParallelWriterData( boolean passOnOutputRows ) throws Exception {
+    TableOutputData data = new TableOutputData();
+    data.db = db;
+    data.tableName = "sas";
+    data.batchMode = true;
+    data.commitSize = 2;
+    data.insertRowMeta = new RowMeta();
+    data.outputRowMeta = new RowMeta();
+    data.asyncInsertRows = new ArrayList<>();
+    data.asyncOutputRows = new ArrayList<>();
+    data.committedOutputRows = new ArrayList<>();
+    data.passOnOutputRows = passOnOutputRows;
+    data.loadConnections = new ArrayList<>();
+    for ( int i = 0; i < 2; i++ ) {
+      TableOutputData.LoadConnection connection = new TableOutputData.LoadConnection();
+      connection.db = mock( Database.class );
+      connection.insertStatement = mock( PreparedStatement.class );
+      connection.writer = Executors.newSingleThreadExecutor();
+      doReturn( true ).when( connection.db ).getUseBatchInsert( true );
+      data.loadConnections.add( connection );
+    }
+    return data;
+  }
+
+  private Pipeline createPipeline() {
+    Pipeline pipeline = mock( Pipeline.class );
+    doReturn( LogLevel.NOTHING ).when( pipeline ).getLogLevel();
+    return pipeline;
+  }
+
+  /**
+   * Writes 5 rows in batches of 2 over the 2 connections of the data and waits for all of them.
+   */
+  private TableOutput createParallelWriter( TableOutputData data ) throws Exception {
+    TableOutput transform =
+      spy( new TableOutput( transformMeta, tableOutputMeta, data, 1, pipelineMeta, createPipeline() ) );
+    doReturn( false ).when( transform ).isRowLevel();
+    doNothing().when( transform ).putRow( any( IRowMeta.class ), any( Object[].class ) );
+
+    for ( long i = 0; i < 5; i++ ) {
+      assertNull( transform.writeToTable( mock( IRowMeta.class ), new Object[] { i } ) );
+    }
+    transform.flushParallelBatch();
+    for ( TableOutputData.LoadConnection connection : data.loadConnections ) {
+      transform.waitForLoadConnection( connection );
+      connection.writer.shutdown();
+    }
+    assertEquals( data.passOnOutputRows ? 5 : 0, data.committedOutputRows.size() );
+    return transform;
+  }
+
+  @Test
+  public void testParallelWriter_stagingCopyStatement() throws Exception {
+    TableOutputData data = new TableOutputData();
+    data.tableName = "target";
+    data.stagingTableName = "staging";
+    data.insertRowMeta = new RowMeta();
+    data.insertRowMeta.addValueMeta( new ValueMetaInteger( "id" ) );
+    data.insertRowMeta.addValueMeta( new ValueMetaString( "name" ) );
+    doReturn( "s" ).when( tableOutputMeta ).getSchemaName();
+    doAnswer( invocation -> invocation.getArguments()[ 0 ] ).when( databaseMeta ).quoteField( anyString() );
+    doAnswer( invocation -> invocation.getArguments()[ 0 ] + "." + invocation.getArguments()[ 1 ] )
+      .when( databaseMeta ).getQuotedSchemaTableCombination( anyString(), anyString() );
+
+    TableOutput transform = new TableOutput( transformMeta, tableOutputMeta, data, 1, pipelineMeta, mock( Pipeline.class ) );
+    assertEquals( "INSERT INTO s.target (id, name) SELECT id, name FROM s.staging", transform.getStagingCopyStatement() );
+  }
+
   @Test
   public void testInit_unsupportedConnection() {
 
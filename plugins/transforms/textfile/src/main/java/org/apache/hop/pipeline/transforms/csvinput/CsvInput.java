@@ -23,13 +23,21 @@
 package org.apache.hop.pipeline.transforms.csvinput;
 
 import org.apache.commons.io.ByteOrderMark;
+import org.apache.commons.io.IOUtils;
 import org.apache.commons.io.input.BOMInputStream;
 import org.apache.commons.vfs2.FileObject;
 import org.apache.commons.vfs2.provider.local.LocalFile;
+import org.apache.hop.core.Const;
 import org.apache.hop.core.ResultFile;
+import org.apache.hop.core.compress.CompressedBlockIndex;
+import org.apache.hop.core.compress.CompressionInputStream;
+import org.apache.hop.core.compress.CompressionProviderFactory;
+import org.apache.hop.core.compress.ISplittableCompressionProvider;
+import org.apache.hop.core.compress.ReadAheadInputStream;
 import org.apache.hop.core.exception.HopConversionException;
 import org.apache.hop.core.exception.HopException;
 import org.apache.hop.core.exception.HopFileException;
+import org.apache.hop.core.exception.HopTransformException;
 import org.apache.hop.core.exception.HopValueException;
 import org.apache.hop.core.file.EncodingType;
 import org.apache.hop.core.row.IValueMeta;
@@ -49,7 +57,9 @@ import org.apache.hop.ui.pipeline.transform.common.TextFileLineUtil;
 
 import java.io.*;
 import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 /**
@@ -92,6 +102,9 @@ public class CsvInput
       // The conversion logic for when the lazy conversion is turned of is simple:
       // Pretend it's a lazy conversion object anyway and get the native type during conversion.
       //
+      data.outputBatch = new Object[ Const.ROWS_IN_BATCH ][];
+      data.outputBatchSize = 0;
+
       data.convertRowMeta = data.outputRowMeta.clone();
       for ( IValueMeta valueMeta : data.convertRowMeta.getValueMetaList() ) {
         valueMeta.setStorageType( IValueMeta.STORAGE_TYPE_BINARY_STRING );
@@ -115,8 +128,9 @@ public class CsvInput
       // Now handle the parallel reading aspect: determine total of all the file sizes
       // Then skip to the appropriate file and location in the file to start reading...
       // Also skip to right after the first newline
+      // Compressed files are split one by one, in ranges of compressed blocks, when they are opened.
       //
-      if ( data.parallel ) {
+      if ( data.parallel && data.compressionProvider == null ) {
         prepareToRunInParallel();
       }
 
@@ -131,31 +145,50 @@ public class CsvInput
     // If we are running in parallel, make sure we don't read too much in this transform copy...
     //
     if ( data.parallel ) {
-      if ( data.totalBytesRead >= data.blockToRead ) {
-        setOutputDone(); // stop reading
-        return false;
+      while ( data.totalBytesRead >= data.blockToRead ) {
+        // Compressed files are split one by one: carry on with the blocks of this copy in the next file
+        //
+        if ( data.compressionProvider == null || !openNextFile() ) {
+          setOutputDone(); // stop reading
+          return false;
+        }
       }
     }
 
     try {
-      Object[] outputRowData = readOneRow( false, false ); // get row, set busy!
-      // no more input to be expected...
-      if ( outputRowData == null ) {
-        if ( openNextFile() ) {
-          return true; // try again on the next loop...
-        } else {
-          setOutputDone(); // last file, end here
-          return false;
+      // Read a batch of rows and hand them over to the next transforms in one go
+      //
+      while ( data.outputBatchSize < data.outputBatch.length ) {
+        Object[] outputRowData = readOneRow( false, false ); // get row, set busy!
+        // no more input to be expected...
+        if ( outputRowData == null ) {
+          flushOutputBatch();
+          if ( openNextFile() ) {
+            return true; // try again on the next loop...
+          } else {
+            setOutputDone(); // last file, end here
+            return false;
+          }
         }
-      } else {
-        putRow( data.outputRowMeta, outputRowData ); // copy row to possible alternate rowset(s).
+
+        data.outputBatch[ data.outputBatchSize++ ] = outputRowData;
         if ( checkFeedback( getLinesInput() ) ) {
           if ( log.isBasic() ) {
             logBasic( BaseMessages.getString( PKG, "CsvInput.Log.LineNumber", Long.toString( getLinesInput() ) ) );
           }
         }
+
+        // Don't read past the block of this transform copy when running in parallel
+        //
+        if ( data.parallel && data.totalBytesRead >= data.blockToRead ) {
+          break;
+        }
       }
+      flushOutputBatch(); // copy rows to possible alternate rowset(s).
     } catch ( HopConversionException e ) {
+      // Keep the rows in order: send the rows read before the faulty one first
+      //
+      flushOutputBatch();
       if ( getTransformMeta().isDoingErrorHandling() ) {
         StringBuilder errorDescriptions = new StringBuilder( 100 );
         StringBuilder errorFields = new StringBuilder( 50 );
@@ -176,11 +209,29 @@ public class CsvInput
         //
         throw new HopException( e.getMessage(), e.getCauses().get( 0 ) );
       }
+    } catch ( HopException e ) {
+      // Read errors (I/O, next file) stop the transform: pass on the rows read so far first
+      //
+      flushOutputBatch();
+      throw e;
     }
 
     return true;
   }
 
+  /**
+   * Hands over the rows collected in the output batch to the next transform(s).
+   *
+   * @throws HopTransformException
+   */
+  private void flushOutputBatch() throws HopTransformException {
+    if ( data.outputBatchSize > 0 ) {
+      putRows( data.outputRowMeta, data.outputBatch, data.outputBatchSize );
+      Arrays.fill( data.outputBatch, 0, data.outputBatchSize, null );
+      data.outputBatchSize = 0;
+    }
+  }
+
   public void prepareToRunInParallel() throws HopException {
     try {
       // At this point it doesn't matter if we have 1 or more files.
@@ -303,6 +354,14 @@ public class CsvInput
       logError( "Error closing file input stream", e );
     }
 
+    try {
+      if ( data.channel != null ) {
+        data.channel.close();
+      }
+    } catch ( Exception e ) {
+      logError( "Error closing decompressed channel", e );
+    }
+
     super.dispose();
   }
 
@@ -333,40 +392,43 @@ public class CsvInput
 
       String vfsFilename = HopVfs.getFilename( fileObject );
 
-      int bomSize = getBOMSize( vfsFilename );
-
-      data.fis = new FileInputStream( vfsFilename );
-      if ( 0 != bomSize ) {
-        data.fis.skip( bomSize );
-      }
+      if ( data.compressionProvider != null ) {
+        if ( !openCompressedFile( vfsFilename ) ) {
+          // None of the blocks of this file are for this transform copy
+          //
+          data.filenr++;
+          return openNextFile();
+        }
+      } else {
+        int bomSize = getBOMSize( vfsFilename );
 
-      data.fc = data.fis.getChannel();
-      data.bb = ByteBuffer.allocateDirect( data.preferredBufferSize );
+        data.fis = new FileInputStream( vfsFilename );
+        if ( 0 != bomSize ) {
+          data.fis.skip( bomSize );
+        }
 
-      // If we are running in parallel and we need to skip bytes in the first file, let's do so here.
-      //
-      if ( data.parallel ) {
-        if ( data.bytesToSkipInFirstFile > 0 ) {
-          data.fc.position( data.bytesToSkipInFirstFile );
+        data.fc = data.fis.getChannel();
+        data.channel = data.fc;
 
-          // evaluate whether there is a need to skip a row
-          if ( needToSkipRow() ) {
-            // PDI-16589 - when reading in parallel, the previous code would introduce additional rows and / or invalid data in the output.
-            // in parallel mode we don't support new lines inside field data so it's safe to fast forward until we find a new line.
-            // when a newline is found we need to check for an additional new line character, while in unix systems it's just a single '\n',
-            // on windows systems, it's a sequence of '\r' and '\n'. finally we set the start of the buffer to the end buffer position.
-            while ( !data.newLineFound() ) {
-              data.moveEndBufferPointer();
-            }
+        if ( data.memoryMapped ) {
+          openMappedFile( bomSize );
+        } else {
+          data.bb = ByteBuffer.allocateDirect( data.preferredBufferSize );
+        }
 
-            data.moveEndBufferPointer();
+        // If we are running in parallel and we need to skip bytes in the first file, let's do so here.
+        //
+        if ( data.parallel && !data.memoryMapped ) {
+          if ( data.bytesToSkipInFirstFile > 0 ) {
+            data.fc.position( data.bytesToSkipInFirstFile );
 
-            if ( data.newLineFound() ) {
-              data.moveEndBufferPointer();
+            // evaluate whether there is a need to skip a row
+            if ( needToSkipRow() ) {
+              skipPartialLine();
             }
-          }
 
-          data.setStartBuffer( data.getEndBuffer() );
+            data.setStartBuffer( data.getEndBuffer() );
+          }
         }
       }
 
@@ -412,6 +474,119 @@ public class CsvInput
     }
   }
 
+  /**
+   * Start reading the current file through its compression provider, decompressing ahead in a separate thread.<br>
+   * When running in parallel, a file made of independently compressed blocks is split in ranges of blocks, one range
+   * per transform copy. Every copy decompresses its own range. Other compressed files are read entirely by one of the
+   * copies, in turn.
+   *
+   * @return false if this transform copy has nothing to read in the file
+   */
+  private boolean openCompressedFile( String vfsFilename ) throws IOException, HopException {
+    data.fis = new FileInputStream( vfsFilename );
+    data.fc = data.fis.getChannel();
+    data.clearBuffer();
+
+    InputStream in;
+    if ( !data.parallel ) {
+      in = openCompressedStream();
+    } else {
+      CompressedBlockIndex index = null;
+      if ( data.compressionProvider instanceof ISplittableCompressionProvider ) {
+        index = ( (ISplittableCompressionProvider) data.compressionProvider ).createBlockIndex( data.fc );
+      }
+      data.totalBytesRead = 0L;
+
+      if ( index == null ) {
+        if ( data.filenr % data.totalNumberOfTransforms != data.transformNumber ) {
+          data.closeFile();
+          return false;
+        }
+        logBasic( BaseMessages.getString( PKG, "CsvInput.Log.CompressedFileNotSplittable", data.filenames[ data.filenr ] ) );
+        in = openCompressedStream();
+        data.bytesToSkipInFirstFile = 0L;
+        data.blockToRead = Long.MAX_VALUE;
+      } else {
+        int firstBlock = (int) ( (long) index.size() * data.transformNumber / data.totalNumberOfTransforms );
+        int lastBlock = (int) ( (long) index.size() * ( data.transformNumber + 1 ) / data.totalNumberOfTransforms );
+        if ( firstBlock >= lastBlock ) {
+          data.closeFile();
+          return false;
+        }
+        data.bytesToSkipInFirstFile = index.getUncompressedSize( 0, firstBlock );
+        data.blockToRead = index.getUncompressedSize( firstBlock, lastBlock );
+        logBasic( BaseMessages.getString(
+          PKG, "CsvInput.Log.ParallelFileNrAndPositionFeedback", data.filenames[ data.filenr ], Long
+            .toString( data.fc.size() ), Long.toString( data.bytesToSkipInFirstFile ), Long
+            .toString( data.blockToRead ) ) );
+
+        ISplittableCompressionProvider provider = (ISplittableCompressionProvider) data.compressionProvider;
+        if ( firstBlock == 0 ) {
+          in = provider.createBlockInputStream( data.fc, index.getOffset( 0 ) );
+        } else {
+          // Start with the last byte of the previous block to see if the first line is read by the previous copy
+          //
+          in = provider.createBlockInputStream( data.fc, index.getOffset( firstBlock - 1 ) );
+          IOUtils.skipFully( in, index.getUncompressedSize( firstBlock - 1 ) - 1 );
+        }
+      }
+    }
+
+    data.channel = Channels.newChannel( new ReadAheadInputStream( in ) );
+    data.bb = ByteBuffer.allocateDirect( data.preferredBufferSize );
+
+    if ( data.parallel && data.bytesToSkipInFirstFile > 0 ) {
+      if ( isPartOfPreviousLine() ) {
+        skipPartialLine();
+      }
+      data.setStartBuffer( data.getEndBuffer() );
+    }
+    return true;
+  }
+
+  private InputStream openCompressedStream() throws IOException {
+    CompressionInputStream in = data.compressionProvider.createInputStream( data.fis );
+    // Archives are read from their first entry
+    //
+    in.nextEntry();
+    return in;
+  }
+
+  /**
+   * PDI-16589 - when reading in parallel, the previous code would introduce additional rows and / or invalid data in the
+   * output. In parallel mode we don't support new lines inside field data so it's safe to fast forward until we find a
+   * new line. When a newline is found we need to check for an additional new line character, while in unix systems it's
+   * just a single '\n', on windows systems, it's a sequence of '\r' and '\n'.
+   */
+  private void skipPartialLine() throws IOException {
+    while ( !data.newLineFound() ) {
+      data.moveEndBufferPointer();
+    }
+
+    data.moveEndBufferPointer();
+
+    if ( data.newLineFound() ) {
+      data.moveEndBufferPointer();
+    }
+  }
+
+  /**
+   * Start reading the current file through a memory mapping, skipping the byte order mark or, when running in
+   * parallel, the bytes read by the previous transform copies.
+   */
+  private void openMappedFile( int bomSize ) throws IOException {
+    boolean skipBytes = data.parallel && data.bytesToSkipInFirstFile > 0;
+    long start = skipBytes ? data.bytesToSkipInFirstFile : bomSize;
+    data.mappedReader =
+      new MappedCsvReader( data.fc, start, data.delimiter[ 0 ], data.enclosure, data.mappedWindowSize );
+    data.mappedFields = new byte[ meta.getInputFields().length ][];
+
+    if ( skipBytes ) {
+      data.mappedReader.skipPartialLine();
+      data.totalBytesRead += data.mappedReader.getPosition() - start;
+    }
+  }
+
   protected int getBOMSize( String vfsFilename ) throws Exception {
     int bomSize = 0;
     try ( FileInputStream fis = new FileInputStream( vfsFilename );
@@ -510,23 +685,7 @@ public class CsvInput
     try {
       // first we move pointer to the last byte of the previous transform
       data.fc.position( data.fc.position() - 1 );
-      // read data, if not yet
-      data.resizeBufferIfNeeded();
-
-      // check whether the last symbol from the previous transform is a new line
-      if ( data.newLineFound() ) {
-        // don't increase bytes read for this transform, as it is actually content of another transform
-        // and we are reading this just for evaluation.
-        data.moveEndBufferPointer( false );
-        // now we are at the first char of our thread.
-        // there is still a situation we want to avoid: when there is a windows style "/r/n", and we are between two
-        // of this chars. In this case we need to skip a line. Otherwise we don't skip it.
-        return data.newLineFound();
-      } else {
-        // moving to the first char of our line.
-        data.moveEndBufferPointer( false );
-      }
-
+      return isPartOfPreviousLine();
     } catch ( IOException e ) {
       e.printStackTrace();
     } finally {
@@ -540,6 +699,32 @@ public class CsvInput
     return true;
   }
 
+  /**
+   * Reads the last byte of the previous transform, the next byte to read, to see if the line we are on starts there.
+   *
+   * @return true if we are partly through a line read by the previous transform
+   * @see #needToSkipRow()
+   */
+  private boolean isPartOfPreviousLine() throws IOException {
+    // read data, if not yet
+    data.resizeBufferIfNeeded();
+
+    // check whether the last symbol from the previous transform is a new line
+    if ( data.newLineFound() ) {
+      // don't increase bytes read for this transform, as it is actually content of another transform
+      // and we are reading this just for evaluation.
+      data.moveEndBufferPointer( false );
+      // now we are at the first char of our thread.
+      // there is still a situation we want to avoid: when there is a windows style "/r/n", and we are between two
+      // of this chars. In this case we need to skip a line. Otherwise we don't skip it.
+      return data.newLineFound();
+    } else {
+      // moving to the first char of our line.
+      data.moveEndBufferPointer( false );
+    }
+    return true;
+  }
+
   /**
    * Read a single row of data from the file...
    *
@@ -550,6 +735,9 @@ public class CsvInput
    * @throws HopException
    */
   private Object[] readOneRow( boolean skipRow, boolean ignoreEnclosures ) throws HopException {
+    if ( data.mappedReader != null ) {
+      return readOneMappedRow( skipRow );
+    }
 
     try {
 
@@ -829,6 +1017,75 @@ public class CsvInput
     }
   }
 
+  /**
+   * Read a single row of data from the memory-mapped file.
+   *
+   * @param skipRow if row should be skipped: header row
+   * @return a row of data or null if there are no more rows
+   * @throws HopException
+   */
+  private Object[] readOneMappedRow( boolean skipRow ) throws HopException {
+    try {
+      long position = data.mappedReader.getPosition();
+      int nrFields =
+        data.mappedReader.readRow( data.mappedFields, meta.isNewlinePossibleInFields(), data.fieldsMapping.size() - 1 );
+      data.totalBytesRead += data.mappedReader.getPosition() - position;
+      if ( nrFields == 0 ) {
+        return null; // nothing more to read, call it a day.
+      }
+
+      Object[] outputRowData = RowDataUtil.allocateRowData( data.outputRowMeta.size() );
+      List<Exception> conversionExceptions = null;
+      List<IValueMeta> exceptionFields = null;
+
+      for ( int i = 0; i < nrFields && !skipRow; i++ ) {
+        byte[] field = data.mappedFields[ i ];
+        if ( meta.isLazyConversionActive() ) {
+          outputRowData[ i ] = field;
+        } else {
+          IValueMeta sourceValueMeta = data.convertRowMeta.getValueMeta( i );
+          try {
+            outputRowData[ i ] = sourceValueMeta.convertBinaryStringToNativeType( field );
+          } catch ( HopValueException e ) {
+            if ( conversionExceptions == null ) {
+              conversionExceptions = new ArrayList<>();
+              exceptionFields = new ArrayList<>();
+            }
+            conversionExceptions.add( e );
+            exceptionFields.add( sourceValueMeta );
+          }
+        }
+      }
+
+      // Optionally add the current filename to the mix as well...
+      //
+      if ( meta.isIncludingFilename() && !Utils.isEmpty( meta.getFilenameField() ) ) {
+        if ( meta.isLazyConversionActive() ) {
+          outputRowData[ data.filenameFieldIndex ] = data.binaryFilename;
+        } else {
+          outputRowData[ data.filenameFieldIndex ] = data.filenames[ data.filenr - 1 ];
+        }
+      }
+
+      if ( data.isAddingRowNumber ) {
+        outputRowData[ data.rownumFieldIndex ] = data.rowNumber++;
+      }
+
+      incrementLinesInput();
+
+      // A row which is cut short by the end of the file is passed as is
+      //
+      if ( conversionExceptions != null && !data.mappedReader.isPartialRow() ) {
+        throw new HopConversionException(
+          "There were " + conversionExceptions.size() + " conversion errors on line " + getLinesInput(),
+          conversionExceptions, exceptionFields, outputRowData );
+      }
+
+      return outputRowData;
+    } catch ( IOException e ) {
+      throw new HopFileException( "Exception reading line from memory-mapped file", e );
+    }
+  }
 
   public boolean init() {
 
@@ -876,6 +1133,25 @@ public class CsvInput
 
       data.isAddingRowNumber = !Utils.isEmpty( meta.getRowNumField() );
 
+      data.compressionProvider = null;
+      if ( !Utils.isEmpty( meta.getFileCompression() ) && !"None".equals( meta.getFileCompression() ) ) {
+        data.compressionProvider =
+          CompressionProviderFactory.getInstance().getCompressionProviderByName( meta.getFileCompression() );
+        if ( data.compressionProvider == null ) {
+          logError( BaseMessages.getString( PKG, "CsvInput.Log.UnknownCompression", meta.getFileCompression() ) );
+          return false;
+        }
+      }
+
+      // Memory mapping is only used for uncompressed files with single byte encodings, delimiters and enclosures
+      //
+      data.memoryMapped = meta.isMemoryMapped() && data.compressionProvider == null
+        && data.encodingType == EncodingType.SINGLE
+        && data.delimiter.length == 1 && ( data.enclosure == null || data.enclosure.length == 1 );
+      if ( meta.isMemoryMapped() && !data.memoryMapped ) {
+        logBasic( BaseMessages.getString( PKG, "CsvInput.Log.MemoryMappingNotPossible" ) );
+      }
+
       // Handle parallel reading capabilities...
       //
       data.stopReading = false;
@@ -22,6 +22,7 @@
 
 package org.apache.hop.pipeline.transforms.csvinput;
 
+import org.apache.hop.core.compress.ICompressionProvider;
 import org.apache.hop.core.exception.HopException;
 import org.apache.hop.core.file.EncodingType;
 import org.apache.hop.core.row.IRowMeta;
@@ -32,6 +33,7 @@ import java.io.FileInputStream;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
 import java.util.List;
 
 /**
@@ -40,10 +42,21 @@ import java.util.List;
  */
 public class CsvInputData extends BaseTransformData implements ITransformData {
   public FileChannel fc;
+
+  /**
+   * The channel the data is read from: the file channel or, for compressed files, the decompressed data
+   */
+  public ReadableByteChannel channel;
   public ByteBuffer bb;
   public IRowMeta convertRowMeta;
   public IRowMeta outputRowMeta;
 
+  /**
+   * The rows read in the current call to processRow(), handed over to the next transforms in one go
+   */
+  public Object[][] outputBatch;
+  public int outputBatchSize;
+
   private byte[] byteBuffer;
   private int startBuffer;
   private int endBuffer;
@@ -83,6 +96,19 @@ public class CsvInputData extends BaseTransformData implements ITransformData {
 
   public IFieldsMapping fieldsMapping;
 
+  /**
+   * True if the files are memory-mapped and split by the {@link MappedCsvReader}
+   */
+  public boolean memoryMapped;
+  public int mappedWindowSize = MappedCsvReader.DEFAULT_WINDOW_SIZE;
+  public MappedCsvReader mappedReader;
+  public byte[][] mappedFields;
+
+  /**
+   * The provider decompressing the files, null if they are not compressed
+   */
+  public ICompressionProvider compressionProvider;
+
   /**
    * Data class for CsvInput transform
    *
@@ -129,7 +155,7 @@ public class CsvInputData extends BaseTransformData implements ITransformData {
     }
 
     bb.position( endBuffer );
-    int n = fc.read( bb );
+    int n = channel.read( bb );
     if ( n >= 0 ) {
 
       // adjust the highest used position...
@@ -265,7 +291,11 @@ public class CsvInputData extends BaseTransformData implements ITransformData {
   }
 
   void closeFile() throws HopException {
+    mappedReader = null;
     try {
+      if ( channel != null ) {
+        channel.close();
+      }
       if ( fc != null ) {
         fc.close();
       }
@@ -277,6 +307,15 @@ public class CsvInputData extends BaseTransformData implements ITransformData {
     }
   }
 
+  /**
+   * Drops the data left in the buffer, the rest of a file that was only partly read
+   */
+  void clearBuffer() {
+    startBuffer = 0;
+    endBuffer = 0;
+    bufferSize = 0;
+  }
+
   int getStartBuffer() {
     return startBuffer;
   }
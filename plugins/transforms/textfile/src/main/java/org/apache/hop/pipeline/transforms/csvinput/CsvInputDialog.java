@@ -25,6 +25,9 @@ package org.apache.hop.pipeline.transforms.csvinput;
 import org.apache.commons.vfs2.FileObject;
 import org.apache.commons.vfs2.provider.local.LocalFile;
 import org.apache.hop.core.Const;
+import org.apache.hop.core.compress.CompressionInputStream;
+import org.apache.hop.core.compress.CompressionProviderFactory;
+import org.apache.hop.core.compress.ICompressionProvider;
 import org.apache.hop.core.exception.HopException;
 import org.apache.hop.core.exception.HopTransformException;
 import org.apache.hop.core.file.TextFileInputField;
@@ -96,6 +99,7 @@ public class CsvInputDialog extends BaseTransformDialog implements ITransformDia
   private TextVar wEnclosure;
   private TextVar wBufferSize;
   private Button wLazyConversion;
+  private Button wMemoryMapped;
   private Button wHeaderPresent;
   private TableView wFields;
   private Button wAddResult;
@@ -103,6 +107,7 @@ public class CsvInputDialog extends BaseTransformDialog implements ITransformDia
   private Button wRunningInParallel;
   private Button wNewlinePossible;
   private ComboVar wEncoding;
+  private CCombo wCompression;
 
   private boolean gotEncodings = false;
 
@@ -347,6 +352,26 @@ public class CsvInputDialog extends BaseTransformDialog implements ITransformDia
     wLazyConversion.setLayoutData( fdLazyConversion );
     lastControl = wlLazyConversion;
 
+    // memory mapped?
+    //
+    Label wlMemoryMapped = new Label( shell, SWT.RIGHT );
+    wlMemoryMapped.setText( BaseMessages.getString( PKG, "CsvInputDialog.MemoryMapped.Label" ) );
+    props.setLook( wlMemoryMapped );
+    FormData fdlMemoryMapped = new FormData();
+    fdlMemoryMapped.top = new FormAttachment( lastControl, margin );
+    fdlMemoryMapped.left = new FormAttachment( 0, 0 );
+    fdlMemoryMapped.right = new FormAttachment( middle, -margin );
+    wlMemoryMapped.setLayoutData( fdlMemoryMapped );
+    wMemoryMapped = new Button( shell, SWT.CHECK );
+    props.setLook( wMemoryMapped );
+    wMemoryMapped.setToolTipText( BaseMessages.getString( PKG, "CsvInputDialog.MemoryMapped.Tooltip" ) );
+    FormData fdMemoryMapped = new FormData();
+    fdMemoryMapped.top = new FormAttachment( wlMemoryMapped, 0, SWT.CENTER );
+    fdMemoryMapped.left = new FormAttachment( middle, 0 );
+    fdMemoryMapped.right = new FormAttachment( 100, 0 );
+    wMemoryMapped.setLayoutData( fdMemoryMapped );
+    lastControl = wlMemoryMapped;
+
     // header row?
     //
     Label wlHeaderPresent = new Label( shell, SWT.RIGHT );
@@ -488,6 +513,28 @@ public class CsvInputDialog extends BaseTransformDialog implements ITransformDia
       }
     } );
 
+    // Compression
+    Label wlCompression = new Label( shell, SWT.RIGHT );
+    wlCompression.setText( BaseMessages.getString( PKG, "CsvInputDialog.Compression.Label" ) );
+    props.setLook( wlCompression );
+    FormData fdlCompression = new FormData();
+    fdlCompression.top = new FormAttachment( lastControl, margin );
+    fdlCompression.left = new FormAttachment( 0, 0 );
+    fdlCompression.right = new FormAttachment( middle, -margin );
+    wlCompression.setLayoutData( fdlCompression );
+    wCompression = new CCombo( shell, SWT.BORDER | SWT.READ_ONLY );
+    wCompression.setToolTipText( BaseMessages.getString( PKG, "CsvInputDialog.Compression.Tooltip" ) );
+    props.setLook( wCompression );
+    wCompression.setItems( CompressionProviderFactory.getInstance().getCompressionProviderNames() );
+    wCompression.addModifyListener( lsMod );
+    wCompression.addModifyListener( lsContent );
+    FormData fdCompression = new FormData();
+    fdCompression.top = new FormAttachment( wlCompression, 0, SWT.CENTER );
+    fdCompression.left = new FormAttachment( middle, 0 );
+    fdCompression.right = new FormAttachment( 100, 0 );
+    wCompression.setLayoutData( fdCompression );
+    lastControl = wCompression;
+
     // Some buttons first, so that the dialog scales nicely...
     //
     wOk = new Button( shell, SWT.PUSH );
@@ -690,12 +737,14 @@ public class CsvInputDialog extends BaseTransformDialog implements ITransformDia
     wEnclosure.setText( Const.NVL( inputMeta.getEnclosure(), "" ) );
     wBufferSize.setText( Const.NVL( inputMeta.getBufferSize(), "" ) );
     wLazyConversion.setSelection( inputMeta.isLazyConversionActive() );
+    wMemoryMapped.setSelection( inputMeta.isMemoryMapped() );
     wHeaderPresent.setSelection( inputMeta.isHeaderPresent() );
     wRunningInParallel.setSelection( inputMeta.isRunningInParallel() );
     wNewlinePossible.setSelection( inputMeta.isNewlinePossibleInFields() );
     wRowNumField.setText( Const.NVL( inputMeta.getRowNumField(), "" ) );
     wAddResult.setSelection( inputMeta.isAddResultFile() );
     wEncoding.setText( Const.NVL( inputMeta.getEncoding(), "" ) );
+    wCompression.setText( Const.NVL( inputMeta.getFileCompression(), "None" ) );
 
     final List<String> fieldName = newFieldNames == null ? new ArrayList()
       : newFieldNames.stream().map( String::toString ).collect( Collectors.toList() );
@@ -746,12 +795,14 @@ public class CsvInputDialog extends BaseTransformDialog implements ITransformDia
     inputMeta.setEnclosure( wEnclosure.getText() );
     inputMeta.setBufferSize( wBufferSize.getText() );
     inputMeta.setLazyConversionActive( wLazyConversion.getSelection() );
+    inputMeta.setMemoryMapped( wMemoryMapped.getSelection() );
     inputMeta.setHeaderPresent( wHeaderPresent.getSelection() );
     inputMeta.setRowNumField( wRowNumField.getText() );
     inputMeta.setAddResultFile( wAddResult.getSelection() );
     inputMeta.setRunningInParallel( wRunningInParallel.getSelection() );
     inputMeta.setNewlinePossibleInFields( wNewlinePossible.getSelection() );
     inputMeta.setEncoding( wEncoding.getText() );
+    inputMeta.setFileCompression( wCompression.getText() );
 
     int nrNonEmptyFields = wFields.nrNonEmpty();
     inputMeta.allocate( nrNonEmptyFields );
@@ -839,7 +890,7 @@ public class CsvInputDialog extends BaseTransformDialog implements ITransformDia
         throw new HopException( BaseMessages.getString( PKG, "CsvInput.Log.OnlyLocalFilesAreSupported" ) );
       }
 
-      inputStream = HopVfs.getInputStream( fileObject );
+      inputStream = decompress( HopVfs.getInputStream( fileObject ), meta.getFileCompression() );
     } catch ( final Exception e ) {
       logError( BaseMessages.getString( PKG, "CsvInputDialog.ErrorGettingFileDesc.DialogMessage" ), e );
     }
@@ -1027,10 +1078,27 @@ public class CsvInputDialog extends BaseTransformDialog implements ITransformDia
       }
 
       inputStream = HopVfs.getInputStream( fileObject );
+      if ( meta instanceof CsvInputMeta ) {
+        inputStream = decompress( inputStream, ( (CsvInputMeta) meta ).getFileCompression() );
+      }
     } catch ( final Exception e ) {
       logError( BaseMessages.getString( "FileInputDialog.ErrorGettingFileDesc.DialogMessage" ), e );
     }
     return inputStream;
   }
 
+  /**
+   * Wraps the stream of a compressed file in the stream decompressing it, positioned on the first entry of archives.
+   */
+  private InputStream decompress( InputStream inputStream, String fileCompression ) throws Exception {
+    if ( Utils.isEmpty( fileCompression ) || "None".equals( fileCompression ) ) {
+      return inputStream;
+    }
+    ICompressionProvider provider =
+      CompressionProviderFactory.getInstance().getCompressionProviderByName( fileCompression );
+    CompressionInputStream compressionInputStream = provider.createInputStream( inputStream );
+    compressionInputStream.nextEntry();
+    return compressionInputStream;
+  }
+
 }
@@ -96,6 +96,8 @@ public class CsvInputMeta
 
   private boolean lazyConversionActive;
 
+  private boolean memoryMapped;
+
   private TextFileInputField[] inputFields;
 
   private boolean isaddresult;
@@ -104,6 +106,8 @@ public class CsvInputMeta
 
   private String encoding;
 
+  private String fileCompression;
+
   private boolean newlinePossibleInFields;
 
   public CsvInputMeta() {
@@ -134,6 +138,7 @@ public class CsvInputMeta
     lazyConversionActive = true;
     isaddresult = false;
     bufferSize = "50000";
+    fileCompression = "None";
   }
 
   private void readData( Node transformNode ) throws HopXmlException {
@@ -149,6 +154,7 @@ public class CsvInputMeta
       headerPresent = "Y".equalsIgnoreCase( XmlHandler.getTagValue( transformNode, "header" ) );
       lazyConversionActive =
         "Y".equalsIgnoreCase( XmlHandler.getTagValue( transformNode, "lazy_conversion" ) );
+      memoryMapped = "Y".equalsIgnoreCase( XmlHandler.getTagValue( transformNode, "memory_mapped" ) );
       isaddresult = "Y".equalsIgnoreCase( XmlHandler.getTagValue( transformNode, "add_filename_result" ) );
       runningInParallel = "Y".equalsIgnoreCase( XmlHandler.getTagValue( transformNode, "parallel" ) );
       String nlp = XmlHandler.getTagValue( transformNode, "newline_possible" );
@@ -162,6 +168,10 @@ public class CsvInputMeta
         newlinePossibleInFields = "Y".equalsIgnoreCase( nlp );
       }
       encoding = XmlHandler.getTagValue( transformNode, "encoding" );
+      fileCompression = XmlHandler.getTagValue( transformNode, "compression" );
+      if ( fileCompression == null ) {
+        fileCompression = "None";
+      }
 
       Node fields = XmlHandler.getSubNode( transformNode, "fields" );
       int nrFields = XmlHandler.countNodes( fields, "field" );
@@ -210,11 +220,13 @@ public class CsvInputMeta
     retval.append( "    " ).append( XmlHandler.addTagValue( "buffer_size", bufferSize ) );
     retval
       .append( "    " ).append( XmlHandler.addTagValue( "lazy_conversion", lazyConversionActive ) );
+    retval.append( "    " ).append( XmlHandler.addTagValue( "memory_mapped", memoryMapped ) );
     retval.append( "    " ).append( XmlHandler.addTagValue( "add_filename_result", isaddresult ) );
     retval.append( "    " ).append( XmlHandler.addTagValue( "parallel", runningInParallel ) );
     retval.append( "    " ).append(
       XmlHandler.addTagValue( "newline_possible", newlinePossibleInFields ) );
     retval.append( "    " ).append( XmlHandler.addTagValue( "encoding", encoding ) );
+    retval.append( "    " ).append( XmlHandler.addTagValue( "compression", fileCompression ) );
 
     retval.append( "    " ).append( XmlHandler.openTag( "fields" ) ).append( Const.CR );
     for ( int i = 0; i < inputFields.length; i++ ) {
@@ -407,6 +419,21 @@ public class CsvInputMeta
     this.lazyConversionActive = lazyConversionActive;
   }
 
+  /**
+   * @return true if the files are memory-mapped in large windows instead of being read through a buffer
+   */
+  public boolean isMemoryMapped() {
+    return memoryMapped;
+  }
+
+  /**
+   * @param memoryMapped true if the files are memory-mapped in large windows instead of being read through a buffer.
+   *                     Only used for single byte encodings, delimiters and enclosures.
+   */
+  public void setMemoryMapped( boolean memoryMapped ) {
+    this.memoryMapped = memoryMapped;
+  }
+
   /**
    * @return the headerPresent
    */
@@ -621,6 +648,20 @@ public class CsvInputMeta
     this.encoding = encoding;
   }
 
+  /**
+   * @return the name of the compression provider used to decompress the files, "None" if they are not compressed
+   */
+  public String getFileCompression() {
+    return fileCompression;
+  }
+
+  /**
+   * @param fileCompression the name of the compression provider used to decompress the files
+   */
+  public void setFileCompression( String fileCompression ) {
+    this.fileCompression = fileCompression;
+  }
+
   /**
    * @param variables                   the variable space to use
    * @param definitions
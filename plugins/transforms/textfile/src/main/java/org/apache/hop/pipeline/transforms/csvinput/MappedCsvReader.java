@@ -0,0 +1,391 @@
+/*! ******************************************************************************
+ *
+ * Hop : The Hop Orchestration Platform
+ *
+ * Copyright (C) 2002-2019 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+
+package org.apache.hop.pipeline.transforms.csvinput;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Splits a memory-mapped CSV file in fields. The file is mapped in large windows and the fields are copied straight
+ * from the mapped pages into the binary string of the field. There is no intermediate read buffer.
+ * <p>
+ * The parsing rules are exactly those of {@link CsvInput} for single byte encodings with a single byte delimiter and
+ * enclosure. Runs of bytes which can't end a field are skipped 8 bytes at a time: every long read from the window is
+ * tested for the delimiter, enclosure, carriage return and line feed bytes in parallel (SWAR).
+ */
+public class MappedCsvReader {
+
+  public static final int DEFAULT_WINDOW_SIZE = 64 * 1024 * 1024;
+
+  private static final int MAX_WINDOW_SIZE = Integer.MAX_VALUE - 8;
+
+  private static final byte CR = '\r';
+  private static final byte LF = '\n';
+
+  private static final long ONES = 0x0101010101010101L;
+  private static final long HIGHS = 0x8080808080808080L;
+  private static final long CR_PATTERN = ONES * CR;
+  private static final long LF_PATTERN = ONES * LF;
+
+  private final FileChannel channel;
+  private final long fileSize;
+  private final int windowSize;
+
+  private final byte delimiter;
+  private final long delimiterPattern;
+  private final boolean enclosed;
+  private final byte enclosure;
+  private final long enclosurePattern;
+
+  private MappedByteBuffer window;
+  private long windowStart;
+  private long windowEnd;
+
+  private long position;
+  private long rowStart;
+  private boolean partialRow;
+
+  /**
+   * @param channel    the channel of the file to read
+   * @param position   the position in the file to start reading from
+   * @param delimiter  the field delimiter
+   * @param enclosure  the enclosure or null if there is none
+   * @param windowSize the size of the part of the file to map in memory at once
+   * @throws IOException in case the size of the file can't be determined
+   */
+  public MappedCsvReader( FileChannel channel, long position, byte delimiter, byte[] enclosure, int windowSize )
+    throws IOException {
+    this.channel = channel;
+    this.fileSize = channel.size();
+    this.windowSize = windowSize;
+    this.position = position;
+    this.delimiter = delimiter;
+    this.delimiterPattern = pattern( delimiter );
+    this.enclosed = enclosure != null && enclosure.length > 0;
+    this.enclosure = enclosed ? enclosure[ 0 ] : 0;
+    this.enclosurePattern = pattern( this.enclosure );
+  }
+
+  /**
+   * Reads the fields of the next row.
+   *
+   * @param fields                  the array to store the fields in, its length is the number of fields to read
+   * @param newlinePossibleInFields true if only the last field can be ended by a new line
+   * @param lastField               the index of the last field in the file
+   * @return the number of fields read, 0 if there are no more rows.
+   * @throws IOException in case the file can't be mapped in memory
+   */
+  public int readRow( byte[][] fields, boolean newlinePossibleInFields, int lastField ) throws IOException {
+    int fieldIndex = 0;
+    boolean newLineFound = false;
+    boolean endOfFile = false;
+    rowStart = position;
+    partialRow = false;
+
+    while ( !newLineFound && fieldIndex < fields.length ) {
+      if ( position >= fileSize ) {
+        // The file ended before all fields were read
+        //
+        partialRow = fieldIndex > 0;
+        return fieldIndex;
+      }
+
+      long fieldStart = position;
+      boolean delimiterFound = false;
+      boolean enclosureFound = false;
+      boolean doubleLineEnd = false;
+      boolean ignoreEnclosures = false;
+      boolean newlineEndsField = !newlinePossibleInFields || fieldIndex == lastField;
+      int escapedEnclosures = 0;
+
+      while ( !delimiterFound && !newLineFound && !endOfFile ) {
+        position = scan( position, newlineEndsField, enclosed && !ignoreEnclosures );
+        if ( position >= fileSize ) {
+          endOfFile = true;
+          break;
+        }
+
+        byte b = byteAt( position );
+        if ( b == delimiter ) {
+          delimiterFound = true;
+        } else if ( newlineEndsField && ( b == CR || b == LF ) ) {
+          newLineFound = true;
+          position++;
+          // A second new line character (\r\n) is skipped later
+          //
+          doubleLineEnd = isNewLine( position );
+        } else if ( enclosed && b == enclosure && !ignoreEnclosures ) {
+          if ( position == fieldStart ) {
+            // Skip over the enclosed part, a doubled enclosure is considered escaped.
+            //
+            enclosureFound = true;
+            while ( true ) {
+              position = scanEnclosure( position + 1 );
+              if ( position >= fileSize ) {
+                enclosureFound = false;
+                break;
+              }
+              position++;
+              if ( position >= fileSize || byteAt( position ) != enclosure ) {
+                break;
+              }
+              escapedEnclosures++;
+            }
+            if ( position >= fileSize ) {
+              endOfFile = true;
+              break;
+            }
+          } else {
+            // Ignoring enclosure if it's not at the field start
+            //
+            ignoreEnclosures = true;
+          }
+        } else {
+          position++;
+        }
+      }
+
+      long fieldEnd = position;
+      if ( newLineFound && !endOfFile ) {
+        fieldEnd--;
+      }
+      if ( enclosureFound ) {
+        fieldStart++;
+        fieldEnd--;
+      }
+      byte[] field = copy( fieldStart, (int) Math.max( 0L, fieldEnd - fieldStart ) );
+      if ( escapedEnclosures > 0 ) {
+        field = removeEscapedEnclosures( field, escapedEnclosures );
+      }
+      fields[ fieldIndex++ ] = field;
+
+      // Move past the delimiter and/or the end of the line
+      //
+      if ( ( !newLineFound && fieldIndex < fields.length ) || ( newLineFound && doubleLineEnd ) ) {
+        if ( !isNewLine( position ) ) {
+          position++;
+        }
+        if ( doubleLineEnd || ( position < fileSize && byteAt( position ) == CR ) ) {
+          position++;
+        }
+      }
+    }
+
+    // Skip the remaining fields on the line
+    //
+    if ( !newLineFound && position < fileSize ) {
+      position = scanNewLine( position + 1 );
+      while ( isNewLine( position ) ) {
+        position++;
+      }
+    }
+
+    return fieldIndex;
+  }
+
+  /**
+   * @return true if the last row was cut short by the end of the file
+   */
+  public boolean isPartialRow() {
+    return partialRow;
+  }
+
+  /**
+   * When reading a block of a file in parallel, skip the part of the line which belongs to the previous block. If the
+   * block starts at the beginning of a line, nothing is skipped.
+   */
+  public void skipPartialLine() throws IOException {
+    if ( position > 0 && isNewLine( position - 1 ) && !isNewLine( position ) ) {
+      return;
+    }
+    rowStart = position;
+    position = scanNewLine( position ) + 1;
+    if ( isNewLine( position ) ) {
+      position++;
+    }
+  }
+
+  /**
+   * @return the position in the file of the next byte to read
+   */
+  public long getPosition() {
+    return position;
+  }
+
+  /**
+   * Finds the first byte from the given position which can end a field.
+   */
+  private long scan( long from, boolean newLines, boolean enclosures ) throws IOException {
+    long p = from;
+    while ( p < fileSize ) {
+      map( p );
+      int index = (int) ( p - windowStart );
+      int limit = (int) ( windowEnd - windowStart );
+      for ( ; index + 8 <= limit; index += 8 ) {
+        long word = window.getLong( index );
+        long matches = matches( word, delimiterPattern );
+        if ( newLines ) {
+          matches |= matches( word, CR_PATTERN ) | matches( word, LF_PATTERN );
+        }
+        if ( enclosures ) {
+          matches |= matches( word, enclosurePattern );
+        }
+        if ( matches != 0 ) {
+          return windowStart + index + ( Long.numberOfTrailingZeros( matches ) >>> 3 );
+        }
+      }
+      for ( ; index < limit; index++ ) {
+        byte b = window.get( index );
+        if ( b == delimiter || ( newLines && ( b == CR || b == LF ) ) || ( enclosures && b == enclosure ) ) {
+          return windowStart + index;
+        }
+      }
+      p = windowEnd;
+    }
+    return fileSize;
+  }
+
+  private long scanEnclosure( long from ) throws IOException {
+    long p = from;
+    while ( p < fileSize ) {
+      map( p );
+      int index = (int) ( p - windowStart );
+      int limit = (int) ( windowEnd - windowStart );
+      for ( ; index + 8 <= limit; index += 8 ) {
+        long matches = matches( window.getLong( index ), enclosurePattern );
+        if ( matches != 0 ) {
+          return windowStart + index + ( Long.numberOfTrailingZeros( matches ) >>> 3 );
+        }
+      }
+      for ( ; index < limit; index++ ) {
+        if ( window.get( index ) == enclosure ) {
+          return windowStart + index;
+        }
+      }
+      p = windowEnd;
+    }
+    return fileSize;
+  }
+
+  private long scanNewLine( long from ) throws IOException {
+    long p = from;
+    while ( p < fileSize ) {
+      map( p );
+      int index = (int) ( p - windowStart );
+      int limit = (int) ( windowEnd - windowStart );
+      for ( ; index + 8 <= limit; index += 8 ) {
+        long word = window.getLong( index );
+        long matches = matches( word, CR_PATTERN ) | matches( word, LF_PATTERN );
+        if ( matches != 0 ) {
+          return windowStart + index + ( Long.numberOfTrailingZeros( matches ) >>> 3 );
+        }
+      }
+      for ( ; index < limit; index++ ) {
+        byte b = window.get( index );
+        if ( b == CR || b == LF ) {
+          return windowStart + index;
+        }
+      }
+      p = windowEnd;
+    }
+    return fileSize;
+  }
+
+  /**
+   * Flags the bytes in the word which are equal to the byte in the pattern by setting their highest bit. Bits of
+   * bytes after the first match can be set wrongly, that's why only the lowest flagged byte is used.
+   */
+  private static long matches( long word, long pattern ) {
+    long x = word ^ pattern;
+    return ( x - ONES ) & ~x & HIGHS;
+  }
+
+  private static long pattern( byte b ) {
+    return ONES * ( b & 0xFF );
+  }
+
+  private boolean isNewLine( long p ) throws IOException {
+    if ( p >= fileSize ) {
+      return false;
+    }
+    byte b = byteAt( p );
+    return b == CR || b == LF;
+  }
+
+  private byte byteAt( long p ) throws IOException {
+    map( p );
+    return window.get( (int) ( p - windowStart ) );
+  }
+
+  private byte[] copy( long start, int length ) throws IOException {
+    byte[] bytes = new byte[ length ];
+    if ( length > 0 ) {
+      if ( start < windowStart || start + length > windowEnd ) {
+        mapWindow( start, Math.max( windowSize, length ) );
+      }
+      window.position( (int) ( start - windowStart ) );
+      window.get( bytes );
+    }
+    return bytes;
+  }
+
+  /**
+   * Makes sure the given position is mapped. The new window starts at the beginning of the current row if possible so
+   * that the fields of the row can be copied from it.
+   */
+  private void map( long p ) throws IOException {
+    if ( window != null && p >= windowStart && p < windowEnd ) {
+      return;
+    }
+    long start = p - rowStart < windowSize / 2 ? Math.min( rowStart, p ) : p;
+    mapWindow( start, windowSize );
+  }
+
+  private void mapWindow( long start, int size ) throws IOException {
+    long length = Math.min( Math.min( (long) size, MAX_WINDOW_SIZE ), fileSize - start );
+    window = channel.map( FileChannel.MapMode.READ_ONLY, start, length );
+    window.order( ByteOrder.LITTLE_ENDIAN );
+    windowStart = start;
+    windowEnd = start + length;
+  }
+
+  /**
+   * <pre>
+   *       [abcd "" defg] --> [abcd " defg]
+   * </pre>
+   */
+  private byte[] removeEscapedEnclosures( byte[] field, int nrEnclosuresFound ) {
+    byte[] result = new byte[ field.length - nrEnclosuresFound ];
+    int resultIndex = 0;
+    for ( int i = 0; i < field.length; i++ ) {
+      result[ resultIndex++ ] = field[ i ];
+      if ( field[ i ] == enclosure && i + 1 < field.length && field[ i + 1 ] == enclosure ) {
+        i++;
+      }
+    }
+    return result;
+  }
+}
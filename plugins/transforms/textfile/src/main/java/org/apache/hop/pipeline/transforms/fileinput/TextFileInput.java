@@ -1189,9 +1189,13 @@ public class TextFileInput extends BaseTransform<TextFileInputMeta, TextFileInpu
   private void rejectCurrentFile( String errorMsg ) {
     if ( StringUtils.isNotBlank( meta.getFileErrorField() )
       || StringUtils.isNotBlank( meta.getFileErrorMessageField() ) ) {
+      // The input row metadata can be frozen and is shared with the input row set: add the fields to a copy
+      //
       IRowMeta rowMeta = getInputRowMeta();
       if ( rowMeta == null ) {
         rowMeta = new RowMeta();
+      } else {
+        rowMeta = rowMeta.clone();
       }
 
       int errorFileIndex =
@@ -1206,6 +1210,8 @@ public class TextFileInput extends BaseTransform<TextFileInputMeta, TextFileInpu
         Object[] rowData = getRow();
         if ( rowData == null ) {
           rowData = RowDataUtil.allocateRowData( rowMeta.size() );
+        } else {
+          rowData = RowDataUtil.resizeArray( rowData, rowMeta.size() );
         }
 
         if ( errorFileIndex >= 0 ) {
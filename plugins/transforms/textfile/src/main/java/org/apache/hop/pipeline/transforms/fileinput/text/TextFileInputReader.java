@@ -26,6 +26,8 @@ import org.apache.commons.vfs2.FileObject;
 import org.apache.hop.core.compress.CompressionInputStream;
 import org.apache.hop.core.compress.ICompressionProvider;
 import org.apache.hop.core.compress.CompressionProviderFactory;
+import org.apache.hop.core.compress.NoneCompressionProvider;
+import org.apache.hop.core.compress.ReadAheadInputStream;
 import org.apache.hop.core.exception.HopException;
 import org.apache.hop.core.exception.HopFileException;
 import org.apache.hop.core.file.EncodingType;
@@ -38,6 +40,7 @@ import org.apache.hop.pipeline.transforms.file.IBaseFileInputTransformControl;
 import org.apache.hop.ui.pipeline.transform.common.TextFileLineUtil;
 
 import java.io.BufferedInputStream;
+import java.io.InputStream;
 import java.io.InputStreamReader;
 
 /**
@@ -81,7 +84,11 @@ public class TextFileInputReader implements IBaseFileInputReader {
 
     in.nextEntry();
 
-    BufferedInputStream inStream = new BufferedInputStream( in, BUFFER_SIZE_INPUT_STREAM );
+    // Decompress in a separate thread, ahead of the parsing
+    //
+    InputStream source = provider instanceof NoneCompressionProvider ? in : new ReadAheadInputStream( in );
+
+    BufferedInputStream inStream = new BufferedInputStream( source, BUFFER_SIZE_INPUT_STREAM );
     BOMDetector bom = new BOMDetector( inStream );
 
     if ( bom.bomExist() ) {
@@ -387,10 +394,15 @@ public class TextFileInputReader implements IBaseFileInputReader {
          * } else if ( sFileCompression != null && sFileCompression.equals( "Snappy" ) && data.sis != null ) {
          * data.sis.close(); }
          */
-        if ( in != null ) {
-          BaseTransform.closeQuietly( in );
+        // Close the reader first: it stops the read ahead thread which could still be reading from the raw stream
+        //
+        try {
+          isr.close();
+        } finally {
+          if ( in != null ) {
+            BaseTransform.closeQuietly( in );
+          }
         }
-        isr.close();
         data.filename = null; // send it down the next time.
         if ( data.file != null ) {
           try {
@@ -0,0 +1,254 @@
+/*! ******************************************************************************
+ *
+ * Hop : The Hop Orchestration Platform
+ *
+ * Copyright (C) 2002-2019 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+
+package org.apache.hop.pipeline.transforms.csvinput;
+
+import org.apache.hop.core.Const;
+import org.apache.hop.core.exception.HopException;
+import org.apache.hop.core.exception.HopTransformException;
+import org.apache.hop.core.logging.ILoggingObject;
+import org.apache.hop.core.row.IRowMeta;
+import org.apache.hop.junit.rules.RestoreHopEngineEnvironment;
+import org.apache.hop.pipeline.transform.RowAdapter;
+import org.apache.hop.pipeline.transforms.mock.TransformMockHelper;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.xerial.snappy.SnappyOutputStream;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.when;
+
+/**
+ * Reads compressed files, split between parallel transform copies when the compression allows it.
+ */
+public class CsvInputCompressedTest extends CsvInputUnitTestBase {
+  @ClassRule public static RestoreHopEngineEnvironment env = new RestoreHopEngineEnvironment();
+
+  private static TransformMockHelper<CsvInputMeta, CsvInputData> transformMockHelper;
+
+  @BeforeClass
+  public static void setUp() throws HopException {
+    transformMockHelper =
+      TransformMockUtil.getTransformMockHelper( CsvInputMeta.class, CsvInputData.class, "CsvInputCompressedTest" );
+    when( transformMockHelper.logChannelFactory.create( any(), any( ILoggingObject.class ) ) )
+      .thenReturn( transformMockHelper.logChannelInterface );
+    when( transformMockHelper.pipeline.isRunning() ).thenReturn( true );
+  }
+
+  @AfterClass
+  public static void cleanUp() {
+    transformMockHelper.cleanUp();
+  }
+
+  @Test
+  public void testGzip() throws Exception {
+    byte[] content = createContent( 3000 );
+    File file = createCompressedFile( ".gz" );
+    try ( OutputStream out = new GZIPOutputStream( new FileOutputStream( file ) ) ) {
+      out.write( content );
+    }
+    assertAllCopies( file, "GZip" );
+  }
+
+  @Test
+  public void testBgzf() throws Exception {
+    byte[] content = createContent( 3000 );
+    File file = createCompressedFile( ".gz" );
+    try ( OutputStream out = new FileOutputStream( file ) ) {
+      // Blocks of an odd size to split the lines, and the CR LF pairs, in all possible ways
+      //
+      for ( int i = 0; i < content.length; i += 997 ) {
+        out.write( bgzfBlock( Arrays.copyOfRange( content, i, Math.min( content.length, i + 997 ) ) ) );
+      }
+      out.write( bgzfBlock( new byte[ 0 ] ) );
+    }
+    assertAllCopies( file, "GZip" );
+  }
+
+  @Test
+  public void testSnappy() throws Exception {
+    byte[] content = createContent( 3000 );
+    File file = createCompressedFile( ".snappy" );
+    try ( OutputStream out = new SnappyOutputStream( new FileOutputStream( file ), 1024 ) ) {
+      out.write( content );
+    }
+    assertAllCopies( file, "Snappy" );
+  }
+
+  @Test
+  public void testRowsReadBeforeAnErrorAreSent() throws Exception {
+    // more than the first block read ahead, which is decompressed before the error
+    //
+    byte[] content = createContent( 200000 );
+    File file = createCompressedFile( ".gz" );
+    byte[] compressed;
+    try ( ByteArrayOutputStream bytes = new ByteArrayOutputStream() ) {
+      try ( OutputStream out = new GZIPOutputStream( bytes ) ) {
+        out.write( content );
+      }
+      compressed = bytes.toByteArray();
+    }
+    try ( OutputStream out = new FileOutputStream( file ) ) {
+      out.write( compressed, 0, compressed.length / 2 );
+    }
+
+    CsvInputMeta meta = createMeta( file, createInputFileFields( "id", "name", "flag" ) );
+    meta.setFileCompression( "GZip" );
+    meta.setLazyConversionActive( false );
+    meta.setHeaderPresent( true );
+    CsvInput csvInput = new CsvInput( transformMockHelper.transformMeta, meta, new CsvInputData(), 0,
+      transformMockHelper.pipelineMeta, transformMockHelper.pipeline );
+    assertTrue( csvInput.init() );
+
+    final List<Object[]> rows = new ArrayList<>();
+    csvInput.addRowListener( new RowAdapter() {
+      @Override
+      public void rowWrittenEvent( IRowMeta rowMeta, Object[] row ) {
+        rows.add( row );
+      }
+    } );
+
+    try {
+      while ( csvInput.processRow() ) {
+        // read until the truncated end
+      }
+      fail( "The file is truncated" );
+    } catch ( HopException e ) {
+      // the rows of the unfinished batch are sent before the error, every line read but the header is passed on
+      //
+      assertTrue( rows.size() % Const.ROWS_IN_BATCH != 0 );
+      assertEquals( csvInput.getLinesInput() - 1, rows.size() );
+    } finally {
+      csvInput.dispose();
+    }
+  }
+
+  private void assertAllCopies( File compressedFile, String compression ) throws Exception {
+    List<String> expected = readRows( compressedFile, compression, 0, 1 );
+    assertEquals( 3000, expected.size() );
+    assertEquals( "0,name0,x", expected.get( 0 ) );
+    assertEquals( "2999,name2999,x", expected.get( 2999 ) );
+
+    Collections.sort( expected );
+    for ( int copies = 2; copies <= 7; copies++ ) {
+      List<String> actual = new ArrayList<>();
+      for ( int copy = 0; copy < copies; copy++ ) {
+        actual.addAll( readRows( compressedFile, compression, copy, copies ) );
+      }
+      Collections.sort( actual );
+      assertEquals( "Rows read by " + copies + " copies", expected, actual );
+    }
+  }
+
+  private List<String> readRows( File file, String compression, int copyNr, int copies ) throws Exception {
+    CsvInputMeta meta = createMeta( file, createInputFileFields( "id", "name", "flag" ) );
+    meta.setFileCompression( compression );
+    meta.setLazyConversionActive( false );
+    meta.setHeaderPresent( true );
+    meta.setRunningInParallel( copies > 1 );
+    CsvInputData data = new CsvInputData();
+
+    CsvInput csvInput = new CsvInput( transformMockHelper.transformMeta, meta, data, 0, transformMockHelper.pipelineMeta,
+      transformMockHelper.pipeline );
+    assertTrue( csvInput.init() );
+    if ( copies > 1 ) {
+      data.parallel = true;
+      data.transformNumber = copyNr;
+      data.totalNumberOfTransforms = copies;
+    }
+
+    final List<String> rows = new ArrayList<>();
+    csvInput.addRowListener( new RowAdapter() {
+      @Override
+      public void rowWrittenEvent( IRowMeta rowMeta, Object[] row ) throws HopTransformException {
+        rows.add( row[ 0 ] + "," + row[ 1 ] + "," + row[ 2 ] );
+      }
+    } );
+
+    boolean haveRowsToRead;
+    do {
+      haveRowsToRead = !csvInput.processRow();
+    } while ( !haveRowsToRead );
+
+    csvInput.dispose();
+    return rows;
+  }
+
+  private static byte[] createContent( int nrRows ) {
+    StringBuilder content = new StringBuilder( "id,name,flag\n" );
+    for ( int i = 0; i < nrRows; i++ ) {
+      content.append( i ).append( ",name" ).append( i ).append( ",x" ).append( i % 3 == 0 ? "\r\n" : "\n" );
+    }
+    return content.toString().getBytes( StandardCharsets.UTF_8 );
+  }
+
+  private static File createCompressedFile( String extension ) throws IOException {
+    File file = File.createTempFile( "PDI_tmp", extension );
+    file.deleteOnExit();
+    return file;
+  }
+
+  /**
+   * @return a gzip member with the BGZF extra field holding the size of the member
+   */
+  private static byte[] bgzfBlock( byte[] data ) {
+    Deflater deflater = new Deflater( Deflater.DEFAULT_COMPRESSION, true );
+    deflater.setInput( data );
+    deflater.finish();
+    byte[] compressed = new byte[ data.length + 1024 ];
+    int compressedLength = deflater.deflate( compressed );
+    deflater.end();
+
+    CRC32 crc = new CRC32();
+    crc.update( data );
+
+    ByteBuffer block = ByteBuffer.allocate( 18 + compressedLength + 8 ).order( ByteOrder.LITTLE_ENDIAN );
+    block.put( (byte) 0x1f ).put( (byte) 0x8b ).put( (byte) 8 ).put( (byte) 4 ).putInt( 0 ).put( (byte) 0 )
+      .put( (byte) 0xff ).putShort( (short) 6 ).put( (byte) 'B' ).put( (byte) 'C' ).putShort( (short) 2 )
+      .putShort( (short) ( block.capacity() - 1 ) );
+    block.put( compressed, 0, compressedLength );
+    block.putInt( (int) crc.getValue() ).putInt( data.length );
+    return block.array();
+  }
+}
@@ -0,0 +1,201 @@
+/*! ******************************************************************************
+ *
+ * Hop : The Hop Orchestration Platform
+ *
+ * Copyright (C) 2002-2019 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+
+package org.apache.hop.pipeline.transforms.csvinput;
+
+import org.apache.hop.core.exception.HopException;
+import org.apache.hop.core.exception.HopTransformException;
+import org.apache.hop.core.logging.ILoggingObject;
+import org.apache.hop.core.row.IRowMeta;
+import org.apache.hop.junit.rules.RestoreHopEngineEnvironment;
+import org.apache.hop.pipeline.transform.RowAdapter;
+import org.apache.hop.pipeline.transforms.mock.TransformMockHelper;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.when;
+
+/**
+ * Compares the rows read from memory-mapped files with the rows read through the regular buffer.
+ *
+ * @see MappedCsvReader
+ */
+public class CsvInputMemoryMappedTest extends CsvInputUnitTestBase {
+  @ClassRule public static RestoreHopEngineEnvironment env = new RestoreHopEngineEnvironment();
+
+  private static TransformMockHelper<CsvInputMeta, CsvInputData> transformMockHelper;
+
+  @BeforeClass
+  public static void setUp() throws HopException {
+    transformMockHelper =
+      TransformMockUtil.getTransformMockHelper( CsvInputMeta.class, CsvInputData.class, "CsvInputMemoryMappedTest" );
+    when( transformMockHelper.logChannelFactory.create( any(), any( ILoggingObject.class ) ) )
+      .thenReturn( transformMockHelper.logChannelInterface );
+    when( transformMockHelper.pipeline.isRunning() ).thenReturn( true );
+  }
+
+  @AfterClass
+  public static void cleanUp() {
+    transformMockHelper.cleanUp();
+  }
+
+  @Test
+  public void testSameRowsAsBuffered() throws Exception {
+    Random random = new Random( 42 );
+    for ( int i = 0; i < 20; i++ ) {
+      File file = createTestFile( ENCODING, randomContent( random, 200, true ) );
+      for ( boolean lazy : new boolean[] { false, true } ) {
+        List<Object[]> expected = readRows( file, false, lazy, true, 0, 1 );
+        List<Object[]> actual = readRows( file, true, lazy, true, 0, 1 );
+        assertRowsEqual( expected, actual );
+      }
+    }
+  }
+
+  @Test
+  public void testSameRowsWithoutNewlinesInFields() throws Exception {
+    Random random = new Random( 7 );
+    for ( int i = 0; i < 20; i++ ) {
+      File file = createTestFile( ENCODING, randomContent( random, 200, false ) );
+      assertRowsEqual( readRows( file, false, false, false, 0, 1 ), readRows( file, true, false, false, 0, 1 ) );
+    }
+  }
+
+  @Test
+  public void testEmptyFile() throws Exception {
+    File file = createTestFile( ENCODING, "" );
+    assertEquals( 0, readRows( file, true, false, true, 0, 1 ).size() );
+  }
+
+  @Test
+  public void testParallelCopiesReadEveryRowOnce() throws Exception {
+    Random random = new Random( 3 );
+    for ( int i = 0; i < 10; i++ ) {
+      File file = createTestFile( ENCODING, randomContent( random, 300, false ) );
+      int expected = readRows( file, false, false, false, 0, 1 ).size();
+      for ( int copies = 2; copies <= 5; copies++ ) {
+        int total = 0;
+        for ( int copy = 0; copy < copies; copy++ ) {
+          total += readRows( file, true, false, false, copy, copies ).size();
+        }
+        assertEquals( expected, total );
+      }
+    }
+  }
+
+  private List<Object[]> readRows( File file, boolean memoryMapped, boolean lazy, boolean newlinePossible,
+                                   int copyNr, int copies ) throws Exception {
+    CsvInputMeta meta = createMeta( file, createInputFileFields( "a", "b", "c" ) );
+    meta.setMemoryMapped( memoryMapped );
+    meta.setLazyConversionActive( lazy );
+    meta.setNewlinePossibleInFields( newlinePossible );
+    meta.setRunningInParallel( copies > 1 );
+    CsvInputData data = new CsvInputData();
+
+    CsvInput csvInput = new CsvInput( transformMockHelper.transformMeta, meta, data, 0, transformMockHelper.pipelineMeta,
+      transformMockHelper.pipeline );
+    assertTrue( csvInput.init() );
+    assertEquals( memoryMapped, data.memoryMapped );
+    // Small windows to make sure rows and fields span several mappings
+    //
+    data.mappedWindowSize = 1024;
+    if ( copies > 1 ) {
+      data.parallel = true;
+      data.transformNumber = copyNr;
+      data.totalNumberOfTransforms = copies;
+    }
+
+    final List<Object[]> rows = new ArrayList<>();
+    csvInput.addRowListener( new RowAdapter() {
+      @Override
+      public void rowWrittenEvent( IRowMeta rowMeta, Object[] row ) throws HopTransformException {
+        rows.add( Arrays.copyOf( row, rowMeta.size() ) );
+      }
+    } );
+
+    boolean haveRowsToRead;
+    do {
+      haveRowsToRead = !csvInput.processRow();
+    } while ( !haveRowsToRead );
+
+    csvInput.dispose();
+    return rows;
+  }
+
+  private static String randomContent( Random random, int nrRows, boolean newlinesInFields ) {
+    StringBuilder content = new StringBuilder();
+    for ( int row = 0; row < nrRows; row++ ) {
+      int nrFields = 1 + random.nextInt( 4 );
+      for ( int field = 0; field < nrFields; field++ ) {
+        if ( field > 0 ) {
+          content.append( ',' );
+        }
+        if ( random.nextInt( 3 ) == 0 ) {
+          content.append( '"' );
+          int length = random.nextInt( 30 );
+          for ( int i = 0; i < length; i++ ) {
+            switch ( random.nextInt( 5 ) ) {
+              case 0:
+                content.append( ',' );
+                break;
+              case 1:
+                content.append( "\"\"" );
+                break;
+              case 2:
+                content.append( newlinesInFields ? "\r\n" : "b" );
+                break;
+              default:
+                content.append( 'a' );
+            }
+          }
+          content.append( '"' );
+        } else {
+          int length = random.nextInt( 90 );
+          for ( int i = 0; i < length; i++ ) {
+            content.append( (char) ( 'a' + random.nextInt( 26 ) ) );
+          }
+        }
+      }
+      content.append( random.nextBoolean() ? "\n" : "\r\n" );
+    }
+    return content.toString();
+  }
+
+  private static void assertRowsEqual( List<Object[]> expected, List<Object[]> actual ) {
+    assertEquals( expected.size(), actual.size() );
+    for ( int i = 0; i < expected.size(); i++ ) {
+      assertTrue( "Row " + i + " differs", Arrays.deepEquals( expected.get( i ), actual.get( i ) ) );
+    }
+  }
+}
@@ -27,6 +27,7 @@ import org.apache.commons.vfs2.FileContent;
 import org.apache.commons.vfs2.FileObject;
 import org.apache.hop.core.HopEnvironment;
 import org.apache.hop.core.IRowSet;
+import org.apache.hop.core.QueueRowSet;
 import org.apache.hop.core.exception.HopFileException;
 import org.apache.hop.core.fileinput.FileInputList;
 import org.apache.hop.core.logging.ILogChannel;
@@ -52,6 +53,7 @@ import org.apache.hop.utils.TestUtils;
 import org.junit.BeforeClass;
 import org.junit.ClassRule;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mockito;
 
 import java.io.ByteArrayInputStream;
@@ -64,6 +66,10 @@ import java.util.ArrayList;
 import java.util.List;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.anyString;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
@@ -256,6 +262,53 @@ public class TextFileInputTest {
     assertEquals( 0, textFileInput.getErrors() );
   }
 
+  @Test
+  public void testRejectFileWithInputHop() throws Exception {
+    final String virtualFile = createVirtualFile( "reject-with-input-hop.txt", "123\n" );
+
+    TextFileInputMeta meta = createMetaObject( field( "col1" ) );
+    meta.errorHandling.errorIgnored = true;
+    meta.errorHandling.skipBadFiles = true;
+    meta.errorHandling.fileErrorField = "file_error";
+    meta.errorHandling.fileErrorMessageField = "error_message";
+
+    TextFileInputData data = createDataObject( virtualFile, ";", "col1" );
+
+    TestTextFileInput textFileInput = Mockito.spy( TransformMockUtil.getTransform( TestTextFileInput.class, meta, data, TextFileInputMeta.class, TextFileInputData.class, "test" ) );
+    TransformMeta transformMeta = textFileInput.getTransformMeta();
+    Mockito.doReturn( true ).when( transformMeta ).isDoingErrorHandling();
+    Mockito.doNothing().when( textFileInput ).putError( any( IRowMeta.class ), any( Object[].class ), anyLong(),
+      anyString(), anyString(), anyString() );
+
+    IRowMeta inputRowMeta = new RowMeta();
+    inputRowMeta.addValueMeta( new ValueMetaString( "field" ) );
+    IRowSet inputRowSet = new QueueRowSet();
+    inputRowSet.putRow( inputRowMeta, new Object[] { "a" } );
+    inputRowSet.putRow( inputRowMeta, new Object[] { "b" } );
+    inputRowSet.setDone();
+    textFileInput.addRowSetToInputRowSets( inputRowSet );
+
+    // Reading from the input hop freezes the input row metadata, as it does by default after init()
+    //
+    textFileInput.setFreezingInputRowMeta( true );
+    textFileInput.getRow();
+    assertTrue( textFileInput.getInputRowMeta().isImmutable() );
+
+    PipelineTestingUtil.execute( textFileInput, 0, false );
+    deleteVfsFile( virtualFile );
+
+    ArgumentCaptor<IRowMeta> errorRowMeta = ArgumentCaptor.forClass( IRowMeta.class );
+    ArgumentCaptor<Object[]> errorRow = ArgumentCaptor.forClass( Object[].class );
+    Mockito.verify( textFileInput ).putError( errorRowMeta.capture(), errorRow.capture(), anyLong(), anyString(),
+      anyString(), anyString() );
+
+    assertEquals( 3, errorRowMeta.getValue().size() );
+    assertEquals( "b", errorRow.getValue()[ 0 ] );
+    assertEquals( data.filename, errorRow.getValue()[ errorRowMeta.getValue().indexOfValue( "file_error" ) ] );
+    Assert.assertNotNull( errorRow.getValue()[ errorRowMeta.getValue().indexOfValue( "error_message" ) ] );
+    assertEquals( 1, textFileInput.getInputRowMeta().size() );
+  }
+
   @Test
   public void test_PDI17117() throws Exception {
     final String virtualFile = createVirtualFile( "pdi-14832.txt", "1,\n" );
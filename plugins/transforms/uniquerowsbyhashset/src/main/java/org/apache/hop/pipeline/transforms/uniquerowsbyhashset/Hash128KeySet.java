@@ -0,0 +1,154 @@
+/*! ******************************************************************************
+ *
+ * Hop : The Hop Orchestration Platform
+ *
+ * Copyright (C) 2002-2020 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+
+package org.apache.hop.pipeline.transforms.uniquerowsbyhashset;
+
+import com.google.common.hash.HashCode;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+
+/**
+ * Only keeps the 128-bit MurmurHash3 of every key, in an open addressing table of primitive longs. A key costs about
+ * 23 bytes at the standard load factor, whatever its length.<br>
+ * <br>
+ * Two different keys with the same hash are taken for duplicates, so a unique row can be dropped. With n distinct keys
+ * the probability that this happens at all is about n^2 / 2^129: roughly 1.5E-21 for a billion keys and 3.7E-19 for
+ * 16 billion. Use an exact mode when even that is not acceptable.
+ */
+class Hash128KeySet implements IUniqueKeySet {
+
+  private static final HashFunction HASH_FUNCTION = Hashing.murmur3_128();
+
+  private static final int STANDARD_INDEX_SIZE = 1024;
+  private static final float STANDARD_LOAD_FACTOR = 0.7f;
+  private static final int MAXIMUM_INDEX_SIZE = 1 << 29;
+
+  /**
+   * Two longs per slot, both 0 means empty
+   */
+  private long[] table;
+  private int mask;
+  private int resizeThreshold;
+
+  private long size;
+  private long hits;
+  private long misses;
+
+  Hash128KeySet() {
+    allocateTable( STANDARD_INDEX_SIZE );
+  }
+
+  private void allocateTable( int capacity ) {
+    table = new long[ capacity * 2 ];
+    mask = capacity - 1;
+    resizeThreshold = capacity == MAXIMUM_INDEX_SIZE ? capacity - 1 : (int) ( capacity * STANDARD_LOAD_FACTOR );
+  }
+
+  @Override
+  public boolean add( byte[] key ) {
+    HashCode hashCode = HASH_FUNCTION.hashBytes( key );
+    byte[] bytes = hashCode.asBytes();
+    long high = toLong( bytes, 0 );
+    long low = toLong( bytes, 8 );
+    if ( high == 0L && low == 0L ) {
+      // 0 marks an empty slot
+      //
+      low = 1L;
+    }
+
+    int slot = findSlot( high, low );
+    if ( table[ slot * 2 ] != 0L || table[ slot * 2 + 1 ] != 0L ) {
+      hits++;
+      return false;
+    }
+    if ( size >= resizeThreshold ) {
+      if ( table.length / 2 == MAXIMUM_INDEX_SIZE ) {
+        throw new IllegalStateException( "Unable to store more than " + size + " distinct keys" );
+      }
+      resize();
+      slot = findSlot( high, low );
+    }
+    table[ slot * 2 ] = high;
+    table[ slot * 2 + 1 ] = low;
+    size++;
+    misses++;
+    return true;
+  }
+
+  private static long toLong( byte[] bytes, int offset ) {
+    long value = 0L;
+    for ( int i = offset; i < offset + 8; i++ ) {
+      value = ( value << 8 ) | ( bytes[ i ] & 0xFFL );
+    }
+    return value;
+  }
+
+  private int findSlot( long high, long low ) {
+    int slot = (int) ( low ^ ( low >>> 32 ) ) & mask;
+    while ( table[ slot * 2 ] != 0L || table[ slot * 2 + 1 ] != 0L ) {
+      if ( table[ slot * 2 ] == high && table[ slot * 2 + 1 ] == low ) {
+        return slot;
+      }
+      slot = ( slot + 1 ) & mask;
+    }
+    return slot;
+  }
+
+  private void resize() {
+    long[] oldTable = table;
+    allocateTable( oldTable.length );
+    for ( int i = 0; i < oldTable.length; i += 2 ) {
+      if ( oldTable[ i ] != 0L || oldTable[ i + 1 ] != 0L ) {
+        int slot = findSlot( oldTable[ i ], oldTable[ i + 1 ] );
+        table[ slot * 2 ] = oldTable[ i ];
+        table[ slot * 2 + 1 ] = oldTable[ i + 1 ];
+      }
+    }
+  }
+
+  @Override
+  public long getSize() {
+    return size;
+  }
+
+  @Override
+  public long getMemoryUsage() {
+    return table.length * 8L;
+  }
+
+  @Override
+  public long getHits() {
+    return hits;
+  }
+
+  @Override
+  public long getMisses() {
+    return misses;
+  }
+
+  @Override
+  public void clear() {
+    allocateTable( STANDARD_INDEX_SIZE );
+    size = 0L;
+  }
+}
@@ -0,0 +1,64 @@
+/*! ******************************************************************************
+ *
+ * Hop : The Hop Orchestration Platform
+ *
+ * Copyright (C) 2002-2020 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+
+package org.apache.hop.pipeline.transforms.uniquerowsbyhashset;
+
+/**
+ * A set of serialized row keys (see {@link org.apache.hop.core.row.RowMeta#extractData(org.apache.hop.core.row.IRowMeta,
+ * Object[])}) which keeps track of how much memory it uses and how many duplicates it found.
+ */
+interface IUniqueKeySet {
+
+  /**
+   * Add a key to the set
+   *
+   * @param key the serialized key
+   * @return true if the key wasn't in the set yet
+   */
+  boolean add( byte[] key );
+
+  /**
+   * @return the number of distinct keys in the set
+   */
+  long getSize();
+
+  /**
+   * @return the (estimated) number of heap bytes used by the set
+   */
+  long getMemoryUsage();
+
+  /**
+   * @return the number of keys which were already in the set when added
+   */
+  long getHits();
+
+  /**
+   * @return the number of keys which were new when added
+   */
+  long getMisses();
+
+  /**
+   * Remove all keys and give back the memory
+   */
+  void clear();
+}
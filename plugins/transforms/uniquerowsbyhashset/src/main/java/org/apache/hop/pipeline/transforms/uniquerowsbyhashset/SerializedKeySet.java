@@ -0,0 +1,200 @@
+/*! ******************************************************************************
+ *
+ * Hop : The Hop Orchestration Platform
+ *
+ * Copyright (C) 2002-2020 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+
+package org.apache.hop.pipeline.transforms.uniquerowsbyhashset;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Stores the serialized keys back to back in large byte arrays and indexes them with an open addressing table of
+ * primitive addresses and hash codes. This avoids the object headers, references and boxed values of a
+ * HashSet&lt;RowKey&gt;: a key costs its serialized length plus 4 bytes of length and, at the standard load factor,
+ * about 17 bytes of table.
+ */
+class SerializedKeySet implements IUniqueKeySet {
+
+  static final int CHUNK_SIZE = 1024 * 1024;
+
+  private static final int STANDARD_INDEX_SIZE = 1024;
+  private static final float STANDARD_LOAD_FACTOR = 0.7f;
+  private static final int MAXIMUM_INDEX_SIZE = 1 << 30;
+  private static final long EMPTY = -1L;
+
+  private final List<byte[]> chunks = new ArrayList<>();
+  private byte[] chunk;
+  private int chunkPosition;
+  private long chunkBytes;
+
+  /**
+   * For every slot: the address of the key (chunk number in the high and offset in the low 32 bits) or EMPTY.
+   */
+  private long[] addresses;
+  private int[] hashCodes;
+  private int mask;
+  private int resizeThreshold;
+
+  private long size;
+  private long hits;
+  private long misses;
+
+  SerializedKeySet() {
+    allocateTable( STANDARD_INDEX_SIZE );
+  }
+
+  private void allocateTable( int capacity ) {
+    addresses = new long[ capacity ];
+    Arrays.fill( addresses, EMPTY );
+    hashCodes = new int[ capacity ];
+    mask = capacity - 1;
+    resizeThreshold = capacity == MAXIMUM_INDEX_SIZE ? capacity - 1 : (int) ( capacity * STANDARD_LOAD_FACTOR );
+  }
+
+  static int hash( byte[] key ) {
+    int h = Arrays.hashCode( key );
+    return h ^ ( h >>> 16 );
+  }
+
+  @Override
+  public boolean add( byte[] key ) {
+    int hashCode = hash( key );
+    int slot = findSlot( key, hashCode );
+    if ( addresses[ slot ] != EMPTY ) {
+      hits++;
+      return false;
+    }
+    if ( size >= resizeThreshold ) {
+      if ( addresses.length == MAXIMUM_INDEX_SIZE ) {
+        throw new IllegalStateException( "Unable to store more than " + size + " distinct keys" );
+      }
+      resize();
+      slot = findSlot( key, hashCode );
+    }
+    addresses[ slot ] = append( key );
+    hashCodes[ slot ] = hashCode;
+    size++;
+    misses++;
+    return true;
+  }
+
+  /**
+   * @param key the serialized key
+   * @return true if the key is in the set. This doesn't count as a hit or miss.
+   */
+  boolean contains( byte[] key ) {
+    return addresses[ findSlot( key, hash( key ) ) ] != EMPTY;
+  }
+
+  private int findSlot( byte[] key, int hashCode ) {
+    int slot = hashCode & mask;
+    while ( addresses[ slot ] != EMPTY ) {
+      if ( hashCodes[ slot ] == hashCode && keyEquals( addresses[ slot ], key ) ) {
+        return slot;
+      }
+      slot = ( slot + 1 ) & mask;
+    }
+    return slot;
+  }
+
+  private boolean keyEquals( long address, byte[] key ) {
+    byte[] stored = chunks.get( (int) ( address >>> 32 ) );
+    int offset = (int) address;
+    int length = ( ( stored[ offset ] & 0xFF ) << 24 ) | ( ( stored[ offset + 1 ] & 0xFF ) << 16 )
+      | ( ( stored[ offset + 2 ] & 0xFF ) << 8 ) | ( stored[ offset + 3 ] & 0xFF );
+    if ( length != key.length ) {
+      return false;
+    }
+    offset += 4;
+    for ( int i = 0; i < length; i++ ) {
+      if ( stored[ offset + i ] != key[ i ] ) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private long append( byte[] key ) {
+    int recordSize = 4 + key.length;
+    if ( chunk == null || chunk.length - chunkPosition < recordSize ) {
+      chunk = new byte[ Math.max( CHUNK_SIZE, recordSize ) ];
+      chunks.add( chunk );
+      chunkPosition = 0;
+      chunkBytes += chunk.length;
+    }
+    int offset = chunkPosition;
+    chunk[ offset ] = (byte) ( key.length >>> 24 );
+    chunk[ offset + 1 ] = (byte) ( key.length >>> 16 );
+    chunk[ offset + 2 ] = (byte) ( key.length >>> 8 );
+    chunk[ offset + 3 ] = (byte) key.length;
+    System.arraycopy( key, 0, chunk, offset + 4, key.length );
+    chunkPosition += recordSize;
+    return ( (long) ( chunks.size() - 1 ) << 32 ) | offset;
+  }
+
+  private void resize() {
+    long[] oldAddresses = addresses;
+    int[] oldHashCodes = hashCodes;
+    allocateTable( oldAddresses.length << 1 );
+    for ( int i = 0; i < oldAddresses.length; i++ ) {
+      if ( oldAddresses[ i ] != EMPTY ) {
+        int slot = oldHashCodes[ i ] & mask;
+        while ( addresses[ slot ] != EMPTY ) {
+          slot = ( slot + 1 ) & mask;
+        }
+        addresses[ slot ] = oldAddresses[ i ];
+        hashCodes[ slot ] = oldHashCodes[ i ];
+      }
+    }
+  }
+
+  @Override
+  public long getSize() {
+    return size;
+  }
+
+  @Override
+  public long getMemoryUsage() {
+    return chunkBytes + addresses.length * 12L;
+  }
+
+  @Override
+  public long getHits() {
+    return hits;
+  }
+
+  @Override
+  public long getMisses() {
+    return misses;
+  }
+
+  @Override
+  public void clear() {
+    chunks.clear();
+    chunk = null;
+    chunkPosition = 0;
+    chunkBytes = 0L;
+    allocateTable( STANDARD_INDEX_SIZE );
+    size = 0L;
+  }
+}
@@ -0,0 +1,285 @@
+/*! ******************************************************************************
+ *
+ * Hop : The Hop Orchestration Platform
+ *
+ * Copyright (C) 2002-2020 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+
+package org.apache.hop.pipeline.transforms.uniquerowsbyhashset;
+
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+import org.apache.commons.vfs2.FileObject;
+import org.apache.commons.vfs2.FileSystemException;
+import org.apache.hop.core.exception.HopException;
+import org.apache.hop.core.row.IRowMeta;
+import org.apache.hop.core.vfs.HopVfs;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * An exact set of serialized keys which stays within a memory budget by spilling to disk.<br>
+ * <br>
+ * Keys are kept in a {@link SerializedKeySet} until it uses more memory than the budget. From then on, a row whose
+ * key is in memory is still recognized as a duplicate right away. Any other row is written, together with its key,
+ * to one of a number of partition files chosen by a hash of the key. All occurrences of a key end up in the same
+ * partition, so once the input is done every partition is deduplicated on its own, spilling again (with a different
+ * hash) if it doesn't fit either. The unique rows of the partitions are only known at the end, after the rows which
+ * were decided in memory.
+ */
+class SpillingKeySet {
+
+  enum Result {
+    UNIQUE, DUPLICATE, SPILLED
+  }
+
+  interface IRowListener {
+    void rowDecided( Object[] row, boolean unique ) throws HopException;
+  }
+
+  static final int NR_PARTITIONS = 16;
+
+  /**
+   * Past this level partitions are no longer split, they are deduplicated in memory whatever their size.
+   */
+  private static final int MAXIMUM_LEVEL = 4;
+
+  private final IRowMeta rowMeta;
+  private final long memoryBudget;
+  private final String spillDirectory;
+  private final int level;
+  private final HashFunction partitionFunction;
+
+  private SerializedKeySet keys;
+  private boolean spilling;
+  private FileObject[] partitionFiles;
+  private DataOutputStream[] partitionStreams;
+  private long[] partitionRows;
+
+  private long hits;
+  private long misses;
+  private long spilledRows;
+  private long spillFiles;
+  private long peakMemoryUsage;
+
+  /**
+   * @param rowMeta      the layout of the rows to spill
+   * @param memoryBudget   the number of bytes the keys can take in memory before spilling starts, 0 or less means
+   *                       unlimited
+   * @param spillDirectory the directory to write the partition files to
+   */
+  SpillingKeySet( IRowMeta rowMeta, long memoryBudget, String spillDirectory ) {
+    this( rowMeta, memoryBudget, spillDirectory, 0 );
+  }
+
+  private SpillingKeySet( IRowMeta rowMeta, long memoryBudget, String spillDirectory, int level ) {
+    this.rowMeta = rowMeta;
+    this.memoryBudget = memoryBudget;
+    this.spillDirectory = spillDirectory;
+    this.level = level;
+    this.partitionFunction = Hashing.murmur3_32( level );
+    this.keys = new SerializedKeySet();
+  }
+
+  /**
+   * @param key the serialized key of the row
+   * @param row the row, written to disk if its key can't be decided in memory
+   * @return whether the row is unique, a duplicate or will be decided in {@link #processSpilledRows(IRowListener)}
+   */
+  Result add( byte[] key, Object[] row ) throws HopException {
+    if ( !spilling ) {
+      if ( !keys.add( key ) ) {
+        hits++;
+        return Result.DUPLICATE;
+      }
+      misses++;
+      peakMemoryUsage = Math.max( peakMemoryUsage, keys.getMemoryUsage() );
+      if ( memoryBudget > 0 && level < MAXIMUM_LEVEL && keys.getMemoryUsage() > memoryBudget ) {
+        startSpilling();
+      }
+      return Result.UNIQUE;
+    }
+
+    if ( keys.contains( key ) ) {
+      hits++;
+      return Result.DUPLICATE;
+    }
+    int partition = partitionFunction.hashBytes( key ).asInt() & ( NR_PARTITIONS - 1 );
+    try {
+      if ( partitionStreams[ partition ] == null ) {
+        partitionFiles[ partition ] = HopVfs.createTempFile( "unique", ".tmp", spillDirectory );
+        partitionStreams[ partition ] = new DataOutputStream(
+          new BufferedOutputStream( HopVfs.getOutputStream( partitionFiles[ partition ], false ) ) );
+        spillFiles++;
+      }
+      DataOutputStream outputStream = partitionStreams[ partition ];
+      outputStream.writeInt( key.length );
+      outputStream.write( key );
+      rowMeta.writeData( outputStream, row );
+    } catch ( IOException e ) {
+      throw new HopException( "Unable to write to spill file " + partitionFiles[ partition ], e );
+    }
+    partitionRows[ partition ]++;
+    spilledRows++;
+    return Result.SPILLED;
+  }
+
+  private void startSpilling() {
+    spilling = true;
+    partitionFiles = new FileObject[ NR_PARTITIONS ];
+    partitionStreams = new DataOutputStream[ NR_PARTITIONS ];
+    partitionRows = new long[ NR_PARTITIONS ];
+  }
+
+  /**
+   * Decide on all the rows which were spilled to disk, partition by partition. The keys which were decided in memory
+   * are dropped first as none of them can occur in the partitions.
+   *
+   * @param listener receives the spilled rows with their verdict
+   */
+  void processSpilledRows( IRowListener listener ) throws HopException {
+    if ( !spilling ) {
+      return;
+    }
+    keys.clear();
+    closeStreams();
+
+    for ( int partition = 0; partition < NR_PARTITIONS; partition++ ) {
+      if ( partitionFiles[ partition ] == null ) {
+        continue;
+      }
+      SpillingKeySet partitionKeys = new SpillingKeySet( rowMeta, memoryBudget, spillDirectory, level + 1 );
+      try {
+        try ( DataInputStream inputStream =
+                new DataInputStream( new BufferedInputStream( HopVfs.getInputStream( partitionFiles[ partition ] ) ) ) ) {
+          for ( long r = 0; r < partitionRows[ partition ]; r++ ) {
+            byte[] key = new byte[ inputStream.readInt() ];
+            inputStream.readFully( key );
+            Object[] row = rowMeta.readData( inputStream );
+            switch ( partitionKeys.add( key, row ) ) {
+              case UNIQUE:
+                listener.rowDecided( row, true );
+                break;
+              case DUPLICATE:
+                listener.rowDecided( row, false );
+                break;
+              default:
+                break;
+            }
+          }
+        } catch ( IOException e ) {
+          throw new HopException( "Unable to read from spill file " + partitionFiles[ partition ], e );
+        }
+        partitionKeys.processSpilledRows( listener );
+
+        hits += partitionKeys.hits;
+        misses += partitionKeys.misses;
+        spilledRows += partitionKeys.spilledRows;
+        spillFiles += partitionKeys.spillFiles;
+        peakMemoryUsage = Math.max( peakMemoryUsage, partitionKeys.peakMemoryUsage );
+      } finally {
+        partitionKeys.clear();
+      }
+
+      try {
+        partitionFiles[ partition ].delete();
+      } catch ( FileSystemException e ) {
+        throw new HopException( "Unable to remove spill file " + partitionFiles[ partition ], e );
+      }
+      partitionFiles[ partition ] = null;
+    }
+    spilling = false;
+  }
+
+  private void closeStreams() {
+    for ( int i = 0; i < NR_PARTITIONS; i++ ) {
+      if ( partitionStreams[ i ] != null ) {
+        try {
+          partitionStreams[ i ].close();
+        } catch ( IOException e ) {
+          // Reading the file will fail if something went wrong
+          //
+        }
+        partitionStreams[ i ] = null;
+      }
+    }
+  }
+
+  /**
+   * @return the number of distinct keys found so far
+   */
+  long getSize() {
+    return misses;
+  }
+
+  /**
+   * @return the highest number of heap bytes used by the keys in memory
+   */
+  long getMemoryUsage() {
+    return peakMemoryUsage;
+  }
+
+  long getHits() {
+    return hits;
+  }
+
+  long getMisses() {
+    return misses;
+  }
+
+  /**
+   * @return the number of times a row was written to disk, at any level
+   */
+  long getSpilledRows() {
+    return spilledRows;
+  }
+
+  /**
+   * @return the number of spill files created, at any level
+   */
+  long getSpillFiles() {
+    return spillFiles;
+  }
+
+  /**
+   * Give back the memory and remove the spill files which weren't processed.
+   */
+  void clear() {
+    keys.clear();
+    if ( spilling ) {
+      closeStreams();
+      for ( int i = 0; i < NR_PARTITIONS; i++ ) {
+        if ( partitionFiles[ i ] != null ) {
+          try {
+            partitionFiles[ i ].delete();
+          } catch ( FileSystemException e ) {
+            // Nothing more can be done while cleaning up
+            //
+          }
+          partitionFiles[ i ] = null;
+        }
+      }
+      spilling = false;
+    }
+  }
+}
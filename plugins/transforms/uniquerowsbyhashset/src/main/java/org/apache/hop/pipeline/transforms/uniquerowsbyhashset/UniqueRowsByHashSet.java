@@ -23,7 +23,10 @@
 
 package org.apache.hop.pipeline.transforms.uniquerowsbyhashset;
 
+import org.apache.hop.core.Const;
 import org.apache.hop.core.exception.HopException;
+import org.apache.hop.core.exception.HopTransformException;
+import org.apache.hop.core.row.RowMeta;
 import org.apache.hop.core.util.Utils;
 import org.apache.hop.i18n.BaseMessages;
 import org.apache.hop.pipeline.Pipeline;
@@ -32,7 +35,9 @@ import org.apache.hop.pipeline.transform.BaseTransform;
 import org.apache.hop.pipeline.transform.ITransformData;
 import org.apache.hop.pipeline.transform.ITransform;
 import org.apache.hop.pipeline.transform.TransformMeta;
-import org.apache.hop.pipeline.transform.ITransform;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
 
 public class UniqueRowsByHashSet extends BaseTransform<UniqueRowsByHashSetMeta, UniqueRowsByHashSetData> implements ITransform<UniqueRowsByHashSetMeta, UniqueRowsByHashSetData> {
   private static final Class<?> PKG = UniqueRowsByHashSetMeta.class; // for i18n purposes, needed by Translator!!
@@ -42,8 +47,84 @@ public class UniqueRowsByHashSet extends BaseTransform<UniqueRowsByHashSetMeta,
     super( transformMeta, meta, data, copyNr, pipelineMeta, pipeline );
   }
 
-  private boolean isUniqueRow( Object[] row ) {
-    return data.seen.add( new RowKey( row, data ) );
+  private boolean isUniqueRow( Object[] row ) throws HopException {
+    switch ( data.storageMode ) {
+      case UniqueRowsByHashSetMeta.STORAGE_MODE_SERIALIZED:
+      case UniqueRowsByHashSetMeta.STORAGE_MODE_HASH128:
+        return data.keySet.add( serializeKey( row ) );
+      default:
+        return data.seen.add( new RowKey( row, data ) );
+    }
+  }
+
+  private byte[] serializeKey( Object[] row ) throws HopException {
+    Object[] keyFields;
+    if ( data.fieldnrs.length == 0 ) {
+      keyFields = row;
+    } else {
+      keyFields = new Object[ data.fieldnrs.length ];
+      for ( int i = 0; i < data.fieldnrs.length; i++ ) {
+        keyFields[ i ] = row[ data.fieldnrs[ i ] ];
+      }
+    }
+    data.keyBytes.reset();
+    try {
+      data.keyMeta.writeData( data.keyOutputStream, keyFields );
+      data.keyOutputStream.flush();
+    } catch ( Exception e ) {
+      throw new HopTransformException( BaseMessages.getString(
+        PKG, "UniqueRowsByHashSet.Exception.UnableToSerializeKey", getInputRowMeta().getString( row ) ), e );
+    }
+    return data.keyBytes.toByteArray();
+  }
+
+  private void handleRow( Object[] row, boolean unique ) throws HopException {
+    if ( unique ) {
+      putRow( data.outputRowMeta, row );
+    } else {
+      incrementLinesRejected();
+      if ( data.sendDuplicateRows ) {
+        // Simply add this row to the error row
+        putError( getInputRowMeta(), row, 1, data.realErrorDescription, Utils.isEmpty( data.compareFields )
+          ? null : data.compareFields, "UNRH001" );
+      }
+    }
+  }
+
+  private void logStatistics() {
+    if ( !log.isDetailed() ) {
+      return;
+    }
+    long size;
+    long hits;
+    long memoryUsage;
+    switch ( data.storageMode ) {
+      case UniqueRowsByHashSetMeta.STORAGE_MODE_SERIALIZED:
+      case UniqueRowsByHashSetMeta.STORAGE_MODE_HASH128:
+        size = data.keySet.getSize();
+        hits = data.keySet.getHits();
+        memoryUsage = data.keySet.getMemoryUsage();
+        break;
+      case UniqueRowsByHashSetMeta.STORAGE_MODE_SPILL:
+        size = data.spillingKeySet.getSize();
+        hits = data.spillingKeySet.getHits();
+        memoryUsage = data.spillingKeySet.getMemoryUsage();
+        break;
+      default:
+        // The Java objects can't be measured here
+        //
+        size = data.seen.size();
+        hits = getLinesRejected();
+        memoryUsage = -1L;
+        break;
+    }
+    logDetailed( BaseMessages.getString( PKG, "UniqueRowsByHashSet.Log.Statistics",
+      UniqueRowsByHashSetMeta.getStorageModeDesc( data.storageMode ), String.valueOf( size ), String.valueOf( hits ),
+      memoryUsage < 0 ? "?" : String.valueOf( memoryUsage / ( 1024 * 1024 ) ) ) );
+    if ( data.storageMode == UniqueRowsByHashSetMeta.STORAGE_MODE_SPILL ) {
+      logDetailed( BaseMessages.getString( PKG, "UniqueRowsByHashSet.Log.SpillStatistics",
+        String.valueOf( data.spillingKeySet.getSpilledRows() ), String.valueOf( data.spillingKeySet.getSpillFiles() ) ) );
+    }
   }
 
   public boolean processRow() throws HopException {
@@ -51,6 +132,15 @@ public class UniqueRowsByHashSet extends BaseTransform<UniqueRowsByHashSetMeta,
     Object[] r = getRow(); // get row!
     if ( r == null ) { // no more input to be expected...
 
+      // In spill mode the rows which went to disk are only decided now
+      //
+      if ( data.spillingKeySet != null ) {
+        data.spillingKeySet.processSpilledRows( this::handleRow );
+      }
+      if ( !first ) {
+        logStatistics();
+      }
+
       data.clearHashSet();
       setOutputDone();
       return false;
@@ -86,17 +176,51 @@ public class UniqueRowsByHashSet extends BaseTransform<UniqueRowsByHashSetMeta,
       if ( data.sendDuplicateRows && !Utils.isEmpty( meta.getErrorDescription() ) ) {
         data.realErrorDescription = environmentSubstitute( meta.getErrorDescription() );
       }
+
+      data.storageMode = meta.getStorageMode();
+      if ( data.storageMode != UniqueRowsByHashSetMeta.STORAGE_MODE_OBJECTS ) {
+        if ( data.fieldnrs.length == 0 ) {
+          data.keyMeta = data.inputRowMeta;
+        } else {
+          data.keyMeta = new RowMeta();
+          for ( int fieldnr : data.fieldnrs ) {
+            data.keyMeta.addValueMeta( data.inputRowMeta.getValueMeta( fieldnr ) );
+          }
+        }
+        data.keyBytes = new ByteArrayOutputStream();
+        data.keyOutputStream = new DataOutputStream( data.keyBytes );
+      }
+      switch ( data.storageMode ) {
+        case UniqueRowsByHashSetMeta.STORAGE_MODE_SERIALIZED:
+          data.keySet = new SerializedKeySet();
+          break;
+        case UniqueRowsByHashSetMeta.STORAGE_MODE_HASH128:
+          data.keySet = new Hash128KeySet();
+          break;
+        case UniqueRowsByHashSetMeta.STORAGE_MODE_SPILL:
+          long memoryBudget = Const.toLong( environmentSubstitute( meta.getMemoryBudget() ), 0L ) * 1024 * 1024;
+          data.spillingKeySet =
+            new SpillingKeySet( data.inputRowMeta, memoryBudget, environmentSubstitute( meta.getSpillDirectory() ) );
+          break;
+        default:
+          break;
+      }
     }
 
-    if ( isUniqueRow( r ) ) {
-      putRow( data.outputRowMeta, r );
-    } else {
-      incrementLinesRejected();
-      if ( data.sendDuplicateRows ) {
-        // Simply add this row to the error row
-        putError( getInputRowMeta(), r, 1, data.realErrorDescription, Utils.isEmpty( data.compareFields )
-          ? null : data.compareFields, "UNRH001" );
+    if ( data.spillingKeySet != null ) {
+      switch ( data.spillingKeySet.add( serializeKey( r ), r ) ) {
+        case UNIQUE:
+          handleRow( r, true );
+          break;
+        case DUPLICATE:
+          handleRow( r, false );
+          break;
+        default:
+          // Decided when all rows are read
+          break;
       }
+    } else {
+      handleRow( r, isUniqueRow( r ) );
     }
 
     if ( checkFeedback( getLinesRead() ) ) {
@@ -118,4 +242,13 @@ public class UniqueRowsByHashSet extends BaseTransform<UniqueRowsByHashSetMeta,
     return false;
   }
 
+  @Override
+  public void dispose() {
+    // Remove the spill files when stopped before the end of the input
+    //
+    if ( data.spillingKeySet != null ) {
+      data.spillingKeySet.clear();
+    }
+    super.dispose();
+  }
 }
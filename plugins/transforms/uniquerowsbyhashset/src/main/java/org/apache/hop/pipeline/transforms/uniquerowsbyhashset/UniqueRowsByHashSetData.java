@@ -26,6 +26,8 @@ import org.apache.hop.core.row.IRowMeta;
 import org.apache.hop.pipeline.transform.BaseTransformData;
 import org.apache.hop.pipeline.transform.ITransformData;
 
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
 import java.util.HashSet;
 
 public class UniqueRowsByHashSetData extends BaseTransformData implements ITransformData {
@@ -39,11 +41,37 @@ public class UniqueRowsByHashSetData extends BaseTransformData implements ITrans
 
   public HashSet<RowKey> seen = new HashSet<RowKey>();
 
+  public int storageMode;
+
+  /**
+   * The layout of the serialized keys
+   */
+  public IRowMeta keyMeta;
+  ByteArrayOutputStream keyBytes;
+  DataOutputStream keyOutputStream;
+
+  /**
+   * The keys in the serialized and hash128 storage modes
+   */
+  IUniqueKeySet keySet;
+
+  /**
+   * The keys in the spill storage mode
+   */
+  SpillingKeySet spillingKeySet;
+
   public UniqueRowsByHashSetData() {
     super();
   }
 
   public void clearHashSet() {
+    seen.clear();
+    if ( keySet != null ) {
+      keySet.clear();
+    }
+    if ( spillingKeySet != null ) {
+      spillingKeySet.clear();
+    }
     sendDuplicateRows = false;
     compareFields = null;
     realErrorDescription = null;
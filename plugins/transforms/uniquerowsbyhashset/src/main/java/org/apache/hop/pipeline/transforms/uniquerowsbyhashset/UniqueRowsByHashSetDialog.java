@@ -32,12 +32,14 @@ import org.apache.hop.pipeline.PipelineMeta;
 import org.apache.hop.pipeline.transform.BaseTransformMeta;
 import org.apache.hop.pipeline.transform.ITransformDialog;
 import org.apache.hop.pipeline.transform.TransformMeta;
+import org.apache.hop.ui.core.dialog.BaseDialog;
 import org.apache.hop.ui.core.dialog.ErrorDialog;
 import org.apache.hop.ui.core.widget.ColumnInfo;
 import org.apache.hop.ui.core.widget.TableView;
 import org.apache.hop.ui.core.widget.TextVar;
 import org.apache.hop.ui.pipeline.transform.BaseTransformDialog;
 import org.eclipse.swt.SWT;
+import org.eclipse.swt.custom.CCombo;
 import org.eclipse.swt.events.*;
 import org.eclipse.swt.layout.FormAttachment;
 import org.eclipse.swt.layout.FormData;
@@ -65,6 +67,16 @@ public class UniqueRowsByHashSetDialog extends BaseTransformDialog implements IT
   private Label wlErrorDesc;
   private TextVar wErrorDesc;
 
+  private Label wlStoreValues;
+  private CCombo wStorageMode;
+
+  private Label wlMemoryBudget;
+  private TextVar wMemoryBudget;
+
+  private Label wlSpillDirectory;
+  private Button wbSpillDirectory;
+  private TextVar wSpillDirectory;
+
   public UniqueRowsByHashSetDialog( Shell parent, Object in, PipelineMeta pipelineMeta, String sname ) {
     super( parent, (BaseTransformMeta) in, pipelineMeta, sname );
     input = (UniqueRowsByHashSetMeta) in;
@@ -124,7 +136,7 @@ public class UniqueRowsByHashSetDialog extends BaseTransformDialog implements IT
     SettingsgroupLayout.marginHeight = 10;
     wSettings.setLayout( SettingsgroupLayout );
 
-    Label wlStoreValues = new Label(wSettings, SWT.RIGHT);
+    wlStoreValues = new Label(wSettings, SWT.RIGHT);
     wlStoreValues.setText( BaseMessages.getString( PKG, "UniqueRowsByHashSetDialog.StoreValues.Label" ) );
     props.setLook(wlStoreValues);
     FormData fdlStoreValues = new FormData();
@@ -184,6 +196,75 @@ public class UniqueRowsByHashSetDialog extends BaseTransformDialog implements IT
     fdErrorDesc.right = new FormAttachment( 100, 0 );
     wErrorDesc.setLayoutData(fdErrorDesc);
 
+    Label wlStorageMode = new Label(wSettings, SWT.RIGHT);
+    wlStorageMode.setText( BaseMessages.getString( PKG, "UniqueRowsByHashSetDialog.StorageMode.Label" ) );
+    props.setLook(wlStorageMode);
+    FormData fdlStorageMode = new FormData();
+    fdlStorageMode.left = new FormAttachment( 0, 0 );
+    fdlStorageMode.top = new FormAttachment( wErrorDesc, margin );
+    fdlStorageMode.right = new FormAttachment( middle, -margin );
+    wlStorageMode.setLayoutData(fdlStorageMode);
+    wStorageMode = new CCombo( wSettings, SWT.BORDER | SWT.READ_ONLY );
+    props.setLook( wStorageMode );
+    wStorageMode.setItems( UniqueRowsByHashSetMeta.storageModeDesc );
+    wStorageMode.setToolTipText( BaseMessages.getString( PKG, "UniqueRowsByHashSetDialog.StorageMode.ToolTip" ) );
+    FormData fdStorageMode = new FormData();
+    fdStorageMode.left = new FormAttachment( middle, 0 );
+    fdStorageMode.top = new FormAttachment( wlStorageMode, 0, SWT.CENTER );
+    fdStorageMode.right = new FormAttachment( 100, 0 );
+    wStorageMode.setLayoutData(fdStorageMode);
+    wStorageMode.addSelectionListener( new SelectionAdapter() {
+      public void widgetSelected( SelectionEvent e ) {
+        input.setChanged();
+        setStorageMode();
+      }
+    } );
+
+    wlMemoryBudget = new Label(wSettings, SWT.RIGHT);
+    wlMemoryBudget.setText( BaseMessages.getString( PKG, "UniqueRowsByHashSetDialog.MemoryBudget.Label" ) );
+    props.setLook(wlMemoryBudget);
+    FormData fdlMemoryBudget = new FormData();
+    fdlMemoryBudget.left = new FormAttachment( 0, 0 );
+    fdlMemoryBudget.top = new FormAttachment( wStorageMode, margin );
+    fdlMemoryBudget.right = new FormAttachment( middle, -margin );
+    wlMemoryBudget.setLayoutData(fdlMemoryBudget);
+    wMemoryBudget = new TextVar( pipelineMeta, wSettings, SWT.SINGLE | SWT.LEFT | SWT.BORDER );
+    props.setLook( wMemoryBudget );
+    wMemoryBudget.addModifyListener( lsMod );
+    FormData fdMemoryBudget = new FormData();
+    fdMemoryBudget.left = new FormAttachment( middle, 0 );
+    fdMemoryBudget.top = new FormAttachment( wlMemoryBudget, 0, SWT.CENTER );
+    fdMemoryBudget.right = new FormAttachment( 100, 0 );
+    wMemoryBudget.setLayoutData(fdMemoryBudget);
+
+    wlSpillDirectory = new Label(wSettings, SWT.RIGHT);
+    wlSpillDirectory.setText( BaseMessages.getString( PKG, "UniqueRowsByHashSetDialog.SpillDirectory.Label" ) );
+    props.setLook(wlSpillDirectory);
+    FormData fdlSpillDirectory = new FormData();
+    fdlSpillDirectory.left = new FormAttachment( 0, 0 );
+    fdlSpillDirectory.top = new FormAttachment( wMemoryBudget, margin );
+    fdlSpillDirectory.right = new FormAttachment( middle, -margin );
+    wlSpillDirectory.setLayoutData(fdlSpillDirectory);
+
+    wbSpillDirectory = new Button(wSettings, SWT.PUSH | SWT.CENTER);
+    props.setLook(wbSpillDirectory);
+    wbSpillDirectory.setText( BaseMessages.getString( PKG, "System.Button.Browse" ) );
+    FormData fdbSpillDirectory = new FormData();
+    fdbSpillDirectory.right = new FormAttachment( 100, 0 );
+    fdbSpillDirectory.top = new FormAttachment( wMemoryBudget, margin );
+    wbSpillDirectory.setLayoutData(fdbSpillDirectory);
+
+    wSpillDirectory = new TextVar( pipelineMeta, wSettings, SWT.SINGLE | SWT.LEFT | SWT.BORDER );
+    props.setLook( wSpillDirectory );
+    wSpillDirectory.addModifyListener( lsMod );
+    FormData fdSpillDirectory = new FormData();
+    fdSpillDirectory.left = new FormAttachment( middle, 0 );
+    fdSpillDirectory.top = new FormAttachment( wbSpillDirectory, 0, SWT.CENTER );
+    fdSpillDirectory.right = new FormAttachment(wbSpillDirectory, -margin );
+    wSpillDirectory.setLayoutData(fdSpillDirectory);
+
+    wbSpillDirectory.addListener( SWT.Selection, e-> BaseDialog.presentDirectoryDialog( shell, wSpillDirectory, pipelineMeta ) );
+
     FormData fdSettings = new FormData();
     fdSettings.left = new FormAttachment( 0, margin );
     fdSettings.top = new FormAttachment( wTransformName, margin );
@@ -279,6 +360,7 @@ public class UniqueRowsByHashSetDialog extends BaseTransformDialog implements IT
 
     getData();
     setErrorDesc();
+    setStorageMode();
     input.setChanged( changed );
 
     shell.open();
@@ -295,6 +377,19 @@ public class UniqueRowsByHashSetDialog extends BaseTransformDialog implements IT
     wErrorDesc.setEnabled( wRejectDuplicateRow.getSelection() );
   }
 
+  private void setStorageMode() {
+    int storageMode = UniqueRowsByHashSetMeta.getStorageModeByDesc( wStorageMode.getText() );
+    // Only the Java objects mode can compare by hash code only
+    //
+    wlStoreValues.setEnabled( storageMode == UniqueRowsByHashSetMeta.STORAGE_MODE_OBJECTS );
+    wStoreValues.setEnabled( storageMode == UniqueRowsByHashSetMeta.STORAGE_MODE_OBJECTS );
+    wlMemoryBudget.setEnabled( storageMode == UniqueRowsByHashSetMeta.STORAGE_MODE_SPILL );
+    wMemoryBudget.setEnabled( storageMode == UniqueRowsByHashSetMeta.STORAGE_MODE_SPILL );
+    wlSpillDirectory.setEnabled( storageMode == UniqueRowsByHashSetMeta.STORAGE_MODE_SPILL );
+    wbSpillDirectory.setEnabled( storageMode == UniqueRowsByHashSetMeta.STORAGE_MODE_SPILL );
+    wSpillDirectory.setEnabled( storageMode == UniqueRowsByHashSetMeta.STORAGE_MODE_SPILL );
+  }
+
   protected void setComboBoxes() {
     // Something was changed in the row.
     //
@@ -321,6 +416,9 @@ public class UniqueRowsByHashSetDialog extends BaseTransformDialog implements IT
     if ( input.getErrorDescription() != null ) {
       wErrorDesc.setText( input.getErrorDescription() );
     }
+    wStorageMode.setText( UniqueRowsByHashSetMeta.getStorageModeDesc( input.getStorageMode() ) );
+    wMemoryBudget.setText( Const.NVL( input.getMemoryBudget(), "" ) );
+    wSpillDirectory.setText( Const.NVL( input.getSpillDirectory(), "" ) );
     for ( int i = 0; i < input.getCompareFields().length; i++ ) {
       TableItem item = wFields.table.getItem( i );
       if ( input.getCompareFields()[ i ] != null ) {
@@ -358,6 +456,9 @@ public class UniqueRowsByHashSetDialog extends BaseTransformDialog implements IT
     input.setStoreValues( wStoreValues.getSelection() );
     input.setRejectDuplicateRow( wRejectDuplicateRow.getSelection() );
     input.setErrorDescription( wErrorDesc.getText() );
+    input.setStorageMode( UniqueRowsByHashSetMeta.getStorageModeByDesc( wStorageMode.getText() ) );
+    input.setMemoryBudget( wMemoryBudget.getText() );
+    input.setSpillDirectory( wSpillDirectory.getText() );
     dispose();
   }
 
@@ -24,6 +24,7 @@
 package org.apache.hop.pipeline.transforms.uniquerowsbyhashset;
 
 import org.apache.hop.core.CheckResult;
+import org.apache.hop.core.Const;
 import org.apache.hop.core.ICheckResult;
 import org.apache.hop.core.annotations.Transform;
 import org.apache.hop.core.exception.HopTransformException;
@@ -58,6 +59,55 @@ public class UniqueRowsByHashSetMeta extends BaseTransformMeta implements ITrans
    */
   private boolean storeValues;
 
+  /**
+   * The storage mode descriptions
+   */
+  public static final String[] storageModeDesc = {
+    BaseMessages.getString( PKG, "UniqueRowsByHashSetMeta.StorageMode.Objects" ),
+    BaseMessages.getString( PKG, "UniqueRowsByHashSetMeta.StorageMode.Serialized" ),
+    BaseMessages.getString( PKG, "UniqueRowsByHashSetMeta.StorageMode.Hash128" ),
+    BaseMessages.getString( PKG, "UniqueRowsByHashSetMeta.StorageMode.Spill" ) };
+
+  /**
+   * The storage mode codes
+   */
+  public static final String[] storageModeCode = { "objects", "serialized", "hash128", "spill" };
+
+  /**
+   * Keys (or their hash only, see storeValues) as Java objects in a HashSet
+   */
+  public static final int STORAGE_MODE_OBJECTS = 0;
+
+  /**
+   * Serialized keys in an open addressing byte table, exact
+   */
+  public static final int STORAGE_MODE_SERIALIZED = 1;
+
+  /**
+   * Only a 128-bit hash of every key, a tiny chance of false duplicates
+   */
+  public static final int STORAGE_MODE_HASH128 = 2;
+
+  /**
+   * Serialized keys, spilling hash partitions to disk above the memory budget, exact
+   */
+  public static final int STORAGE_MODE_SPILL = 3;
+
+  /**
+   * How the keys are stored
+   */
+  private int storageMode;
+
+  /**
+   * The memory budget in MB of the keys in spill mode
+   */
+  private String memoryBudget;
+
+  /**
+   * The directory to write the spill files to in spill mode
+   */
+  private String spillDirectory;
+
   /**
    * The fields to compare for duplicates, null means all
    */
@@ -85,6 +135,82 @@ public class UniqueRowsByHashSetMeta extends BaseTransformMeta implements ITrans
     this.storeValues = storeValues;
   }
 
+  public int getStorageMode() {
+    return storageMode;
+  }
+
+  public void setStorageMode( int storageMode ) {
+    this.storageMode = storageMode;
+  }
+
+  public static int getStorageModeByDesc( String tt ) {
+    if ( tt == null ) {
+      return 0;
+    }
+
+    for ( int i = 0; i < storageModeDesc.length; i++ ) {
+      if ( storageModeDesc[ i ].equalsIgnoreCase( tt ) ) {
+        return i;
+      }
+    }
+    return 0;
+  }
+
+  public static String getStorageModeDesc( int i ) {
+    if ( i < 0 || i >= storageModeDesc.length ) {
+      return storageModeDesc[ 0 ];
+    }
+    return storageModeDesc[ i ];
+  }
+
+  private static int getStorageModeByCode( String tt ) {
+    if ( tt == null ) {
+      return 0;
+    }
+
+    for ( int i = 0; i < storageModeCode.length; i++ ) {
+      if ( storageModeCode[ i ].equalsIgnoreCase( tt ) ) {
+        return i;
+      }
+    }
+    return 0;
+  }
+
+  private static String getStorageModeCode( int i ) {
+    if ( i < 0 || i >= storageModeCode.length ) {
+      return storageModeCode[ 0 ];
+    }
+    return storageModeCode[ i ];
+  }
+
+  /**
+   * @return the memory budget in MB of the keys in spill mode
+   */
+  public String getMemoryBudget() {
+    return memoryBudget;
+  }
+
+  /**
+   * @param memoryBudget the memory budget in MB of the keys in spill mode
+   */
+  public void setMemoryBudget( String memoryBudget ) {
+    this.memoryBudget = memoryBudget;
+  }
+
+  /**
+   * @return the directory to write the spill files to in spill mode
+   */
+  public String getSpillDirectory() {
+    return spillDirectory;
+  }
+
+  /**
+   * @param spillDirectory the directory to write the spill files to in spill mode
+   */
+  public void setSpillDirectory( String spillDirectory ) {
+    this.spillDirectory = spillDirectory;
+  }
+
   /**
    * @return Returns the compareField.
    */
@@ -147,6 +273,9 @@ public class UniqueRowsByHashSetMeta extends BaseTransformMeta implements ITrans
   private void readData( Node transformNode ) throws HopXmlException {
     try {
       storeValues = "Y".equalsIgnoreCase( XmlHandler.getTagValue( transformNode, "store_values" ) );
+      storageMode = getStorageModeByCode( XmlHandler.getTagValue( transformNode, "storage_mode" ) );
+      memoryBudget = XmlHandler.getTagValue( transformNode, "memory_budget" );
+      spillDirectory = Const.NVL( XmlHandler.getTagValue( transformNode, "spill_directory" ), "${java.io.tmpdir}" );
       rejectDuplicateRow = "Y".equalsIgnoreCase( XmlHandler.getTagValue( transformNode, "reject_duplicate_row" ) );
       errorDescription = XmlHandler.getTagValue( transformNode, "error_description" );
 
@@ -170,6 +299,9 @@ public class UniqueRowsByHashSetMeta extends BaseTransformMeta implements ITrans
   public void setDefault() {
     rejectDuplicateRow = false;
     errorDescription = null;
+    storageMode = STORAGE_MODE_OBJECTS;
+    memoryBudget = "1024";
+    spillDirectory = "${java.io.tmpdir}";
     int nrFields = 0;
 
     allocate( nrFields );
@@ -187,6 +319,9 @@ public class UniqueRowsByHashSetMeta extends BaseTransformMeta implements ITrans
     StringBuilder retval = new StringBuilder();
 
     retval.append( "      " + XmlHandler.addTagValue( "store_values", storeValues ) );
+    retval.append( "      " + XmlHandler.addTagValue( "storage_mode", getStorageModeCode( storageMode ) ) );
+    retval.append( "      " + XmlHandler.addTagValue( "memory_budget", memoryBudget ) );
+    retval.append( "      " + XmlHandler.addTagValue( "spill_directory", spillDirectory ) );
     retval.append( "      " + XmlHandler.addTagValue( "reject_duplicate_row", rejectDuplicateRow ) );
     retval.append( "      " + XmlHandler.addTagValue( "error_description", errorDescription ) );
     retval.append( "    <fields>" );
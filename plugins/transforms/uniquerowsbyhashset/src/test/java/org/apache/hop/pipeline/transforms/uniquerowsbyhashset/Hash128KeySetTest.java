@@ -0,0 +1,61 @@
+/*! ******************************************************************************
+ *
+ * Hop : The Hop Orchestration Platform
+ *
+ * Copyright (C) 2002-2020 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+
+package org.apache.hop.pipeline.transforms.uniquerowsbyhashset;
+
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class Hash128KeySetTest {
+
+  @Test
+  public void testAddAndStatistics() {
+    Hash128KeySet keySet = new Hash128KeySet();
+    for ( int i = 0; i < 100000; i++ ) {
+      assertTrue( keySet.add( bytes( "key" + i ) ) );
+    }
+    for ( int i = 0; i < 100000; i += 2 ) {
+      assertFalse( keySet.add( bytes( "key" + i ) ) );
+    }
+    assertEquals( 100000, keySet.getSize() );
+    assertEquals( 100000, keySet.getMisses() );
+    assertEquals( 50000, keySet.getHits() );
+
+    // The memory doesn't depend on the size of the keys
+    //
+    assertTrue( keySet.getMemoryUsage() <= 100000 * 32L * 2 );
+
+    keySet.clear();
+    assertEquals( 0, keySet.getSize() );
+    assertTrue( keySet.add( bytes( "key0" ) ) );
+  }
+
+  private static byte[] bytes( String s ) {
+    return s.getBytes( StandardCharsets.UTF_8 );
+  }
+}
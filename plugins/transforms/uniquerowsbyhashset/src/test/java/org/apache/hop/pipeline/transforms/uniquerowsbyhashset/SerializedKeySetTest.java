@@ -0,0 +1,76 @@
+/*! ******************************************************************************
+ *
+ * Hop : The Hop Orchestration Platform
+ *
+ * Copyright (C) 2002-2020 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+
+package org.apache.hop.pipeline.transforms.uniquerowsbyhashset;
+
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class SerializedKeySetTest {
+
+  @Test
+  public void testAddAndStatistics() {
+    SerializedKeySet keySet = new SerializedKeySet();
+    assertTrue( keySet.add( bytes( "one" ) ) );
+    assertTrue( keySet.add( bytes( "two" ) ) );
+    assertFalse( keySet.add( bytes( "one" ) ) );
+    assertTrue( keySet.add( new byte[ 0 ] ) );
+    assertFalse( keySet.add( new byte[ 0 ] ) );
+
+    assertEquals( 3, keySet.getSize() );
+    assertEquals( 3, keySet.getMisses() );
+    assertEquals( 2, keySet.getHits() );
+    assertTrue( keySet.contains( bytes( "two" ) ) );
+    assertFalse( keySet.contains( bytes( "three" ) ) );
+    assertTrue( keySet.getMemoryUsage() >= SerializedKeySet.CHUNK_SIZE );
+
+    keySet.clear();
+    assertEquals( 0, keySet.getSize() );
+    assertTrue( keySet.add( bytes( "one" ) ) );
+  }
+
+  @Test
+  public void testResizeAndLargeKeys() {
+    SerializedKeySet keySet = new SerializedKeySet();
+    for ( int i = 0; i < 100000; i++ ) {
+      assertTrue( keySet.add( bytes( "key" + i ) ) );
+    }
+    byte[] largeKey = new byte[ SerializedKeySet.CHUNK_SIZE + 1 ];
+    largeKey[ 0 ] = 1;
+    assertTrue( keySet.add( largeKey ) );
+    for ( int i = 0; i < 100000; i++ ) {
+      assertFalse( keySet.add( bytes( "key" + i ) ) );
+    }
+    assertFalse( keySet.add( largeKey.clone() ) );
+    assertEquals( 100001, keySet.getSize() );
+  }
+
+  private static byte[] bytes( String s ) {
+    return s.getBytes( StandardCharsets.UTF_8 );
+  }
+}
@@ -0,0 +1,101 @@
+/*! ******************************************************************************
+ *
+ * Hop : The Hop Orchestration Platform
+ *
+ * Copyright (C) 2002-2020 by Hitachi Vantara : http://www.pentaho.com
+ *
+ *******************************************************************************
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ ******************************************************************************/
+
+
+package org.apache.hop.pipeline.transforms.uniquerowsbyhashset;
+
+import org.apache.hop.core.row.IRowMeta;
+import org.apache.hop.core.row.RowMeta;
+import org.apache.hop.core.row.value.ValueMetaInteger;
+import org.apache.hop.core.row.value.ValueMetaString;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class SpillingKeySetTest {
+
+  @Rule
+  public TemporaryFolder tempFolder = new TemporaryFolder();
+
+  @Test
+  public void testWithinBudget() throws Exception {
+    doTest( 0L, false );
+  }
+
+  @Test
+  public void testSpillToDisk() throws Exception {
+    // All the keys don't fit in this budget but the keys of a partition do
+    //
+    doTest( SerializedKeySet.CHUNK_SIZE + 100 * 1024, true );
+  }
+
+  private void doTest( long memoryBudget, boolean expectSpill ) throws Exception {
+    IRowMeta rowMeta = new RowMeta();
+    rowMeta.addValueMeta( new ValueMetaInteger( "id" ) );
+    rowMeta.addValueMeta( new ValueMetaString( "name" ) );
+
+    SpillingKeySet keySet = new SpillingKeySet( rowMeta, memoryBudget, tempFolder.getRoot().getAbsolutePath() );
+    Set<Long> unique = new HashSet<>();
+    int[] duplicates = new int[ 1 ];
+    SpillingKeySet.IRowListener listener = ( row, isUnique ) -> {
+      if ( isUnique ) {
+        assertTrue( "Row passed twice: " + row[ 0 ], unique.add( (Long) row[ 0 ] ) );
+      } else {
+        duplicates[ 0 ]++;
+      }
+    };
+
+    try {
+      for ( long i = 0; i < 30000; i++ ) {
+        long id = i % 10000;
+        Object[] row = new Object[] { id, "name" + id };
+        switch ( keySet.add( RowMeta.extractData( rowMeta, row ), row ) ) {
+          case UNIQUE:
+            listener.rowDecided( row, true );
+            break;
+          case DUPLICATE:
+            listener.rowDecided( row, false );
+            break;
+          default:
+            break;
+        }
+      }
+      keySet.processSpilledRows( listener );
+    } finally {
+      keySet.clear();
+    }
+
+    assertEquals( 10000, unique.size() );
+    assertEquals( 20000, duplicates[ 0 ] );
+    assertEquals( 10000, keySet.getSize() );
+    assertEquals( 20000, keySet.getHits() );
+    assertEquals( expectSpill, keySet.getSpilledRows() > 0 );
+    assertEquals( expectSpill, keySet.getSpillFiles() > 0 );
+    assertEquals( "The spill files are removed", 0, tempFolder.getRoot().list().length );
+  }
+}
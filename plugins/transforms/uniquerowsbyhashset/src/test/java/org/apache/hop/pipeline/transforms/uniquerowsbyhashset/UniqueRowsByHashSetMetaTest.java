@@ -28,6 +28,7 @@ import org.apache.hop.junit.rules.RestoreHopEngineEnvironment;
 import org.apache.hop.pipeline.transforms.loadsave.LoadSaveTester;
 import org.apache.hop.pipeline.transforms.loadsave.validator.ArrayLoadSaveValidator;
 import org.apache.hop.pipeline.transforms.loadsave.validator.IFieldLoadSaveValidator;
+import org.apache.hop.pipeline.transforms.loadsave.validator.IntLoadSaveValidator;
 import org.apache.hop.pipeline.transforms.loadsave.validator.StringLoadSaveValidator;
 import org.junit.ClassRule;
 import org.junit.Test;
@@ -43,19 +44,26 @@ public class UniqueRowsByHashSetMetaTest {
   @Test
   public void testRoundTrip() throws HopException {
     List<String> attributes =
-      Arrays.asList( "store_values", "reject_duplicate_row", "error_description", "name" );
+      Arrays.asList( "store_values", "reject_duplicate_row", "error_description", "name", "storage_mode",
+        "memory_budget", "spill_directory" );
 
     Map<String, String> getterMap = new HashMap<>();
     getterMap.put( "store_values", "getStoreValues" );
     getterMap.put( "reject_duplicate_row", "isRejectDuplicateRow" );
     getterMap.put( "error_description", "getErrorDescription" );
     getterMap.put( "name", "getCompareFields" );
+    getterMap.put( "storage_mode", "getStorageMode" );
+    getterMap.put( "memory_budget", "getMemoryBudget" );
+    getterMap.put( "spill_directory", "getSpillDirectory" );
 
     Map<String, String> setterMap = new HashMap<>();
     setterMap.put( "store_values", "setStoreValues" );
     setterMap.put( "reject_duplicate_row", "setRejectDuplicateRow" );
     setterMap.put( "error_description", "setErrorDescription" );
     setterMap.put( "name", "setCompareFields" );
+    setterMap.put( "storage_mode", "setStorageMode" );
+    setterMap.put( "memory_budget", "setMemoryBudget" );
+    setterMap.put( "spill_directory", "setSpillDirectory" );
 
     Map<String, IFieldLoadSaveValidator<?>> fieldLoadSaveValidatorAttributeMap =
       new HashMap<String, IFieldLoadSaveValidator<?>>();
@@ -65,6 +73,8 @@ public class UniqueRowsByHashSetMetaTest {
       new ArrayLoadSaveValidator<String>( new StringLoadSaveValidator(), 25 );
 
     fieldLoadSaveValidatorAttributeMap.put( "name", stringArrayLoadSaveValidator );
+    fieldLoadSaveValidatorAttributeMap.put( "storage_mode",
+      new IntLoadSaveValidator( UniqueRowsByHashSetMeta.storageModeCode.length ) );
 
     LoadSaveTester loadSaveTester =
       new LoadSaveTester( UniqueRowsByHashSetMeta.class, attributes, getterMap, setterMap,
@@ -23,13 +23,16 @@
 
 package org.apache.hop.pipeline.transforms.update;
 
+import com.google.common.annotations.VisibleForTesting;
 import org.apache.commons.lang.ArrayUtils;
 import org.apache.hop.core.Const;
+import org.apache.hop.core.RowMetaAndData;
 import org.apache.hop.core.database.Database;
 import org.apache.hop.core.database.DatabaseMeta;
 import org.apache.hop.core.exception.HopDatabaseException;
 import org.apache.hop.core.exception.HopException;
 import org.apache.hop.core.exception.HopTransformException;
+import org.apache.hop.core.exception.HopValueException;
 import org.apache.hop.core.row.RowMeta;
 import org.apache.hop.core.row.IRowMeta;
 import org.apache.hop.core.row.IValueMeta;
@@ -43,6 +46,10 @@ import org.apache.hop.pipeline.transform.TransformMeta;
 
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 /**
  * Update data in a database table, does NOT ever perform an insert.
@@ -71,22 +78,17 @@ public class Update extends BaseTransform<UpdateMeta, UpdateData> implements ITr
 
     // OK, now do the lookup.
     // We need the lookupvalues for that.
-    Object[] lookupRow = new Object[ data.lookupParameterRowMeta.size() ];
-    int lookupIndex = 0;
-
-    for ( int i = 0; i < data.keynrs.length; i++ ) {
-      if ( data.keynrs[ i ] >= 0 ) {
-        lookupRow[ lookupIndex ] = row[ data.keynrs[ i ] ];
-        lookupIndex++;
+    Object[] lookupRow = getLookupRow( row );
+    RowMetaAndData batchKey = null;
 
-      }
-      if ( data.keynrs2[ i ] >= 0 ) {
-        lookupRow[ lookupIndex ] = row[ data.keynrs2[ i ] ];
-        lookupIndex++;
-      }
-    }
     IRowMeta returnRowMeta = null;
-    if ( !meta.isSkipLookup() ) {
+    if ( !meta.isSkipLookup() && data.batchResults != null ) {
+      // The key was looked up together with the rest of the batch
+      //
+      batchKey = getBatchKey( lookupRow );
+      add = data.batchResults.get( batchKey );
+      returnRowMeta = data.batchReturnRowMeta;
+    } else if ( !meta.isSkipLookup() ) {
       data.db.setValues( data.lookupParameterRowMeta, lookupRow, data.prepStatementLookup );
       if ( log.isDebug() ) {
         logDebug( BaseMessages.getString( PKG, "Update.Log.ValuesSetForLookup", data.lookupParameterRowMeta
@@ -183,6 +185,17 @@ public class Update extends BaseTransform<UpdateMeta, UpdateData> implements ITr
         data.db.setValues( data.updateParameterRowMeta, updateRow, data.prepStatementUpdate );
         data.db.insertRow( data.prepStatementUpdate, meta.useBatchUpdate(), true );
         incrementLinesUpdated();
+
+        if ( batchKey != null ) {
+          // Later rows of the batch with the same key compare with the values we just wrote
+          //
+          Object[] written = new Object[ data.valuenrs.length ];
+          for ( int i = 0; i < data.valuenrs.length; i++ ) {
+            written[ i ] = returnRowMeta.getValueMeta( i ).convertData(
+              rowMeta.getValueMeta( data.valuenrs[ i ] ), row[ data.valuenrs[ i ] ] );
+          }
+          data.batchResults.put( batchKey, written );
+        }
       } else {
         incrementLinesSkipped();
       }
@@ -196,14 +209,93 @@ public class Update extends BaseTransform<UpdateMeta, UpdateData> implements ITr
     return outputRow;
   }
 
-  public boolean processRow() throws HopException {
+  private Object[] getLookupRow( Object[] row ) {
+    Object[] lookupRow = new Object[ data.lookupParameterRowMeta.size() ];
+    int lookupIndex = 0;
 
-    boolean sendToErrorRow = false;
-    String errorMessage = null;
+    for ( int i = 0; i < data.keynrs.length; i++ ) {
+      if ( data.keynrs[ i ] >= 0 ) {
+        lookupRow[ lookupIndex ] = row[ data.keynrs[ i ] ];
+        lookupIndex++;
+
+      }
+      if ( data.keynrs2[ i ] >= 0 ) {
+        lookupRow[ lookupIndex ] = row[ data.keynrs2[ i ] ];
+        lookupIndex++;
+      }
+    }
+    return lookupRow;
+  }
+
+  private RowMetaAndData getBatchKey( Object[] lookupRow ) throws HopValueException {
+    Object[] key = new Object[ lookupRow.length ];
+    for ( int i = 0; i < lookupRow.length; i++ ) {
+      key[ i ] = data.lookupParameterRowMeta.getValueMeta( i ).convertToNormalStorageType( lookupRow[ i ] );
+    }
+    return new RowMetaAndData( data.batchKeyMeta, key );
+  }
+
+  /**
+   * Looks up the keys of all buffered input rows with a single set based query. The answers are kept in
+   * {@link UpdateData#batchResults}, keys that were not found map to null.
+   *
+   * @throws HopException In case something goes wrong.
+   */
+  @VisibleForTesting
+  void lookupBatch() throws HopException {
+    Map<RowMetaAndData, Object[]> results = new HashMap<>();
+    List<RowMetaAndData> keys = new ArrayList<>();
+
+    for ( Object[] row : data.batchRows ) {
+      RowMetaAndData key = getBatchKey( getLookupRow( row ) );
+      if ( !results.containsKey( key ) ) {
+        results.put( key, null );
+
+        // A null never equals anything: there is no need to ask the database
+        //
+        if ( !Arrays.asList( key.getData() ).contains( null ) ) {
+          keys.add( key );
+        }
+      }
+    }
+
+    if ( !keys.isEmpty() ) {
+      List<Object[]> keysData = new ArrayList<>( keys.size() );
+      for ( RowMetaAndData key : keys ) {
+        keysData.add( key.getData() );
+      }
+
+      // The database tells which key a row belongs to: it can match a key that differs in case, padding, scale or
+      // precision from the value it returns, like the lookup of a single key
+      //
+      List<Object[]> rows = data.db.getLookupRowsPerKey(
+        environmentSubstitute( meta.getSchemaName() ), environmentSubstitute( meta.getTableName() ),
+        meta.getKeyLookup(), data.batchKeyMeta, keysData, meta.getUpdateLookup() );
+      IRowMeta rowMeta = data.db.getReturnRowMeta();
+
+      data.batchReturnRowMeta = new RowMeta();
+      for ( int i = 1; i < rowMeta.size(); i++ ) {
+        data.batchReturnRowMeta.addValueMeta( rowMeta.getValueMeta( i ) );
+      }
+
+      for ( Object[] row : rows ) {
+        RowMetaAndData key = keys.get( ( (Long) row[ 0 ] ).intValue() );
+        if ( results.get( key ) == null ) {
+          results.put( key, Arrays.copyOfRange( row, 1, rowMeta.size() ) );
+        }
+      }
+    }
+
+    data.batchResults = results;
+  }
+
+  public boolean processRow() throws HopException {
 
     Object[] r = getRow(); // Get row from input rowset & set row busy!
     if ( r == null ) { // no more input to be expected...
-
+      if ( data.batchRows != null && !data.batchRows.isEmpty() && !processBatch() ) {
+        return false;
+      }
       setOutputDone();
       return false;
     }
@@ -305,7 +397,79 @@ public class Update extends BaseTransform<UpdateMeta, UpdateData> implements ITr
         setLookup( getInputRowMeta() );
       }
       prepareUpdate( getInputRowMeta() );
+
+      initBatchLookup();
+    }
+
+    if ( data.batchLookup ) {
+      data.batchRows.add( r );
+      if ( data.batchRows.size() >= meta.getLookupBatchSize() ) {
+        return processBatch();
+      }
+      return true;
+    }
+
+    return processUpdateRow( r );
+  }
+
+  private void initBatchLookup() {
+    data.batchLookup = meta.getLookupBatchSize() > 1 && !meta.isSkipLookup() && meta.getKeyLookup().length > 0
+      && data.lookupParameterRowMeta.size() == meta.getKeyLookup().length;
+    for ( int i = 0; i < meta.getKeyCondition().length; i++ ) {
+      if ( !"=".equals( meta.getKeyCondition()[ i ] ) ) {
+        data.batchLookup = false;
+      }
+    }
+
+    if ( data.batchLookup ) {
+      data.batchRows = new ArrayList<>( meta.getLookupBatchSize() );
+      data.batchKeyMeta = new RowMeta();
+      for ( int i = 0; i < data.lookupParameterRowMeta.size(); i++ ) {
+        IValueMeta keyMeta = data.lookupParameterRowMeta.getValueMeta( i ).clone();
+        keyMeta.setStorageType( IValueMeta.STORAGE_TYPE_NORMAL );
+        data.batchKeyMeta.addValueMeta( keyMeta );
+      }
+    } else if ( meta.getLookupBatchSize() > 1 ) {
+      logBasic( BaseMessages.getString( PKG, "Update.Log.LookupBatchDisabled" ) );
     }
+  }
+
+  /**
+   * Looks up the buffered rows with one set based query and updates them in their original order.
+   */
+  private boolean processBatch() throws HopException {
+    try {
+      lookupBatch();
+    } catch ( HopException e ) {
+      if ( getTransformMeta().isDoingErrorHandling() ) {
+        // Look the rows up one by one so that only the offending rows end up in the error stream
+        //
+        data.batchResults = null;
+      } else {
+        logError( BaseMessages.getString( PKG, "Update.Log.ErrorInTransform" ), e );
+        setErrors( 1 );
+        stopAll();
+        setOutputDone(); // signal end to receiver(s)
+        return false;
+      }
+    }
+
+    try {
+      for ( Object[] row : data.batchRows ) {
+        if ( !processUpdateRow( row ) ) {
+          return false;
+        }
+      }
+    } finally {
+      data.batchRows.clear();
+      data.batchResults = null;
+    }
+    return true;
+  }
+
+  private boolean processUpdateRow( Object[] r ) throws HopException {
+    boolean sendToErrorRow = false;
+    String errorMessage = null;
 
     try {
       Object[] outputRow = lookupValues( getInputRowMeta(), r ); // add new values to the row in rowset[0].
@@ -22,12 +22,15 @@
 
 package org.apache.hop.pipeline.transforms.update;
 
+import org.apache.hop.core.RowMetaAndData;
 import org.apache.hop.core.database.Database;
 import org.apache.hop.core.row.IRowMeta;
 import org.apache.hop.pipeline.transform.BaseTransformData;
 import org.apache.hop.pipeline.transform.ITransformData;
 
 import java.sql.PreparedStatement;
+import java.util.List;
+import java.util.Map;
 
 /**
  * @author Matt
@@ -55,6 +58,12 @@ public class UpdateData extends BaseTransformData implements ITransformData {
   public IRowMeta lookupReturnRowMeta;
   public IRowMeta updateParameterRowMeta;
 
+  public boolean batchLookup; // look up the keys of several input rows with a single query
+  public List<Object[]> batchRows; // input rows waiting for the next set based lookup
+  public IRowMeta batchKeyMeta; // the key values in normal storage
+  public IRowMeta batchReturnRowMeta; // the looked up values as returned by the database
+  public Map<RowMetaAndData, Object[]> batchResults; // looked up keys of the current batch, null when not found
+
   public UpdateData() {
     super();
 
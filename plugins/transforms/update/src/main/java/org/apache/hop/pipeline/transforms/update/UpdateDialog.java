@@ -90,6 +90,9 @@ public class UpdateDialog extends BaseTransformDialog implements ITransformDialo
 
   private Button wSkipLookup;
 
+  private Label wlLookupBatchSize;
+  private Text wLookupBatchSize;
+
   /**
    * List of ColumnInfo that should have the field names of the selected database table
    */
@@ -250,13 +253,33 @@ public class UpdateDialog extends BaseTransformDialog implements ITransformDialo
       }
     } );
 
+    // Lookup batch size
+    wlLookupBatchSize = new Label( shell, SWT.RIGHT );
+    wlLookupBatchSize.setText( BaseMessages.getString( PKG, "UpdateDialog.LookupBatchSize.Label" ) );
+    wlLookupBatchSize.setToolTipText( BaseMessages.getString( PKG, "UpdateDialog.LookupBatchSize.Tooltip" ) );
+    props.setLook( wlLookupBatchSize );
+    FormData fdlLookupBatchSize = new FormData();
+    fdlLookupBatchSize.left = new FormAttachment( 0, 0 );
+    fdlLookupBatchSize.top = new FormAttachment( wBatch, margin );
+    fdlLookupBatchSize.right = new FormAttachment( middle, -margin );
+    wlLookupBatchSize.setLayoutData( fdlLookupBatchSize );
+    wLookupBatchSize = new Text( shell, SWT.SINGLE | SWT.LEFT | SWT.BORDER );
+    wLookupBatchSize.setToolTipText( BaseMessages.getString( PKG, "UpdateDialog.LookupBatchSize.Tooltip" ) );
+    props.setLook( wLookupBatchSize );
+    wLookupBatchSize.addModifyListener( lsMod );
+    FormData fdLookupBatchSize = new FormData();
+    fdLookupBatchSize.left = new FormAttachment( middle, 0 );
+    fdLookupBatchSize.top = new FormAttachment( wBatch, margin );
+    fdLookupBatchSize.right = new FormAttachment( 100, 0 );
+    wLookupBatchSize.setLayoutData( fdLookupBatchSize );
+
     // UsePart update
     Label wlSkipLookup = new Label(shell, SWT.RIGHT);
     wlSkipLookup.setText( BaseMessages.getString( PKG, "UpdateDialog.SkipLookup.Label" ) );
     props.setLook(wlSkipLookup);
     FormData fdlSkipLookup = new FormData();
     fdlSkipLookup.left = new FormAttachment( 0, 0 );
-    fdlSkipLookup.top = new FormAttachment( wBatch, margin );
+    fdlSkipLookup.top = new FormAttachment( wLookupBatchSize, margin );
     fdlSkipLookup.right = new FormAttachment( middle, -margin );
     wlSkipLookup.setLayoutData(fdlSkipLookup);
     wSkipLookup = new Button( shell, SWT.CHECK );
@@ -458,6 +481,7 @@ public class UpdateDialog extends BaseTransformDialog implements ITransformDialo
     wSchema.addSelectionListener( lsDef );
     wTable.addSelectionListener( lsDef );
     wCommit.addSelectionListener( lsDef );
+    wLookupBatchSize.addSelectionListener( lsDef );
     wIgnoreFlagField.addSelectionListener( lsDef );
 
     // Detect X or ALT-F4 or something that kills this window...
@@ -500,6 +524,8 @@ public class UpdateDialog extends BaseTransformDialog implements ITransformDialo
     }
     wErrorIgnored.setEnabled( !wSkipLookup.getSelection() );
     wlErrorIgnored.setEnabled( !wSkipLookup.getSelection() );
+    wLookupBatchSize.setEnabled( !wSkipLookup.getSelection() );
+    wlLookupBatchSize.setEnabled( !wSkipLookup.getSelection() );
     wlIgnoreFlagField.setEnabled( !wSkipLookup.getSelection() && wErrorIgnored.getSelection() );
     wIgnoreFlagField.setEnabled( !wSkipLookup.getSelection() && wErrorIgnored.getSelection() );
 
@@ -605,6 +631,7 @@ public class UpdateDialog extends BaseTransformDialog implements ITransformDialo
     wCommit.setText( input.getCommitSizeVar() );
     wBatch.setSelection( input.useBatchUpdate() );
     wSkipLookup.setSelection( input.isSkipLookup() );
+    wLookupBatchSize.setText( "" + input.getLookupBatchSize() );
     wErrorIgnored.setSelection( input.isErrorIgnored() );
     if ( input.getIgnoreFlagField() != null ) {
       wIgnoreFlagField.setText( input.getIgnoreFlagField() );
@@ -677,6 +704,7 @@ public class UpdateDialog extends BaseTransformDialog implements ITransformDialo
     inf.setCommitSize( wCommit.getText() );
     inf.setUseBatchUpdate( wBatch.getSelection() );
     inf.setSkipLookup( wSkipLookup.getSelection() );
+    inf.setLookupBatchSize( Const.toInt( wLookupBatchSize.getText(), 0 ) );
 
     if ( log.isDebug() ) {
       logDebug( BaseMessages.getString( PKG, "UpdateDialog.Log.FoundKeys", nrkeys + "" ) );
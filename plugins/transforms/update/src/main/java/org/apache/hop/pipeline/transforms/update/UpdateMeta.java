@@ -156,6 +156,12 @@ public class UpdateMeta extends BaseTransformMeta implements ITransformMeta<Upda
   @Injection( name = "BATCH_UPDATE" )
   private boolean useBatchUpdate;
 
+  /**
+   * Look up the keys of this many input rows with a single set based query (0 or 1 looks up row by row)
+   */
+  @Injection( name = "LOOKUP_BATCH_SIZE" )
+  private int lookupBatchSize;
+
   @Injection( name = "CONNECTIONNAME" )
   public void setConnection( String connectionName ) {
     try {
@@ -413,6 +419,7 @@ public class UpdateMeta extends BaseTransformMeta implements ITransformMeta<Upda
       commitSize = ( csize == null ) ? "0" : csize;
       useBatchUpdate = "Y".equalsIgnoreCase( XmlHandler.getTagValue( transformNode, "use_batch" ) );
       skipLookup = "Y".equalsIgnoreCase( XmlHandler.getTagValue( transformNode, "skip_lookup" ) );
+      lookupBatchSize = Const.toInt( XmlHandler.getTagValue( transformNode, "lookup_batch_size" ), 0 );
       errorIgnored = "Y".equalsIgnoreCase( XmlHandler.getTagValue( transformNode, "error_ignored" ) );
       ignoreFlagField = XmlHandler.getTagValue( transformNode, "ignore_flag_field" );
       schemaName = XmlHandler.getTagValue( transformNode, "lookup", "schema" );
@@ -454,6 +461,7 @@ public class UpdateMeta extends BaseTransformMeta implements ITransformMeta<Upda
   @Override
   public void setDefault() {
     skipLookup = false;
+    lookupBatchSize = 0;
     keyStream = null;
     updateLookup = null;
     databaseMeta = null;
@@ -488,6 +496,7 @@ public class UpdateMeta extends BaseTransformMeta implements ITransformMeta<Upda
     retval.append( "    " + XmlHandler.addTagValue( "skip_lookup", skipLookup ) );
     retval.append( "    " + XmlHandler.addTagValue( "commit", commitSize ) );
     retval.append( "    " + XmlHandler.addTagValue( "use_batch", useBatchUpdate ) );
+    retval.append( "    " + XmlHandler.addTagValue( "lookup_batch_size", lookupBatchSize ) );
     retval.append( "    " + XmlHandler.addTagValue( "error_ignored", errorIgnored ) );
     retval.append( "    " + XmlHandler.addTagValue( "ignore_flag_field", ignoreFlagField ) );
     retval.append( "    <lookup>" + Const.CR );
@@ -868,6 +877,20 @@ public class UpdateMeta extends BaseTransformMeta implements ITransformMeta<Upda
     this.useBatchUpdate = useBatchUpdate;
   }
 
+  /**
+   * @return the number of input rows looked up with a single set based query, 0 or 1 looks up row by row
+   */
+  public int getLookupBatchSize() {
+    return lookupBatchSize;
+  }
+
+  /**
+   * @param lookupBatchSize the number of input rows looked up with a single set based query
+   */
+  public void setLookupBatchSize( int lookupBatchSize ) {
+    this.lookupBatchSize = lookupBatchSize;
+  }
+
   /**
    * If we use injection we can have different arrays lengths.
    * We need synchronize them for consistency behavior with UI
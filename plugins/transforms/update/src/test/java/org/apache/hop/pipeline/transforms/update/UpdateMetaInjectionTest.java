@@ -44,6 +44,7 @@ public class UpdateMetaInjectionTest extends BaseMetadataInjectionTest<UpdateMet
     check( "COMMIT_SIZE", () -> meta.getCommitSizeVar() );
     check( "BATCH_UPDATE", () -> meta.useBatchUpdate() );
     check( "SKIP_LOOKUP", () -> meta.isSkipLookup() );
+    check( "LOOKUP_BATCH_SIZE", () -> meta.getLookupBatchSize() );
     check( "IGNORE_LOOKUP_FAILURE", () -> meta.isErrorIgnored() );
     check( "FLAG_FIELD", () -> meta.getIgnoreFlagField() );
     check( "KEY_STREAM", () -> meta.getKeyStream()[ 0 ] );
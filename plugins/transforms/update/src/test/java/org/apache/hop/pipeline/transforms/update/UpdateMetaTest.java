@@ -97,7 +97,7 @@ public class UpdateMetaTest implements IInitializer<ITransformMeta> {
 
     List<String> attributes =
       Arrays.asList( "schemaName", "tableName", "commitSize", "errorIgnored", "ignoreFlagField",
-        "skipLookup", "useBatchUpdate", "keyStream", "keyLookup", "keyCondition", "keyStream2",
+        "skipLookup", "useBatchUpdate", "lookupBatchSize", "keyStream", "keyLookup", "keyCondition", "keyStream2",
         "updateLookup", "updateStream", "databaseMeta" );
 
     Map<String, String> getterMap = new HashMap<String, String>() {
@@ -109,6 +109,7 @@ public class UpdateMetaTest implements IInitializer<ITransformMeta> {
         put( "ignoreFlagField", "getIgnoreFlagField" );
         put( "skipLookup", "isSkipLookup" );
         put( "useBatchUpdate", "useBatchUpdate" );
+        put( "lookupBatchSize", "getLookupBatchSize" );
         put( "keyStream", "getKeyStream" );
         put( "keyLookup", "getKeyLookup" );
         put( "keyCondition", "getKeyCondition" );
@@ -127,6 +128,7 @@ public class UpdateMetaTest implements IInitializer<ITransformMeta> {
         put( "ignoreFlagField", "setIgnoreFlagField" );
         put( "skipLookup", "setSkipLookup" );
         put( "useBatchUpdate", "setUseBatchUpdate" );
+        put( "lookupBatchSize", "setLookupBatchSize" );
         put( "keyStream", "setKeyStream" );
         put( "keyLookup", "setKeyLookup" );
         put( "keyCondition", "setKeyCondition" );
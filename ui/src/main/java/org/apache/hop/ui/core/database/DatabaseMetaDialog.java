@@ -28,6 +28,7 @@ import org.apache.hop.core.HopClientEnvironment;
 import org.apache.hop.core.HopEnvironment;
 import org.apache.hop.core.Props;
 import org.apache.hop.core.database.BaseDatabaseMeta;
+import org.apache.hop.core.database.DatabaseConnectionPoolParameter;
 import org.apache.hop.core.database.DatabaseMeta;
 import org.apache.hop.core.database.DatabasePluginType;
 import org.apache.hop.core.database.DatabaseTestResults;
@@ -74,6 +75,7 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Properties;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 @GuiPlugin(
@@ -127,6 +129,14 @@ public class DatabaseMetaDialog extends Dialog implements IMetadataDialog {
   private FormData fdOptionsComp;
   private TableView wOptions;
 
+  private CTabItem wPoolingTab;
+  private Composite wPoolingComp;
+  private FormData fdPoolingComp;
+  private Button wUsePool;
+  private TextVar wInitialPoolSize;
+  private TextVar wMaximumPoolSize;
+  private TableView wPoolParameters;
+
   private final PropsUi props;
   private int middle;
   private int margin;
@@ -216,6 +226,7 @@ public class DatabaseMetaDialog extends Dialog implements IMetadataDialog {
     addGeneralTab();
     addAdvancedTab();
     addOptionsTab();
+    addPoolingTab();
 
     getData();
 
@@ -670,12 +681,127 @@ public class DatabaseMetaDialog extends Dialog implements IMetadataDialog {
     wOptionsTab.setControl( wOptionsComp );
   }
 
+  private void addPoolingTab() {
+
+    wPoolingTab = new CTabItem( wTabFolder, SWT.NONE );
+    wPoolingTab.setText( "   " + BaseMessages.getString( PKG, "DatabaseDialog.PoolingTab.title" ) + "   " );
+
+    wPoolingComp = new Composite( wTabFolder, SWT.NONE );
+    props.setLook( wPoolingComp );
+
+    FormLayout poolingLayout = new FormLayout();
+    poolingLayout.marginWidth = Const.FORM_MARGIN * 2;
+    poolingLayout.marginHeight = Const.FORM_MARGIN * 2;
+    wPoolingComp.setLayout( poolingLayout );
+
+    // Use a connection pool?
+    //
+    Label wlUsePool = new Label( wPoolingComp, SWT.RIGHT );
+    props.setLook( wlUsePool );
+    wlUsePool.setText( BaseMessages.getString( PKG, "DatabaseDialog.label.UseConnectionPool" ) );
+    FormData fdlUsePool = new FormData();
+    fdlUsePool.top = new FormAttachment( 0, 0 );
+    fdlUsePool.left = new FormAttachment( 0, 0 ); // First one in the left top corner
+    fdlUsePool.right = new FormAttachment( middle, 0 );
+    wlUsePool.setLayoutData( fdlUsePool );
+    wUsePool = new Button( wPoolingComp, SWT.CHECK | SWT.LEFT );
+    props.setLook( wUsePool );
+    FormData fdUsePool = new FormData();
+    fdUsePool.top = new FormAttachment( wlUsePool, 0, SWT.CENTER );
+    fdUsePool.left = new FormAttachment( middle, margin ); // To the right of the label
+    fdUsePool.right = new FormAttachment( 100, 0 );
+    wUsePool.setLayoutData( fdUsePool );
+    wUsePool.addListener( SWT.Selection, e -> enableFields() );
+    Control lastControl = wUsePool;
+
+    // The initial pool size
+    //
+    Label wlInitialPoolSize = new Label( wPoolingComp, SWT.RIGHT );
+    props.setLook( wlInitialPoolSize );
+    wlInitialPoolSize.setText( BaseMessages.getString( PKG, "DatabaseDialog.label.InitialPoolSize" ) );
+    FormData fdlInitialPoolSize = new FormData();
+    fdlInitialPoolSize.top = new FormAttachment( lastControl, margin );
+    fdlInitialPoolSize.left = new FormAttachment( 0, 0 ); // First one in the left top corner
+    fdlInitialPoolSize.right = new FormAttachment( middle, 0 );
+    wlInitialPoolSize.setLayoutData( fdlInitialPoolSize );
+    wInitialPoolSize = new TextVar( databaseMeta, wPoolingComp, SWT.SINGLE | SWT.LEFT | SWT.BORDER );
+    props.setLook( wInitialPoolSize );
+    FormData fdInitialPoolSize = new FormData();
+    fdInitialPoolSize.top = new FormAttachment( wlInitialPoolSize, 0, SWT.CENTER );
+    fdInitialPoolSize.left = new FormAttachment( middle, margin ); // To the right of the label
+    fdInitialPoolSize.right = new FormAttachment( 100, 0 );
+    wInitialPoolSize.setLayoutData( fdInitialPoolSize );
+    lastControl = wInitialPoolSize;
+
+    // The maximum pool size
+    //
+    Label wlMaximumPoolSize = new Label( wPoolingComp, SWT.RIGHT );
+    props.setLook( wlMaximumPoolSize );
+    wlMaximumPoolSize.setText( BaseMessages.getString( PKG, "DatabaseDialog.label.MaximumPoolSize" ) );
+    FormData fdlMaximumPoolSize = new FormData();
+    fdlMaximumPoolSize.top = new FormAttachment( lastControl, margin );
+    fdlMaximumPoolSize.left = new FormAttachment( 0, 0 ); // First one in the left top corner
+    fdlMaximumPoolSize.right = new FormAttachment( middle, 0 );
+    wlMaximumPoolSize.setLayoutData( fdlMaximumPoolSize );
+    wMaximumPoolSize = new TextVar( databaseMeta, wPoolingComp, SWT.SINGLE | SWT.LEFT | SWT.BORDER );
+    props.setLook( wMaximumPoolSize );
+    FormData fdMaximumPoolSize = new FormData();
+    fdMaximumPoolSize.top = new FormAttachment( wlMaximumPoolSize, 0, SWT.CENTER );
+    fdMaximumPoolSize.left = new FormAttachment( middle, margin ); // To the right of the label
+    fdMaximumPoolSize.right = new FormAttachment( 100, 0 );
+    wMaximumPoolSize.setLayoutData( fdMaximumPoolSize );
+    lastControl = wMaximumPoolSize;
+
+    // The other pool parameters like minIdle or validationQuery
+    //
+    ColumnInfo[] poolColumns = new ColumnInfo[] {
+      new ColumnInfo( BaseMessages.getString( PKG, "DatabaseDialog.column.PoolParameter" ), ColumnInfo.COLUMN_TYPE_CCOMBO,
+        DatabaseConnectionPoolParameter.getParameterNames( BaseDatabaseMeta.POOLING_PARAMETERS ), false ),
+      new ColumnInfo( BaseMessages.getString( PKG, "DatabaseDialog.column.PoolValue" ), ColumnInfo.COLUMN_TYPE_TEXT, false ),
+    };
+    poolColumns[ 0 ].setToolTip( BaseMessages.getString( PKG, "DatabaseDialog.column.SelectPoolParameter" ) );
+    poolColumns[ 1 ].setUsingVariables( true );
+
+    Label wlPoolParameters = new Label( wPoolingComp, SWT.LEFT );
+    props.setLook( wlPoolParameters );
+    wlPoolParameters.setText( BaseMessages.getString( PKG, "DatabaseDialog.label.PoolParameters" ) );
+    FormData fdlPoolParameters = new FormData();
+    fdlPoolParameters.top = new FormAttachment( lastControl, margin * 2 );
+    fdlPoolParameters.left = new FormAttachment( 0, 0 ); // First one in the left top corner
+    fdlPoolParameters.right = new FormAttachment( 100, 0 );
+    wlPoolParameters.setLayoutData( fdlPoolParameters );
+    wPoolParameters = new TableView( databaseMeta, wPoolingComp, SWT.NONE, poolColumns,
+      workingMeta.getConnectionPoolingProperties().size(), null, props );
+    props.setLook( wPoolParameters );
+    FormData fdPoolParameters = new FormData();
+    fdPoolParameters.top = new FormAttachment( wlPoolParameters, margin );
+    fdPoolParameters.bottom = new FormAttachment( 100, 0 );
+    fdPoolParameters.left = new FormAttachment( 0, 0 ); // To the right of the label
+    fdPoolParameters.right = new FormAttachment( 100, 0 );
+    wPoolParameters.setLayoutData( fdPoolParameters );
+
+    fdPoolingComp = new FormData();
+    fdPoolingComp.left = new FormAttachment( 0, 0 );
+    fdPoolingComp.top = new FormAttachment( 0, 0 );
+    fdPoolingComp.right = new FormAttachment( 100, 0 );
+    fdPoolingComp.bottom = new FormAttachment( 100, 0 );
+    wPoolingComp.setLayoutData( fdPoolingComp );
+
+    wPoolingComp.layout();
+    wPoolingTab.setControl( wPoolingComp );
+  }
+
   private void enableFields() {
     boolean manualUrl = StringUtils.isNotEmpty( wManualUrl.getText() ) && StringUtils.isNotBlank( wManualUrl.getText() );
 
     // Also enable/disable the custom native fields
     //
     guiCompositeWidgets.enableWidgets( workingMeta.getIDatabase(), DatabaseMeta.GUI_PLUGIN_ELEMENT_PARENT_ID, !manualUrl );
+
+    boolean usePool = wUsePool.getSelection();
+    wInitialPoolSize.setEnabled( usePool );
+    wMaximumPoolSize.setEnabled( usePool );
+    wPoolParameters.setEnabled( usePool );
   }
 
   private void ok( Event event ) {
@@ -738,6 +864,22 @@ public class DatabaseMetaDialog extends Dialog implements IMetadataDialog {
     wOptions.setRowNums();
     wOptions.optWidth( true );
 
+    wUsePool.setSelection( workingMeta.isUsingConnectionPool() );
+    wInitialPoolSize.setText( Const.NVL( workingMeta.getInitialPoolSizeString(), "" ) );
+    wMaximumPoolSize.setText( Const.NVL( workingMeta.getMaximumPoolSizeString(), "" ) );
+    wPoolParameters.clearAll( false );
+    Properties poolProperties = workingMeta.getConnectionPoolingProperties();
+    List<String> poolParameters = new ArrayList<>( poolProperties.stringPropertyNames() );
+    Collections.sort( poolParameters );
+    for ( String parameter : poolParameters ) {
+      TableItem item = new TableItem( wPoolParameters.table, SWT.NONE );
+      item.setText( 1, parameter );
+      item.setText( 2, Const.NVL( poolProperties.getProperty( parameter ), "" ) );
+    }
+    wPoolParameters.removeEmptyRows();
+    wPoolParameters.setRowNums();
+    wPoolParameters.optWidth( true );
+
     enableFields();
   }
 
@@ -773,6 +915,20 @@ public class DatabaseMetaDialog extends Dialog implements IMetadataDialog {
       meta.addExtraOption( meta.getPluginId(), option, value );
     }
 
+    meta.setUsingConnectionPool( wUsePool.getSelection() );
+    meta.setInitialPoolSizeString( wInitialPoolSize.getText() );
+    meta.setMaximumPoolSizeString( wMaximumPoolSize.getText() );
+    Properties poolProperties = new Properties();
+    for ( int i = 0; i < wPoolParameters.nrNonEmpty(); i++ ) {
+      TableItem item = wPoolParameters.getNonEmpty( i );
+      String parameter = item.getText( 1 );
+      String value = item.getText( 2 );
+      if ( StringUtils.isNotEmpty( parameter ) && StringUtils.isNotEmpty( value ) ) {
+        poolProperties.setProperty( parameter, value );
+      }
+    }
+    meta.setConnectionPoolingProperties( poolProperties );
+
     return meta;
   }
 